@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.client.remote;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+/**
+ * Lazy iterator over the result of a command executed with a server side cursor. Records are received in pages: the next page is
+ * requested to the server only when the current one has been browsed, so the client processes the first records while the server
+ * is still executing the command. Call {@link #close()} to release the server side cursor if the result is not browsed until the
+ * end.
+ *
+ * @see OCursorStorage#commandCursor(OCommandRequestText, int)
+ */
+public class ORemoteCommandCursor implements Iterator<OIdentifiable>, Iterable<OIdentifiable> {
+  /**
+   * Remote storage that executes commands with server side cursors and fetches their pages.
+   */
+  public interface OCursorStorage {
+    ORemoteCommandCursor commandCursor(OCommandRequestText iCommand);
+
+    ORemoteCommandCursor commandCursor(OCommandRequestText iCommand, int iPageSize);
+
+    void fetchCursorPage(ORemoteCommandCursor iCursor);
+
+    void closeCursor(ORemoteCommandCursor iCursor);
+  }
+
+  private final OCursorStorage storage;
+  private final int            pageSize;
+  private List<OIdentifiable>  page;
+  private int                  position;
+  private int                  cursorId;
+
+  public ORemoteCommandCursor(final OCursorStorage iStorage, final int iPageSize, final List<OIdentifiable> iFirstPage,
+      final int iCursorId) {
+    storage = iStorage;
+    pageSize = iPageSize;
+    page = iFirstPage;
+    cursorId = iCursorId;
+  }
+
+  public boolean hasNext() {
+    while (position >= page.size()) {
+      if (cursorId < 0)
+        return false;
+
+      storage.fetchCursorPage(this);
+    }
+    return true;
+  }
+
+  public OIdentifiable next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+
+    return page.get(position++);
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException("remove");
+  }
+
+  public Iterator<OIdentifiable> iterator() {
+    return this;
+  }
+
+  /**
+   * Releases the server side cursor. Records of the current page can still be browsed.
+   */
+  public void close() {
+    if (cursorId >= 0) {
+      storage.closeCursor(this);
+      cursorId = -1;
+    }
+  }
+
+  /**
+   * Returns the id of the server side cursor or -1 if all the pages have been received.
+   */
+  public int getCursorId() {
+    return cursorId;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  protected void setPage(final List<OIdentifiable> iPage, final int iNextCursorId) {
+    page = iPage;
+    position = 0;
+    cursorId = iNextCursorId;
+  }
+}
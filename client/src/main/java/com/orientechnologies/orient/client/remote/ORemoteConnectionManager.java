@@ -23,6 +23,7 @@ import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.enterprise.channel.OChannel;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryAsynchClient;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryPipelinedClient;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelListener;
 import com.orientechnologies.orient.enterprise.channel.binary.ORemoteServerEventListener;
@@ -31,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Manages network connections against OrientDB servers. All the connection pools are managed in a Map<url,pool>, but in the future
@@ -42,10 +44,12 @@ public class ORemoteConnectionManager implements OChannelListener {
   public static final String                                                                   PARAM_MAX_POOL = "maxpool";
 
   protected final ConcurrentHashMap<String, OResourcePool<String, OChannelBinaryAsynchClient>> connections;
+  protected final ConcurrentHashMap<String, List<OChannelBinaryPipelinedClient>>               pipelinedConnections;
   protected final long                                                                         timeout;
 
   public ORemoteConnectionManager(final int iMaxConnectionPerURL, final long iTimeout) {
     connections = new ConcurrentHashMap<String, OResourcePool<String, OChannelBinaryAsynchClient>>();
+    pipelinedConnections = new ConcurrentHashMap<String, List<OChannelBinaryPipelinedClient>>();
     timeout = iTimeout;
   }
 
@@ -54,6 +58,9 @@ public class ORemoteConnectionManager implements OChannelListener {
       entry.getValue().close();
 
     connections.clear();
+
+    for (String url : pipelinedConnections.keySet())
+      closePipelined(url);
   }
 
   public OChannelBinaryAsynchClient acquire(String iServerURL, final OContextConfiguration clientConfiguration,
@@ -100,7 +107,47 @@ public class ORemoteConnectionManager implements OChannelListener {
     return null;
   }
 
+  /**
+   * Returns a channel shared by all the threads, creating it if needed. Up to
+   * {@link OGlobalConfiguration#CLIENT_CHANNEL_PIPELINED_CHANNELS} channels are opened per server: a new one is created only when
+   * all the others have requests in flight. The channel is not exclusive, so it must not be released.
+   */
+  public OChannelBinaryPipelinedClient acquirePipelined(final String iServerURL, final OContextConfiguration clientConfiguration,
+      final Map<String, Object> iConfiguration, final ORemoteServerEventListener iListener) {
+    List<OChannelBinaryPipelinedClient> channels = pipelinedConnections.get(iServerURL);
+    if (channels == null) {
+      channels = new CopyOnWriteArrayList<OChannelBinaryPipelinedClient>();
+      final List<OChannelBinaryPipelinedClient> prev = pipelinedConnections.putIfAbsent(iServerURL, channels);
+      if (prev != null)
+        channels = prev;
+    }
+
+    final int maxChannels = clientConfiguration.getValueAsInteger(OGlobalConfiguration.CLIENT_CHANNEL_PIPELINED_CHANNELS);
+
+    OChannelBinaryPipelinedClient lessLoaded = getLessLoaded(channels);
+    if (lessLoaded != null && (lessLoaded.getInFlightRequests() == 0 || channels.size() >= maxChannels))
+      return lessLoaded;
+
+    synchronized (channels) {
+      if (channels.size() < maxChannels)
+        try {
+          final OChannelBinaryPipelinedClient ch = (OChannelBinaryPipelinedClient) createNetworkConnection(iServerURL,
+              clientConfiguration, iConfiguration, iListener, true);
+          channels.add(ch);
+          return ch;
+        } catch (Exception e) {
+          OLogManager.instance().error(this, "Error on creating pipelined connection to " + iServerURL, e);
+        }
+    }
+
+    return lessLoaded != null ? lessLoaded : getLessLoaded(channels);
+  }
+
   public void release(final OChannelBinaryAsynchClient conn) {
+    if (conn instanceof OChannelBinaryPipelinedClient)
+      // SHARED CHANNEL, NEVER ACQUIRED FROM THE POOL
+      return;
+
     final OResourcePool<String, OChannelBinaryAsynchClient> pool = connections.get(conn.getServerURL());
     if (pool != null) {
       if (!conn.isConnected()) {
@@ -112,6 +159,19 @@ public class ORemoteConnectionManager implements OChannelListener {
   }
 
   public void remove(final OChannelBinaryAsynchClient conn) {
+    if (conn instanceof OChannelBinaryPipelinedClient) {
+      if (conn.isConnected())
+        try {
+          conn.close();
+        } catch (Exception e) {
+        }
+
+      final List<OChannelBinaryPipelinedClient> channels = pipelinedConnections.get(conn.getServerURL());
+      if (channels != null)
+        channels.remove(conn);
+      return;
+    }
+
     if (conn.isConnected()) {
       try {
         conn.unlock();
@@ -153,6 +213,8 @@ public class ORemoteConnectionManager implements OChannelListener {
   }
 
   public void closePool(final String url) {
+    closePipelined(url);
+
     final OResourcePool<String, OChannelBinaryAsynchClient> pool = connections.remove(url);
     if (pool == null)
       return;
@@ -169,8 +231,34 @@ public class ORemoteConnectionManager implements OChannelListener {
       }
   }
 
+  protected void closePipelined(final String url) {
+    final List<OChannelBinaryPipelinedClient> channels = pipelinedConnections.remove(url);
+    if (channels == null)
+      return;
+
+    for (OChannelBinaryPipelinedClient c : channels)
+      try {
+        c.close();
+      } catch (Exception e) {
+      }
+  }
+
+  protected OChannelBinaryPipelinedClient getLessLoaded(final List<OChannelBinaryPipelinedClient> channels) {
+    OChannelBinaryPipelinedClient lessLoaded = null;
+    for (OChannelBinaryPipelinedClient c : channels)
+      if (c.isConnected() && (lessLoaded == null || c.getInFlightRequests() < lessLoaded.getInFlightRequests()))
+        lessLoaded = c;
+    return lessLoaded;
+  }
+
   protected OChannelBinaryAsynchClient createNetworkConnection(String iServerURL, final OContextConfiguration clientConfiguration,
       Map<String, Object> iAdditionalArg, final ORemoteServerEventListener asynchEventListener) throws OIOException {
+    return createNetworkConnection(iServerURL, clientConfiguration, iAdditionalArg, asynchEventListener, false);
+  }
+
+  protected OChannelBinaryAsynchClient createNetworkConnection(String iServerURL, final OContextConfiguration clientConfiguration,
+      Map<String, Object> iAdditionalArg, final ORemoteServerEventListener asynchEventListener, final boolean iPipelined)
+      throws OIOException {
     if (iServerURL == null)
       throw new IllegalArgumentException("server url is null");
 
@@ -194,8 +282,13 @@ public class ORemoteConnectionManager implements OChannelListener {
       final String remoteHost = serverURL.substring(0, sepPos);
       final int remotePort = Integer.parseInt(serverURL.substring(sepPos + 1));
 
-      final OChannelBinaryAsynchClient ch = new OChannelBinaryAsynchClient(remoteHost, remotePort, databaseName,
-          clientConfiguration, OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION, asynchEventListener);
+      final OChannelBinaryAsynchClient ch;
+      if (iPipelined)
+        ch = new OChannelBinaryPipelinedClient(remoteHost, remotePort, databaseName, clientConfiguration,
+            OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION, asynchEventListener);
+      else
+        ch = new OChannelBinaryAsynchClient(remoteHost, remotePort, databaseName, clientConfiguration,
+            OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION, asynchEventListener);
 
       // REGISTER MYSELF AS LISTENER TO REMOVE THE CHANNEL FROM THE POOL IN CASE OF CLOSING
       ch.registerListener(this);
@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.client.remote;
 
+import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.common.concur.lock.OModificationOperationProhibitedException;
 import com.orientechnologies.common.exception.OException;
@@ -50,6 +51,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerStringAbstract;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
+import com.orientechnologies.orient.core.storage.OBatchOperationResult;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.ODataSegment;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
@@ -65,6 +67,7 @@ import com.orientechnologies.orient.core.tx.OTransactionAbstract;
 import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryAsynchClient;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryPipelinedClient;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.ORemoteServerEventListener;
 
@@ -86,7 +89,7 @@ import java.util.concurrent.FutureTask;
 /**
  * This object is bound to each remote ODatabase instances.
  */
-public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
+public class OStorageRemote extends OStorageAbstract implements OStorageProxy, ORemoteCommandCursor.OCursorStorage {
   public static final String            PARAM_MIN_POOL       = "minpool";
   public static final String            PARAM_MAX_POOL       = "maxpool";
   public static final String            PARAM_DB_TYPE        = "dbtype";
@@ -114,6 +117,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
   private String                        connectionUserPassword;
   private Map<String, Object>           connectionOptions;
   private OEngineRemote                 engine;
+  private volatile short                srvProtocolVersion   = -1;
 
   public OStorageRemote(final String iClientId, final String iURL, final String iMode) throws IOException {
     this(iClientId, iURL, iMode, null);
@@ -315,7 +319,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     OChannelBinaryAsynchClient lastNetworkUsed = null;
     do {
       try {
-        final OChannelBinaryAsynchClient network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_CREATE);
+        final OChannelBinaryAsynchClient network = iMode == 0 ? beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_CREATE)
+            : beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_CREATE);
         lastNetworkUsed = network;
 
         try {
@@ -411,7 +416,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     do {
       try {
         try {
-          network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_METADATA);
+          network = beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_METADATA);
           network.writeRID(rid);
         } finally {
           endRequest(network);
@@ -444,7 +449,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       try {
 
         try {
-          network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD);
+          network = beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD);
           network.writeRID(iRid);
           network.writeString(iFetchPlan != null ? iFetchPlan : "");
           if (network.getSrvProtocolVersion() >= 9)
@@ -486,6 +491,236 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     } while (true);
   }
 
+  public List<OBatchOperationResult<ORawBuffer>> readRecords(final List<ORecordId> iRids, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    final List<OBatchOperationResult<ORawBuffer>> results = new ArrayList<OBatchOperationResult<ORawBuffer>>(iRids.size());
+    if (iRids.isEmpty())
+      return results;
+
+    if (OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting) {
+      // PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
+      for (int i = 0; i < iRids.size(); ++i)
+        results.add(new OBatchOperationResult<ORawBuffer>((ORawBuffer) null));
+      return results;
+    }
+
+    if (!isBatchSupported()) {
+      // OLD SERVER: ONE REQUEST PER RECORD
+      for (ORecordId rid : iRids)
+        try {
+          results.add(new OBatchOperationResult<ORawBuffer>(readRecord(rid, iFetchPlan, iIgnoreCache, null, false,
+              LOCKING_STRATEGY.DEFAULT).getResult()));
+        } catch (RuntimeException e) {
+          results.add(new OBatchOperationResult<ORawBuffer>(e));
+        }
+      return results;
+    }
+
+    OChannelBinaryAsynchClient network = null;
+    do {
+      try {
+
+        try {
+          network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD_BATCH);
+          network.writeString(iFetchPlan != null ? iFetchPlan : "");
+          network.writeByte((byte) (iIgnoreCache ? 1 : 0));
+          network.writeInt(iRids.size());
+          for (ORecordId rid : iRids)
+            network.writeRID(rid);
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          results.clear();
+          for (int i = 0; i < iRids.size(); ++i) {
+            if (network.readByte() == OChannelBinaryProtocol.RESPONSE_STATUS_ERROR)
+              results.add(new OBatchOperationResult<ORawBuffer>(network.readError()));
+            else if (network.readByte() == 0)
+              results.add(new OBatchOperationResult<ORawBuffer>((ORawBuffer) null));
+            else
+              results.add(new OBatchOperationResult<ORawBuffer>(new ORawBuffer(network.readBytes(), network.readVersion(), network
+                  .readByte())));
+          }
+
+          final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+          ORecordInternal<?> record;
+          while (network.readByte() == 2) {
+            record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+
+            if (database != null)
+              // PUT IN THE CLIENT LOCAL CACHE
+              database.getLevel1Cache().updateRecord(record);
+          }
+          return results;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (Exception e) {
+        handleException(network, "Error on read " + iRids.size() + " records", e);
+
+      }
+    } while (true);
+  }
+
+  public List<OBatchOperationResult<OPhysicalPosition>> createRecords(final List<? extends ORecordInternal<?>> iRecords) {
+    final List<OBatchOperationResult<OPhysicalPosition>> results = new ArrayList<OBatchOperationResult<OPhysicalPosition>>(
+        iRecords.size());
+    if (iRecords.isEmpty())
+      return results;
+
+    final List<byte[]> contents = new ArrayList<byte[]>(iRecords.size());
+    for (ORecordInternal<?> record : iRecords)
+      contents.add(record.toStream());
+
+    if (!isBatchSupported()) {
+      // OLD SERVER: ONE REQUEST PER RECORD
+      for (int i = 0; i < iRecords.size(); ++i) {
+        final ORecordInternal<?> record = iRecords.get(i);
+        try {
+          final OPhysicalPosition ppos = createRecord(0, (ORecordId) record.getIdentity(), contents.get(i),
+              record.getRecordVersion(), record.getRecordType(), 0, null).getResult();
+          record.getRecordVersion().copyFrom(ppos.recordVersion);
+          results.add(new OBatchOperationResult<OPhysicalPosition>(ppos));
+        } catch (RuntimeException e) {
+          results.add(new OBatchOperationResult<OPhysicalPosition>(e));
+        }
+      }
+      return results;
+    }
+
+    OChannelBinaryAsynchClient network = null;
+    do {
+      try {
+
+        try {
+          network = beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_CREATE_BATCH);
+          network.writeInt(iRecords.size());
+          for (int i = 0; i < iRecords.size(); ++i) {
+            final ORecordInternal<?> record = iRecords.get(i);
+            network.writeInt(0); // DEFAULT DATA SEGMENT
+            network.writeShort((short) record.getIdentity().getClusterId());
+            network.writeBytes(contents.get(i));
+            network.writeByte(record.getRecordType());
+          }
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          results.clear();
+          for (ORecordInternal<?> record : iRecords) {
+            if (network.readByte() == OChannelBinaryProtocol.RESPONSE_STATUS_ERROR) {
+              results.add(new OBatchOperationResult<OPhysicalPosition>(network.readError()));
+              continue;
+            }
+
+            final ORecordId rid = (ORecordId) record.getIdentity();
+            final OPhysicalPosition ppos = new OPhysicalPosition(0, -1, record.getRecordType());
+            rid.clusterPosition = network.readClusterPosition();
+            ppos.clusterPosition = rid.clusterPosition;
+            ppos.recordVersion = network.readVersion();
+            record.getRecordVersion().copyFrom(ppos.recordVersion);
+            results.add(new OBatchOperationResult<OPhysicalPosition>(ppos));
+          }
+
+          readCollectionChanges(network, ODatabaseRecordThreadLocal.INSTANCE.get().getSbTreeCollectionManager());
+          return results;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (OModificationOperationProhibitedException mope) {
+        handleDBFreeze();
+      } catch (Exception e) {
+        handleException(network, "Error on create " + iRecords.size() + " records", e);
+
+      }
+    } while (true);
+  }
+
+  public List<OBatchOperationResult<ORecordVersion>> updateRecords(final List<? extends ORecordInternal<?>> iRecords) {
+    final List<OBatchOperationResult<ORecordVersion>> results = new ArrayList<OBatchOperationResult<ORecordVersion>>(
+        iRecords.size());
+    if (iRecords.isEmpty())
+      return results;
+
+    final List<byte[]> contents = new ArrayList<byte[]>(iRecords.size());
+    for (ORecordInternal<?> record : iRecords)
+      contents.add(record.toStream());
+
+    if (!isBatchSupported()) {
+      // OLD SERVER: ONE REQUEST PER RECORD
+      for (int i = 0; i < iRecords.size(); ++i) {
+        final ORecordInternal<?> record = iRecords.get(i);
+        try {
+          final ORecordVersion version = updateRecord((ORecordId) record.getIdentity(), contents.get(i),
+              record.getRecordVersion(), record.getRecordType(), 0, null).getResult();
+          record.getRecordVersion().copyFrom(version);
+          results.add(new OBatchOperationResult<ORecordVersion>(version));
+        } catch (RuntimeException e) {
+          results.add(new OBatchOperationResult<ORecordVersion>(e));
+        }
+      }
+      return results;
+    }
+
+    OChannelBinaryAsynchClient network = null;
+    do {
+      try {
+
+        try {
+          network = beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_UPDATE_BATCH);
+          network.writeInt(iRecords.size());
+          for (int i = 0; i < iRecords.size(); ++i) {
+            final ORecordInternal<?> record = iRecords.get(i);
+            network.writeRID(record.getIdentity());
+            network.writeBytes(contents.get(i));
+            network.writeVersion(record.getRecordVersion());
+            network.writeByte(record.getRecordType());
+          }
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          results.clear();
+          for (ORecordInternal<?> record : iRecords) {
+            if (network.readByte() == OChannelBinaryProtocol.RESPONSE_STATUS_ERROR) {
+              results.add(new OBatchOperationResult<ORecordVersion>(network.readError()));
+              continue;
+            }
+
+            final ORecordVersion version = network.readVersion();
+            record.getRecordVersion().copyFrom(version);
+            results.add(new OBatchOperationResult<ORecordVersion>(version));
+          }
+
+          readCollectionChanges(network, ODatabaseRecordThreadLocal.INSTANCE.get().getSbTreeCollectionManager());
+          return results;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (OModificationOperationProhibitedException mope) {
+        handleDBFreeze();
+      } catch (Exception e) {
+        handleException(network, "Error on update " + iRecords.size() + " records", e);
+
+      }
+    } while (true);
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, int iMode, final ORecordCallback<ORecordVersion> iCallback) {
 
@@ -496,7 +731,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     OChannelBinaryAsynchClient lastNetworkUsed = null;
     do {
       try {
-        final OChannelBinaryAsynchClient network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_UPDATE);
+        final OChannelBinaryAsynchClient network = iMode == 0 ? beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_UPDATE)
+            : beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_UPDATE);
         lastNetworkUsed = network;
 
         try {
@@ -570,7 +806,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     OChannelBinaryAsynchClient network = null;
     do {
       try {
-        network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_DELETE);
+        network = iMode == 0 ? beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_DELETE)
+            : beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_DELETE);
         return new OStorageOperationResult<Boolean>(deleteRecord(iRid, iVersion, iMode, iCallback, network));
       } catch (OModificationOperationProhibitedException mope) {
         handleDBFreeze();
@@ -591,7 +828,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     OChannelBinaryAsynchClient network = null;
     do {
       try {
-        network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_HIDE);
+        network = mode == 0 ? beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_HIDE)
+            : beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_HIDE);
         return new OStorageOperationResult<Boolean>(hideRecord(recordId, mode, callback, network));
       } catch (OModificationOperationProhibitedException mope) {
         handleDBFreeze();
@@ -612,7 +850,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     OChannelBinaryAsynchClient network = null;
     do {
       try {
-        network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_CLEAN_OUT);
+        network = iMode == 0 ? beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_RECORD_CLEAN_OUT)
+            : beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_CLEAN_OUT);
         return deleteRecord(recordId, recordVersion, iMode, callback, network);
       } catch (OModificationOperationProhibitedException mope) {
         handleDBFreeze();
@@ -826,7 +1065,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       try {
         try {
 
-          network = beginRequest(OChannelBinaryProtocol.REQUEST_DB_SIZE);
+          network = beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_DB_SIZE);
 
         } finally {
           endRequest(network);
@@ -854,7 +1093,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       try {
         try {
 
-          network = beginRequest(OChannelBinaryProtocol.REQUEST_DB_COUNTRECORDS);
+          network = beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_DB_COUNTRECORDS);
 
         } finally {
           endRequest(network);
@@ -884,7 +1123,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     do {
       try {
         try {
-          network = beginRequest(OChannelBinaryProtocol.REQUEST_DATACLUSTER_COUNT);
+          network = beginPipelinedRequest(OChannelBinaryProtocol.REQUEST_DATACLUSTER_COUNT);
 
           network.writeShort((short) iClusterIds.length);
           for (int iClusterId : iClusterIds)
@@ -967,52 +1206,8 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
                   database.getLevel1Cache().updateRecord(record);
                 }
               }
-            } else {
-              final byte type = network.readByte();
-              switch (type) {
-              case 'n':
-                result = null;
-                break;
-
-              case 'r':
-                result = OChannelBinaryProtocol.readIdentifiable(network);
-                if (result instanceof ORecord<?>)
-                  database.getLevel1Cache().updateRecord((ORecordInternal<?>) result);
-                break;
-
-              case 'l':
-                final int tot = network.readInt();
-                final Collection<OIdentifiable> list = new ArrayList<OIdentifiable>(tot);
-                for (int i = 0; i < tot; ++i) {
-                  final OIdentifiable resultItem = OChannelBinaryProtocol.readIdentifiable(network);
-                  if (resultItem instanceof ORecord<?>)
-                    database.getLevel1Cache().updateRecord((ORecordInternal<?>) resultItem);
-                  list.add(resultItem);
-                }
-                result = list;
-                break;
-
-              case 'a':
-                final String value = new String(network.readBytes());
-                result = ORecordSerializerStringAbstract.fieldTypeFromStream(null, ORecordSerializerStringAbstract.getType(value),
-                    value);
-                break;
-
-              default:
-                OLogManager.instance().warn(this, "Received unexpected result from query: %d", type);
-              }
-
-              if (network.getSrvProtocolVersion() >= 17) {
-                // LOAD THE FETCHED RECORDS IN CACHE
-                byte status;
-                while ((status = network.readByte()) > 0) {
-                  final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
-                  if (record != null && status == 2)
-                    // PUT IN THE CLIENT LOCAL CACHE
-                    database.getLevel1Cache().updateRecord(record);
-                }
-              }
-            }
+            } else
+              result = readSynchResult(network, database);
             break;
           } finally {
             endResponse(network);
@@ -1034,6 +1229,144 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     return result;
   }
 
+  /**
+   * Executes the command remotely with a server side cursor: the server sends the records in pages of <code>iPageSize</code>
+   * records, the next page is requested only when the returned iterator has browsed the previous one. The command should return
+   * records, like queries do. Servers that don't support cursors return the whole result in the first page.
+   *
+   * @return the lazy iterator over the result, close it if the result is not browsed until the end
+   */
+  public ORemoteCommandCursor commandCursor(final OCommandRequestText iCommand, final int iPageSize) {
+    return commandCursor(iCommand, iPageSize, this);
+  }
+
+  /**
+   * Executes the command remotely with a server side cursor with pages of
+   * {@link OGlobalConfiguration#NETWORK_BINARY_CURSOR_PAGE_SIZE} records.
+   */
+  public ORemoteCommandCursor commandCursor(final OCommandRequestText iCommand) {
+    return commandCursor(iCommand, OGlobalConfiguration.NETWORK_BINARY_CURSOR_PAGE_SIZE.getValueAsInteger(), this);
+  }
+
+  public ORemoteCommandCursor commandCursor(final OCommandRequestText iCommand, final int iPageSize,
+      final ORemoteCommandCursor.OCursorStorage iCursorStorage) {
+    if (!(iCommand instanceof OSerializableStream))
+      throw new OCommandExecutionException("Cannot serialize the command to be executed to the server side.");
+
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
+
+    OChannelBinaryAsynchClient network = null;
+    do {
+      OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = true;
+      try {
+        final boolean cursor;
+        try {
+          network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND);
+
+          cursor = network.getSrvProtocolVersion() >= 22;
+          if (cursor) {
+            network.writeByte((byte) 'c'); // CURSOR
+            network.writeInt(iPageSize);
+          } else
+            network.writeByte((byte) 's'); // SYNC
+          network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(iCommand));
+
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          final List<OIdentifiable> page = new ArrayList<OIdentifiable>();
+          if (cursor) {
+            final int cursorId = readCursorPage(network, database, page);
+            return new ORemoteCommandCursor(iCursorStorage, iPageSize, page, cursorId);
+          }
+
+          // OLD SERVER: THE WHOLE RESULT IS THE ONLY PAGE
+          final Object result = readSynchResult(network, database);
+          if (result instanceof OIdentifiable)
+            page.add((OIdentifiable) result);
+          else if (OMultiValue.isMultiValue(result))
+            for (Object o : OMultiValue.getMultiValueIterable(result))
+              page.add((OIdentifiable) o);
+          else if (result != null)
+            throw new OCommandExecutionException("Command '" + iCommand.getText() + "' returned '" + result
+                + "' that cannot be browsed by a cursor");
+
+          return new ORemoteCommandCursor(iCursorStorage, iPageSize, page, -1);
+        } finally {
+          endResponse(network);
+        }
+      } catch (OModificationOperationProhibitedException mope) {
+        handleDBFreeze();
+      } catch (Exception e) {
+        handleException(network, "Error on executing command: " + iCommand, e);
+
+      } finally {
+        OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = false;
+      }
+    } while (true);
+  }
+
+  public void fetchCursorPage(final ORemoteCommandCursor iCursor) {
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
+
+    OChannelBinaryAsynchClient network = null;
+    do {
+      OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = true;
+      try {
+        try {
+          network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND_CURSOR_FETCH);
+          network.writeInt(iCursor.getCursorId());
+          network.writeInt(iCursor.getPageSize());
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          final List<OIdentifiable> page = new ArrayList<OIdentifiable>(iCursor.getPageSize());
+          final int cursorId = readCursorPage(network, database, page);
+          iCursor.setPage(page, cursorId);
+          return;
+        } finally {
+          endResponse(network);
+        }
+      } catch (Exception e) {
+        handleException(network, "Error on fetching records of cursor " + iCursor.getCursorId(), e);
+
+      } finally {
+        OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = false;
+      }
+    } while (true);
+  }
+
+  public void closeCursor(final ORemoteCommandCursor iCursor) {
+    OChannelBinaryAsynchClient network = null;
+    do {
+      try {
+        try {
+          network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND_CURSOR_CLOSE);
+          network.writeInt(iCursor.getCursorId());
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+          return;
+        } finally {
+          endResponse(network);
+        }
+      } catch (Exception e) {
+        handleException(network, "Error on closing cursor " + iCursor.getCursorId(), e);
+      }
+    } while (true);
+  }
+
   public void commit(final OTransaction iTx, Runnable callback) {
 
     final List<ORecordOperation> committedEntries = new ArrayList<ORecordOperation>();
@@ -1417,8 +1750,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
       return;
 
     try {
-      iNetwork.flush();
-      iNetwork.releaseWriteLock();
+      iNetwork.endRequest();
     } catch (IOException e) {
       engine.getConnectionManager().remove(iNetwork);
       throw e;
@@ -1510,6 +1842,80 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     return OSBTreeCollectionManagerRemote.class;
   }
 
+  /**
+   * Reads the result of a synchronous command followed by the records loaded by the fetch plan.
+   */
+  private Object readSynchResult(final OChannelBinaryAsynchClient network, final ODatabaseRecord database) throws IOException {
+    Object result = null;
+
+    final byte type = network.readByte();
+    switch (type) {
+    case 'n':
+      result = null;
+      break;
+
+    case 'r':
+      result = OChannelBinaryProtocol.readIdentifiable(network);
+      if (result instanceof ORecord<?>)
+        database.getLevel1Cache().updateRecord((ORecordInternal<?>) result);
+      break;
+
+    case 'l':
+      final int tot = network.readInt();
+      final Collection<OIdentifiable> list = new ArrayList<OIdentifiable>(tot);
+      for (int i = 0; i < tot; ++i) {
+        final OIdentifiable resultItem = OChannelBinaryProtocol.readIdentifiable(network);
+        if (resultItem instanceof ORecord<?>)
+          database.getLevel1Cache().updateRecord((ORecordInternal<?>) resultItem);
+        list.add(resultItem);
+      }
+      result = list;
+      break;
+
+    case 'a':
+      final String value = new String(network.readBytes());
+      result = ORecordSerializerStringAbstract.fieldTypeFromStream(null, ORecordSerializerStringAbstract.getType(value), value);
+      break;
+
+    default:
+      OLogManager.instance().warn(this, "Received unexpected result from query: %d", type);
+    }
+
+    if (network.getSrvProtocolVersion() >= 17) {
+      // LOAD THE FETCHED RECORDS IN CACHE
+      byte status;
+      while ((status = network.readByte()) > 0) {
+        final ORecordInternal<?> record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+        if (record != null && status == 2)
+          // PUT IN THE CLIENT LOCAL CACHE
+          database.getLevel1Cache().updateRecord(record);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Reads the records of a cursor page in the list and returns the cursor id to fetch the next page, or -1 if it was the last one.
+   */
+  private int readCursorPage(final OChannelBinaryAsynchClient network, final ODatabaseRecord database,
+      final List<OIdentifiable> page) throws IOException {
+    byte status;
+    while ((status = network.readByte()) > 0) {
+      final OIdentifiable record = OChannelBinaryProtocol.readIdentifiable(network);
+      if (record == null)
+        continue;
+
+      if (record instanceof ORecord<?>)
+        database.getLevel1Cache().updateRecord((ORecordInternal<?>) record);
+
+      if (status == 1)
+        // PART OF THE RESULT SET, STATUS 2 RECORDS ARE ONLY PUT IN THE CLIENT LOCAL CACHE
+        page.add(record);
+    }
+    return network.readInt();
+  }
+
   /**
    * Handles exceptions. In case of IO errors retries to reconnect until the configured retry times has reached.
    * 
@@ -1644,6 +2050,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
             if (network.getSrvProtocolVersion() >= 14)
               network.readString();
 
+            srvProtocolVersion = network.getSrvProtocolVersion();
             status = STATUS.OPEN;
 
             return;
@@ -1797,6 +2204,35 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     return network;
   }
 
+  /**
+   * Like {@link #beginRequest(byte)} but, if {@link OGlobalConfiguration#CLIENT_CHANNEL_PIPELINING} is enabled, writes the request
+   * on a channel shared with the other threads. Use it only for requests whose response is always read by the same thread,
+   * requests that cannot be pipelined (see {@link OChannelBinaryPipelinedClient#isPipelineSupported(byte)}) use an exclusive
+   * channel.
+   */
+  protected OChannelBinaryAsynchClient beginPipelinedRequest(final byte iCommand) throws IOException {
+    if (!clientConfiguration.getValueAsBoolean(OGlobalConfiguration.CLIENT_CHANNEL_PIPELINING)
+        || !OChannelBinaryPipelinedClient.isPipelineSupported(iCommand))
+      return beginRequest(iCommand);
+
+    final OChannelBinaryPipelinedClient network = engine.getConnectionManager().acquirePipelined(getCurrentServerURL(),
+        clientConfiguration, connectionOptions, asynchEventListener);
+    if (network == null)
+      // CANNOT CONNECT: THE POOL HANDLES THE FAIL-OVER
+      return beginRequest(iCommand);
+
+    network.beginRequest(iCommand, getSessionId());
+    return network;
+  }
+
+  /**
+   * Returns true if the server the database has been opened on supports the batch record requests, otherwise the records are sent
+   * one per request. The protocol version is the one negotiated at the last open, so no connection is acquired.
+   */
+  private boolean isBatchSupported() {
+    return srvProtocolVersion >= 23;
+  }
+
   protected String getCurrentServerURL() {
     if (serverURLs.isEmpty()) {
       parseServerURLs();
@@ -20,13 +20,16 @@ import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.cache.OLevel2RecordCache;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.db.record.OCurrentStorageComponentsFactory;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OSBTreeCollectionManager;
 import com.orientechnologies.orient.core.id.OClusterPosition;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OBatchOperationResult;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.ODataSegment;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
@@ -46,6 +49,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -55,7 +59,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Wrapper of OStorageRemote that maintains the sessionId. It's bound to the ODatabase and allow to use the shared OStorageRemote.
  */
 @SuppressWarnings("unchecked")
-public class OStorageRemoteThread implements OStorageProxy {
+public class OStorageRemoteThread implements OStorageProxy, ORemoteCommandCursor.OCursorStorage {
   private static AtomicInteger sessionSerialId = new AtomicInteger(-1);
 
   private final OStorageRemote delegate;
@@ -250,6 +254,34 @@ public class OStorageRemoteThread implements OStorageProxy {
     }
   }
 
+  public List<OBatchOperationResult<ORawBuffer>> readRecords(final List<ORecordId> iRids, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    pushSession();
+    try {
+      return delegate.readRecords(iRids, iFetchPlan, iIgnoreCache);
+    } finally {
+      popSession();
+    }
+  }
+
+  public List<OBatchOperationResult<OPhysicalPosition>> createRecords(final List<? extends ORecordInternal<?>> iRecords) {
+    pushSession();
+    try {
+      return delegate.createRecords(iRecords);
+    } finally {
+      popSession();
+    }
+  }
+
+  public List<OBatchOperationResult<ORecordVersion>> updateRecords(final List<? extends ORecordInternal<?>> iRecords) {
+    pushSession();
+    try {
+      return delegate.updateRecords(iRecords);
+    } finally {
+      popSession();
+    }
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, ORecordCallback<ORecordVersion> iCallback) {
     pushSession();
@@ -449,6 +481,37 @@ public class OStorageRemoteThread implements OStorageProxy {
     }
   }
 
+  public ORemoteCommandCursor commandCursor(final OCommandRequestText iCommand) {
+    return commandCursor(iCommand, OGlobalConfiguration.NETWORK_BINARY_CURSOR_PAGE_SIZE.getValueAsInteger());
+  }
+
+  public ORemoteCommandCursor commandCursor(final OCommandRequestText iCommand, final int iPageSize) {
+    pushSession();
+    try {
+      return delegate.commandCursor(iCommand, iPageSize, this);
+    } finally {
+      popSession();
+    }
+  }
+
+  public void fetchCursorPage(final ORemoteCommandCursor iCursor) {
+    pushSession();
+    try {
+      delegate.fetchCursorPage(iCursor);
+    } finally {
+      popSession();
+    }
+  }
+
+  public void closeCursor(final ORemoteCommandCursor iCursor) {
+    pushSession();
+    try {
+      delegate.closeCursor(iCursor);
+    } finally {
+      popSession();
+    }
+  }
+
   public void commit(final OTransaction iTx, Runnable callback) {
     pushSession();
     try {
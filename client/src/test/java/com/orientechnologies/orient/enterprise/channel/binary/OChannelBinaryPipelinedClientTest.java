@@ -0,0 +1,234 @@
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+@Test
+public class OChannelBinaryPipelinedClientTest {
+  private static final int              ERROR_CLUSTER = 99;
+  private static final long             DELAYED       = -1;
+
+  private ServerSocket                  serverSocket;
+  private Thread                        server;
+  private OChannelBinaryPipelinedClient client;
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    server = new Thread() {
+      @Override
+      public void run() {
+        try {
+          serve(serverSocket.accept());
+        } catch (IOException e) {
+          // CLOSED
+        }
+      }
+    };
+    server.start();
+
+    client = new OChannelBinaryPipelinedClient("127.0.0.1", serverSocket.getLocalPort(), null, new OContextConfiguration(),
+        OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION, null);
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    client.close();
+    serverSocket.close();
+    server.join(5000);
+  }
+
+  public void testConcurrentRequestsGetTheirOwnResponse() throws Exception {
+    final int threads = 8;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (int t = 0; t < threads; ++t) {
+        final int sessionId = t + 1;
+        results.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int i = 0; i < 200; ++i) {
+              if (i % 10 == 0) {
+                // THE ERROR GOES TO THE REQUESTER ONLY
+                try {
+                  metadata(sessionId, new ORecordId(ERROR_CLUSTER, OClusterPositionFactory.INSTANCE.valueOf(i)), 5000);
+                  Assert.fail();
+                } catch (RuntimeException e) {
+                  Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+              } else {
+                final ORecordId rid = new ORecordId(sessionId, OClusterPositionFactory.INSTANCE.valueOf(i));
+                Assert.assertEquals(metadata(sessionId, rid, 5000), rid);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+
+      for (Future<Void> f : results)
+        f.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(client.getInFlightRequests(), 0);
+    Assert.assertTrue(client.isConnected());
+  }
+
+  public void testAbandonedResponsesDoNotBlockTheOthers() throws Exception {
+    // SENT BUT NEVER READ, LIKE A REQUESTER FAILING AFTER endRequest()
+    client.beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_METADATA, 1);
+    client.writeRID(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(1)));
+    client.endRequest();
+
+    final Thread other = new Thread() {
+      @Override
+      public void run() {
+        try {
+          // READ ONLY IN PART, LIKE A REQUESTER FAILING IN THE MIDDLE OF THE RESPONSE
+          client.beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_METADATA, 2);
+          client.writeRID(new ORecordId(2, OClusterPositionFactory.INSTANCE.valueOf(2)));
+          client.endRequest();
+          client.beginResponse(2, 5000);
+          client.readShort();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    other.start();
+    other.join();
+
+    final ORecordId rid = new ORecordId(3, OClusterPositionFactory.INSTANCE.valueOf(3));
+    Assert.assertEquals(metadata(3, rid, 5000), rid);
+    Assert.assertEquals(client.getInFlightRequests(), 0);
+  }
+
+  public void testTimeoutFailsOnlyTheRequestThatTimedOut() throws Exception {
+    client.beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_METADATA, 1);
+    client.writeRID(new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(DELAYED)));
+    client.endRequest();
+
+    // SENT AFTER THE SLOW ONE: ANSWERED ONCE THE SLOW ONE IS DONE
+    final ORecordId rid = new ORecordId(2, OClusterPositionFactory.INSTANCE.valueOf(2));
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<ORID> result = executor.submit(new Callable<ORID>() {
+        @Override
+        public ORID call() throws Exception {
+          return metadata(2, rid, 5000);
+        }
+      });
+
+      try {
+        client.beginResponse(1, 100);
+        Assert.fail();
+      } catch (OTimeoutException e) {
+        client.endResponse();
+      }
+
+      Assert.assertTrue(client.isConnected());
+      Assert.assertEquals(result.get(), rid);
+    } finally {
+      executor.shutdown();
+    }
+
+    final ORecordId next = new ORecordId(3, OClusterPositionFactory.INSTANCE.valueOf(3));
+    Assert.assertEquals(metadata(3, next, 5000), next);
+  }
+
+  private ORID metadata(final int iSessionId, final ORecordId iRid, final long iTimeout) throws IOException {
+    client.beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_METADATA, iSessionId);
+    client.writeRID(iRid);
+    client.endRequest();
+
+    try {
+      client.beginResponse(iSessionId, iTimeout);
+      final ORID rid = client.readRID();
+      Assert.assertEquals(client.readVersion().getCounter(), iRid.getClusterId());
+      return rid;
+    } finally {
+      client.endResponse();
+    }
+  }
+
+  /**
+   * Answers to the metadata requests in order: the RID is sent back with the cluster id as version, an error is sent for
+   * {@link #ERROR_CLUSTER} and the response of the {@link #DELAYED} position is delayed.
+   */
+  private void serve(final Socket iSocket) throws IOException {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(iSocket.getInputStream()));
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(iSocket.getOutputStream()));
+    try {
+      out.writeShort(OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
+      out.flush();
+
+      while (true) {
+        in.readByte();
+        final int sessionId = in.readInt();
+        final short clusterId = in.readShort();
+        final long clusterPosition = in.readLong();
+
+        if (clusterPosition == DELAYED)
+          try {
+            Thread.sleep(500);
+          } catch (InterruptedException e) {
+            return;
+          }
+
+        if (clusterId == ERROR_CLUSTER) {
+          out.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_ERROR);
+          out.writeInt(sessionId);
+          out.writeByte(1);
+          writeString(out, IllegalStateException.class.getName());
+          writeString(out, "Error for " + clusterPosition);
+          out.writeByte(0);
+          // NO SERIALIZED EXCEPTION
+          out.writeInt(-1);
+        } else {
+          out.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
+          out.writeInt(sessionId);
+          out.writeShort(clusterId);
+          out.writeLong(clusterPosition);
+          out.writeInt(clusterId);
+        }
+        out.flush();
+      }
+    } catch (IOException e) {
+      // CLIENT CLOSED
+    } finally {
+      iSocket.close();
+    }
+  }
+
+  private static void writeString(final DataOutputStream out, final String iValue) throws IOException {
+    final byte[] bytes = iValue.getBytes();
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
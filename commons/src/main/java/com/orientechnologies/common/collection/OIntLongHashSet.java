@@ -0,0 +1,253 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.collection;
+
+import java.util.Arrays;
+
+/**
+ * Set of keys made by an int and a long, like the cluster id and the cluster position of a record. Keys are kept in primitive
+ * arrays of an open addressing hash table with linear probing, so no entry object nor boxed key is allocated per element. Removed
+ * keys are back-filled by the following ones of the same probe sequence, so no tombstone is left in the table.
+ * <p>
+ * Slots of the table can be browsed by {@link #nextSlot(int)}. The set is not thread safe.
+ * @see OIntLongIntHashMap
+ */
+public class OIntLongHashSet {
+  private static final int   MIN_TABLE_SIZE = 16;
+  private static final float LOAD_FACTOR    = 0.5f;
+
+  private int[]              intKeys;
+  private long[]             longKeys;
+  private boolean[]          used;
+  private int                size;
+  private int                mask;
+  private int                threshold;
+
+  public OIntLongHashSet() {
+    this(MIN_TABLE_SIZE);
+  }
+
+  public OIntLongHashSet(final int iExpectedSize) {
+    int tableSize = MIN_TABLE_SIZE;
+    while (tableSize * LOAD_FACTOR < iExpectedSize)
+      tableSize <<= 1;
+
+    allocate(tableSize);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(final int iIntKey, final long iLongKey) {
+    return slotOf(iIntKey, iLongKey) >= 0;
+  }
+
+  /**
+   * Adds the key.
+   *
+   * @return true if the key was not contained yet
+   */
+  public boolean add(final int iIntKey, final long iLongKey) {
+    return insert(iIntKey, iLongKey) < 0;
+  }
+
+  /**
+   * Removes the key.
+   *
+   * @return true if the key was contained
+   */
+  public boolean remove(final int iIntKey, final long iLongKey) {
+    final int slot = slotOf(iIntKey, iLongKey);
+    if (slot < 0)
+      return false;
+
+    delete(slot);
+    return true;
+  }
+
+  public void clear() {
+    Arrays.fill(used, false);
+    size = 0;
+  }
+
+  /**
+   * Returns the first used slot starting from passed in one, or -1 if there are no more slots. Browse the set with
+   * <code>for (int slot = set.nextSlot(0); slot >= 0; slot = set.nextSlot(slot + 1))</code>. Keys must not be added or removed
+   * while browsing.
+   */
+  public int nextSlot(int iSlot) {
+    while (iSlot < used.length) {
+      if (used[iSlot])
+        return iSlot;
+      iSlot++;
+    }
+    return -1;
+  }
+
+  public int getIntKey(final int iSlot) {
+    return intKeys[iSlot];
+  }
+
+  public long getLongKey(final int iSlot) {
+    return longKeys[iSlot];
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder buffer = new StringBuilder();
+    buffer.append('[');
+    for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+      if (buffer.length() > 1)
+        buffer.append(", ");
+      appendSlot(buffer, slot);
+    }
+    buffer.append(']');
+    return buffer.toString();
+  }
+
+  protected void appendSlot(final StringBuilder iBuffer, final int iSlot) {
+    iBuffer.append(intKeys[iSlot]).append(':').append(longKeys[iSlot]);
+  }
+
+  /**
+   * Returns the slot of the key or -1 if the key is not contained.
+   */
+  protected int slotOf(final int iIntKey, final long iLongKey) {
+    int slot = hash(iIntKey, iLongKey) & mask;
+    while (used[slot]) {
+      if (intKeys[slot] == iIntKey && longKeys[slot] == iLongKey)
+        return slot;
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the slot of the key if already contained, otherwise adds the key and returns <code>-(slot + 1)</code>.
+   */
+  protected int insert(final int iIntKey, final long iLongKey) {
+    int slot = hash(iIntKey, iLongKey) & mask;
+    while (used[slot]) {
+      if (intKeys[slot] == iIntKey && longKeys[slot] == iLongKey)
+        return slot;
+      slot = (slot + 1) & mask;
+    }
+
+    if (size >= threshold) {
+      rehash(used.length << 1);
+      return insert(iIntKey, iLongKey);
+    }
+
+    used[slot] = true;
+    intKeys[slot] = iIntKey;
+    longKeys[slot] = iLongKey;
+    size++;
+    return -(slot + 1);
+  }
+
+  /**
+   * Empties the slot and moves back the following keys of the same probe sequence.
+   */
+  protected void delete(int iSlot) {
+    used[iSlot] = false;
+    size--;
+
+    int slot = (iSlot + 1) & mask;
+    while (used[slot]) {
+      final int home = hash(intKeys[slot], longKeys[slot]) & mask;
+
+      // MOVE THE KEY ONLY IF THE EMPTIED SLOT IS BETWEEN ITS HOME SLOT AND ITS CURRENT SLOT
+      if (iSlot <= slot ? (home <= iSlot || home > slot) : (home <= iSlot && home > slot)) {
+        used[iSlot] = true;
+        intKeys[iSlot] = intKeys[slot];
+        longKeys[iSlot] = longKeys[slot];
+        moveValue(slot, iSlot);
+
+        used[slot] = false;
+        iSlot = slot;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * Allocates the values of a table of passed in size, called by the sets that keep a value per key.
+   */
+  protected void allocateValues(final int iTableSize) {
+  }
+
+  /**
+   * Moves the value of a key from a slot to another one of the same table.
+   */
+  protected void moveValue(final int iFrom, final int iTo) {
+  }
+
+  /**
+   * Returns the values of the table, they are kept while the table is replaced by a bigger one.
+   */
+  protected Object getValues() {
+    return null;
+  }
+
+  /**
+   * Copies the value of a key from its slot in the table being replaced to its slot in the new table.
+   */
+  protected void rehashValue(final Object iOldValues, final int iOldSlot, final int iNewSlot) {
+  }
+
+  private void rehash(final int iTableSize) {
+    final int[] oldIntKeys = intKeys;
+    final long[] oldLongKeys = longKeys;
+    final boolean[] oldUsed = used;
+
+    final Object oldValues = getValues();
+    allocate(iTableSize);
+
+    for (int oldSlot = 0; oldSlot < oldUsed.length; oldSlot++)
+      if (oldUsed[oldSlot]) {
+        int slot = hash(oldIntKeys[oldSlot], oldLongKeys[oldSlot]) & mask;
+        while (used[slot])
+          slot = (slot + 1) & mask;
+
+        used[slot] = true;
+        intKeys[slot] = oldIntKeys[oldSlot];
+        longKeys[slot] = oldLongKeys[oldSlot];
+        rehashValue(oldValues, oldSlot, slot);
+      }
+  }
+
+  private void allocate(final int iTableSize) {
+    intKeys = new int[iTableSize];
+    longKeys = new long[iTableSize];
+    used = new boolean[iTableSize];
+    mask = iTableSize - 1;
+    threshold = (int) (iTableSize * LOAD_FACTOR);
+    allocateValues(iTableSize);
+  }
+
+  private static int hash(final int iIntKey, final long iLongKey) {
+    int h = (int) (iLongKey ^ (iLongKey >>> 32)) * 31 + iIntKey;
+    // SPREAD CONSECUTIVE POSITIONS OVER THE TABLE
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
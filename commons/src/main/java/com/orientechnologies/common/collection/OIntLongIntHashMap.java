@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.collection;
+
+/**
+ * Map from keys made by an int and a long, like the cluster id and the cluster position of a record, to int values. Values are
+ * kept in a primitive array next to the keys of {@link OIntLongHashSet}. Missing keys are reported by the value passed to the
+ * constructor, so it should be a value never put in the map.
+ */
+public class OIntLongIntHashMap extends OIntLongHashSet {
+  private final int noEntryValue;
+  private int[]     values;
+
+  public OIntLongIntHashMap(final int iNoEntryValue) {
+    super();
+    noEntryValue = iNoEntryValue;
+  }
+
+  public OIntLongIntHashMap(final int iExpectedSize, final int iNoEntryValue) {
+    super(iExpectedSize);
+    noEntryValue = iNoEntryValue;
+  }
+
+  public int getNoEntryValue() {
+    return noEntryValue;
+  }
+
+  public boolean containsKey(final int iIntKey, final long iLongKey) {
+    return contains(iIntKey, iLongKey);
+  }
+
+  /**
+   * Returns the value of the key or the no entry value if the key is not contained.
+   */
+  public int get(final int iIntKey, final long iLongKey) {
+    final int slot = slotOf(iIntKey, iLongKey);
+    return slot >= 0 ? values[slot] : noEntryValue;
+  }
+
+  /**
+   * Associates the value to the key.
+   *
+   * @return the previous value of the key or the no entry value if the key was not contained
+   */
+  public int put(final int iIntKey, final long iLongKey, final int iValue) {
+    final int slot = insert(iIntKey, iLongKey);
+    if (slot < 0) {
+      values[-(slot + 1)] = iValue;
+      return noEntryValue;
+    }
+
+    final int previous = values[slot];
+    values[slot] = iValue;
+    return previous;
+  }
+
+  /**
+   * Removes the key.
+   *
+   * @return the value of the key or the no entry value if the key was not contained
+   */
+  public int removeKey(final int iIntKey, final long iLongKey) {
+    final int slot = slotOf(iIntKey, iLongKey);
+    if (slot < 0)
+      return noEntryValue;
+
+    final int previous = values[slot];
+    delete(slot);
+    return previous;
+  }
+
+  public int getValue(final int iSlot) {
+    return values[iSlot];
+  }
+
+  @Override
+  protected void appendSlot(final StringBuilder iBuffer, final int iSlot) {
+    super.appendSlot(iBuffer, iSlot);
+    iBuffer.append('=').append(values[iSlot]);
+  }
+
+  @Override
+  protected void allocateValues(final int iTableSize) {
+    values = new int[iTableSize];
+  }
+
+  @Override
+  protected void moveValue(final int iFrom, final int iTo) {
+    values[iTo] = values[iFrom];
+  }
+
+  @Override
+  protected Object getValues() {
+    return values;
+  }
+
+  @Override
+  protected void rehashValue(final Object iOldValues, final int iOldSlot, final int iNewSlot) {
+    values[iNewSlot] = ((int[]) iOldValues)[iOldSlot];
+  }
+}
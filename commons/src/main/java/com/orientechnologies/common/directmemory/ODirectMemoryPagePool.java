@@ -0,0 +1,278 @@
+/*
+ * Copyright 1999-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.directmemory;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocator of fixed size pages of direct memory. Instead of one native allocation per page the pool reserves large slabs and
+ * splits them in page slots aligned to {@link #ALIGNMENT} bytes. Released slots go back to a lock-free free list (a Treiber stack
+ * whose links are stored in the first bytes of the free slots themselves, with a version stamp in the head to avoid ABA) and are
+ * reused by the next allocations, so native memory does not fragment under page churn. Slabs are not returned to the system
+ * while the pool is in use, so the memory held by the pool is the peak of pages used at the same time.
+ * 
+ * Pools are shared by page size, see {@link #getInstance(int, int)}. Each user of the pool calls {@link #close()} when it does not
+ * need it anymore: once the last user closed the pool the slabs are freed, as soon as all the pages are released.
+ */
+public class ODirectMemoryPagePool {
+  public static final int                                    ALIGNMENT     = 64;
+
+  private static final int                                   NULL_SLOT     = -1;
+  private static final ConcurrentMap<Integer, ODirectMemoryPagePool> INSTANCES = new ConcurrentHashMap<Integer, ODirectMemoryPagePool>();
+
+  private final ODirectMemory                                directMemory  = ODirectMemoryFactory.INSTANCE.directMemory();
+
+  private final int                                          pageSize;
+  private final int                                          slotSize;
+  private final int                                          pagesPerSlab;
+
+  private final Object                                       slabLock      = new Object();
+  private volatile long[]                                    slabPointers  = new long[0];
+  private volatile long[]                                    slabBases     = new long[0];
+
+  /**
+   * Version stamp in the high 32 bits, index of the first free slot in the low 32 bits.
+   */
+  private final AtomicLong                                   freeListHead  = new AtomicLong(pack(0, NULL_SLOT));
+  private final AtomicInteger                                usedPages     = new AtomicInteger();
+
+  /**
+   * Users of the pool, changed only under the slab lock.
+   */
+  private volatile int                                       users         = 1;
+
+  /**
+   * Creates a pool used by the caller only.
+   * 
+   * @param iPageSize
+   *          size in bytes of the pages
+   * @param iPagesPerSlab
+   *          amount of pages reserved with each native allocation
+   */
+  public ODirectMemoryPagePool(final int iPageSize, final int iPagesPerSlab) {
+    if (iPageSize <= 0)
+      throw new ODirectMemoryViolationException("Size of page should be more than zero but " + iPageSize + " was provided.");
+    if (iPagesPerSlab <= 0)
+      throw new ODirectMemoryViolationException("Amount of pages in slab should be more than zero but " + iPagesPerSlab
+          + " was provided.");
+
+    pageSize = iPageSize;
+    slotSize = (iPageSize + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    pagesPerSlab = iPagesPerSlab;
+  }
+
+  /**
+   * Returns the pool shared by all the components that allocate pages of the given size, creating it if needed. The caller is
+   * registered as user of the pool and has to {@link #close()} it.
+   * 
+   * @param iPagesPerSlab
+   *          used only if the pool does not exist yet
+   */
+  public static ODirectMemoryPagePool getInstance(final int iPageSize, final int iPagesPerSlab) {
+    final ODirectMemoryPagePool pool = INSTANCES.get(iPageSize);
+    if (pool != null) {
+      pool.addUser();
+      return pool;
+    }
+
+    final ODirectMemoryPagePool newPool = new ODirectMemoryPagePool(iPageSize, iPagesPerSlab);
+    final ODirectMemoryPagePool oldPool = INSTANCES.putIfAbsent(iPageSize, newPool);
+    if (oldPool != null) {
+      oldPool.addUser();
+      return oldPool;
+    }
+    return newPool;
+  }
+
+  /**
+   * Unregisters a user of the pool. When no user is left the slabs are freed, immediately if no page is in use, otherwise when the
+   * last page is released.
+   */
+  public void close() {
+    synchronized (slabLock) {
+      if (users <= 0)
+        throw new ODirectMemoryViolationException("Page pool is already closed");
+
+      users--;
+      freeIfUnused();
+    }
+  }
+
+  /**
+   * Returns a page from the pool. Content of the page is undefined. The page goes back to the pool with
+   * {@link ODirectMemoryPointer#free()}.
+   */
+  public ODirectMemoryPointer acquire() {
+    while (true) {
+      final long head = freeListHead.get();
+      final int slot = slotOf(head);
+      if (slot == NULL_SLOT) {
+        addSlab();
+        continue;
+      }
+
+      final long pointer = getSlotPointer(slot);
+      // IF THE SLOT HAS BEEN TAKEN IN THE MEANWHILE THE VALUE IS GARBAGE BUT THE STAMP OF THE HEAD CHANGED AND CAS FAILS
+      final int next = directMemory.getInt(pointer);
+      if (freeListHead.compareAndSet(head, pack(stampOf(head) + 1, next))) {
+        usedPages.incrementAndGet();
+        return new ODirectMemoryPointer(this, slot, pointer, pageSize);
+      }
+    }
+  }
+
+  void release(final int iSlot, final long iPointer) {
+    while (true) {
+      final long head = freeListHead.get();
+      directMemory.setInt(iPointer, slotOf(head));
+      if (freeListHead.compareAndSet(head, pack(stampOf(head) + 1, iSlot))) {
+        if (usedPages.decrementAndGet() == 0 && users == 0)
+          synchronized (slabLock) {
+            freeIfUnused();
+          }
+        return;
+      }
+    }
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public int getPagesPerSlab() {
+    return pagesPerSlab;
+  }
+
+  public int getSlabs() {
+    return slabBases.length;
+  }
+
+  /**
+   * Returns the amount of pages currently handed out.
+   */
+  public int getUsedPages() {
+    return usedPages.get();
+  }
+
+  /**
+   * Returns the amount of pages reserved by the slabs and not handed out.
+   */
+  public int getFreePages() {
+    return getSlabs() * pagesPerSlab - usedPages.get();
+  }
+
+  /**
+   * Returns the amount of native memory reserved by the pool in bytes.
+   */
+  public long getAllocatedMemory() {
+    return (long) getSlabs() * getSlabMemory();
+  }
+
+  /**
+   * Frees all the slabs. Must be called only when no page of the pool is in use anymore.
+   */
+  public void clear() {
+    synchronized (slabLock) {
+      if (usedPages.get() > 0)
+        throw new ODirectMemoryViolationException("Cannot release page pool because " + usedPages.get() + " pages are still in use");
+
+      freeSlabs();
+    }
+  }
+
+  private void addUser() {
+    synchronized (slabLock) {
+      users++;
+    }
+  }
+
+  /**
+   * Must be called under the slab lock. Without users nobody can acquire pages, so no page can be taken while slabs are freed.
+   */
+  private void freeIfUnused() {
+    if (users == 0 && usedPages.get() == 0)
+      freeSlabs();
+  }
+
+  private void freeSlabs() {
+    freeListHead.set(pack(stampOf(freeListHead.get()) + 1, NULL_SLOT));
+    for (long pointer : slabPointers)
+      directMemory.free(pointer);
+
+    slabPointers = new long[0];
+    slabBases = new long[0];
+  }
+
+  private void addSlab() {
+    synchronized (slabLock) {
+      if (slotOf(freeListHead.get()) != NULL_SLOT)
+        // ANOTHER THREAD ADDED A SLAB OR RELEASED A PAGE
+        return;
+
+      final int slabIndex = slabBases.length;
+      if ((long) (slabIndex + 1) * pagesPerSlab > Integer.MAX_VALUE)
+        throw new ODirectMemoryViolationException("Page pool cannot contain more than " + Integer.MAX_VALUE + " pages");
+
+      final long slabPointer = directMemory.allocate(getSlabMemory() + ALIGNMENT);
+      final long slabBase = (slabPointer + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+
+      final long[] newSlabPointers = Arrays.copyOf(slabPointers, slabIndex + 1);
+      newSlabPointers[slabIndex] = slabPointer;
+      final long[] newSlabBases = Arrays.copyOf(slabBases, slabIndex + 1);
+      newSlabBases[slabIndex] = slabBase;
+
+      slabPointers = newSlabPointers;
+      slabBases = newSlabBases;
+
+      // LINK ALL THE SLOTS OF THE NEW SLAB AND PUT THEM ON TOP OF THE FREE LIST
+      final int firstSlot = slabIndex * pagesPerSlab;
+      final int lastSlot = firstSlot + pagesPerSlab - 1;
+      for (int slot = firstSlot; slot < lastSlot; ++slot)
+        directMemory.setInt(getSlotPointer(slot), slot + 1);
+
+      while (true) {
+        final long head = freeListHead.get();
+        directMemory.setInt(getSlotPointer(lastSlot), slotOf(head));
+        if (freeListHead.compareAndSet(head, pack(stampOf(head) + 1, firstSlot)))
+          break;
+      }
+    }
+  }
+
+  private long getSlabMemory() {
+    return (long) slotSize * pagesPerSlab;
+  }
+
+  private long getSlotPointer(final int iSlot) {
+    return slabBases[iSlot / pagesPerSlab] + (long) (iSlot % pagesPerSlab) * slotSize;
+  }
+
+  private static long pack(final int iStamp, final int iSlot) {
+    return ((long) iStamp << 32) | (iSlot & 0xFFFFFFFFL);
+  }
+
+  private static int stampOf(final long iHead) {
+    return (int) (iHead >>> 32);
+  }
+
+  private static int slotOf(final long iHead) {
+    return (int) iHead;
+  }
+}
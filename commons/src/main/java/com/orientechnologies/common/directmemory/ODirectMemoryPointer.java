@@ -31,8 +31,11 @@ public class ODirectMemoryPointer {
 
   private final ODirectMemory directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
 
-  private final long          pageSize;
-  private final long          dataPointer;
+  private final long                  pageSize;
+  private final long                  dataPointer;
+
+  private final ODirectMemoryPagePool pool;
+  private final int                   poolSlot;
 
   public ODirectMemoryPointer(long pageSize) {
     if (pageSize <= 0)
@@ -41,6 +44,18 @@ public class ODirectMemoryPointer {
 
     this.dataPointer = directMemory.allocate(pageSize);
     this.pageSize = pageSize;
+    this.pool = null;
+    this.poolSlot = -1;
+  }
+
+  /**
+   * Pointer to a page of {@link ODirectMemoryPagePool}, {@link #free()} gives it back to the pool.
+   */
+  ODirectMemoryPointer(ODirectMemoryPagePool pool, int poolSlot, long dataPointer, long pageSize) {
+    this.dataPointer = dataPointer;
+    this.pageSize = pageSize;
+    this.pool = pool;
+    this.poolSlot = poolSlot;
   }
 
   public ODirectMemoryPointer(byte[] data) {
@@ -48,6 +63,8 @@ public class ODirectMemoryPointer {
       throw new ODirectMemoryViolationException("Size of allocated area should be more than zero but 0 was provided.");
 		this.pageSize = data.length;
 		this.dataPointer = directMemory.allocate(pageSize);
+    this.pool = null;
+    this.poolSlot = -1;
 
 		set(0, data, 0, data.length);
 	}
@@ -173,7 +190,10 @@ public class ODirectMemoryPointer {
   }
 
   public void free() {
-    directMemory.free(dataPointer);
+    if (pool != null)
+      pool.release(poolSlot, dataPointer);
+    else
+      directMemory.free(dataPointer);
   }
 
   @Override
@@ -30,7 +30,6 @@ public class OUnsafeMemoryJava7 extends OUnsafeMemory {
 
   @Override
   public void get(long pointer, byte[] array, int arrayOffset, int length) {
-    pointer += arrayOffset;
     unsafe.copyMemory(null, pointer, array, arrayOffset + unsafe.arrayBaseOffset(byte[].class), length);
   }
 
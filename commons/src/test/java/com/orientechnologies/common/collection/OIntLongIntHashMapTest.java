@@ -0,0 +1,92 @@
+package com.orientechnologies.common.collection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OIntLongIntHashMapTest {
+  public void testPutGetRemove() {
+    final OIntLongIntHashMap map = new OIntLongIntHashMap(-1);
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertEquals(map.get(1, 2), -1);
+
+    Assert.assertEquals(map.put(1, 2, 10), -1);
+    Assert.assertEquals(map.put(2, 1, 20), -1);
+    Assert.assertEquals(map.put(1, 2, 11), 10);
+    Assert.assertEquals(map.size(), 2);
+
+    Assert.assertEquals(map.get(1, 2), 11);
+    Assert.assertEquals(map.get(2, 1), 20);
+    Assert.assertFalse(map.containsKey(1, 1));
+
+    Assert.assertEquals(map.removeKey(1, 2), 11);
+    Assert.assertEquals(map.removeKey(1, 2), -1);
+    Assert.assertEquals(map.size(), 1);
+    Assert.assertEquals(map.get(2, 1), 20);
+
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertFalse(map.containsKey(2, 1));
+  }
+
+  public void testSet() {
+    final OIntLongHashSet set = new OIntLongHashSet();
+    for (long i = 0; i < 1000; i++)
+      Assert.assertTrue(set.add(5, i));
+
+    Assert.assertFalse(set.add(5, 10));
+    Assert.assertEquals(set.size(), 1000);
+
+    for (long i = 0; i < 1000; i += 2)
+      Assert.assertTrue(set.remove(5, i));
+
+    int found = 0;
+    for (int slot = set.nextSlot(0); slot >= 0; slot = set.nextSlot(slot + 1)) {
+      Assert.assertEquals(set.getIntKey(slot), 5);
+      Assert.assertEquals(set.getLongKey(slot) % 2, 1);
+      found++;
+    }
+    Assert.assertEquals(found, 500);
+  }
+
+  public void testAgainstHashMap() {
+    final Random random = new Random(42);
+    final OIntLongIntHashMap map = new OIntLongIntHashMap(-1);
+    final Map<List<Long>, Integer> expected = new HashMap<List<Long>, Integer>();
+
+    for (int i = 0; i < 200000; i++) {
+      // FEW CLUSTERS AND CLOSE POSITIONS TO HAVE LONG PROBE SEQUENCES AND MANY REMOVALS OF EXISTING KEYS
+      final int clusterId = random.nextInt(4);
+      final long clusterPosition = random.nextInt(5000);
+      final List<Long> key = key(clusterId, clusterPosition);
+
+      if (random.nextInt(3) == 0) {
+        final Integer removed = expected.remove(key);
+        Assert.assertEquals(map.removeKey(clusterId, clusterPosition), removed == null ? -1 : removed.intValue());
+      } else {
+        final Integer previous = expected.put(key, i);
+        Assert.assertEquals(map.put(clusterId, clusterPosition, i), previous == null ? -1 : previous.intValue());
+      }
+    }
+
+    Assert.assertEquals(map.size(), expected.size());
+    for (Map.Entry<List<Long>, Integer> entry : expected.entrySet())
+      Assert.assertEquals(map.get(entry.getKey().get(0).intValue(), entry.getKey().get(1)), entry.getValue().intValue());
+
+    for (int slot = map.nextSlot(0); slot >= 0; slot = map.nextSlot(slot + 1))
+      Assert.assertEquals(expected.get(key(map.getIntKey(slot), map.getLongKey(slot))).intValue(), map.getValue(slot));
+  }
+
+  private static List<Long> key(final int clusterId, final long clusterPosition) {
+    final List<Long> key = new ArrayList<Long>(2);
+    key.add((long) clusterId);
+    key.add(clusterPosition);
+    return key;
+  }
+}
@@ -0,0 +1,132 @@
+package com.orientechnologies.common.directmemory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class ODirectMemoryPagePoolTest {
+  public void testAcquireRelease() {
+    final ODirectMemoryPagePool pool = new ODirectMemoryPagePool(100, 4);
+
+    final List<ODirectMemoryPointer> pointers = new ArrayList<ODirectMemoryPointer>();
+    final Set<Long> addresses = new HashSet<Long>();
+    for (int i = 0; i < 10; i++) {
+      final ODirectMemoryPointer pointer = pool.acquire();
+      Assert.assertEquals(pointer.getDataPointer() % ODirectMemoryPagePool.ALIGNMENT, 0);
+      Assert.assertTrue(addresses.add(pointer.getDataPointer()));
+
+      pointer.setLong(0, i);
+      pointer.setLong(92, -i);
+      pointers.add(pointer);
+    }
+
+    Assert.assertEquals(pool.getSlabs(), 3);
+    Assert.assertEquals(pool.getUsedPages(), 10);
+    Assert.assertEquals(pool.getFreePages(), 2);
+
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(pointers.get(i).getLong(0), i);
+      Assert.assertEquals(pointers.get(i).getLong(92), -i);
+    }
+
+    for (ODirectMemoryPointer pointer : pointers)
+      pointer.free();
+
+    Assert.assertEquals(pool.getUsedPages(), 0);
+    Assert.assertEquals(pool.getFreePages(), 12);
+
+    // RELEASED PAGES ARE REUSED
+    for (int i = 0; i < 12; i++) {
+      final ODirectMemoryPointer pointer = pool.acquire();
+      Assert.assertTrue(addresses.contains(pointer.getDataPointer()) || i >= 10);
+      pointers.add(pointer);
+    }
+    Assert.assertEquals(pool.getSlabs(), 3);
+
+    for (ODirectMemoryPointer pointer : pointers.subList(10, pointers.size()))
+      pointer.free();
+
+    pool.clear();
+    Assert.assertEquals(pool.getSlabs(), 0);
+    Assert.assertEquals(pool.getAllocatedMemory(), 0);
+  }
+
+  public void testCloseFreesSlabs() {
+    final ODirectMemoryPagePool pool = ODirectMemoryPagePool.getInstance(120, 4);
+    Assert.assertSame(ODirectMemoryPagePool.getInstance(120, 8), pool);
+
+    final ODirectMemoryPointer first = pool.acquire();
+    final ODirectMemoryPointer second = pool.acquire();
+    Assert.assertEquals(pool.getSlabs(), 1);
+
+    // ANOTHER USER IS LEFT
+    pool.close();
+    first.free();
+    Assert.assertEquals(pool.getSlabs(), 1);
+
+    // THE LAST USER IS GONE BUT A PAGE IS STILL IN USE
+    pool.close();
+    Assert.assertEquals(pool.getSlabs(), 1);
+
+    second.free();
+    Assert.assertEquals(pool.getSlabs(), 0);
+    Assert.assertEquals(pool.getAllocatedMemory(), 0);
+
+    // THE POOL CAN BE USED AGAIN
+    Assert.assertSame(ODirectMemoryPagePool.getInstance(120, 4), pool);
+    pool.acquire().free();
+    Assert.assertEquals(pool.getSlabs(), 1);
+    pool.close();
+    Assert.assertEquals(pool.getSlabs(), 0);
+  }
+
+  public void testConcurrentAcquireRelease() throws Exception {
+    final ODirectMemoryPagePool pool = new ODirectMemoryPagePool(64, 16);
+    final int threads = 4;
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for (int t = 0; t < threads; t++) {
+      final long id = t;
+      futures.add(executor.submit(new Callable<Void>() {
+        public Void call() throws Exception {
+          final ODirectMemoryPointer[] pointers = new ODirectMemoryPointer[8];
+          for (int i = 0; i < 100000; i++) {
+            final int n = i % pointers.length;
+            if (pointers[n] != null) {
+              // NOBODY ELSE WROTE IN THE PAGE WHILE IT WAS OWNED
+              Assert.assertEquals(pointers[n].getLong(0), id);
+              Assert.assertEquals(pointers[n].getLong(56), i);
+              pointers[n].free();
+            }
+
+            pointers[n] = pool.acquire();
+            pointers[n].setLong(0, id);
+            pointers[n].setLong(56, i + pointers.length);
+          }
+
+          for (ODirectMemoryPointer pointer : pointers)
+            pointer.free();
+          return null;
+        }
+      }));
+    }
+
+    for (Future<Void> future : futures)
+      future.get();
+    executor.shutdown();
+
+    Assert.assertEquals(pool.getUsedPages(), 0);
+    Assert.assertTrue(pool.getSlabs() * pool.getPagesPerSlab() >= threads * 8);
+    pool.clear();
+  }
+}
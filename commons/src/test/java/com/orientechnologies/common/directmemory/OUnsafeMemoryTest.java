@@ -0,0 +1,30 @@
+package com.orientechnologies.common.directmemory;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OUnsafeMemoryTest {
+  public void testGetWithArrayOffset() {
+    assertGetWithArrayOffset(new OUnsafeMemory());
+  }
+
+  public void testGetWithArrayOffsetJava7() {
+    assertGetWithArrayOffset(new OUnsafeMemoryJava7());
+  }
+
+  private void assertGetWithArrayOffset(final ODirectMemory directMemory) {
+    final long pointer = directMemory.allocate(16);
+    try {
+      for (int i = 0; i < 16; i++)
+        directMemory.setByte(pointer + i, (byte) i);
+
+      final byte[] array = new byte[12];
+      directMemory.get(pointer + 2, array, 4, 8);
+
+      Assert.assertEquals(array, new byte[] { 0, 0, 0, 0, 2, 3, 4, 5, 6, 7, 8, 9 });
+    } finally {
+      directMemory.free(pointer);
+    }
+  }
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Concurrent implementation of {@link OCache} to be used as level-2 cache. Records are spread between segments by identity, every
+ * segment keeps its records in {@link ConcurrentHashMap} so lookups do not acquire any lock, only updates lock the segment.
+ * <p>
+ * Segment evicts records using GCLOCK algorithm: every hit increases small access counter of the entry, the clock hand decreases it
+ * and evicts first entry with zero counter. New records are admitted only if they were requested at least as often as the victim
+ * (TinyLFU), frequencies are tracked by count-min sketch which is halved periodically. Amount of records is always bounded, if no
+ * limit is configured {@link #DEFAULT_LIMIT} records are kept.
+ * <p>
+ * To use it set <code>cache.level2.impl</code> to <code>com.orientechnologies.orient.core.cache.OClockCache</code>.
+ */
+public class OClockCache implements OCache {
+  public static final int            DEFAULT_LIMIT     = 100000;
+
+  private static final int           MAX_SEGMENTS      = 16;
+  private static final int           MIN_SEGMENT_SIZE  = 64;
+  private static final int           MAX_FREQUENCY     = 3;
+
+  private final String               profilerPrefix;
+  private final int                  limit;
+  private final Segment[]            segments;
+  private final int                  segmentMask;
+  private final AtomicBoolean        enabled           = new AtomicBoolean(false);
+  private OMemoryWatchDog.Listener   lowMemoryListener;
+
+  private static final class Entry {
+    private final ORID                  id;
+    private volatile ORecordInternal<?> record;
+    private volatile int                frequency;
+    private int                         slot;
+
+    private Entry(final ORID id, final ORecordInternal<?> record) {
+      this.id = id;
+      this.record = record;
+    }
+  }
+
+  /**
+   * Count-min sketch of 4 rows which keeps frequencies up to 15 in 4-bit counters, 16 counters for every record of capacity.
+   * Updates are not synchronized, lost increments only make the estimation a bit less accurate.
+   */
+  private static final class FrequencySketch {
+    private static final long[] SEEDS      = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long   RESET_MASK = 0x7777777777777777L;
+
+    private final long[]        table;
+    private final int           mask;
+    private final int           sampleSize;
+    private int                 additions;
+
+    private FrequencySketch(final int capacity) {
+      int size = 1;
+      while (size < capacity)
+        size <<= 1;
+
+      table = new long[size];
+      mask = size - 1;
+      sampleSize = 10 * capacity;
+    }
+
+    private int frequency(final int hash) {
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < SEEDS.length; i++) {
+        final long h = mix(hash, i);
+        frequency = Math.min(frequency, (int) ((table[indexOf(h)] >>> offsetOf(h)) & 0xfL));
+      }
+
+      return frequency;
+    }
+
+    /**
+     * @return true if the sketch has to be aged.
+     */
+    private boolean increment(final int hash) {
+      boolean added = false;
+      for (int i = 0; i < SEEDS.length; i++) {
+        final long h = mix(hash, i);
+        final int index = indexOf(h);
+        final int offset = offsetOf(h);
+        if (((table[index] >>> offset) & 0xfL) < 15) {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+
+      return added && ++additions >= sampleSize;
+    }
+
+    private void age() {
+      for (int i = 0; i < table.length; i++)
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+
+      additions >>>= 1;
+    }
+
+    private void clear() {
+      for (int i = 0; i < table.length; i++)
+        table[i] = 0;
+
+      additions = 0;
+    }
+
+    private static long mix(final int hash, final int row) {
+      long h = (hash + SEEDS[row]) * SEEDS[row];
+      return h ^ (h >>> 32);
+    }
+
+    private int indexOf(final long h) {
+      return ((int) h) & mask;
+    }
+
+    private static int offsetOf(final long h) {
+      return ((int) (h >>> 40) & 0xf) << 2;
+    }
+  }
+
+  private static final class Segment {
+    private final ReentrantLock                      lock      = new ReentrantLock();
+    private final ConcurrentHashMap<ORID, Entry>     entries;
+    private final Entry[]                            ring;
+    private final int[]                              freeSlots;
+    private final FrequencySketch                    sketch;
+    private final AtomicLong                         hits      = new AtomicLong();
+    private final AtomicLong                         misses    = new AtomicLong();
+    private final AtomicLong                         evictions = new AtomicLong();
+    private int                                      freeSlotsCount;
+    private int                                      hand;
+
+    private Segment(final int capacity) {
+      entries = new ConcurrentHashMap<ORID, Entry>(capacity);
+      ring = new Entry[capacity];
+      freeSlots = new int[capacity];
+      sketch = new FrequencySketch(capacity);
+      resetSlots();
+    }
+
+    private ORecordInternal<?> get(final ORID id, final int hash) {
+      recordAccess(hash);
+
+      final Entry entry = entries.get(id);
+      if (entry == null) {
+        misses.incrementAndGet();
+        return null;
+      }
+
+      if (entry.frequency < MAX_FREQUENCY)
+        entry.frequency++;
+
+      hits.incrementAndGet();
+      return entry.record;
+    }
+
+    private ORecordInternal<?> put(final ORID id, final int hash, final ORecordInternal<?> record) {
+      lock.lock();
+      try {
+        final Entry entry = entries.get(id);
+        if (entry != null) {
+          final ORecordInternal<?> previous = entry.record;
+          entry.record = record;
+          return previous;
+        }
+
+        recordAccess(hash);
+
+        final int slot;
+        if (freeSlotsCount > 0)
+          slot = freeSlots[--freeSlotsCount];
+        else {
+          slot = findVictim();
+          if (slot < 0)
+            // ALL THE RECORDS ARE IN USE
+            return null;
+
+          final Entry victim = ring[slot];
+          if (sketch.frequency(hash) < sketch.frequency(hashOf(victim.id)))
+            // NEW RECORD IS LESS POPULAR THAN THE VICTIM: DON'T ADMIT IT
+            return null;
+
+          entries.remove(victim.id);
+          evictions.incrementAndGet();
+        }
+
+        final Entry newEntry = new Entry(id, record);
+        newEntry.slot = slot;
+        ring[slot] = newEntry;
+        entries.put(id, newEntry);
+        return null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private ORecordInternal<?> remove(final ORID id) {
+      lock.lock();
+      try {
+        final Entry entry = entries.remove(id);
+        if (entry == null)
+          return null;
+
+        releaseSlot(entry);
+        return entry.record;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Moves the clock hand till the entry which was not accessed since the last turn and can be safely removed.
+     *
+     * @return slot of the victim or -1 if there is no one.
+     */
+    private int findVictim() {
+      final int maxSteps = ring.length * (MAX_FREQUENCY + 1);
+      for (int i = 0; i < maxSteps; i++) {
+        final int slot = hand;
+        hand = (hand + 1) % ring.length;
+
+        final Entry entry = ring[slot];
+        if (entry == null)
+          continue;
+
+        if (entry.frequency > 0) {
+          entry.frequency--;
+          continue;
+        }
+
+        final ORecordInternal<?> record = entry.record;
+        if (record.isDirty() || record.isPinned() == Boolean.TRUE)
+          continue;
+
+        return slot;
+      }
+
+      return -1;
+    }
+
+    private int evict(final int amount) {
+      lock.lock();
+      try {
+        int evicted = 0;
+        while (evicted < amount && !entries.isEmpty()) {
+          final int slot = findVictim();
+          if (slot < 0)
+            break;
+
+          final Entry victim = ring[slot];
+          entries.remove(victim.id);
+          releaseSlot(victim);
+          evictions.incrementAndGet();
+          evicted++;
+        }
+
+        return evicted;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void clear() {
+      lock.lock();
+      try {
+        entries.clear();
+        sketch.clear();
+        resetSlots();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void recordAccess(final int hash) {
+      if (sketch.increment(hash) && lock.tryLock())
+        try {
+          sketch.age();
+        } finally {
+          lock.unlock();
+        }
+    }
+
+    private void releaseSlot(final Entry entry) {
+      ring[entry.slot] = null;
+      freeSlots[freeSlotsCount++] = entry.slot;
+    }
+
+    private void resetSlots() {
+      for (int i = 0; i < ring.length; i++) {
+        ring[i] = null;
+        freeSlots[i] = ring.length - i - 1;
+      }
+
+      freeSlotsCount = ring.length;
+      hand = 0;
+    }
+  }
+
+  public OClockCache(final String iName, final int initialLimit) {
+    limit = initialLimit > 0 ? initialLimit : DEFAULT_LIMIT;
+    profilerPrefix = iName != null ? "db." + iName + ".cache.level2." : null;
+
+    int segmentsCount = 1;
+    while (segmentsCount < MAX_SEGMENTS && limit / (segmentsCount << 1) >= MIN_SEGMENT_SIZE)
+      segmentsCount <<= 1;
+
+    segments = new Segment[segmentsCount];
+    segmentMask = segmentsCount - 1;
+
+    final int segmentSize = (limit + segmentsCount - 1) / segmentsCount;
+    for (int i = 0; i < segmentsCount; i++)
+      segments[i] = new Segment(segmentSize);
+  }
+
+  @Override
+  public void startup() {
+    lowMemoryListener = Orient.instance().getMemoryWatchDog().addListener(new OLowMemoryListener());
+    registerProfilerHooks();
+    enable();
+  }
+
+  @Override
+  public void shutdown() {
+    Orient.instance().getMemoryWatchDog().removeListener(lowMemoryListener);
+    unregisterProfilerHooks();
+    disable();
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled.get();
+  }
+
+  @Override
+  public boolean enable() {
+    return enabled.compareAndSet(false, true);
+  }
+
+  @Override
+  public boolean disable() {
+    clear();
+    return enabled.compareAndSet(true, false);
+  }
+
+  @Override
+  public ORecordInternal<?> get(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final int hash = hashOf(id);
+    return segmentFor(hash).get(id, hash);
+  }
+
+  @Override
+  public ORecordInternal<?> put(final ORecordInternal<?> record) {
+    if (!isEnabled())
+      return null;
+
+    final ORID id = record.getIdentity();
+    final int hash = hashOf(id);
+    return segmentFor(hash).put(id, hash, record);
+  }
+
+  @Override
+  public ORecordInternal<?> remove(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    return segmentFor(hashOf(id)).remove(id);
+  }
+
+  @Override
+  public void clear() {
+    if (!isEnabled())
+      return;
+
+    for (Segment segment : segments)
+      segment.clear();
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments)
+      size += segment.entries.size();
+
+    return size;
+  }
+
+  @Override
+  public int limit() {
+    return limit;
+  }
+
+  @Override
+  public Collection<ORID> keys() {
+    final List<ORID> keys = new ArrayList<ORID>(size());
+    for (Segment segment : segments)
+      keys.addAll(segment.entries.keySet());
+
+    return keys;
+  }
+
+  @Override
+  public void lock(final ORID id) {
+    segmentFor(hashOf(id)).lock.lock();
+  }
+
+  @Override
+  public void unlock(final ORID id) {
+    segmentFor(hashOf(id)).lock.unlock();
+  }
+
+  public long getHits() {
+    long hits = 0;
+    for (Segment segment : segments)
+      hits += segment.hits.get();
+
+    return hits;
+  }
+
+  public long getMisses() {
+    long misses = 0;
+    for (Segment segment : segments)
+      misses += segment.misses.get();
+
+    return misses;
+  }
+
+  public long getEvictions() {
+    long evictions = 0;
+    for (Segment segment : segments)
+      evictions += segment.evictions.get();
+
+    return evictions;
+  }
+
+  private void registerProfilerHooks() {
+    if (profilerPrefix == null)
+      return;
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.registerHookValue(profilerPrefix + "hits", "Number of records found in cache", METRIC_TYPE.COUNTER,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return getHits();
+          }
+        }, "db.*.cache.level2.hits");
+
+    profiler.registerHookValue(profilerPrefix + "misses", "Number of records not found in cache", METRIC_TYPE.COUNTER,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return getMisses();
+          }
+        }, "db.*.cache.level2.misses");
+
+    profiler.registerHookValue(profilerPrefix + "evictions", "Number of records evicted from cache", METRIC_TYPE.COUNTER,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return getEvictions();
+          }
+        }, "db.*.cache.level2.evictions");
+  }
+
+  private void unregisterProfilerHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profilerPrefix == null || profiler == null)
+      return;
+
+    profiler.unregisterHookValue(profilerPrefix + "hits");
+    profiler.unregisterHookValue(profilerPrefix + "misses");
+    profiler.unregisterHookValue(profilerPrefix + "evictions");
+  }
+
+  private Segment segmentFor(final int hash) {
+    return segments[(hash >>> 16) & segmentMask];
+  }
+
+  private static int hashOf(final ORID id) {
+    // RIDS OF THE SAME CLUSTER DIFFER ONLY IN THE LOWEST BITS: MIX THEM INTO THE HIGH ONES USED TO PICK THE SEGMENT
+    final int h = id.hashCode() * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  class OLowMemoryListener implements OMemoryWatchDog.Listener {
+    public void lowMemory(final long freeMemory, final long freeMemoryPercentage) {
+      try {
+        final int oldSize = size();
+        if (oldSize == 0)
+          return;
+
+        final int newSize = freeMemoryPercentage < 10 ? 0 : (int) (oldSize * 0.9f);
+        for (Segment segment : segments)
+          segment.evict((segment.entries.size() * (oldSize - newSize) + oldSize - 1) / oldSize);
+
+        OLogManager.instance().warn(this, "Low free heap memory (%d%%): reducing cached records number from %d to %d",
+            freeMemoryPercentage, oldSize, size());
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "Error occurred during clock cache cleanup", e);
+      }
+    }
+  }
+}
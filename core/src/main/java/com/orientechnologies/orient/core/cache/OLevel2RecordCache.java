@@ -120,6 +120,9 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
     if (!isEnabled() || iRID.getClusterId() == excludedCluster)
       return null;
 
+    if (strategy == STRATEGY.COPY_RECORD)
+      return copyRecord(iRID);
+
     ORecordInternal<?> record;
     underlying.lock(iRID);
     try {
@@ -131,13 +134,6 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
         return null;
       }
 
-      if (strategy == STRATEGY.COPY_RECORD) {
-        final ORecordInternal<?> resident = OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean() ? (ORecordInternal<?>) record
-            .flatCopy() : record;
-        // PUT BACK A COPY OR ThE ORIGINAL IF NOT MULTI-THREADS (THIS UPDATE ALSO THE LRU)
-        underlying.put(resident);
-      }
-
     } finally {
       underlying.unlock(iRID);
     }
@@ -146,6 +142,26 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
     return record;
   }
 
+  /**
+   * Returns a copy of the cached record leaving the resident instance in cache, so concurrent caches are not locked on lookup.
+   */
+  private ORecordInternal<?> copyRecord(final ORID iRID) {
+    final ORecordInternal<?> resident = underlying.get(iRID);
+
+    if (resident == null || resident.isDirty()) {
+      if (resident != null)
+        underlying.remove(iRID);
+
+      Orient.instance().getProfiler()
+          .updateCounter(CACHE_MISS, "Record not found in Level2 Cache", +1, "db.*.cache.level2.cache.notFound");
+      return null;
+    }
+
+    Orient.instance().getProfiler().updateCounter(CACHE_HIT, "Record found in Level2 Cache", +1, "db.*.cache.level2.cache.found");
+
+    return OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean() ? (ORecordInternal<?>) resident.flatCopy() : resident;
+  }
+
   public void setStrategy(final STRATEGY newStrategy) {
     strategy = newStrategy;
   }
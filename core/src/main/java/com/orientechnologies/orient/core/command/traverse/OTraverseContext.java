@@ -18,19 +18,19 @@ package com.orientechnologies.orient.core.command.traverse;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORIDHashSet;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
 public class OTraverseContext extends OBasicCommandContext {
-  private Set<ORID> history = new HashSet<ORID>();
+  private Set<ORID> history = new ORIDHashSet();
   private Memory    memory  = new StackMemory();
 
   private OTraverseAbstractProcess<?> currentProcess;
@@ -68,6 +68,11 @@ public enum OGlobalConfiguration {
   // STORAGE
   DISK_CACHE_SIZE("storage.diskCache.bufferSize", "Size of disk buffer in megabytes", Integer.class, 4 * 1024),
 
+  DISK_CACHE_CONCURRENCY_LEVEL("storage.diskCache.concurrencyLevel",
+      "Amount of segments read cache is split to. Each segment is guarded by its own lock, so bigger values decrease "
+          + "contention between threads which read different pages. 1 means that whole read cache is guarded by single lock.",
+      Integer.class, 8),
+
   DISK_WRITE_CACHE_PART("storage.diskCache.writeCachePart", "Percent of disk cache which is use as write cache", Integer.class, 30),
 
   DISK_WRITE_CACHE_PAGE_TTL("storage.diskCache.writeCachePageTTL",
@@ -84,6 +89,10 @@ public enum OGlobalConfiguration {
   DISK_WRITE_CACHE_FLUSH_LOCK_TIMEOUT("storage.diskCache.writeCacheFlushLockTimeout",
       "Maximum amount of time till write cache will be wait before page flush in ms.", Integer.class, -1),
 
+  DISK_WRITE_CACHE_FLUSH_THREADS("storage.diskCache.writeCacheFlushThreads",
+      "Amount of threads which flush dirty pages of write cache in background. Pages are partitioned between threads by file id, "
+          + "so pages of the same file are always flushed by the same thread.", Integer.class, 1),
+
   STORAGE_CONFIGURATION_SYNC_ON_UPDATE("storage.configuration.syncOnUpdate",
       "Should we perform force sync of storage configuration for each update", Boolean.class, true),
 
@@ -104,6 +113,10 @@ public enum OGlobalConfiguration {
 
   WAL_COMMIT_TIMEOUT("storage.wal.commitTimeout", "Maximum interval between WAL commits (in ms.)", Integer.class, 1000),
 
+  WAL_SYNC_ON_TX_COMMIT("storage.wal.syncOnTxCommit", "Indicates whether transaction commit should wait till its WAL records"
+      + " are flushed to the disk. Transactions which are committed at the same time share single WAL flush.", Boolean.class,
+      false),
+
   WAL_SHUTDOWN_TIMEOUT("storage.wal.shutdownTimeout", "Maximum wait interval between events when background flush thread"
       + " will receive shutdown command and when background flush will be stopped (in ms.)", Integer.class, 10000),
 
@@ -135,6 +148,13 @@ public enum OGlobalConfiguration {
   DISK_CACHE_PAGE_SIZE("storage.diskCache.pageSize", "Size of page of disk buffer in kilobytes,!!! NEVER CHANGE THIS VALUE !!!",
       Integer.class, 64),
 
+  DISK_CACHE_PAGE_POOL("storage.diskCache.pagePool",
+      "Allocates the pages of disk cache from a pool of large memory slabs instead of allocating and freeing every page",
+      Boolean.class, true),
+
+  DISK_CACHE_PAGE_POOL_SLAB_SIZE("storage.diskCache.pagePoolSlabSize",
+      "Size in megabytes of the memory slabs reserved by the pool of disk cache pages", Integer.class, 16),
+
   PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY("storage.lowestFreeListBound", "The minimal amount of free space (in kb)"
       + " in page which is tracked in paginated storage", Integer.class, 16),
 
@@ -208,6 +228,10 @@ public enum OGlobalConfiguration {
 
   DB_VALIDATION("db.validation", "Enables or disables validation of records", Boolean.class, true),
 
+  DB_DOCUMENT_SERIALIZER("db.document.serializer",
+      "Serializer of the documents of new databases: 'ORecordDocument2csv' (textual) or 'ORecordSerializerBinary' (binary). "
+          + "Existing databases keep the serializer they were created with", String.class, "ORecordDocument2csv"),
+
   DB_USE_DISTRIBUTED_VERSION("db.use.distributedVersion", "Use extended version that is safe in distributed environment",
       Boolean.class, Boolean.FALSE),
 
@@ -273,8 +297,24 @@ public enum OGlobalConfiguration {
   INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT("index.notunique.useSBTreeContainerByDefault",
       "Prefer SBTree based algorithm instead MVRBTree for storing sets of RID", Boolean.class, true),
 
+  INDEX_FULLTEXT_USE_POSTING_LISTS_BY_DEFAULT("index.fullText.usePostingListsByDefault",
+      "New FULLTEXT indexes store compressed posting lists with positions and rank the results of the queries. Existing indexes keep their format",
+      Boolean.class, false),
+
   INDEX_CURSOR_PREFETCH_SIZE("index.cursor.prefetchSize", "Default prefetch size of index cursor", Integer.class, 500000),
 
+  INDEX_BULK_LOAD("index.bulkLoad",
+      "Creates and rebuilds unique and not unique SBTree indexes by sorting all the keys first and building the tree bottom-up, "
+          + "instead of inserting the keys one by one", Boolean.class, true),
+
+  INDEX_BULK_LOAD_FILL_FACTOR("index.bulkLoad.fillFactor",
+      "Fraction of every SBTree page filled by the bulk load of an index, between 0.5 and 1. Free space left in the pages avoids "
+          + "splitting them on the next inserts", Float.class, 0.9f),
+
+  INDEX_BULK_LOAD_SPILL_THRESHOLD("index.bulkLoad.spillThreshold",
+      "Number of keys the bulk load of an index sorts in memory before writing them as a sorted run to a temporary file",
+      Integer.class, 500000),
+
   // TREEMAP
   MVRBTREE_TIMEOUT("mvrbtree.timeout", "Maximum timeout to get lock against the OMVRB-Tree", Integer.class, 5000),
 
@@ -440,6 +480,29 @@ public enum OGlobalConfiguration {
 
   NETWORK_BINARY_DEBUG("network.binary.debug", "Debug mode: print all data incoming on the binary channel", Boolean.class, false),
 
+  NETWORK_BINARY_CURSOR_PAGE_SIZE("network.binary.cursor.pageSize",
+      "Number of records returned by each page of a server side query cursor", Integer.class, 1000),
+
+  NETWORK_BINARY_CURSOR_TIMEOUT("network.binary.cursor.timeout",
+      "Time in ms after which a server side query cursor not browsed by the client is closed", Integer.class, 60000),
+
+  NETWORK_BINARY_CURSOR_MAX("network.binary.cursor.max",
+      "Maximum number of server side query cursors a client connection can keep open at the same time", Integer.class, 16),
+
+  NETWORK_BINARY_CURSOR_THREADS("network.binary.cursor.threads",
+      "Maximum number of threads running the commands of the server side query cursors of all the connections", Integer.class, 256),
+
+  NETWORK_NIO_IO_THREADS("network.nio.ioThreads",
+      "Number of selector threads reading and writing the connections of listeners using the 'nio' transport", Integer.class, 2),
+
+  NETWORK_NIO_WORKER_THREADS("network.nio.workerThreads",
+      "Number of threads executing the requests received by listeners using the 'nio' transport. A thread waiting for the rest of a "
+          + "request is replaced by a new one, up to twice this number", Integer.class, 32),
+
+  NETWORK_NIO_WORKER_QUEUE("network.nio.workerQueue",
+      "Maximum number of connections with requests waiting for a thread of the 'nio' transport. When full, the other connections "
+          + "stop being read until there is room", Integer.class, 1024),
+
   NETWORK_HTTP_MAX_CONTENT_LENGTH("network.http.maxLength", "TCP/IP max content length in bytes for HTTP requests", Integer.class,
       1000000),
 
@@ -448,6 +511,14 @@ public enum OGlobalConfiguration {
   NETWORK_HTTP_SESSION_EXPIRE_TIMEOUT("network.http.sessionExpireTimeout",
       "Timeout after which an http session is considered tp have expired (seconds)", Integer.class, 300),
 
+  NETWORK_HTTP_COMPRESSION("network.http.compression",
+      "Compress the HTTP responses with gzip or deflate when the client accepts it with the Accept-Encoding header", Boolean.class,
+      true),
+
+  NETWORK_HTTP_STREAMING("network.http.streaming",
+      "Send the records of queries and commands as soon as they are found, using the chunked transfer encoding", Boolean.class,
+      false),
+
   // PROFILER
   PROFILER_ENABLED("profiler.enabled", "Enable the recording of statistics and counters", Boolean.class, false,
       new OConfigurationChangeCallback() {
@@ -490,11 +561,37 @@ public enum OGlobalConfiguration {
   // COMMAND
   COMMAND_TIMEOUT("command.timeout", "Default timeout for commands expressed in milliseconds", Long.class, 0),
 
+  // QUERY
+  QUERY_PARALLEL_CHUNK_SIZE("query.parallelChunkSize",
+      "Number of cluster positions (or records if the target is not a cluster) browsed by a worker as a single unit of work "
+          + "in PARALLEL queries", Integer.class, 1000),
+
+  QUERY_FILTER_COMPILED("query.filter.compiled",
+      "Evaluates the WHERE conditions through a tree compiled once per query, with short-circuited AND/OR and comparisons that "
+          + "resolve the collate once per class and convert the constant once per field type, instead of interpreting the "
+          + "condition tree for every record", Boolean.class, true),
+
+  QUERY_STATEMENT_CACHE_SIZE("query.statementCache.size",
+      "Number of parsed SELECT statements kept per database and reused by the executions with the same text. The cache is "
+          + "invalidated on every schema or index change. 0 disables the cache", Integer.class, 100),
+
+  QUERY_ORDERBY_SPILL_THRESHOLD("query.orderBy.spillThreshold",
+      "Number of records an ORDER BY without LIMIT sorts in memory before writing them as a sorted run to a temporary file. "
+          + "Runs are merged while the result is browsed. 0 keeps all the records in memory", Integer.class, 200000),
+
   // CLIENT
   CLIENT_CHANNEL_MIN_POOL("client.channel.minPool", "Minimum pool size", Integer.class, 1),
 
   CLIENT_CHANNEL_MAX_POOL("client.channel.maxPool", "Maximum channel pool size", Integer.class, 20),
 
+  CLIENT_CHANNEL_PIPELINING("client.channel.pipelining",
+      "Sends the short synchronous requests (record load, create, update, delete and counts) of all the threads over a few shared "
+          + "channels without waiting for the previous responses, instead of taking an exclusive channel from the pool",
+      Boolean.class, false),
+
+  CLIENT_CHANNEL_PIPELINED_CHANNELS("client.channel.pipelinedChannels",
+      "Number of shared channels per server used when client.channel.pipelining is true", Integer.class, 2),
+
   CLIENT_CONNECT_POOL_WAIT_TIMEOUT("client.connectionPool.waitTimeout",
       "Maximum time which client should wait connection from the pool", Integer.class, 5000),
 
@@ -538,6 +635,10 @@ public enum OGlobalConfiguration {
   DISTRIBUTED_DEPLOYDB_TASK_COMPRESSION("distributed.deployDbTaskCompression",
       "Compression level between 0 and 9 to use in backup for database deployment", Integer.class, 7),
 
+  DISTRIBUTED_APPLY_WORKERS("distributed.applyWorkers",
+      "Number of threads per database that apply the replicated requests. Requests against the same cluster are applied in order "
+          + "by the same thread. 1 applies all the requests sequentially", Integer.class, 1),
+
   DISTRIBUTED_QUEUE_TIMEOUT("distributed.queueTimeout", "Maximum timeout in milliseconds to wait for the response in replication",
       Integer.class, 5000l),
 
@@ -43,6 +43,7 @@ import java.util.*;
  * <li>7 = ??</li>
  * <li>8 = introduced cluster selection strategy as string</li>
  * <li>9 = introduced minimumclusters as string</li>
+ * <li>10 = introduced record serializer name</li>
  * </ul>
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
@@ -55,7 +56,7 @@ public class OStorageConfiguration implements OSerializableStream {
 
   public static final String                         DEFAULT_CHARSET               = "UTF-8";
   private String                                     charset                       = DEFAULT_CHARSET;
-  public static final int                            CURRENT_VERSION               = 9;
+  public static final int                            CURRENT_VERSION               = 10;
   public static final int                            CURRENT_BINARY_FORMAT_VERSION = 11;
   public volatile int                                version                       = -1;
 
@@ -84,6 +85,7 @@ public class OStorageConfiguration implements OSerializableStream {
   private transient volatile DecimalFormatSymbols    unusualSymbols;
   private volatile String                            clusterSelection;
   private volatile int                               minimumClusters               = 1;
+  private volatile String                            recordSerializer;
 
   public OStorageConfiguration(final OStorage iStorage) {
     storage = iStorage;
@@ -287,6 +289,11 @@ public class OStorageConfiguration implements OSerializableStream {
       // DEFAULT = 1
       minimumClusters = 1;
 
+    if (version >= 10)
+      recordSerializer = read(values[index++]);
+    else
+      recordSerializer = null;
+
     return this;
   }
 
@@ -377,6 +384,7 @@ public class OStorageConfiguration implements OSerializableStream {
     write(buffer, binaryFormatVersion);
     write(buffer, clusterSelection);
     write(buffer, minimumClusters);
+    write(buffer, recordSerializer);
 
     // PLAIN: ALLOCATE ENOUGHT SPACE TO REUSE IT EVERY TIME
     buffer.append("|");
@@ -482,6 +490,18 @@ public class OStorageConfiguration implements OSerializableStream {
     this.minimumClusters = minimumClusters;
   }
 
+  /**
+   * @return name of the serializer used for the documents of this database or null for databases created before it was
+   *         configurable, that use the CSV one.
+   */
+  public String getRecordSerializer() {
+    return recordSerializer;
+  }
+
+  public void setRecordSerializer(final String recordSerializer) {
+    this.recordSerializer = recordSerializer;
+  }
+
   private int phySegmentFromStream(final String[] values, int index, final OStorageSegmentConfiguration iSegment) {
     iSegment.location = version > 2 ? read(values[index++]) : null;
     iSegment.maxSize = read(values[index++]);
@@ -19,6 +19,7 @@ package com.orientechnologies.orient.core.db.document;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
 import com.orientechnologies.orient.core.db.ODatabaseRecordWrapperAbstract;
 import com.orientechnologies.orient.core.db.record.OCurrentStorageComponentsFactory;
@@ -29,6 +30,7 @@ import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.exception.OValidationException;
 import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexAbstract;
 import com.orientechnologies.orient.core.iterator.ORecordIteratorClass;
@@ -55,8 +57,7 @@ import java.util.List;
 
 @SuppressWarnings("unchecked")
 public class ODatabaseDocumentTx extends ODatabaseRecordWrapperAbstract<ODatabaseRecordTx> implements ODatabaseDocument {
-  protected static ORecordSerializer defaultSerializer = ORecordSerializerFactory.instance().getFormat(
-                                                           ORecordSerializerSchemaAware2CSV.NAME);
+  protected static ORecordSerializer defaultSerializer;
 
   /**
    * Creates a new connection to the database.
@@ -66,7 +67,7 @@ public class ODatabaseDocumentTx extends ODatabaseRecordWrapperAbstract<ODatabas
    */
   public ODatabaseDocumentTx(final String iURL) {
     super(new ODatabaseRecordTx(iURL, ODocument.RECORD_TYPE));
-    underlying.setSerializer(defaultSerializer);
+    underlying.setSerializer(getDefaultSerializer());
   }
 
   /**
@@ -80,10 +81,17 @@ public class ODatabaseDocumentTx extends ODatabaseRecordWrapperAbstract<ODatabas
   }
 
   /**
-   * @return default serializer which is used to serialize documents. Default serializer is common for all database instances.
+   * @return default serializer which is used to serialize documents. Default serializer is common for all database instances, if
+   *         not set the one configured by {@link OGlobalConfiguration#DB_DOCUMENT_SERIALIZER} is used. Existing databases are
+   *         always opened with the serializer they were created with.
    */
   public static ORecordSerializer getDefaultSerializer() {
-    return defaultSerializer;
+    if (defaultSerializer != null)
+      return defaultSerializer;
+
+    final ORecordSerializer configured = ORecordSerializerFactory.instance().getFormat(
+        OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.getValueAsString());
+    return configured != null ? configured : ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
   }
 
   /**
@@ -231,6 +239,28 @@ public class ODatabaseDocumentTx extends ODatabaseRecordWrapperAbstract<ODatabas
         endClusterPosition, true, loadTombstones, OStorage.LOCKING_STRATEGY.DEFAULT);
   }
 
+  /**
+   * Loads many records at once. Against a remote database the records not available in the transaction or in the local cache are
+   * loaded with one request to the server, instead of one request per record. The records are returned as they are stored, so
+   * the rids can point also to records that are not documents.
+   * 
+   * @param iRids
+   *          the identities of the records to load
+   * @return the records in the same order of the rids, with null for the records not found
+   */
+  public List<ORecordInternal<?>> load(final Collection<? extends ORID> iRids) {
+    return load(iRids, null);
+  }
+
+  /**
+   * Loads many records at once using a fetch plan.
+   * 
+   * @see #load(Collection)
+   */
+  public List<ORecordInternal<?>> load(final Collection<? extends ORID> iRids, final String iFetchPlan) {
+    return underlying.executeReadRecords(iRids, iFetchPlan, false);
+  }
+
   /**
    * Saves a document to the database. Behavior depends by the current running transaction if any. If no transaction is running then
    * changes apply immediately. If an Optimistic transaction is running then the record will be changed at commit time. The current
@@ -71,7 +71,10 @@ import com.orientechnologies.orient.core.schedule.OSchedulerTrigger;
 import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.storage.OBatchOperationResult;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.ORecordCallback;
 import com.orientechnologies.orient.core.storage.ORecordMetadata;
@@ -106,6 +109,7 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
   private boolean                                           validation;
   private ODataSegmentStrategy                              dataSegmentStrategy = new ODefaultDataSegmentStrategy();
   private OCurrentStorageComponentsFactory                  componentsFactory;
+  private Map<ORID, OBatchOperationResult<ORawBuffer>>      prefetchedRecords;
 
   private class ExecuteReplicaUpdateCallable implements Callable<Boolean> {
     private final ORecordId          rid;
@@ -268,6 +272,9 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
       super.open(iUserName, iUserPassword);
       componentsFactory = getStorage().getComponentsFactory();
 
+      if (serializer != null)
+        serializer = getStoredSerializer();
+
       final OSBTreeCollectionManager sbTreeCM = getStorage().getResource(OSBTreeCollectionManager.class.getSimpleName(),
           new Callable<OSBTreeCollectionManager>() {
             @Override
@@ -366,6 +373,10 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
           }));
       level1Cache.startup();
 
+      if (serializer != null)
+        // THE DATABASE WILL BE ALWAYS OPENED WITH THE SERIALIZER IT HAS BEEN CREATED WITH
+        getStorage().getConfiguration().setRecordSerializer(serializer.toString());
+
       getStorage().getConfiguration().update();
 
       if (!(getStorage() instanceof OStorageProxy))
@@ -398,6 +409,22 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return (DB) this;
   }
 
+  /**
+   * Returns the record serializer the database has been created with. Databases created before it was stored use the CSV one.
+   */
+  private ORecordSerializer getStoredSerializer() {
+    final String serializerName = getStorage().getConfiguration().getRecordSerializer();
+    if (serializerName == null)
+      return serializer instanceof ORecordSerializerBinary ? ORecordSerializerFactory.instance().getFormat(
+          ORecordSerializerSchemaAware2CSV.NAME) : serializer;
+
+    final ORecordSerializer stored = ORecordSerializerFactory.instance().getFormat(serializerName);
+    if (stored == null)
+      throw new ODatabaseException("Record serializer '" + serializerName + "' used by the database is not registered");
+
+    return stored;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -970,6 +997,48 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return (DB) this;
   }
 
+  /**
+   * Loads many records with the same semantic of {@link #load(ORID, String, boolean)}. Against a proxy storage the records not
+   * available in the transaction or in the level1 cache are read with one request.
+   * 
+   * @return the records in the same order of the rids, with null for the records not found
+   */
+  public List<ORecordInternal<?>> executeReadRecords(final Collection<? extends ORID> iRids, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    checkOpeness();
+
+    if (getStorage() instanceof OStorageProxy) {
+      final Set<ORID> distinct = new HashSet<ORID>();
+      final List<ORecordId> toRead = new ArrayList<ORecordId>();
+      for (ORID rid : iRids)
+        if (rid != null && rid.isPersistent() && distinct.add(rid) && getTransaction().getRecord(rid) == null
+            && (iIgnoreCache || getLevel1Cache().findRecord(rid) == null))
+          toRead.add((ORecordId) rid);
+
+      if (toRead.size() > 1) {
+        for (ORecordId rid : toRead)
+          checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, getClusterNameById(rid.getClusterId()));
+
+        final List<OBatchOperationResult<ORawBuffer>> buffers = ((OStorageProxy) getStorage()).readRecords(toRead, iFetchPlan,
+            iIgnoreCache);
+
+        prefetchedRecords = new HashMap<ORID, OBatchOperationResult<ORawBuffer>>();
+        for (int i = 0; i < toRead.size(); ++i)
+          prefetchedRecords.put(toRead.get(i), buffers.get(i));
+      }
+    }
+
+    try {
+      // LOAD THE RECORDS ONE BY ONE: THE PREFETCHED ONES ARE TAKEN WITHOUT ACCESSING THE STORAGE AGAIN
+      final List<ORecordInternal<?>> result = new ArrayList<ORecordInternal<?>>(iRids.size());
+      for (ORID rid : iRids)
+        result.add(rid != null ? this.<ORecordInternal<?>> load(rid, iFetchPlan, iIgnoreCache) : null);
+      return result;
+    } finally {
+      prefetchedRecords = null;
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -1014,7 +1083,9 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
         return (RET) record;
       }
 
-      final ORawBuffer recordBuffer = underlying.read(rid, iFetchPlan, iIgnoreCache, loadTombstones, iLockingStrategy).getResult();
+      final OBatchOperationResult<ORawBuffer> prefetched = prefetchedRecords != null ? prefetchedRecords.remove(rid) : null;
+      final ORawBuffer recordBuffer = prefetched != null ? prefetched.getResult() : underlying.read(rid, iFetchPlan, iIgnoreCache,
+          loadTombstones, iLockingStrategy).getResult();
       if (recordBuffer == null)
         return null;
 
@@ -1078,6 +1149,10 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
       byte[] stream;
       final OStorageOperationResult<ORecordVersion> operationResult;
 
+      if (wasNew && record instanceof ODocument)
+        // A DOCUMENT CREATED OUT OF THIS DATABASE IS WRITTEN WITH ITS RECORD FORMAT
+        ((ODocument) record).checkRecordFormat();
+
       ORecordSerializationContext.pushContext();
       try {
         // STREAM.LENGTH == 0 -> RECORD IN STACK: WILL BE SAVED AFTER
@@ -96,7 +96,7 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
   }
 
   private ORidBag(byte[] stream) {
-    fromStream(stream);
+    deserialize(stream);
   }
 
   public void addAll(Collection<OIdentifiable> values) {
@@ -161,6 +161,14 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
 
   @Override
   public OStringBuilderSerializable toStream(StringBuilder output) throws OSerializationException {
+    output.append(OBase64Utils.encodeBytes(toStream()));
+    return this;
+  }
+
+  /**
+   * Serializes the bag in its binary form, the string form is the same content encoded in Base64.
+   */
+  public byte[] toStream() throws OSerializationException {
     final ORecordSerializationContext context = ORecordSerializationContext.getContext();
     if (context != null) {
       if (delegate.size() >= topThreshold && isEmbedded() && ODatabaseRecordThreadLocal.INSTANCE.get().getSbTreeCollectionManager() != null  ) {
@@ -221,8 +229,7 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
 
     delegate.serialize(stream, offset, oldUuid);
 
-    output.append(OBase64Utils.encodeBytes(stream));
-    return this;
+    return stream;
   }
 
   @Override
@@ -237,11 +244,11 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
   @Override
   public OStringBuilderSerializable fromStream(StringBuilder input) throws OSerializationException {
     final byte[] stream = OBase64Utils.decode(input.toString());
-    fromStream(stream);
+    deserialize(stream);
     return this;
   }
 
-  private void fromStream(byte[] stream) {
+  private void deserialize(byte[] stream) {
     if ((stream[0] & 1) == 1)
       delegate = new OEmbeddedRidBag();
     else
@@ -261,6 +268,10 @@ public class ORidBag implements OStringBuilderSerializable, Iterable<OIdentifiab
     return new ORidBag(stream);
   }
 
+  public static ORidBag fromStream(final byte[] stream) {
+    return new ORidBag(stream);
+  }
+
   @Override
   public void addChangeListener(OMultiValueChangeListener<OIdentifiable, OIdentifiable> changeListener) {
     delegate.addChangeListener(changeListener);
@@ -23,12 +23,13 @@ import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODocumentFieldVisitor;
 import com.orientechnologies.orient.core.db.document.ODocumentFieldWalker;
 import com.orientechnologies.orient.core.db.record.OClassTrigger;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
 import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.id.OClusterPositionFactory;
-import com.orientechnologies.orient.core.id.OClusterPositionLong;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.index.OIndex;
@@ -56,8 +57,10 @@ import com.orientechnologies.orient.core.serialization.serializer.OStringSeriali
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerJSON;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeRIDProvider;
@@ -93,7 +96,6 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   private Map<OPropertyImpl, String> linkedClasses          = new HashMap<OPropertyImpl, String>();
   private Map<OClass, String>        superClasses           = new HashMap<OClass, String>();
   private OJSONReader                jsonReader;
-  private ORecordInternal<?>         record;
   private boolean                    schemaImported         = false;
   private int                        exporterVersion        = -1;
   private ORID                       schemaRecordId;
@@ -107,6 +109,7 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   private boolean                    migrateLinks           = true;
   private boolean                    merge                  = false;
   private boolean                    rebuildIndexes         = true;
+  private int                        workers                = 1;
 
   private Set<String>                indexesToRebuild       = new HashSet<String>();
 
@@ -114,30 +117,52 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
     T convert(T value);
   }
 
+  /**
+   * Converters of the links of a document. Every thread that rewrites links uses its own factory bound to the RID mapping table of
+   * its database.
+   */
   private static final class ConvertersFactory {
-    public static final ConvertersFactory INSTANCE = new ConvertersFactory();
+    private final MapConverter    mapConverter;
+    private final ListConverter   listConverter;
+    private final SetConverter    setConverter;
+    private final RidBagConverter ridBagConverter;
+    private final LinkConverter   linkConverter;
+
+    public ConvertersFactory(final OIndex<OIdentifiable> exportImportHashTable) {
+      mapConverter = new MapConverter(this);
+      listConverter = new ListConverter(this);
+      setConverter = new SetConverter(this);
+      ridBagConverter = new RidBagConverter(this);
+      linkConverter = new LinkConverter(exportImportHashTable);
+    }
 
     public ValuesConverter getConverter(Object value) {
       if (value instanceof Map)
-        return MapConverter.INSTANCE;
+        return mapConverter;
 
       if (value instanceof List)
-        return ListConverter.INSTANCE;
+        return listConverter;
 
       if (value instanceof Set)
-        return SetConverter.INSTANCE;
+        return setConverter;
 
       if (value instanceof ORidBag)
-        return RidBagConverter.INSTANCE;
+        return ridBagConverter;
 
       if (value instanceof OIdentifiable)
-        return LinkConverter.INSTANCE;
+        return linkConverter;
 
       return null;
     }
   }
 
   private static final class LinksRewriter implements ODocumentFieldVisitor {
+    private final ConvertersFactory convertersFactory;
+
+    public LinksRewriter(final ConvertersFactory convertersFactory) {
+      this.convertersFactory = convertersFactory;
+    }
+
     @Override
     public Object visitField(OType type, OType linkedType, Object value) {
       boolean oldAutoConvertValue = false;
@@ -147,7 +172,7 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
         multiValue.setAutoConvertToRecord(false);
       }
 
-      final ValuesConverter valuesConverter = ConvertersFactory.INSTANCE.getConverter(value);
+      final ValuesConverter valuesConverter = convertersFactory.getConverter(value);
       if (valuesConverter == null)
         return value;
 
@@ -179,6 +204,12 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   }
 
   private static abstract class AbstractCollectionConverter<T> implements ValuesConverter<T> {
+    protected final ConvertersFactory convertersFactory;
+
+    protected AbstractCollectionConverter(final ConvertersFactory convertersFactory) {
+      this.convertersFactory = convertersFactory;
+    }
+
     interface ResultCallback {
       void add(Object item);
     }
@@ -188,8 +219,7 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
         return false;
 
       if (item instanceof OIdentifiable) {
-        final ValuesConverter<OIdentifiable> converter = (ValuesConverter<OIdentifiable>) ConvertersFactory.INSTANCE
-            .getConverter(item);
+        final ValuesConverter<OIdentifiable> converter = (ValuesConverter<OIdentifiable>) convertersFactory.getConverter(item);
 
         final OIdentifiable newValue = converter.convert((OIdentifiable) item);
         result.add(newValue);
@@ -197,7 +227,7 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
         if (!newValue.equals(item))
           updated = true;
       } else {
-        final ValuesConverter valuesConverter = ConvertersFactory.INSTANCE.getConverter(item.getClass());
+        final ValuesConverter valuesConverter = convertersFactory.getConverter(item.getClass());
         if (valuesConverter == null)
           result.add(item);
         else {
@@ -214,7 +244,9 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   }
 
   private static final class SetConverter extends AbstractCollectionConverter<Set> {
-    public static final SetConverter INSTANCE = new SetConverter();
+    public SetConverter(final ConvertersFactory convertersFactory) {
+      super(convertersFactory);
+    }
 
     @Override
     public Set convert(Set value) {
@@ -247,7 +279,9 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   }
 
   private static final class ListConverter extends AbstractCollectionConverter<List> {
-    public static final ListConverter INSTANCE = new ListConverter();
+    public ListConverter(final ConvertersFactory convertersFactory) {
+      super(convertersFactory);
+    }
 
     @Override
     public List convert(List value) {
@@ -272,7 +306,9 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   }
 
   private static final class RidBagConverter extends AbstractCollectionConverter<ORidBag> {
-    public static final RidBagConverter INSTANCE = new RidBagConverter();
+    public RidBagConverter(final ConvertersFactory convertersFactory) {
+      super(convertersFactory);
+    }
 
     @Override
     public ORidBag convert(ORidBag value) {
@@ -296,7 +332,9 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   }
 
   private static final class MapConverter extends AbstractCollectionConverter<Map> {
-    public static final MapConverter INSTANCE = new MapConverter();
+    public MapConverter(final ConvertersFactory convertersFactory) {
+      super(convertersFactory);
+    }
 
     @Override
     public Map convert(Map value) {
@@ -328,9 +366,11 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   }
 
   private static final class LinkConverter implements ValuesConverter<OIdentifiable> {
-    public static final LinkConverter INSTANCE = new LinkConverter();
+    private final OIndex<OIdentifiable> exportImportHashTable;
 
-    private OIndex<OIdentifiable>     exportImportHashTable;
+    public LinkConverter(final OIndex<OIdentifiable> exportImportHashTable) {
+      this.exportImportHashTable = exportImportHashTable;
+    }
 
     @Override
     public OIdentifiable convert(OIdentifiable value) {
@@ -344,10 +384,6 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
 
       return newRid.getIdentity();
     }
-
-    public void setExportImportHashTable(OIndex<OIdentifiable> exportImportHashTable) {
-      this.exportImportHashTable = exportImportHashTable;
-    }
   }
 
   public ODatabaseImport(final ODatabaseDocument database, final String iFileName, final OCommandOutputListener iListener)
@@ -507,6 +543,18 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
     this.preserveClusterIDs = preserveClusterIDs;
   }
 
+  public int getWorkers() {
+    return workers;
+  }
+
+  /**
+   * Sets the number of threads that create the records and rewrite the links. Values greater than 1 are considered only against
+   * embedded storages.
+   */
+  public void setWorkers(final int workers) {
+    this.workers = workers;
+  }
+
   @Override
   protected void parseSetting(final String option, final List<String> items) {
     if (option.equalsIgnoreCase("-deleteRIDMapping"))
@@ -519,6 +567,8 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
       migrateLinks = Boolean.parseBoolean(items.get(0));
     else if (option.equalsIgnoreCase("-rebuildIndexes"))
       rebuildIndexes = Boolean.parseBoolean(items.get(0));
+    else if (option.equalsIgnoreCase("-workers"))
+      workers = Integer.parseInt(items.get(0));
     else
       super.parseSetting(option, items);
   }
@@ -1101,9 +1151,26 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
 
     jsonReader.readNext(OJSONReader.BEGIN_COLLECTION);
 
+    final long totalRecords;
+    if (workers > 1 && database.getStorage() instanceof OStorageEmbedded)
+      totalRecords = importRecordsInParallel();
+    else
+      totalRecords = importRecordsSequentially();
+
+    if (migrateLinks)
+      migrateLinksInImportedDocuments();
+
+    listener.onMessage("\n\nDone. Imported " + String.format("%,d", totalRecords) + " records\n");
+
+    jsonReader.readNext(OJSONReader.COMMA_SEPARATOR);
+
+    return total;
+  }
+
+  private long importRecordsSequentially() throws Exception {
     long totalRecords = 0;
 
-    System.out.print("\nImporting records...");
+    listener.onMessage("\nImporting records...");
 
     ORID rid;
     int lastClusterId = -1;
@@ -1117,34 +1184,94 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
         if (lastClusterId == -1) {
           lastClusterId = rid.getClusterId();
           // CHANGED CLUSTERID: DUMP STATISTICS
-          System.out.print("\n- Importing records into cluster '" + database.getClusterNameById(lastClusterId) + "' (id="
+          listener.onMessage("\n- Importing records into cluster '" + database.getClusterNameById(lastClusterId) + "' (id="
               + lastClusterId + ")");
 
         } else if (rid.getClusterId() != lastClusterId || jsonReader.lastChar() == ']') {
           // CHANGED CLUSTERID: DUMP STATISTICS
-          System.out.printf(" = %,d records", clusterRecords);
+          listener.onMessage(String.format(" = %,d records", clusterRecords));
           clusterRecords = 0;
 
           lastClusterId = rid.getClusterId();
-          System.out.print("\n- Importing records into cluster '" + database.getClusterNameById(lastClusterId) + "' (id="
+          listener.onMessage("\n- Importing records into cluster '" + database.getClusterNameById(lastClusterId) + "' (id="
               + lastClusterId + ")");
         } else if (clusterRecords % 10000 == 0)
           // DUMP PROGRESS
-          System.out.printf("\n  - %,d records imported...", clusterRecords);
+          listener.onMessage(String.format("\n  - %,d records imported...", clusterRecords));
 
         ++totalRecords;
       }
-      record = null;
     }
+    return totalRecords;
+  }
 
-    if (migrateLinks)
-      migrateLinksInImportedDocuments();
+  /**
+   * Reads the records in the current thread and creates them with a pool of workers, each one with its own database instance.
+   * Records of the same cluster are always created by the same worker, so their order is kept. WAL of the clusters is disabled
+   * until all the records are imported.
+   */
+  private long importRecordsInParallel() throws Exception {
+    listener.onMessage("\nImporting records with " + workers + " workers...");
 
-    listener.onMessage("\n\nDone. Imported " + String.format("%,d", totalRecords) + " records\n");
+    final List<OCluster> walDisabledClusters = disableClustersWAL();
+    final ODatabaseImportPipeline pipeline = new ODatabaseImportPipeline(this, database, listener, workers, rebuildIndexes);
+    try {
+      pipeline.start();
 
-    jsonReader.readNext(OJSONReader.COMMA_SEPARATOR);
+      String value;
+      while (jsonReader.lastChar() != ']') {
+        value = readRecord();
+        if (value != null)
+          pipeline.dispatch(value);
+      }
 
-    return total;
+      return pipeline.finish();
+
+    } catch (Exception e) {
+      pipeline.abort();
+      throw e;
+    } finally {
+      ODatabaseRecordThreadLocal.INSTANCE.set(database);
+
+      // PAGES WRITTEN WITHOUT WAL MUST BE ON DISK BEFORE TURNING IT ON AGAIN
+      database.getStorage().synch();
+      enableClustersWAL(walDisabledClusters);
+    }
+  }
+
+  private List<OCluster> disableClustersWAL() throws IOException {
+    final List<OCluster> clusters = new ArrayList<OCluster>();
+    if (!(database.getStorage() instanceof OLocalPaginatedStorage))
+      return clusters;
+
+    for (OCluster cluster : database.getStorage().getClusterInstances())
+      if (cluster.useWal() && !isInternalCluster(cluster.getName())) {
+        cluster.set(OCluster.ATTRIBUTES.USE_WAL, false);
+        clusters.add(cluster);
+      }
+    return clusters;
+  }
+
+  private void enableClustersWAL(final List<OCluster> iClusters) throws IOException {
+    for (OCluster cluster : iClusters)
+      cluster.set(OCluster.ATTRIBUTES.USE_WAL, true);
+  }
+
+  private boolean isInternalCluster(final String iClusterName) {
+    return OMetadataDefault.CLUSTER_INDEX_NAME.equals(iClusterName) || OMetadataDefault.CLUSTER_INTERNAL_NAME.equals(iClusterName)
+        || OMetadataDefault.CLUSTER_MANUAL_INDEX_NAME.equals(iClusterName);
+  }
+
+  private String readRecord() throws IOException, ParseException {
+    String value = jsonReader.readString(OJSONReader.END_OBJECT, true);
+
+    // JUMP EMPTY RECORDS
+    while (!value.isEmpty() && value.charAt(0) != '{') {
+      value = value.substring(1);
+    }
+
+    jsonReader.readNext(OJSONReader.NEXT_IN_ARRAY);
+    return value.isEmpty() ? null : value;
   }
 
   private ORID importRecord() throws Exception {
@@ -1155,9 +1282,27 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
       value = value.substring(1);
     }
 
-    record = null;
     try {
-      record = ORecordSerializerJSON.INSTANCE.fromString(value, record, null);
+      return importRecord(database, exportImportHashTable, value);
+    } catch (Exception t) {
+      System.err.println("Error importing record. Source line " + jsonReader.getLineNumber() + ", column "
+          + jsonReader.getColumnNumber());
+
+      throw t;
+    } finally {
+      jsonReader.readNext(OJSONReader.NEXT_IN_ARRAY);
+    }
+  }
+
+  /**
+   * Creates a record from its JSON in the database of the current thread and maps its old RID to the new one.
+   * 
+   * @return the RID of the created record or null if it has been skipped
+   */
+  ORID importRecord(final ODatabaseRecord iDatabase, final OIndex<OIdentifiable> iRIDMap, final String iValue) throws Exception {
+    ORecordInternal<?> record = null;
+    try {
+      record = ORecordSerializerJSON.INSTANCE.fromString(iValue, record, null);
 
       if (schemaImported && record.getIdentity().equals(schemaRecordId)) {
         // JUMP THE SCHEMA
@@ -1166,12 +1311,10 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
 
       // CHECK IF THE CLUSTER IS INCLUDED
       if (includeClusters != null) {
-        if (!includeClusters.contains(database.getClusterNameById(record.getIdentity().getClusterId()))) {
-          jsonReader.readNext(OJSONReader.NEXT_IN_ARRAY);
+        if (!includeClusters.contains(iDatabase.getClusterNameById(record.getIdentity().getClusterId())))
           return null;
-        }
       } else if (excludeClusters != null) {
-        if (excludeClusters.contains(database.getClusterNameById(record.getIdentity().getClusterId())))
+        if (excludeClusters.contains(iDatabase.getClusterNameById(record.getIdentity().getClusterId())))
           return null;
       }
 
@@ -1180,17 +1323,17 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
         return null;
 
       if (exporterVersion >= 3) {
-        int oridsId = database.getClusterIdByName(OMVRBTreeRIDProvider.PERSISTENT_CLASS_NAME);
-        int indexId = database.getClusterIdByName(OMetadataDefault.CLUSTER_INDEX_NAME);
+        int oridsId = iDatabase.getClusterIdByName(OMVRBTreeRIDProvider.PERSISTENT_CLASS_NAME);
+        int indexId = iDatabase.getClusterIdByName(OMetadataDefault.CLUSTER_INDEX_NAME);
 
         if (record.getIdentity().getClusterId() == indexId || record.getIdentity().getClusterId() == oridsId)
           // JUMP INDEX RECORDS
           return null;
       }
 
-      final int manualIndexCluster = database.getClusterIdByName(OMetadataDefault.CLUSTER_MANUAL_INDEX_NAME);
-      final int internalCluster = database.getClusterIdByName(OMetadataDefault.CLUSTER_INTERNAL_NAME);
-      final int indexCluster = database.getClusterIdByName(OMetadataDefault.CLUSTER_INDEX_NAME);
+      final int manualIndexCluster = iDatabase.getClusterIdByName(OMetadataDefault.CLUSTER_MANUAL_INDEX_NAME);
+      final int internalCluster = iDatabase.getClusterIdByName(OMetadataDefault.CLUSTER_INTERNAL_NAME);
+      final int indexCluster = iDatabase.getClusterIdByName(OMetadataDefault.CLUSTER_INDEX_NAME);
 
       if (exporterVersion >= 4) {
         if (record.getIdentity().getClusterId() == manualIndexCluster)
@@ -1213,28 +1356,18 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
         if (!preserveRids && record instanceof ODocument && ((ODocument) record).getSchemaClass() != null)
           record.save();
         else
-          record.save(database.getClusterNameById(clusterId));
+          record.save(iDatabase.getClusterNameById(clusterId));
 
         if (!rid.equals(record.getIdentity()))
           // SAVE IT ONLY IF DIFFERENT
-          exportImportHashTable.put(rid, record.getIdentity());
-
-        if (record.getIdentity().equals(new ORecordId(37, new OClusterPositionLong(8)))) {
-          record = ORecordSerializerJSON.INSTANCE.fromString(value, record, null);
-        }
+          iRIDMap.put(rid, record.getIdentity());
       }
 
     } catch (Exception t) {
       if (record != null)
-        System.err.println("Error importing record " + record.getIdentity() + ". Source line " + jsonReader.getLineNumber()
-            + ", column " + jsonReader.getColumnNumber());
-      else
-        System.err.println("Error importing record. Source line " + jsonReader.getLineNumber() + ", column "
-            + jsonReader.getColumnNumber());
+        System.err.println("Error importing record " + record.getIdentity());
 
       throw t;
-    } finally {
-      jsonReader.readNext(OJSONReader.NEXT_IN_ARRAY);
     }
 
     return record.getIdentity();
@@ -1362,53 +1495,77 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
     return indexDefinition;
   }
 
-  private void migrateLinksInImportedDocuments() throws IOException {
+  private void migrateLinksInImportedDocuments() throws IOException, InterruptedException {
     listener.onMessage("\nStarted migration of links (-migrateLinks=true). Links are going to be updated according to new RIDs:");
 
-    long totalDocuments = 0;
-    Collection<String> clusterNames = database.getClusterNames();
-    for (String clusterName : clusterNames) {
-      if (OMetadataDefault.CLUSTER_INDEX_NAME.equals(clusterName) || OMetadataDefault.CLUSTER_INTERNAL_NAME.equals(clusterName)
-          || OMetadataDefault.CLUSTER_MANUAL_INDEX_NAME.equals(clusterName))
-        continue;
-
-      long documents = 0;
+    final List<String> clusterNames = new ArrayList<String>();
+    for (String clusterName : database.getClusterNames())
+      if (!isInternalCluster(clusterName))
+        clusterNames.add(clusterName);
 
-      listener.onMessage("\n- Cluster " + clusterName + "...");
-
-      final int clusterId = database.getClusterIdByName(clusterName);
-      final long clusterRecords = database.countClusterElements(clusterId);
-      OStorage storage = database.getStorage();
-
-      OPhysicalPosition[] positions = storage.ceilingPhysicalPositions(clusterId, new OPhysicalPosition(
-          OClusterPositionFactory.INSTANCE.valueOf(0)));
-      while (positions.length > 0) {
-        for (OPhysicalPosition position : positions) {
-          ORecord<?> record = database.load(new ORecordId(clusterId, position.clusterPosition));
-          if (record instanceof ODocument) {
-            ODocument document = (ODocument) record;
-            rewriteLinksInDocument(document);
+    long totalDocuments = 0;
+    if (workers > 1 && database.getStorage() instanceof OStorageEmbedded) {
+      final ODatabaseImportPipeline pipeline = new ODatabaseImportPipeline(this, database, listener, workers, rebuildIndexes);
+      try {
+        totalDocuments = pipeline.migrateLinks(clusterNames);
+      } finally {
+        ODatabaseRecordThreadLocal.INSTANCE.set(database);
+      }
+    } else
+      for (String clusterName : clusterNames) {
+        listener.onMessage("\n- Cluster " + clusterName + "...");
+        final long documents = migrateLinksInCluster(database, clusterName, listener);
+        listener.onMessage(" Processed: " + String.format("%,d", documents));
+        totalDocuments += documents;
+      }
 
-            documents++;
-            totalDocuments++;
+    listener.onMessage("\nTotal links updated: " + totalDocuments);
+  }
 
-            if (documents % 10000 == 0)
-              listener.onMessage("\n  - " + String.format("%,d", documents) + "/" + String.format("%,d", clusterRecords) + " "
-                  + String.format("%.2f", (float) ((float) documents * 100 / (float) clusterRecords)) + " documents processed...");
-          }
+  /**
+   * Rewrites the links of all the documents of a cluster using the database of the current thread and its instance of the RID
+   * mapping table.
+   * 
+   * @param iListener
+   *          receives the progress, can be null
+   * @return the number of processed documents
+   */
+  long migrateLinksInCluster(final ODatabaseRecord iDatabase, final String iClusterName, final OCommandOutputListener iListener)
+      throws IOException {
+    long documents = 0;
+
+    @SuppressWarnings("unchecked")
+    final OIndex<OIdentifiable> ridMap = (OIndex<OIdentifiable>) iDatabase.getMetadata().getIndexManager()
+        .getIndex(EXPORT_IMPORT_MAP_NAME);
+    final LinksRewriter rewriter = new LinksRewriter(new ConvertersFactory(ridMap));
+
+    final int clusterId = iDatabase.getClusterIdByName(iClusterName);
+    final long clusterRecords = iDatabase.countClusterElements(clusterId);
+    OStorage storage = iDatabase.getStorage();
+
+    OPhysicalPosition[] positions = storage.ceilingPhysicalPositions(clusterId,
+        new OPhysicalPosition(OClusterPositionFactory.INSTANCE.valueOf(0)));
+    while (positions.length > 0) {
+      for (OPhysicalPosition position : positions) {
+        ORecord<?> record = iDatabase.load(new ORecordId(clusterId, position.clusterPosition));
+        if (record instanceof ODocument) {
+          ODocument document = (ODocument) record;
+          rewriteLinksInDocument(document, rewriter);
+
+          documents++;
+
+          if (iListener != null && documents % 10000 == 0)
+            iListener.onMessage("\n  - " + String.format("%,d", documents) + "/" + String.format("%,d", clusterRecords) + " "
+                + String.format("%.2f", (float) ((float) documents * 100 / (float) clusterRecords)) + " documents processed...");
         }
-
-        positions = storage.higherPhysicalPositions(clusterId, positions[positions.length - 1]);
       }
-      listener.onMessage(" Processed: " + String.format("%,d", documents));
-    }
 
-    listener.onMessage("\nTotal links updated: " + totalDocuments);
+      positions = storage.higherPhysicalPositions(clusterId, positions[positions.length - 1]);
+    }
+    return documents;
   }
 
-  private void rewriteLinksInDocument(ODocument document) {
-    LinkConverter.INSTANCE.setExportImportHashTable(exportImportHashTable);
-    final LinksRewriter rewriter = new LinksRewriter();
+  private void rewriteLinksInDocument(ODocument document, LinksRewriter rewriter) {
     final ODocumentFieldWalker documentFieldWalker = new ODocumentFieldWalker();
     documentFieldWalker.walkDocument(document, rewriter);
     document.save();
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.db.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabase.STATUS;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.ODatabaseException;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.index.OClassIndexManager;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+
+/**
+ * Parallel stages of {@link ODatabaseImport}. The thread that reads the export dispatches the records in batches to a fixed set
+ * of workers by the id of their original cluster, so all the records of a cluster are created by the same worker in the original
+ * order. Every worker uses its own database instance on the same storage, this is why the pipeline works only against embedded
+ * storages. Links are rewritten in parallel too, one cluster at a time per worker.
+ */
+class ODatabaseImportPipeline {
+  private static final int           BATCH_SIZE        = 1000;
+  private static final int           QUEUE_CAPACITY    = 4;
+  private static final long          REPORT_INTERVAL   = 10000;
+  private static final String        RID_FIELD         = "\"@rid\":\"#";
+  private static final List<String>  END               = new ArrayList<String>(0);
+
+  private final ODatabaseImport      importer;
+  private final ODatabaseRecord      database;
+  private final OCommandOutputListener listener;
+  private final int                  workers;
+  private final boolean              skipIndexes;
+
+  private final AtomicLong           processed         = new AtomicLong();
+  private volatile Throwable         failure;
+
+  private RecordWorker[]             recordWorkers;
+  private List<List<String>>         batches;
+  private long                       dispatched;
+  private long                       startTime;
+  private long                       lastReport;
+
+  /**
+   * @param iSkipIndexes
+   *          true if all the automatic indexes are rebuilt at the end of the import, so workers don't update them while creating
+   *          records
+   */
+  public ODatabaseImportPipeline(final ODatabaseImport iImporter, final ODatabaseRecord iDatabase,
+      final OCommandOutputListener iListener, final int iWorkers, final boolean iSkipIndexes) {
+    importer = iImporter;
+    database = iDatabase;
+    listener = iListener;
+    workers = iWorkers;
+    skipIndexes = iSkipIndexes;
+  }
+
+  public void start() {
+    recordWorkers = new RecordWorker[workers];
+    batches = new ArrayList<List<String>>(workers);
+    for (int i = 0; i < workers; ++i) {
+      recordWorkers[i] = new RecordWorker(i);
+      batches.add(new ArrayList<String>(BATCH_SIZE));
+    }
+
+    startTime = lastReport = System.currentTimeMillis();
+    for (RecordWorker w : recordWorkers)
+      w.start();
+  }
+
+  /**
+   * Queues the JSON of a record to the worker of its cluster. Blocks while the worker is busy with previous batches.
+   */
+  public void dispatch(final String iValue) throws InterruptedException {
+    final int worker = Math.max(getClusterId(iValue), 0) % workers;
+
+    final List<String> batch = batches.get(worker);
+    batch.add(iValue);
+    if (batch.size() >= BATCH_SIZE) {
+      enqueue(worker, batch);
+      batches.set(worker, new ArrayList<String>(BATCH_SIZE));
+    }
+
+    dispatched++;
+    final long now = System.currentTimeMillis();
+    if (now - lastReport > REPORT_INTERVAL) {
+      lastReport = now;
+      reportProgress("\n- %,d records read, %,d imported (%,d records/sec)...", dispatched);
+    }
+  }
+
+  /**
+   * Sends the last batches and waits for all the workers to complete.
+   * 
+   * @return the number of imported records
+   */
+  public long finish() throws InterruptedException {
+    for (int i = 0; i < workers; ++i) {
+      if (!batches.get(i).isEmpty())
+        enqueue(i, batches.get(i));
+      enqueue(i, END);
+    }
+
+    for (RecordWorker w : recordWorkers)
+      w.join();
+
+    checkFailure();
+
+    reportProgress("\n- %,d records read, %,d imported (%,d records/sec)", dispatched);
+    return processed.get();
+  }
+
+  public void abort() {
+    if (recordWorkers == null)
+      return;
+
+    for (RecordWorker w : recordWorkers)
+      w.interrupt();
+
+    for (RecordWorker w : recordWorkers)
+      try {
+        w.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+  }
+
+  /**
+   * Rewrites the links of the documents of passed clusters. Every worker takes the next cluster to process as soon as it completed
+   * the previous one.
+   * 
+   * @return the number of processed documents
+   */
+  public long migrateLinks(final List<String> iClusterNames) throws InterruptedException {
+    final ConcurrentLinkedQueue<String> clusters = new ConcurrentLinkedQueue<String>(iClusterNames);
+
+    startTime = System.currentTimeMillis();
+    final Thread[] threads = new Thread[Math.min(workers, Math.max(iClusterNames.size(), 1))];
+    for (int i = 0; i < threads.length; ++i) {
+      threads[i] = new Thread(new Runnable() {
+        public void run() {
+          ODatabaseDocumentTx db = null;
+          try {
+            db = openDatabase();
+
+            String clusterName;
+            while (failure == null && (clusterName = clusters.poll()) != null) {
+              final long documents = importer.migrateLinksInCluster(db, clusterName, null);
+              processed.addAndGet(documents);
+
+              synchronized (listener) {
+                listener.onMessage(String.format("\n- Cluster %s: processed %,d", clusterName, documents));
+              }
+            }
+          } catch (Throwable t) {
+            failure = t;
+          } finally {
+            closeDatabase(db);
+          }
+        }
+      }, "OrientDB Import Links #" + i);
+      threads[i].start();
+    }
+
+    for (Thread t : threads)
+      t.join();
+
+    checkFailure();
+    return processed.get();
+  }
+
+  private void enqueue(final int iWorker, final List<String> iBatch) throws InterruptedException {
+    while (!recordWorkers[iWorker].queue.offer(iBatch, 100, TimeUnit.MILLISECONDS))
+      checkFailure();
+    checkFailure();
+  }
+
+  private void checkFailure() {
+    final Throwable t = failure;
+    if (t != null) {
+      if (t instanceof RuntimeException)
+        throw (RuntimeException) t;
+      throw new ODatabaseException("Error on importing records", t);
+    }
+  }
+
+  private void reportProgress(final String iFormat, final long iRead) {
+    final long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+    final long imported = processed.get();
+    synchronized (listener) {
+      listener.onMessage(String.format(iFormat, iRead, imported, imported * 1000 / elapsed));
+    }
+  }
+
+  private ODatabaseDocumentTx openDatabase() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(database.getURL());
+    db.setProperty(ODatabase.OPTIONS.SECURITY.toString(), Boolean.FALSE);
+    db.open("admin", "nopass");
+
+    db.declareIntent(new OIntentMassiveInsert());
+    db.getLevel1Cache().setEnable(false);
+    db.getLevel2Cache().setEnable(false);
+    db.setMVCC(false);
+    db.setValidationEnabled(false);
+    db.setStatus(STATUS.IMPORTING);
+
+    if (skipIndexes)
+      for (Map.Entry<ORecordHook, ORecordHook.HOOK_POSITION> hook : new ArrayList<Map.Entry<ORecordHook, ORecordHook.HOOK_POSITION>>(
+          db.getHooks().entrySet()))
+        if (hook.getKey() instanceof OClassIndexManager)
+          db.unregisterHook(hook.getKey());
+
+    return db;
+  }
+
+  private void closeDatabase(final ODatabaseDocumentTx iDatabase) {
+    if (iDatabase == null || iDatabase.isClosed())
+      return;
+
+    iDatabase.setStatus(STATUS.OPEN);
+    iDatabase.declareIntent(null);
+    iDatabase.close();
+  }
+
+  private static int getClusterId(final String iValue) {
+    final int begin = iValue.indexOf(RID_FIELD);
+    if (begin == -1)
+      return -1;
+
+    final int start = begin + RID_FIELD.length();
+    final int end = iValue.indexOf(':', start);
+    if (end == -1)
+      return -1;
+
+    try {
+      return Integer.parseInt(iValue.substring(start, end));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private class RecordWorker extends Thread {
+    private final BlockingQueue<List<String>> queue = new ArrayBlockingQueue<List<String>>(QUEUE_CAPACITY);
+
+    public RecordWorker(final int iId) {
+      super("OrientDB Import Worker #" + iId);
+    }
+
+    @Override
+    public void run() {
+      ODatabaseDocumentTx db = null;
+      try {
+        // A FAILURE ON OPENING IS RECORDED TOO, OR THE READER WOULD WAIT FOREVER FOR THIS WORKER
+        db = openDatabase();
+
+        @SuppressWarnings("unchecked")
+        final OIndex<OIdentifiable> ridMap = (OIndex<OIdentifiable>) db.getMetadata().getIndexManager()
+            .getIndex(ODatabaseImport.EXPORT_IMPORT_MAP_NAME);
+
+        while (true) {
+          final List<String> batch = queue.take();
+          if (batch == END)
+            break;
+
+          long imported = 0;
+          for (String value : batch)
+            if (importer.importRecord(db, ridMap, value) != null)
+              imported++;
+
+          processed.addAndGet(imported);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Throwable t) {
+        failure = t;
+      } finally {
+        closeDatabase(db);
+      }
+    }
+  }
+}
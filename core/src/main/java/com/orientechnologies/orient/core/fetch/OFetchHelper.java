@@ -22,6 +22,7 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
 import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORIDIntHashMap;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
@@ -46,6 +47,7 @@ import java.util.Map;
 public class OFetchHelper {
   public static final String   ROOT_FETCH = "*";
   private static final boolean debug      = false;
+  private static final int     NOT_PARSED = -1;
 
   public static Map<String, Integer> buildFetchPlan(final String iFetchPlan) {
     final Map<String, Integer> fetchPlan = new HashMap<String, Integer>();
@@ -74,7 +76,7 @@ public class OFetchHelper {
       if (iRootRecord instanceof ODocument) {
         // SCHEMA AWARE
         final ODocument record = (ODocument) iRootRecord;
-        final Map<ORID, Integer> parsedRecords = new HashMap<ORID, Integer>();
+        final ORIDIntHashMap parsedRecords = new ORIDIntHashMap(NOT_PARSED);
 
         final boolean isEmbedded = record.isEmbedded() || !record.getIdentity().isPersistent();
         if (!isEmbedded)
@@ -161,6 +163,13 @@ public class OFetchHelper {
   public static void processRecordRidMap(final ORecordSchemaAware<?> record, Map<String, Integer> iFetchPlan,
       final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
       final String iFieldPathFromRoot, final OFetchContext iContext) throws IOException {
+    processRecordRidMap(record, iFetchPlan, iCurrentLevel, iLevelFromRoot, iFieldDepthLevel, new ORIDIntHashMap(parsedRecords,
+        NOT_PARSED), iFieldPathFromRoot, iContext);
+  }
+
+  public static void processRecordRidMap(final ORecordSchemaAware<?> record, Map<String, Integer> iFetchPlan,
+      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
+      final String iFieldPathFromRoot, final OFetchContext iContext) throws IOException {
     if (iFetchPlan == null)
       return;
 
@@ -208,7 +217,7 @@ public class OFetchHelper {
 
   private static void fetchRidMap(final ORecordSchemaAware<?> iRootRecord, final Map<String, Integer> iFetchPlan,
       final Object fieldValue, final String fieldName, final int iCurrentLevel, final int iLevelFromRoot,
-      final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords, final String iFieldPathFromRoot,
+      final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords, final String iFieldPathFromRoot,
       final OFetchContext iContext) throws IOException {
     if (fieldValue == null) {
       return;
@@ -228,7 +237,7 @@ public class OFetchHelper {
   }
 
   private static void fetchDocumentRidMap(Map<String, Integer> iFetchPlan, Object fieldValue, String fieldName,
-      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchContext iContext) throws IOException {
     updateRidMap(iFetchPlan, (ODocument) fieldValue, iCurrentLevel, iLevelFromRoot, iFieldDepthLevel, parsedRecords,
         iFieldPathFromRoot, iContext);
@@ -236,7 +245,7 @@ public class OFetchHelper {
 
   @SuppressWarnings("unchecked")
   private static void fetchCollectionRidMap(final Map<String, Integer> iFetchPlan, final Object fieldValue, final String fieldName,
-      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchContext iContext) throws IOException {
     final Iterable<OIdentifiable> linked = (Iterable<OIdentifiable>) fieldValue;
     for (OIdentifiable d : linked) {
@@ -249,7 +258,7 @@ public class OFetchHelper {
   }
 
   private static void fetchArrayRidMap(final Map<String, Integer> iFetchPlan, final Object fieldValue, final String fieldName,
-      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchContext iContext) throws IOException {
     if (fieldValue instanceof ODocument[]) {
       final ODocument[] linked = (ODocument[]) fieldValue;
@@ -262,7 +271,7 @@ public class OFetchHelper {
 
   @SuppressWarnings("unchecked")
   private static void fetchMapRidMap(Map<String, Integer> iFetchPlan, Object fieldValue, String fieldName, final int iCurrentLevel,
-      final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchContext iContext) throws IOException {
     final Map<String, ODocument> linked = (Map<String, ODocument>) fieldValue;
     for (ODocument d : (linked).values())
@@ -272,9 +281,9 @@ public class OFetchHelper {
   }
 
   private static void updateRidMap(final Map<String, Integer> iFetchPlan, final ODocument fieldValue, final int iCurrentLevel,
-      final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchContext iContext) throws IOException {
-    final Integer fetchedLevel = parsedRecords.get(fieldValue.getIdentity());
+    final int fetchedLevel = parsedRecords.get(fieldValue.getIdentity());
     int currentLevel = iCurrentLevel + 1;
     int fieldDepthLevel = iFieldDepthLevel;
     if (iFetchPlan.containsKey(iFieldPathFromRoot)) {
@@ -284,7 +293,7 @@ public class OFetchHelper {
 
     final boolean isEmbedded = isEmbedded(fieldValue);
 
-    if (isEmbedded || fetchedLevel == null) {
+    if (isEmbedded || fetchedLevel == NOT_PARSED) {
       if (!isEmbedded)
         parsedRecords.put(fieldValue.getIdentity(), iLevelFromRoot);
 
@@ -294,7 +303,7 @@ public class OFetchHelper {
   }
 
   private static void processRecord(final ODocument record, final Object iUserObject, final Map<String, Integer> iFetchPlan,
-      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iCurrentLevel, final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchListener iListener, final OFetchContext iContext, final String iFormat)
       throws IOException {
 
@@ -391,7 +400,7 @@ public class OFetchHelper {
 
   private static void fetch(final ORecordSchemaAware<?> iRootRecord, final Object iUserObject,
       final Map<String, Integer> iFetchPlan, final Object fieldValue, final String fieldName, final int iCurrentLevel,
-      final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords, final int depthLevel,
+      final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords, final int depthLevel,
       final String iFieldPathFromRoot, final OFetchListener iListener, final OFetchContext iContext) throws IOException {
 
     int currentLevel = iCurrentLevel + 1;
@@ -426,7 +435,7 @@ public class OFetchHelper {
   @SuppressWarnings("unchecked")
   private static void fetchMap(final ORecordSchemaAware<?> iRootRecord, final Object iUserObject,
       final Map<String, Integer> iFetchPlan, Object fieldValue, String fieldName, final int iCurrentLevel,
-      final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchListener iListener, final OFetchContext iContext) throws IOException {
     final Map<String, ODocument> linked = (Map<String, ODocument>) fieldValue;
     iContext.onBeforeMap(iRootRecord, fieldName, iUserObject);
@@ -440,8 +449,8 @@ public class OFetchHelper {
           if (r instanceof ODocument) {
             // GO RECURSIVELY
             final ODocument d = (ODocument) r;
-            final Integer fieldDepthLevel = parsedRecords.get(d.getIdentity());
-            if (!d.getIdentity().isValid() || (fieldDepthLevel != null && fieldDepthLevel.intValue() == iLevelFromRoot)) {
+            final int fieldDepthLevel = parsedRecords.get(d.getIdentity());
+            if (!d.getIdentity().isValid() || (fieldDepthLevel != NOT_PARSED && fieldDepthLevel == iLevelFromRoot)) {
               removeParsedFromMap(parsedRecords, d);
               iContext.onBeforeDocument(iRootRecord, d, key.toString(), iUserObject);
               final Object userObject = iListener.fetchLinkedMapEntry(iRootRecord, iUserObject, fieldName, key.toString(), d,
@@ -470,15 +479,15 @@ public class OFetchHelper {
 
   private static void fetchArray(final ORecordSchemaAware<?> iRootRecord, final Object iUserObject,
       final Map<String, Integer> iFetchPlan, Object fieldValue, String fieldName, final int iCurrentLevel,
-      final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchListener iListener, final OFetchContext iContext) throws IOException {
     if (fieldValue instanceof ODocument[]) {
       final ODocument[] linked = (ODocument[]) fieldValue;
       iContext.onBeforeArray(iRootRecord, fieldName, iUserObject, linked);
       for (ODocument d : linked) {
         // GO RECURSIVELY
-        final Integer fieldDepthLevel = parsedRecords.get(d.getIdentity());
-        if (!d.getIdentity().isValid() || (fieldDepthLevel != null && fieldDepthLevel.intValue() == iLevelFromRoot)) {
+        final int fieldDepthLevel = parsedRecords.get(d.getIdentity());
+        if (!d.getIdentity().isValid() || (fieldDepthLevel != NOT_PARSED && fieldDepthLevel == iLevelFromRoot)) {
           removeParsedFromMap(parsedRecords, d);
           iContext.onBeforeDocument(iRootRecord, d, fieldName, iUserObject);
           final Object userObject = iListener.fetchLinked(iRootRecord, iUserObject, fieldName, d, iContext);
@@ -498,7 +507,7 @@ public class OFetchHelper {
   @SuppressWarnings("unchecked")
   private static void fetchCollection(final ORecordSchemaAware<?> iRootRecord, final Object iUserObject,
       final Map<String, Integer> iFetchPlan, final Object fieldValue, final String fieldName, final int iCurrentLevel,
-      final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchListener iListener, final OFetchContext iContext) throws IOException {
     final Iterable<?> linked;
     if (fieldValue instanceof ODocument)
@@ -528,8 +537,8 @@ public class OFetchHelper {
           OIdentifiable d = (OIdentifiable) o;
 
           // GO RECURSIVELY
-          final Integer fieldDepthLevel = parsedRecords.get(d.getIdentity());
-          if (!d.getIdentity().isPersistent() || (fieldDepthLevel != null && fieldDepthLevel.intValue() == iLevelFromRoot)) {
+          final int fieldDepthLevel = parsedRecords.get(d.getIdentity());
+          if (!d.getIdentity().isPersistent() || (fieldDepthLevel != NOT_PARSED && fieldDepthLevel == iLevelFromRoot)) {
             removeParsedFromMap(parsedRecords, d);
             d = d.getRecord();
 
@@ -566,10 +575,10 @@ public class OFetchHelper {
 
   private static void fetchDocument(final ORecordSchemaAware<?> iRootRecord, final Object iUserObject,
       final Map<String, Integer> iFetchPlan, final OIdentifiable fieldValue, final String fieldName, final int iCurrentLevel,
-      final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
+      final int iLevelFromRoot, final int iFieldDepthLevel, final ORIDIntHashMap parsedRecords,
       final String iFieldPathFromRoot, final OFetchListener iListener, final OFetchContext iContext) throws IOException {
-    final Integer fieldDepthLevel = parsedRecords.get(fieldValue.getIdentity());
-    if (!fieldValue.getIdentity().isValid() || (fieldDepthLevel != null && fieldDepthLevel.intValue() == iLevelFromRoot)) {
+    final int fieldDepthLevel = parsedRecords.get(fieldValue.getIdentity());
+    if (!fieldValue.getIdentity().isValid() || (fieldDepthLevel != NOT_PARSED && fieldDepthLevel == iLevelFromRoot)) {
       removeParsedFromMap(parsedRecords, fieldValue);
       final ODocument linked = (ODocument) fieldValue.getRecord();
       iContext.onBeforeDocument(iRootRecord, linked, fieldName, iUserObject);
@@ -582,7 +591,7 @@ public class OFetchHelper {
     }
   }
 
-  protected static void removeParsedFromMap(final Map<ORID, Integer> parsedRecords, OIdentifiable d) {
+  protected static void removeParsedFromMap(final ORIDIntHashMap parsedRecords, OIdentifiable d) {
     parsedRecords.remove(d.getIdentity());
   }
 }
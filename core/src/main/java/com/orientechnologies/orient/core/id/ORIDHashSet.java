@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.id;
+
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OIntLongHashSet;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+/**
+ * Set of RIDs that keeps cluster ids and cluster positions in an {@link OIntLongHashSet}, so no RID instance is retained by the
+ * set. Iterated RIDs are new instances. When node ids are used as cluster positions the RIDs are kept in a {@link HashSet}.
+ * Elements cannot be removed through the iterator.
+ */
+public class ORIDHashSet extends AbstractSet<ORID> {
+  private final OIntLongHashSet positions;
+  private final Set<ORID>       identities;
+
+  public ORIDHashSet() {
+    this(16);
+  }
+
+  public ORIDHashSet(final int iExpectedSize) {
+    if (OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.getValueAsBoolean()) {
+      positions = null;
+      identities = new HashSet<ORID>(iExpectedSize);
+    } else {
+      positions = new OIntLongHashSet(iExpectedSize);
+      identities = null;
+    }
+  }
+
+  @Override
+  public int size() {
+    return positions != null ? positions.size() : identities.size();
+  }
+
+  @Override
+  public boolean contains(final Object iObject) {
+    if (!(iObject instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) iObject).getIdentity();
+    if (positions != null)
+      return positions.contains(rid.getClusterId(), rid.getClusterPosition().longValue());
+    return identities.contains(rid);
+  }
+
+  @Override
+  public boolean add(final ORID iRid) {
+    if (positions != null)
+      return positions.add(iRid.getClusterId(), iRid.getClusterPosition().longValue());
+    return identities.add(iRid);
+  }
+
+  @Override
+  public boolean remove(final Object iObject) {
+    if (!(iObject instanceof OIdentifiable))
+      return false;
+
+    final ORID rid = ((OIdentifiable) iObject).getIdentity();
+    if (positions != null)
+      return positions.remove(rid.getClusterId(), rid.getClusterPosition().longValue());
+    return identities.remove(rid);
+  }
+
+  @Override
+  public void clear() {
+    if (positions != null)
+      positions.clear();
+    else
+      identities.clear();
+  }
+
+  @Override
+  public Iterator<ORID> iterator() {
+    if (positions == null)
+      return identities.iterator();
+
+    return new Iterator<ORID>() {
+      private int slot = positions.nextSlot(0);
+
+      public boolean hasNext() {
+        return slot >= 0;
+      }
+
+      public ORID next() {
+        if (slot < 0)
+          throw new NoSuchElementException();
+
+        final ORID rid = new ORecordId(positions.getIntKey(slot), OClusterPositionFactory.INSTANCE.valueOf(positions
+            .getLongKey(slot)));
+        slot = positions.nextSlot(slot + 1);
+        return rid;
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.id;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.orientechnologies.common.collection.OIntLongIntHashMap;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * Map from RIDs to int values that keeps cluster ids, cluster positions and values in an {@link OIntLongIntHashMap}, so neither
+ * entries nor boxed values are allocated. When node ids are used as cluster positions the entries are kept in a {@link HashMap}.
+ * Missing RIDs are reported by the value passed to the constructor.
+ */
+public class ORIDIntHashMap {
+  private final int                noEntryValue;
+  private final OIntLongIntHashMap positions;
+  private final Map<ORID, Integer> identities;
+
+  public ORIDIntHashMap(final int iNoEntryValue) {
+    this(16, iNoEntryValue);
+  }
+
+  public ORIDIntHashMap(final int iExpectedSize, final int iNoEntryValue) {
+    noEntryValue = iNoEntryValue;
+    if (OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.getValueAsBoolean()) {
+      positions = null;
+      identities = new HashMap<ORID, Integer>(iExpectedSize);
+    } else {
+      positions = new OIntLongIntHashMap(iExpectedSize, iNoEntryValue);
+      identities = null;
+    }
+  }
+
+  /**
+   * Wraps the passed map: changes are made directly on it.
+   */
+  public ORIDIntHashMap(final Map<ORID, Integer> iMap, final int iNoEntryValue) {
+    noEntryValue = iNoEntryValue;
+    positions = null;
+    identities = iMap;
+  }
+
+  public int getNoEntryValue() {
+    return noEntryValue;
+  }
+
+  public int size() {
+    return positions != null ? positions.size() : identities.size();
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public boolean containsKey(final ORID iRid) {
+    if (positions != null)
+      return positions.containsKey(iRid.getClusterId(), iRid.getClusterPosition().longValue());
+    return identities.containsKey(iRid);
+  }
+
+  /**
+   * Returns the value of the RID or the no entry value if the RID is not contained.
+   */
+  public int get(final ORID iRid) {
+    if (positions != null)
+      return positions.get(iRid.getClusterId(), iRid.getClusterPosition().longValue());
+
+    final Integer value = identities.get(iRid);
+    return value != null ? value : noEntryValue;
+  }
+
+  /**
+   * Associates the value to the RID.
+   *
+   * @return the previous value of the RID or the no entry value if the RID was not contained
+   */
+  public int put(final ORID iRid, final int iValue) {
+    if (positions != null)
+      return positions.put(iRid.getClusterId(), iRid.getClusterPosition().longValue(), iValue);
+
+    final Integer previous = identities.put(iRid, iValue);
+    return previous != null ? previous : noEntryValue;
+  }
+
+  /**
+   * Removes the RID.
+   *
+   * @return the value of the RID or the no entry value if the RID was not contained
+   */
+  public int remove(final ORID iRid) {
+    if (positions != null)
+      return positions.removeKey(iRid.getClusterId(), iRid.getClusterPosition().longValue());
+
+    final Integer previous = identities.remove(iRid);
+    return previous != null ? previous : noEntryValue;
+  }
+
+  public void clear() {
+    if (positions != null)
+      positions.clear();
+    else
+      identities.clear();
+  }
+
+  @Override
+  public String toString() {
+    return positions != null ? positions.toString() : identities.toString();
+  }
+}
@@ -49,6 +49,7 @@ public class ODefaultIndexFactory implements OIndexFactory {
   public static final String       MVRBTREE_VALUE_CONTAINER     = "MVRBTREESET";
   public static final String       SBTREEBONSAI_VALUE_CONTAINER = "SBTREEBONSAISET";
   public static final String       NONE_VALUE_CONTAINER         = "NONE";
+  public static final String       POSTING_LIST_VALUE_CONTAINER = "POSTINGLIST";
 
   private static final Set<String> TYPES;
   private static final Set<String> ALGORITHMS;
@@ -101,7 +102,10 @@ public class ODefaultIndexFactory implements OIndexFactory {
   public OIndexInternal<?> createIndex(ODatabaseRecord database, String indexType, String algorithm,
       String valueContainerAlgorithm, ODocument metadata) throws OConfigurationException {
     if (valueContainerAlgorithm == null) {
-      if (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(indexType)
+      if (OClass.INDEX_TYPE.FULLTEXT.toString().equals(indexType)
+          && OGlobalConfiguration.INDEX_FULLTEXT_USE_POSTING_LISTS_BY_DEFAULT.getValueAsBoolean())
+        valueContainerAlgorithm = POSTING_LIST_VALUE_CONTAINER;
+      else if (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(indexType)
           || OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString().equals(indexType)
           || OClass.INDEX_TYPE.FULLTEXT_HASH_INDEX.toString().equals(indexType)
           || OClass.INDEX_TYPE.FULLTEXT.toString().equals(indexType))
@@ -146,15 +150,21 @@ public class ODefaultIndexFactory implements OIndexFactory {
   }
 
   private OIndexInternal<?> createSBTreeIndex(String indexType, String valueContainerAlgorithm, ODocument metadata) {
+    final boolean keyCompression = metadata != null
+        && Boolean.TRUE.equals(metadata.field(OSBTreeIndexEngine.CONFIG_KEY_COMPRESSION));
+
     if (OClass.INDEX_TYPE.UNIQUE.toString().equals(indexType)) {
-      return new OIndexUnique(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<OIdentifiable>(), valueContainerAlgorithm);
+      return new OIndexUnique(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<OIdentifiable>(keyCompression),
+          valueContainerAlgorithm);
     } else if (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(indexType)) {
-      return new OIndexNotUnique(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<Set<OIdentifiable>>(), valueContainerAlgorithm);
+      return new OIndexNotUnique(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<Set<OIdentifiable>>(keyCompression),
+          valueContainerAlgorithm);
     } else if (OClass.INDEX_TYPE.FULLTEXT.toString().equals(indexType)) {
-      return new OIndexFullText(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<Set<OIdentifiable>>(), valueContainerAlgorithm,
-          metadata);
+      return new OIndexFullText(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<Set<OIdentifiable>>(keyCompression),
+          valueContainerAlgorithm, metadata);
     } else if (OClass.INDEX_TYPE.DICTIONARY.toString().equals(indexType)) {
-      return new OIndexDictionary(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<OIdentifiable>(), valueContainerAlgorithm);
+      return new OIndexDictionary(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<OIdentifiable>(keyCompression),
+          valueContainerAlgorithm);
     }
 
     throw new OConfigurationException("Unsupported type : " + indexType);
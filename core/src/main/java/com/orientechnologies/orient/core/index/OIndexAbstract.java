@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.concur.lock.OModificationLock;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
 import com.orientechnologies.common.listener.OProgressListener;
@@ -32,7 +33,9 @@ import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.engine.OMVRBTreeIndexEngine;
+import com.orientechnologies.orient.core.index.engine.OSBTreeIndexEngine;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTreeKeySorter;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
@@ -47,10 +50,13 @@ import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -346,6 +352,10 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
   /**
    * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
+   * SBTree indexes that support it are loaded in bulk: the keys of all the records are sorted first, then the tree is built
+   * bottom-up.
+   * 
+   * @see OGlobalConfiguration#INDEX_BULK_LOAD
    */
   public long rebuild(final OProgressListener iProgressListener) {
     long documentIndexed = 0;
@@ -355,6 +365,7 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     modificationLock.requestModificationLock();
     try {
       acquireExclusiveLock();
+      OSBTreeKeySorter<Object> keySorter = null;
       try {
         rebuildThread = Thread.currentThread();
         rebuilding = true;
@@ -367,6 +378,10 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
         removeValuesContainer();
 
+        if (isBulkLoadEnabled())
+          keySorter = ((OSBTreeIndexEngine<T>) indexEngine).createKeySorter(OGlobalConfiguration.INDEX_BULK_LOAD_SPILL_THRESHOLD
+              .getValueAsInteger());
+
         int documentNum = 0;
         long documentTotal = 0;
 
@@ -393,7 +408,10 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
                 if (fieldValue != null) {
                   try {
-                    populateIndex(doc, fieldValue);
+                    if (keySorter != null)
+                      collectKeys(keySorter, doc, fieldValue);
+                    else
+                      populateIndex(doc, fieldValue);
                   } catch (OIndexException e) {
                     OLogManager.instance().error(
                         this,
@@ -413,6 +431,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
             // END OF CLUSTER REACHED, IGNORE IT
           }
 
+        if (keySorter != null)
+          bulkLoad(keySorter);
+
         if (indexEngine instanceof OMVRBTreeIndexEngine)
           flush();
 
@@ -434,6 +455,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
         throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
 
       } finally {
+        if (keySorter != null)
+          keySorter.close();
+
         rebuilding = false;
         rebuildThread = null;
 
@@ -884,6 +908,25 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
   protected abstract OStreamSerializer determineValueSerializer();
 
+  /**
+   * Tells whether the index can be rebuilt by {@link #createBulkValue(Object, List)}. False by default.
+   */
+  protected boolean supportsBulkLoad() {
+    return false;
+  }
+
+  /**
+   * Returns the value stored for a key by the bulk load of the index.
+   * 
+   * @param key
+   *          the collated key
+   * @param rids
+   *          sorted RIDs of the records indexed by the key, without duplicates
+   */
+  protected T createBulkValue(Object key, List<ORID> rids) {
+    throw new UnsupportedOperationException("Index " + name + " can not be loaded in bulk");
+  }
+
   protected void populateIndex(ODocument doc, Object fieldValue) {
 		if (fieldValue instanceof Collection) {
       for (final Object fieldValueItem : (Collection<?>) fieldValue) {
@@ -893,6 +936,86 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
       put(fieldValue, doc);
   }
 
+  private boolean isBulkLoadEnabled() {
+    return OGlobalConfiguration.INDEX_BULK_LOAD.getValueAsBoolean() && indexEngine instanceof OSBTreeIndexEngine
+        && supportsBulkLoad();
+  }
+
+  private void collectKeys(final OSBTreeKeySorter<Object> keySorter, final ODocument doc, final Object fieldValue) {
+    if (fieldValue instanceof Collection) {
+      for (final Object fieldValueItem : (Collection<?>) fieldValue)
+        collectKey(keySorter, doc, fieldValueItem);
+    } else
+      collectKey(keySorter, doc, fieldValue);
+  }
+
+  private void collectKey(final OSBTreeKeySorter<Object> keySorter, final ODocument doc, final Object key) {
+    final Object collatedKey = getCollatingValue(key);
+    if (collatedKey == null)
+      // NULL KEYS ARE KEPT OUTSIDE OF THE TREE
+      put(null, doc);
+    else
+      keySorter.add(collatedKey, doc.getIdentity());
+  }
+
+  private void bulkLoad(final OSBTreeKeySorter<Object> keySorter) {
+    keySorter.sort();
+
+    final Iterator<Map.Entry<Object, T>> entries = new BulkLoadIterator(keySorter.iterator());
+    if (!((OSBTreeIndexEngine<T>) indexEngine).bulkLoad(entries,
+        OGlobalConfiguration.INDEX_BULK_LOAD_FILL_FACTOR.getValueAsFloat()))
+      // THE TREE CANNOT BE BUILT BOTTOM-UP: INSERT THE SORTED KEYS ONE BY ONE
+      while (entries.hasNext()) {
+        final Map.Entry<Object, T> entry = entries.next();
+        indexEngine.put(entry.getKey(), entry.getValue());
+      }
+  }
+
+  /**
+   * Groups the sorted key/RID pairs by key.
+   */
+  private class BulkLoadIterator implements Iterator<Map.Entry<Object, T>> {
+    private final Iterator<Map.Entry<Object, ORID>> pairs;
+    private Map.Entry<Object, ORID>                 nextPair;
+
+    private BulkLoadIterator(final Iterator<Map.Entry<Object, ORID>> iPairs) {
+      pairs = iPairs;
+      nextPair = pairs.hasNext() ? pairs.next() : null;
+    }
+
+    public boolean hasNext() {
+      return nextPair != null;
+    }
+
+    public Map.Entry<Object, T> next() {
+      if (nextPair == null)
+        throw new NoSuchElementException();
+
+      final Object key = nextPair.getKey();
+      final List<ORID> rids = new ArrayList<ORID>();
+      rids.add(nextPair.getValue());
+
+      nextPair = null;
+      while (pairs.hasNext()) {
+        final Map.Entry<Object, ORID> pair = pairs.next();
+        if (ODefaultComparator.INSTANCE.compare(key, pair.getKey()) != 0) {
+          nextPair = pair;
+          break;
+        }
+
+        // THE SAME RECORD CAN BE INDEXED TWICE BY A COLLECTION
+        if (!pair.getValue().equals(rids.get(rids.size() - 1)))
+          rids.add(pair.getValue());
+      }
+
+      return new AbstractMap.SimpleImmutableEntry<Object, T>(key, createBulkValue(key, rids));
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
+
   protected Object getCollatingValue(final Object key) {
     if (key != null && getDefinition() != null)
       return getDefinition().getCollate().transform(key);
@@ -15,24 +15,45 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OIndexRIDContainer;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextIndexStats;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextPosting;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextPostingBlock;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextQuery;
+import com.orientechnologies.orient.core.iterator.OEmptyIterator;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerPostingBlock;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
 /**
- * Fast index for full-text searches.
+ * Fast index for full-text searches.<br/>
+ * Indexes created with the {@link ODefaultIndexFactory#POSTING_LIST_VALUE_CONTAINER} value container keep, for each word, a
+ * compressed posting list with the positions of the word in the text (see {@link OFullTextPostingBlock}). Their lookups accept
+ * many words and quoted phrases, return the records containing all of them and rank the results with BM25. Indexes created with
+ * the other value containers keep the set of records for each word.
  * 
  * @author Luca Garulli
  * 
@@ -44,19 +65,44 @@ public class OIndexFullText extends OIndexMultiValues {
   private static final String  CONFIG_IGNORE_CHARS    = "ignoreChars";
   private static final String  CONFIG_INDEX_RADIX     = "indexRadix";
   private static final String  CONFIG_MIN_WORD_LEN    = "minWordLength";
+  private static final String  CONFIG_BM25_K1         = "bm25K1";
+  private static final String  CONFIG_BM25_B          = "bm25B";
   private static final boolean DEF_INDEX_RADIX        = true;
   private static final String  DEF_SEPARATOR_CHARS    = " \r\n\t:;,.|+*/\\=!?[]()";
   private static final String  DEF_IGNORE_CHARS       = "'\"";
   private static final String  DEF_STOP_WORDS         = "the in a at as and or for his her " + "him this that what which while "
                                                           + "up with be was were is";
   private static int           DEF_MIN_WORD_LENGTH    = 3;
+  private static final double  DEF_BM25_K1            = 1.2;
+  private static final double  DEF_BM25_B             = 0.75;
+
+  // KEYS OF THE CHUNKS ARE <WORD><SEPARATOR><CHUNK NUMBER>, STATISTICS ARE STORED UNDER THE SEPARATOR ALONE
+  private static final char    KEY_SEPARATOR          = '\u0000';
+  private static final String  STATS_KEY              = String.valueOf(KEY_SEPARATOR);
+  private static final int     POSTING_BLOCK_SIZE     = 4096;
+  private static final Object  TX_OPERATIONS          = new Object();
+
   private boolean              indexRadix;
   private String               separatorChars;
   private String               ignoreChars;
   private int                  minWordLength;
+  private double               bm25K1;
+  private double               bm25B;
 
   private Set<String>          stopWords;
 
+  private static final class OTxOperation {
+    private final boolean       put;
+    private final Object        key;
+    private final OIdentifiable value;
+
+    private OTxOperation(final boolean iPut, final Object iKey, final OIdentifiable iValue) {
+      put = iPut;
+      key = iKey;
+      value = iValue;
+    }
+  }
+
   public OIndexFullText(String typeId, String algorithm, OIndexEngine<Set<OIdentifiable>> indexEngine,
       String valueContainerAlgorithm, ODocument metadata) {
     super(typeId, algorithm, indexEngine, valueContainerAlgorithm);
@@ -65,6 +111,55 @@ public class OIndexFullText extends OIndexMultiValues {
 
   }
 
+  /**
+   * Returns the records containing the words of the key. With posting lists the key can contain many words and phrases between
+   * double quotes: the records must contain all of them and are returned in order of relevance.
+   */
+  @Override
+  public Set<OIdentifiable> get(Object key) {
+    if (!usePostingLists())
+      return super.get(key);
+
+    checkForRebuild();
+
+    if (key == null)
+      return Collections.emptySet();
+
+    key = getCollatingValue(key);
+
+    acquireSharedLock();
+    try {
+      return search(key.toString());
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public long count(Object key) {
+    if (!usePostingLists())
+      return super.count(key);
+
+    checkForRebuild();
+
+    if (key == null)
+      return 0;
+
+    key = getCollatingValue(key);
+
+    acquireSharedLock();
+    try {
+      final OFullTextQuery query = parseQuery(key.toString());
+      if (query.getWords().size() != 1)
+        // MORE WORDS OR PHRASES: ONLY THE SEARCH KNOWS THE RECORDS CONTAINING ALL OF THEM
+        return search(key.toString()).size();
+
+      return countPostings(query.getWords().get(0));
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   /**
    * Indexes a value and save the index. Splits the value in single words and index each one. Save of the index is responsibility of
    * the caller.
@@ -81,6 +176,16 @@ public class OIndexFullText extends OIndexMultiValues {
     modificationLock.requestModificationLock();
 
     try {
+      if (usePostingLists()) {
+        acquireExclusiveLock();
+        try {
+          addPostings(key.toString(), iSingleValue.getIdentity());
+        } finally {
+          releaseExclusiveLock();
+        }
+        return this;
+      }
+
       final Set<String> words = splitIntoWords(key.toString());
 
       // FOREACH WORD CREATE THE LINK TO THE CURRENT DOCUMENT
@@ -138,6 +243,15 @@ public class OIndexFullText extends OIndexMultiValues {
     modificationLock.requestModificationLock();
 
     try {
+      if (usePostingLists()) {
+        acquireExclusiveLock();
+        try {
+          return removePostings(key.toString(), value.getIdentity());
+        } finally {
+          releaseExclusiveLock();
+        }
+      }
+
       final Set<String> words = splitIntoWords(key.toString());
       boolean removed = false;
 
@@ -166,6 +280,31 @@ public class OIndexFullText extends OIndexMultiValues {
     }
   }
 
+  /**
+   * Removes the words of the key with all their records.
+   */
+  @Override
+  public boolean remove(Object key) {
+    if (!usePostingLists())
+      return super.remove(key);
+
+    checkForRebuild();
+
+    key = getCollatingValue(key);
+
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+        return removeWords(key.toString());
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
   @Override
   public OIndexInternal<?> create(String name, OIndexDefinition indexDefinition, String clusterIndexName,
       Set<String> clustersToIndex, boolean rebuild, OProgressListener progressListener, OStreamSerializer valueSerializer) {
@@ -197,6 +336,10 @@ public class OIndexFullText extends OIndexMultiValues {
       configuration.field(CONFIG_STOP_WORDS, stopWords);
       configuration.field(CONFIG_MIN_WORD_LEN, minWordLength);
       configuration.field(CONFIG_INDEX_RADIX, indexRadix);
+      if (usePostingLists()) {
+        configuration.field(CONFIG_BM25_K1, bm25K1);
+        configuration.field(CONFIG_BM25_B, bm25B);
+      }
 
     } finally {
       configuration.setInternalStatus(ORecordElement.STATUS.LOADED);
@@ -204,6 +347,168 @@ public class OIndexFullText extends OIndexMultiValues {
     return configuration;
   }
 
+  @Override
+  public OIndexCursor iterateEntriesBetween(Object fromKey, boolean fromInclusive, Object toKey, boolean toInclusive,
+      boolean ascOrder) {
+    if (!usePostingLists())
+      return super.iterateEntriesBetween(fromKey, fromInclusive, toKey, toInclusive, ascOrder);
+
+    checkForRebuild();
+
+    fromKey = getCollatingValue(fromKey);
+    toKey = getCollatingValue(toKey);
+
+    acquireSharedLock();
+    try {
+      return new OPostingsCursor(getPostingsEngine().iterateEntriesBetween(fromKey, fromInclusive, toKey, toInclusive, ascOrder,
+          PostingsTransformer.INSTANCE));
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesMajor(Object fromKey, boolean fromInclusive, boolean ascOrder) {
+    if (!usePostingLists())
+      return super.iterateEntriesMajor(fromKey, fromInclusive, ascOrder);
+
+    checkForRebuild();
+
+    fromKey = getCollatingValue(fromKey);
+
+    acquireSharedLock();
+    try {
+      return new OPostingsCursor(getPostingsEngine().iterateEntriesMajor(fromKey, fromInclusive, ascOrder,
+          PostingsTransformer.INSTANCE));
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OIndexCursor iterateEntriesMinor(Object toKey, boolean toInclusive, boolean ascOrder) {
+    if (!usePostingLists())
+      return super.iterateEntriesMinor(toKey, toInclusive, ascOrder);
+
+    checkForRebuild();
+
+    toKey = getCollatingValue(toKey);
+
+    acquireSharedLock();
+    try {
+      return new OPostingsCursor(getPostingsEngine().iterateEntriesMinor(toKey, toInclusive, ascOrder,
+          PostingsTransformer.INSTANCE));
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OIndexCursor iterateEntries(final Collection<?> keys, final boolean ascSortOrder) {
+    if (!usePostingLists())
+      return super.iterateEntries(keys, ascSortOrder);
+
+    checkForRebuild();
+
+    final List<Object> sortedKeys = new ArrayList<Object>(keys);
+    Collections.sort(sortedKeys, ascSortOrder ? ODefaultComparator.INSTANCE : Collections.reverseOrder(ODefaultComparator.INSTANCE));
+
+    return new OIndexAbstractCursor() {
+      private final Iterator<Object>  keysIterator    = sortedKeys.iterator();
+      private Iterator<OIdentifiable> currentIterator = OEmptyIterator.IDENTIFIABLE_INSTANCE;
+      private Object                  currentKey;
+
+      @Override
+      public Map.Entry<Object, OIdentifiable> nextEntry() {
+        while (!currentIterator.hasNext()) {
+          if (!keysIterator.hasNext())
+            return null;
+
+          currentKey = keysIterator.next();
+          currentIterator = get(currentKey).iterator();
+        }
+
+        return new OPostingEntry(currentKey, currentIterator.next());
+      }
+    };
+  }
+
+  @Override
+  public OIndexCursor cursor() {
+    if (!usePostingLists())
+      return super.cursor();
+
+    checkForRebuild();
+
+    acquireSharedLock();
+    try {
+      return new OPostingsCursor(getPostingsEngine().cursor(PostingsTransformer.INSTANCE));
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OIndexCursor descCursor() {
+    if (!usePostingLists())
+      return super.descCursor();
+
+    checkForRebuild();
+
+    acquireSharedLock();
+    try {
+      return new OPostingsCursor(getPostingsEngine().descCursor(PostingsTransformer.INSTANCE));
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OIndexKeyCursor keyCursor() {
+    if (!usePostingLists())
+      return super.keyCursor();
+
+    final OIndexKeyCursor keyCursor = super.keyCursor();
+    return new OIndexKeyCursor() {
+      @Override
+      public Object next(final int prefetchSize) {
+        Object key;
+        do
+          key = keyCursor.next(prefetchSize);
+        while (key instanceof String && ((String) key).indexOf(KEY_SEPARATOR) > -1);
+        return key;
+      }
+    };
+  }
+
+  @Override
+  public long getSize() {
+    if (!usePostingLists())
+      return super.getSize();
+
+    checkForRebuild();
+    acquireSharedLock();
+    try {
+      return getPostingsEngine().size(PostingsTransformer.INSTANCE);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public long getKeySize() {
+    if (!usePostingLists())
+      return super.getKeySize();
+
+    checkForRebuild();
+    acquireSharedLock();
+    try {
+      return loadStats().getWords();
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   public boolean canBeUsedInEqualityOperators() {
     return false;
   }
@@ -212,6 +517,20 @@ public class OIndexFullText extends OIndexMultiValues {
     return false;
   }
 
+  /**
+   * Tells if the index keeps posting lists with positions and ranks the results.
+   */
+  public boolean usePostingLists() {
+    return ODefaultIndexFactory.POSTING_LIST_VALUE_CONTAINER.equals(valueContainerAlgorithm);
+  }
+
+  @Override
+  protected OStreamSerializer determineValueSerializer() {
+    if (usePostingLists())
+      return OStreamSerializerPostingBlock.INSTANCE;
+    return super.determineValueSerializer();
+  }
+
   protected void configWithMetadata(ODocument metadata) {
     if (metadata != null) {
       if (metadata.containsField(CONFIG_IGNORE_CHARS))
@@ -227,7 +546,13 @@ public class OIndexFullText extends OIndexMultiValues {
         minWordLength = (Integer) metadata.field(CONFIG_MIN_WORD_LEN);
 
       if (metadata.containsField(CONFIG_STOP_WORDS))
-        stopWords = new HashSet<String>((Collection<? extends String>) metadata.field(CONFIG_STOP_WORDS));
+        stopWords = new HashSet<String>(metadata.<Collection<String>> field(CONFIG_STOP_WORDS));
+
+      if (metadata.containsField(CONFIG_BM25_K1))
+        bm25K1 = ((Number) metadata.field(CONFIG_BM25_K1)).doubleValue();
+
+      if (metadata.containsField(CONFIG_BM25_B))
+        bm25B = ((Number) metadata.field(CONFIG_BM25_B)).doubleValue();
     }
 
   }
@@ -238,6 +563,8 @@ public class OIndexFullText extends OIndexMultiValues {
     separatorChars = DEF_SEPARATOR_CHARS;
     minWordLength = DEF_MIN_WORD_LENGTH;
     stopWords = new HashSet<String>(OStringSerializerHelper.split(DEF_STOP_WORDS, ' '));
+    bm25K1 = DEF_BM25_K1;
+    bm25B = DEF_BM25_B;
   }
 
   @Override
@@ -247,6 +574,11 @@ public class OIndexFullText extends OIndexMultiValues {
 
     key = getCollatingValue(key);
 
+    if (usePostingLists()) {
+      getTxOperations(snapshot).add(new OTxOperation(true, key, value.getIdentity()));
+      return;
+    }
+
     final Set<String> words = splitIntoWords(key.toString());
 
     // FOREACH WORD CREATE THE LINK TO THE CURRENT DOCUMENT
@@ -259,7 +591,7 @@ public class OIndexFullText extends OIndexMultiValues {
       else if (snapshotValue.equals(RemovedValue.INSTANCE))
         refs = null;
       else
-        refs = (Set<OIdentifiable>) snapshotValue;
+        refs = toRIDSet(snapshotValue);
 
       if (refs == null) {
         // WORD NOT EXISTS: CREATE THE KEYWORD CONTAINER THE FIRST TIME THE WORD IS FOUND
@@ -281,6 +613,11 @@ public class OIndexFullText extends OIndexMultiValues {
   protected void removeFromSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
 
+    if (usePostingLists()) {
+      getTxOperations(snapshot).add(new OTxOperation(false, key, value.getIdentity()));
+      return;
+    }
+
     final Set<String> words = splitIntoWords(key.toString());
     for (final String word : words) {
       final Set<OIdentifiable> recs;
@@ -290,7 +627,7 @@ public class OIndexFullText extends OIndexMultiValues {
       else if (snapshotValue.equals(RemovedValue.INSTANCE))
         recs = null;
       else
-        recs = (Set<OIdentifiable>) snapshotValue;
+        recs = toRIDSet(snapshotValue);
 
       if (recs != null && !recs.isEmpty()) {
         if (recs.remove(value)) {
@@ -303,9 +640,57 @@ public class OIndexFullText extends OIndexMultiValues {
     }
   }
 
+  @Override
+  protected void removeFromSnapshot(Object key, Map<Object, Object> snapshot) {
+    if (!usePostingLists()) {
+      super.removeFromSnapshot(key, snapshot);
+      return;
+    }
+
+    getTxOperations(snapshot).add(new OTxOperation(false, getCollatingValue(key), null));
+  }
+
+  @Override
+  protected void commitSnapshot(Map<Object, Object> snapshot) {
+    if (!usePostingLists()) {
+      super.commitSnapshot(snapshot);
+      return;
+    }
+
+    // REPLAY THE CHANGES IN THE ORDER THEY WERE MADE
+    final List<OTxOperation> operations = toTxOperations(snapshot.get(TX_OPERATIONS));
+    if (operations == null)
+      return;
+
+    for (OTxOperation operation : operations) {
+      if (operation.key == null)
+        continue;
+
+      if (operation.put)
+        addPostings(operation.key.toString(), operation.value.getIdentity());
+      else if (operation.value != null)
+        removePostings(operation.key.toString(), operation.value.getIdentity());
+      else
+        removeWords(operation.key.toString());
+    }
+  }
+
   private Set<String> splitIntoWords(final String iKey) {
-    final Set<String> result = new HashSet<String>();
+    final Map<String, List<Integer>> words = new HashMap<String, List<Integer>>();
+    splitIntoWords(iKey, indexRadix, words);
+    return words.keySet();
+  }
 
+  /**
+   * Splits the text in words, skipping stop words and words too short.
+   * 
+   * @param iRadix
+   *          also returns the prefixes of the words
+   * @param iWords
+   *          filled with the words and their positions in the text
+   * @return length of the text in words
+   */
+  private int splitIntoWords(final String iKey, final boolean iRadix, final Map<String, List<Integer>> iWords) {
     final List<String> words = (List<String>) OStringSerializerHelper.split(new ArrayList<String>(), iKey, 0, -1, separatorChars);
 
     final StringBuilder buffer = new StringBuilder();
@@ -313,6 +698,7 @@ public class OIndexFullText extends OIndexMultiValues {
 
     char c;
     boolean ignore;
+    int position = 0;
     for (String word : words) {
       buffer.setLength(0);
 
@@ -330,23 +716,395 @@ public class OIndexFullText extends OIndexMultiValues {
       }
 
       int length = buffer.length();
+      if (length == 0)
+        continue;
 
       while (length >= minWordLength) {
         buffer.setLength(length);
         word = buffer.toString();
 
         // CHECK IF IT'S A STOP WORD
-        if (!stopWords.contains(word))
+        if (!stopWords.contains(word)) {
           // ADD THE WORD TO THE RESULT SET
-          result.add(word);
+          List<Integer> positions = iWords.get(word);
+          if (positions == null) {
+            positions = new ArrayList<Integer>();
+            iWords.put(word, positions);
+          }
+          positions.add(position);
+        }
 
-        if (indexRadix)
+        if (iRadix)
           length--;
         else
           break;
       }
+
+      position++;
+    }
+
+    return position;
+  }
+
+  private OFullTextQuery parseQuery(final String iText) {
+    final OFullTextQuery query = new OFullTextQuery();
+
+    // PHRASES ARE BETWEEN DOUBLE QUOTES
+    final String[] parts = iText.split("\"", -1);
+    for (int i = 0; i < parts.length; ++i) {
+      final Map<String, List<Integer>> words = new LinkedHashMap<String, List<Integer>>();
+      splitIntoWords(parts[i], false, words);
+
+      if (i % 2 == 0 || i == parts.length - 1) {
+        for (String word : words.keySet())
+          query.addWord(word);
+      } else {
+        // SORT THE WORDS OF THE PHRASE BY POSITION
+        final Map<Integer, String> byPosition = new TreeMap<Integer, String>();
+        for (Map.Entry<String, List<Integer>> entry : words.entrySet())
+          for (Integer position : entry.getValue())
+            byPosition.put(position, entry.getKey());
+
+        query.addPhrase(new ArrayList<String>(byPosition.values()), new ArrayList<Integer>(byPosition.keySet()));
+      }
+    }
+    return query;
+  }
+
+  private Set<OIdentifiable> search(final String iText) {
+    final OFullTextQuery query = parseQuery(iText);
+    if (query.isEmpty())
+      return Collections.emptySet();
+
+    final List<String> words = query.getWords();
+    final OFullTextPostingBlock[] heads = new OFullTextPostingBlock[words.size()];
+    final Integer[] order = new Integer[words.size()];
+    for (int i = 0; i < heads.length; ++i) {
+      heads[i] = loadBlock(words.get(i));
+      if (heads[i] == null)
+        // ALL THE WORDS MUST BE PRESENT
+        return Collections.emptySet();
+      order[i] = i;
+    }
+
+    // READ THE LESS FREQUENT WORDS FIRST: THE CANDIDATES SHRINK AS SOON AS POSSIBLE
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(final Integer o1, final Integer o2) {
+        return heads[o1].getFrequency() - heads[o2].getFrequency();
+      }
+    });
+
+    Map<ORID, OFullTextPosting[]> candidates = null;
+    for (int i : order) {
+      final Map<ORID, OFullTextPosting> postings = loadPostings(words.get(i), heads[i]);
+
+      if (candidates == null) {
+        candidates = new HashMap<ORID, OFullTextPosting[]>(postings.size());
+        for (Map.Entry<ORID, OFullTextPosting> entry : postings.entrySet()) {
+          final OFullTextPosting[] recordPostings = new OFullTextPosting[words.size()];
+          recordPostings[i] = entry.getValue();
+          candidates.put(entry.getKey(), recordPostings);
+        }
+      } else {
+        for (Iterator<Map.Entry<ORID, OFullTextPosting[]>> it = candidates.entrySet().iterator(); it.hasNext();) {
+          final Map.Entry<ORID, OFullTextPosting[]> entry = it.next();
+          final OFullTextPosting posting = postings.get(entry.getKey());
+          if (posting == null)
+            it.remove();
+          else
+            entry.getValue()[i] = posting;
+        }
+      }
+
+      if (candidates.isEmpty())
+        return Collections.emptySet();
     }
 
+    final int[] frequencies = new int[heads.length];
+    for (int i = 0; i < heads.length; ++i)
+      frequencies[i] = heads[i].getFrequency();
+
+    final OFullTextIndexStats stats = loadStats();
+
+    final List<Map.Entry<ORID, Double>> ranked = new ArrayList<Map.Entry<ORID, Double>>(candidates.size());
+    for (Map.Entry<ORID, OFullTextPosting[]> entry : candidates.entrySet())
+      if (query.matchesPhrases(entry.getValue()))
+        ranked.add(new AbstractMap.SimpleImmutableEntry<ORID, Double>(entry.getKey(), query.score(entry.getValue(),
+            frequencies, stats, bm25K1, bm25B)));
+
+    Collections.sort(ranked, new Comparator<Map.Entry<ORID, Double>>() {
+      @Override
+      public int compare(final Map.Entry<ORID, Double> o1, final Map.Entry<ORID, Double> o2) {
+        final int cmp = o2.getValue().compareTo(o1.getValue());
+        return cmp != 0 ? cmp : o1.getKey().compareTo(o2.getKey());
+      }
+    });
+
+    final Set<OIdentifiable> result = new LinkedHashSet<OIdentifiable>(ranked.size());
+    for (Map.Entry<ORID, Double> entry : ranked)
+      result.add(entry.getKey());
     return result;
   }
+
+  private void addPostings(final String iText, final ORID iRid) {
+    final Map<String, List<Integer>> words = new HashMap<String, List<Integer>>();
+    final int length = splitIntoWords(iText, indexRadix, words);
+    if (words.isEmpty())
+      return;
+
+    final OIndexEngine<byte[]> engine = getPostingsEngine();
+    final OFullTextIndexStats stats = loadStats();
+
+    for (Map.Entry<String, List<Integer>> entry : words.entrySet()) {
+      final String word = entry.getKey();
+
+      OFullTextPostingBlock head = loadBlock(word);
+      if (head == null) {
+        head = OFullTextPostingBlock.newHead();
+        stats.addWord();
+      }
+
+      head.append(new OFullTextPosting(iRid, length, toArray(entry.getValue())));
+
+      if (head.getSize() >= POSTING_BLOCK_SIZE) {
+        // THE HEAD IS FULL: MOVE ITS POSTINGS IN A NEW CHUNK
+        final int chunk = head.getChunks();
+        engine.put(chunkKey(word, chunk), head.seal().toStream());
+      }
+
+      engine.put(word, head.toStream());
+    }
+
+    stats.addDocument(length);
+    engine.put(STATS_KEY, stats.toStream());
+  }
+
+  private boolean removePostings(final String iText, final ORID iRid) {
+    final Map<String, List<Integer>> words = new HashMap<String, List<Integer>>();
+    final int length = splitIntoWords(iText, indexRadix, words);
+
+    final OIndexEngine<byte[]> engine = getPostingsEngine();
+    final OFullTextIndexStats stats = loadStats();
+
+    boolean removed = false;
+    for (String word : words.keySet()) {
+      final OFullTextPostingBlock head = loadBlock(word);
+      if (head == null)
+        continue;
+
+      if (head.remove(iRid) == null) {
+        // SEARCH IN THE CHUNKS, STARTING FROM THE MOST RECENT
+        boolean found = false;
+        for (int i = head.getChunks() - 1; i >= 0 && !found; --i) {
+          final String chunkKey = chunkKey(word, i);
+          final OFullTextPostingBlock chunk = loadBlock(chunkKey);
+          if (chunk != null && chunk.remove(iRid) != null) {
+            if (chunk.getCount() == 0)
+              engine.remove(chunkKey);
+            else
+              engine.put(chunkKey, chunk.toStream());
+
+            head.decrementFrequency();
+            found = true;
+          }
+        }
+
+        if (!found)
+          continue;
+      }
+
+      removed = true;
+      if (head.getFrequency() <= 0) {
+        removeWord(word, head);
+        stats.removeWord();
+      } else
+        engine.put(word, head.toStream());
+    }
+
+    if (removed) {
+      stats.removeDocument(length);
+      engine.put(STATS_KEY, stats.toStream());
+    }
+    return removed;
+  }
+
+  private boolean removeWords(final String iText) {
+    final Map<String, List<Integer>> words = new HashMap<String, List<Integer>>();
+    splitIntoWords(iText, false, words);
+
+    final OFullTextIndexStats stats = loadStats();
+
+    boolean removed = false;
+    for (String word : words.keySet()) {
+      final OFullTextPostingBlock head = loadBlock(word);
+      if (head != null) {
+        removeWord(word, head);
+        stats.removeWord();
+        removed = true;
+      }
+    }
+
+    if (removed)
+      getPostingsEngine().put(STATS_KEY, stats.toStream());
+    return removed;
+  }
+
+  private void removeWord(final String iWord, final OFullTextPostingBlock iHead) {
+    final OIndexEngine<byte[]> engine = getPostingsEngine();
+    for (int i = 0; i < iHead.getChunks(); ++i)
+      engine.remove(chunkKey(iWord, i));
+    engine.remove(iWord);
+  }
+
+  private Map<ORID, OFullTextPosting> loadPostings(final String iWord, final OFullTextPostingBlock iHead) {
+    final Map<ORID, OFullTextPosting> postings = new HashMap<ORID, OFullTextPosting>(iHead.getFrequency());
+
+    for (int i = 0; i <= iHead.getChunks(); ++i) {
+      final OFullTextPostingBlock block = i < iHead.getChunks() ? loadBlock(chunkKey(iWord, i)) : iHead;
+      if (block == null)
+        continue;
+
+      for (OFullTextPosting posting : block.getPostings()) {
+        final OFullTextPosting previous = postings.put(posting.getRid(), posting);
+        if (previous != null)
+          // SAME RECORD INDEXED MORE TIMES, AS THE ITEMS OF A COLLECTION
+          postings.put(posting.getRid(), previous.merge(posting));
+      }
+    }
+    return postings;
+  }
+
+  /**
+   * Counts the records in the posting list of the word without decoding the positions nor ranking them.
+   */
+  private int countPostings(final String iWord) {
+    final OFullTextPostingBlock head = loadBlock(iWord);
+    if (head == null)
+      return 0;
+
+    // THE FREQUENCY COUNTS THE POSTINGS: THE SAME RECORD CAN BE INDEXED MORE TIMES
+    final Set<OIdentifiable> rids = new HashSet<OIdentifiable>(head.getFrequency());
+    for (int i = 0; i < head.getChunks(); ++i) {
+      final OFullTextPostingBlock chunk = loadBlock(chunkKey(iWord, i));
+      if (chunk != null)
+        rids.addAll(chunk.getIdentities());
+    }
+    rids.addAll(head.getIdentities());
+    return rids.size();
+  }
+
+  private OFullTextPostingBlock loadBlock(final String iKey) {
+    final byte[] stream = getPostingsEngine().get(iKey);
+    return OFullTextPostingBlock.isPostingBlock(stream) ? OFullTextPostingBlock.fromStream(stream) : null;
+  }
+
+  private OFullTextIndexStats loadStats() {
+    return OFullTextIndexStats.fromStream(getPostingsEngine().get(STATS_KEY));
+  }
+
+  @SuppressWarnings("unchecked")
+  private OIndexEngine<byte[]> getPostingsEngine() {
+    // WITH POSTING LISTS THE ENGINE STORES THE ENCODED BLOCKS
+    return (OIndexEngine<byte[]>) (OIndexEngine<?>) indexEngine;
+  }
+
+  private static String chunkKey(final String iWord, final int iChunk) {
+    return iWord + KEY_SEPARATOR + iChunk;
+  }
+
+  private static int[] toArray(final List<Integer> iList) {
+    final int[] array = new int[iList.size()];
+    for (int i = 0; i < array.length; ++i)
+      array[i] = iList.get(i);
+    return array;
+  }
+
+  private static List<OTxOperation> getTxOperations(final Map<Object, Object> snapshot) {
+    List<OTxOperation> operations = toTxOperations(snapshot.get(TX_OPERATIONS));
+    if (operations == null) {
+      operations = new ArrayList<OTxOperation>();
+      snapshot.put(TX_OPERATIONS, operations);
+    }
+    return operations;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Set<OIdentifiable> toRIDSet(final Object iSnapshotValue) {
+    // WITHOUT POSTING LISTS THE SNAPSHOT CONTAINS THE RECORDS OF THE WORDS
+    return (Set<OIdentifiable>) iSnapshotValue;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<OTxOperation> toTxOperations(final Object iSnapshotValue) {
+    // WITH POSTING LISTS THE SNAPSHOT CONTAINS THE OPERATIONS UNDER THE TX_OPERATIONS KEY
+    return (List<OTxOperation>) iSnapshotValue;
+  }
+
+  /**
+   * Returns the records of the posting blocks. Statistics have no records.
+   */
+  private static final class PostingsTransformer implements OIndexEngine.ValuesTransformer<byte[]> {
+    private static final PostingsTransformer INSTANCE = new PostingsTransformer();
+
+    @Override
+    public Collection<OIdentifiable> transformFromValue(final byte[] value) {
+      if (!OFullTextPostingBlock.isPostingBlock(value))
+        return Collections.emptyList();
+      return OFullTextPostingBlock.fromStream(value).getIdentities();
+    }
+  }
+
+  /**
+   * Reports the entries of the chunks under the key of their word.
+   */
+  private static final class OPostingsCursor extends OIndexAbstractCursor {
+    private final OIndexCursor underlying;
+
+    private OPostingsCursor(final OIndexCursor iUnderlying) {
+      underlying = iUnderlying;
+    }
+
+    @Override
+    public Map.Entry<Object, OIdentifiable> nextEntry() {
+      underlying.setPrefetchSize(getPrefetchSize());
+
+      final Map.Entry<Object, OIdentifiable> entry = underlying.nextEntry();
+      if (entry == null)
+        return null;
+
+      Object key = entry.getKey();
+      if (key instanceof String) {
+        final int separator = ((String) key).indexOf(KEY_SEPARATOR);
+        if (separator > -1)
+          key = ((String) key).substring(0, separator);
+      }
+      return new OPostingEntry(key, entry.getValue());
+    }
+  }
+
+  private static final class OPostingEntry implements Map.Entry<Object, OIdentifiable> {
+    private final Object        key;
+    private final OIdentifiable value;
+
+    private OPostingEntry(final Object iKey, final OIdentifiable iValue) {
+      key = iKey;
+      value = iValue;
+    }
+
+    @Override
+    public Object getKey() {
+      return key;
+    }
+
+    @Override
+    public OIdentifiable getValue() {
+      return value;
+    }
+
+    @Override
+    public OIdentifiable setValue(final OIdentifiable iValue) {
+      throw new UnsupportedOperationException("setValue");
+    }
+  }
 }
@@ -29,6 +29,7 @@ import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OStorageProxy;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
 import com.orientechnologies.orient.core.type.ODocumentWrapperNoClass;
@@ -92,6 +93,7 @@ public abstract class OIndexManagerAbstract extends ODocumentWrapperNoClass impl
       return (RET) super.reload();
     } finally {
       releaseExclusiveLock();
+      invalidateStatementCache();
     }
   }
 
@@ -110,6 +112,7 @@ public abstract class OIndexManagerAbstract extends ODocumentWrapperNoClass impl
 
     } finally {
       releaseExclusiveLock();
+      invalidateStatementCache();
     }
   }
 
@@ -393,6 +396,15 @@ public abstract class OIndexManagerAbstract extends ODocumentWrapperNoClass impl
     return ODatabaseRecordThreadLocal.INSTANCE.get();
   }
 
+  /**
+   * Parsed statements keep the indexes they can use, so they are parsed again after any index change.
+   */
+  protected void invalidateStatementCache() {
+    final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (db != null)
+      OSQLStatementCache.invalidate(db.getStorage());
+  }
+
   protected void addIndexInternal(final OIndex<?> index) {
     acquireExclusiveLock();
     try {
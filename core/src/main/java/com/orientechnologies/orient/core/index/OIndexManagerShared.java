@@ -191,7 +191,10 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
 
   private String chooseContainerAlgorithm(String iType, OStorage storage) {
     final String valueContainerAlgorithm;
-    if (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(iType) || OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString().equals(iType)
+    if (OClass.INDEX_TYPE.FULLTEXT.toString().equals(iType)
+        && OGlobalConfiguration.INDEX_FULLTEXT_USE_POSTING_LISTS_BY_DEFAULT.getValueAsBoolean()) {
+      valueContainerAlgorithm = ODefaultIndexFactory.POSTING_LIST_VALUE_CONTAINER;
+    } else if (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(iType) || OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX.toString().equals(iType)
         || OClass.INDEX_TYPE.FULLTEXT_HASH_INDEX.toString().equals(iType) || OClass.INDEX_TYPE.FULLTEXT.toString().equals(iType)) {
       if ((storage.getType().equals(OEngineLocalPaginated.NAME) || storage.getType().equals(OEngineLocal.NAME))
           && OGlobalConfiguration.INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT.getValueAsBoolean()) {
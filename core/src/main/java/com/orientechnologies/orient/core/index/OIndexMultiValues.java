@@ -30,6 +30,7 @@ import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OIndexRIDContainer;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.iterator.OEmptyIterator;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
@@ -101,14 +102,8 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
       try {
         Set<OIdentifiable> values = indexEngine.get(key);
 
-        if (values == null) {
-          if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm)) {
-            values = new OIndexRIDContainer(getName());
-          } else {
-            values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
-            ((OMVRBTreeRIDSet) values).setAutoConvertToRecord(false);
-          }
-        }
+        if (values == null)
+          values = createValuesContainer();
 
         if (!iSingleValue.getIdentity().isValid())
           ((ORecord<?>) iSingleValue).save();
@@ -126,6 +121,23 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
     }
   }
 
+  @Override
+  protected Set<OIdentifiable> createBulkValue(Object key, List<ORID> rids) {
+    final Set<OIdentifiable> values = createValuesContainer();
+    for (ORID rid : rids)
+      values.add(rid);
+    return values;
+  }
+
+  protected Set<OIdentifiable> createValuesContainer() {
+    if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm))
+      return new OIndexRIDContainer(getName());
+
+    final OMVRBTreeRIDSet values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
+    values.setAutoConvertToRecord(false);
+    return values;
+  }
+
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, final Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
@@ -39,4 +39,9 @@ public class OIndexNotUnique extends OIndexMultiValues {
   public boolean supportsOrderedIterations() {
     return indexEngine.hasRangeQuerySupport();
   }
+
+  @Override
+  protected boolean supportsBulkLoad() {
+    return true;
+  }
 }
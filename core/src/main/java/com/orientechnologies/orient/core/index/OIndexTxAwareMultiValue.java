@@ -29,6 +29,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -274,7 +275,8 @@ public class OIndexTxAwareMultiValue extends OIndexTxAware<Set<OIdentifiable>> {
     if (indexChanges == null)
       return super.get(key);
 
-    final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
+    // KEEP THE ORDER OF THE UNDERLYING RESULT SET, AS THE RANKING OF FULL-TEXT INDEXES
+    final Set<OIdentifiable> result = new LinkedHashSet<OIdentifiable>();
     if (!indexChanges.cleared) {
       // BEGIN FROM THE UNDERLYING RESULT SET
       final Collection<OIdentifiable> subResult = super.get(key);
@@ -283,7 +285,7 @@ public class OIndexTxAwareMultiValue extends OIndexTxAware<Set<OIdentifiable>> {
           result.add(oid);
     }
 
-    final Set<OIdentifiable> processed = new HashSet<OIdentifiable>();
+    final Set<OIdentifiable> processed = new LinkedHashSet<OIdentifiable>();
     for (OIdentifiable identifiable : result) {
       Map.Entry<Object, OIdentifiable> entry = calculateTxIndexEntry(key, identifiable, indexChanges);
       if (entry != null)
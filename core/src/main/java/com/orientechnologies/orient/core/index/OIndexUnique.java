@@ -16,11 +16,13 @@
 package com.orientechnologies.orient.core.index;
 
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
 
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -72,6 +74,21 @@ public class OIndexUnique extends OIndexOneValue {
     }
   }
 
+  @Override
+  protected boolean supportsBulkLoad() {
+    return true;
+  }
+
+  @Override
+  protected OIdentifiable createBulkValue(Object key, List<ORID> rids) {
+    if (rids.size() > 1)
+      throw new ORecordDuplicatedException(String.format(
+          "Cannot index record %s: found duplicated key '%s' in index '%s' previously assigned to the record %s", rids.get(1), key,
+          getName(), rids.get(0)), rids.get(0));
+
+    return rids.get(0);
+  }
+
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
@@ -30,6 +30,7 @@ import com.orientechnologies.orient.core.index.OIndexEngine;
 import com.orientechnologies.orient.core.index.OIndexKeyCursor;
 import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
 import com.orientechnologies.orient.core.index.sbtree.local.OSBTree;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTreeKeySorter;
 import com.orientechnologies.orient.core.iterator.OEmptyIterator;
 import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
@@ -49,12 +50,27 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
   public static final String DATA_FILE_EXTENSION        = ".sbt";
   public static final String NULL_BUCKET_FILE_EXTENSION = ".nbt";
 
+  /**
+   * Name of the boolean index metadata field that enables compression of the keys in the buckets of the tree.
+   */
+  public static final String CONFIG_KEY_COMPRESSION     = "keyCompression";
+
+  private final boolean      keyCompression;
   private ORID               identity;
   private OSBTree<Object, V> sbTree;
 
   public OSBTreeIndexEngine() {
+    this(false);
+  }
+
+  public OSBTreeIndexEngine(boolean keyCompression) {
     super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean(), OGlobalConfiguration.MVRBTREE_TIMEOUT
         .getValueAsInteger(), true);
+    this.keyCompression = keyCompression;
+  }
+
+  public boolean isKeyCompression() {
+    return keyCompression;
   }
 
   @Override
@@ -81,7 +97,7 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
       final int keySize = determineKeySize(indexDefinition);
 
       sbTree = new OSBTree<Object, V>(DATA_FILE_EXTENSION, keySize,
-          OGlobalConfiguration.INDEX_DURABLE_IN_NON_TX_MODE.getValueAsBoolean(), NULL_BUCKET_FILE_EXTENSION);
+          OGlobalConfiguration.INDEX_DURABLE_IN_NON_TX_MODE.getValueAsBoolean(), NULL_BUCKET_FILE_EXTENSION, keyCompression);
 
       final ORecordBytes identityRecord = new ORecordBytes();
       ODatabaseRecord database = getDatabase();
@@ -154,7 +170,7 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
     acquireExclusiveLock();
     try {
       sbTree = new OSBTree<Object, V>(DATA_FILE_EXTENSION, determineKeySize(indexDefinition),
-          OGlobalConfiguration.INDEX_DURABLE_IN_NON_TX_MODE.getValueAsBoolean(), NULL_BUCKET_FILE_EXTENSION);
+          OGlobalConfiguration.INDEX_DURABLE_IN_NON_TX_MODE.getValueAsBoolean(), NULL_BUCKET_FILE_EXTENSION, keyCompression);
 
       ODatabaseRecord database = getDatabase();
       final OStorageLocalAbstract storageLocalAbstract = (OStorageLocalAbstract) database.getStorage().getUnderlying();
@@ -320,6 +336,30 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
     }
   }
 
+  /**
+   * @see OSBTree#createKeySorter(int)
+   */
+  public OSBTreeKeySorter<Object> createKeySorter(int spillThreshold) {
+    acquireSharedLock();
+    try {
+      return sbTree.createKeySorter(spillThreshold);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * @see OSBTree#bulkLoad(Iterator, float)
+   */
+  public boolean bulkLoad(Iterator<? extends Map.Entry<Object, V>> entries, float fillFactor) {
+    acquireSharedLock();
+    try {
+      return sbTree.bulkLoad(entries, fillFactor);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   @Override
   public Object getFirstKey() {
     acquireSharedLock();
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OBytesContainer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OVarIntSerializer;
+
+/**
+ * Statistics of a full-text index used by the ranking: number of texts indexed, their total length in words and number of
+ * distinct words.
+ */
+public class OFullTextIndexStats {
+  public static final byte TYPE = 3;
+
+  private long             documents;
+  private long             totalLength;
+  private long             words;
+
+  public static OFullTextIndexStats fromStream(final byte[] iStream) {
+    final OFullTextIndexStats stats = new OFullTextIndexStats();
+    if (iStream != null) {
+      final OBytesContainer in = new OBytesContainer(iStream);
+      in.skip(1);
+      stats.documents = OVarIntSerializer.readUnsignedVarLong(in);
+      stats.totalLength = OVarIntSerializer.readUnsignedVarLong(in);
+      stats.words = OVarIntSerializer.readUnsignedVarLong(in);
+    }
+    return stats;
+  }
+
+  public byte[] toStream() {
+    final OBytesContainer out = new OBytesContainer(new byte[16]);
+    out.bytes[out.alloc(1)] = TYPE;
+    OVarIntSerializer.writeUnsigned(out, documents);
+    OVarIntSerializer.writeUnsigned(out, totalLength);
+    OVarIntSerializer.writeUnsigned(out, words);
+    return out.fitBytes();
+  }
+
+  public void addDocument(final int iLength) {
+    documents++;
+    totalLength += iLength;
+  }
+
+  public void removeDocument(final int iLength) {
+    documents = Math.max(0, documents - 1);
+    totalLength = Math.max(0, totalLength - iLength);
+  }
+
+  public void addWord() {
+    words++;
+  }
+
+  public void removeWord() {
+    words = Math.max(0, words - 1);
+  }
+
+  public long getDocuments() {
+    return documents;
+  }
+
+  public long getTotalLength() {
+    return totalLength;
+  }
+
+  public long getWords() {
+    return words;
+  }
+
+  public double getAverageLength() {
+    return documents > 0 ? (double) totalLength / documents : 1;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import com.orientechnologies.orient.core.id.ORID;
+
+/**
+ * Occurrences of a word in a record: the positions of the word among the words of the indexed text and the length of the text in
+ * words, used to rank the results.
+ */
+public class OFullTextPosting {
+  private final ORID  rid;
+  private final int   length;
+  private final int[] positions;
+
+  public OFullTextPosting(final ORID iRid, final int iLength, final int[] iPositions) {
+    rid = iRid;
+    length = iLength;
+    positions = iPositions;
+  }
+
+  public ORID getRid() {
+    return rid;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * @return positions of the word in ascending order
+   */
+  public int[] getPositions() {
+    return positions;
+  }
+
+  public int getFrequency() {
+    return positions.length;
+  }
+
+  public boolean containsPosition(final int iPosition) {
+    int low = 0;
+    int high = positions.length - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (positions[mid] < iPosition)
+        low = mid + 1;
+      else if (positions[mid] > iPosition)
+        high = mid - 1;
+      else
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Merges the occurrences of the same record indexed more times, as happens with the items of collections.
+   */
+  public OFullTextPosting merge(final OFullTextPosting iOther) {
+    final int[] merged = new int[positions.length + iOther.positions.length];
+    int i = 0, j = 0, k = 0;
+    while (i < positions.length && j < iOther.positions.length)
+      merged[k++] = positions[i] <= iOther.positions[j] ? positions[i++] : iOther.positions[j++];
+    while (i < positions.length)
+      merged[k++] = positions[i++];
+    while (j < iOther.positions.length)
+      merged[k++] = iOther.positions[j++];
+
+    return new OFullTextPosting(rid, length + iOther.length, merged);
+  }
+
+  @Override
+  public String toString() {
+    return rid + " (length=" + length + ", frequency=" + positions.length + ")";
+  }
+}
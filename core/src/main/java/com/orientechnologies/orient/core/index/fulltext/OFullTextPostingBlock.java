@@ -0,0 +1,258 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OBytesContainer;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.OVarIntSerializer;
+
+/**
+ * Block of the posting list of a word. The list is split in blocks of limited size: the head block, stored under the word, receives
+ * the new postings and, once full, is sealed in a chunk block stored under its own key. So adding a posting costs the same no
+ * matter how many records contain the word.<br/>
+ * Postings are stored as varints: the RID as difference from the previous one, the length of the text, the frequency and the
+ * positions as differences from the previous one.
+ * 
+ * <pre>
+ * HEAD:  [type][frequency][chunks][count][last cluster id][last cluster position][postings]
+ * CHUNK: [type][count][postings]
+ * </pre>
+ */
+public class OFullTextPostingBlock {
+  public static final byte TYPE_HEAD  = 1;
+  public static final byte TYPE_CHUNK = 2;
+
+  private final byte       type;
+  private int              frequency;
+  private int              chunks;
+  private int              count;
+  private int              lastClusterId;
+  private long             lastClusterPosition;
+  private OBytesContainer  postings;
+
+  private OFullTextPostingBlock(final byte iType) {
+    type = iType;
+    postings = new OBytesContainer();
+  }
+
+  public static OFullTextPostingBlock newHead() {
+    return new OFullTextPostingBlock(TYPE_HEAD);
+  }
+
+  public static boolean isPostingBlock(final byte[] iStream) {
+    return iStream != null && iStream.length > 0 && (iStream[0] == TYPE_HEAD || iStream[0] == TYPE_CHUNK);
+  }
+
+  public static OFullTextPostingBlock fromStream(final byte[] iStream) {
+    final OBytesContainer in = new OBytesContainer(iStream);
+    final OFullTextPostingBlock block = new OFullTextPostingBlock(iStream[in.offset++]);
+    if (block.type == TYPE_HEAD) {
+      block.frequency = (int) OVarIntSerializer.readUnsignedVarLong(in);
+      block.chunks = (int) OVarIntSerializer.readUnsignedVarLong(in);
+    }
+    block.count = (int) OVarIntSerializer.readUnsignedVarLong(in);
+    if (block.type == TYPE_HEAD) {
+      block.lastClusterId = OVarIntSerializer.readAsInteger(in);
+      block.lastClusterPosition = OVarIntSerializer.readAsLong(in);
+    }
+
+    final int size = iStream.length - in.offset;
+    // RESERVE FIRST: ALLOC CAN REPLACE THE ARRAY
+    final int pos = block.postings.alloc(size);
+    System.arraycopy(iStream, in.offset, block.postings.bytes, pos, size);
+    return block;
+  }
+
+  public byte[] toStream() {
+    final OBytesContainer out = new OBytesContainer(new byte[postings.offset + 24]);
+    out.bytes[out.alloc(1)] = type;
+    if (type == TYPE_HEAD) {
+      OVarIntSerializer.writeUnsigned(out, frequency);
+      OVarIntSerializer.writeUnsigned(out, chunks);
+    }
+    OVarIntSerializer.writeUnsigned(out, count);
+    if (type == TYPE_HEAD) {
+      OVarIntSerializer.write(out, lastClusterId);
+      OVarIntSerializer.write(out, lastClusterPosition);
+    }
+
+    final int pos = out.alloc(postings.offset);
+    System.arraycopy(postings.bytes, 0, out.bytes, pos, postings.offset);
+    return out.fitBytes();
+  }
+
+  public void append(final OFullTextPosting iPosting) {
+    final ORID rid = iPosting.getRid();
+    OVarIntSerializer.write(postings, rid.getClusterId() - lastClusterId);
+    lastClusterId = rid.getClusterId();
+
+    final OClusterPosition position = rid.getClusterPosition();
+    if (OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong) {
+      OVarIntSerializer.write(postings, position.longValue() - lastClusterPosition);
+      lastClusterPosition = position.longValue();
+    } else {
+      final byte[] stream = position.toStream();
+      final int pos = postings.alloc(stream.length);
+      System.arraycopy(stream, 0, postings.bytes, pos, stream.length);
+    }
+
+    OVarIntSerializer.writeUnsigned(postings, iPosting.getLength());
+
+    final int[] positions = iPosting.getPositions();
+    OVarIntSerializer.writeUnsigned(postings, positions.length);
+    int last = 0;
+    for (int p : positions) {
+      OVarIntSerializer.writeUnsigned(postings, p - last);
+      last = p;
+    }
+
+    count++;
+    if (type == TYPE_HEAD)
+      frequency++;
+  }
+
+  public List<OFullTextPosting> getPostings() {
+    final List<OFullTextPosting> result = new ArrayList<OFullTextPosting>(count);
+
+    final OBytesContainer in = new OBytesContainer(postings.bytes);
+    int clusterId = 0;
+    long clusterPosition = 0;
+    for (int i = 0; i < count; ++i) {
+      clusterId += OVarIntSerializer.readAsInteger(in);
+
+      final OClusterPosition position;
+      if (OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong) {
+        clusterPosition += OVarIntSerializer.readAsLong(in);
+        position = OClusterPositionFactory.INSTANCE.valueOf(clusterPosition);
+      } else {
+        position = OClusterPositionFactory.INSTANCE.fromStream(in.bytes, in.offset);
+        in.skip(OClusterPositionFactory.INSTANCE.getSerializedSize());
+      }
+
+      final int length = (int) OVarIntSerializer.readUnsignedVarLong(in);
+      final int[] positions = new int[(int) OVarIntSerializer.readUnsignedVarLong(in)];
+      int last = 0;
+      for (int k = 0; k < positions.length; ++k) {
+        last += (int) OVarIntSerializer.readUnsignedVarLong(in);
+        positions[k] = last;
+      }
+
+      result.add(new OFullTextPosting(new ORecordId(clusterId, position), length, positions));
+    }
+    return result;
+  }
+
+  public List<OIdentifiable> getIdentities() {
+    final List<OFullTextPosting> list = getPostings();
+    final List<OIdentifiable> result = new ArrayList<OIdentifiable>(list.size());
+    for (OFullTextPosting posting : list)
+      result.add(posting.getRid());
+    return result;
+  }
+
+  /**
+   * Removes the first posting of the record, if any. The block is encoded again.
+   * 
+   * @return the posting removed, otherwise null
+   */
+  public OFullTextPosting remove(final ORID iRid) {
+    final List<OFullTextPosting> list = getPostings();
+    for (int i = 0; i < list.size(); ++i)
+      if (list.get(i).getRid().equals(iRid)) {
+        final OFullTextPosting removed = list.remove(i);
+        setPostings(list);
+        if (type == TYPE_HEAD)
+          frequency--;
+        return removed;
+      }
+    return null;
+  }
+
+  /**
+   * Moves the postings of the head in a new chunk block.
+   * 
+   * @return the chunk to store under the key of the last chunk
+   */
+  public OFullTextPostingBlock seal() {
+    final OFullTextPostingBlock chunk = new OFullTextPostingBlock(TYPE_CHUNK);
+    chunk.count = count;
+    chunk.postings = postings;
+
+    postings = new OBytesContainer();
+    count = 0;
+    lastClusterId = 0;
+    lastClusterPosition = 0;
+    chunks++;
+    return chunk;
+  }
+
+  /**
+   * Called when the postings of a chunk are removed.
+   */
+  public void decrementFrequency() {
+    frequency--;
+  }
+
+  public byte getType() {
+    return type;
+  }
+
+  /**
+   * @return number of postings in the whole list. Available only in the head.
+   */
+  public int getFrequency() {
+    return frequency;
+  }
+
+  /**
+   * @return number of chunks sealed. Available only in the head.
+   */
+  public int getChunks() {
+    return chunks;
+  }
+
+  /**
+   * @return number of postings in the block
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return size of the encoded postings in bytes
+   */
+  public int getSize() {
+    return postings.offset;
+  }
+
+  private void setPostings(final List<OFullTextPosting> iPostings) {
+    final int oldFrequency = frequency;
+    postings = new OBytesContainer();
+    count = 0;
+    lastClusterId = 0;
+    lastClusterPosition = 0;
+    for (OFullTextPosting posting : iPostings)
+      append(posting);
+    frequency = oldFrequency;
+  }
+}
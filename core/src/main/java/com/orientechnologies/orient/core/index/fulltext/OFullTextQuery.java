@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsed full-text query: the words every result must contain and the phrases, sequences of words that must appear one after the
+ * other. Results are ranked with Okapi BM25.
+ */
+public class OFullTextQuery {
+  private final List<String> words   = new ArrayList<String>();
+  private final List<int[]>  phrases = new ArrayList<int[]>();
+
+  /**
+   * Adds a word to match.
+   * 
+   * @return index of the word
+   */
+  public int addWord(final String iWord) {
+    final int index = words.indexOf(iWord);
+    if (index > -1)
+      return index;
+
+    words.add(iWord);
+    return words.size() - 1;
+  }
+
+  /**
+   * Adds a phrase.
+   * 
+   * @param iWords
+   *          words of the phrase
+   * @param iPositions
+   *          positions of the words in the phrase. Gaps are allowed, for example where stop words were removed
+   */
+  public void addPhrase(final List<String> iWords, final List<Integer> iPositions) {
+    // PAIRS OF (WORD INDEX, POSITION RELATIVE TO THE FIRST WORD)
+    final int[] phrase = new int[iWords.size() * 2];
+    for (int i = 0; i < iWords.size(); ++i) {
+      phrase[i * 2] = addWord(iWords.get(i));
+      phrase[i * 2 + 1] = iPositions.get(i) - iPositions.get(0);
+    }
+
+    if (iWords.size() > 1)
+      phrases.add(phrase);
+  }
+
+  public List<String> getWords() {
+    return words;
+  }
+
+  public boolean isEmpty() {
+    return words.isEmpty();
+  }
+
+  /**
+   * Checks the phrases against the postings of a record.
+   * 
+   * @param iPostings
+   *          postings of the record, one per word in the order of {@link #getWords()}
+   */
+  public boolean matchesPhrases(final OFullTextPosting[] iPostings) {
+    for (int[] phrase : phrases)
+      if (!matchesPhrase(phrase, iPostings))
+        return false;
+    return true;
+  }
+
+  /**
+   * Computes the BM25 score of a record.
+   * 
+   * @param iPostings
+   *          postings of the record, one per word in the order of {@link #getWords()}
+   * @param iFrequencies
+   *          number of records containing each word
+   */
+  public double score(final OFullTextPosting[] iPostings, final int[] iFrequencies, final OFullTextIndexStats iStats,
+      final double iK1, final double iB) {
+    final double averageLength = iStats.getAverageLength();
+
+    double score = 0;
+    for (int i = 0; i < iPostings.length; ++i) {
+      final long documents = Math.max(iStats.getDocuments(), iFrequencies[i]);
+      final double idf = Math.log(1 + (documents - iFrequencies[i] + 0.5) / (iFrequencies[i] + 0.5));
+
+      final int frequency = iPostings[i].getFrequency();
+      final double norm = iK1 * (1 - iB + iB * iPostings[i].getLength() / averageLength);
+      score += idf * frequency * (iK1 + 1) / (frequency + norm);
+    }
+    return score;
+  }
+
+  private boolean matchesPhrase(final int[] iPhrase, final OFullTextPosting[] iPostings) {
+    for (int start : iPostings[iPhrase[0]].getPositions()) {
+      boolean match = true;
+      for (int i = 2; i < iPhrase.length && match; i += 2)
+        match = iPostings[iPhrase[i]].containsPosition(start + iPhrase[i + 1]);
+
+      if (match)
+        return true;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "words=" + words + ", phrases=" + phrases.size();
+  }
+}
@@ -255,8 +255,10 @@ public class OLocalHashTable<K, V> extends ODurableComponent {
   protected void logPageChanges(ODurablePage localPage, long fileId, long pageIndex, boolean isNewPage) throws IOException {
     final OStorageTransaction transaction = storage.getStorageTransaction();
 
-    if (transaction == null && !durableInNonTxMode)
+    if (transaction == null && !durableInNonTxMode) {
+      markUnloggedPageChanges(localPage);
       return;
+    }
 
     super.logPageChanges(localPage, fileId, pageIndex, isNewPage);
   }
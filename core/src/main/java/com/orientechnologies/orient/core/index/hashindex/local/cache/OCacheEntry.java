@@ -1,17 +1,28 @@
 package com.orientechnologies.orient.core.index.hashindex.local.cache;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * @author Andrey Lomakin
  * @since 7/23/13
  */
 public class OCacheEntry {
-  OCachePointer dataPointer;
+  private static final AtomicIntegerFieldUpdater<OCacheEntry> USAGES_COUNT = AtomicIntegerFieldUpdater.newUpdater(
+                                                                               OCacheEntry.class, "usagesCount");
+  private static final int                                    EVICTED      = -1;
+
+  volatile OCachePointer                                      dataPointer;
+
+  final long                                                  fileId;
+  final long                                                  pageIndex;
 
-  final long    fileId;
-  final long    pageIndex;
+  volatile boolean                                            isDirty;
+  volatile int                                                usagesCount;
 
-  boolean       isDirty;
-  int           usagesCount;
+  /**
+   * Set by the cache hits which do not lock the cache, used to give the page a second chance before it is removed from the cache.
+   */
+  volatile boolean                                            recentlyUsed;
 
   public OCacheEntry(long fileId, long pageIndex, OCachePointer dataPointer, boolean dirty) {
     this.fileId = fileId;
@@ -37,6 +48,39 @@ public class OCacheEntry {
     return pageIndex;
   }
 
+  /**
+   * Increments the usages counter, unless the page is being removed from the cache.
+   * 
+   * @return <code>false</code> if the page is being removed from the cache
+   */
+  boolean acquire() {
+    while (true) {
+      final int usages = usagesCount;
+      if (usages == EVICTED)
+        return false;
+
+      if (USAGES_COUNT.compareAndSet(this, usages, usages + 1))
+        return true;
+    }
+  }
+
+  /**
+   * Marks the page as removed from the cache if it is not used, so it can not be acquired any more.
+   * 
+   * @return <code>false</code> if the page is used
+   */
+  boolean evict() {
+    return USAGES_COUNT.compareAndSet(this, 0, EVICTED);
+  }
+
+  boolean compareAndSetUsagesCount(final int expected, final int usages) {
+    return USAGES_COUNT.compareAndSet(this, expected, usages);
+  }
+
+  void decrementUsagesCount() {
+    USAGES_COUNT.decrementAndGet(this);
+  }
+
 	public void acquireExclusiveLock() {
 		dataPointer.acquireExclusiveLock();
 	}
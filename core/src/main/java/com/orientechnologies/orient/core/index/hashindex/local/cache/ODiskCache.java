@@ -110,6 +110,11 @@ public interface ODiskCache {
 
   boolean isOpen(long fileId);
 
+  /**
+   * @return id of the file with passed name, or <code>-1</code> if such file is not opened
+   */
+  long isOpen(String fileName) throws IOException;
+
   boolean exists(String name);
 
 	boolean exists(long fileId);
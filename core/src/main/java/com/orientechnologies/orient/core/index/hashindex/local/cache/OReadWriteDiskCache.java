@@ -21,40 +21,38 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * 2Q read cache on top of {@link OWOWCache}. Cache content can be split into several independent segments (see
+ * {@link OGlobalConfiguration#DISK_CACHE_CONCURRENCY_LEVEL}), each of them has its own 2Q queues and its own lock, so page
+ * loads and releases of pages which belong to different segments do not contend with each other. Cache hits do not lock at all:
+ * pages in memory are found in a concurrent map of the segment and acquired by a CAS on their usages counter, and the 2Q queues
+ * are updated only when the segment needs room for a new page. Operations which change state of the whole file (open, close,
+ * truncate, delete, new page allocation) acquire locks of all segments.
+ * 
  * @author Andrey Lomakin
  * @since 7/24/13
  */
 public class OReadWriteDiskCache implements ODiskCache {
-  public static final int                             MIN_CACHE_SIZE = 256;
+  public static final int      MIN_CACHE_SIZE = 256;
 
-  private int                                         maxSize;
-  private int                                         K_IN;
-  private int                                         K_OUT;
-  private LRUList                                     am;
-  private LRUList                                     a1out;
-  private LRUList                                     a1in;
+  private final OWOWCache      writeCache;
+  private final int            pageSize;
 
-  private final OWOWCache                             writeCache;
-  private final int                                   pageSize;
+  private final Segment[]      segments;
+  private final int            segmentMask;
 
-  /**
-   * Contains all pages in cache for given file.
-   */
-  private final Map<Long, Set<Long>>                  filePages;
-
-  private final Object                                syncObject;
-
-  private final NavigableMap<PinnedPage, OCacheEntry> pinnedPages    = new TreeMap<PinnedPage, OCacheEntry>();
-
-  private final String                                storageName;
+  private final String         storageName;
 
-  private static String                               METRIC_HITS;
-  private static String                               METRIC_HITS_METADATA;
-  private static String                               METRIC_MISSED;
-  private static String                               METRIC_MISSED_METADATA;
+  private static String        METRIC_HITS;
+  private static String        METRIC_HITS_METADATA;
+  private static String        METRIC_MISSED;
+  private static String        METRIC_MISSED_METADATA;
 
   public OReadWriteDiskCache(final long readCacheMaxMemory, final long writeCacheMaxMemory, final int pageSize,
       final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
@@ -66,70 +64,125 @@ public class OReadWriteDiskCache implements ODiskCache {
   public OReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
       final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
       final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize) {
+    this(storageName, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL, pageFlushInterval, storageLocal,
+        writeAheadLog, syncOnPageFlush, checkMinSize, 1);
+  }
+
+  public OReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
+      final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize, final int concurrencyLevel) {
     this.storageName = storageName;
     this.pageSize = pageSize;
 
-    initProfiler();
-
-    this.filePages = new HashMap<Long, Set<Long>>();
-
-    maxSize = normalizeMemory(readCacheMaxMemory, pageSize);
+    int maxSize = normalizeMemory(readCacheMaxMemory, pageSize);
     if (checkMinSize && maxSize < MIN_CACHE_SIZE)
       maxSize = MIN_CACHE_SIZE;
 
+    int segmentsCount = 1;
+    while (segmentsCount < concurrencyLevel && (maxSize / (segmentsCount << 1)) >= MIN_CACHE_SIZE)
+      segmentsCount <<= 1;
+
     this.writeCache = new OWOWCache(syncOnPageFlush, pageSize, writeGroupTTL, writeAheadLog, pageFlushInterval, normalizeMemory(
         writeCacheMaxMemory, pageSize), storageLocal, checkMinSize);
 
-    K_IN = maxSize >> 2;
-    K_OUT = maxSize >> 1;
+    segments = new Segment[segmentsCount];
+    segmentMask = segmentsCount - 1;
 
-    am = new LRUList();
-    a1out = new LRUList();
-    a1in = new LRUList();
+    final int segmentSize = maxSize / segmentsCount;
+    for (int i = 0; i < segmentsCount; i++)
+      segments[i] = new Segment(i < segmentsCount - 1 ? segmentSize : maxSize - segmentSize * (segmentsCount - 1));
 
-    syncObject = new Object();
+    initProfiler();
   }
 
+  /**
+   * @return Am queue of the cache. If cache is split into several segments, snapshot of queues of all segments is returned.
+   */
   LRUList getAm() {
+    if (segments.length == 1)
+      return segments[0].am;
+
+    final LRUList am = new LRUList();
+    for (Segment segment : segments)
+      copyQueue(segment.am, am, segment);
     return am;
   }
 
+  /**
+   * @return A1out queue of the cache. If cache is split into several segments, snapshot of queues of all segments is returned.
+   */
   LRUList getA1out() {
+    if (segments.length == 1)
+      return segments[0].a1out;
+
+    final LRUList a1out = new LRUList();
+    for (Segment segment : segments)
+      copyQueue(segment.a1out, a1out, segment);
     return a1out;
   }
 
+  /**
+   * @return A1in queue of the cache. If cache is split into several segments, snapshot of queues of all segments is returned.
+   */
   LRUList getA1in() {
+    if (segments.length == 1)
+      return segments[0].a1in;
+
+    final LRUList a1in = new LRUList();
+    for (Segment segment : segments)
+      copyQueue(segment.a1in, a1in, segment);
     return a1in;
   }
 
+  private static void copyQueue(final LRUList source, final LRUList destination, final Segment segment) {
+    segment.lock.lock();
+    try {
+      for (OCacheEntry entry : source)
+        destination.putToMRU(entry);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  int getSegmentsCount() {
+    return segments.length;
+  }
+
   @Override
   public long openFile(final String fileName) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       long fileId = writeCache.isOpen(fileName);
       if (fileId >= 0)
         return fileId;
 
       fileId = writeCache.openFile(fileName);
-      filePages.put(fileId, new HashSet<Long>());
+      registerFile(fileId);
 
       return fileId;
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void openFile(final long fileId) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       if (writeCache.isOpen(fileId))
         return;
 
       writeCache.openFile(fileId);
-      filePages.put(fileId, new HashSet<Long>());
+      registerFile(fileId);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void openFile(String fileName, long fileId) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       long existingFileId = writeCache.isOpen(fileName);
 
       if (fileId == existingFileId)
@@ -139,29 +192,25 @@ public class OReadWriteDiskCache implements ODiskCache {
             + fileId);
 
       writeCache.openFile(fileName, fileId);
-      filePages.put(fileId, new HashSet<Long>());
+      registerFile(fileId);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public boolean exists(final String fileName) {
-    synchronized (syncObject) {
-      return writeCache.exists(fileName);
-    }
+    return writeCache.exists(fileName);
   }
 
   @Override
   public boolean exists(long fileId) {
-    synchronized (syncObject) {
-      return writeCache.exists(fileId);
-    }
+    return writeCache.exists(fileId);
   }
 
   @Override
   public String fileNameById(long fileId) {
-    synchronized (syncObject) {
-      return writeCache.fileNameById(fileId);
-    }
+    return writeCache.fileNameById(fileId);
   }
 
   @Override
@@ -176,55 +225,90 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void pinPage(final OCacheEntry cacheEntry) throws IOException {
-    synchronized (syncObject) {
-      remove(cacheEntry.fileId, cacheEntry.pageIndex);
-      pinnedPages.put(new PinnedPage(cacheEntry.fileId, cacheEntry.pageIndex), cacheEntry);
+    final Segment segment = segmentFor(cacheEntry.fileId, cacheEntry.pageIndex);
+    segment.lock.lock();
+    try {
+      segment.remove(cacheEntry.fileId, cacheEntry.pageIndex);
+      segment.pinnedPages.put(new PageKey(cacheEntry.fileId, cacheEntry.pageIndex), cacheEntry);
+    } finally {
+      segment.lock.unlock();
     }
   }
 
   @Override
   public void loadPinnedPage(final OCacheEntry cacheEntry) throws IOException {
-    synchronized (syncObject) {
-      cacheEntry.usagesCount++;
-    }
+    // PINNED PAGES ARE REMOVED ONLY WHEN THE FILE IS CLOSED
+    final boolean acquired = cacheEntry.acquire();
+    assert acquired;
   }
 
   @Override
   public OCacheEntry load(final long fileId, final long pageIndex, final boolean checkPinnedPages) throws IOException {
-    synchronized (syncObject) {
+    final Segment segment = segmentFor(fileId, pageIndex);
+
+    if (checkPinnedPages) {
+      final OCacheEntry cacheEntry = segment.acquireLoadedPage(fileId, pageIndex);
+      if (cacheEntry != null)
+        return cacheEntry;
+    }
+
+    segment.lock.lock();
+    try {
       OCacheEntry cacheEntry = null;
       if (checkPinnedPages)
-        cacheEntry = pinnedPages.get(new PinnedPage(fileId, pageIndex));
+        cacheEntry = segment.pinnedPages.get(new PageKey(fileId, pageIndex));
 
       if (cacheEntry == null)
-        cacheEntry = updateCache(fileId, pageIndex);
+        cacheEntry = segment.updateCache(fileId, pageIndex);
+
+      // PAGES IN THE QUEUES ARE REMOVED ONLY UNDER THE SEGMENT LOCK
+      final boolean acquired = cacheEntry.acquire();
+      assert acquired;
 
-      cacheEntry.usagesCount++;
       return cacheEntry;
+    } finally {
+      segment.lock.unlock();
     }
   }
 
+  /**
+   * Holds the locks of all segments as {@link #truncateFile(long)} does, so the new page can not be past a truncation.
+   */
   @Override
   public OCacheEntry allocateNewPage(final long fileId) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       final long filledUpTo = getFilledUpTo(fileId);
       return load(fileId, filledUpTo, false);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void release(OCacheEntry cacheEntry) {
-    Future<?> flushFuture = null;
-    synchronized (syncObject) {
-      if (cacheEntry != null)
-        cacheEntry.usagesCount--;
-      else
-        throw new IllegalStateException("record should be released is already free!");
+    if (cacheEntry == null)
+      throw new IllegalStateException("record should be released is already free!");
+
+    if (releaseWithoutStore(cacheEntry))
+      return;
 
-      if (cacheEntry.usagesCount == 0 && cacheEntry.isDirty) {
-        flushFuture = writeCache.store(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry.dataPointer);
-        cacheEntry.isDirty = false;
+    Future<?> flushFuture = null;
+    final Segment segment = segmentFor(cacheEntry.fileId, cacheEntry.pageIndex);
+    segment.lock.lock();
+    try {
+      while (true) {
+        final int usagesCount = cacheEntry.usagesCount;
+
+        if (usagesCount == 1 && cacheEntry.isDirty) {
+          // CLEARED BEFORE THE STORE, SO CHANGES OF A USER WHICH ACQUIRES THE PAGE IN THE MEANTIME ARE STORED ON ITS RELEASE
+          cacheEntry.isDirty = false;
+          flushFuture = writeCache.store(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry.dataPointer);
+        } else if (cacheEntry.compareAndSetUsagesCount(usagesCount, usagesCount - 1))
+          break;
       }
+    } finally {
+      segment.lock.unlock();
     }
 
     if (flushFuture != null) {
@@ -239,11 +323,24 @@ public class OReadWriteDiskCache implements ODiskCache {
     }
   }
 
+  /**
+   * Releases the page without locking the segment, unless this is the last usage of a dirty page, which has to be stored in the
+   * write cache before the page can be removed from the cache.
+   */
+  private static boolean releaseWithoutStore(final OCacheEntry cacheEntry) {
+    while (true) {
+      final int usagesCount = cacheEntry.usagesCount;
+      if (usagesCount == 1 && cacheEntry.isDirty)
+        return false;
+
+      if (cacheEntry.compareAndSetUsagesCount(usagesCount, usagesCount - 1))
+        return true;
+    }
+  }
+
   @Override
   public long getFilledUpTo(long fileId) throws IOException {
-    synchronized (syncObject) {
-      return writeCache.getFilledUpTo(fileId);
-    }
+    return writeCache.getFilledUpTo(fileId);
   }
 
   @Override
@@ -258,85 +355,53 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void closeFile(long fileId, boolean flush) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       writeCache.close(fileId, flush);
 
-      final Set<Long> pageIndexes = filePages.get(fileId);
-
-      for (Long pageIndex : pageIndexes) {
-        OCacheEntry cacheEntry = get(fileId, pageIndex, true);
-        if (cacheEntry == null)
-          cacheEntry = pinnedPages.get(new PinnedPage(fileId, pageIndex));
-
-        if (cacheEntry != null) {
-          if (cacheEntry.dataPointer != null) {
-            if (cacheEntry.usagesCount == 0) {
-              cacheEntry = remove(fileId, pageIndex);
-
-              if (cacheEntry == null)
-                cacheEntry = pinnedPages.remove(new PinnedPage(fileId, pageIndex));
-            } else
-              throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId
-                  + " can not be freed because it is used.");
-
-            cacheEntry.dataPointer.decrementReferrer();
-            cacheEntry.dataPointer = null;
-          }
-        } else {
-          throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId + " was not found in cache");
-        }
-      }
-
-      pageIndexes.clear();
+      for (Segment segment : segments)
+        segment.closeFile(fileId);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void deleteFile(long fileId) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       if (isOpen(fileId))
         truncateFile(fileId);
 
       writeCache.deleteFile(fileId);
-      filePages.remove(fileId);
+
+      for (Segment segment : segments)
+        segment.filePages.remove(fileId);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void truncateFile(long fileId) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       writeCache.truncateFile(fileId);
 
-      final Set<Long> pageEntries = filePages.get(fileId);
-      for (Long pageIndex : pageEntries) {
-        OCacheEntry cacheEntry = get(fileId, pageIndex, true);
-        if (cacheEntry == null)
-          cacheEntry = pinnedPages.get(new PinnedPage(fileId, pageIndex));
-
-        if (cacheEntry != null) {
-          if (cacheEntry.usagesCount == 0) {
-            cacheEntry = remove(fileId, pageIndex);
-            if (cacheEntry == null)
-              cacheEntry = pinnedPages.remove(new PinnedPage(fileId, pageIndex));
-
-            if (cacheEntry.dataPointer != null) {
-              cacheEntry.dataPointer.decrementReferrer();
-              cacheEntry.dataPointer = null;
-            }
-
-          }
-        } else
-          throw new OStorageException("Page with index " + pageIndex + " was  not found in cache for file with id " + fileId);
-      }
-
-      pageEntries.clear();
+      for (Segment segment : segments)
+        segment.truncateFile(fileId);
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public void renameFile(long fileId, String oldFileName, String newFileName) throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       writeCache.renameFile(fileId, oldFileName, newFileName);
+    } finally {
+      unlockAllSegments();
     }
   }
 
@@ -349,99 +414,186 @@ public class OReadWriteDiskCache implements ODiskCache {
   public void clear() throws IOException {
     writeCache.flush();
 
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       clearCacheContent();
+    } finally {
+      unlockAllSegments();
     }
   }
 
   private void clearCacheContent() {
-    for (OCacheEntry cacheEntry : am)
-      if (cacheEntry.usagesCount == 0) {
-        cacheEntry.dataPointer.decrementReferrer();
-        cacheEntry.dataPointer = null;
-      }
-
-      else
-        throw new OStorageException("Page with index " + cacheEntry.pageIndex + " for file id " + cacheEntry.fileId
-            + " is used and can not be removed");
-
-    for (OCacheEntry cacheEntry : a1in)
-      if (cacheEntry.usagesCount == 0) {
-        cacheEntry.dataPointer.decrementReferrer();
-        cacheEntry.dataPointer = null;
-      }
-
-      else
-        throw new OStorageException("Page with index " + cacheEntry.pageIndex + " for file id " + cacheEntry.fileId
-            + " is used and can not be removed");
-
-    a1out.clear();
-    am.clear();
-    a1in.clear();
-
-    for (Set<Long> pages : filePages.values())
-      pages.clear();
-
-    clearPinnedPages();
-  }
-
-  private void clearPinnedPages() {
-    for (OCacheEntry pinnedEntry : pinnedPages.values()) {
-      if (pinnedEntry.usagesCount == 0) {
-        pinnedEntry.dataPointer.decrementReferrer();
-        pinnedEntry.dataPointer = null;
-      } else
-        throw new OStorageException("Page with index " + pinnedEntry.pageIndex + " for file with id " + pinnedEntry.fileId
-            + "can not be freed because it is used.");
-    }
-
-    pinnedPages.clear();
+    for (Segment segment : segments)
+      segment.clearCacheContent();
   }
 
   @Override
   public void close() throws IOException {
-    synchronized (syncObject) {
+    lockAllSegments();
+    try {
       clear();
       writeCache.close();
+    } finally {
+      unlockAllSegments();
     }
   }
 
   @Override
   public boolean wasSoftlyClosed(long fileId) throws IOException {
-    synchronized (syncObject) {
-      return writeCache.wasSoftlyClosed(fileId);
-    }
+    return writeCache.wasSoftlyClosed(fileId);
   }
 
   @Override
   public void setSoftlyClosed(long fileId, boolean softlyClosed) throws IOException {
-    synchronized (syncObject) {
-      writeCache.setSoftlyClosed(fileId, softlyClosed);
-    }
+    writeCache.setSoftlyClosed(fileId, softlyClosed);
   }
 
   @Override
   public void setSoftlyClosed(boolean softlyClosed) throws IOException {
-    synchronized (syncObject) {
-      writeCache.setSoftlyClosed(softlyClosed);
-    }
+    writeCache.setSoftlyClosed(softlyClosed);
   }
 
   @Override
   public boolean isOpen(long fileId) {
-    synchronized (syncObject) {
-      return writeCache.isOpen(fileId);
+    return writeCache.isOpen(fileId);
+  }
+
+  @Override
+  public long isOpen(String fileName) throws IOException {
+    return writeCache.isOpen(fileName);
+  }
+
+  @Override
+  public OPageDataVerificationError[] checkStoredPages(OCommandOutputListener commandOutputListener) {
+    return writeCache.checkStoredPages(commandOutputListener);
+  }
+
+  @Override
+  public Set<ODirtyPage> logDirtyPagesTable() throws IOException {
+    return writeCache.logDirtyPagesTable();
+  }
+
+  @Override
+  public void delete() throws IOException {
+    lockAllSegments();
+    try {
+      writeCache.delete();
+
+      clearCacheContent();
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  int getMaxSize() {
+    int maxSize = 0;
+    for (Segment segment : segments)
+      maxSize += segment.maxSize;
+
+    return maxSize;
+  }
+
+  private int getSize() {
+    int size = 0;
+    for (Segment segment : segments)
+      size += segment.am.size() + segment.a1in.size();
+
+    return size;
+  }
+
+  private Segment segmentFor(final long fileId, final long pageIndex) {
+    if (segmentMask == 0)
+      return segments[0];
+
+    int hash = (int) (fileId ^ (fileId >>> 32));
+    hash = 31 * hash + (int) (pageIndex ^ (pageIndex >>> 32));
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+    return segments[hash & segmentMask];
+  }
+
+  private void registerFile(final long fileId) {
+    for (Segment segment : segments)
+      segment.filePages.put(fileId, new HashSet<Long>());
+  }
+
+  /**
+   * Locks are always acquired in order of segment index, so file wide operations can not deadlock with each other.
+   */
+  private void lockAllSegments() {
+    for (Segment segment : segments)
+      segment.lock.lock();
+  }
+
+  private void unlockAllSegments() {
+    for (int i = segments.length - 1; i >= 0; i--)
+      segments[i].lock.unlock();
+  }
+
+  private int normalizeMemory(long maxSize, int pageSize) {
+    long tmpMaxSize = maxSize / (pageSize + 2 * OWOWCache.PAGE_PADDING);
+    if (tmpMaxSize >= Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    } else {
+      return (int) tmpMaxSize;
     }
   }
 
-  private OCacheEntry updateCache(final long fileId, final long pageIndex) throws IOException {
-    final OProfilerMBean profiler = storageName != null ? Orient.instance().getProfiler() : null;
-    final long startTime = storageName != null ? System.currentTimeMillis() : 0;
+  /**
+   * Part of the read cache which is managed by its own 2Q queues and guarded by its own lock.
+   */
+  private final class Segment {
+    private final Lock                                  lock        = new ReentrantLock();
+
+    private int                                         maxSize;
+    private int                                         K_IN;
+    private int                                         K_OUT;
+
+    private final LRUList                               am          = new LRUList();
+    private final LRUList                               a1out       = new LRUList();
+    private final LRUList                               a1in        = new LRUList();
+
+    /**
+     * Contains all pages of this segment for given file.
+     */
+    private final Map<Long, Set<Long>>                  filePages   = new HashMap<Long, Set<Long>>();
+
+    private final NavigableMap<PageKey, OCacheEntry>    pinnedPages = new TreeMap<PageKey, OCacheEntry>();
+
+    /**
+     * Pages of this segment which are in memory, pinned ones included. Cache hits find them here without locking the segment.
+     */
+    private final ConcurrentMap<PageKey, OCacheEntry>   loadedPages = new ConcurrentHashMap<PageKey, OCacheEntry>();
+
+    private Segment(int maxSize) {
+      this.maxSize = maxSize;
+
+      K_IN = maxSize >> 2;
+      K_OUT = maxSize >> 1;
+    }
 
-    OCacheEntry cacheEntry = am.get(fileId, pageIndex);
+    /**
+     * Acquires the page if it is in memory, without locking the segment.
+     * 
+     * @return the acquired page, or <code>null</code> if the page has to be loaded under the segment lock
+     */
+    private OCacheEntry acquireLoadedPage(final long fileId, final long pageIndex) {
+      final OProfilerMBean profiler = storageName != null ? Orient.instance().getProfiler() : null;
+      final long startTime = storageName != null ? System.currentTimeMillis() : 0;
+
+      final PageKey pageKey = new PageKey(fileId, pageIndex);
+      final OCacheEntry cacheEntry = loadedPages.get(pageKey);
+      if (cacheEntry == null || !cacheEntry.acquire())
+        return null;
+
+      if (loadedPages.get(pageKey) != cacheEntry) {
+        // REMOVED FROM THE CACHE BEFORE IT WAS ACQUIRED
+        cacheEntry.decrementUsagesCount();
+        return null;
+      }
 
-    if (cacheEntry != null) {
-      am.putToMRU(cacheEntry);
+      cacheEntry.recentlyUsed = true;
 
       if (profiler != null && profiler.isRecording())
         profiler.stopChrono(METRIC_HITS, "Requested item was found in Disk Cache", startTime, METRIC_HITS_METADATA);
@@ -449,177 +601,289 @@ public class OReadWriteDiskCache implements ODiskCache {
       return cacheEntry;
     }
 
-    if (profiler != null && profiler.isRecording())
-      profiler.stopChrono(METRIC_MISSED, "Requested item was not found in Disk Cache", startTime, METRIC_MISSED_METADATA);
+    private OCacheEntry updateCache(final long fileId, final long pageIndex) throws IOException {
+      final OProfilerMBean profiler = storageName != null ? Orient.instance().getProfiler() : null;
+      final long startTime = storageName != null ? System.currentTimeMillis() : 0;
+
+      OCacheEntry cacheEntry = am.get(fileId, pageIndex);
+
+      if (cacheEntry != null) {
+        am.putToMRU(cacheEntry);
+
+        if (profiler != null && profiler.isRecording())
+          profiler.stopChrono(METRIC_HITS, "Requested item was found in Disk Cache", startTime, METRIC_HITS_METADATA);
+
+        return cacheEntry;
+      }
+
+      if (profiler != null && profiler.isRecording())
+        profiler.stopChrono(METRIC_MISSED, "Requested item was not found in Disk Cache", startTime, METRIC_MISSED_METADATA);
+
+      cacheEntry = a1out.remove(fileId, pageIndex);
+      if (cacheEntry != null) {
+        removeColdestPageIfNeeded();
+
+        OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
+        assert cacheEntry.dataPointer == null;
+        assert !cacheEntry.isDirty;
+
+        cacheEntry.dataPointer = dataPointer;
+
+        am.putToMRU(cacheEntry);
+        loadedPages.put(new PageKey(fileId, pageIndex), cacheEntry);
+
+        return cacheEntry;
+      }
+
+      cacheEntry = a1in.get(fileId, pageIndex);
+      if (cacheEntry != null)
+        return cacheEntry;
 
-    cacheEntry = a1out.remove(fileId, pageIndex);
-    if (cacheEntry != null) {
       removeColdestPageIfNeeded();
 
       OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
-      assert cacheEntry.dataPointer == null;
-      assert !cacheEntry.isDirty;
 
-      cacheEntry.dataPointer = dataPointer;
+      cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
+      a1in.putToMRU(cacheEntry);
+      loadedPages.put(new PageKey(fileId, pageIndex), cacheEntry);
 
-      am.putToMRU(cacheEntry);
+      Set<Long> pages = filePages.get(fileId);
+      if (pages == null) {
+        pages = new HashSet<Long>();
+        filePages.put(fileId, pages);
+      }
 
+      pages.add(pageIndex);
       return cacheEntry;
     }
 
-    cacheEntry = a1in.get(fileId, pageIndex);
-    if (cacheEntry != null)
-      return cacheEntry;
+    private void removeColdestPageIfNeeded() throws IOException {
+      if (am.size() + a1in.size() >= maxSize) {
+        if (a1in.size() > K_IN) {
+          OCacheEntry removedFromAInEntry = removeLRU(a1in, false);
 
-    removeColdestPageIfNeeded();
+          if (removedFromAInEntry == null) {
+            increaseCacheSize();
+          } else {
+            assert !removedFromAInEntry.isDirty;
 
-    OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
+            a1out.putToMRU(removedFromAInEntry);
+          }
 
-    cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
-    a1in.putToMRU(cacheEntry);
+          if (a1out.size() > K_OUT) {
+            OCacheEntry removedEntry = a1out.removeLRU();
+            assert removedEntry.dataPointer == null;
+            assert !removedEntry.isDirty;
 
-    Set<Long> pages = filePages.get(fileId);
-    if (pages == null) {
-      pages = new HashSet<Long>();
-      filePages.put(fileId, pages);
-    }
+            Set<Long> pageEntries = filePages.get(removedEntry.fileId);
+            pageEntries.remove(removedEntry.pageIndex);
+          }
+        } else {
+          OCacheEntry removedEntry = removeLRU(am, true);
 
-    pages.add(pageIndex);
-    return cacheEntry;
-  }
+          if (removedEntry == null) {
+            increaseCacheSize();
+          } else {
+            assert !removedEntry.isDirty;
 
-  private void removeColdestPageIfNeeded() throws IOException {
-    if (am.size() + a1in.size() >= maxSize) {
-      if (a1in.size() > K_IN) {
-        OCacheEntry removedFromAInEntry = a1in.removeLRU();
+            Set<Long> pageEntries = filePages.get(removedEntry.fileId);
+            pageEntries.remove(removedEntry.pageIndex);
+          }
+        }
+      }
+    }
 
-        if (removedFromAInEntry == null) {
-          increaseCacheSize();
-        } else {
-          assert removedFromAInEntry.usagesCount == 0;
-          assert !removedFromAInEntry.isDirty;
+    /**
+     * Removes the least recently used page which is not used from the queue and frees its memory. Pages acquired without locking the
+     * segment since they were moved in the queue are moved to the MRU end instead, if <code>secondChance</code> is set.
+     */
+    private OCacheEntry removeLRU(final LRUList queue, final boolean secondChance) {
+      final int size = queue.size();
+      for (int i = 0; i < 2 * size; i++) {
+        final OCacheEntry cacheEntry = queue.removeLRU();
+        if (cacheEntry == null)
+          return null;
+
+        if (secondChance && cacheEntry.recentlyUsed && i < size) {
+          cacheEntry.recentlyUsed = false;
+          queue.putToMRU(cacheEntry);
+        } else if (cacheEntry.evict()) {
+          freePage(cacheEntry);
+          return cacheEntry;
+        } else
+          // ACQUIRED IN THE MEANTIME BY A CACHE HIT
+          queue.putToMRU(cacheEntry);
+      }
 
-          removedFromAInEntry.dataPointer.decrementReferrer();
-          removedFromAInEntry.dataPointer = null;
+      return null;
+    }
 
-          a1out.putToMRU(removedFromAInEntry);
-        }
+    /**
+     * Frees the memory of a page which was evicted by {@link OCacheEntry#evict()}. Once it is out of {@link #loadedPages} the page
+     * can be acquired again, cache hits check that it is still there after they acquired it.
+     */
+    private void freePage(final OCacheEntry cacheEntry) {
+      loadedPages.remove(new PageKey(cacheEntry.fileId, cacheEntry.pageIndex));
 
-        if (a1out.size() > K_OUT) {
-          OCacheEntry removedEntry = a1out.removeLRU();
-          assert removedEntry.dataPointer == null;
-          assert !removedEntry.isDirty;
+      if (cacheEntry.dataPointer != null) {
+        cacheEntry.dataPointer.decrementReferrer();
+        cacheEntry.dataPointer = null;
+      }
 
-          Set<Long> pageEntries = filePages.get(removedEntry.fileId);
-          pageEntries.remove(removedEntry.pageIndex);
-        }
+      cacheEntry.recentlyUsed = false;
+      cacheEntry.usagesCount = 0;
+    }
+
+    private void increaseCacheSize() {
+      String message = "All records in aIn queue in 2q cache are used!";
+      OLogManager.instance().warn(OReadWriteDiskCache.this, message);
+      if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
+        OLogManager.instance().warn(OReadWriteDiskCache.this, "Cache size will be increased.");
+        maxSize = (int) Math.ceil(maxSize * (1 + OGlobalConfiguration.SERVER_CACHE_INCREASE_STEP.getValueAsFloat()));
+        K_IN = maxSize >> 2;
+        K_OUT = maxSize >> 1;
       } else {
-        OCacheEntry removedEntry = am.removeLRU();
+        throw new OAllCacheEntriesAreUsedException(message);
+      }
+    }
 
-        if (removedEntry == null) {
-          increaseCacheSize();
-        } else {
-          assert removedEntry.usagesCount == 0;
-          assert !removedEntry.isDirty;
+    private void closeFile(final long fileId) {
+      final Set<Long> pageIndexes = filePages.get(fileId);
+      if (pageIndexes == null)
+        return;
 
-          removedEntry.dataPointer.decrementReferrer();
-          removedEntry.dataPointer = null;
+      for (Long pageIndex : pageIndexes) {
+        OCacheEntry cacheEntry = get(fileId, pageIndex, true);
+        if (cacheEntry == null)
+          cacheEntry = pinnedPages.get(new PageKey(fileId, pageIndex));
 
-          Set<Long> pageEntries = filePages.get(removedEntry.fileId);
-          pageEntries.remove(removedEntry.pageIndex);
+        if (cacheEntry != null) {
+          if (cacheEntry.dataPointer != null) {
+            if (cacheEntry.evict()) {
+              cacheEntry = remove(fileId, pageIndex);
+
+              if (cacheEntry == null)
+                cacheEntry = pinnedPages.remove(new PageKey(fileId, pageIndex));
+            } else
+              throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId
+                  + " can not be freed because it is used.");
+
+            freePage(cacheEntry);
+          }
+        } else {
+          throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId + " was not found in cache");
         }
       }
-    }
-  }
 
-  private void increaseCacheSize() {
-    String message = "All records in aIn queue in 2q cache are used!";
-    OLogManager.instance().warn(this, message);
-    if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
-      OLogManager.instance().warn(this, "Cache size will be increased.");
-      maxSize = (int) Math.ceil(maxSize * (1 + OGlobalConfiguration.SERVER_CACHE_INCREASE_STEP.getValueAsFloat()));
-      K_IN = maxSize >> 2;
-      K_OUT = maxSize >> 1;
-    } else {
-      throw new OAllCacheEntriesAreUsedException(message);
+      pageIndexes.clear();
     }
-  }
 
-  @Override
-  public OPageDataVerificationError[] checkStoredPages(OCommandOutputListener commandOutputListener) {
-    synchronized (syncObject) {
-      return writeCache.checkStoredPages(commandOutputListener);
-    }
-  }
+    private void truncateFile(final long fileId) {
+      final Set<Long> pageEntries = filePages.get(fileId);
+      if (pageEntries == null)
+        return;
 
-  @Override
-  public Set<ODirtyPage> logDirtyPagesTable() throws IOException {
-    synchronized (syncObject) {
-      return writeCache.logDirtyPagesTable();
+      for (Long pageIndex : pageEntries) {
+        OCacheEntry cacheEntry = get(fileId, pageIndex, true);
+        if (cacheEntry == null)
+          cacheEntry = pinnedPages.get(new PageKey(fileId, pageIndex));
+
+        if (cacheEntry != null) {
+          if (cacheEntry.dataPointer == null) {
+            a1out.remove(fileId, pageIndex);
+          } else if (cacheEntry.evict()) {
+            cacheEntry = remove(fileId, pageIndex);
+            if (cacheEntry == null)
+              cacheEntry = pinnedPages.remove(new PageKey(fileId, pageIndex));
+
+            freePage(cacheEntry);
+          }
+        } else
+          throw new OStorageException("Page with index " + pageIndex + " was  not found in cache for file with id " + fileId);
+      }
+
+      pageEntries.clear();
     }
-  }
 
-  @Override
-  public void delete() throws IOException {
-    synchronized (syncObject) {
-      writeCache.delete();
+    private void clearCacheContent() {
+      for (OCacheEntry cacheEntry : am)
+        if (cacheEntry.evict())
+          freePage(cacheEntry);
 
-      clearCacheContent();
+        else
+          throw new OStorageException("Page with index " + cacheEntry.pageIndex + " for file id " + cacheEntry.fileId
+              + " is used and can not be removed");
+
+      for (OCacheEntry cacheEntry : a1in)
+        if (cacheEntry.evict())
+          freePage(cacheEntry);
+
+        else
+          throw new OStorageException("Page with index " + cacheEntry.pageIndex + " for file id " + cacheEntry.fileId
+              + " is used and can not be removed");
+
+      a1out.clear();
+      am.clear();
+      a1in.clear();
+
+      for (Set<Long> pages : filePages.values())
+        pages.clear();
+
+      clearPinnedPages();
     }
-  }
 
-  int getMaxSize() {
-    return maxSize;
-  }
+    private void clearPinnedPages() {
+      for (OCacheEntry pinnedEntry : pinnedPages.values()) {
+        if (pinnedEntry.evict())
+          freePage(pinnedEntry);
+        else
+          throw new OStorageException("Page with index " + pinnedEntry.pageIndex + " for file with id " + pinnedEntry.fileId
+              + "can not be freed because it is used.");
+      }
 
-  private OCacheEntry get(long fileId, long pageIndex, boolean useOutQueue) {
-    OCacheEntry cacheEntry = am.get(fileId, pageIndex);
+      pinnedPages.clear();
+    }
 
-    if (cacheEntry != null)
-      return cacheEntry;
+    private OCacheEntry get(long fileId, long pageIndex, boolean useOutQueue) {
+      OCacheEntry cacheEntry = am.get(fileId, pageIndex);
 
-    if (useOutQueue) {
-      cacheEntry = a1out.get(fileId, pageIndex);
       if (cacheEntry != null)
         return cacheEntry;
-    }
 
-    cacheEntry = a1in.get(fileId, pageIndex);
-    return cacheEntry;
-  }
+      if (useOutQueue) {
+        cacheEntry = a1out.get(fileId, pageIndex);
+        if (cacheEntry != null)
+          return cacheEntry;
+      }
 
-  private OCacheEntry remove(long fileId, long pageIndex) {
-    OCacheEntry cacheEntry = am.remove(fileId, pageIndex);
-    if (cacheEntry != null) {
-      if (cacheEntry.usagesCount > 1)
-        throw new IllegalStateException("Record cannot be removed because it is used!");
+      cacheEntry = a1in.get(fileId, pageIndex);
       return cacheEntry;
     }
 
-    cacheEntry = a1out.remove(fileId, pageIndex);
-    if (cacheEntry != null) {
-      return cacheEntry;
-    }
-    cacheEntry = a1in.remove(fileId, pageIndex);
-    if (cacheEntry != null && cacheEntry.usagesCount > 1)
-      throw new IllegalStateException("Record cannot be removed because it is used!");
-    return cacheEntry;
-  }
+    private OCacheEntry remove(long fileId, long pageIndex) {
+      OCacheEntry cacheEntry = am.remove(fileId, pageIndex);
+      if (cacheEntry != null) {
+        if (cacheEntry.usagesCount > 1)
+          throw new IllegalStateException("Record cannot be removed because it is used!");
+        return cacheEntry;
+      }
 
-  private int normalizeMemory(long maxSize, int pageSize) {
-    long tmpMaxSize = maxSize / (pageSize + 2 * OWOWCache.PAGE_PADDING);
-    if (tmpMaxSize >= Integer.MAX_VALUE) {
-      return Integer.MAX_VALUE;
-    } else {
-      return (int) tmpMaxSize;
+      cacheEntry = a1out.remove(fileId, pageIndex);
+      if (cacheEntry != null) {
+        return cacheEntry;
+      }
+      cacheEntry = a1in.remove(fileId, pageIndex);
+      if (cacheEntry != null && cacheEntry.usagesCount > 1)
+        throw new IllegalStateException("Record cannot be removed because it is used!");
+      return cacheEntry;
     }
   }
 
-  private class PinnedPage implements Comparable<PinnedPage> {
+  private class PageKey implements Comparable<PageKey> {
     private final long fileId;
     private final long pageIndex;
 
-    private PinnedPage(long fileId, long pageIndex) {
+    private PageKey(long fileId, long pageIndex) {
       this.fileId = fileId;
       this.pageIndex = pageIndex;
     }
@@ -631,7 +895,7 @@ public class OReadWriteDiskCache implements ODiskCache {
       if (o == null || getClass() != o.getClass())
         return false;
 
-      PinnedPage that = (PinnedPage) o;
+      PageKey that = (PageKey) o;
 
       if (fileId != that.fileId)
         return false;
@@ -643,7 +907,7 @@ public class OReadWriteDiskCache implements ODiskCache {
 
     @Override
     public String toString() {
-      return "PinnedPage{" + "fileId=" + fileId + ", pageIndex=" + pageIndex + '}';
+      return "PageKey{" + "fileId=" + fileId + ", pageIndex=" + pageIndex + '}';
     }
 
     @Override
@@ -654,7 +918,7 @@ public class OReadWriteDiskCache implements ODiskCache {
     }
 
     @Override
-    public int compareTo(PinnedPage other) {
+    public int compareTo(PageKey other) {
       if (fileId > other.fileId)
         return 1;
       if (fileId < other.fileId)
@@ -682,7 +946,7 @@ public class OReadWriteDiskCache implements ODiskCache {
           "Total memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
             @Override
             public Object getValue() {
-              return (am.size() + a1in.size()) * pageSize;
+              return getSize() * pageSize;
             }
           }, profiler.getDatabaseMetric(null, "diskCache.totalMemory"));
 
@@ -690,7 +954,7 @@ public class OReadWriteDiskCache implements ODiskCache {
           "Maximum memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
             @Override
             public Object getValue() {
-              return maxSize * pageSize;
+              return getMaxSize() * pageSize;
             }
           }, profiler.getDatabaseMetric(null, "diskCache.maxMemory"));
     }
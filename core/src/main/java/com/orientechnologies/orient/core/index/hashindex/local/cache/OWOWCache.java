@@ -16,12 +16,17 @@
 package com.orientechnologies.orient.core.index.hashindex.local.cache;
 
 import com.orientechnologies.common.concur.lock.OLockManager;
+import com.orientechnologies.common.directmemory.ODirectMemoryPagePool;
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedException;
@@ -52,12 +57,16 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.CRC32;
 
 /**
@@ -76,6 +85,8 @@ public class OWOWCache {
 
   public static final long                                  MAGIC_NUMBER          = 0xFACB03FEL;
 
+  private static final AtomicBoolean                        pagePoolProfiled      = new AtomicBoolean();
+
   private final ConcurrentSkipListMap<GroupKey, WriteGroup> writeGroups           = new ConcurrentSkipListMap<GroupKey, WriteGroup>();
   private final OBinarySerializer<String>                   stringSerializer;
   private final Map<Long, OFileClassic>                     files;
@@ -102,11 +113,20 @@ public class OWOWCache {
                                                                                           return thread;
                                                                                         }
                                                                                       });
+  private final int                                         flushThreads;
+  private final ExecutorService                             flushExecutor;
+  private final GroupKey[]                                  lastGroupKeys;
+  private final AtomicLong                                  flushedPagesCounter   = new AtomicLong();
+  private final String                                      profilerPrefix;
+
+  private final ODirectMemoryPagePool                       pagePool;
+  private final AtomicBoolean                               pagePoolClosed        = new AtomicBoolean();
+  private long                                              lastRateCheckTime     = System.currentTimeMillis();
+  private long                                              lastRateCheckPages    = 0;
   private Map<String, Long>                                 nameIdMap;
   private RandomAccessFile                                  nameIdMapHolder;
   private volatile int                                      cacheMaxSize;
   private long                                              fileCounter           = 0;
-  private GroupKey                                          lastGroupKey          = new GroupKey(0, -1);
   private File                                              nameIdMapHolderFile;
 
   private static final class NameFileIdEntry {
@@ -220,12 +240,16 @@ public class OWOWCache {
         if (writeGroupsToFlush < 1)
           writeGroupsToFlush = 1;
 
-        int flushedGroups = 0;
-
-        flushedGroups = flushRing(writeGroupsToFlush, flushedGroups, false);
+        int flushedGroups;
+        if (flushExecutor == null)
+          flushedGroups = flushPartition(0, writeGroupsToFlush, useForceSync);
+        else {
+          flushedGroups = flushPartitionsInParallel(writeGroupsToFlush, useForceSync);
 
-        if (flushedGroups < writeGroupsToFlush && useForceSync)
-          flushedGroups = flushRing(writeGroupsToFlush, flushedGroups, true);
+          // partitions are not equally loaded, so the rest of groups is taken from the whole ring
+          if (flushedGroups < writeGroupsToFlush)
+            flushedGroups += flushPartition(flushThreads, writeGroupsToFlush - flushedGroups, useForceSync);
+        }
 
         if (flushedGroups < writeGroupsToFlush && cacheSize.get() > cacheMaxSize) {
           if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
@@ -242,83 +266,36 @@ public class OWOWCache {
       }
     }
 
-    private int flushRing(int writeGroupsToFlush, int flushedGroups, boolean forceFlush) throws IOException {
-      NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.tailMap(lastGroupKey, false);
+    private int flushPartitionsInParallel(int writeGroupsToFlush, boolean useForceSync) throws InterruptedException,
+        ExecutionException {
+      final int groupsPerPartition = (writeGroupsToFlush + flushThreads - 1) / flushThreads;
 
-      if (!subMap.isEmpty()) {
-        flushedGroups = iterateBySubRing(subMap, writeGroupsToFlush, 0, forceFlush);
-        if (flushedGroups < writeGroupsToFlush) {
-          if (!subMap.isEmpty()) {
-            subMap = writeGroups.headMap(subMap.firstKey(), false);
-            flushedGroups = iterateBySubRing(subMap, writeGroupsToFlush, flushedGroups, forceFlush);
-          }
-        }
-      } else
-        flushedGroups = iterateBySubRing(writeGroups, writeGroupsToFlush, flushedGroups, forceFlush);
+      final List<Future<Integer>> futures = new ArrayList<Future<Integer>>(flushThreads);
+      for (int partition = 0; partition < flushThreads; partition++)
+        futures.add(flushExecutor.submit(new PartitionFlushTask(partition, groupsPerPartition, useForceSync)));
+
+      int flushedGroups = 0;
+      for (Future<Integer> future : futures)
+        flushedGroups += future.get();
 
       return flushedGroups;
     }
+  }
 
-    private int iterateBySubRing(NavigableMap<GroupKey, WriteGroup> subMap, int writeGroupsToFlush, int flushedWriteGroups,
-        boolean forceFlush) throws IOException {
-      Iterator<Map.Entry<GroupKey, WriteGroup>> entriesIterator = subMap.entrySet().iterator();
-      long currentTime = System.currentTimeMillis();
-
-      groupsLoop: while (entriesIterator.hasNext() && flushedWriteGroups < writeGroupsToFlush) {
-        Map.Entry<GroupKey, WriteGroup> entry = entriesIterator.next();
-        final WriteGroup group = entry.getValue();
-        final GroupKey groupKey = entry.getKey();
-
-        final boolean weakLockMode = group.creationTime - currentTime < groupTTL && !forceFlush;
-        if (group.recencyBit && weakLockMode) {
-          group.recencyBit = false;
-          continue;
-        }
-
-        lockManager.acquireLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
-        try {
-          if (group.recencyBit && weakLockMode)
-            group.recencyBit = false;
-          else {
-            group.recencyBit = false;
-
-            int flushedPages = 0;
-
-            for (int i = 0; i < 16; i++) {
-              final OCachePointer pagePointer = group.pages[i];
-              if (pagePointer != null) {
-                if (!pagePointer.tryAcquireSharedLock())
-                  continue groupsLoop;
-
-                try {
-                  flushPage(groupKey.fileId, (groupKey.groupIndex << 4) + i, pagePointer.getDataPointer());
-                  flushedPages++;
-
-                  final OLogSequenceNumber flushedLSN = ODurablePage.getLogSequenceNumberFromPage(pagePointer.getDataPointer());
-                  pagePointer.setLastFlushedLsn(flushedLSN);
-                } finally {
-                  pagePointer.releaseSharedLock();
-                }
-              }
-            }
-
-            for (OCachePointer pagePointer : group.pages)
-              if (pagePointer != null)
-                pagePointer.decrementReferrer();
-
-            entriesIterator.remove();
-            flushedWriteGroups++;
+  private final class PartitionFlushTask implements Callable<Integer> {
+    private final int     partition;
+    private final int     writeGroupsToFlush;
+    private final boolean useForceSync;
 
-            cacheSize.addAndGet(-flushedPages);
-          }
-        } finally {
-          lockManager.releaseLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
-        }
-
-        lastGroupKey = groupKey;
-      }
+    private PartitionFlushTask(int partition, int writeGroupsToFlush, boolean useForceSync) {
+      this.partition = partition;
+      this.writeGroupsToFlush = writeGroupsToFlush;
+      this.useForceSync = useForceSync;
+    }
 
-      return flushedWriteGroups;
+    @Override
+    public Integer call() throws Exception {
+      return flushPartition(partition, writeGroupsToFlush, useForceSync);
     }
   }
 
@@ -337,30 +314,16 @@ public class OWOWCache {
       NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.subMap(firstKey, true, lastKey, true);
       Iterator<Map.Entry<GroupKey, WriteGroup>> entryIterator = subMap.entrySet().iterator();
 
-      groupsLoop: while (entryIterator.hasNext()) {
+      while (entryIterator.hasNext()) {
         Map.Entry<GroupKey, WriteGroup> entry = entryIterator.next();
         final WriteGroup writeGroup = entry.getValue();
         final GroupKey groupKey = entry.getKey();
 
         lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
         try {
-          int flushedPages = 0;
-
-          for (int i = 0; i < 16; i++) {
-            OCachePointer pagePointer = writeGroup.pages[i];
-
-            if (pagePointer != null) {
-              if (!pagePointer.tryAcquireSharedLock())
-                continue groupsLoop;
-
-              try {
-                flushPage(groupKey.fileId, (groupKey.groupIndex << 4) + i, pagePointer.getDataPointer());
-                flushedPages++;
-              } finally {
-                pagePointer.releaseSharedLock();
-              }
-            }
-          }
+          final int flushedPages = flushWriteGroup(groupKey, writeGroup, false);
+          if (flushedPages < 0)
+            continue;
 
           for (OCachePointer pagePointer : writeGroup.pages)
             if (pagePointer != null)
@@ -424,6 +387,16 @@ public class OWOWCache {
 
   public OWOWCache(boolean syncOnPageFlush, int pageSize, long groupTTL, OWriteAheadLog writeAheadLog, long pageFlushInterval,
       int cacheMaxSize, OStorageLocalAbstract storageLocal, boolean checkMinSize) {
+    this(syncOnPageFlush, pageSize, groupTTL, writeAheadLog, pageFlushInterval, cacheMaxSize, storageLocal, checkMinSize,
+        OGlobalConfiguration.DISK_WRITE_CACHE_FLUSH_THREADS.getValueAsInteger());
+  }
+
+  /**
+   * @param flushThreads
+   *          amount of threads which flush dirty pages in background, write groups are partitioned between threads by file id.
+   */
+  public OWOWCache(boolean syncOnPageFlush, int pageSize, long groupTTL, OWriteAheadLog writeAheadLog, long pageFlushInterval,
+      int cacheMaxSize, final OStorageLocalAbstract storageLocal, boolean checkMinSize, int flushThreads) {
     this.files = new ConcurrentHashMap<Long, OFileClassic>();
 
     this.syncOnPageFlush = syncOnPageFlush;
@@ -439,19 +412,67 @@ public class OWOWCache {
     if (checkMinSize && this.cacheMaxSize < MIN_CACHE_SIZE)
       this.cacheMaxSize = MIN_CACHE_SIZE;
 
+    this.flushThreads = flushThreads < 1 ? 1 : flushThreads;
+
+    // last slot is used to walk through the write groups of all partitions
+    this.lastGroupKeys = new GroupKey[this.flushThreads + 1];
+    for (int i = 0; i < lastGroupKeys.length; i++)
+      lastGroupKeys[i] = new GroupKey(0, -1);
+
+    if (this.flushThreads > 1)
+      flushExecutor = Executors.newFixedThreadPool(this.flushThreads, new ThreadFactory() {
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          thread.setName("OrientDB Write Cache Flush Worker #" + threadCounter.incrementAndGet() + " (" + storageLocal.getName()
+              + ")");
+          return thread;
+        }
+      });
+    else
+      flushExecutor = null;
+
+    if (OGlobalConfiguration.DISK_CACHE_PAGE_POOL.getValueAsBoolean()) {
+      final int poolPageSize = pageSize + 2 * PAGE_PADDING;
+      final long slabSize = OGlobalConfiguration.DISK_CACHE_PAGE_POOL_SLAB_SIZE.getValueAsLong() * 1024 * 1024;
+      this.pagePool = ODirectMemoryPagePool.getInstance(poolPageSize, (int) Math.max(1, slabSize / poolPageSize));
+    } else
+      this.pagePool = null;
+
+    this.profilerPrefix = "db." + storageLocal.getName() + ".diskCache.writeCache.";
+    registerProfilerHooks();
+
     if (pageFlushInterval > 0)
       commitExecutor.scheduleWithFixedDelay(new PeriodicFlushTask(), pageFlushInterval, pageFlushInterval, TimeUnit.MILLISECONDS);
   }
 
   private static int calculatePageCrc(byte[] pageData) {
+    return calculatePageCrc(pageData, 0, pageData.length);
+  }
+
+  private static int calculatePageCrc(byte[] data, int pageOffset, int pageSize) {
     int systemSize = OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
 
     final CRC32 crc32 = new CRC32();
-    crc32.update(pageData, systemSize, pageData.length - systemSize);
+    crc32.update(data, pageOffset + systemSize, pageSize - systemSize);
 
     return (int) crc32.getValue();
   }
 
+  /**
+   * Writes magic number and CRC32 of page content at the beginning of page copied in passed array, as it is done when page is
+   * flushed to the disk.
+   */
+  public static void writePageChecksum(byte[] content, int pageOffset, int pageSize) {
+    OLongSerializer.INSTANCE.serializeNative(MAGIC_NUMBER, content, pageOffset);
+
+    final int crc32 = calculatePageCrc(content, pageOffset, pageSize);
+    OIntegerSerializer.INSTANCE.serializeNative(crc32, content, pageOffset + OLongSerializer.LONG_SIZE);
+  }
+
   public long openFile(String fileName) throws IOException {
     synchronized (syncObject) {
       initNameIdMapping();
@@ -744,18 +765,8 @@ public class OWOWCache {
   public void close() throws IOException {
     flush();
 
-    if (!commitExecutor.isShutdown()) {
-      commitExecutor.shutdown();
-      try {
-        if (!commitExecutor.awaitTermination(5, TimeUnit.MINUTES))
-          throw new OException("Background data flush task can not be stopped.");
-      } catch (InterruptedException e) {
-        OLogManager.instance().error(this, "Data flush thread was interrupted");
-
-        Thread.interrupted();
-        throw new OException("Data flush thread was interrupted", e);
-      }
-    }
+    stopFlushExecutors();
+    closePagePool();
 
     synchronized (syncObject) {
       for (OFileClassic fileClassic : files.values()) {
@@ -913,18 +924,41 @@ public class OWOWCache {
       }
     }
 
-    if (!commitExecutor.isShutdown()) {
-      commitExecutor.shutdown();
-      try {
-        if (!commitExecutor.awaitTermination(5, TimeUnit.MINUTES))
-          throw new OException("Background data flush task can not be stopped.");
-      } catch (InterruptedException e) {
-        OLogManager.instance().error(this, "Data flush thread was interrupted");
+    stopFlushExecutors();
+    closePagePool();
+  }
 
-        Thread.interrupted();
-        throw new OException("Data flush thread was interrupted", e);
-      }
-    }
+  /**
+   * @return amount of dirty pages which are not flushed to the disk yet.
+   */
+  public int getDirtyPagesCount() {
+    return cacheSize.get();
+  }
+
+  /**
+   * @return amount of pages flushed to the disk since cache was created.
+   */
+  public long getFlushedPagesCount() {
+    return flushedPagesCounter.get();
+  }
+
+  /**
+   * @return amount of pages flushed to the disk per second since previous call of this method.
+   */
+  public synchronized long getFlushedPagesPerSecond() {
+    final long now = System.currentTimeMillis();
+    final long flushedPages = flushedPagesCounter.get();
+
+    final long interval = now - lastRateCheckTime;
+    if (interval <= 0)
+      return 0;
+
+    final long rate = (flushedPages - lastRateCheckPages) * 1000 / interval;
+
+    lastRateCheckTime = now;
+    lastRateCheckPages = flushedPages;
+
+    return rate;
   }
 
   public String fileNameById(long fileId) {
@@ -1067,38 +1101,278 @@ public class OWOWCache {
 
     if (fileClassic.getFilledUpTo() >= endPosition) {
       fileClassic.read(startPosition, content, content.length - 2 * PAGE_PADDING, PAGE_PADDING);
-      final ODirectMemoryPointer pointer = new ODirectMemoryPointer(content);
+      final ODirectMemoryPointer pointer = allocatePage(content);
 
       final OLogSequenceNumber storedLSN = ODurablePage.getLogSequenceNumberFromPage(pointer);
       dataPointer = new OCachePointer(pointer, storedLSN);
     } else {
       fileClassic.allocateSpace((int) (endPosition - fileClassic.getFilledUpTo()));
 
-      final ODirectMemoryPointer pointer = new ODirectMemoryPointer(content);
+      final ODirectMemoryPointer pointer = allocatePage(content);
       dataPointer = new OCachePointer(pointer, new OLogSequenceNumber(0, -1));
     }
 
     return dataPointer;
   }
 
-  private void flushPage(long fileId, long pageIndex, ODirectMemoryPointer dataPointer) throws IOException {
-    if (writeAheadLog != null) {
-      OLogSequenceNumber lsn = ODurablePage.getLogSequenceNumberFromPage(dataPointer);
-      OLogSequenceNumber flushedLSN = writeAheadLog.getFlushedLSN();
-      if (flushedLSN == null || flushedLSN.compareTo(lsn) < 0)
-        writeAheadLog.flush();
+  private ODirectMemoryPointer allocatePage(final byte[] content) {
+    if (pagePool == null)
+      return new ODirectMemoryPointer(content);
+
+    final ODirectMemoryPointer pointer = pagePool.acquire();
+    pointer.set(0, content, 0, content.length);
+    return pointer;
+  }
+
+  private void closePagePool() {
+    // PAGES STILL CACHED GO BACK TO THE POOL WHEN THEY ARE FREED, THE POOL RELEASES ITS MEMORY AFTER THE LAST ONE
+    if (pagePool != null && pagePoolClosed.compareAndSet(false, true))
+      pagePool.close();
+  }
+
+  private void stopFlushExecutors() {
+    if (!commitExecutor.isShutdown()) {
+      commitExecutor.shutdown();
+      try {
+        if (!commitExecutor.awaitTermination(5, TimeUnit.MINUTES))
+          throw new OException("Background data flush task can not be stopped.");
+      } catch (InterruptedException e) {
+        OLogManager.instance().error(this, "Data flush thread was interrupted");
+
+        Thread.interrupted();
+        throw new OException("Data flush thread was interrupted", e);
+      }
     }
 
-    final byte[] content = dataPointer.get(PAGE_PADDING, pageSize);
-    OLongSerializer.INSTANCE.serializeNative(MAGIC_NUMBER, content, 0);
+    if (flushExecutor != null && !flushExecutor.isShutdown()) {
+      flushExecutor.shutdown();
+      try {
+        if (!flushExecutor.awaitTermination(5, TimeUnit.MINUTES))
+          throw new OException("Background data flush workers can not be stopped.");
+      } catch (InterruptedException e) {
+        OLogManager.instance().error(this, "Data flush worker was interrupted");
 
-    final int crc32 = calculatePageCrc(content);
-    OIntegerSerializer.INSTANCE.serializeNative(crc32, content, OLongSerializer.LONG_SIZE);
+        Thread.interrupted();
+        throw new OException("Data flush worker was interrupted", e);
+      }
+    }
 
-    final OFileClassic fileClassic = files.get(fileId);
-    fileClassic.write(pageIndex * pageSize, content);
+    unregisterProfilerHooks();
+  }
 
-    if (syncOnPageFlush)
-      fileClassic.synch();
+  private void registerProfilerHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+    profiler.registerHookValue(profilerPrefix + "dirtyPages", "Number of dirty pages which wait to be flushed to the disk",
+        METRIC_TYPE.SIZE, new OProfilerHookValue() {
+          public Object getValue() {
+            return getDirtyPagesCount();
+          }
+        }, "db.*.diskCache.writeCache.dirtyPages");
+
+    profiler.registerHookValue(profilerPrefix + "flushedPages", "Number of pages flushed to the disk", METRIC_TYPE.COUNTER,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return getFlushedPagesCount();
+          }
+        }, "db.*.diskCache.writeCache.flushedPages");
+
+    profiler.registerHookValue(profilerPrefix + "flushedPagesPerSecond",
+        "Number of pages flushed to the disk per second since previous measurement", METRIC_TYPE.STAT, new OProfilerHookValue() {
+          public Object getValue() {
+            return getFlushedPagesPerSecond();
+          }
+        }, "db.*.diskCache.writeCache.flushedPagesPerSecond");
+
+    if (pagePool != null && pagePoolProfiled.compareAndSet(false, true)) {
+      // THE POOL IS SHARED BY ALL THE STORAGES: HOOKS ARE REGISTERED BY THE FIRST ONE AND NEVER UNREGISTERED
+      final ODirectMemoryPagePool pagePool = this.pagePool; // THE HOOKS MUST NOT KEEP THIS CACHE ALIVE
+      final String poolPrefix = "system.memory.diskCachePool.";
+      profiler.registerHookValue(poolPrefix + "usedPages", "Number of disk cache pages in use", METRIC_TYPE.SIZE,
+          new OProfilerHookValue() {
+            public Object getValue() {
+              return pagePool.getUsedPages();
+            }
+          });
+      profiler.registerHookValue(poolPrefix + "freePages", "Number of pages reserved by the disk cache pool and not in use",
+          METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            public Object getValue() {
+              return pagePool.getFreePages();
+            }
+          });
+      profiler.registerHookValue(poolPrefix + "slabs", "Number of memory slabs reserved by the disk cache pool", METRIC_TYPE.SIZE,
+          new OProfilerHookValue() {
+            public Object getValue() {
+              return pagePool.getSlabs();
+            }
+          });
+      profiler.registerHookValue(poolPrefix + "allocatedMemory", "Native memory reserved by the disk cache pool in bytes",
+          METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            public Object getValue() {
+              return pagePool.getAllocatedMemory();
+            }
+          });
+    }
+  }
+
+  private void unregisterProfilerHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler != null) {
+      profiler.unregisterHookValue(profilerPrefix + "dirtyPages");
+      profiler.unregisterHookValue(profilerPrefix + "flushedPages");
+      profiler.unregisterHookValue(profilerPrefix + "flushedPagesPerSecond");
+    }
+  }
+
+  private int flushPartition(int partition, int writeGroupsToFlush, boolean useForceSync) throws IOException {
+    int flushedGroups = flushRing(partition, writeGroupsToFlush, 0, false);
+
+    if (flushedGroups < writeGroupsToFlush && useForceSync)
+      flushedGroups = flushRing(partition, writeGroupsToFlush, flushedGroups, true);
+
+    return flushedGroups;
+  }
+
+  private int flushRing(int partition, int writeGroupsToFlush, int flushedGroups, boolean forceFlush) throws IOException {
+    NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.tailMap(lastGroupKeys[partition], false);
+
+    if (!subMap.isEmpty()) {
+      flushedGroups = iterateBySubRing(subMap, partition, writeGroupsToFlush, 0, forceFlush);
+      if (flushedGroups < writeGroupsToFlush) {
+        if (!subMap.isEmpty()) {
+          subMap = writeGroups.headMap(subMap.firstKey(), false);
+          flushedGroups = iterateBySubRing(subMap, partition, writeGroupsToFlush, flushedGroups, forceFlush);
+        }
+      }
+    } else
+      flushedGroups = iterateBySubRing(writeGroups, partition, writeGroupsToFlush, flushedGroups, forceFlush);
+
+    return flushedGroups;
+  }
+
+  private int iterateBySubRing(NavigableMap<GroupKey, WriteGroup> subMap, int partition, int writeGroupsToFlush,
+      int flushedWriteGroups, boolean forceFlush) throws IOException {
+    Iterator<Map.Entry<GroupKey, WriteGroup>> entriesIterator = subMap.entrySet().iterator();
+    long currentTime = System.currentTimeMillis();
+
+    while (entriesIterator.hasNext() && flushedWriteGroups < writeGroupsToFlush) {
+      Map.Entry<GroupKey, WriteGroup> entry = entriesIterator.next();
+      final WriteGroup group = entry.getValue();
+      final GroupKey groupKey = entry.getKey();
+
+      if (!isInPartition(groupKey.fileId, partition))
+        continue;
+
+      final boolean weakLockMode = group.creationTime - currentTime < groupTTL && !forceFlush;
+      if (group.recencyBit && weakLockMode) {
+        group.recencyBit = false;
+        continue;
+      }
+
+      lockManager.acquireLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
+      try {
+        if (group.recencyBit && weakLockMode)
+          group.recencyBit = false;
+        else {
+          group.recencyBit = false;
+
+          final int flushedPages = flushWriteGroup(groupKey, group, true);
+          if (flushedPages < 0)
+            continue;
+
+          for (OCachePointer pagePointer : group.pages)
+            if (pagePointer != null)
+              pagePointer.decrementReferrer();
+
+          entriesIterator.remove();
+          flushedWriteGroups++;
+
+          cacheSize.addAndGet(-flushedPages);
+        }
+      } finally {
+        lockManager.releaseLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
+      }
+
+      lastGroupKeys[partition] = groupKey;
+    }
+
+    return flushedWriteGroups;
+  }
+
+  /**
+   * Partition with index equal to amount of flush threads contains write groups of all files.
+   */
+  private boolean isInPartition(long fileId, int partition) {
+    return partition == flushThreads || fileId % flushThreads == partition;
+  }
+
+  /**
+   * Flushes all pages of write group. Adjacent pages are written to the file by single write operation.
+   * 
+   * @return amount of flushed pages or -1 if one of the pages is exclusively locked and group can not be flushed.
+   */
+  private int flushWriteGroup(GroupKey groupKey, WriteGroup group, boolean updateFlushedLsn) throws IOException {
+    final OCachePointer[] pages = group.pages;
+
+    int lockedPages = 0;
+    try {
+      for (; lockedPages < pages.length; lockedPages++) {
+        final OCachePointer pagePointer = pages[lockedPages];
+        if (pagePointer != null && !pagePointer.tryAcquireSharedLock())
+          return -1;
+      }
+
+      final OFileClassic fileClassic = files.get(groupKey.fileId);
+      final long firstPageIndex = groupKey.groupIndex << 4;
+
+      int flushedPages = 0;
+      int runStart = -1;
+      for (int i = 0; i <= pages.length; i++) {
+        if (i < pages.length && pages[i] != null) {
+          if (runStart < 0)
+            runStart = i;
+        } else if (runStart >= 0) {
+          writePages(fileClassic, firstPageIndex + runStart, pages, runStart, i);
+          flushedPages += i - runStart;
+          runStart = -1;
+        }
+      }
+
+      if (syncOnPageFlush && flushedPages > 0)
+        fileClassic.synch();
+
+      if (updateFlushedLsn)
+        for (OCachePointer pagePointer : pages)
+          if (pagePointer != null)
+            pagePointer.setLastFlushedLsn(ODurablePage.getLogSequenceNumberFromPage(pagePointer.getDataPointer()));
+
+      flushedPagesCounter.addAndGet(flushedPages);
+      return flushedPages;
+    } finally {
+      for (int i = 0; i < lockedPages; i++)
+        if (pages[i] != null)
+          pages[i].releaseSharedLock();
+    }
+  }
+
+  private void writePages(OFileClassic fileClassic, long pageIndex, OCachePointer[] pages, int from, int to) throws IOException {
+    final byte[] content = new byte[(to - from) * pageSize];
+
+    for (int i = from; i < to; i++) {
+      final ODirectMemoryPointer dataPointer = pages[i].getDataPointer();
+
+      if (writeAheadLog != null) {
+        OLogSequenceNumber lsn = ODurablePage.getLogSequenceNumberFromPage(dataPointer);
+        OLogSequenceNumber flushedLSN = writeAheadLog.getFlushedLSN();
+        if (flushedLSN == null || flushedLSN.compareTo(lsn) < 0)
+          writeAheadLog.flush();
+      }
+
+      final int pageOffset = (i - from) * pageSize;
+      dataPointer.get(PAGE_PADDING, content, pageOffset, pageSize);
+      writePageChecksum(content, pageOffset, pageSize);
+    }
+
+    fileClassic.write(pageIndex * pageSize, content);
   }
 }
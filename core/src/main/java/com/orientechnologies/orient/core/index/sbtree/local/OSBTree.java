@@ -98,6 +98,8 @@ public class OSBTree<K, V> extends ODurableComponent {
   private OType[]                             keyTypes;
   private OBinarySerializer<V>                valueSerializer;
   private boolean                             nullPointerSupport;
+  private boolean                             bulkLoading;
+  private final boolean                       keyCompression;
 
   /**
    * Indicates search behavior in case of {@link OCompositeKey} keys that have less amount of internal keys are used, whether lowest
@@ -127,6 +129,25 @@ public class OSBTree<K, V> extends ODurableComponent {
     K next(int prefetchSize);
   }
 
+  /**
+   * Pages of a level of the tree built by the bulk load with the first key of each of them.
+   */
+  private static final class BulkLevel<K, V> {
+    private final List<Long> pages     = new ArrayList<Long>();
+    private final List<K>    firstKeys = new ArrayList<K>();
+    private long             entries;
+
+    private void add(long pageIndex, K firstKey) {
+      pages.add(pageIndex);
+      firstKeys.add(firstKey);
+    }
+
+    private OSBTreeBucket.SBTreeEntry<K, V> separator(int childIndex) {
+      return new OSBTreeBucket.SBTreeEntry<K, V>(pages.get(childIndex - 1), pages.get(childIndex), firstKeys.get(childIndex),
+          null);
+    }
+  }
+
   private static class BucketSearchResult {
     private final int             itemIndex;
     private final ArrayList<Long> path;
@@ -193,7 +214,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
           try {
             final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-                ODurablePage.TrackMode.NONE);
+                ODurablePage.TrackMode.NONE, keyCompression);
 
             if (itemIndex >= bucket.size()) {
               pageIndex = bucket.getRightSibling();
@@ -277,7 +298,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
           try {
             final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-                ODurablePage.TrackMode.NONE);
+                ODurablePage.TrackMode.NONE, keyCompression);
 
             if (itemIndex >= bucket.size()) {
               pageIndex = bucket.getRightSibling();
@@ -368,7 +389,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
           try {
             final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-                ODurablePage.TrackMode.NONE);
+                ODurablePage.TrackMode.NONE, keyCompression);
 
             if (itemIndex >= bucket.size())
               itemIndex = bucket.size() - 1;
@@ -416,6 +437,16 @@ public class OSBTree<K, V> extends ODurableComponent {
   }
 
   public OSBTree(String dataFileExtension, int keySize, boolean durableInNonTxMode, String nullFileExtension) {
+    this(dataFileExtension, keySize, durableInNonTxMode, nullFileExtension, false);
+  }
+
+  /**
+   * @param keyCompression
+   *          whether bytes shared by the keys of a bucket are stored only once, see {@link OSBTreeBucket}. Must be the same the
+   *          tree was created with when it is loaded.
+   */
+  public OSBTree(String dataFileExtension, int keySize, boolean durableInNonTxMode, String nullFileExtension,
+      boolean keyCompression) {
     super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean());
     acquireExclusiveLock();
     try {
@@ -423,6 +454,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       this.keySize = keySize;
       this.nullFileExtension = nullFileExtension;
       this.durableInNonTxMode = durableInNonTxMode;
+      this.keyCompression = keyCompression;
     } finally {
       releaseExclusiveLock();
     }
@@ -455,7 +487,7 @@ public class OSBTree<K, V> extends ODurableComponent {
         super.startAtomicOperation();
 
         OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, true, keySerializer, keyTypes, valueSerializer,
-            getTrackMode());
+            getTrackMode(), keyCompression);
         rootBucket.setTreeSize(0);
 
         super.logPageChanges(rootBucket, fileId, ROOT_INDEX, true);
@@ -503,7 +535,7 @@ public class OSBTree<K, V> extends ODurableComponent {
         OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, pageIndex, false);
         try {
           OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry, keySerializer, keyTypes, valueSerializer,
-              ODurablePage.TrackMode.NONE);
+              ODurablePage.TrackMode.NONE, keyCompression);
 
           OSBTreeBucket.SBTreeEntry<K, V> treeEntry = keyBucket.getEntry(bucketSearchResult.itemIndex);
           return readValue(treeEntry.value);
@@ -564,7 +596,7 @@ public class OSBTree<K, V> extends ODurableComponent {
         OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, bucketSearchResult.getLastPathItem(), false);
         keyBucketCacheEntry.acquireExclusiveLock();
         OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry, keySerializer, keyTypes, valueSerializer,
-            getTrackMode());
+            getTrackMode(), keyCompression);
 
         int insertionIndex;
         int sizeDiff;
@@ -610,7 +642,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           keyBucketCacheEntry = diskCache.load(fileId, bucketSearchResult.getLastPathItem(), false);
           keyBucketCacheEntry.acquireExclusiveLock();
 
-          keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry, keySerializer, keyTypes, valueSerializer, getTrackMode());
+          keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry, keySerializer, keyTypes, valueSerializer, getTrackMode(), keyCompression);
         }
 
         logPageChanges(keyBucket, fileId, bucketSearchResult.getLastPathItem(), false);
@@ -675,6 +707,54 @@ public class OSBTree<K, V> extends ODurableComponent {
     }
   }
 
+  /**
+   * Creates a sorter that orders keys as this tree does, to prepare the entries of {@link #bulkLoad(Iterator, float)}.
+   */
+  public OSBTreeKeySorter<K> createKeySorter(int spillThreshold) {
+    return new OSBTreeKeySorter<K>(keySerializer, keyTypes, spillThreshold);
+  }
+
+  /**
+   * Fills an empty tree with entries sorted by key, without duplicated or null keys. Instead of inserting entries one by one, leaf
+   * buckets are filled from left to right up to passed fill factor, then buckets of every upper level are built from the first keys
+   * of the level below until they fit in the root bucket. Pages are not logged in WAL, the file is flushed once at the end.
+   * 
+   * @param fillFactor
+   *          fraction of every bucket to fill, between 0.5 and 1. Free space left in buckets avoids their split on next inserts.
+   * @return <code>false</code> if nothing was loaded because tree is not empty or storage transaction is active.
+   */
+  public boolean bulkLoad(Iterator<? extends Map.Entry<K, V>> entries, float fillFactor) {
+    acquireExclusiveLock();
+    try {
+      if (storage.getStorageTransaction() != null || diskCache.getFilledUpTo(fileId) != 1 || !isRootEmpty())
+        return false;
+
+      final float fill = Math.min(Math.max(fillFactor, 0.5f), 1.0f);
+      final int reserve = (int) ((1 - fill) * ODurablePage.MAX_PAGE_SIZE_BYTES);
+
+      bulkLoading = true;
+      try {
+        final BulkLevel<K, V> leaves = bulkLoadLeaves(entries, reserve);
+
+        BulkLevel<K, V> level = leaves;
+        while (level.pages.size() > 1 && !bulkLoadRoot(level))
+          level = bulkLoadInternalLevel(level, reserve);
+
+        // NULL KEY, IF ANY, IS ALREADY COUNTED
+        setSize(size() + leaves.entries);
+        diskCache.flushFile(fileId);
+      } finally {
+        bulkLoading = false;
+      }
+
+      return true;
+    } catch (IOException e) {
+      throw new OSBTreeException("Error during bulk load of sbtree with name " + name, e);
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
   public void close(boolean flush) {
     acquireExclusiveLock();
     try {
@@ -708,7 +788,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       cacheEntry.acquireExclusiveLock();
       try {
         OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(cacheEntry, true, keySerializer, keyTypes, valueSerializer,
-            getTrackMode());
+            getTrackMode(), keyCompression);
 
         rootBucket.setTreeSize(0);
 
@@ -794,7 +874,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
       try {
         OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, keySerializer, keyTypes, valueSerializer,
-            ODurablePage.TrackMode.NONE);
+            ODurablePage.TrackMode.NONE, keyCompression);
         return rootBucket.getTreeSize();
       } finally {
         diskCache.release(rootCacheEntry);
@@ -824,7 +904,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           startAtomicOperation();
 
           OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry, keySerializer, keyTypes, valueSerializer,
-              getTrackMode());
+              getTrackMode(), keyCompression);
 
           final OSBTreeValue<V> removed = keyBucket.getEntry(bucketSearchResult.itemIndex).value;
           final V value = readValue(removed);
@@ -922,7 +1002,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       final OCacheEntry cacheEntry = diskCache.load(fileId, searchResult.getLastPathItem(), false);
       try {
         OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-            ODurablePage.TrackMode.NONE);
+            ODurablePage.TrackMode.NONE, keyCompression);
         return bucket.getKey(searchResult.itemIndex);
       } finally {
         diskCache.release(cacheEntry);
@@ -944,7 +1024,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       final OCacheEntry cacheEntry = diskCache.load(fileId, searchResult.getLastPathItem(), false);
       try {
         OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-            ODurablePage.TrackMode.NONE);
+            ODurablePage.TrackMode.NONE, keyCompression);
         return bucket.getKey(searchResult.itemIndex);
       } finally {
         diskCache.release(cacheEntry);
@@ -1024,14 +1104,19 @@ public class OSBTree<K, V> extends ODurableComponent {
   @Override
   protected void logPageChanges(ODurablePage localPage, long fileId, long pageIndex, boolean isNewPage) throws IOException {
     final OStorageTransaction transaction = storage.getStorageTransaction();
-    if (transaction == null && !durableInNonTxMode)
+    if (bulkLoading || (transaction == null && !durableInNonTxMode)) {
+      markUnloggedPageChanges(localPage);
       return;
+    }
 
     super.logPageChanges(localPage, fileId, pageIndex, isNewPage);
   }
 
   @Override
   protected ODurablePage.TrackMode getTrackMode() {
+    if (bulkLoading)
+      return ODurablePage.TrackMode.NONE;
+
     final OStorageTransaction transaction = storage.getStorageTransaction();
     if (transaction == null && !durableInNonTxMode)
       return ODurablePage.TrackMode.NONE;
@@ -1074,7 +1159,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
     rootCacheEntry.acquireExclusiveLock();
     OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, keySerializer, keyTypes, valueSerializer,
-        getTrackMode());
+        getTrackMode(), keyCompression);
     try {
       prevFreeListItem = rootBucket.getValuesFreeListFirstIndex();
       rootBucket.setValuesFreeListFirstIndex(pageIndex);
@@ -1184,7 +1269,7 @@ public class OSBTree<K, V> extends ODurableComponent {
   private long allocateValuePageFromFreeList() throws IOException {
     OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
     OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, keySerializer, keyTypes, valueSerializer,
-        ODurablePage.TrackMode.NONE);
+        ODurablePage.TrackMode.NONE, keyCompression);
     long freeListFirstIndex;
     try {
       freeListFirstIndex = rootBucket.getValuesFreeListFirstIndex();
@@ -1202,7 +1287,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
         rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
         rootCacheEntry.acquireExclusiveLock();
-        rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, keySerializer, keyTypes, valueSerializer, getTrackMode());
+        rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, keySerializer, keyTypes, valueSerializer, getTrackMode(), keyCompression);
         try {
           rootBucket.setValuesFreeListFirstIndex(nextFreeListIndex);
 
@@ -1228,6 +1313,187 @@ public class OSBTree<K, V> extends ODurableComponent {
     return -1;
   }
 
+  private boolean isRootEmpty() throws IOException {
+    final OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
+    try {
+      final OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, keySerializer, keyTypes, valueSerializer,
+          ODurablePage.TrackMode.NONE, keyCompression);
+      return rootBucket.isLeaf() && rootBucket.isEmpty();
+    } finally {
+      diskCache.release(rootCacheEntry);
+    }
+  }
+
+  private BulkLevel<K, V> bulkLoadLeaves(Iterator<? extends Map.Entry<K, V>> entries, int reserve) throws IOException {
+    final BulkLevel<K, V> leaves = new BulkLevel<K, V>();
+
+    OCacheEntry cacheEntry = null;
+    OSBTreeBucket<K, V> bucket = null;
+    boolean full = false;
+    K lastKey = null;
+
+    try {
+      while (entries.hasNext()) {
+        final Map.Entry<K, V> entry = entries.next();
+        K key = entry.getKey();
+        if (key == null)
+          throw new OSBTreeException("Null keys can not be loaded in bulk.");
+
+        key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+        final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
+        if (keySize > MAX_KEY_SIZE)
+          throw new OSBTreeException("Key size is more than allowed, operation was canceled. Current key size " + keySize
+              + ", allowed  " + MAX_KEY_SIZE);
+
+        if (lastKey != null && comparator.compare(lastKey, key) >= 0)
+          throw new OSBTreeException("Keys loaded in bulk should be sorted and unique, but key " + key + " follows key " + lastKey);
+
+        final V value = entry.getValue();
+        final boolean createLinkToTheValue = valueSerializer.getObjectSize(value) > MAX_EMBEDDED_VALUE_SIZE;
+        final long valueLink = createLinkToTheValue ? createLinkToTheValue(value) : -1;
+
+        final OSBTreeBucket.SBTreeEntry<K, V> treeEntry = new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key, new OSBTreeValue<V>(
+            createLinkToTheValue, valueLink, createLinkToTheValue ? null : value));
+
+        if (bucket == null || full || !bucket.addEntry(bucket.size(), treeEntry, false)) {
+          if (bucket == null) {
+            // FIRST LEAF IS THE ROOT, IT IS MOVED TO A NEW PAGE ONLY IF A SECOND LEAF IS NEEDED
+            cacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
+            cacheEntry.acquireExclusiveLock();
+            bucket = new OSBTreeBucket<K, V>(cacheEntry, true, keySerializer, keyTypes, valueSerializer, ODurablePage.TrackMode.NONE, keyCompression);
+            leaves.add(ROOT_INDEX, key);
+          } else {
+            if (cacheEntry.getPageIndex() == ROOT_INDEX) {
+              final OCacheEntry leftCacheEntry = diskCache.allocateNewPage(fileId);
+              leftCacheEntry.acquireExclusiveLock();
+
+              final OSBTreeBucket<K, V> leftBucket = new OSBTreeBucket<K, V>(leftCacheEntry, true, keySerializer, keyTypes,
+                  valueSerializer, ODurablePage.TrackMode.NONE, keyCompression);
+              for (int i = 0; i < bucket.size(); i++)
+                leftBucket.addEntry(i, bucket.getEntry(i), false);
+
+              releaseBulkPage(cacheEntry);
+              cacheEntry = leftCacheEntry;
+              bucket = leftBucket;
+              leaves.pages.set(0, leftCacheEntry.getPageIndex());
+            }
+
+            final OCacheEntry rightCacheEntry = diskCache.allocateNewPage(fileId);
+            rightCacheEntry.acquireExclusiveLock();
+
+            final OSBTreeBucket<K, V> rightBucket = new OSBTreeBucket<K, V>(rightCacheEntry, true, keySerializer, keyTypes,
+                valueSerializer, ODurablePage.TrackMode.NONE, keyCompression);
+            rightBucket.setLeftSibling(cacheEntry.getPageIndex());
+            bucket.setRightSibling(rightCacheEntry.getPageIndex());
+
+            releaseBulkPage(cacheEntry);
+            cacheEntry = rightCacheEntry;
+            bucket = rightBucket;
+            leaves.add(rightCacheEntry.getPageIndex(), key);
+          }
+
+          if (!bucket.addEntry(0, treeEntry, false))
+            throw new OSBTreeException("Entry with key " + key + " does not fit in empty bucket.");
+        }
+
+        full = isBulkPageFull(bucket, reserve);
+        leaves.entries++;
+        lastKey = key;
+      }
+    } finally {
+      if (cacheEntry != null)
+        releaseBulkPage(cacheEntry);
+    }
+
+    return leaves;
+  }
+
+  /**
+   * Tries to put the separators of passed level in the root bucket.
+   * 
+   * @return <code>false</code> if they do not fit in a single bucket.
+   */
+  private boolean bulkLoadRoot(BulkLevel<K, V> children) throws IOException {
+    final OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
+    rootCacheEntry.acquireExclusiveLock();
+    try {
+      final OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, false, keySerializer, keyTypes,
+          valueSerializer, ODurablePage.TrackMode.NONE, keyCompression);
+
+      for (int i = 1; i < children.pages.size(); i++)
+        if (!rootBucket.addEntry(i - 1, children.separator(i), false))
+          return false;
+
+      return true;
+    } finally {
+      releaseBulkPage(rootCacheEntry);
+    }
+  }
+
+  private BulkLevel<K, V> bulkLoadInternalLevel(BulkLevel<K, V> children, int reserve) throws IOException {
+    final BulkLevel<K, V> parents = new BulkLevel<K, V>();
+    final int childrenCount = children.pages.size();
+
+    int childIndex = 0;
+    while (childIndex < childrenCount) {
+      final OCacheEntry cacheEntry = diskCache.allocateNewPage(fileId);
+      cacheEntry.acquireExclusiveLock();
+      try {
+        final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, false, keySerializer, keyTypes,
+            valueSerializer, ODurablePage.TrackMode.NONE, keyCompression);
+
+        parents.add(cacheEntry.getPageIndex(), children.firstKeys.get(childIndex));
+        childIndex++;
+
+        boolean full = false;
+        while (childIndex < childrenCount && !full && bucket.addEntry(bucket.size(), children.separator(childIndex), false)) {
+          childIndex++;
+          full = isBulkPageFull(bucket, reserve);
+        }
+
+        if (bucket.isEmpty()) {
+          // ONLY THE LAST CHILD IS LEFT, PREVIOUS BUCKET GIVES ITS LAST CHILD TO THIS ONE
+          final long previousPageIndex = parents.pages.get(parents.pages.size() - 2);
+          final OCacheEntry previousCacheEntry = diskCache.load(fileId, previousPageIndex, false);
+          previousCacheEntry.acquireExclusiveLock();
+          try {
+            final OSBTreeBucket<K, V> previousBucket = new OSBTreeBucket<K, V>(previousCacheEntry, keySerializer, keyTypes,
+                valueSerializer, ODurablePage.TrackMode.NONE, keyCompression);
+            previousBucket.shrink(previousBucket.size() - 1);
+          } finally {
+            releaseBulkPage(previousCacheEntry);
+          }
+
+          bucket.addEntry(0, children.separator(childIndex - 1), false);
+          parents.firstKeys.set(parents.firstKeys.size() - 1, children.firstKeys.get(childIndex - 2));
+        }
+      } finally {
+        releaseBulkPage(cacheEntry);
+      }
+    }
+
+    return parents;
+  }
+
+  private boolean isBulkPageFull(OSBTreeBucket<K, ?> bucket, int reserve) throws IOException {
+    if (bucket.getFreeSpace() >= reserve)
+      return false;
+
+    // COMPRESSED BUCKETS ARE FILLED WITH THE SHARED BYTES FOUND SO FAR, THEY ARE LOOKED FOR AGAIN BEFORE CLOSING THE PAGE
+    return !bucket.compact() || bucket.getFreeSpace() < reserve;
+  }
+
+  private void releaseBulkPage(OCacheEntry cacheEntry) throws IOException {
+    try {
+      markUnloggedPageChanges(new ODurablePage(cacheEntry, ODurablePage.TrackMode.NONE));
+    } finally {
+      cacheEntry.markDirty();
+      cacheEntry.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+  }
+
   private void rollback(OStorageTransaction transaction) {
     try {
       endAtomicOperation(true);
@@ -1241,7 +1507,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     rootCacheEntry.acquireExclusiveLock();
     try {
       OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry, keySerializer, keyTypes, valueSerializer,
-          getTrackMode());
+          getTrackMode(), keyCompression);
       rootBucket.setTreeSize(size);
 
       logPageChanges(rootBucket, fileId, ROOT_INDEX, false);
@@ -1389,7 +1655,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     int itemIndex = 0;
 
     OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-        ODurablePage.TrackMode.NONE);
+        ODurablePage.TrackMode.NONE, keyCompression);
     try {
       while (true) {
         if (!bucket.isLeaf()) {
@@ -1436,7 +1702,7 @@ public class OSBTree<K, V> extends ODurableComponent {
         diskCache.release(cacheEntry);
         cacheEntry = diskCache.load(fileId, bucketIndex, false);
 
-        bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer, ODurablePage.TrackMode.NONE);
+        bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer, ODurablePage.TrackMode.NONE, keyCompression);
       }
     } finally {
       diskCache.release(cacheEntry);
@@ -1450,7 +1716,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
     OCacheEntry cacheEntry = diskCache.load(fileId, bucketIndex, false);
     OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer,
-        ODurablePage.TrackMode.NONE);
+        ODurablePage.TrackMode.NONE, keyCompression);
 
     int itemIndex = bucket.size() - 1;
     try {
@@ -1500,7 +1766,7 @@ public class OSBTree<K, V> extends ODurableComponent {
         diskCache.release(cacheEntry);
         cacheEntry = diskCache.load(fileId, bucketIndex, false);
 
-        bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer, ODurablePage.TrackMode.NONE);
+        bucket = new OSBTreeBucket<K, V>(cacheEntry, keySerializer, keyTypes, valueSerializer, ODurablePage.TrackMode.NONE, keyCompression);
         if (itemIndex == OSBTreeBucket.MAX_PAGE_SIZE_BYTES + 1)
           itemIndex = bucket.size() - 1;
       }
@@ -1604,7 +1870,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     bucketEntry.acquireExclusiveLock();
     try {
       OSBTreeBucket<K, V> bucketToSplit = new OSBTreeBucket<K, V>(bucketEntry, keySerializer, keyTypes, valueSerializer,
-          getTrackMode());
+          getTrackMode(), keyCompression);
 
       final boolean splitLeaf = bucketToSplit.isLeaf();
       final int bucketSize = bucketToSplit.size();
@@ -1639,7 +1905,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
     try {
       OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<K, V>(rightBucketEntry, splitLeaf, keySerializer, keyTypes,
-          valueSerializer, getTrackMode());
+          valueSerializer, getTrackMode(), keyCompression);
       newRightBucket.addAll(rightEntries);
 
       bucketToSplit.shrink(indexToSplit);
@@ -1656,7 +1922,7 @@ public class OSBTree<K, V> extends ODurableComponent {
           final OCacheEntry rightSiblingBucketEntry = diskCache.load(fileId, rightSiblingPageIndex, false);
           rightSiblingBucketEntry.acquireExclusiveLock();
           OSBTreeBucket<K, V> rightSiblingBucket = new OSBTreeBucket<K, V>(rightSiblingBucketEntry, keySerializer, keyTypes,
-              valueSerializer, getTrackMode());
+              valueSerializer, getTrackMode(), keyCompression);
           try {
             rightSiblingBucket.setLeftSibling(rightBucketEntry.getPageIndex());
             logPageChanges(rightSiblingBucket, fileId, rightSiblingPageIndex, false);
@@ -1674,7 +1940,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       parentCacheEntry.acquireExclusiveLock();
       try {
         OSBTreeBucket<K, V> parentBucket = new OSBTreeBucket<K, V>(parentCacheEntry, keySerializer, keyTypes, valueSerializer,
-            getTrackMode());
+            getTrackMode(), keyCompression);
         OSBTreeBucket.SBTreeEntry<K, V> parentEntry = new OSBTreeBucket.SBTreeEntry<K, V>(pageIndex,
             rightBucketEntry.getPageIndex(), separationKey, null);
 
@@ -1694,7 +1960,7 @@ public class OSBTree<K, V> extends ODurableComponent {
 
           insertionIndex = bucketSearchResult.itemIndex;
 
-          parentBucket = new OSBTreeBucket<K, V>(parentCacheEntry, keySerializer, keyTypes, valueSerializer, getTrackMode());
+          parentBucket = new OSBTreeBucket<K, V>(parentCacheEntry, keySerializer, keyTypes, valueSerializer, getTrackMode(), keyCompression);
         }
 
         logPageChanges(parentBucket, fileId, parentIndex, false);
@@ -1744,7 +2010,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     leftBucketEntry.acquireExclusiveLock();
     try {
       OSBTreeBucket<K, V> newLeftBucket = new OSBTreeBucket<K, V>(leftBucketEntry, splitLeaf, keySerializer, keyTypes,
-          valueSerializer, getTrackMode());
+          valueSerializer, getTrackMode(), keyCompression);
       newLeftBucket.addAll(leftEntries);
 
       if (splitLeaf)
@@ -1759,7 +2025,7 @@ public class OSBTree<K, V> extends ODurableComponent {
     rightBucketEntry.acquireExclusiveLock();
     try {
       OSBTreeBucket<K, V> newRightBucket = new OSBTreeBucket<K, V>(rightBucketEntry, splitLeaf, keySerializer, keyTypes,
-          valueSerializer, getTrackMode());
+          valueSerializer, getTrackMode(), keyCompression);
       newRightBucket.addAll(rightEntries);
 
       if (splitLeaf)
@@ -1772,7 +2038,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       diskCache.release(rightBucketEntry);
     }
 
-    bucketToSplit = new OSBTreeBucket<K, V>(bucketEntry, false, keySerializer, keyTypes, valueSerializer, getTrackMode());
+    bucketToSplit = new OSBTreeBucket<K, V>(bucketEntry, false, keySerializer, keyTypes, valueSerializer, getTrackMode(), keyCompression);
 
     bucketToSplit.setTreeSize(treeSize);
     bucketToSplit.setValuesFreeListFirstIndex(freeListPage);
@@ -1808,7 +2074,7 @@ public class OSBTree<K, V> extends ODurableComponent {
       final OSBTreeBucket.SBTreeEntry<K, V> entry;
       try {
         final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(bucketEntry, keySerializer, keyTypes, valueSerializer,
-            ODurablePage.TrackMode.NONE);
+            ODurablePage.TrackMode.NONE, keyCompression);
         final int index = keyBucket.find(key);
 
         if (keyBucket.isLeaf())
@@ -27,49 +27,74 @@ import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OByteSerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OShortSerializer;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
 
 /**
+ * Buckets of trees created with key compression store only once, at the end of the page, the longest run of bytes shared by all
+ * the serialized keys of the bucket, and every entry keeps the rest of its key bytes preceded by their size. For most key types
+ * the shared bytes are the common prefix of the keys, found after the size that serializers write first. Offsets of entries are
+ * still kept in the array of positions, so keys are found by binary search as in uncompressed buckets.
+ * 
+ * Shared bytes are recomputed when a key that does not contain them is added and when the bucket is full or rebuilt after a split,
+ * so more keys fit in a bucket and the tree gets lower.
+ * 
  * @author Andrey Lomakin
  * @since 8/7/13
  */
 public class OSBTreeBucket<K, V> extends ODurablePage {
-  private static final int            FREE_POINTER_OFFSET     = NEXT_FREE_POSITION;
-  private static final int            SIZE_OFFSET             = FREE_POINTER_OFFSET + OIntegerSerializer.INT_SIZE;
-  private static final int            IS_LEAF_OFFSET          = SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
-  private static final int            LEFT_SIBLING_OFFSET     = IS_LEAF_OFFSET + OByteSerializer.BYTE_SIZE;
-  private static final int            RIGHT_SIBLING_OFFSET    = LEFT_SIBLING_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int            FREE_POINTER_OFFSET               = NEXT_FREE_POSITION;
+  private static final int            SIZE_OFFSET                       = FREE_POINTER_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int            IS_LEAF_OFFSET                    = SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int            LEFT_SIBLING_OFFSET               = IS_LEAF_OFFSET + OByteSerializer.BYTE_SIZE;
+  private static final int            RIGHT_SIBLING_OFFSET              = LEFT_SIBLING_OFFSET + OLongSerializer.LONG_SIZE;
 
-  private static final int            TREE_SIZE_OFFSET        = RIGHT_SIBLING_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int            TREE_SIZE_OFFSET                  = RIGHT_SIBLING_OFFSET + OLongSerializer.LONG_SIZE;
 
   /**
    * KEY_SERIALIZER_OFFSET and VALUE_SERIALIZER_OFFSET are no longer used by sb-tree since 1.7.
    * 
    * However we left them in buckets to support backward compatibility.
    */
-  private static final int            KEY_SERIALIZER_OFFSET   = TREE_SIZE_OFFSET + OLongSerializer.LONG_SIZE;
-  private static final int            VALUE_SERIALIZER_OFFSET = KEY_SERIALIZER_OFFSET + OByteSerializer.BYTE_SIZE;
+  private static final int            KEY_SERIALIZER_OFFSET             = TREE_SIZE_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int            VALUE_SERIALIZER_OFFSET           = KEY_SERIALIZER_OFFSET + OByteSerializer.BYTE_SIZE;
 
-  private static final int            FREE_VALUES_LIST_OFFSET = VALUE_SERIALIZER_OFFSET + OByteSerializer.BYTE_SIZE;
+  private static final int            FREE_VALUES_LIST_OFFSET           = VALUE_SERIALIZER_OFFSET + OByteSerializer.BYTE_SIZE;
 
-  private static final int            POSITIONS_ARRAY_OFFSET  = FREE_VALUES_LIST_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int            POSITIONS_ARRAY_OFFSET            = FREE_VALUES_LIST_OFFSET + OLongSerializer.LONG_SIZE;
+
+  /**
+   * Compressed buckets keep offset and size of the shared key bytes before the array of positions.
+   */
+  private static final int            SHARED_BYTES_OFFSET_OFFSET        = POSITIONS_ARRAY_OFFSET;
+  private static final int            SHARED_BYTES_SIZE_OFFSET          = SHARED_BYTES_OFFSET_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int            COMPRESSED_POSITIONS_ARRAY_OFFSET = SHARED_BYTES_SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
 
   private final boolean               isLeaf;
+  private final boolean               keyCompression;
+  private final int                   positionsArrayOffset;
 
   private final OBinarySerializer<K>  keySerializer;
   private final OBinarySerializer<V>  valueSerializer;
 
   private final OType[]               keyTypes;
 
-  private final Comparator<? super K> comparator              = ODefaultComparator.INSTANCE;
+  private final Comparator<? super K> comparator                        = ODefaultComparator.INSTANCE;
 
   public OSBTreeBucket(OCacheEntry cacheEntry, boolean isLeaf, OBinarySerializer<K> keySerializer, OType[] keyTypes,
       OBinarySerializer<V> valueSerializer, TrackMode trackMode) throws IOException {
+    this(cacheEntry, isLeaf, keySerializer, keyTypes, valueSerializer, trackMode, false);
+  }
+
+  public OSBTreeBucket(OCacheEntry cacheEntry, boolean isLeaf, OBinarySerializer<K> keySerializer, OType[] keyTypes,
+      OBinarySerializer<V> valueSerializer, TrackMode trackMode, boolean keyCompression) throws IOException {
     super(cacheEntry, trackMode);
 
     this.isLeaf = isLeaf;
+    this.keyCompression = keyCompression;
+    this.positionsArrayOffset = keyCompression ? COMPRESSED_POSITIONS_ARRAY_OFFSET : POSITIONS_ARRAY_OFFSET;
     this.keySerializer = keySerializer;
     this.keyTypes = keyTypes;
     this.valueSerializer = valueSerializer;
@@ -86,14 +111,24 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     setByteValue(KEY_SERIALIZER_OFFSET, this.keySerializer.getId());
     setByteValue(VALUE_SERIALIZER_OFFSET, this.valueSerializer.getId());
+
+    if (keyCompression)
+      setSharedBytes(0, new byte[0]);
   }
 
   public OSBTreeBucket(OCacheEntry cacheEntry, OBinarySerializer<K> keySerializer, OType[] keyTypes,
       OBinarySerializer<V> valueSerializer, TrackMode trackMode) {
+    this(cacheEntry, keySerializer, keyTypes, valueSerializer, trackMode, false);
+  }
+
+  public OSBTreeBucket(OCacheEntry cacheEntry, OBinarySerializer<K> keySerializer, OType[] keyTypes,
+      OBinarySerializer<V> valueSerializer, TrackMode trackMode, boolean keyCompression) {
     super(cacheEntry, trackMode);
     this.keyTypes = keyTypes;
 
     this.isLeaf = getByteValue(IS_LEAF_OFFSET) > 0;
+    this.keyCompression = keyCompression;
+    this.positionsArrayOffset = keyCompression ? COMPRESSED_POSITIONS_ARRAY_OFFSET : POSITIONS_ARRAY_OFFSET;
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
   }
@@ -110,6 +145,23 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return size() == 0;
   }
 
+  /**
+   * Returns the amount of bytes not used yet by the entries and their positions.
+   */
+  public int getFreeSpace() {
+    return getIntValue(FREE_POINTER_OFFSET) - size() * OIntegerSerializer.INT_SIZE - positionsArrayOffset;
+  }
+
+  /**
+   * Returns the amount of key bytes shared by all the entries of a compressed bucket and stored only once.
+   */
+  public int getSharedKeyBytes() {
+    if (!keyCompression)
+      return 0;
+
+    return getIntValue(SHARED_BYTES_SIZE_OFFSET);
+  }
+
   public long getValuesFreeListFirstIndex() {
     return getLongValue(FREE_VALUES_LIST_OFFSET);
   }
@@ -138,8 +190,8 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public long remove(int entryIndex) throws IOException {
-    int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + entryIndex * OIntegerSerializer.INT_SIZE);
-    int keySize = getObjectSizeInDirectMemory(keySerializer, entryPosition);
+    int entryPosition = getIntValue(positionsArrayOffset + entryIndex * OIntegerSerializer.INT_SIZE);
+    int keySize = getKeySize(entryPosition);
 
     int entrySize;
     long linkValue = -1;
@@ -164,7 +216,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     int size = size();
     if (entryIndex < size - 1) {
-      moveData(POSITIONS_ARRAY_OFFSET + (entryIndex + 1) * OIntegerSerializer.INT_SIZE, POSITIONS_ARRAY_OFFSET + entryIndex
+      moveData(positionsArrayOffset + (entryIndex + 1) * OIntegerSerializer.INT_SIZE, positionsArrayOffset + entryIndex
           * OIntegerSerializer.INT_SIZE, (size - entryIndex - 1) * OIntegerSerializer.INT_SIZE);
     }
 
@@ -177,7 +229,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     }
     setIntValue(FREE_POINTER_OFFSET, freePointer + entrySize);
 
-    int currentPositionOffset = POSITIONS_ARRAY_OFFSET;
+    int currentPositionOffset = positionsArrayOffset;
 
     for (int i = 0; i < size; i++) {
       int currentEntryPosition = getIntValue(currentPositionOffset);
@@ -194,11 +246,11 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public SBTreeEntry<K, V> getEntry(int entryIndex) {
-    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + positionsArrayOffset);
 
     if (isLeaf) {
-      K key = deserializeFromDirectMemory(keySerializer, entryPosition);
-      entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition);
+      K key = readKey(entryPosition);
+      entryPosition += getKeySize(entryPosition);
 
       boolean isLinkValue = getByteValue(entryPosition) > 0;
       long link = -1;
@@ -217,19 +269,19 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       long rightChild = getLongValue(entryPosition);
       entryPosition += OLongSerializer.LONG_SIZE;
 
-      K key = deserializeFromDirectMemory(keySerializer, entryPosition);
+      K key = readKey(entryPosition);
 
       return new SBTreeEntry<K, V>(leftChild, rightChild, key, null);
     }
   }
 
   public K getKey(int index) {
-    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + positionsArrayOffset);
 
     if (!isLeaf)
       entryPosition += 2 * OLongSerializer.LONG_SIZE;
 
-    return deserializeFromDirectMemory(keySerializer, entryPosition);
+    return readKey(entryPosition);
   }
 
   public boolean isLeaf() {
@@ -237,15 +289,21 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public void addAll(List<SBTreeEntry<K, V>> entries) throws IOException {
+    if (keyCompression && isEmpty()) {
+      rewrite(entries);
+      return;
+    }
+
     for (int i = 0; i < entries.size(); i++)
       addEntry(i, entries.get(i), false);
   }
 
   public void shrink(int newSize) throws IOException {
-    List<SBTreeEntry<K, V>> treeEntries = new ArrayList<SBTreeEntry<K, V>>(newSize);
+    List<SBTreeEntry<K, V>> treeEntries = getEntries(newSize);
 
-    for (int i = 0; i < newSize; i++) {
-      treeEntries.add(getEntry(i));
+    if (keyCompression) {
+      rewrite(treeEntries);
+      return;
     }
 
     setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
@@ -258,45 +316,74 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     }
   }
 
+  /**
+   * Recomputes the key bytes shared by all the entries of a compressed bucket and rewrites the bucket if more bytes are shared than
+   * before.
+   * 
+   * @return <code>true</code> if the bucket was rewritten.
+   */
+  public boolean compact() throws IOException {
+    if (!keyCompression || isEmpty())
+      return false;
+
+    final List<SBTreeEntry<K, V>> entries = getEntries(size());
+    final byte[][] keys = serializeKeys(entries);
+    final int[] sharedBytes = findSharedBytes(keys);
+    if (sharedBytes[1] <= getSharedKeyBytes())
+      return false;
+
+    return rewrite(entries, keys, sharedBytes);
+  }
+
   public boolean addEntry(int index, SBTreeEntry<K, V> treeEntry, boolean updateNeighbors) throws IOException {
-    final int keySize = keySerializer.getObjectSize(treeEntry.key, (Object[]) keyTypes);
-    int valueSize = 0;
-    int entrySize = keySize;
+    final byte[] serializedKey = serializeKey(treeEntry.key);
+    if (!keyCompression)
+      return insertEntry(index, treeEntry, serializedKey, updateNeighbors);
 
-    if (isLeaf) {
-      if (valueSerializer.isFixedLength())
-        valueSize = valueSerializer.getFixedLength();
-      else {
-        if (treeEntry.value.isLink())
-          valueSize = OLongSerializer.LONG_SIZE;
-        else
-          valueSize = valueSerializer.getObjectSize(treeEntry.value.getValue());
+    if (containsSharedBytes(serializedKey) && insertEntry(index, treeEntry, compressKey(serializedKey), updateNeighbors))
+      return true;
+
+    // KEY DOES NOT CONTAIN THE SHARED BYTES OR BUCKET IS FULL: REWRITE THE BUCKET WITH THE BYTES SHARED BY THE NEW KEY TOO
+    final List<SBTreeEntry<K, V>> entries = getEntries(size());
+    if (!isLeaf && updateNeighbors) {
+      if (index < entries.size()) {
+        final SBTreeEntry<K, V> next = entries.get(index);
+        entries.set(index, new SBTreeEntry<K, V>(treeEntry.rightChild, next.rightChild, next.key, null));
       }
 
-      entrySize += valueSize + OByteSerializer.BYTE_SIZE;
-    } else
-      entrySize += 2 * OLongSerializer.LONG_SIZE;
+      if (index > 0) {
+        final SBTreeEntry<K, V> prev = entries.get(index - 1);
+        entries.set(index - 1, new SBTreeEntry<K, V>(prev.leftChild, treeEntry.leftChild, prev.key, null));
+      }
+    }
+    entries.add(index, treeEntry);
+
+    return rewrite(entries);
+  }
+
+  private boolean insertEntry(int index, SBTreeEntry<K, V> treeEntry, byte[] serializedKey, boolean updateNeighbors)
+      throws IOException {
+    final int keySize = serializedKey.length;
+    final int valueSize = isLeaf ? getValueSize(treeEntry) : 0;
+    final int entrySize = getEntrySize(keySize, valueSize);
 
     int size = size();
     int freePointer = getIntValue(FREE_POINTER_OFFSET);
-    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET)
+    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + positionsArrayOffset)
       return false;
 
     if (index <= size - 1) {
-      moveData(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, POSITIONS_ARRAY_OFFSET + (index + 1)
+      moveData(positionsArrayOffset + index * OIntegerSerializer.INT_SIZE, positionsArrayOffset + (index + 1)
           * OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
     }
 
     freePointer -= entrySize;
 
     setIntValue(FREE_POINTER_OFFSET, freePointer);
-    setIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, freePointer);
+    setIntValue(positionsArrayOffset + index * OIntegerSerializer.INT_SIZE, freePointer);
     setIntValue(SIZE_OFFSET, size + 1);
 
     if (isLeaf) {
-      byte[] serializedKey = new byte[keySize];
-      keySerializer.serializeNative(treeEntry.key, serializedKey, 0, (Object[]) keyTypes);
-
       freePointer += setBinaryValue(freePointer, serializedKey);
       freePointer += setByteValue(freePointer, treeEntry.value.isLink() ? (byte) 1 : (byte) 0);
 
@@ -311,20 +398,18 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
       freePointer += setLongValue(freePointer, treeEntry.leftChild);
       freePointer += setLongValue(freePointer, treeEntry.rightChild);
 
-      byte[] serializedKey = new byte[keySize];
-      keySerializer.serializeNative(treeEntry.key, serializedKey, 0, (Object[]) keyTypes);
       setBinaryValue(freePointer, serializedKey);
 
       size++;
 
       if (updateNeighbors && size > 1) {
         if (index < size - 1) {
-          final int nextEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index + 1) * OIntegerSerializer.INT_SIZE);
+          final int nextEntryPosition = getIntValue(positionsArrayOffset + (index + 1) * OIntegerSerializer.INT_SIZE);
           setLongValue(nextEntryPosition, treeEntry.rightChild);
         }
 
         if (index > 0) {
-          final int prevEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index - 1) * OIntegerSerializer.INT_SIZE);
+          final int prevEntryPosition = getIntValue(positionsArrayOffset + (index - 1) * OIntegerSerializer.INT_SIZE);
           setLongValue(prevEntryPosition + OLongSerializer.LONG_SIZE, treeEntry.leftChild);
         }
       }
@@ -334,8 +419,8 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public int updateValue(int index, OSBTreeValue<V> value) throws IOException {
-    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
-    entryPosition += getObjectSizeInDirectMemory(keySerializer, entryPosition) + OByteSerializer.BYTE_SIZE;
+    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + positionsArrayOffset);
+    entryPosition += getKeySize(entryPosition) + OByteSerializer.BYTE_SIZE;
 
     int newSize = 0;
     if (value.isLink())
@@ -363,6 +448,188 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return 1;
   }
 
+  private List<SBTreeEntry<K, V>> getEntries(int count) {
+    final List<SBTreeEntry<K, V>> entries = new ArrayList<SBTreeEntry<K, V>>(count + 1);
+    for (int i = 0; i < count; i++)
+      entries.add(getEntry(i));
+
+    return entries;
+  }
+
+  private int getValueSize(SBTreeEntry<K, V> treeEntry) {
+    if (valueSerializer.isFixedLength())
+      return valueSerializer.getFixedLength();
+
+    if (treeEntry.value.isLink())
+      return OLongSerializer.LONG_SIZE;
+
+    return valueSerializer.getObjectSize(treeEntry.value.getValue());
+  }
+
+  private int getEntrySize(int keySize, int valueSize) {
+    if (isLeaf)
+      return keySize + valueSize + OByteSerializer.BYTE_SIZE;
+
+    return keySize + 2 * OLongSerializer.LONG_SIZE;
+  }
+
+  private byte[] serializeKey(K key) {
+    final byte[] serializedKey = new byte[keySerializer.getObjectSize(key, (Object[]) keyTypes)];
+    keySerializer.serializeNative(key, serializedKey, 0, (Object[]) keyTypes);
+    return serializedKey;
+  }
+
+  private byte[][] serializeKeys(List<SBTreeEntry<K, V>> entries) {
+    final byte[][] keys = new byte[entries.size()][];
+    for (int i = 0; i < keys.length; i++)
+      keys[i] = serializeKey(entries.get(i).key);
+
+    return keys;
+  }
+
+  /**
+   * Returns the size of the stored key at the given position, including the size prefix of compressed keys.
+   */
+  private int getKeySize(int keyPosition) {
+    if (!keyCompression)
+      return getObjectSizeInDirectMemory(keySerializer, keyPosition);
+
+    return OShortSerializer.SHORT_SIZE + getCompressedKeySize(keyPosition);
+  }
+
+  private int getCompressedKeySize(int keyPosition) {
+    return deserializeFromDirectMemory(OShortSerializer.INSTANCE, keyPosition) & 0xFFFF;
+  }
+
+  private K readKey(int keyPosition) {
+    if (!keyCompression)
+      return deserializeFromDirectMemory(keySerializer, keyPosition);
+
+    final int compressedSize = getCompressedKeySize(keyPosition);
+    final byte[] compressedKey = getBinaryValue(keyPosition + OShortSerializer.SHORT_SIZE, compressedSize);
+
+    final int sharedOffset = getIntValue(SHARED_BYTES_OFFSET_OFFSET);
+    final int sharedSize = getIntValue(SHARED_BYTES_SIZE_OFFSET);
+
+    final byte[] key = new byte[compressedSize + sharedSize];
+    System.arraycopy(compressedKey, 0, key, 0, sharedOffset);
+    System.arraycopy(getBinaryValue(MAX_PAGE_SIZE_BYTES - sharedSize, sharedSize), 0, key, sharedOffset, sharedSize);
+    System.arraycopy(compressedKey, sharedOffset, key, sharedOffset + sharedSize, compressedSize - sharedOffset);
+
+    return keySerializer.deserializeNative(key, 0);
+  }
+
+  private boolean containsSharedBytes(byte[] serializedKey) {
+    final int sharedOffset = getIntValue(SHARED_BYTES_OFFSET_OFFSET);
+    final int sharedSize = getIntValue(SHARED_BYTES_SIZE_OFFSET);
+    if (serializedKey.length < sharedOffset + sharedSize)
+      return false;
+
+    final byte[] sharedBytes = getBinaryValue(MAX_PAGE_SIZE_BYTES - sharedSize, sharedSize);
+    for (int i = 0; i < sharedSize; i++)
+      if (serializedKey[sharedOffset + i] != sharedBytes[i])
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Removes the shared bytes from a serialized key which contains them and prefixes the rest with its size.
+   */
+  private byte[] compressKey(byte[] serializedKey) {
+    final int sharedOffset = getIntValue(SHARED_BYTES_OFFSET_OFFSET);
+    final int sharedSize = getIntValue(SHARED_BYTES_SIZE_OFFSET);
+    final int compressedSize = serializedKey.length - sharedSize;
+
+    final byte[] compressedKey = new byte[OShortSerializer.SHORT_SIZE + compressedSize];
+    OShortSerializer.INSTANCE.serializeNative((short) compressedSize, compressedKey, 0);
+    System.arraycopy(serializedKey, 0, compressedKey, OShortSerializer.SHORT_SIZE, sharedOffset);
+    System.arraycopy(serializedKey, sharedOffset + sharedSize, compressedKey, OShortSerializer.SHORT_SIZE + sharedOffset,
+        compressedSize - sharedOffset);
+
+    return compressedKey;
+  }
+
+  /**
+   * Finds the longest run of bytes equal in all the serialized keys.
+   * 
+   * @return offset and size of the run, size is 0 if there are less than two keys.
+   */
+  private static int[] findSharedBytes(byte[][] keys) {
+    if (keys.length < 2)
+      return new int[] { 0, 0 };
+
+    int minSize = Integer.MAX_VALUE;
+    for (byte[] key : keys)
+      minSize = Math.min(minSize, key.length);
+
+    int bestOffset = 0;
+    int bestSize = 0;
+    int runStart = 0;
+
+    for (int i = 0; i < minSize; i++) {
+      final byte b = keys[0][i];
+
+      boolean shared = true;
+      for (int k = 1; k < keys.length && shared; k++)
+        shared = keys[k][i] == b;
+
+      if (!shared)
+        runStart = i + 1;
+      else if (i + 1 - runStart > bestSize) {
+        bestOffset = runStart;
+        bestSize = i + 1 - runStart;
+      }
+    }
+
+    return new int[] { bestOffset, bestSize };
+  }
+
+  private void setSharedBytes(int offset, byte[] sharedBytes) throws IOException {
+    setIntValue(SHARED_BYTES_OFFSET_OFFSET, offset);
+    setIntValue(SHARED_BYTES_SIZE_OFFSET, sharedBytes.length);
+    if (sharedBytes.length > 0)
+      setBinaryValue(MAX_PAGE_SIZE_BYTES - sharedBytes.length, sharedBytes);
+  }
+
+  private boolean rewrite(List<SBTreeEntry<K, V>> entries) throws IOException {
+    final byte[][] keys = serializeKeys(entries);
+    return rewrite(entries, keys, findSharedBytes(keys));
+  }
+
+  /**
+   * Rewrites a compressed bucket with passed entries, storing the given run of shared key bytes only once.
+   * 
+   * @return <code>false</code> if entries do not fit in the page, bucket is not changed in such case.
+   */
+  private boolean rewrite(List<SBTreeEntry<K, V>> entries, byte[][] keys, int[] sharedBytes) throws IOException {
+    final int sharedOffset = sharedBytes[0];
+    final int sharedSize = sharedBytes[1];
+
+    int pageSize = COMPRESSED_POSITIONS_ARRAY_OFFSET + sharedSize;
+    for (int i = 0; i < keys.length; i++) {
+      final SBTreeEntry<K, V> entry = entries.get(i);
+      pageSize += OIntegerSerializer.INT_SIZE
+          + getEntrySize(OShortSerializer.SHORT_SIZE + keys[i].length - sharedSize, isLeaf ? getValueSize(entry) : 0);
+    }
+
+    if (pageSize > MAX_PAGE_SIZE_BYTES)
+      return false;
+
+    final byte[] shared = new byte[sharedSize];
+    if (sharedSize > 0)
+      System.arraycopy(keys[0], sharedOffset, shared, 0, sharedSize);
+
+    setSharedBytes(sharedOffset, shared);
+    setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES - sharedSize);
+    setIntValue(SIZE_OFFSET, 0);
+
+    for (int i = 0; i < keys.length; i++)
+      insertEntry(i, entries.get(i), compressKey(keys[i]), false);
+
+    return true;
+  }
+
   public void setLeftSibling(long pageIndex) throws IOException {
     setLongValue(LEFT_SIBLING_OFFSET, pageIndex);
   }
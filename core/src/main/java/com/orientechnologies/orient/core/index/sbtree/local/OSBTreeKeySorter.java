@@ -0,0 +1,346 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+
+/**
+ * External merge sort of the key/RID pairs loaded in bulk in a {@link OSBTree}. Keys are preprocessed by the key serializer of the
+ * tree when added, so they are sorted as the tree sorts them. Pairs are ordered by key and then by RID.
+ *
+ * Every time the threshold is reached the collected pairs are handed to a background thread that sorts them and writes them as a
+ * run to a temporary file, while the caller goes on collecting the next ones. The runs are merged while the result is browsed.
+ *
+ * @see OSBTree#bulkLoad(Iterator, float)
+ */
+public class OSBTreeKeySorter<K> implements Iterable<Map.Entry<K, ORID>> {
+  private final OBinarySerializer<K>           keySerializer;
+  private final OType[]                        keyTypes;
+  private final int                            spillThreshold;
+  private final Comparator<Map.Entry<K, ORID>> entryComparator;
+  private List<Map.Entry<K, ORID>>             entries = new ArrayList<Map.Entry<K, ORID>>();
+  private final List<File>                     runs    = new ArrayList<File>();
+  private Thread                               spillThread;
+  private volatile Throwable                   spillFailure;
+  private long                                 size;
+
+  /**
+   * @param iSpillThreshold
+   *          amount of pairs sorted in memory before spilling them to a temporary file, 0 to never spill
+   */
+  public OSBTreeKeySorter(final OBinarySerializer<K> iKeySerializer, final OType[] iKeyTypes, final int iSpillThreshold) {
+    keySerializer = iKeySerializer;
+    keyTypes = iKeyTypes;
+    spillThreshold = iSpillThreshold;
+
+    entryComparator = new Comparator<Map.Entry<K, ORID>>() {
+      public int compare(final Map.Entry<K, ORID> e1, final Map.Entry<K, ORID> e2) {
+        final int result = ODefaultComparator.INSTANCE.compare(e1.getKey(), e2.getKey());
+        if (result != 0)
+          return result;
+        return e1.getValue().compareTo(e2.getValue());
+      }
+    };
+  }
+
+  public void add(final K iKey, final ORID iRid) {
+    final K key = keySerializer.preprocess(iKey, (Object[]) keyTypes);
+    entries.add(new AbstractMap.SimpleImmutableEntry<K, ORID>(key, iRid.copy()));
+    size++;
+
+    if (spillThreshold > 0 && entries.size() >= spillThreshold)
+      spill();
+  }
+
+  /**
+   * Returns the number of pairs added so far.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Sorts the pairs left in memory and waits for the runs being written. Must be called before browsing the pairs.
+   */
+  public void sort() {
+    waitForSpill();
+    Collections.sort(entries, entryComparator);
+  }
+
+  public boolean isSpilled() {
+    return !runs.isEmpty();
+  }
+
+  public Comparator<Map.Entry<K, ORID>> getComparator() {
+    return entryComparator;
+  }
+
+  public Iterator<Map.Entry<K, ORID>> iterator() {
+    return new MergeIterator();
+  }
+
+  /**
+   * Deletes the temporary files of the runs.
+   */
+  public void close() {
+    try {
+      waitForSpill();
+    } catch (OSBTreeException e) {
+      // ALREADY REPORTED BY SORT()
+    }
+
+    for (File run : runs)
+      if (run.exists() && !run.delete())
+        OLogManager.instance().warn(this, "Cannot delete the temporary file %s", run);
+    runs.clear();
+    entries = new ArrayList<Map.Entry<K, ORID>>();
+  }
+
+  private void spill() {
+    waitForSpill();
+
+    final List<Map.Entry<K, ORID>> toSpill = entries;
+    entries = new ArrayList<Map.Entry<K, ORID>>(toSpill.size());
+
+    final File file;
+    try {
+      final File tempDir = new File(Orient.getTempPath());
+      tempDir.mkdirs();
+      file = File.createTempFile("sbtree", ".run", tempDir);
+      file.deleteOnExit();
+    } catch (IOException e) {
+      throw new OSBTreeException("Error on creating a temporary file for sorted keys", e);
+    }
+    runs.add(file);
+
+    spillThread = new Thread(new Runnable() {
+      public void run() {
+        try {
+          writeRun(file, toSpill);
+        } catch (Throwable t) {
+          spillFailure = t;
+        }
+      }
+    }, "OrientDB SBTree Key Sorter");
+    spillThread.setDaemon(true);
+    spillThread.start();
+  }
+
+  private void waitForSpill() {
+    if (spillThread != null) {
+      try {
+        spillThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OSBTreeException("Sorting of keys was interrupted");
+      }
+      spillThread = null;
+    }
+
+    if (spillFailure != null)
+      throw new OSBTreeException("Error on writing sorted keys to a temporary file", spillFailure);
+  }
+
+  private void writeRun(final File iFile, final List<Map.Entry<K, ORID>> iEntries) throws IOException {
+    Collections.sort(iEntries, entryComparator);
+
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(iFile), 64 * 1024));
+    try {
+      byte[] stream = new byte[256];
+      for (Map.Entry<K, ORID> e : iEntries) {
+        final int keySize = keySerializer.getObjectSize(e.getKey(), (Object[]) keyTypes);
+        final int entrySize = keySize + OLinkSerializer.RID_SIZE;
+        if (stream.length < entrySize)
+          stream = new byte[Math.max(entrySize, stream.length << 1)];
+
+        keySerializer.serializeNative(e.getKey(), stream, 0, (Object[]) keyTypes);
+        OLinkSerializer.INSTANCE.serializeNative(e.getValue(), stream, keySize);
+
+        out.writeInt(entrySize);
+        out.write(stream, 0, entrySize);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Source of sorted pairs: the pairs left in memory or a spilled run.
+   */
+  private abstract class Run {
+    protected Map.Entry<K, ORID> current;
+
+    protected abstract boolean advance() throws IOException;
+
+    protected void close() {
+    }
+  }
+
+  private class MemoryRun extends Run {
+    private final Iterator<Map.Entry<K, ORID>> iterator;
+
+    private MemoryRun(final List<Map.Entry<K, ORID>> iEntries) {
+      iterator = iEntries.iterator();
+    }
+
+    @Override
+    protected boolean advance() {
+      current = iterator.hasNext() ? iterator.next() : null;
+      return current != null;
+    }
+  }
+
+  private class FileRun extends Run {
+    private final DataInputStream in;
+    private byte[]                stream = new byte[256];
+
+    private FileRun(final File iFile) throws IOException {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(iFile), 64 * 1024));
+    }
+
+    @Override
+    protected boolean advance() throws IOException {
+      final int length;
+      try {
+        length = in.readInt();
+      } catch (EOFException e) {
+        current = null;
+        close();
+        return false;
+      }
+
+      if (stream.length < length)
+        stream = new byte[Math.max(length, stream.length << 1)];
+      in.readFully(stream, 0, length);
+
+      final K key = keySerializer.deserializeNative(stream, 0);
+      final ORID rid = OLinkSerializer.INSTANCE.deserializeNative(stream, length - OLinkSerializer.RID_SIZE);
+      current = new AbstractMap.SimpleImmutableEntry<K, ORID>(key, rid);
+      return true;
+    }
+
+    @Override
+    protected void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        OLogManager.instance().debug(this, "Error on closing sorted run", e);
+      }
+    }
+  }
+
+  /**
+   * K-way merge of the runs.
+   */
+  private class MergeIterator implements Iterator<Map.Entry<K, ORID>> {
+    private final PriorityQueue<Run> queue;
+    private final List<Run>          opened = new ArrayList<Run>();
+    private Map.Entry<K, ORID>       next;
+
+    private MergeIterator() {
+      queue = new PriorityQueue<Run>(runs.size() + 1, new Comparator<Run>() {
+        public int compare(final Run r1, final Run r2) {
+          return entryComparator.compare(r1.current, r2.current);
+        }
+      });
+
+      try {
+        for (File file : runs)
+          open(new FileRun(file));
+        open(new MemoryRun(entries));
+      } catch (IOException e) {
+        closeRuns();
+        throw new OSBTreeException("Error on reading sorted keys from temporary files", e);
+      }
+
+      fetchNext();
+    }
+
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    public Map.Entry<K, ORID> next() {
+      if (next == null)
+        throw new NoSuchElementException();
+
+      final Map.Entry<K, ORID> result = next;
+      fetchNext();
+      return result;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private void open(final Run iRun) throws IOException {
+      opened.add(iRun);
+      if (iRun.advance())
+        queue.add(iRun);
+    }
+
+    private void fetchNext() {
+      next = null;
+      try {
+        final Run run = queue.poll();
+        if (run != null) {
+          next = run.current;
+          if (run.advance())
+            queue.add(run);
+        }
+      } catch (IOException e) {
+        closeRuns();
+        throw new OSBTreeException("Error on reading sorted keys from temporary files", e);
+      }
+
+      if (next == null)
+        closeRuns();
+    }
+
+    private void closeRuns() {
+      for (Run run : opened)
+        run.close();
+      opened.clear();
+      queue.clear();
+    }
+  }
+}
@@ -466,6 +466,10 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
     }
   }
 
+  public OSchemaShared getOwner() {
+    return owner;
+  }
+
   public Collection<OProperty> declaredProperties() {
     acquireSchemaReadLock();
     try {
@@ -1344,6 +1348,7 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
       final OPropertyImpl prop = new OPropertyImpl(this, name, type);
 
       properties.put(lowerName, prop);
+      owner.registerGlobalProperty(name);
 
       if (linkedType != null)
         prop.setLinkedTypeInternal(linkedType);
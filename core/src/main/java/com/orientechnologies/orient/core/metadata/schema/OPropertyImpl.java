@@ -1029,6 +1029,7 @@ public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty
       checkEmbedded();
 
       owner.renameProperty(this.name, name);
+      owner.getOwner().registerGlobalProperty(name);
       this.name = name;
     } finally {
       releaseSchemaWriteLock();
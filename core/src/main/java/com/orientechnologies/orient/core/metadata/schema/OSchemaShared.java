@@ -39,12 +39,15 @@ import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityReso
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.*;
 import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
 import com.orientechnologies.orient.core.type.ODocumentWrapperNoClass;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -68,6 +71,9 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 
   private final OClusterSelectionFactory        clusterSelectionFactory = new OClusterSelectionFactory();
 
+  private final List<String>                    globalProperties        = new CopyOnWriteArrayList<String>();
+  private final Map<String, Integer>            globalPropertyIds       = new ConcurrentHashMap<String, Integer>();
+
   private final ThreadLocal<OModifiableInteger> modificationCounter     = new ThreadLocal<OModifiableInteger>() {
                                                                           @Override
                                                                           protected OModifiableInteger initialValue() {
@@ -105,6 +111,36 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
     return clusterSelectionFactory;
   }
 
+  /**
+   * Returns the id of a field name declared as property by any class. Ids are never reused, so the binary record serializer stores
+   * them in place of the field names.
+   * 
+   * @return the id or -1 if no property with such name has ever been declared
+   */
+  public int getGlobalPropertyId(final String iName) {
+    final Integer id = globalPropertyIds.get(iName);
+    return id != null ? id : -1;
+  }
+
+  /**
+   * Returns the field name bound to a global property id, or null if the id is unknown.
+   */
+  public String getGlobalPropertyName(final int iId) {
+    return iId >= 0 && iId < globalProperties.size() ? globalProperties.get(iId) : null;
+  }
+
+  int registerGlobalProperty(final String iName) {
+    synchronized (globalProperties) {
+      Integer id = globalPropertyIds.get(iName);
+      if (id == null) {
+        id = globalProperties.size();
+        globalProperties.add(iName);
+        globalPropertyIds.put(iName, id);
+      }
+      return id;
+    }
+  }
+
   public int countClasses() {
     getDatabase().checkSecurity(ODatabaseSecurityResources.SCHEMA, ORole.PERMISSION_READ);
 
@@ -751,6 +787,20 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
       classes.clear();
       classes.putAll(newClasses);
 
+      // REGISTER THE PROPERTY NAMES IN THE SAME ORDER THEY WERE STORED, THEN THE ONES CREATED BEFORE THEY WERE TRACKED
+      final List<String> storedGlobalProperties = document.field("globalProperties");
+      if (storedGlobalProperties != null)
+        synchronized (globalProperties) {
+          globalProperties.clear();
+          globalPropertyIds.clear();
+          for (String name : storedGlobalProperties)
+            registerGlobalProperty(name);
+        }
+
+      for (ODocument c : storedClasses)
+        for (OProperty p : classes.get(((String) c.field("name")).toLowerCase()).declaredProperties())
+          registerGlobalProperty(p.getName());
+
       // REBUILD THE INHERITANCE TREE
       String superClassName;
       OClass superClass;
@@ -770,6 +820,8 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
           cls.setSuperClassInternal(superClass);
         }
       }
+
+      OSQLStatementCache.invalidate(getDatabase().getStorage());
     } finally {
       modificationCounter.get().decrement();
       readWriteLock.writeLock().unlock();
@@ -794,6 +846,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
           cc.add(((OClassImpl) c).toStream());
 
         document.field("classes", cc, OType.EMBEDDEDSET);
+        document.field("globalProperties", new ArrayList<String>(globalProperties), OType.EMBEDDEDLIST);
 
       } finally {
         document.setInternalStatus(ORecordElement.STATUS.LOADED);
@@ -886,6 +939,9 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
       reload(null, true);
       throw e;
     }
+
+    // PARSED STATEMENTS REFER TO THE CHANGED CLASSES
+    OSQLStatementCache.invalidate(db.getStorage());
   }
 
   @Deprecated
@@ -71,8 +71,12 @@ import com.orientechnologies.orient.core.record.ORecordAbstract;
 import com.orientechnologies.orient.core.record.ORecordSchemaAwareAbstract;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
+import com.orientechnologies.orient.core.version.ORecordVersion;
 
 /**
  * Document representation to handle values dynamically. Can be used in schema-less, schema-mixed and schema-full modes. Fields can
@@ -446,6 +450,16 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     return super.toStream();
   }
 
+  @Override
+  public ORecordAbstract<?> fill(final ORID iRid, final ORecordVersion iVersion, final byte[] iBuffer, final boolean iDirty) {
+    // THE CONTENT COMES FROM THE CURRENT DATABASE: IT'S WRITTEN WITH ITS RECORD FORMAT
+    final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (db != null && db instanceof ODatabaseDocument && db.getSerializer() != null)
+      _recordFormat = db.getSerializer();
+
+    return super.fill(iRid, iVersion, iBuffer, iDirty);
+  }
+
   /**
    * Dumps the instance as string.
    */
@@ -523,6 +537,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
   public void fromString(final String iValue) {
     _dirty = true;
     _source = OBinaryProtocol.string2bytes(iValue);
+    _recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
 
     removeAllCollectionChangeListeners();
 
@@ -1662,6 +1677,27 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
       _recordFormat = ODatabaseDocumentTx.getDefaultSerializer();
   }
 
+  /**
+   * Internal. Switches to the serializer of the current database if the document was created out of it or read from a database
+   * that uses a different record format. Called once when a new document is saved, loaded documents take the format of the
+   * database on {@link #fill(ORID, ORecordVersion, byte[], boolean)}.
+   */
+  public void checkRecordFormat() {
+    final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (db == null || !(db instanceof ODatabaseDocument))
+      return;
+
+    final ORecordSerializer databaseFormat = db.getSerializer();
+    if (databaseFormat == null || databaseFormat == _recordFormat)
+      return;
+
+    if (_source != null)
+      // UNMARSHALL THE CONTENT WITH THE FORMAT IT WAS WRITTEN WITH
+      deserializeFields();
+
+    _recordFormat = databaseFormat;
+  }
+
   protected String checkFieldName(final String iFieldName) {
     final Character c = OSchemaShared.checkNameIfValid(iFieldName);
     if (c != null)
@@ -39,46 +39,19 @@ public class ODocumentComparator implements Comparator<OIdentifiable> {
     this.context = iContext;
   }
 
-  @SuppressWarnings("unchecked")
   public int compare(final OIdentifiable iDoc1, final OIdentifiable iDoc2) {
     if (iDoc1 != null && iDoc1.equals(iDoc2))
       return 0;
 
-    Object fieldValue1;
-    Object fieldValue2;
-
     int partialResult = 0;
 
     for (OPair<String, String> field : orderCriteria) {
       final String fieldName = field.getKey();
-      final String ordering = field.getValue();
-
-      fieldValue1 = ((ODocument) iDoc1.getRecord()).field(fieldName);
 
-      fieldValue2 = ((ODocument) iDoc2.getRecord()).field(fieldName);
+      final Object fieldValue1 = ((ODocument) iDoc1.getRecord()).field(fieldName);
+      final Object fieldValue2 = ((ODocument) iDoc2.getRecord()).field(fieldName);
 
-      if (fieldValue1 == null && fieldValue2 == null) {
-          continue;
-      }
-
-      if (fieldValue1 == null)
-        return factor(-1, ordering);
-
-      if (fieldValue2 == null)
-        return factor(1, ordering);
-
-      if (!(fieldValue1 instanceof Comparable<?>)) {
-				context.incrementVariable(OBasicCommandContext.INVALID_COMPARE_COUNT);
-				partialResult =  ("" + fieldValue1).compareTo("" + fieldValue2);
-			} else {
-				try {
-					partialResult = ((Comparable<Object>) fieldValue1).compareTo(fieldValue2);
-				} catch (Exception x) {
-					context.incrementVariable(OBasicCommandContext.INVALID_COMPARE_COUNT);
-					partialResult =  ("" + fieldValue1).compareTo("" + fieldValue2);
-				}
-			}
-      partialResult = factor(partialResult, ordering);
+      partialResult = compareValues(fieldValue1, fieldValue2, field.getValue());
 
       if (partialResult != 0)
         break;
@@ -89,6 +62,36 @@ public class ODocumentComparator implements Comparator<OIdentifiable> {
     return partialResult;
   }
 
+  /**
+   * Compares two values of the same ordering field. Nulls come first, values that cannot be compared are compared by their string
+   * form.
+   */
+  @SuppressWarnings("unchecked")
+  public int compareValues(final Object fieldValue1, final Object fieldValue2, final String ordering) {
+    if (fieldValue1 == null && fieldValue2 == null)
+      return 0;
+
+    if (fieldValue1 == null)
+      return factor(-1, ordering);
+
+    if (fieldValue2 == null)
+      return factor(1, ordering);
+
+    int partialResult;
+    if (!(fieldValue1 instanceof Comparable<?>)) {
+      context.incrementVariable(OBasicCommandContext.INVALID_COMPARE_COUNT);
+      partialResult = ("" + fieldValue1).compareTo("" + fieldValue2);
+    } else {
+      try {
+        partialResult = ((Comparable<Object>) fieldValue1).compareTo(fieldValue2);
+      } catch (Exception x) {
+        context.incrementVariable(OBasicCommandContext.INVALID_COMPARE_COUNT);
+        partialResult = ("" + fieldValue1).compareTo("" + fieldValue2);
+      }
+    }
+    return factor(partialResult, ordering);
+  }
+
   private int factor(final int partialResult, final String iOrdering) {
     if (iOrdering.equals(OCommandExecutorSQLSelect.KEYWORD_DESC))
       // INVERT THE ORDERING
@@ -47,6 +47,7 @@ import com.orientechnologies.orient.core.serialization.serializer.binary.impl.in
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerListRID;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerOldRIDContainer;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRID;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerPostingBlock;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerSBTreeIndexRIDContainer;
 import com.orientechnologies.orient.core.storage.impl.local.eh.OClusterPositionSerializer;
 import com.orientechnologies.orient.core.storage.impl.local.eh.OPhysicalPositionSerializer;
@@ -151,6 +152,7 @@ public class OBinarySerializerFactory {
     factory.registerSerializer(OStreamSerializerListRID.INSTANCE, null);
     factory.registerSerializer(OStreamSerializerOldRIDContainer.INSTANCE, null);
     factory.registerSerializer(OStreamSerializerSBTreeIndexRIDContainer.INSTANCE, null);
+    factory.registerSerializer(OStreamSerializerPostingBlock.INSTANCE, null);
 
     factory.registerSerializer(OPhysicalPositionSerializer.INSTANCE, null);
     factory.registerSerializer(OClusterPositionSerializer.INSTANCE, null);
@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerJSON;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 
@@ -38,6 +39,7 @@ public class ORecordSerializerFactory {
 		defaultRecordFormat = new ORecordSerializerRaw();
 
 		register(ORecordSerializerSchemaAware2CSV.NAME, new ORecordSerializerSchemaAware2CSV());
+		register(ORecordSerializerBinary.NAME, new ORecordSerializerBinary());
 		register(ORecordSerializerJSON.NAME, new ORecordSerializerJSON());
 		register(ORecordSerializerRaw.NAME, defaultRecordFormat);
 	}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.util.Arrays;
+
+/**
+ * Byte array with a cursor used by the binary record serializer both to write and to read records. The array grows on demand
+ * while writing.
+ */
+public class OBytesContainer {
+  public byte[] bytes;
+  public int    offset;
+
+  public OBytesContainer() {
+    bytes = new byte[64];
+  }
+
+  public OBytesContainer(final byte[] iSource) {
+    bytes = iSource;
+  }
+
+  /**
+   * Reserves the requested amount of bytes moving the cursor after them.
+   * 
+   * @return position of the first reserved byte
+   */
+  public int alloc(final int iSize) {
+    final int begin = offset;
+    offset += iSize;
+    if (offset > bytes.length) {
+      int newLength = bytes.length << 1;
+      while (newLength < offset)
+        newLength <<= 1;
+      bytes = Arrays.copyOf(bytes, newLength);
+    }
+    return begin;
+  }
+
+  public OBytesContainer skip(final int iSize) {
+    offset += iSize;
+    return this;
+  }
+
+  /**
+   * @return copy of the written bytes
+   */
+  public byte[] fitBytes() {
+    return Arrays.copyOf(bytes, offset);
+  }
+}
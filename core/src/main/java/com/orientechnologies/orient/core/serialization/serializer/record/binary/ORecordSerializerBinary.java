@@ -0,0 +1,844 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.ODatabaseComplex;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.object.OLazyObjectMapInterface;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.db.record.ORecordLazyList;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMap;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OTrackedList;
+import com.orientechnologies.orient.core.db.record.OTrackedMap;
+import com.orientechnologies.orient.core.db.record.OTrackedSet;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OClassImpl;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.ODocumentSerializable;
+import com.orientechnologies.orient.core.serialization.OSerializableStream;
+import com.orientechnologies.orient.core.serialization.serializer.object.OObjectSerializerHelperManager;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.string.OStringSerializerAnyStreamable;
+import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
+import com.orientechnologies.orient.core.util.ODateHelper;
+
+/**
+ * Binary format of documents. The record starts with the format version and the class name, followed by an header that for every
+ * field contains its name, or the global id of the schema property with the same name, the position of the value and its type.
+ * Numbers are stored as variable length integers. Since the header tells where every value is, a partial unmarshalling decodes only
+ * the requested fields: the rest stay in the record buffer until they are accessed.
+ */
+public class ORecordSerializerBinary implements ORecordSerializer {
+  public static final String NAME            = "ORecordSerializerBinary";
+  private static final byte  CURRENT_VERSION = 0;
+  private static final byte  NULL_TYPE       = -1;
+
+  public ORecordInternal<?> fromStream(final byte[] iSource, ORecordInternal<?> iRecord, final String[] iFields) {
+    if (iRecord == null)
+      iRecord = new ODocument();
+
+    if (iSource == null || iSource.length == 0)
+      return iRecord;
+
+    final ODocument document = (ODocument) iRecord;
+    final OBytesContainer container = new OBytesContainer(iSource);
+
+    final byte version = container.bytes[container.offset++];
+    if (version != CURRENT_VERSION)
+      throw new OSerializationException("Binary record format version " + version + " is not supported");
+
+    try {
+      deserialize(document, container, iFields);
+    } catch (OSerializationException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw new OSerializationException("Error on unmarshalling record " + document.getIdentity(), e);
+    }
+    return document;
+  }
+
+  public byte[] toStream(final ORecordInternal<?> iSource, final boolean iOnlyDelta) {
+    if (!(iSource instanceof ODocument))
+      throw new OSerializationException("Cannot marshall the record " + iSource.getIdentity()
+          + ": only documents are supported by the binary format");
+
+    final OBytesContainer container = new OBytesContainer();
+    writeByte(container, CURRENT_VERSION);
+    serialize((ODocument) iSource, container);
+    return container.fitBytes();
+  }
+
+  @Override
+  public String toString() {
+    return NAME;
+  }
+
+  protected void deserialize(final ODocument iDocument, final OBytesContainer iBytes, final String[] iFields) {
+    final String className = readString(iBytes);
+    if (className.length() > 0) {
+      final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+      if (iDocument.getIdentity().getClusterId() < 0 || database == null
+          || !database.getStorageVersions().classesAreDetectedByClusterId())
+        iDocument.setClassNameIfExists(className);
+    } else
+      iDocument.setClassNameIfExists(null);
+
+    if (iFields != null && iFields.length == 1 && iFields[0].equals("@class"))
+      // ONLY THE CLASS NAME HAS BEEN REQUESTED: RETURN NOW WITHOUT UNMARSHALL THE ENTIRE RECORD
+      return;
+
+    final String[] fields = iFields != null && iFields.length > 0 ? iFields : null;
+    OSchemaShared schema = null;
+    int found = 0;
+
+    while (true) {
+      final int key = OVarIntSerializer.readAsInteger(iBytes);
+      if (key == 0)
+        // END OF HEADER
+        break;
+
+      final String fieldName;
+      if (key > 0) {
+        fieldName = OBinaryProtocol.bytes2string(iBytes.bytes, iBytes.offset, key);
+        iBytes.skip(key);
+      } else {
+        if (schema == null)
+          schema = getSchema(iDocument);
+        fieldName = schema != null ? schema.getGlobalPropertyName(-key - 1) : null;
+        if (fieldName == null)
+          throw new OSerializationException("Cannot resolve the property with id " + (-key - 1) + " of record "
+              + iDocument.getIdentity());
+      }
+
+      final int pointer = OBinaryProtocol.bytes2int(iBytes.bytes, iBytes.offset);
+      iBytes.skip(OBinaryProtocol.SIZE_INT);
+      final byte typeId = iBytes.bytes[iBytes.offset++];
+
+      if (fields != null && !contains(fields, fieldName))
+        continue;
+
+      if (!iDocument.containsField(fieldName)) {
+        // ALREADY UNMARSHALLED FIELDS ARE NOT OVERWRITTEN
+        final OType type = typeId == NULL_TYPE ? null : OType.getById(typeId);
+
+        final Object value;
+        if (pointer == 0)
+          value = null;
+        else {
+          final int headerCursor = iBytes.offset;
+          iBytes.offset = pointer;
+          value = readValue(iBytes, iDocument, type);
+          iBytes.offset = headerCursor;
+        }
+
+        if (type == null || !isExplicitType(type))
+          iDocument.field(fieldName, value);
+        else
+          iDocument.field(fieldName, value, type);
+      }
+
+      if (fields != null && ++found == fields.length)
+        // ALL THE REQUESTED FIELDS HAVE BEEN FOUND
+        break;
+    }
+  }
+
+  protected void serialize(final ODocument iDocument, final OBytesContainer iBytes) {
+    final OClass clazz = iDocument.getSchemaClass();
+    writeString(iBytes, clazz != null ? clazz.getStreamableName() : "");
+
+    final OSchemaShared schema = clazz instanceof OClassImpl ? ((OClassImpl) clazz).getOwner() : null;
+
+    final String[] fieldNames = iDocument.fieldNames();
+    final Object[] values = new Object[fieldNames.length];
+    final OType[] types = new OType[fieldNames.length];
+    final int[] pointers = new int[fieldNames.length];
+
+    for (int i = 0; i < fieldNames.length; ++i) {
+      final String fieldName = fieldNames[i];
+      final Object value = iDocument.rawField(fieldName);
+      final OType type = getFieldType(iDocument, clazz, fieldName, value);
+      if (type == OType.TRANSIENT) {
+        pointers[i] = -1;
+        continue;
+      }
+
+      values[i] = value;
+      types[i] = type;
+
+      final int id = schema != null ? schema.getGlobalPropertyId(fieldName) : -1;
+      if (id > -1)
+        OVarIntSerializer.write(iBytes, -(id + 1));
+      else
+        writeBinary(iBytes, OBinaryProtocol.string2bytes(fieldName));
+
+      pointers[i] = iBytes.alloc(OBinaryProtocol.SIZE_INT);
+      writeByte(iBytes, type != null ? (byte) type.getId() : NULL_TYPE);
+    }
+    OVarIntSerializer.write(iBytes, 0);
+
+    for (int i = 0; i < fieldNames.length; ++i) {
+      if (pointers[i] == -1 || values[i] == null)
+        // NULL VALUES KEEP THE POINTER TO 0
+        continue;
+
+      final int valuePosition = iBytes.offset;
+      writeValue(iBytes, iDocument, fieldNames[i], types[i], values[i]);
+      OBinaryProtocol.int2bytes(valuePosition, iBytes.bytes, pointers[i]);
+    }
+  }
+
+  protected Object readValue(final OBytesContainer iBytes, final ODocument iOwner, final OType iType) {
+    switch (iType) {
+    case BOOLEAN:
+      return iBytes.bytes[iBytes.offset++] == 1;
+    case INTEGER:
+      return OVarIntSerializer.readAsInteger(iBytes);
+    case SHORT:
+      return (short) OVarIntSerializer.readAsLong(iBytes);
+    case LONG:
+      return OVarIntSerializer.readAsLong(iBytes);
+    case BYTE:
+      return iBytes.bytes[iBytes.offset++];
+    case FLOAT: {
+      final float value = Float.intBitsToFloat(OBinaryProtocol.bytes2int(iBytes.bytes, iBytes.offset));
+      iBytes.skip(OBinaryProtocol.SIZE_INT);
+      return value;
+    }
+    case DOUBLE: {
+      final double value = Double.longBitsToDouble(OBinaryProtocol.bytes2long(iBytes.bytes, iBytes.offset));
+      iBytes.skip(OBinaryProtocol.SIZE_LONG);
+      return value;
+    }
+    case DATE:
+    case DATETIME:
+      return new Date(OVarIntSerializer.readAsLong(iBytes));
+    case STRING:
+      return readString(iBytes);
+    case BINARY:
+      return readBinary(iBytes);
+    case DECIMAL: {
+      final int scale = OVarIntSerializer.readAsInteger(iBytes);
+      return new BigDecimal(new BigInteger(readBinary(iBytes)), scale);
+    }
+    case LINK:
+      return readLink(iBytes);
+    case EMBEDDED:
+      return readEmbedded(iBytes, iOwner);
+    case EMBEDDEDLIST:
+    case EMBEDDEDSET:
+      return readEmbeddedCollection(iBytes, iOwner, iType);
+    case EMBEDDEDMAP:
+      return readEmbeddedMap(iBytes, iOwner);
+    case LINKLIST: {
+      final ORecordLazyList list = new ORecordLazyList(iOwner);
+      list.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+      final int size = OVarIntSerializer.readAsInteger(iBytes);
+      for (int i = 0; i < size; ++i)
+        list.add(readNullableLink(iBytes));
+      list.setInternalStatus(ORecordElement.STATUS.LOADED);
+      return list;
+    }
+    case LINKSET:
+      return new OMVRBTreeRIDSet(iOwner).fromStream(new StringBuilder(readString(iBytes)));
+    case LINKMAP: {
+      final ORecordLazyMap map = new ORecordLazyMap(iOwner, ODocument.RECORD_TYPE);
+      map.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+      final int size = OVarIntSerializer.readAsInteger(iBytes);
+      for (int i = 0; i < size; ++i) {
+        final String key = readString(iBytes);
+        map.put(key, readNullableLink(iBytes));
+      }
+      map.setInternalStatus(ORecordElement.STATUS.LOADED);
+      return map;
+    }
+    case LINKBAG:
+      return ORidBag.fromStream(readBinary(iBytes));
+    case CUSTOM: {
+      final Object value = OStringSerializerAnyStreamable.INSTANCE.fromStream(readString(iBytes));
+      if (value instanceof ODocument)
+        ((ODocument) value).addOwner(iOwner);
+      return value;
+    }
+    default:
+      throw new OSerializationException("Type " + iType + " is not supported by the binary record format");
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  protected void writeValue(final OBytesContainer iBytes, final ODocument iOwner, final String iFieldName, final OType iType,
+      final Object iValue) {
+    switch (iType) {
+    case BOOLEAN:
+      writeByte(iBytes, ((Boolean) iValue) ? (byte) 1 : (byte) 0);
+      break;
+    case INTEGER:
+    case SHORT:
+    case LONG:
+      OVarIntSerializer.write(iBytes, toNumber(iValue, iType).longValue());
+      break;
+    case BYTE:
+      writeByte(iBytes, toNumber(iValue, iType).byteValue());
+      break;
+    case FLOAT: {
+      final int pos = iBytes.alloc(OBinaryProtocol.SIZE_INT);
+      OBinaryProtocol.int2bytes(Float.floatToIntBits(toNumber(iValue, iType).floatValue()), iBytes.bytes, pos);
+      break;
+    }
+    case DOUBLE: {
+      final int pos = iBytes.alloc(OBinaryProtocol.SIZE_LONG);
+      OBinaryProtocol.long2bytes(Double.doubleToLongBits(toNumber(iValue, iType).doubleValue()), iBytes.bytes, pos);
+      break;
+    }
+    case DATE:
+      if (iValue instanceof Date) {
+        // RESET HOURS, MINUTES, SECONDS AND MILLISECONDS
+        final Calendar calendar = ODateHelper.getDatabaseCalendar();
+        calendar.setTime((Date) iValue);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        OVarIntSerializer.write(iBytes, calendar.getTimeInMillis());
+      } else
+        OVarIntSerializer.write(iBytes, toNumber(iValue, iType).longValue());
+      break;
+    case DATETIME:
+      OVarIntSerializer.write(iBytes, iValue instanceof Date ? ((Date) iValue).getTime() : toNumber(iValue, iType).longValue());
+      break;
+    case STRING:
+      writeString(iBytes, iValue.toString());
+      break;
+    case BINARY:
+      if (iValue instanceof byte[])
+        writeBinary(iBytes, (byte[]) iValue);
+      else if (iValue instanceof Byte)
+        writeBinary(iBytes, new byte[] { (Byte) iValue });
+      else
+        throw new OSerializationException("Field '" + iFieldName + "' of type BINARY cannot contain a value of class "
+            + iValue.getClass().getName());
+      break;
+    case DECIMAL: {
+      final BigDecimal decimal = iValue instanceof BigDecimal ? (BigDecimal) iValue : new BigDecimal(iValue.toString());
+      OVarIntSerializer.write(iBytes, decimal.scale());
+      writeBinary(iBytes, decimal.unscaledValue().toByteArray());
+      break;
+    }
+    case LINK:
+      writeLink(iBytes, linkToStream(iValue));
+      break;
+    case EMBEDDED:
+      writeEmbedded(iBytes, iFieldName, iValue);
+      break;
+    case EMBEDDEDLIST:
+    case EMBEDDEDSET:
+      writeEmbeddedCollection(iBytes, iOwner, iFieldName, iValue);
+      break;
+    case EMBEDDEDMAP:
+      writeEmbeddedMap(iBytes, iOwner, iFieldName, iValue);
+      break;
+    case LINKLIST: {
+      final Collection<?> coll = toCollection(iFieldName, iType, iValue);
+      OVarIntSerializer.write(iBytes, coll.size());
+      final Iterator<?> it = coll instanceof ORecordLazyMultiValue ? ((ORecordLazyMultiValue) coll).rawIterator() : coll.iterator();
+      while (it.hasNext())
+        writeNullableLink(iBytes, it.next());
+      break;
+    }
+    case LINKSET: {
+      final OMVRBTreeRIDSet coll;
+      if (!(iValue instanceof OMVRBTreeRIDSet)) {
+        // FIRST TIME: CONVERT THE ENTIRE COLLECTION
+        coll = new OMVRBTreeRIDSet(iOwner, (Collection<OIdentifiable>) toCollection(iFieldName, iType, iValue));
+        iOwner.field(iFieldName, coll);
+      } else
+        coll = (OMVRBTreeRIDSet) iValue;
+
+      final StringBuilder buffer = new StringBuilder();
+      coll.toStream(buffer);
+      writeString(iBytes, buffer.toString());
+      break;
+    }
+    case LINKMAP: {
+      if (!(iValue instanceof Map))
+        throw new OSerializationException("Field '" + iFieldName + "' of type LINKMAP cannot contain a value of class "
+            + iValue.getClass().getName());
+      final Map<Object, Object> map = (Map<Object, Object>) iValue;
+      if (map instanceof OLazyObjectMapInterface<?>)
+        ((OLazyObjectMapInterface<?>) map).setConvertToRecord(false);
+      try {
+        OVarIntSerializer.write(iBytes, map.size());
+        for (Entry<Object, Object> entry : map.entrySet()) {
+          writeString(iBytes, entry.getKey().toString());
+          writeNullableLink(iBytes, entry.getValue());
+        }
+      } finally {
+        if (map instanceof OLazyObjectMapInterface<?>)
+          ((OLazyObjectMapInterface<?>) map).setConvertToRecord(true);
+      }
+      break;
+    }
+    case LINKBAG:
+      writeBinary(iBytes, ((ORidBag) iValue).toStream());
+      break;
+    case CUSTOM: {
+      final StringBuilder buffer = new StringBuilder();
+      OStringSerializerAnyStreamable.INSTANCE.toStream(buffer, iValue);
+      writeString(iBytes, buffer.toString());
+      break;
+    }
+    default:
+      throw new OSerializationException("Type " + iType + " of field '" + iFieldName + "' is not supported by the binary record format");
+    }
+  }
+
+  protected OType getFieldType(final ODocument iDocument, final OClass iClass, final String iFieldName, final Object iValue) {
+    OType type = iDocument.fieldType(iFieldName);
+
+    if (iClass != null) {
+      // THE SCHEMA WINS ON THE FIELD TYPE
+      final OProperty prop = iClass.getProperty(iFieldName);
+      if (prop != null && prop.getType() != OType.ANY)
+        type = prop.getType();
+    }
+
+    if (type == OType.ANY)
+      type = null;
+
+    if (iValue == null)
+      return type;
+
+    if (type == null)
+      type = getTypeByValue(iValue);
+    else if (type == OType.LINK && iValue instanceof ODocument && !((ODocument) iValue).getIdentity().isValid()
+        && ((ODocument) iValue).isEmbedded())
+      // DECLARED AS LINK BUT THE DOCUMENT IS EMBEDDED
+      type = OType.EMBEDDED;
+
+    if (type == null)
+      throw new OSerializationException("Cannot detect the type of field '" + iFieldName + "' with value of class "
+          + iValue.getClass().getName());
+    return type;
+  }
+
+  /**
+   * Guesses the type of a value without a declared type following the same rules of the CSV serializer.
+   */
+  protected OType getTypeByValue(final Object iValue) {
+    if (iValue instanceof ODocument) {
+      final ODocument doc = (ODocument) iValue;
+      if (doc.hasOwners() || doc.isEmbedded() || ODatabaseRecordThreadLocal.INSTANCE.getIfDefined() == null)
+        return OType.EMBEDDED;
+      return OType.LINK;
+    } else if (iValue instanceof OIdentifiable)
+      return OType.LINK;
+    else if (iValue instanceof ODocumentSerializable)
+      return OType.EMBEDDED;
+    else if (iValue instanceof ORidBag)
+      return OType.LINKBAG;
+    else if (iValue instanceof ORecordLazyList)
+      return OType.LINKLIST;
+    else if (iValue instanceof OMVRBTreeRIDSet)
+      return OType.LINKSET;
+    else if (iValue instanceof ORecordLazyMap)
+      return OType.LINKMAP;
+    else if (iValue instanceof Collection<?>) {
+      final boolean set = iValue instanceof Set<?>;
+      final Object first = firstNotNull(((Collection<?>) iValue).iterator());
+      if (isLinkItem(first))
+        return set ? OType.LINKSET : OType.LINKLIST;
+      return set ? OType.EMBEDDEDSET : OType.EMBEDDEDLIST;
+    } else if (iValue.getClass().isArray() && !(iValue instanceof byte[]))
+      return OType.EMBEDDEDLIST;
+    else if (iValue instanceof Map<?, ?>) {
+      final Object first = firstNotNull(((Map<?, ?>) iValue).values().iterator());
+      return isLinkItem(first) ? OType.LINKMAP : OType.EMBEDDEDMAP;
+    } else if (iValue instanceof Enum<?>)
+      return OType.STRING;
+    else if (iValue instanceof BigInteger)
+      return OType.DECIMAL;
+
+    final OType type = OType.getTypeByClass(iValue.getClass());
+    if (type != null && type != OType.ANY)
+      return type;
+
+    if (iValue instanceof OSerializableStream)
+      return OType.CUSTOM;
+    return null;
+  }
+
+  private Object readEmbedded(final OBytesContainer iBytes, final ODocument iOwner) {
+    final ODocument embedded = new ODocument();
+    embedded.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+    deserialize(embedded, iBytes, null);
+    embedded.setInternalStatus(ORecordElement.STATUS.LOADED);
+    embedded.unsetDirty();
+
+    final Object value = fromEmbeddedDocument(embedded);
+    if (value == embedded && iOwner != null)
+      embedded.addOwner(iOwner);
+    return value;
+  }
+
+  private void writeEmbedded(final OBytesContainer iBytes, final String iFieldName, final Object iValue) {
+    if (iValue instanceof ODocument)
+      serialize((ODocument) iValue, iBytes);
+    else if (iValue instanceof ODocumentSerializable) {
+      final ODocument doc = ((ODocumentSerializable) iValue).toDocument();
+      doc.field(ODocumentSerializable.CLASS_NAME, iValue.getClass().getName());
+      serialize(doc, iBytes);
+    } else
+      throw new OSerializationException("Field '" + iFieldName + "' of type EMBEDDED cannot contain a value of class "
+          + iValue.getClass().getName());
+  }
+
+  /**
+   * Re-creates the object an embedded document was converted from, if any.
+   */
+  private Object fromEmbeddedDocument(final ODocument iDocument) {
+    final String className = iDocument.field(ODocumentSerializable.CLASS_NAME);
+    if (className == null)
+      return iDocument;
+
+    try {
+      final Class<?> clazz = Class.forName(className);
+      if (!ODocumentSerializable.class.isAssignableFrom(clazz))
+        return iDocument;
+
+      final ODocumentSerializable documentSerializable = (ODocumentSerializable) clazz.newInstance();
+      final ODocument docClone = new ODocument();
+      iDocument.copyTo(docClone);
+      docClone.removeField(ODocumentSerializable.CLASS_NAME);
+      documentSerializable.fromDocument(docClone);
+      return documentSerializable;
+    } catch (ClassNotFoundException e) {
+      OLogManager.instance().debug(this, "Class name provided in embedded document " + className + " does not exist.");
+      return iDocument;
+    } catch (InstantiationException e) {
+      throw new OSerializationException("Cannot serialize the object", e);
+    } catch (IllegalAccessException e) {
+      throw new OSerializationException("Cannot serialize the object", e);
+    }
+  }
+
+  private Object readEmbeddedCollection(final OBytesContainer iBytes, final ODocument iOwner, final OType iType) {
+    final Collection<Object> coll;
+    if (iType == OType.EMBEDDEDLIST) {
+      final OTrackedList<Object> list = new OTrackedList<Object>(iOwner);
+      list.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+      coll = list;
+    } else {
+      final OTrackedSet<Object> set = new OTrackedSet<Object>(iOwner);
+      set.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+      coll = set;
+    }
+
+    final int size = OVarIntSerializer.readAsInteger(iBytes);
+    for (int i = 0; i < size; ++i)
+      coll.add(readItem(iBytes, (ORecordElement) coll));
+
+    ((ORecordElement) coll).setInternalStatus(ORecordElement.STATUS.LOADED);
+    return coll;
+  }
+
+  private void writeEmbeddedCollection(final OBytesContainer iBytes, final ODocument iOwner, final String iFieldName,
+      final Object iValue) {
+    if (iValue.getClass().isArray()) {
+      final int length = java.lang.reflect.Array.getLength(iValue);
+      OVarIntSerializer.write(iBytes, length);
+      for (int i = 0; i < length; ++i)
+        writeItem(iBytes, iOwner, iFieldName, java.lang.reflect.Array.get(iValue, i));
+      return;
+    }
+
+    final Collection<?> coll = toCollection(iFieldName, OType.EMBEDDEDLIST, iValue);
+    OVarIntSerializer.write(iBytes, coll.size());
+    for (Object item : coll)
+      writeItem(iBytes, iOwner, iFieldName, item);
+  }
+
+  private Object readEmbeddedMap(final OBytesContainer iBytes, final ODocument iOwner) {
+    final OTrackedMap<Object> map = new OTrackedMap<Object>(iOwner);
+    map.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+
+    final int size = OVarIntSerializer.readAsInteger(iBytes);
+    for (int i = 0; i < size; ++i) {
+      final String key = readString(iBytes);
+      map.put(key, readItem(iBytes, map));
+    }
+
+    map.setInternalStatus(ORecordElement.STATUS.LOADED);
+    return map;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void writeEmbeddedMap(final OBytesContainer iBytes, final ODocument iOwner, final String iFieldName, final Object iValue) {
+    if (!(iValue instanceof Map))
+      throw new OSerializationException("Field '" + iFieldName + "' of type EMBEDDEDMAP cannot contain a value of class "
+          + iValue.getClass().getName());
+
+    final Map<Object, Object> map = (Map<Object, Object>) iValue;
+    OVarIntSerializer.write(iBytes, map.size());
+    for (Entry<Object, Object> entry : map.entrySet()) {
+      writeString(iBytes, entry.getKey().toString());
+      writeItem(iBytes, iOwner, iFieldName, entry.getValue());
+    }
+  }
+
+  private Object readItem(final OBytesContainer iBytes, final ORecordElement iContainer) {
+    final byte typeId = iBytes.bytes[iBytes.offset++];
+    if (typeId == NULL_TYPE)
+      return null;
+
+    final OType type = OType.getById(typeId);
+    final Object value = readValue(iBytes, null, type);
+    if (type == OType.EMBEDDED && value instanceof ODocument)
+      ((ODocument) value).addOwner(iContainer);
+    return value;
+  }
+
+  private void writeItem(final OBytesContainer iBytes, final ODocument iOwner, final String iFieldName, final Object iItem) {
+    if (iItem == null) {
+      writeByte(iBytes, NULL_TYPE);
+      return;
+    }
+
+    OType type;
+    if (iItem instanceof ODocument)
+      type = ((ODocument) iItem).isEmbedded() || !((ODocument) iItem).getIdentity().isValid() ? OType.EMBEDDED : OType.LINK;
+    else
+      type = getTypeByValue(iItem);
+
+    if (type == null || type == OType.LINKSET || type == OType.LINKMAP || type == OType.LINKBAG)
+      throw new OSerializationException("Cannot serialize the item of class " + iItem.getClass().getName() + " in field '"
+          + iFieldName + "'");
+
+    writeByte(iBytes, (byte) type.getId());
+    writeValue(iBytes, iOwner, iFieldName, type, iItem);
+  }
+
+  private Collection<?> toCollection(final String iFieldName, final OType iType, final Object iValue) {
+    if (!(iValue instanceof Collection<?>))
+      throw new OSerializationException("Field '" + iFieldName + "' of type " + iType + " cannot contain a value of class "
+          + iValue.getClass().getName());
+    return (Collection<?>) iValue;
+  }
+
+  /**
+   * Returns the identity to store for a linked record, saving it on the fly if it is new or changed.
+   */
+  private ORID linkToStream(Object iLinked) {
+    if (iLinked instanceof String)
+      iLinked = new ORecordId((String) iLinked);
+    else if (!(iLinked instanceof OIdentifiable)) {
+      // NOT RECORD: TRY TO EXTRACT THE DOCUMENT IF ANY
+      final String boundDocumentField = OObjectSerializerHelperManager.getInstance().getDocumentBoundField(iLinked.getClass());
+      if (boundDocumentField != null)
+        iLinked = OObjectSerializerHelperManager.getInstance().getFieldValue(iLinked, boundDocumentField);
+    }
+
+    if (!(iLinked instanceof OIdentifiable))
+      throw new OSerializationException("Invalid object received. Expected a OIdentifiable but received type="
+          + iLinked.getClass().getName() + " and value=" + iLinked);
+
+    if (iLinked instanceof ORID) {
+      final ORID rid = (ORID) iLinked;
+      if (rid.isValid() && rid.isNew()) {
+        // SAVE AT THE FLY AND STORE THE NEW RID
+        final ORecordInternal<?> record = rid.getRecord();
+        if (record != null) {
+          ODatabaseRecordThreadLocal.INSTANCE.get().save(record);
+          return record.getIdentity();
+        }
+      }
+      return rid;
+    }
+
+    final ORecordInternal<?> record = ((OIdentifiable) iLinked).getRecord();
+    if (record == null)
+      return ((OIdentifiable) iLinked).getIdentity();
+
+    final ORID rid = record.getIdentity();
+    if ((rid.isNew() && !rid.isTemporary()) || record.isDirty()) {
+      final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
+      if (record instanceof ODocument) {
+        final OClass schemaClass = ((ODocument) record).getSchemaClass();
+        database.save(record, schemaClass != null ? database.getClusterNameById(schemaClass.getClusterForNewInstance()) : null);
+      } else
+        database.save(record);
+
+      final ODatabaseComplex<?> dbOwner = database.getDatabaseOwner();
+      dbOwner.registerUserObjectAfterLinkSave(record);
+    }
+    return record.getIdentity();
+  }
+
+  private void writeNullableLink(final OBytesContainer iBytes, final Object iLinked) {
+    if (iLinked == null)
+      writeByte(iBytes, (byte) 0);
+    else {
+      writeByte(iBytes, (byte) 1);
+      writeLink(iBytes, linkToStream(iLinked));
+    }
+  }
+
+  private ORID readNullableLink(final OBytesContainer iBytes) {
+    return iBytes.bytes[iBytes.offset++] == 0 ? null : readLink(iBytes);
+  }
+
+  private void writeLink(final OBytesContainer iBytes, final ORID iRid) {
+    OVarIntSerializer.write(iBytes, iRid.getClusterId());
+    final OClusterPosition position = iRid.getClusterPosition();
+    if (OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong)
+      OVarIntSerializer.write(iBytes, position.longValue());
+    else {
+      final byte[] stream = position.toStream();
+      final int pos = iBytes.alloc(stream.length);
+      System.arraycopy(stream, 0, iBytes.bytes, pos, stream.length);
+    }
+  }
+
+  private ORID readLink(final OBytesContainer iBytes) {
+    final int clusterId = OVarIntSerializer.readAsInteger(iBytes);
+    final OClusterPosition position;
+    if (OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong)
+      position = OClusterPositionFactory.INSTANCE.valueOf(OVarIntSerializer.readAsLong(iBytes));
+    else {
+      position = OClusterPositionFactory.INSTANCE.fromStream(iBytes.bytes, iBytes.offset);
+      iBytes.skip(OClusterPositionFactory.INSTANCE.getSerializedSize());
+    }
+    return new ORecordId(clusterId, position);
+  }
+
+  private static void writeByte(final OBytesContainer iBytes, final byte iValue) {
+    final int pos = iBytes.alloc(1);
+    iBytes.bytes[pos] = iValue;
+  }
+
+  private static void writeBinary(final OBytesContainer iBytes, final byte[] iValue) {
+    OVarIntSerializer.write(iBytes, iValue.length);
+    final int pos = iBytes.alloc(iValue.length);
+    System.arraycopy(iValue, 0, iBytes.bytes, pos, iValue.length);
+  }
+
+  private static byte[] readBinary(final OBytesContainer iBytes) {
+    final int length = OVarIntSerializer.readAsInteger(iBytes);
+    final byte[] value = new byte[length];
+    System.arraycopy(iBytes.bytes, iBytes.offset, value, 0, length);
+    iBytes.skip(length);
+    return value;
+  }
+
+  private static void writeString(final OBytesContainer iBytes, final String iValue) {
+    writeBinary(iBytes, OBinaryProtocol.string2bytes(iValue));
+  }
+
+  private static String readString(final OBytesContainer iBytes) {
+    final int length = OVarIntSerializer.readAsInteger(iBytes);
+    final String value = OBinaryProtocol.bytes2string(iBytes.bytes, iBytes.offset, length);
+    iBytes.skip(length);
+    return value;
+  }
+
+  private static Number toNumber(final Object iValue, final OType iType) {
+    if (iValue instanceof Number)
+      return (Number) iValue;
+    if (iValue instanceof Date)
+      return ((Date) iValue).getTime();
+    if (iValue instanceof String)
+      return (Number) OType.convert(iValue, iType.getDefaultJavaType());
+    throw new OSerializationException("Value of class " + iValue.getClass().getName() + " cannot be stored as " + iType);
+  }
+
+  private static boolean isLinkItem(final Object iItem) {
+    if (iItem instanceof ODocument)
+      return !((ODocument) iItem).isEmbedded() && ODatabaseRecordThreadLocal.INSTANCE.getIfDefined() != null;
+    return iItem instanceof ORID || iItem instanceof ORecord<?>;
+  }
+
+  private static Object firstNotNull(final Iterator<?> iIterator) {
+    while (iIterator.hasNext()) {
+      final Object item = iIterator.next();
+      if (item != null)
+        return item;
+    }
+    return null;
+  }
+
+  /**
+   * Types passed on unmarshalling because they cannot be guessed by the value, or would be guessed wrong.
+   */
+  private static boolean isExplicitType(final OType iType) {
+    switch (iType) {
+    case DATE:
+    case EMBEDDED:
+    case EMBEDDEDLIST:
+    case EMBEDDEDSET:
+    case EMBEDDEDMAP:
+    case CUSTOM:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static boolean contains(final String[] iFields, final String iFieldName) {
+    for (String f : iFields)
+      if (f.equals(iFieldName))
+        return true;
+    return false;
+  }
+
+  private static OSchemaShared getSchema(final ODocument iDocument) {
+    final OClass clazz = iDocument.getSchemaClass();
+    if (clazz instanceof OClassImpl)
+      return ((OClassImpl) clazz).getOwner();
+
+    // THE CLASS IS UNKNOWN: ALL THE CLASSES SHARE THE SAME SCHEMA
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (database != null)
+      for (OClass c : database.getMetadata().getSchema().getClasses())
+        if (c instanceof OClassImpl)
+          return ((OClassImpl) c).getOwner();
+    return null;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import com.orientechnologies.orient.core.exception.OSerializationException;
+
+/**
+ * Variable length encoding of numbers: 7 bits per byte, the highest bit tells if more bytes follow. Signed values are zig-zag
+ * encoded first so small negative numbers take few bytes too.
+ */
+public class OVarIntSerializer {
+
+  public static int write(final OBytesContainer iBytes, final long iValue) {
+    return writeUnsigned(iBytes, signedToUnsigned(iValue));
+  }
+
+  public static int writeUnsigned(final OBytesContainer iBytes, long iValue) {
+    final int begin = iBytes.offset;
+    while ((iValue & 0xFFFFFFFFFFFFFF80L) != 0L) {
+      // RESERVE FIRST: ALLOC CAN REPLACE THE ARRAY
+      final int pos = iBytes.alloc(1);
+      iBytes.bytes[pos] = (byte) ((iValue & 0x7F) | 0x80);
+      iValue >>>= 7;
+    }
+    final int pos = iBytes.alloc(1);
+    iBytes.bytes[pos] = (byte) (iValue & 0x7F);
+    return iBytes.offset - begin;
+  }
+
+  public static long readAsLong(final OBytesContainer iBytes) {
+    return unsignedToSigned(readUnsignedVarLong(iBytes));
+  }
+
+  public static int readAsInteger(final OBytesContainer iBytes) {
+    return (int) readAsLong(iBytes);
+  }
+
+  public static long readUnsignedVarLong(final OBytesContainer iBytes) {
+    long value = 0L;
+    int shift = 0;
+    long b;
+    while (((b = iBytes.bytes[iBytes.offset++]) & 0x80L) != 0) {
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+      if (shift > 63)
+        throw new OSerializationException("Variable length number is too long");
+    }
+    return value | (b << shift);
+  }
+
+  public static long signedToUnsigned(final long iValue) {
+    return (iValue << 1) ^ (iValue >> 63);
+  }
+
+  public static long unsignedToSigned(final long iValue) {
+    final long temp = (((iValue << 63) >> 63) ^ iValue) >> 1;
+    return temp ^ (iValue & (1L << 63));
+  }
+}
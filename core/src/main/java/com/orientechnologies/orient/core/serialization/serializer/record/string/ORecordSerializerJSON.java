@@ -52,6 +52,7 @@ import com.orientechnologies.orient.core.version.ODistributedVersion;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.text.ParseException;
 import java.util.Collection;
 import java.util.HashMap;
@@ -302,39 +303,46 @@ public class ORecordSerializerJSON extends ORecordSerializerStringAbstract {
       boolean autoDetectCollectionType) {
     try {
       final StringWriter buffer = new StringWriter(INITIAL_SIZE);
-      final OJSONWriter json = new OJSONWriter(buffer, iFormat);
-      final FormatSettings settings = new FormatSettings(iFormat);
+      write(iRecord, buffer, iFormat);
 
-      json.beginObject();
-      OJSONFetchContext context = new OJSONFetchContext(json, settings);
-      context.writeSignature(json, iRecord);
+      iOutput.append(buffer);
+      return iOutput;
+    } catch (IOException e) {
+      throw new OSerializationException("Error on marshalling of record to JSON", e);
+    }
+  }
+
+  /**
+   * Writes the record as JSON directly in the output, without building it in memory. Used to stream many records.
+   */
+  public void write(final ORecordInternal<?> iRecord, final Writer iOutput, final String iFormat) throws IOException {
+    final OJSONWriter json = new OJSONWriter(iOutput, iFormat);
+    final FormatSettings settings = new FormatSettings(iFormat);
 
-      if (iRecord instanceof ORecordSchemaAware<?>) {
+    json.beginObject();
+    OJSONFetchContext context = new OJSONFetchContext(json, settings);
+    context.writeSignature(json, iRecord);
 
-        OFetchHelper.fetch(iRecord, null, OFetchHelper.buildFetchPlan(settings.fetchPlan), new OJSONFetchListener(), context,
-            iFormat);
-      } else if (iRecord instanceof ORecordStringable) {
+    if (iRecord instanceof ORecordSchemaAware<?>) {
 
-        // STRINGABLE
-        final ORecordStringable record = (ORecordStringable) iRecord;
-        json.writeAttribute(settings.indentLevel + 1, true, "value", record.value());
+      OFetchHelper.fetch(iRecord, null, OFetchHelper.buildFetchPlan(settings.fetchPlan), new OJSONFetchListener(), context,
+          iFormat);
+    } else if (iRecord instanceof ORecordStringable) {
 
-      } else if (iRecord instanceof ORecordBytes) {
-        // BYTES
-        final ORecordBytes record = (ORecordBytes) iRecord;
-        json.writeAttribute(settings.indentLevel + 1, true, "value", OBase64Utils.encodeBytes(record.toStream()));
-      } else
+      // STRINGABLE
+      final ORecordStringable record = (ORecordStringable) iRecord;
+      json.writeAttribute(settings.indentLevel + 1, true, "value", record.value());
 
-        throw new OSerializationException("Error on marshalling record of type '" + iRecord.getClass()
-            + "' to JSON. The record type cannot be exported to JSON");
+    } else if (iRecord instanceof ORecordBytes) {
+      // BYTES
+      final ORecordBytes record = (ORecordBytes) iRecord;
+      json.writeAttribute(settings.indentLevel + 1, true, "value", OBase64Utils.encodeBytes(record.toStream()));
+    } else
 
-      json.endObject(0, true);
+      throw new OSerializationException("Error on marshalling record of type '" + iRecord.getClass()
+          + "' to JSON. The record type cannot be exported to JSON");
 
-      iOutput.append(buffer);
-      return iOutput;
-    } catch (IOException e) {
-      throw new OSerializationException("Error on marshalling of record to JSON", e);
-    }
+    json.endObject(0, true);
   }
 
   @Override
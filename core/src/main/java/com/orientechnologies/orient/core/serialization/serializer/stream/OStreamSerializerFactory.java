@@ -48,6 +48,9 @@ public class OStreamSerializerFactory {
       else if (iName.equals(OStreamSerializerSBTreeIndexRIDContainer.NAME))
         return OStreamSerializerSBTreeIndexRIDContainer.INSTANCE;
 
+      else if (iName.equals(OStreamSerializerPostingBlock.NAME))
+        return OStreamSerializerPostingBlock.INSTANCE;
+
       else if (iName.equals(OCompositeKeySerializer.NAME))
         return OCompositeKeySerializer.INSTANCE;
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.stream;
+
+import java.io.IOException;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OBinaryTypeSerializer;
+
+/**
+ * Serializer of the posting blocks of full-text indexes. Blocks are already encoded, so they are stored as they are.
+ * 
+ * @see com.orientechnologies.orient.core.index.fulltext.OFullTextPostingBlock
+ */
+public class OStreamSerializerPostingBlock implements OStreamSerializer, OBinarySerializer<byte[]> {
+  public static final String                        NAME     = "ptb";
+  public static final OStreamSerializerPostingBlock INSTANCE = new OStreamSerializerPostingBlock();
+
+  public static final byte                          ID       = 22;
+
+  public Object fromStream(final byte[] iStream) throws IOException {
+    return iStream;
+  }
+
+  public byte[] toStream(final Object iObject) throws IOException {
+    return (byte[]) iObject;
+  }
+
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getObjectSize(byte[] object, Object... hints) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSize(object);
+  }
+
+  @Override
+  public int getObjectSize(byte[] stream, int startPosition) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSize(stream, startPosition);
+  }
+
+  @Override
+  public void serialize(byte[] object, byte[] stream, int startPosition, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serialize(object, stream, startPosition);
+  }
+
+  @Override
+  public byte[] deserialize(byte[] stream, int startPosition) {
+    return OBinaryTypeSerializer.INSTANCE.deserialize(stream, startPosition);
+  }
+
+  @Override
+  public byte getId() {
+    return ID;
+  }
+
+  @Override
+  public boolean isFixedLength() {
+    return false;
+  }
+
+  @Override
+  public int getFixedLength() {
+    return 0;
+  }
+
+  @Override
+  public void serializeNative(byte[] object, byte[] stream, int startPosition, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serializeNative(object, stream, startPosition);
+  }
+
+  @Override
+  public byte[] deserializeNative(byte[] stream, int startPosition) {
+    return OBinaryTypeSerializer.INSTANCE.deserializeNative(stream, startPosition);
+  }
+
+  @Override
+  public int getObjectSizeNative(byte[] stream, int startPosition) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSizeNative(stream, startPosition);
+  }
+
+  @Override
+  public void serializeInDirectMemory(byte[] object, ODirectMemoryPointer pointer, long offset, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serializeInDirectMemory(object, pointer, offset);
+  }
+
+  @Override
+  public byte[] deserializeFromDirectMemory(ODirectMemoryPointer pointer, long offset) {
+    return OBinaryTypeSerializer.INSTANCE.deserializeFromDirectMemory(pointer, offset);
+  }
+
+  @Override
+  public int getObjectSizeInDirectMemory(ODirectMemoryPointer pointer, long offset) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSizeInDirectMemory(pointer, offset);
+  }
+
+  @Override
+  public byte[] preprocess(byte[] value, Object... hints) {
+    return value;
+  }
+}
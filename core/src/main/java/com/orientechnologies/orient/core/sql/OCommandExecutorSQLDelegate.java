@@ -32,6 +32,9 @@ import java.util.Map;
  */
 public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
   protected OCommandExecutorSQLAbstract delegate;
+  private OSQLStatementCache            statementCache;
+  private String                        statementText;
+  private long                          statementGeneration;
 
   @SuppressWarnings("unchecked")
   public OCommandExecutorSQLDelegate parse(final OCommandRequest iCommand) {
@@ -43,6 +46,24 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
 
       final String textUpperCase = text.toUpperCase(Locale.ENGLISH);
 
+      if (isStatementCacheEnabled() && textUpperCase.trim().startsWith(OCommandExecutorSQLSelect.KEYWORD_SELECT)) {
+        statementCache = OSQLStatementCache.get(getDatabase().getStorage());
+        if (statementCache != null) {
+          statementText = text.trim();
+          statementGeneration = statementCache.getGeneration();
+          final OCommandExecutorSQLSelect cached = statementCache.acquire(statementText);
+          if (cached != null) {
+            // REUSE THE PARSED STATEMENT
+            delegate = cached;
+            delegate.setContext(context);
+            delegate.setLimit(iCommand.getLimit());
+            cached.reuse(textRequest);
+            delegate.setProgressListener(progressListener);
+            return this;
+          }
+        }
+      }
+
       delegate = (OCommandExecutorSQLAbstract) OSQLEngine.getInstance().getCommand(textUpperCase);
       if (delegate == null)
         throw new OCommandExecutorNotFoundException("Cannot find a command executor for the command request: " + iCommand);
@@ -51,13 +72,34 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
       delegate.setLimit(iCommand.getLimit());
       delegate.parse(iCommand);
       delegate.setProgressListener(progressListener);
+
+      if (statementCache != null
+          && !(delegate instanceof OCommandExecutorSQLSelect && ((OCommandExecutorSQLSelect) delegate).isReusable()))
+        // NOT PUT IN CACHE
+        statementCache = null;
     } else
       throw new OCommandExecutionException("Cannot find a command executor for the command request: " + iCommand);
     return this;
   }
 
   public Object execute(final Map<Object, Object> iArgs) {
-    return delegate.execute(iArgs);
+    if (statementCache == null)
+      return delegate.execute(iArgs);
+
+    boolean executed = false;
+    try {
+      final Object result = delegate.execute(iArgs);
+      executed = true;
+      return result;
+    } finally {
+      if (executed) {
+        // PUT THE PARSED STATEMENT BACK FOR THE NEXT EXECUTIONS
+        final OCommandExecutorSQLSelect select = (OCommandExecutorSQLSelect) delegate;
+        select.resetExecution();
+        statementCache.release(statementText, select, statementGeneration);
+      }
+      statementCache = null;
+    }
   }
 
   @Override
@@ -86,4 +128,12 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
   public OCommandExecutorSQLAbstract getDelegate() {
     return delegate;
   }
+
+  /**
+   * Tells if the parsed statements are taken from and put back in the statement cache. Executors browsed as record sources are
+   * never put back, so they do not use it.
+   */
+  protected boolean isStatementCacheEnabled() {
+    return true;
+  }
 }
@@ -60,4 +60,10 @@ public class OCommandExecutorSQLExplain extends OCommandExecutorSQLDelegate {
 
 		return report;
 	}
+
+	@Override
+	protected boolean isStatementCacheEnabled() {
+		// THE METRICS ARE READ FROM THE CONTEXT AFTER THE EXECUTION
+		return false;
+	}
 }
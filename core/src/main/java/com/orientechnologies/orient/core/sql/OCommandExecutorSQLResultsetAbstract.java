@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.sql;
 import java.util.*;
 import java.util.Map.Entry;
 
+import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
@@ -89,18 +90,24 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
     final OCommandRequestText textRequest = (OCommandRequestText) iRequest;
 
     init(textRequest);
+    bindRequest(textRequest);
+    return this;
+  }
 
+  /**
+   * Assigns the request the results are collected by.
+   */
+  protected void bindRequest(final OCommandRequestText iRequest) {
     if (iRequest instanceof OSQLSynchQuery) {
       request = (OSQLSynchQuery<ORecordSchemaAware<?>>) iRequest;
     } else if (iRequest instanceof OSQLAsynchQuery)
       request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
     else {
       // BUILD A QUERY OBJECT FROM THE COMMAND REQUEST
-      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(textRequest.getText());
-      if (textRequest.getResultListener() != null)
-        request.setResultListener(textRequest.getResultListener());
+      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(iRequest.getText());
+      if (iRequest.getResultListener() != null)
+        request.setResultListener(iRequest.getResultListener());
     }
-    return this;
   }
 
   @Override
@@ -286,6 +293,10 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
   }
 
   protected boolean filter(final ORecord<?> iRecord) {
+    return filter(iRecord, context);
+  }
+
+  protected boolean filter(final ORecord<?> iRecord, final OCommandContext iContext) {
     if (iRecord instanceof ORecordSchemaAware<?>) {
       // CHECK THE TARGET CLASS
       final ORecordSchemaAware<?> recordSchemaAware = (ORecordSchemaAware<?>) iRecord;
@@ -296,24 +307,32 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
           if (!targetClass.isSuperClassOf(recordSchemaAware.getSchemaClass()))
             return false;
         }
-        context.updateMetric("documentAnalyzedCompatibleClass", +1);
+        iContext.updateMetric("documentAnalyzedCompatibleClass", +1);
       }
     }
 
-    return evaluateRecord(iRecord);
+    return evaluateRecord(iRecord, iContext);
   }
 
   protected boolean evaluateRecord(final ORecord<?> iRecord) {
-    context.setVariable("current", iRecord);
-    context.updateMetric("evaluated", +1);
+    return evaluateRecord(iRecord, context);
+  }
+
+  protected boolean evaluateRecord(final ORecord<?> iRecord, final OCommandContext iContext) {
+    iContext.setVariable("current", iRecord);
+    iContext.updateMetric("evaluated", +1);
 
-    assignLetClauses(iRecord);
+    assignLetClauses(iRecord, iContext);
     if (compiledFilter == null)
       return true;
-    return (Boolean) compiledFilter.evaluate(iRecord, null, context);
+    return (Boolean) compiledFilter.evaluate(iRecord, null, iContext);
   }
 
   protected void assignLetClauses(final ORecord<?> iRecord) {
+    assignLetClauses(iRecord, context);
+  }
+
+  protected void assignLetClauses(final ORecord<?> iRecord, final OCommandContext iContext) {
     if (let != null && !let.isEmpty()) {
       // BIND CONTEXT VARIABLES
       for (Entry<String, Object> entry : let.entrySet()) {
@@ -328,20 +347,20 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
           final OSQLSynchQuery<Object> subQuery = (OSQLSynchQuery<Object>) letValue;
           subQuery.reset();
           subQuery.resetPagination();
-          subQuery.getContext().setParent(context);
+          subQuery.getContext().setParent(iContext);
           subQuery.getContext().setVariable("current", iRecord);
           varValue = ODatabaseRecordThreadLocal.INSTANCE.get().query(subQuery);
         } else if (letValue instanceof OSQLFunctionRuntime) {
           final OSQLFunctionRuntime f = (OSQLFunctionRuntime) letValue;
           if (f.getFunction().aggregateResults()) {
-            f.execute(iRecord, iRecord, null, context);
+            f.execute(iRecord, iRecord, null, iContext);
             varValue = f.getFunction().getResult();
           } else
-            varValue = f.execute(iRecord, iRecord, null, context);
+            varValue = f.execute(iRecord, iRecord, null, iContext);
         } else
-          varValue = ODocumentHelper.getFieldValue(iRecord, ((String) letValue).trim(), context);
+          varValue = ODocumentHelper.getFieldValue(iRecord, ((String) letValue).trim(), iContext);
 
-        context.setVariable(varName, varValue);
+        iContext.setVariable(varName, varValue);
       }
     }
   }
@@ -419,7 +438,9 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
 
         t.clear();
         tempResult = newList;
-      }
+      } else if (tempResult instanceof OOrderBySorter)
+        // APPLIED WHILE MERGING THE SORTED RUNS
+        ((OOrderBySorter) tempResult).setRange(skip, limit);
     }
   }
 
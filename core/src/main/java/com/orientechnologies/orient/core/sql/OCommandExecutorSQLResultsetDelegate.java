@@ -45,4 +45,9 @@ public class OCommandExecutorSQLResultsetDelegate extends OCommandExecutorSQLDel
   public Iterator<OIdentifiable> iterator(final Map<Object, Object> iArgs) {
     return ((OCommandExecutorSQLResultsetAbstract) delegate).iterator(iArgs);
   }
+
+  @Override
+  protected boolean isStatementCacheEnabled() {
+    return false;
+  }
 }
@@ -24,17 +24,24 @@ import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.OClusterPositionLong;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OCompositeKey;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexCursor;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorClusters;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
@@ -44,8 +51,10 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.filter.OFilterOptimizer;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemParameter;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemVariable;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
 import com.orientechnologies.orient.core.sql.functions.coll.OSQLFunctionDistinct;
@@ -63,10 +72,10 @@ import com.orientechnologies.orient.core.storage.OStorage;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Executes the SQL SELECT statement. the parse() method compiles the query and builds the meta information needed by the execute().
@@ -100,12 +109,20 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private int                         fetchLimit           = -1;
   private OIdentifiable               lastRecord;
   private String                      fetchPlan;
-  private volatile boolean            executing;
 
   private boolean                     fullySortedByIndex   = false;
   private OStorage.LOCKING_STRATEGY   lockingStrategy      = OStorage.LOCKING_STRATEGY.DEFAULT;
   private boolean                     parallel             = false;
-  private Lock                        parallelLock         = new ReentrantLock();
+
+  // PARSED STATE RESTORED BEFORE EVERY EXECUTION OF A CACHED STATEMENT
+  private OSQLFilterCondition         parsedRootCondition;
+  private List<OPair<String, String>> parsedOrderedFields;
+  private int                         parsedLimit          = -1;
+  private boolean                     limitParsed          = false;
+  private int                         parsedSkip           = 0;
+
+  // CANDIDATE INDEXES BY CLASS AND FIELDS
+  private final Map<String, List<OIndex<?>>> involvedIndexes = new HashMap<String, List<OIndex<?>>>();
 
   private final class IndexComparator implements Comparator<OIndex<?>> {
     public int compare(final OIndex<?> indexOne, final OIndex<?> indexTwo) {
@@ -205,9 +222,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
             parseGroupBy();
           else if (w.equals(KEYWORD_ORDER))
             parseOrderBy();
-          else if (w.equals(KEYWORD_LIMIT))
-            parseLimit(w);
-          else if (w.equals(KEYWORD_SKIP) || w.equals(KEYWORD_OFFSET))
+          else if (w.equals(KEYWORD_LIMIT)) {
+            parsedLimit = parseLimit(w);
+            limitParsed = true;
+          } else if (w.equals(KEYWORD_SKIP) || w.equals(KEYWORD_OFFSET))
             parseSkip(w);
           else if (w.equals(KEYWORD_FETCHPLAN))
             parseFetchplan(w);
@@ -233,9 +251,87 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
     }
 
+    parsedRootCondition = compiledFilter != null ? compiledFilter.getRootCondition() : null;
+    parsedOrderedFields = new ArrayList<OPair<String, String>>(orderedFields);
+    parsedSkip = skip;
+
     return this;
   }
 
+  /**
+   * Tells if the parsed statement can be executed again through {@link #reuse(OCommandRequestText)}. Statements keeping state
+   * between the records of an execution (functions, LET, GROUP BY, EXPAND, PARALLEL) or executing sub-queries are not reusable.
+   */
+  public boolean isReusable() {
+    if (parsedTarget == null || parsedTarget.getTargetQuery() != null || parsedTarget.getTargetIndex() != null
+        || parsedTarget.getTargetRecords() instanceof OIterableRecordSource)
+      return false;
+
+    if (let != null || groupByFields != null || expandTarget != null || parallel)
+      return false;
+
+    if (projections != null)
+      for (Object projection : projections.values())
+        if (projection instanceof OSQLFilterItemParameter || !isReusable(projection))
+          return false;
+
+    return compiledFilter == null || isReusable(compiledFilter.getRootCondition());
+  }
+
+  /**
+   * Prepares the executor of a cached statement to execute the passed request without parsing the text again. Context and request
+   * limit must be set before.
+   */
+  public OCommandExecutorSQLSelect reuse(final OCommandRequestText iRequest) {
+    getDatabase().checkSecurity(ODatabaseSecurityResources.COMMAND, ORole.PERMISSION_READ);
+
+    bindRequest(iRequest);
+    initContext();
+
+    if (limitParsed)
+      limit = parsedLimit;
+    if (limit == 0 || limit < -1)
+      throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
+
+    if (fetchPlan != null)
+      request.setFetchPlan(fetchPlan);
+    return this;
+  }
+
+  /**
+   * Restores the parsed state and drops the references to the request, the parameters and the records of the last execution, so
+   * an idle executor of a cached statement does not keep them.
+   */
+  public void resetExecution() {
+    request = null;
+    context = null;
+    progressListener = null;
+    metricRecorder.setContext(null);
+
+    if (compiledFilter != null) {
+      // THE ROOT IS REPLACED WHEN THE CONDITIONS COVERED BY AN INDEX ARE REMOVED
+      if (compiledFilter.getRootCondition() != parsedRootCondition)
+        compiledFilter.setRootCondition(parsedRootCondition);
+      compiledFilter.resetParameters();
+    }
+
+    // THE ORDER BY FIELDS ARE REMOVED ONCE THE RESULT IS SORTED
+    if (orderedFields.size() != parsedOrderedFields.size()) {
+      orderedFields.clear();
+      orderedFields.addAll(parsedOrderedFields);
+    }
+
+    skip = parsedSkip;
+    parameters = null;
+    target = null;
+    tempResult = null;
+    groupedResult = null;
+    lastRecord = null;
+    resultCount = 0;
+    fetchLimit = -1;
+    fullySortedByIndex = false;
+  }
+
   /**
    * Determine clusters that are used in select operation
    * 
@@ -319,6 +415,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       applyOrderBy();
 
       subIterator = new ArrayList<OIdentifiable>((List<OIdentifiable>) getResult()).iterator();
+      if (tempResult instanceof OOrderBySorter)
+        ((OOrderBySorter) tempResult).close();
       lastRecord = null;
       tempResult = null;
       groupedResult = null;
@@ -350,6 +448,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       }
       return getResult();
     } finally {
+      if (tempResult instanceof OOrderBySorter)
+        // REMOVE THE SORTED RUNS SPILLED TO DISK
+        ((OOrderBySorter) tempResult).close();
+
       if (request.getResultListener() != null)
         request.getResultListener().end();
     }
@@ -365,7 +467,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   }
 
   public String getFetchPlan() {
-    return fetchPlan != null ? fetchPlan : request.getFetchPlan();
+    return fetchPlan != null ? fetchPlan : request != null ? request.getFetchPlan() : null;
   }
 
   protected void executeSearch(final Map<Object, Object> iArgs) {
@@ -456,30 +558,20 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
    * @return false if limit has been reached, otherwise true
    */
   protected boolean handleResult(final OIdentifiable iRecord) {
-    if (parallel)
-      // LOCK FOR PARALLEL EXECUTION. THIS PREVENT CONCURRENT ISSUES
-      parallelLock.lock();
-
-    try {
-      if ((orderedFields.isEmpty() || fullySortedByIndex) && skip > 0) {
-        lastRecord = null;
-        skip--;
-        return true;
-      }
+    if ((orderedFields.isEmpty() || fullySortedByIndex) && skip > 0) {
+      lastRecord = null;
+      skip--;
+      return true;
+    }
 
-      lastRecord = iRecord;
+    lastRecord = iRecord;
 
-      resultCount++;
+    resultCount++;
 
-      if (!addResult(lastRecord))
-        return false;
+    if (!addResult(lastRecord))
+      return false;
 
-      return !((orderedFields.isEmpty() || fullySortedByIndex) && !isAnyFunctionAggregates() && fetchLimit > -1 && resultCount >= fetchLimit);
-    } finally {
-      if (parallel)
-        // UNLOCK PARALLEL EXECUTION
-        parallelLock.unlock();
-    }
+    return !((orderedFields.isEmpty() || fullySortedByIndex) && !isAnyFunctionAggregates() && fetchLimit > -1 && resultCount >= fetchLimit);
   }
 
   protected boolean addResult(OIdentifiable iRecord) {
@@ -530,6 +622,13 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (request.getResultListener() != null)
         result = request.getResultListener().result(iRecord);
 
+    } else if (expandTarget == null) {
+      // ORDER THE RECORDS WHILE THEY ARE COLLECTED
+      if (tempResult == null)
+        tempResult = new OOrderBySorter(orderedFields, context, fetchLimit > 0 ? fetchLimit + skip : -1,
+            OGlobalConfiguration.QUERY_ORDERBY_SPILL_THRESHOLD.getValueAsInteger());
+      ((OOrderBySorter) tempResult).add(iRecord);
+
     } else {
 
       // COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
@@ -902,6 +1001,23 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return false;
   }
 
+  private static boolean isReusable(final Object iValue) {
+    if (iValue instanceof OSQLFilterCondition) {
+      final OSQLFilterCondition condition = (OSQLFilterCondition) iValue;
+      return isReusable(condition.getLeft()) && isReusable(condition.getRight());
+    }
+
+    if (iValue instanceof OSQLFunctionRuntime || iValue instanceof OSQLQuery<?>)
+      return false;
+
+    if (iValue instanceof Collection<?>)
+      for (Object item : (Collection<?>) iValue)
+        if (!isReusable(item))
+          return false;
+
+    return true;
+  }
+
   private void initContext() {
     if (context == null)
       context = new OBasicCommandContext();
@@ -916,21 +1032,25 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (parallel)
         parallelExec(iTarget);
       else
-        // BROWSE; UNMARSHALL AND FILTER ALL THE RECORDS ON CURRENT THREAD
-        while (iTarget.hasNext()) {
-          final OIdentifiable next = iTarget.next();
-          if (next == null)
-            break;
-
-          if (!executeSearchRecord(next))
-            break;
-        }
+        serialExec(iTarget);
 
     } finally {
       context.setVariable("fetchingFromTargetElapsed", (System.currentTimeMillis() - startFetching));
     }
   }
 
+  private void serialExec(final Iterator<? extends OIdentifiable> iTarget) {
+    // BROWSE; UNMARSHALL AND FILTER ALL THE RECORDS ON CURRENT THREAD
+    while (iTarget.hasNext()) {
+      final OIdentifiable next = iTarget.next();
+      if (next == null)
+        break;
+
+      if (!executeSearchRecord(next))
+        break;
+    }
+  }
+
   private boolean parseParallel(String w) {
     return w.equals(KEYWORD_PARALLEL);
   }
@@ -938,63 +1058,387 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private void parallelExec(final Iterator<? extends OIdentifiable> iTarget) {
     final OResultSet result = (OResultSet) getResult();
 
-    // BROWSE ALL THE RECORDS ON CURRENT THREAD BUT DELEGATE UNMARSHALLING AND FILTER TO A THREAD POOL
-    final ODatabaseRecord db = getDatabase();
-
     if (limit > -1) {
       if (result != null)
         result.setLimit(limit);
     }
 
+    if (!canExecuteInParallel()) {
+      OLogManager.instance().debug(this, "Query '%s' can not be executed in parallel, executing it on current thread", parserText);
+      serialExec(iTarget);
+      return;
+    }
+
+    // UNMARSHALL AND FILTER THE RECORDS BY CHUNKS IN A THREAD POOL, THE RESULT IS MERGED ON CURRENT THREAD AT THE END
+    final ODatabaseRecord db = getDatabase();
+
+    final int matchedLimit = (orderedFields.isEmpty() || fullySortedByIndex) && !isAnyFunctionAggregates() && fetchLimit > -1 ? fetchLimit
+        + skip
+        : -1;
+
+    final ParallelScanSource source = new ParallelScanSource(db, iTarget, matchedLimit,
+        OGlobalConfiguration.QUERY_PARALLEL_CHUNK_SIZE.getValueAsInteger());
+
     final int cores = Runtime.getRuntime().availableProcessors();
     OLogManager.instance().debug(this, "Parallel query against %d threads", cores);
 
     final ThreadPoolExecutor workers = Orient.instance().getWorkers();
 
-    executing = true;
-    final List<Future<?>> jobs = new ArrayList<Future<?>>();
+    final List<ParallelScanWorker> scanWorkers = new ArrayList<ParallelScanWorker>(cores);
+    final List<Future<Void>> jobs = new ArrayList<Future<Void>>(cores);
+    for (int i = 0; i < cores; i++) {
+      final ParallelScanWorker scanWorker = new ParallelScanWorker(source, db);
+      scanWorkers.add(scanWorker);
 
-    // BROWSE ALL THE RECORDS AND PUT THE RECORD INTO THE QUEUE
-    while (executing && iTarget.hasNext()) {
-      final OIdentifiable next = iTarget.next();
+      // THE CURRENT THREAD TAKES PART IN THE SCAN TOO
+      if (i > 0)
+        jobs.add(workers.submit(scanWorker));
+    }
 
-      if (next == null)
-        break;
+    Throwable failure = null;
+    try {
+      scanWorkers.get(0).call();
+    } catch (Exception e) {
+      failure = e;
+    }
+
+    // THE WORKERS USE THE DATABASE OF THE CURRENT THREAD: WAIT FOR ALL OF THEM BEFORE RETURNING, ALSO IN CASE OF ERROR
+    for (Future<Void> job : jobs)
+      try {
+        job.get();
+      } catch (ExecutionException e) {
+        if (failure == null)
+          failure = e.getCause();
+      } catch (InterruptedException e) {
+        source.stop();
+        if (failure == null)
+          failure = e;
+      }
+
+    if (failure != null) {
+      if (failure instanceof RuntimeException)
+        throw (RuntimeException) failure;
+      if (failure instanceof Error)
+        throw (Error) failure;
+      throw new OCommandExecutionException("Error on executing parallel query: " + parserText, failure);
+    }
+
+    for (ParallelScanWorker scanWorker : scanWorkers)
+      scanWorker.mergeMetrics();
+
+    if (OLogManager.instance().isDebugEnabled())
+      OLogManager.instance().debug(this, "Parallel query '%s' split in %d chunks, merging results...", parserText,
+          source.chunks.size());
 
-      final Runnable job = new Runnable() {
-        @Override
-        public void run() {
-          ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    // MERGE PARTIAL RESULTS IN THE SAME ORDER THE CHUNKS WERE TAKEN FROM THE TARGET
+    mergeLoop: for (ParallelScanChunk chunk : source.chunks)
+      for (OIdentifiable record : chunk.result) {
+        context.setVariable("current", record);
+        if (!handleResult(record))
+          // LIMIT REACHED
+          break mergeLoop;
+      }
+
+    if (OLogManager.instance().isDebugEnabled())
+      OLogManager.instance().debug(this, "Parallel query '%s' completed", parserText);
+  }
 
-          if (!executeSearchRecord(next))
-            executing = false;
+  /**
+   * LET clauses are bound to the context of the thread that evaluates the record, while projections are computed at merge time, so
+   * these queries are executed on the current thread. The same for records that have to be kept locked till they are handled.
+   */
+  private boolean canExecuteInParallel() {
+    if (let != null && !let.isEmpty())
+      return false;
+
+    final OStorage.LOCKING_STRATEGY contextLockingStrategy = context.getVariable("$locking") != null ? (OStorage.LOCKING_STRATEGY) context
+        .getVariable("$locking") : null;
+    final OStorage.LOCKING_STRATEGY localLockingStrategy = contextLockingStrategy != null ? contextLockingStrategy
+        : lockingStrategy;
+
+    return localLockingStrategy != OStorage.LOCKING_STRATEGY.KEEP_EXCLUSIVE_LOCK
+        && localLockingStrategy != OStorage.LOCKING_STRATEGY.KEEP_SHARED_LOCK;
+  }
+
+  /**
+   * Loads the record if needed and evaluates the filter against it using the context of the worker thread.
+   * 
+   * @return the record if it matches the filter, otherwise null
+   */
+  private ORecordInternal<?> matchRecordInParallel(final OIdentifiable id, final OCommandContext iContext) {
+    if (Thread.interrupted())
+      throw new OCommandExecutionException("The select execution has been interrupted");
+
+    final ORecordInternal<?> record;
+    if (id instanceof ORecordInternal<?>)
+      record = (ORecordInternal<?>) id;
+    else
+      record = getDatabase().load(id.getIdentity(), null, false, false, lockingStrategy);
+
+    iContext.updateMetric("recordReads", +1);
+
+    if (record == null || record.getRecordType() != ODocument.RECORD_TYPE)
+      // SKIP IT
+      return null;
+
+    iContext.updateMetric("documentReads", +1);
+
+    return filter(record, iContext) ? record : null;
+  }
+
+  /**
+   * Unit of work of parallel query: either a range of positions of a cluster or a block of records read from a generic target.
+   */
+  private static final class ParallelScanChunk {
+    private final int                 clusterId;
+    private final OClusterPosition    firstPosition;
+    private final OClusterPosition    lastPosition;
+    private final List<OIdentifiable> records;
+    private final List<OIdentifiable> result = new ArrayList<OIdentifiable>();
+    private boolean                   scanned;
+
+    private ParallelScanChunk(final int clusterId, final OClusterPosition firstPosition, final OClusterPosition lastPosition) {
+      this.clusterId = clusterId;
+      this.firstPosition = firstPosition;
+      this.lastPosition = lastPosition;
+      this.records = null;
+    }
+
+    private ParallelScanChunk(final List<OIdentifiable> records) {
+      this.clusterId = -1;
+      this.firstPosition = null;
+      this.lastPosition = null;
+      this.records = records;
+    }
+
+    private Iterator<? extends OIdentifiable> iterator(final ODatabaseRecord db) {
+      if (records != null)
+        return records.iterator();
+
+      return db.browseCluster(db.getClusterNameById(clusterId), firstPosition, lastPosition, false);
+    }
+  }
+
+  /**
+   * Hands out the chunks to the workers. If the target is a cluster scan without pending transaction the clusters are split in
+   * ranges of positions, otherwise the records are read from the target in blocks. Results are merged in chunk order, so with a
+   * LIMIT the scan stops only once the first chunks, all scanned, have enough matching records.
+   */
+  private final class ParallelScanSource {
+    private final Iterator<? extends OIdentifiable> target;
+    private final Iterator<ParallelScanChunk>       clusterChunks;
+    private final List<ParallelScanChunk>           chunks = new ArrayList<ParallelScanChunk>();
+    private final int                               matchedLimit;
+    private final int                               chunkSize;
+    private int                                     scannedChunks;
+    private volatile int                            scannedMatches;
+    private volatile boolean                        stopped;
+
+    private ParallelScanSource(final ODatabaseRecord db, final Iterator<? extends OIdentifiable> target, final int matchedLimit,
+        final int chunkSize) {
+      this.matchedLimit = matchedLimit;
+      this.chunkSize = chunkSize > 0 ? chunkSize : 1;
+
+      if (target instanceof ORecordIteratorClusters<?> && !db.getTransaction().isActive()) {
+        this.target = null;
+        this.clusterChunks = splitClusters(db, (ORecordIteratorClusters<?>) target).iterator();
+      } else {
+        this.target = target;
+        this.clusterChunks = null;
+      }
+    }
+
+    private List<ParallelScanChunk> splitClusters(final ODatabaseRecord db, final ORecordIteratorClusters<?> iterator) {
+      final List<ParallelScanChunk> result = new ArrayList<ParallelScanChunk>();
+      final ORID beginRange = iterator.getBeginRange();
+      final ORID endRange = iterator.getEndRange();
+
+      for (int clusterId : iterator.getClusterIds()) {
+        if (beginRange != null && beginRange.getClusterId() > clusterId || endRange != null && endRange.getClusterId() < clusterId)
+          continue;
+
+        final OClusterPosition[] range = db.getStorage().getClusterDataRange(clusterId);
+        if (range.length < 2 || !range[0].isValid() || !range[1].isValid())
+          // EMPTY CLUSTER
+          continue;
+
+        OClusterPosition first = range[0];
+        OClusterPosition last = range[1];
+        if (beginRange != null && beginRange.getClusterId() == clusterId && beginRange.getClusterPosition().compareTo(first) > 0)
+          first = beginRange.getClusterPosition();
+        if (endRange != null && endRange.getClusterId() == clusterId && endRange.getClusterPosition().compareTo(last) < 0)
+          last = endRange.getClusterPosition();
+
+        if (first.compareTo(last) > 0)
+          continue;
+
+        if (!(first instanceof OClusterPositionLong)) {
+          // POSITIONS CAN'T BE SPLIT ARITHMETICALLY: ONE CHUNK PER CLUSTER
+          result.add(new ParallelScanChunk(clusterId, first, last));
+          continue;
         }
-      };
 
-      jobs.add(workers.submit(job));
+        final long lastPosition = last.longValue();
+        for (long position = first.longValue(); position <= lastPosition; position += chunkSize) {
+          final long chunkLastPosition = Math.min(position + chunkSize - 1, lastPosition);
+          result.add(new ParallelScanChunk(clusterId, OClusterPositionFactory.INSTANCE.valueOf(position),
+              OClusterPositionFactory.INSTANCE.valueOf(chunkLastPosition)));
+
+          if (chunkLastPosition == lastPosition)
+            break;
+        }
+      }
+
+      return result;
     }
 
-    if (OLogManager.instance().isDebugEnabled())
-      OLogManager.instance()
-          .debug(this, "Parallel query '%s' split in %d jobs, waiting for completion...", parserText, jobs.size());
+    private synchronized ParallelScanChunk nextChunk() {
+      if (isCompleted())
+        return null;
 
-    int processed = 0;
-    int total = jobs.size();
-    try {
-      for (Future<?> j : jobs) {
-        j.get();
-        processed++;
+      final ParallelScanChunk chunk;
+      if (clusterChunks != null) {
+        if (!clusterChunks.hasNext())
+          return null;
 
-        if (OLogManager.instance().isDebugEnabled())
-          if (processed % (total / 10) == 0)
-            OLogManager.instance().debug(this, "Executed parallel query %d/%d", processed, total);
+        chunk = clusterChunks.next();
+      } else {
+        final List<OIdentifiable> records = new ArrayList<OIdentifiable>(chunkSize);
+        while (records.size() < chunkSize && target.hasNext()) {
+          final OIdentifiable next = target.next();
+          if (next == null)
+            break;
+
+          records.add(next);
+        }
+
+        if (records.isEmpty())
+          return null;
+
+        chunk = new ParallelScanChunk(records);
       }
-    } catch (Exception e) {
-      OLogManager.instance().error(this, "Error on executing parallel query: %s", e, parserText);
+
+      chunks.add(chunk);
+      return chunk;
     }
 
-    if (OLogManager.instance().isDebugEnabled())
-      OLogManager.instance().debug(this, "Parallel query '%s' completed", parserText);
+    /**
+     * Counts the matching records of the chunk if it follows other scanned chunks only.
+     */
+    private synchronized void chunkScanned(final ParallelScanChunk chunk) {
+      chunk.scanned = true;
+
+      while (scannedChunks < chunks.size() && chunks.get(scannedChunks).scanned)
+        scannedMatches += chunks.get(scannedChunks++).result.size();
+    }
+
+    private void stop() {
+      stopped = true;
+    }
+
+    private boolean isCompleted() {
+      return stopped || matchedLimit > -1 && scannedMatches >= matchedLimit;
+    }
+  }
+
+  /**
+   * Takes chunks from the source till they are over and filters their records using its own context and result buffer.
+   */
+  private final class ParallelScanWorker implements Callable<Void> {
+    private final ParallelScanSource   source;
+    private final ODatabaseRecord      db;
+    private final OBasicCommandContext workerContext = new OBasicCommandContext();
+    private final Map<String, Object>  initialVariables;
+
+    private ParallelScanWorker(final ParallelScanSource source, final ODatabaseRecord db) {
+      this.source = source;
+      this.db = db;
+
+      initialVariables = context.getVariables();
+      for (Entry<String, Object> variable : initialVariables.entrySet())
+        workerContext.setVariable(variable.getKey(), variable.getValue());
+      workerContext.setRecordingMetrics(context.isRecordingMetrics());
+    }
+
+    @Override
+    public Void call() throws Exception {
+      final ODatabaseRecord currentDb = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+      try {
+        ParallelScanChunk chunk;
+        while ((chunk = source.nextChunk()) != null) {
+          if (!context.checkTimeout()) {
+            source.stop();
+            break;
+          }
+
+          final Iterator<? extends OIdentifiable> records = chunk.iterator(db);
+          boolean scanned = true;
+          while (records.hasNext()) {
+            if (source.isCompleted()) {
+              // THE PREVIOUS CHUNKS ARE ENOUGH: THIS ONE IS NOT MERGED
+              scanned = false;
+              break;
+            }
+
+            final OIdentifiable next = records.next();
+            if (next == null)
+              break;
+
+            final ORecordInternal<?> record = matchRecordInParallel(next, workerContext);
+            if (record != null)
+              chunk.result.add(record);
+          }
+
+          if (scanned)
+            source.chunkScanned(chunk);
+        }
+      } catch (Exception e) {
+        source.stop();
+        throw e;
+      } finally {
+        if (currentDb != null)
+          ODatabaseRecordThreadLocal.INSTANCE.set(currentDb);
+        else
+          ODatabaseRecordThreadLocal.INSTANCE.remove();
+      }
+
+      return null;
+    }
+
+    private void mergeMetrics() {
+      if (!context.isRecordingMetrics())
+        return;
+
+      for (Entry<String, Object> variable : workerContext.getVariables().entrySet())
+        if (variable.getValue() instanceof Long) {
+          final Object initialValue = initialVariables.get(variable.getKey());
+          final long delta = (Long) variable.getValue() - (initialValue instanceof Long ? (Long) initialValue : 0);
+          if (delta != 0)
+            context.updateMetric(variable.getKey(), delta);
+        }
+    }
+  }
+
+  /**
+   * Returns the indexes that can be used for the fields of the search result, sorted by preference. The list only depends on the
+   * schema, so it is kept for the next executions of a cached statement.
+   */
+  private List<OIndex<?>> getInvolvedIndexes(final OClass iSchemaClass, final OIndexSearchResult iSearchResult) {
+    final StringBuilder key = new StringBuilder(iSchemaClass.getName());
+    for (String field : iSearchResult.fields())
+      key.append('|').append(field);
+    if (iSearchResult.lastField.isLong())
+      for (int i = 0; i < iSearchResult.lastField.getItemCount(); ++i)
+        key.append('.').append(iSearchResult.lastField.getItemName(i));
+
+    List<OIndex<?>> result = involvedIndexes.get(key.toString());
+    if (result == null) {
+      result = filterAnalyzer.getInvolvedIndexes(iSchemaClass, iSearchResult);
+      Collections.sort(result, new IndexComparator());
+      involvedIndexes.put(key.toString(), result);
+    }
+    return result;
   }
 
   private int getQueryFetchLimit() {
@@ -1037,12 +1481,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
     // go through all variants to choose which one can be used for index search.
     for (final OIndexSearchResult searchResult : indexSearchResults) {
-      final List<OIndex<?>> involvedIndexes = filterAnalyzer.getInvolvedIndexes(iSchemaClass, searchResult);
-
-      Collections.sort(involvedIndexes, new IndexComparator());
-
       // go through all possible index for given set of fields.
-      for (final OIndex index : involvedIndexes) {
+      for (final OIndex index : getInvolvedIndexes(iSchemaClass, searchResult)) {
         if (index.isRebuiding())
           continue;
 
@@ -1229,14 +1669,19 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long startOrderBy = System.currentTimeMillis();
     try {
 
-      if (tempResult instanceof OMultiCollectionIterator) {
-        final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
-        for (OIdentifiable o : tempResult)
-          list.add(o);
-        tempResult = list;
-      }
+      if (tempResult instanceof OOrderBySorter)
+        // RECORDS HAVE BEEN ORDERED WHILE COLLECTED
+        tempResult = ((OOrderBySorter) tempResult).sort();
+      else {
+        if (tempResult instanceof OMultiCollectionIterator) {
+          final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
+          for (OIdentifiable o : tempResult)
+            list.add(o);
+          tempResult = list;
+        }
 
-      ODocumentHelper.sort((List<? extends OIdentifiable>) tempResult, orderedFields, context);
+        ODocumentHelper.sort((List<? extends OIdentifiable>) tempResult, orderedFields, context);
+      }
       orderedFields.clear();
 
     } finally {
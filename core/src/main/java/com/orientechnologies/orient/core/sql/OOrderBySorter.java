@@ -0,0 +1,425 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
+
+/**
+ * Orders the records of a query by the ORDER BY fields while they are collected. With a limit only the best skip + limit records
+ * are kept in a bounded heap. Without a limit, every time the threshold is reached the collected records are sorted and written as
+ * a run to a temporary file: the runs are merged while the result is browsed, loading back the records by RID.
+ */
+public class OOrderBySorter implements Iterable<OIdentifiable> {
+  private static final String               SEQUENCE_FIELD = "s";
+  private static final String               RID_FIELD      = "r";
+  private static final String               CONTENT_FIELD  = "d";
+  private static final String               KEY_PREFIX     = "k";
+
+  private final List<OPair<String, String>> orderedFields;
+  private final ODocumentComparator         valueComparator;
+  private final Comparator<Entry>           entryComparator;
+  private final int                         maxResults;
+  private final int                         spillThreshold;
+  private final PriorityQueue<Entry>        heap;
+  private List<Entry>                       entries;
+  private final List<File>                  runs           = new ArrayList<File>();
+  private long                              sequence;
+  private int                               skip;
+  private int                               limit          = -1;
+
+  private static class Entry {
+    private final OIdentifiable record;
+    private final Object[]      keys;
+    private final long          sequence;
+
+    private Entry(final OIdentifiable iRecord, final Object[] iKeys, final long iSequence) {
+      record = iRecord;
+      keys = iKeys;
+      sequence = iSequence;
+    }
+  }
+
+  /**
+   * @param iMaxResults
+   *          amount of records to keep, -1 to keep them all
+   * @param iSpillThreshold
+   *          amount of records sorted in memory before spilling them to a temporary file, 0 to never spill
+   */
+  public OOrderBySorter(final List<OPair<String, String>> iOrderedFields, final OCommandContext iContext, final int iMaxResults,
+      final int iSpillThreshold) {
+    orderedFields = new ArrayList<OPair<String, String>>(iOrderedFields);
+    valueComparator = new ODocumentComparator(orderedFields, iContext);
+    maxResults = iMaxResults;
+    spillThreshold = iSpillThreshold;
+
+    entryComparator = new Comparator<Entry>() {
+      public int compare(final Entry e1, final Entry e2) {
+        for (int i = 0; i < e1.keys.length; ++i) {
+          final int result = valueComparator.compareValues(e1.keys[i], e2.keys[i], orderedFields.get(i).getValue());
+          if (result != 0)
+            return result;
+        }
+        // EQUAL KEYS KEEP THE ORDER THE RECORDS HAVE BEEN COLLECTED
+        return e1.sequence < e2.sequence ? -1 : (e1.sequence == e2.sequence ? 0 : 1);
+      }
+    };
+
+    if (maxResults > 0)
+      // THE WORST RECORD IS ON TOP TO BE REPLACED BY BETTER ONES
+      heap = new PriorityQueue<Entry>(maxResults + 1, Collections.reverseOrder(entryComparator));
+    else {
+      heap = null;
+      entries = new ArrayList<Entry>();
+    }
+  }
+
+  public void add(final OIdentifiable iRecord) {
+    final Entry entry = new Entry(iRecord, extractKeys(iRecord), sequence++);
+
+    if (heap != null) {
+      if (heap.size() < maxResults)
+        heap.add(entry);
+      else if (entryComparator.compare(entry, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(entry);
+      }
+    } else {
+      entries.add(entry);
+      if (spillThreshold > 0 && entries.size() >= spillThreshold)
+        spill();
+    }
+  }
+
+  /**
+   * Completes the sorting.
+   *
+   * @return the sorted records as a list if they fit in memory, otherwise this object that merges the spilled runs when browsed
+   */
+  public Iterable<OIdentifiable> sort() {
+    if (heap != null) {
+      final List<Entry> sorted = new ArrayList<Entry>(heap);
+      heap.clear();
+      Collections.sort(sorted, entryComparator);
+      return toRecords(sorted);
+    }
+
+    Collections.sort(entries, entryComparator);
+    if (runs.isEmpty()) {
+      final List<OIdentifiable> result = toRecords(entries);
+      entries = null;
+      return result;
+    }
+
+    return this;
+  }
+
+  public boolean isSpilled() {
+    return !runs.isEmpty();
+  }
+
+  /**
+   * Sets the records to skip and the maximum to return while merging the spilled runs.
+   */
+  public void setRange(final int iSkip, final int iLimit) {
+    skip = iSkip;
+    limit = iLimit;
+  }
+
+  public Iterator<OIdentifiable> iterator() {
+    return new MergeIterator();
+  }
+
+  /**
+   * Deletes the temporary files of the runs.
+   */
+  public void close() {
+    for (File run : runs)
+      if (run.exists() && !run.delete())
+        OLogManager.instance().warn(this, "Cannot delete the temporary file %s", run);
+    runs.clear();
+  }
+
+  private Object[] extractKeys(final OIdentifiable iRecord) {
+    final ODocument doc = iRecord.getRecord();
+    final Object[] keys = new Object[orderedFields.size()];
+    if (doc != null)
+      for (int i = 0; i < keys.length; ++i)
+        keys[i] = doc.field(orderedFields.get(i).getKey());
+    return keys;
+  }
+
+  private static List<OIdentifiable> toRecords(final List<Entry> iEntries) {
+    final List<OIdentifiable> result = new ArrayList<OIdentifiable>(iEntries.size());
+    for (Entry e : iEntries)
+      result.add(e.record);
+    return result;
+  }
+
+  private void spill() {
+    Collections.sort(entries, entryComparator);
+
+    File file = null;
+    try {
+      final File tempDir = new File(Orient.getTempPath());
+      tempDir.mkdirs();
+      file = File.createTempFile("orderby", ".run", tempDir);
+      file.deleteOnExit();
+
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+      try {
+        for (Entry e : entries) {
+          final byte[] stream = entryToStream(e);
+          out.writeInt(stream.length);
+          out.write(stream);
+        }
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      if (file != null)
+        file.delete();
+      close();
+      throw new OCommandExecutionException("Error on writing sorted records to a temporary file", e);
+    }
+
+    runs.add(file);
+    entries.clear();
+  }
+
+  private byte[] entryToStream(final Entry iEntry) {
+    final ODocument doc = new ODocument();
+    for (int i = 0; i < iEntry.keys.length; ++i) {
+      Object key = iEntry.keys[i];
+      if (key instanceof ORecord<?> && ((ORecord<?>) key).getIdentity().isPersistent())
+        // STORE ONLY THE REFERENCE TO AVOID SAVING LINKED RECORDS
+        key = ((ORecord<?>) key).getIdentity();
+      doc.field(KEY_PREFIX + i, key);
+    }
+    doc.field(SEQUENCE_FIELD, iEntry.sequence);
+
+    final ORID rid = iEntry.record.getIdentity();
+    if (rid.isPersistent() && !(iEntry.record instanceof ORecord<?> && ((ORecord<?>) iEntry.record).isDirty()))
+      // THE RECORD WILL BE LOADED BACK
+      doc.field(RID_FIELD, rid, OType.LINK);
+    else
+      // TEMPORARY OR CHANGED RECORD: STORE ITS CONTENT
+      doc.field(CONTENT_FIELD, ((ORecordInternal<?>) iEntry.record.getRecord()).toStream(), OType.BINARY);
+
+    return doc.toStream();
+  }
+
+  private Entry entryFromStream(final byte[] iStream) {
+    final ODocument doc = new ODocument();
+    doc.fromStream(iStream);
+
+    final Object[] keys = new Object[orderedFields.size()];
+    for (int i = 0; i < keys.length; ++i)
+      keys[i] = doc.rawField(KEY_PREFIX + i);
+
+    final OIdentifiable record;
+    final Object rid = doc.rawField(RID_FIELD);
+    if (rid != null)
+      record = ((OIdentifiable) rid).getIdentity();
+    else {
+      final ODocument content = new ODocument();
+      content.fromStream((byte[]) doc.field(CONTENT_FIELD));
+      record = content;
+    }
+
+    return new Entry(record, keys, ((Number) doc.field(SEQUENCE_FIELD)).longValue());
+  }
+
+  /**
+   * Source of sorted entries: the records left in memory or a spilled run.
+   */
+  private abstract static class Run {
+    protected Entry current;
+
+    protected abstract boolean advance() throws IOException;
+
+    protected void close() {
+    }
+  }
+
+  private static class MemoryRun extends Run {
+    private final Iterator<Entry> iterator;
+
+    private MemoryRun(final List<Entry> iEntries) {
+      iterator = iEntries.iterator();
+    }
+
+    @Override
+    protected boolean advance() {
+      current = iterator.hasNext() ? iterator.next() : null;
+      return current != null;
+    }
+  }
+
+  private class FileRun extends Run {
+    private final DataInputStream in;
+
+    private FileRun(final File iFile) throws IOException {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(iFile), 64 * 1024));
+    }
+
+    @Override
+    protected boolean advance() throws IOException {
+      final int length;
+      try {
+        length = in.readInt();
+      } catch (EOFException e) {
+        current = null;
+        close();
+        return false;
+      }
+
+      final byte[] stream = new byte[length];
+      in.readFully(stream);
+      current = entryFromStream(stream);
+      return true;
+    }
+
+    @Override
+    protected void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        OLogManager.instance().debug(this, "Error on closing sorted run", e);
+      }
+    }
+  }
+
+  /**
+   * K-way merge of the runs, applying skip and limit.
+   */
+  private class MergeIterator implements Iterator<OIdentifiable> {
+    private final PriorityQueue<Run> queue;
+    private final List<Run>          opened = new ArrayList<Run>();
+    private OIdentifiable            next;
+    private int                      toSkip = skip;
+    private int                      returned;
+
+    private MergeIterator() {
+      queue = new PriorityQueue<Run>(runs.size() + 1, new Comparator<Run>() {
+        public int compare(final Run r1, final Run r2) {
+          return entryComparator.compare(r1.current, r2.current);
+        }
+      });
+
+      try {
+        for (File file : runs)
+          open(new FileRun(file));
+        open(new MemoryRun(entries));
+      } catch (IOException e) {
+        closeRuns();
+        throw new OCommandExecutionException("Error on reading sorted records from temporary files", e);
+      }
+
+      fetchNext();
+    }
+
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    public OIdentifiable next() {
+      if (next == null)
+        throw new NoSuchElementException();
+
+      final OIdentifiable result = next;
+      fetchNext();
+      return result;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private void open(final Run iRun) throws IOException {
+      opened.add(iRun);
+      if (iRun.advance())
+        queue.add(iRun);
+    }
+
+    private void fetchNext() {
+      next = null;
+      if (limit > 0 && returned >= limit) {
+        closeRuns();
+        return;
+      }
+
+      try {
+        while (next == null && !queue.isEmpty()) {
+          final Run run = queue.poll();
+          final Entry entry = run.current;
+          if (run.advance())
+            queue.add(run);
+
+          if (toSkip > 0) {
+            toSkip--;
+            continue;
+          }
+
+          // LOAD BACK THE RECORD, IF IT HAS BEEN DELETED IN THE MEANTIME SKIP IT
+          next = entry.record instanceof ORID ? ((ORID) entry.record).getRecord() : entry.record;
+        }
+      } catch (IOException e) {
+        closeRuns();
+        throw new OCommandExecutionException("Error on reading sorted records from temporary files", e);
+      }
+
+      if (next != null)
+        returned++;
+      else
+        closeRuns();
+    }
+
+    private void closeRuns() {
+      for (Run run : opened)
+        run.close();
+      opened.clear();
+      queue.clear();
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.orientechnologies.common.concur.resource.OCloseable;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Per database cache of parsed SELECT statements keyed by their text. Every statement keeps a few idle executors that are taken by
+ * the executions of the same text, so the statement is not parsed again and the executor keeps the compiled condition and the
+ * candidate indexes found by the previous executions. At most {@link OGlobalConfiguration#QUERY_STATEMENT_CACHE_SIZE} statements
+ * are kept, the least recently used one is removed first.
+ * <p>
+ * Parsed statements refer to classes, properties and indexes, so the cache is invalidated on every schema or index change: the
+ * executors parsed before the change are not put back in the cache.
+ *
+ * @see OCommandExecutorSQLSelect#isReusable()
+ */
+public class OSQLStatementCache implements OCloseable {
+  public static final String                                 NAME               = OSQLStatementCache.class.getSimpleName();
+  private static final int                                   MAX_IDLE_EXECUTORS = 4;
+
+  private final int                                          limit;
+  private final String                                       profilerPrefix;
+  private final Map<String, List<OCommandExecutorSQLSelect>> statements;
+  private long                                               generation;
+  private long                                               hits;
+  private long                                               misses;
+  private long                                               invalidations;
+
+  public OSQLStatementCache(final String iStorageName, final int iLimit) {
+    limit = iLimit;
+    profilerPrefix = "db." + iStorageName + ".statementCache.";
+    statements = new LinkedHashMap<String, List<OCommandExecutorSQLSelect>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, List<OCommandExecutorSQLSelect>> iEldest) {
+        return size() > limit;
+      }
+    };
+
+    registerProfilerHooks();
+  }
+
+  /**
+   * Returns the statement cache of the storage, or null if the cache is disabled.
+   */
+  public static OSQLStatementCache get(final OStorage iStorage) {
+    final int limit = OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger();
+    if (limit <= 0)
+      return null;
+
+    return iStorage.getResource(NAME, new Callable<OSQLStatementCache>() {
+      public OSQLStatementCache call() throws Exception {
+        return new OSQLStatementCache(iStorage.getName(), limit);
+      }
+    });
+  }
+
+  /**
+   * Invalidates the statement cache of the storage, if any. Called on every schema and index change.
+   */
+  public static void invalidate(final OStorage iStorage) {
+    if (iStorage != null && iStorage.existsResource(NAME)) {
+      final OSQLStatementCache cache = get(iStorage);
+      if (cache != null)
+        cache.invalidate();
+    }
+  }
+
+  /**
+   * Takes an idle executor of the statement.
+   *
+   * @return the parsed executor or null if no executor of the statement is idle
+   */
+  public synchronized OCommandExecutorSQLSelect acquire(final String iText) {
+    final List<OCommandExecutorSQLSelect> idle = statements.get(iText);
+    if (idle == null || idle.isEmpty()) {
+      misses++;
+      return null;
+    }
+
+    hits++;
+    return idle.remove(idle.size() - 1);
+  }
+
+  /**
+   * Puts back the executor after its execution. The executor is discarded if the cache was invalidated since the generation it
+   * was parsed with.
+   */
+  public synchronized void release(final String iText, final OCommandExecutorSQLSelect iExecutor, final long iGeneration) {
+    if (iGeneration != generation)
+      return;
+
+    List<OCommandExecutorSQLSelect> idle = statements.get(iText);
+    if (idle == null) {
+      idle = new ArrayList<OCommandExecutorSQLSelect>(2);
+      statements.put(iText, idle);
+    }
+
+    if (idle.size() < MAX_IDLE_EXECUTORS)
+      idle.add(iExecutor);
+  }
+
+  /**
+   * Returns the current generation, to pass to {@link #release(String, OCommandExecutorSQLSelect, long)} for the executors parsed
+   * from now on.
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  public synchronized void invalidate() {
+    generation++;
+    invalidations++;
+    statements.clear();
+  }
+
+  public synchronized int getSize() {
+    return statements.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getInvalidations() {
+    return invalidations;
+  }
+
+  public void close(final boolean onDelete) {
+    synchronized (this) {
+      statements.clear();
+    }
+    unregisterProfilerHooks();
+  }
+
+  private void registerProfilerHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.registerHookValue(profilerPrefix + "hits", "Number of SQL statements executed without parsing them",
+        METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getHits();
+          }
+        }, "db.*.statementCache.hits");
+
+    profiler.registerHookValue(profilerPrefix + "misses", "Number of SQL statements parsed because not found in cache",
+        METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getMisses();
+          }
+        }, "db.*.statementCache.misses");
+
+    profiler.registerHookValue(profilerPrefix + "invalidations", "Number of times the cache was cleared by schema changes",
+        METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getInvalidations();
+          }
+        }, "db.*.statementCache.invalidations");
+
+    profiler.registerHookValue(profilerPrefix + "size", "Number of SQL statements in cache", METRIC_TYPE.SIZE,
+        new OProfilerHookValue() {
+          public Object getValue() {
+            return getSize();
+          }
+        }, "db.*.statementCache.size");
+  }
+
+  private void unregisterProfilerHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler == null)
+      return;
+
+    profiler.unregisterHookValue(profilerPrefix + "hits");
+    profiler.unregisterHookValue(profilerPrefix + "misses");
+    profiler.unregisterHookValue(profilerPrefix + "invalidations");
+    profiler.unregisterHookValue(profilerPrefix + "size");
+  }
+}
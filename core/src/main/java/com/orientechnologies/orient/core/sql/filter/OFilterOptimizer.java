@@ -37,17 +37,22 @@ public class OFilterOptimizer {
       return condition;
 
     case INDEX_INTERSECTION:
-      if (condition.getLeft() instanceof OSQLFilterCondition)
-        condition.setLeft(optimize((OSQLFilterCondition) condition.getLeft(), indexMatch));
+      // THE PARSED CONDITION IS NEVER CHANGED: A CACHED STATEMENT IS OPTIMIZED AGAIN ON EVERY EXECUTION
+      Object left = condition.getLeft();
+      if (left instanceof OSQLFilterCondition)
+        left = optimize((OSQLFilterCondition) left, indexMatch);
 
-      if (condition.getRight() instanceof OSQLFilterCondition)
-        condition.setRight(optimize((OSQLFilterCondition) condition.getRight(), indexMatch));
+      Object right = condition.getRight();
+      if (right instanceof OSQLFilterCondition)
+        right = optimize((OSQLFilterCondition) right, indexMatch);
 
-      if (condition.getLeft() == null)
-        return (OSQLFilterCondition) condition.getRight();
-      if (condition.getRight() == null)
-        return (OSQLFilterCondition) condition.getLeft();
-      return condition;
+      if (left == null)
+        return (OSQLFilterCondition) right;
+      if (right == null)
+        return (OSQLFilterCondition) left;
+      if (left == condition.getLeft() && right == condition.getRight())
+        return condition;
+      return new OSQLFilterCondition(left, operator, right);
 
     default:
       return condition;
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.filter;
+
+import java.util.Collection;
+import java.util.Date;
+
+import com.orientechnologies.orient.core.collate.OCollate;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNot;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNotEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
+
+/**
+ * Condition tree compiled once per query from the parsed {@link OSQLFilterCondition} tree. AND, OR and NOT are short-circuited
+ * and comparisons between a field and a constant or a parameter resolve the collate once per class and convert the constant once
+ * per type of the field value, instead of repeating the type coercion for every record. All the other conditions, and the records
+ * a comparison cannot handle with the bound types, are evaluated by the original condition, so the result never changes.
+ */
+public abstract class OSQLCompiledCondition {
+
+  public abstract Object evaluate(OIdentifiable iRecord, ODocument iCurrentResult, OCommandContext iContext);
+
+  /**
+   * Compiles the condition tree. Returns null if the condition is null.
+   */
+  public static OSQLCompiledCondition compile(final OSQLFilterCondition iCondition) {
+    if (iCondition == null)
+      return null;
+
+    final OQueryOperator operator = iCondition.getOperator();
+    final Object left = iCondition.getLeft();
+    final Object right = iCondition.getRight();
+
+    if (operator == null) {
+      if (left instanceof OSQLFilterCondition && right == null)
+        // BRACES
+        return new Group(compile((OSQLFilterCondition) left));
+
+    } else if (operator.getClass() == OQueryOperatorAnd.class) {
+      if (left instanceof OSQLFilterCondition && right instanceof OSQLFilterCondition)
+        return new And(compile((OSQLFilterCondition) left), compile((OSQLFilterCondition) right));
+
+    } else if (operator.getClass() == OQueryOperatorOr.class) {
+      if (left instanceof OSQLFilterCondition && right instanceof OSQLFilterCondition)
+        return new Or(compile((OSQLFilterCondition) left), compile((OSQLFilterCondition) right));
+
+    } else if (operator.getClass() == OQueryOperatorNot.class) {
+      if (((OQueryOperatorNot) operator).getNext() == null && left instanceof OSQLFilterCondition && right == null)
+        return new Not(compile((OSQLFilterCondition) left));
+
+    } else {
+      final int comparison = getComparison(operator);
+      if (comparison > -1 && left != null && left.getClass() == OSQLFilterItemField.class
+          && !((OSQLFilterItemField) left).hasChainOperators() && isConstant(right))
+        return new Comparison(iCondition, (OSQLFilterItemField) left, comparison, right);
+    }
+
+    return new Interpreted(iCondition);
+  }
+
+  private static int getComparison(final OQueryOperator iOperator) {
+    final Class<?> cls = iOperator.getClass();
+    if (cls == OQueryOperatorEquals.class)
+      return Comparison.EQUALS;
+    if (cls == OQueryOperatorNotEquals.class)
+      return Comparison.NOT_EQUALS;
+    if (cls == OQueryOperatorMajor.class)
+      return Comparison.MAJOR;
+    if (cls == OQueryOperatorMajorEquals.class)
+      return Comparison.MAJOR_EQUALS;
+    if (cls == OQueryOperatorMinor.class)
+      return Comparison.MINOR;
+    if (cls == OQueryOperatorMinorEquals.class)
+      return Comparison.MINOR_EQUALS;
+    return -1;
+  }
+
+  private static boolean isConstant(final Object iValue) {
+    if (iValue instanceof OSQLFilterItemParameter)
+      return true;
+    return isSimpleValue(iValue);
+  }
+
+  private static boolean isSimpleValue(final Object iValue) {
+    if (iValue instanceof String)
+      return !iValue.equals(OSQLHelper.DEFINED) && !iValue.equals(OSQLHelper.NOT_NULL);
+    return iValue instanceof Number || iValue instanceof Boolean || iValue instanceof Date;
+  }
+
+  /**
+   * Evaluates the condition by walking the original tree.
+   */
+  private static final class Interpreted extends OSQLCompiledCondition {
+    private final OSQLFilterCondition condition;
+
+    private Interpreted(final OSQLFilterCondition iCondition) {
+      condition = iCondition;
+    }
+
+    @Override
+    public Object evaluate(final OIdentifiable iRecord, final ODocument iCurrentResult, final OCommandContext iContext) {
+      return condition.evaluate(iRecord, iCurrentResult, iContext);
+    }
+  }
+
+  private static final class Group extends OSQLCompiledCondition {
+    private final OSQLCompiledCondition inner;
+
+    private Group(final OSQLCompiledCondition iInner) {
+      inner = iInner;
+    }
+
+    @Override
+    public Object evaluate(final OIdentifiable iRecord, final ODocument iCurrentResult, final OCommandContext iContext) {
+      final Object result = inner.evaluate(iRecord, iCurrentResult, iContext);
+      return result != null ? result : Boolean.FALSE;
+    }
+  }
+
+  private static final class And extends OSQLCompiledCondition {
+    private final OSQLCompiledCondition left;
+    private final OSQLCompiledCondition right;
+
+    private And(final OSQLCompiledCondition iLeft, final OSQLCompiledCondition iRight) {
+      left = iLeft;
+      right = iRight;
+    }
+
+    @Override
+    public Object evaluate(final OIdentifiable iRecord, final ODocument iCurrentResult, final OCommandContext iContext) {
+      if (!Boolean.TRUE.equals(left.evaluate(iRecord, iCurrentResult, iContext)))
+        return Boolean.FALSE;
+      return Boolean.TRUE.equals(right.evaluate(iRecord, iCurrentResult, iContext));
+    }
+  }
+
+  private static final class Or extends OSQLCompiledCondition {
+    private final OSQLCompiledCondition left;
+    private final OSQLCompiledCondition right;
+
+    private Or(final OSQLCompiledCondition iLeft, final OSQLCompiledCondition iRight) {
+      left = iLeft;
+      right = iRight;
+    }
+
+    @Override
+    public Object evaluate(final OIdentifiable iRecord, final ODocument iCurrentResult, final OCommandContext iContext) {
+      final Object l = left.evaluate(iRecord, iCurrentResult, iContext);
+      if (!(l instanceof Boolean))
+        // NULL OR NOT BOOLEAN LEFT IS ALWAYS FALSE
+        return Boolean.FALSE;
+      if ((Boolean) l)
+        return Boolean.TRUE;
+      return Boolean.TRUE.equals(right.evaluate(iRecord, iCurrentResult, iContext));
+    }
+  }
+
+  private static final class Not extends OSQLCompiledCondition {
+    private final OSQLCompiledCondition inner;
+
+    private Not(final OSQLCompiledCondition iInner) {
+      inner = iInner;
+    }
+
+    @Override
+    public Object evaluate(final OIdentifiable iRecord, final ODocument iCurrentResult, final OCommandContext iContext) {
+      return Boolean.FALSE.equals(inner.evaluate(iRecord, iCurrentResult, iContext));
+    }
+  }
+
+  /**
+   * Comparison between a field without operators and a constant or a parameter. The collate is bound per class and the converted
+   * constant per class of the field value, so a scan over records of the same class with fields of the same type only reads the
+   * field and compares it.
+   */
+  private static final class Comparison extends OSQLCompiledCondition {
+    static final int                  EQUALS       = 0;
+    static final int                  NOT_EQUALS   = 1;
+    static final int                  MAJOR        = 2;
+    static final int                  MAJOR_EQUALS = 3;
+    static final int                  MINOR        = 4;
+    static final int                  MINOR_EQUALS = 5;
+
+    private static final Object       INTERPRET    = new Object();
+
+    private final OSQLFilterCondition condition;
+    private final OSQLFilterItemField field;
+    private final int                 comparison;
+    private final Object              right;
+
+    private volatile Binding          binding;
+
+    /**
+     * Immutable state bound to the last class and value type seen, replaced as a whole when one of them changes.
+     */
+    private static final class Binding {
+      private final OClass    schemaClass;
+      private final OProperty property;
+      private final OCollate  collate;
+      private final Object    constant;
+      private final Class<?>  leftClass;
+      private final Object    convertedConstant;
+
+      private Binding(final OClass iSchemaClass, final OProperty iProperty, final OCollate iCollate, final Object iConstant,
+          final Class<?> iLeftClass, final Object iConvertedConstant) {
+        schemaClass = iSchemaClass;
+        property = iProperty;
+        collate = iCollate;
+        constant = iConstant;
+        leftClass = iLeftClass;
+        convertedConstant = iConvertedConstant;
+      }
+    }
+
+    private Comparison(final OSQLFilterCondition iCondition, final OSQLFilterItemField iField, final int iComparison,
+        final Object iRight) {
+      condition = iCondition;
+      field = iField;
+      comparison = iComparison;
+      right = iRight;
+    }
+
+    @Override
+    public Object evaluate(OIdentifiable iRecord, final ODocument iCurrentResult, final OCommandContext iContext) {
+      if (iRecord == null || iCurrentResult != null)
+        return condition.evaluate(iRecord, iCurrentResult, iContext);
+
+      ORecord<?> record = iRecord.getRecord();
+      if (record != null && record.getInternalStatus() == ORecordElement.STATUS.NOT_LOADED) {
+        try {
+          record = record.load();
+        } catch (ORecordNotFoundException e) {
+          return Boolean.FALSE;
+        }
+      }
+
+      if (!(record instanceof ODocument))
+        return condition.evaluate(iRecord, iCurrentResult, iContext);
+
+      final ODocument doc = (ODocument) record;
+
+      final Object constant = right instanceof OSQLFilterItemParameter ? ((OSQLFilterItemParameter) right).getValue(null, null,
+          null) : right;
+      if (constant == null || (constant != right && !isSimpleValue(constant)))
+        return condition.evaluate(iRecord, iCurrentResult, iContext);
+
+      Binding b = binding;
+      final OClass schemaClass = doc.getSchemaClass();
+      if (b == null || b.schemaClass != schemaClass || b.constant != constant
+          || (b.property != null && b.property.getCollate() != b.collate))
+        b = bindClass(schemaClass, constant);
+
+      Object l = field.getFieldValue(doc);
+      if (l == null) {
+        if (b.collate != null)
+          // LET THE COLLATE DECIDE ABOUT NULLS
+          return condition.evaluate(iRecord, iCurrentResult, iContext);
+        return Boolean.FALSE;
+      }
+
+      if (b.collate != null)
+        l = b.collate.transform(l);
+
+      if (l == null || (l instanceof String && (l.equals(OSQLHelper.DEFINED) || l.equals(OSQLHelper.NOT_NULL))))
+        return condition.evaluate(iRecord, iCurrentResult, iContext);
+
+      if (l.getClass() != b.leftClass)
+        b = bindLeftClass(b, l.getClass());
+
+      final Object r = b.convertedConstant;
+      if (r == INTERPRET)
+        return condition.evaluate(iRecord, iCurrentResult, iContext);
+
+      try {
+        return compare(l, r);
+      } catch (RuntimeException e) {
+        // THE ORIGINAL CONDITION DECIDES: IT RETURNS ITS OWN RESULT OR THROWS ITS OWN ERROR
+        return condition.evaluate(iRecord, iCurrentResult, iContext);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Boolean compare(final Object l, final Object r) {
+      if (r == null)
+        // THE CONSTANT CANNOT BE CONVERTED TO THE FIELD TYPE
+        return comparison == NOT_EQUALS;
+
+      switch (comparison) {
+      case EQUALS:
+        return l.equals(r);
+      case NOT_EQUALS:
+        return !l.equals(r);
+      case MAJOR:
+        return ((Comparable<Object>) l).compareTo(r) > 0;
+      case MAJOR_EQUALS:
+        return ((Comparable<Object>) l).compareTo(r) >= 0;
+      case MINOR:
+        return ((Comparable<Object>) l).compareTo(r) < 0;
+      default:
+        return ((Comparable<Object>) l).compareTo(r) <= 0;
+      }
+    }
+
+    private Binding bindClass(final OClass iSchemaClass, final Object iConstant) {
+      final OProperty property = iSchemaClass != null ? iSchemaClass.getProperty(field.getRoot()) : null;
+      final OCollate collate = property != null ? property.getCollate() : null;
+
+      final Binding b = new Binding(iSchemaClass, property, collate, iConstant, null, INTERPRET);
+      binding = b;
+      return b;
+    }
+
+    private Binding bindLeftClass(final Binding iBinding, final Class<?> iLeftClass) {
+      Object constant = iBinding.constant;
+      if (iBinding.collate != null)
+        constant = iBinding.collate.transform(constant);
+
+      final Binding b = new Binding(iBinding.schemaClass, iBinding.property, iBinding.collate, iBinding.constant, iLeftClass,
+          convertConstant(iLeftClass, constant));
+      binding = b;
+      return b;
+    }
+
+    /**
+     * Converts the constant as the condition would do against any value of the passed class. Returns INTERPRET when the conversion
+     * depends on the value itself, so those records are evaluated by the original condition.
+     */
+    private Object convertConstant(final Class<?> iLeftClass, Object iConstant) {
+      if (iConstant == null || ORecord.class.isAssignableFrom(iLeftClass) || Collection.class.isAssignableFrom(iLeftClass)
+          || (comparison > NOT_EQUALS && !Comparable.class.isAssignableFrom(iLeftClass)))
+        return INTERPRET;
+
+      final Class<?> constantClass = iConstant.getClass();
+
+      if (iLeftClass.isAssignableFrom(constantClass) || constantClass.isAssignableFrom(iLeftClass)) {
+        // SAME TYPE: NOTHING TO CONVERT BEFORE THE OPERATOR
+      } else if (Number.class.isAssignableFrom(iLeftClass) && iConstant instanceof Number) {
+        if (iLeftClass == Float.class || iConstant instanceof Float)
+          // THE CONDITION CONVERTS THE VALUE TO FLOAT
+          return INTERPRET;
+      } else if (Date.class.isAssignableFrom(iLeftClass) && !(iConstant instanceof Integer)) {
+        try {
+          iConstant = condition.getDate(iConstant);
+        } catch (Exception e) {
+          return INTERPRET;
+        }
+        if (iConstant == null)
+          return INTERPRET;
+      } else
+        return INTERPRET;
+
+      try {
+        return OType.convert(iConstant, iLeftClass);
+      } catch (Exception e) {
+        return INTERPRET;
+      }
+    }
+  }
+}
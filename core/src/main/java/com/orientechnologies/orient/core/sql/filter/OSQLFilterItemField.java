@@ -87,14 +87,8 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
 
     final ODocument doc = (ODocument) iRecord.getRecord();
 
-    if (preLoadedFieldsArray == null && preLoadedFields != null && preLoadedFields.size() > 0 && preLoadedFields.size() < 5) {
-      // TRANSFORM THE SET IN ARRAY ONLY THE FIRST TIME AND IF FIELDS ARE MORE THAN ONE, OTHERWISE GO WITH THE DEFAULT BEHAVIOR
-      preLoadedFieldsArray = new String[preLoadedFields.size()];
-      preLoadedFields.toArray(preLoadedFieldsArray);
-    }
-
     // UNMARSHALL THE SINGLE FIELD
-    if (doc.deserializeFields(preLoadedFieldsArray)) {
+    if (doc.deserializeFields(getPreLoadedFields())) {
       final Object v = ODocumentHelper.getFieldValue(doc, name);
 
       collate = getCollateForField(doc, name);
@@ -104,6 +98,26 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
     return null;
   }
 
+  /**
+   * Reads the field without resolving its collate and without applying the chain of operators. Used by compiled conditions that
+   * resolve the collate once per class.
+   */
+  Object getFieldValue(final ODocument iDocument) {
+    if (iDocument.deserializeFields(getPreLoadedFields()))
+      return ODocumentHelper.getFieldValue(iDocument, name);
+    return null;
+  }
+
+  private String[] getPreLoadedFields() {
+    if (preLoadedFieldsArray == null && preLoadedFields != null && preLoadedFields.size() > 0 && preLoadedFields.size() < 5) {
+      // TRANSFORM THE SET IN ARRAY ONLY THE FIRST TIME AND IF FIELDS ARE MORE THAN ONE, OTHERWISE GO WITH THE DEFAULT BEHAVIOR
+      final String[] array = new String[preLoadedFields.size()];
+      preLoadedFields.toArray(array);
+      preLoadedFieldsArray = array;
+    }
+    return preLoadedFieldsArray;
+  }
+
   public String getRoot() {
     return name;
   }
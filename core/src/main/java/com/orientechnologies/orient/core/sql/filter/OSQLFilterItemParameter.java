@@ -53,4 +53,11 @@ public class OSQLFilterItemParameter implements OSQLFilterItem {
 	public void setValue(Object value) {
 		this.value = value;
 	}
+
+	/**
+	 * Unbinds the parameter, as it was just parsed.
+	 */
+	public void reset() {
+		value = NOT_SETTED;
+	}
 }
@@ -26,6 +26,7 @@ import java.util.Set;
 import com.orientechnologies.common.parser.OBaseParser;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandPredicate;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.record.ORecord;
@@ -48,6 +49,7 @@ import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
   protected Set<OProperty>                properties = new HashSet<OProperty>();
   protected OSQLFilterCondition           rootCondition;
+  protected OSQLCompiledCondition         compiledRootCondition;
   protected List<String>                  recordTransformed;
   protected List<OSQLFilterItemParameter> parameterItems;
   protected int                           braces;
@@ -79,6 +81,7 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
       parserSkipWhiteSpaces();
 
       rootCondition = (OSQLFilterCondition) extractConditions(null);
+      compiledRootCondition = null;
 
       optimize();
     } catch (OQueryParsingException e) {
@@ -105,7 +108,23 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     if (rootCondition == null)
       return true;
 
-    return rootCondition.evaluate(iRecord, iCurrentResult, iContext);
+    return evaluateRootCondition(iRecord, iCurrentResult, iContext);
+  }
+
+  /**
+   * Evaluates the root condition through its compiled form, built at the first evaluation so the optimizations applied to the tree
+   * after parsing are compiled too.
+   */
+  protected Object evaluateRootCondition(final ORecord<?> iRecord, final ODocument iCurrentResult, final OCommandContext iContext) {
+    if (!OGlobalConfiguration.QUERY_FILTER_COMPILED.getValueAsBoolean())
+      return rootCondition.evaluate(iRecord, iCurrentResult, iContext);
+
+    OSQLCompiledCondition compiled = compiledRootCondition;
+    if (compiled == null) {
+      compiled = OSQLCompiledCondition.compile(rootCondition);
+      compiledRootCondition = compiled;
+    }
+    return compiled.evaluate(iRecord, iCurrentResult, iContext);
   }
 
   private Object extractConditions(final OSQLFilterCondition iParentCondition) {
@@ -365,6 +384,15 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     }
   }
 
+  /**
+   * Unbinds the parameters bound by a previous execution.
+   */
+  public void resetParameters() {
+    if (parameterItems != null)
+      for (OSQLFilterItemParameter param : parameterItems)
+        param.reset();
+  }
+
   public OSQLFilterItemParameter addParameter(final String iName) {
     final String name;
     if (iName.charAt(0) == OStringSerializerHelper.PARAMETER_NAMED) {
@@ -388,6 +416,7 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
 
   public void setRootCondition(final OSQLFilterCondition iCondition) {
     rootCondition = iCondition;
+    compiledRootCondition = null;
   }
 
   protected void optimize() {
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage;
+
+/**
+ * Result of one record of a batch operation: the operation on a record can fail without failing the others, so every record
+ * carries either its result or the error raised on it.
+ * 
+ * @see OStorageProxy
+ */
+public class OBatchOperationResult<RET> {
+  private final RET              result;
+  private final RuntimeException error;
+
+  public OBatchOperationResult(final RET iResult) {
+    result = iResult;
+    error = null;
+  }
+
+  public OBatchOperationResult(final RuntimeException iError) {
+    result = null;
+    error = iError;
+  }
+
+  /**
+   * Returns the result of the operation, or throws the error raised on the record.
+   */
+  public RET getResult() {
+    if (error != null)
+      throw error;
+    return result;
+  }
+
+  public RuntimeException getError() {
+    return error;
+  }
+
+  public boolean isError() {
+    return error != null;
+  }
+}
@@ -15,24 +15,98 @@
  */
 package com.orientechnologies.orient.core.storage;
 
+import com.orientechnologies.common.concur.lock.OLockException;
 import com.orientechnologies.common.concur.lock.OLockManager;
+import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.id.ORID;
 
 /**
- * Record lock manager.
+ * Record lock manager. Every record has its own lock, records are spread by hash code on partitions which keep their locks apart,
+ * so threads locking records of different partitions never wait on the same monitor.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
-public class ORecordLockManager extends OLockManager<ORID, Runnable> {
+public class ORecordLockManager {
+  private static final int    PARTITIONS_PER_CPU = 8;
+  private static final int    MIN_PARTITIONS     = 64;
+
+  private final RecordLocks[] partitions;
+  private final int           mask;
 
   public ORecordLockManager(final int iAcquireTimeout) {
-    super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean(), iAcquireTimeout);
+    final boolean enabled = OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean();
+
+    int count = 1;
+    while (count < Math.max(Runtime.getRuntime().availableProcessors() * PARTITIONS_PER_CPU, MIN_PARTITIONS))
+      count <<= 1;
+
+    mask = count - 1;
+    partitions = new RecordLocks[count];
+    for (int i = 0; i < partitions.length; i++)
+      partitions[i] = new RecordLocks(enabled, iAcquireTimeout);
+  }
+
+  public void acquireLock(final Runnable iRequester, final ORID iRecordId, final LOCK iLockType) {
+    partition(iRecordId).acquireLock(iRequester, iRecordId, iLockType);
+  }
+
+  public void acquireLock(final Runnable iRequester, final ORID iRecordId, final LOCK iLockType, final long iTimeout) {
+    partition(iRecordId).acquireLock(iRequester, iRecordId, iLockType, iTimeout);
+  }
+
+  public boolean tryAcquireLock(final Runnable iRequester, final ORID iRecordId, final LOCK iLockType) {
+    return partition(iRecordId).tryAcquireLock(iRequester, iRecordId, iLockType);
+  }
+
+  public void releaseLock(final Runnable iRequester, final ORID iRecordId, final LOCK iLockType) throws OLockException {
+    partition(iRecordId).releaseLock(iRequester, iRecordId, iLockType);
+  }
+
+  public void modifyLock(final Runnable iRequester, final ORID iRecordId, final LOCK iCurrentLockType, final LOCK iNewLockType)
+      throws OLockException {
+    partition(iRecordId).modifyLock(iRequester, iRecordId, iCurrentLockType, iNewLockType);
+  }
+
+  public void clear() {
+    for (RecordLocks partition : partitions)
+      partition.clear();
+  }
+
+  // For tests purposes.
+  public int getCountCurrentLocks() {
+    int count = 0;
+    for (RecordLocks partition : partitions)
+      count += partition.getCountCurrentLocks();
+    return count;
+  }
+
+  public int getPartitions() {
+    return partitions.length;
+  }
+
+  public void releaseAllLocksOfRequester(final Runnable iRequester) {
+    for (RecordLocks partition : partitions)
+      partition.releaseAllLocksOfRequester(iRequester);
   }
 
-  @Override
-  protected ORID getImmutableResourceId(ORID iResourceId) {
-    return iResourceId.copy();
+  private RecordLocks partition(final ORID iRecordId) {
+    int h = iRecordId.hashCode();
+    // SPREAD THE HASH CODE, CONSECUTIVE RECORDS OFTEN DIFFER ONLY IN THE LOWER BITS
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return partitions[h & mask];
+  }
+
+  private static final class RecordLocks extends OLockManager<ORID, Runnable> {
+    private RecordLocks(final boolean iEnabled, final int iAcquireTimeout) {
+      super(iEnabled, iAcquireTimeout, 1);
+    }
+
+    @Override
+    protected ORID getImmutableResourceId(ORID iResourceId) {
+      return iResourceId.copy();
+    }
   }
 }
@@ -15,11 +15,39 @@
  */
 package com.orientechnologies.orient.core.storage;
 
+import java.util.List;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+
 /**
- * Tagged interface for proxy storage implementation
+ * Interface for proxy storage implementation. Since every operation costs a round trip, the proxy provides batch versions of the
+ * record operations. Every record of a batch has its own result: an error on one record doesn't stop the others.
  * 
  * @author Luca Garulli
  * 
  */
 public interface OStorageProxy extends OStorage {
+  /**
+   * Loads many records at once.
+   * 
+   * @return the results in the same order of the rids. The result is null if the record doesn't exist
+   */
+  List<OBatchOperationResult<ORawBuffer>> readRecords(List<ORecordId> iRids, String iFetchPlan, boolean iIgnoreCache);
+
+  /**
+   * Creates many records at once. The cluster of every record is taken by its identity, that is updated with the new position
+   * together with the record version.
+   * 
+   * @return the results in the same order of the records
+   */
+  List<OBatchOperationResult<OPhysicalPosition>> createRecords(List<? extends ORecordInternal<?>> iRecords);
+
+  /**
+   * Updates many records at once using the MVCC version of every record, that is updated with the new version.
+   * 
+   * @return the results in the same order of the records
+   */
+  List<OBatchOperationResult<ORecordVersion>> updateRecords(List<? extends ORecordInternal<?>> iRecords);
 }
\ No newline at end of file
@@ -2081,7 +2081,8 @@ public class OStorageLocal extends OStorageLocalAbstract {
     diskCache = new OReadWriteDiskCache(name, readCacheSize, writeCacheSize,
         OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024,
         OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
-        OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, null, false, true);
+        OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, null, false, true,
+        OGlobalConfiguration.DISK_CACHE_CONCURRENCY_LEVEL.getValueAsInteger());
   }
 
 }
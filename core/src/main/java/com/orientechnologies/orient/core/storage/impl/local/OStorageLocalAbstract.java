@@ -193,38 +193,45 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
         continue;
       }
 
-      if (record instanceof OUpdatePageRecord) {
-        OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) record;
-        final long fileId = updatePageRecord.getFileId();
-        final long pageIndex = updatePageRecord.getPageIndex();
-
-        if (!diskCache.isOpen(fileId))
-          diskCache.openFile(fileId);
+      revertRecord(record);
+    }
+  }
 
-        OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
-        OCachePointer cachePointer = cacheEntry.getCachePointer();
-        cachePointer.acquireExclusiveLock();
-        try {
-          ODurablePage durablePage = new ODurablePage(cacheEntry, ODurablePage.TrackMode.NONE);
+  /**
+   * Reverts changes of page update or file creation record of atomic operation which is rolled back.
+   */
+  protected void revertRecord(OWALRecord record) throws IOException {
+    if (record instanceof OUpdatePageRecord) {
+      OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) record;
+      final long fileId = updatePageRecord.getFileId();
+      final long pageIndex = updatePageRecord.getPageIndex();
+
+      if (!diskCache.isOpen(fileId))
+        diskCache.openFile(fileId);
+
+      OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
+      OCachePointer cachePointer = cacheEntry.getCachePointer();
+      cachePointer.acquireExclusiveLock();
+      try {
+        ODurablePage durablePage = new ODurablePage(cacheEntry, ODurablePage.TrackMode.NONE);
 
-          OPageChanges pageChanges = updatePageRecord.getChanges();
-          durablePage.revertChanges(pageChanges);
+        OPageChanges pageChanges = updatePageRecord.getChanges();
+        durablePage.revertChanges(pageChanges);
 
-          durablePage.setLsn(updatePageRecord.getLsn());
-        } finally {
-          cachePointer.releaseExclusiveLock();
-          diskCache.release(cacheEntry);
-        }
-      } else if (record instanceof OFileCreatedCreatedWALRecord) {
-        final OFileCreatedCreatedWALRecord fileCreatedCreatedRecord = (OFileCreatedCreatedWALRecord) record;
-
-        diskCache.openFile(fileCreatedCreatedRecord.getFileName(), fileCreatedCreatedRecord.getFileId());
-        diskCache.deleteFile(fileCreatedCreatedRecord.getFileId());
-      } else {
-        OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
-            record.getClass());
-        assert false : "Invalid WAL record type was passed " + record.getClass().getName();
+        durablePage.setLsn(updatePageRecord.getLsn());
+      } finally {
+        cachePointer.releaseExclusiveLock();
+        diskCache.release(cacheEntry);
       }
+    } else if (record instanceof OFileCreatedCreatedWALRecord) {
+      final OFileCreatedCreatedWALRecord fileCreatedCreatedRecord = (OFileCreatedCreatedWALRecord) record;
+
+      diskCache.openFile(fileCreatedCreatedRecord.getFileName(), fileCreatedCreatedRecord.getFileId());
+      diskCache.deleteFile(fileCreatedCreatedRecord.getFileId());
+    } else {
+      OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
+          record.getClass());
+      assert false : "Invalid WAL record type was passed " + record.getClass().getName();
     }
   }
 
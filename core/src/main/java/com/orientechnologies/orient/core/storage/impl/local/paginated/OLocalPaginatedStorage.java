@@ -16,9 +16,17 @@
 
 package com.orientechnologies.orient.core.storage.impl.local.paginated;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -36,14 +44,21 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.concur.lock.OModificationLock;
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.parser.OSystemVariableResolver;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
@@ -78,6 +93,7 @@ import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.ORecordCallback;
 import com.orientechnologies.orient.core.storage.ORecordMetadata;
 import com.orientechnologies.orient.core.storage.OStorageOperationResult;
+import com.orientechnologies.orient.core.storage.fs.OFileClassic;
 import com.orientechnologies.orient.core.storage.impl.local.ODataLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageConfigurationSegment;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
@@ -101,6 +117,7 @@ import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OPagin
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALPageBrokenException;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALRecordsFactory;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 import com.orientechnologies.orient.core.tx.OTransaction;
 import com.orientechnologies.orient.core.tx.OTransactionAbstract;
@@ -117,6 +134,16 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   private static final int                      ONE_KB                               = 1024;
+  private static final String                   DIRTY_FLAG_FILE                      = "dirty.fl";
+
+  private static final int                      INCREMENTAL_BACKUP_MAGIC             = 0x4F494250;
+  private static final int                      INCREMENTAL_BACKUP_VERSION           = 1;
+  private static final byte                     BACKUP_END                           = 0;
+  private static final byte                     BACKUP_PAGED_FILE                    = 1;
+  private static final byte                     BACKUP_FILE                          = 2;
+  private static final byte                     BACKUP_FILE_LIST                     = 3;
+  private static final byte                     BACKUP_WAL_RECORD                    = 4;
+  private static final int                      BACKUP_PAGES_BATCH                   = 16;
 
   private static String[]                       ALL_FILE_EXTENSIONS                  = { ".ocf", ".pls", ".pcl", ".oda", ".odh",
       ".otx", ".ocs", ".oef", ".oem", ".oet", OWriteAheadLog.WAL_SEGMENT_EXTENSION, OWriteAheadLog.MASTER_RECORD_EXTENSION,
@@ -137,6 +164,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   private String                                storagePath;
   private volatile int                          defaultClusterId                     = -1;
   private final OModificationLock               modificationLock                     = new OModificationLock();
+  private final Object                          backupLock                           = new Object();
 
   private final OPaginatedStorageDirtyFlag      dirtyFlag;
 
@@ -169,7 +197,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     DELETE_MAX_RETRIES = OGlobalConfiguration.FILE_MMAP_FORCE_RETRY.getValueAsInteger();
     DELETE_WAIT_TIME = OGlobalConfiguration.FILE_MMAP_FORCE_DELAY.getValueAsInteger();
 
-    dirtyFlag = new OPaginatedStorageDirtyFlag(storagePath + File.separator + "dirty.fl");
+    dirtyFlag = new OPaginatedStorageDirtyFlag(storagePath + File.separator + DIRTY_FLAG_FILE);
   }
 
   public void open(final String iUserName, final String iUserPassword, final Map<String, Object> iProperties) {
@@ -1053,6 +1081,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   }
 
   public void commit(final OTransaction clientTx, Runnable callback) {
+    OLogSequenceNumber commitLSN = null;
+
     modificationLock.requestModificationLock();
     try {
       lock.acquireExclusiveLock();
@@ -1081,6 +1111,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
         endStorageTx();
 
+        if (OGlobalConfiguration.WAL_SYNC_ON_TX_COMMIT.getValueAsBoolean())
+          commitLSN = writeAheadLog.end();
+
         OTransactionAbstract.updateCacheFromEntries(clientTx, clientTx.getAllRecordEntries(), true);
 
       } catch (Exception e) {
@@ -1099,6 +1132,14 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     } finally {
       modificationLock.releaseModificationLock();
     }
+
+    // WAIT FOR THE FLUSH OUTSIDE OF THE LOCK, SO CONCURRENT COMMITS ARE FLUSHED TOGETHER
+    if (commitLSN != null)
+      try {
+        writeAheadLog.flushTill(commitLSN);
+      } catch (IOException e) {
+        throw new OStorageException("Error during flush of transaction log.", e);
+      }
   }
 
   public void rollback(final OTransaction clientTx) {
@@ -1380,6 +1421,504 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       });
   }
 
+  /**
+   * Writes incremental backup of storage. Pages whose LSN is not older than passed LSN and the other files of storage are copied
+   * while storage keeps serving writes, then records logged in WAL during the copy are appended, restore replays them to make
+   * copied pages consistent. Backups are restored by {@link #restore(InputStream, Map, Callable, OCommandOutputListener)}, full
+   * backup first and then its increments in the same order they were made.
+   * <p>
+   * Changes which are not logged in WAL, like changes of clusters which do not use WAL or of indexes which are not durable in
+   * non-transactional mode, are copied only if they were done before the copy of their pages.
+   * 
+   * @param fromLSN
+   *          LSN returned by the previous backup, <code>null</code> to copy all pages
+   * @return LSN to pass to the next incremental backup
+   */
+  public OLogSequenceNumber incrementalBackup(final OutputStream out, final OLogSequenceNumber fromLSN,
+      final OCommandOutputListener iListener, final int compressionLevel, final int bufferSize) throws IOException {
+    checkOpeness();
+
+    if (writeAheadLog == null)
+      throw new OStorageException("Incremental backup of storage " + name
+          + " is not possible because write ahead logging is switched off");
+
+    synchronized (backupLock) {
+      final OLogSequenceNumber startLSN = atomicOperationsManager.getActiveOperationsStartLSN();
+
+      // RECORDS LOGGED DURING THE COPY ARE NOT REMOVED BY CHECKPOINTS TILL THEY ARE WRITTEN IN BACKUP
+      writeAheadLog.preventCutTill(startLSN != null ? startLSN : new OLogSequenceNumber(-1, -1));
+      try {
+        final OutputStream bo = bufferSize > 0 ? new BufferedOutputStream(out, bufferSize) : out;
+        final DataOutputStream header = new DataOutputStream(bo);
+        header.writeInt(INCREMENTAL_BACKUP_MAGIC);
+        header.writeInt(INCREMENTAL_BACKUP_VERSION);
+
+        final Deflater deflater = new Deflater(compressionLevel);
+        try {
+          final DeflaterOutputStream deflaterOut = new DeflaterOutputStream(bo, deflater);
+          final DataOutputStream data = new DataOutputStream(deflaterOut);
+
+          final int pageSize = ODurablePage.MAX_PAGE_SIZE_BYTES;
+          data.writeInt(pageSize);
+          writeLSN(data, fromLSN);
+          writeLSN(data, startLSN);
+
+          final List<String> fileNames = new ArrayList<String>();
+          final List<File> otherFiles = new ArrayList<File>();
+
+          final byte[] pages = new byte[BACKUP_PAGES_BATCH * pageSize];
+          final File[] files = new File(storagePath).listFiles();
+          if (files != null)
+            for (File file : files) {
+              if (!file.isFile() || isExcludedFromBackup(file.getName()))
+                continue;
+
+              final long fileId = diskCache.isOpen(file.getName());
+              if (fileId < 0)
+                otherFiles.add(file);
+              else if (backupPages(data, file, fileId, fromLSN, pages, iListener))
+                fileNames.add(file.getName());
+            }
+
+          final OLogSequenceNumber endLSN;
+
+          // CONFIGURATION AND THE OTHER FILES WHICH ARE NOT PAGINATED ARE SMALL, THEY ARE COPIED WHILE CHANGES ARE PROHIBITED
+          modificationLock.prohibitModifications();
+          try {
+            for (File file : otherFiles)
+              if (backupFile(data, file, iListener))
+                fileNames.add(file.getName());
+
+            writeAheadLog.flush();
+            endLSN = writeAheadLog.end();
+          } finally {
+            modificationLock.allowModifications();
+          }
+
+          data.writeByte(BACKUP_FILE_LIST);
+          data.writeInt(fileNames.size());
+          for (String fileName : fileNames)
+            data.writeUTF(fileName);
+
+          final long records = backupWALRecords(data, startLSN, endLSN);
+
+          data.writeByte(BACKUP_END);
+          data.flush();
+          deflaterOut.finish();
+
+          if (iListener != null)
+            iListener.onMessage("\n- Backup is completed, " + records + " WAL records were written");
+        } finally {
+          deflater.end();
+
+          bo.flush();
+          if (bufferSize > 0)
+            bo.close();
+        }
+      } finally {
+        writeAheadLog.allowCutTill();
+      }
+
+      return startLSN;
+    }
+  }
+
+  /**
+   * Restores backup made by {@link #incrementalBackup(OutputStream, OLogSequenceNumber, OCommandOutputListener, int, int)} or the
+   * ZIP backup of storage directory.
+   */
+  @Override
+  public void restore(InputStream in, Map<String, Object> options, Callable<Object> callable, OCommandOutputListener iListener)
+      throws IOException {
+    final BufferedInputStream bufferedIn = new BufferedInputStream(in);
+    bufferedIn.mark(OIntegerSerializer.INT_SIZE);
+
+    final DataInputStream header = new DataInputStream(bufferedIn);
+    int magic;
+    try {
+      magic = header.readInt();
+    } catch (EOFException e) {
+      magic = 0;
+    }
+
+    if (magic != INCREMENTAL_BACKUP_MAGIC) {
+      bufferedIn.reset();
+      super.restore(bufferedIn, options, callable, iListener);
+      return;
+    }
+
+    final int version = header.readInt();
+    if (version != INCREMENTAL_BACKUP_VERSION)
+      throw new OStorageException("Unsupported version " + version + " of incremental backup");
+
+    if (!isClosed())
+      close();
+
+    final Inflater inflater = new Inflater();
+    try {
+      restoreIncrementalBackup(new DataInputStream(new BufferedInputStream(new InflaterInputStream(bufferedIn, inflater))),
+          iListener);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private void restoreIncrementalBackup(DataInputStream data, OCommandOutputListener iListener) throws IOException {
+    final int pageSize = data.readInt();
+    if (pageSize != ODurablePage.MAX_PAGE_SIZE_BYTES)
+      throw new OStorageException("Backup was made with page size " + pageSize + " but current page size is "
+          + ODurablePage.MAX_PAGE_SIZE_BYTES);
+
+    final OLogSequenceNumber fromLSN = readLSN(data);
+    OLogSequenceNumber lastLSN = readLSN(data);
+
+    if (fromLSN != null && !exists())
+      throw new OStorageException("Cannot restore incremental backup in storage " + name
+          + " because it does not exist, restore the full backup first");
+
+    final File storageDir = new File(storagePath);
+    if (!storageDir.exists() && !storageDir.mkdirs())
+      throw new OStorageException("Cannot create directory " + storagePath);
+
+    final byte[] page = new byte[pageSize];
+    byte section = data.readByte();
+
+    while (section == BACKUP_PAGED_FILE || section == BACKUP_FILE) {
+      final File file = new File(storageDir, data.readUTF());
+      if (iListener != null)
+        iListener.onMessage("\n- Restoring " + file.getName() + "...");
+
+      final RandomAccessFile rndFile = new RandomAccessFile(file, "rw");
+      try {
+        if (section == BACKUP_PAGED_FILE) {
+          final long pages = data.readLong();
+          final byte[] fileHeader = new byte[OFileClassic.HEADER_SIZE];
+          data.readFully(fileHeader);
+
+          rndFile.setLength(OFileClassic.HEADER_SIZE + pages * pageSize);
+          rndFile.write(fileHeader);
+
+          long pageIndex = data.readLong();
+          while (pageIndex >= 0) {
+            data.readFully(page);
+            rndFile.seek(OFileClassic.HEADER_SIZE + pageIndex * pageSize);
+            rndFile.write(page);
+
+            final OLogSequenceNumber pageLSN = new OLogSequenceNumber(OLongSerializer.INSTANCE.deserializeNative(page,
+                ODurablePage.WAL_SEGMENT_OFFSET), OLongSerializer.INSTANCE.deserializeNative(page, ODurablePage.WAL_POSITION_OFFSET));
+            if (lastLSN == null || pageLSN.compareTo(lastLSN) > 0)
+              lastLSN = pageLSN;
+
+            pageIndex = data.readLong();
+          }
+        } else {
+          long size = data.readLong();
+          rndFile.setLength(size);
+
+          while (size > 0) {
+            final int chunk = (int) Math.min(size, page.length);
+            data.readFully(page, 0, chunk);
+            rndFile.write(page, 0, chunk);
+            size -= chunk;
+          }
+        }
+      } finally {
+        rndFile.close();
+      }
+
+      section = data.readByte();
+    }
+
+    if (section != BACKUP_FILE_LIST)
+      throw new OStorageException("Invalid incremental backup, list of files was expected");
+
+    final Set<String> fileNames = new HashSet<String>();
+    final int filesCount = data.readInt();
+    for (int i = 0; i < filesCount; i++)
+      fileNames.add(data.readUTF());
+
+    // FILES DELETED AFTER THE PREVIOUS BACKUP
+    final File[] files = storageDir.listFiles();
+    if (files != null)
+      for (File file : files)
+        if (file.isFile() && !fileNames.contains(file.getName()) && !isExcludedFromBackup(file.getName())
+            && isStorageFile(file.getName()) && !file.delete())
+          throw new OStorageException("Cannot delete file " + file.getAbsolutePath());
+
+    section = data.readByte();
+
+    final List<OWALRecord> records = new ArrayList<OWALRecord>();
+    while (section == BACKUP_WAL_RECORD) {
+      final OLogSequenceNumber lsn = readLSN(data);
+      final byte[] content = new byte[data.readInt()];
+      data.readFully(content);
+
+      final OWALRecord record = OWALRecordsFactory.INSTANCE.fromStream(content);
+      record.setLsn(lsn);
+      records.add(record);
+
+      if (lastLSN == null || lsn.compareTo(lastLSN) > 0)
+        lastLSN = lsn;
+
+      section = data.readByte();
+    }
+
+    if (section != BACKUP_END)
+      throw new OStorageException("Invalid incremental backup, end of backup was expected");
+
+    // NEW RECORDS FOLLOW THE RESTORED ONES, THE STORAGE IS OPENED WITHOUT RESTORE FROM ITS OLD LOG
+    OWriteAheadLog.reset(this, lastLSN);
+    if (dirtyFlag.exits())
+      dirtyFlag.open();
+    else
+      dirtyFlag.create();
+    dirtyFlag.clearDirty();
+    dirtyFlag.close();
+
+    if (iListener != null)
+      iListener.onMessage("\n- Applying " + records.size() + " WAL records...");
+
+    open(null, null, null);
+    try {
+      restoreBackupRecords(records);
+    } finally {
+      close(true, false);
+    }
+  }
+
+  /**
+   * Copies pages of the file in batches of {@link #BACKUP_PAGES_BATCH} pages. Storage lock is held only while a batch is read from
+   * the disk cache, commits are not stalled by the copy of the whole file.
+   * 
+   * @return <code>false</code> if the file was deleted before or during the copy
+   */
+  private boolean backupPages(DataOutputStream data, File file, long fileId, OLogSequenceNumber fromLSN, byte[] pages,
+      OCommandOutputListener iListener) throws IOException {
+    final int pageSize = ODurablePage.MAX_PAGE_SIZE_BYTES;
+    final byte[] fileHeader = new byte[OFileClassic.HEADER_SIZE];
+    final long filledUpTo;
+
+    lock.acquireSharedLock();
+    try {
+      if (!diskCache.exists(fileId))
+        return false;
+
+      final RandomAccessFile rndFile = new RandomAccessFile(file, "r");
+      try {
+        rndFile.readFully(fileHeader);
+      } finally {
+        rndFile.close();
+      }
+
+      filledUpTo = diskCache.getFilledUpTo(fileId);
+    } finally {
+      lock.releaseSharedLock();
+    }
+
+    data.writeByte(BACKUP_PAGED_FILE);
+    data.writeUTF(file.getName());
+    data.writeLong(filledUpTo);
+    data.write(fileHeader);
+
+    final long[] pageIndexes = new long[BACKUP_PAGES_BATCH];
+    long copiedPages = 0;
+    boolean exists = true;
+
+    for (long batchStart = 0; batchStart < filledUpTo; batchStart += BACKUP_PAGES_BATCH) {
+      final long batchEnd = Math.min(batchStart + BACKUP_PAGES_BATCH, filledUpTo);
+      int batchPages = 0;
+
+      lock.acquireSharedLock();
+      try {
+        exists = diskCache.exists(fileId);
+        if (!exists)
+          break;
+
+        for (long pageIndex = batchStart; pageIndex < batchEnd; pageIndex++) {
+          final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
+          final OCachePointer cachePointer = cacheEntry.getCachePointer();
+
+          cachePointer.acquireSharedLock();
+          try {
+            final ODirectMemoryPointer dataPointer = cachePointer.getDataPointer();
+            if (fromLSN == null || ODurablePage.getLogSequenceNumberFromPage(dataPointer).compareTo(fromLSN) >= 0) {
+              dataPointer.get(ODurablePage.PAGE_PADDING, pages, batchPages * pageSize, pageSize);
+              pageIndexes[batchPages++] = pageIndex;
+            }
+          } finally {
+            cachePointer.releaseSharedLock();
+            diskCache.release(cacheEntry);
+          }
+        }
+      } finally {
+        lock.releaseSharedLock();
+      }
+
+      for (int i = 0; i < batchPages; i++) {
+        OWOWCache.writePageChecksum(pages, i * pageSize, pageSize);
+        data.writeLong(pageIndexes[i]);
+        data.write(pages, i * pageSize, pageSize);
+      }
+      copiedPages += batchPages;
+    }
+
+    data.writeLong(-1);
+
+    // DELETED FILE IS NOT IN THE LIST OF FILES OF BACKUP, RESTORE REMOVES IT
+    if (!exists)
+      return false;
+
+    if (iListener != null)
+      iListener.onMessage("\n- Copied " + copiedPages + " of " + filledUpTo + " pages of " + file.getName());
+    return true;
+  }
+
+  private boolean backupFile(DataOutputStream data, File file, OCommandOutputListener iListener) throws IOException {
+    if (!file.exists())
+      return false;
+
+    if (iListener != null)
+      iListener.onMessage("\n- Copying " + file.getName() + "...");
+
+    final RandomAccessFile rndFile = new RandomAccessFile(file, "r");
+    try {
+      long size = rndFile.length();
+
+      data.writeByte(BACKUP_FILE);
+      data.writeUTF(file.getName());
+      data.writeLong(size);
+
+      final byte[] buffer = new byte[64 * ONE_KB];
+      while (size > 0) {
+        final int chunk = (int) Math.min(size, buffer.length);
+        rndFile.readFully(buffer, 0, chunk);
+        data.write(buffer, 0, chunk);
+        size -= chunk;
+      }
+    } finally {
+      rndFile.close();
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes records of atomic operations logged from start till end of backup, records of operations started before the backup are
+   * skipped, they were completed before the copy of pages.
+   */
+  private long backupWALRecords(DataOutputStream data, OLogSequenceNumber startLSN, OLogSequenceNumber endLSN) throws IOException {
+    if (endLSN == null)
+      return 0;
+
+    final Set<OOperationUnitId> operationUnits = new HashSet<OOperationUnitId>();
+    long records = 0;
+
+    OLogSequenceNumber lsn = startLSN != null ? startLSN : writeAheadLog.begin();
+    while (lsn != null && lsn.compareTo(endLSN) <= 0) {
+      final OWALRecord record = writeAheadLog.read(lsn);
+      if (record == null)
+        throw new OStorageException("WAL record with LSN " + lsn + " needed by backup of storage " + name + " was truncated");
+
+      if (record instanceof OOperationUnitRecord) {
+        final OOperationUnitId unitId = ((OOperationUnitRecord) record).getOperationUnitId();
+        if (record instanceof OAtomicUnitStartRecord)
+          operationUnits.add(unitId);
+
+        if (operationUnits.contains(unitId)) {
+          final byte[] content = OWALRecordsFactory.INSTANCE.toStream(record);
+
+          data.writeByte(BACKUP_WAL_RECORD);
+          writeLSN(data, lsn);
+          data.writeInt(content.length);
+          data.write(content);
+          records++;
+        }
+      }
+
+      lsn = writeAheadLog.next(lsn);
+    }
+
+    return records;
+  }
+
+  /**
+   * Replays records of backup on restored pages and reverts operations which were rolled back or were not completed at the end of
+   * backup.
+   */
+  private void restoreBackupRecords(List<OWALRecord> records) throws IOException {
+    final Map<OOperationUnitId, List<OWALRecord>> operationUnits = new HashMap<OOperationUnitId, List<OWALRecord>>();
+
+    for (OWALRecord record : records) {
+      final OOperationUnitId unitId = ((OOperationUnitRecord) record).getOperationUnitId();
+
+      if (record instanceof OAtomicUnitStartRecord) {
+        final List<OWALRecord> operationUnit = new ArrayList<OWALRecord>();
+        operationUnit.add(record);
+        operationUnits.put(unitId, operationUnit);
+        continue;
+      }
+
+      final List<OWALRecord> operationUnit = operationUnits.get(unitId);
+      if (operationUnit == null)
+        continue;
+
+      if (record instanceof OAtomicUnitEndRecord) {
+        operationUnits.remove(unitId);
+
+        if (((OAtomicUnitEndRecord) record).isRollback())
+          revertBackupOperation(operationUnit);
+      } else {
+        operationUnit.add(record);
+
+        if (record instanceof OUpdatePageRecord)
+          restorePageChanges((OUpdatePageRecord) record);
+        else if (record instanceof OFileCreatedCreatedWALRecord) {
+          final OFileCreatedCreatedWALRecord fileCreatedCreatedRecord = (OFileCreatedCreatedWALRecord) record;
+          diskCache.openFile(fileCreatedCreatedRecord.getFileName(), fileCreatedCreatedRecord.getFileId());
+        }
+      }
+    }
+
+    for (List<OWALRecord> operationUnit : operationUnits.values())
+      revertBackupOperation(operationUnit);
+  }
+
+  private void revertBackupOperation(List<OWALRecord> operationUnit) throws IOException {
+    if (!((OAtomicUnitStartRecord) operationUnit.get(0)).isRollbackSupported())
+      return;
+
+    for (int i = operationUnit.size() - 1; i > 0; i--)
+      revertRecord(operationUnit.get(i));
+  }
+
+  private static boolean isExcludedFromBackup(String fileName) {
+    return fileName.endsWith(OWriteAheadLog.WAL_SEGMENT_EXTENSION) || fileName.endsWith(OWriteAheadLog.MASTER_RECORD_EXTENSION)
+        || fileName.equals(DIRTY_FLAG_FILE);
+  }
+
+  private static boolean isStorageFile(String fileName) {
+    for (String extension : ALL_FILE_EXTENSIONS)
+      if (fileName.endsWith(extension))
+        return true;
+
+    return false;
+  }
+
+  private static void writeLSN(DataOutputStream data, OLogSequenceNumber lsn) throws IOException {
+    data.writeBoolean(lsn != null);
+    if (lsn != null) {
+      data.writeLong(lsn.getSegment());
+      data.writeLong(lsn.getPosition());
+    }
+  }
+
+  private static OLogSequenceNumber readLSN(DataInputStream data) throws IOException {
+    if (!data.readBoolean())
+      return null;
+
+    return new OLogSequenceNumber(data.readLong(), data.readLong());
+  }
+
   @Override
   public String getType() {
     return OEngineLocalPaginated.NAME;
@@ -1563,7 +2102,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     diskCache = new OReadWriteDiskCache(name, readCacheSize, writeCacheSize,
         OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB,
         OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
-        OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true);
+        OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true,
+        OGlobalConfiguration.DISK_CACHE_CONCURRENCY_LEVEL.getValueAsInteger());
 
     atomicOperationsManager = new OAtomicOperationsManager(writeAheadLog);
   }
@@ -1847,34 +2387,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         records.add(lsn);
 
         if (operationUnitRecord instanceof OUpdatePageRecord) {
-          final OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) operationUnitRecord;
-
-          final long fileId = updatePageRecord.getFileId();
-          final long pageIndex = updatePageRecord.getPageIndex();
-
-          if (!diskCache.exists(fileId)) {
-            OLogManager.instance().warn(this,
-                "Record %s will be skipped during data restore because file which it is related to was deleted.", walRecord);
-            continue;
-          }
-
-          if (!diskCache.isOpen(fileId))
-            diskCache.openFile(fileId);
-
-          final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
-          final OCachePointer cachePointer = cacheEntry.getCachePointer();
-          cachePointer.acquireExclusiveLock();
-          try {
-            ODurablePage durablePage = new ODurablePage(cacheEntry, ODurablePage.TrackMode.NONE);
-            durablePage.restoreChanges(updatePageRecord.getChanges());
-            durablePage.setLsn(lsn);
-
-            cacheEntry.markDirty();
-          } finally {
-            cachePointer.releaseExclusiveLock();
-            diskCache.release(cacheEntry);
-          }
-
+          restorePageChanges((OUpdatePageRecord) operationUnitRecord);
         } else if (operationUnitRecord instanceof OFileCreatedCreatedWALRecord) {
 
           final OFileCreatedCreatedWALRecord fileCreatedCreatedRecord = (OFileCreatedCreatedWALRecord) operationUnitRecord;
@@ -1904,6 +2417,34 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     return recordsProcessed;
   }
 
+  private void restorePageChanges(OUpdatePageRecord updatePageRecord) throws IOException {
+    final long fileId = updatePageRecord.getFileId();
+    final long pageIndex = updatePageRecord.getPageIndex();
+
+    if (!diskCache.exists(fileId)) {
+      OLogManager.instance().warn(this,
+          "Record %s will be skipped during data restore because file which it is related to was deleted.", updatePageRecord);
+      return;
+    }
+
+    if (!diskCache.isOpen(fileId))
+      diskCache.openFile(fileId);
+
+    final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
+    final OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireExclusiveLock();
+    try {
+      ODurablePage durablePage = new ODurablePage(cacheEntry, ODurablePage.TrackMode.NONE);
+      durablePage.restoreChanges(updatePageRecord.getChanges());
+      durablePage.setLsn(updatePageRecord.getLsn());
+
+      cacheEntry.markDirty();
+    } finally {
+      cachePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+  }
+
   private void rollbackAllUnfinishedWALOperations(Map<OOperationUnitId, List<OLogSequenceNumber>> operationUnits)
       throws IOException {
     for (List<OLogSequenceNumber> operationUnit : operationUnits.values()) {
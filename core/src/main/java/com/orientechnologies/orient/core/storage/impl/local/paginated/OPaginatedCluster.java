@@ -1542,8 +1542,10 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
 
   @Override
   protected void logPageChanges(ODurablePage localPage, long fileId, long pageIndex, boolean isNewPage) throws IOException {
-    if (!config.useWal)
+    if (!config.useWal) {
+      markUnloggedPageChanges(localPage);
       return;
+    }
 
     super.logPageChanges(localPage, fileId, pageIndex, isNewPage);
   }
@@ -20,6 +20,8 @@ import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.*;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -31,6 +33,7 @@ public class OAtomicOperationsManager {
   private final OWriteAheadLog                                 writeAheadLog;
   private final OLockManager<Object, OAtomicOperationsManager> lockManager      = new OLockManager<Object, OAtomicOperationsManager>(
                                                                                     true, 300000);
+  private final Set<OAtomicOperation>                          activeOperations = new HashSet<OAtomicOperation>();
 
   public OAtomicOperationsManager(OWriteAheadLog writeAheadLog) {
     this.writeAheadLog = writeAheadLog;
@@ -47,9 +50,13 @@ public class OAtomicOperationsManager {
     }
 
     final OOperationUnitId unitId = OOperationUnitId.generateId();
-    final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+    synchronized (activeOperations) {
+      final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+
+      operation = new OAtomicOperation(lsn, unitId);
+      activeOperations.add(operation);
+    }
 
-    operation = new OAtomicOperation(lsn, unitId);
     currentOperation.set(operation);
 
     return operation;
@@ -79,13 +86,36 @@ public class OAtomicOperationsManager {
       for (Object lockObject : operation.lockedObjects())
         lockManager.releaseLock(this, lockObject, OLockManager.LOCK.EXCLUSIVE);
 
-      writeAheadLog.log(new OAtomicUnitEndRecord(operation.getOperationUnitId(), rollback));
-      currentOperation.set(null);
+      try {
+        writeAheadLog.log(new OAtomicUnitEndRecord(operation.getOperationUnitId(), rollback));
+      } finally {
+        currentOperation.set(null);
+
+        synchronized (activeOperations) {
+          activeOperations.remove(operation);
+        }
+      }
     }
 
     return operation;
   }
 
+  /**
+   * Returns LSN starting from which WAL contains all records of atomic operations which are not completed yet and of operations
+   * which will be started later: LSN of start record of the oldest active operation, or the last LSN of WAL if there are no active
+   * operations.
+   */
+  public OLogSequenceNumber getActiveOperationsStartLSN() throws IOException {
+    synchronized (activeOperations) {
+      OLogSequenceNumber startLSN = writeAheadLog.end();
+      for (OAtomicOperation operation : activeOperations)
+        if (startLSN == null || operation.getStartLSN().compareTo(startLSN) < 0)
+          startLSN = operation.getStartLSN();
+
+      return startLSN;
+    }
+  }
+
   public void lockTillOperationComplete(Object lockObject) {
     final OAtomicOperation operation = currentOperation.get();
     if (operation == null)
@@ -98,8 +98,11 @@ public abstract class ODurableComponent extends OSharedResourceAdaptive {
   protected void logPageChanges(ODurablePage localPage, long fileId, long pageIndex, boolean isNewPage) throws IOException {
     if (writeAheadLog != null) {
       final OPageChanges pageChanges = localPage.getPageChanges();
-      if (pageChanges.isEmpty())
+      if (pageChanges.isEmpty()) {
+        if (localPage.trackMode == ODurablePage.TrackMode.NONE)
+          markUnloggedPageChanges(localPage);
         return;
+      }
 
       final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
       assert atomicOperation != null;
@@ -116,6 +119,19 @@ public abstract class ODurableComponent extends OSharedResourceAdaptive {
     }
   }
 
+  /**
+   * Sets LSN of page changed without logging of its changes to the last LSN of WAL. Incremental backup copies pages which LSN is
+   * newer than LSN of previous backup, so it does not skip pages of components which are not durable.
+   */
+  protected void markUnloggedPageChanges(ODurablePage localPage) throws IOException {
+    if (writeAheadLog == null)
+      return;
+
+    final OLogSequenceNumber lsn = writeAheadLog.end();
+    if (lsn != null)
+      localPage.setLsn(lsn);
+  }
+
   protected void logFileCreation(String fileName, long fileId) throws IOException {
     if (writeAheadLog != null) {
       final OAtomicOperation atomicOperation = atomicOperationsManager.getCurrentOperation();
@@ -91,6 +91,7 @@ public class OPageChanges {
     offset += OIntegerSerializer.INT_SIZE;
 
     changeUnits = new ArrayList<ChangeUnit>(changesSize);
+    serializedSize = OIntegerSerializer.INT_SIZE;
 
     int[] decompressResult;
     for (int i = 0; i < changesSize; i++) {
@@ -118,6 +119,8 @@ public class OPageChanges {
       offset += dataLength;
 
       changeUnits.add(new ChangeUnit(pageOffset, oldValues, newValues));
+      serializedSize += compressedIntegerSize(pageOffset) + compressedIntegerSize(dataLength)
+          + (newValues == null ? 0 : newValues.length) + oldValues.length + OByteSerializer.BYTE_SIZE;
     }
 
     return offset;
@@ -30,12 +30,17 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.CRC32;
@@ -75,7 +80,9 @@ public class OWriteAheadLog {
   private OLogSequenceNumber          firstMasterRecord;
   private OLogSequenceNumber          secondMasterRecord;
   private volatile OLogSequenceNumber flushedLsn;
+  private OLogSequenceNumber          preventCutTill;
   private boolean                     closed;
+  private final AtomicLong            groupFlushes            = new AtomicLong();
 
   private final class LogSegment implements Comparable<LogSegment> {
     private final RandomAccessFile                           rndFile;
@@ -106,8 +113,17 @@ public class OWriteAheadLog {
     private WeakReference<OPair<OLogSequenceNumber, byte[]>> lastReadRecord = new WeakReference<OPair<OLogSequenceNumber, byte[]>>(
                                                                                 null);
 
+    private final AtomicReference<GroupFlushTask>             groupFlushTask = new AtomicReference<GroupFlushTask>();
+
     private final class FlushTask implements Runnable {
+      private final boolean force;
+
       private FlushTask() {
+        this(false);
+      }
+
+      private FlushTask(boolean force) {
+        this.force = force;
       }
 
       @Override
@@ -123,7 +139,7 @@ public class OWriteAheadLog {
         if (pagesCache.isEmpty())
           return;
 
-        if (!flushNewData)
+        if (!flushNewData && !force)
           return;
 
         flushNewData = false;
@@ -210,6 +226,23 @@ public class OWriteAheadLog {
       }
     }
 
+    /**
+     * Flush which is shared by all threads which requested it before it was started by WAL flush thread.
+     */
+    private final class GroupFlushTask implements Callable<Void> {
+      private final FutureTask<Void> future = new FutureTask<Void>(this);
+
+      @Override
+      public Void call() throws Exception {
+        // REQUESTS WHICH COME FROM THIS POINT MAY BE NOT COVERED BY THIS FLUSH, SO THEY WILL SCHEDULE NEW ONE
+        groupFlushTask.compareAndSet(this, null);
+
+        groupFlushes.incrementAndGet();
+        new FlushTask(true).commit();
+        return null;
+      }
+    }
+
     private LogSegment(File file, int maxPagesCacheSize) throws IOException {
       this.file = file;
       this.maxPagesCacheSize = maxPagesCacheSize;
@@ -518,6 +551,36 @@ public class OWriteAheadLog {
       }
     }
 
+    /**
+     * Schedules flush of all records which are logged at the moment of call. If flush was requested by other threads but was not
+     * started yet, this flush is reused, so concurrent committers pay for single fsync.
+     * 
+     * @return Future which is completed once flush is done or <code>null</code> if segment is not active any more, in such case
+     *         all its content was already flushed.
+     */
+    public FutureTask<Void> scheduleGroupFlush() {
+      while (true) {
+        final GroupFlushTask scheduledTask = groupFlushTask.get();
+        if (scheduledTask != null)
+          return scheduledTask.future;
+
+        if (commitExecutor.isShutdown())
+          return null;
+
+        final GroupFlushTask task = new GroupFlushTask();
+        if (groupFlushTask.compareAndSet(null, task)) {
+          try {
+            commitExecutor.execute(task.future);
+          } catch (RejectedExecutionException e) {
+            groupFlushTask.compareAndSet(task, null);
+            return null;
+          }
+
+          return task.future;
+        }
+      }
+    }
+
     private void initPageCache() throws IOException {
       synchronized (rndFile) {
         long pagesCount = rndFile.length() / OWALPage.PAGE_SIZE;
@@ -674,6 +737,29 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * Deletes log of passed closed storage and creates empty segment which follows segment of passed LSN, so records logged after
+   * restore of storage pages from backup have greater LSNs than restored pages.
+   */
+  public static void reset(OStorageLocalAbstract storage, OLogSequenceNumber lastLSN) throws IOException {
+    final File walLocation = new File(calculateWalPath(storage));
+    final String segmentPrefix = storage.getName() + ".";
+
+    final File[] files = walLocation.listFiles();
+    if (files != null)
+      for (File file : files) {
+        final String name = file.getName();
+        if ((name.startsWith(segmentPrefix) && validateName(name)) || name.equals(storage.getName() + MASTER_RECORD_EXTENSION))
+          if (!file.delete())
+            throw new OStorageException("Can not delete WAL file " + file.getAbsolutePath());
+      }
+
+    final long order = lastLSN != null ? lastLSN.getSegment() + 1 : 0;
+    final File segment = new File(walLocation, segmentPrefix + order + WAL_SEGMENT_EXTENSION);
+    if (!segment.createNewFile())
+      throw new OStorageException("Can not create WAL segment " + segment.getAbsolutePath());
+  }
+
   private static String calculateWalPath(OStorageLocalAbstract storage) {
     String walPath = OGlobalConfiguration.WAL_LOCATION.getValueAsString();
     if (walPath == null)
@@ -745,6 +831,46 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * Waits till record with passed in LSN and all records before it are flushed to the disk. Flush is performed by WAL flush
+   * thread, threads which wait for their records at the same time share single flush, which is useful to make small
+   * transactions durable at commit time without paying for separate fsync for each of them.
+   * 
+   * @param lsn
+   *          LSN of record which should be flushed.
+   */
+  public void flushTill(OLogSequenceNumber lsn) throws IOException {
+    while (true) {
+      final OLogSequenceNumber flushed = flushedLsn;
+      if (flushed != null && flushed.compareTo(lsn) >= 0)
+        return;
+
+      final LogSegment last;
+      synchronized (syncObject) {
+        checkForClose();
+
+        last = logSegments.get(logSegments.size() - 1);
+      }
+
+      // PREVIOUS SEGMENTS ARE FLUSHED WHEN NEW SEGMENT IS CREATED
+      if (last.getOrder() > lsn.getSegment())
+        return;
+
+      final FutureTask<Void> flushFuture = last.scheduleGroupFlush();
+      if (flushFuture == null)
+        continue;
+
+      try {
+        flushFuture.get();
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        throw new OStorageException("Thread was interrupted during flush", e);
+      } catch (ExecutionException e) {
+        throw new OStorageException("Error during WAL segment " + last.getPath() + " flush.", e.getCause());
+      }
+    }
+  }
+
   public OLogSequenceNumber logFuzzyCheckPointStart() throws IOException {
     synchronized (syncObject) {
       checkForClose();
@@ -793,7 +919,7 @@ public class OWriteAheadLog {
       final long sizeDiff = last.filledUpTo() - lastSize;
       logSize += sizeDiff;
 
-      if (logSize >= maxLogSize) {
+      if (logSize >= maxLogSize && isHeadSegmentRemovable()) {
         final LogSegment first = removeHeadSegmentFromList();
 
         if (first != null) {
@@ -955,6 +1081,13 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * @return Number of flushes performed by {@link #flushTill(OLogSequenceNumber)} since WAL was opened.
+   */
+  long getGroupFlushes() {
+    return groupFlushes.get();
+  }
+
   public OLogSequenceNumber getFlushedLSN() {
     return flushedLsn;
   }
@@ -977,6 +1110,9 @@ public class OWriteAheadLog {
 
       flush();
 
+      if (preventCutTill != null && preventCutTill.compareTo(lsn) < 0)
+        lsn = preventCutTill;
+
       int lastTruncateIndex = -1;
 
       for (int i = 0; i < logSegments.size() - 1; i++) {
@@ -998,6 +1134,26 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * Keeps records starting from passed LSN till {@link #allowCutTill()} is called, neither checkpoints nor exceeding of maximum
+   * log size remove segments which contain them. It is used by incremental backup which reads records logged during copy of pages.
+   */
+  public void preventCutTill(OLogSequenceNumber lsn) {
+    synchronized (syncObject) {
+      preventCutTill = lsn;
+    }
+  }
+
+  public void allowCutTill() {
+    synchronized (syncObject) {
+      preventCutTill = null;
+    }
+  }
+
+  private boolean isHeadSegmentRemovable() {
+    return preventCutTill == null || logSegments.get(0).getOrder() < preventCutTill.getSegment();
+  }
+
   private LogSegment removeHeadSegmentFromList() {
     if (logSegments.size() < 2)
       return null;
@@ -0,0 +1,109 @@
+package com.orientechnologies.orient.core.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OClockCacheTest {
+
+  public void storesAndRemovesRecordsUsingTheirIdentity() {
+    OClockCache sut = enabledCache(100);
+
+    ORecordId id = recordId(1);
+    ODocument record = new ODocument(id);
+    sut.put(record);
+
+    assertEquals(sut.get(id), record);
+    assertEquals(sut.remove(id), record);
+    assertNull(sut.get(id));
+    assertNull(sut.remove(id));
+    assertEquals(sut.size(), 0);
+  }
+
+  public void replacesRecordWithSameIdentity() {
+    OClockCache sut = enabledCache(100);
+
+    ODocument first = new ODocument(recordId(1));
+    ODocument last = new ODocument(recordId(1));
+    sut.put(first);
+    sut.put(last);
+
+    assertEquals(sut.size(), 1);
+    assertEquals(sut.get(recordId(1)), last);
+  }
+
+  public void storesNoMoreElementsThanSpecifiedLimit() {
+    OClockCache sut = enabledCache(1024);
+
+    for (int i = 0; i < sut.limit() * 4; i++)
+      sut.put(new ODocument(recordId(i)));
+
+    assertTrue(sut.size() <= sut.limit(), "Cache doesn't meet limit requirements");
+    assertTrue(sut.getEvictions() > 0);
+  }
+
+  public void keepsFrequentlyUsedRecordsDuringScan() {
+    OClockCache sut = enabledCache(1024);
+
+    final int hot = 100;
+    for (int i = 0; i < hot; i++)
+      sut.put(new ODocument(recordId(i)));
+
+    for (int round = 0; round < 10; round++)
+      for (int i = 0; i < hot; i++)
+        assertNotNull(sut.get(recordId(i)));
+
+    // A SCAN TWICE AS BIG AS THE CACHE WOULD FLUSH ALL THE HOT RECORDS OUT OF AN LRU CACHE
+    for (int i = hot; i < hot + sut.limit() * 2; i++) {
+      final ORecordId id = recordId(i);
+      sut.get(id);
+      sut.put(new ODocument(id));
+    }
+
+    int retained = 0;
+    for (int i = 0; i < hot; i++)
+      if (sut.get(recordId(i)) != null)
+        retained++;
+
+    assertTrue(retained >= hot * 9 / 10, "Only " + retained + " of " + hot + " hot records survived the scan");
+  }
+
+  public void countsHitsAndMisses() {
+    OClockCache sut = enabledCache(100);
+
+    sut.put(new ODocument(recordId(1)));
+    sut.get(recordId(1));
+    sut.get(recordId(1));
+    sut.get(recordId(2));
+
+    assertEquals(sut.getHits(), 2);
+    assertEquals(sut.getMisses(), 1);
+  }
+
+  public void doesNothingWhileDisabled() {
+    OClockCache sut = new OClockCache(null, 100);
+
+    sut.put(new ODocument(recordId(1)));
+
+    assertNull(sut.get(recordId(1)));
+    assertEquals(sut.size(), 0);
+  }
+
+  private OClockCache enabledCache(final int limit) {
+    final OClockCache cache = new OClockCache(null, limit);
+    cache.enable();
+    return cache;
+  }
+
+  private ORecordId recordId(final int position) {
+    return new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(position));
+  }
+}
@@ -0,0 +1,72 @@
+package com.orientechnologies.orient.core.id;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class ORIDHashSetTest {
+  public void testAddContainsRemove() {
+    checkSet(new ORIDHashSet());
+  }
+
+  public void testNodeIdFallback() {
+    final boolean useNodeId = OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.getValueAsBoolean();
+    OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.setValue(true);
+    try {
+      checkSet(new ORIDHashSet());
+    } finally {
+      OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.setValue(useNodeId);
+    }
+  }
+
+  public void testIterator() {
+    final ORIDHashSet set = new ORIDHashSet(4);
+    final Set<ORID> expected = new HashSet<ORID>();
+    for (int i = 0; i < 500; i++) {
+      final ORID rid = rid(i % 7, i * 31L);
+      set.add(rid);
+      expected.add(rid);
+    }
+
+    final Set<ORID> iterated = new HashSet<ORID>();
+    for (ORID rid : set)
+      Assert.assertTrue(iterated.add(rid));
+    Assert.assertEquals(iterated, expected);
+  }
+
+  private static void checkSet(final ORIDHashSet set) {
+    Assert.assertTrue(set.isEmpty());
+    Assert.assertTrue(set.add(rid(1, 2)));
+    Assert.assertTrue(set.add(rid(2, 1)));
+    Assert.assertFalse(set.add(rid(1, 2)));
+    Assert.assertEquals(set.size(), 2);
+
+    Assert.assertTrue(set.contains(rid(1, 2)));
+    Assert.assertFalse(set.contains(rid(1, 1)));
+    Assert.assertFalse(set.contains("#1:2"));
+
+    // ANY IDENTIFIABLE IS LOOKED UP BY ITS IDENTITY
+    final ODocument document = new ODocument();
+    document.setIdentity(1, OClusterPositionFactory.INSTANCE.valueOf(2));
+    Assert.assertTrue(set.contains(document));
+
+    Assert.assertTrue(set.remove(rid(1, 2)));
+    Assert.assertFalse(set.remove(rid(1, 2)));
+    Assert.assertEquals(set.size(), 1);
+    Assert.assertEquals(set.iterator().next(), rid(2, 1));
+
+    set.clear();
+    Assert.assertTrue(set.isEmpty());
+    Assert.assertFalse(set.iterator().hasNext());
+  }
+
+  private static ORID rid(final int iClusterId, final long iClusterPosition) {
+    return new ORecordId(iClusterId, OClusterPositionFactory.INSTANCE.valueOf(iClusterPosition));
+  }
+}
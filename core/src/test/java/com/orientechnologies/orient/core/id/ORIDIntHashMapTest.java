@@ -0,0 +1,79 @@
+package com.orientechnologies.orient.core.id;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+@Test
+public class ORIDIntHashMapTest {
+  public void testPutGetRemove() {
+    checkMap(new ORIDIntHashMap(-1));
+  }
+
+  public void testNodeIdFallback() {
+    final boolean useNodeId = OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.getValueAsBoolean();
+    OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.setValue(true);
+    try {
+      checkMap(new ORIDIntHashMap(-1));
+    } finally {
+      OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.setValue(useNodeId);
+    }
+  }
+
+  public void testWrappedMap() {
+    final Map<ORID, Integer> wrapped = new HashMap<ORID, Integer>();
+    wrapped.put(rid(3, 3), 30);
+
+    final ORIDIntHashMap map = new ORIDIntHashMap(wrapped, -1);
+    Assert.assertEquals(map.get(rid(3, 3)), 30);
+
+    map.put(rid(4, 4), 40);
+    map.remove(rid(3, 3));
+    Assert.assertEquals(wrapped.size(), 1);
+    Assert.assertEquals(wrapped.get(rid(4, 4)).intValue(), 40);
+  }
+
+  public void testManyEntries() {
+    final ORIDIntHashMap map = new ORIDIntHashMap(4, -1);
+    for (int i = 0; i < 10000; i++)
+      map.put(rid(i % 13, i), i);
+    Assert.assertEquals(map.size(), 10000);
+
+    for (int i = 0; i < 10000; i += 2)
+      Assert.assertEquals(map.remove(rid(i % 13, i)), i);
+    Assert.assertEquals(map.size(), 5000);
+
+    for (int i = 0; i < 10000; i++)
+      Assert.assertEquals(map.get(rid(i % 13, i)), i % 2 == 0 ? -1 : i);
+  }
+
+  private static void checkMap(final ORIDIntHashMap map) {
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertEquals(map.getNoEntryValue(), -1);
+    Assert.assertEquals(map.get(rid(1, 2)), -1);
+
+    Assert.assertEquals(map.put(rid(1, 2), 10), -1);
+    Assert.assertEquals(map.put(rid(2, 1), 20), -1);
+    Assert.assertEquals(map.put(rid(1, 2), 11), 10);
+    Assert.assertEquals(map.size(), 2);
+
+    Assert.assertEquals(map.get(rid(1, 2)), 11);
+    Assert.assertTrue(map.containsKey(rid(2, 1)));
+    Assert.assertFalse(map.containsKey(rid(1, 1)));
+
+    Assert.assertEquals(map.remove(rid(1, 2)), 11);
+    Assert.assertEquals(map.remove(rid(1, 2)), -1);
+    Assert.assertEquals(map.size(), 1);
+
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  private static ORID rid(final int iClusterId, final long iClusterPosition) {
+    return new ORecordId(iClusterId, OClusterPositionFactory.INSTANCE.valueOf(iClusterPosition));
+  }
+}
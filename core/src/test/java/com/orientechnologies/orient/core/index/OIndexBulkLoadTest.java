@@ -0,0 +1,188 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+
+@Test
+public class OIndexBulkLoadTest {
+  private static final int    DOCUMENTS = 5000;
+
+  private ODatabaseDocumentTx db;
+  private Object              spillThreshold;
+
+  @BeforeClass
+  public void beforeClass() {
+    // FORCES THE SORTED KEYS TO BE SPILLED TO TEMPORARY FILES
+    spillThreshold = OGlobalConfiguration.INDEX_BULK_LOAD_SPILL_THRESHOLD.getValue();
+    OGlobalConfiguration.INDEX_BULK_LOAD_SPILL_THRESHOLD.setValue(700);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    // BULK LOAD APPLIES TO SBTREE INDEXES, WHICH ARE USED BY PLOCAL STORAGE
+    db = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/OIndexBulkLoadTest");
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    db.command(new OCommandSQL("create class Item")).execute();
+    db.command(new OCommandSQL("create property Item.id integer")).execute();
+    db.command(new OCommandSQL("create property Item.group string")).execute();
+    db.command(new OCommandSQL("create property Item.tags embeddedlist string")).execute();
+    db.command(new OCommandSQL("create property Item.code string")).execute();
+
+    for (int i = DOCUMENTS - 1; i >= 0; --i) {
+      final ODocument doc = new ODocument("Item");
+      doc.field("id", i);
+      doc.field("group", "g" + (i % 100));
+      doc.field("tags", Arrays.asList("t" + (i % 7), "t" + (i % 7), "t" + (i % 3 + 100)));
+      doc.field("code", "c" + (i % 10));
+      doc.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    OGlobalConfiguration.INDEX_BULK_LOAD_SPILL_THRESHOLD.setValue(spillThreshold);
+  }
+
+  public void testUniqueIndex() {
+    db.command(new OCommandSQL("create index Item.id unique")).execute();
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Item.id");
+
+    Assert.assertEquals(index.getSize(), DOCUMENTS);
+    for (int i = 0; i < DOCUMENTS; i++) {
+      final OIdentifiable rid = (OIdentifiable) index.get(i);
+      Assert.assertEquals(((ODocument) rid.getRecord()).field("id"), i);
+    }
+    Assert.assertEquals(index.getFirstKey(), 0);
+    Assert.assertEquals(index.getLastKey(), DOCUMENTS - 1);
+
+    final Number rebuilt = db.command(new OCommandSQL("rebuild index Item.id")).execute();
+    Assert.assertEquals(rebuilt.intValue(), DOCUMENTS);
+    Assert.assertEquals(index.getSize(), DOCUMENTS);
+
+    // THE TREE BUILT BOTTOM-UP IS UPDATED AS USUAL
+    final ODocument doc = new ODocument("Item");
+    doc.field("id", DOCUMENTS);
+    doc.save();
+    Assert.assertEquals(index.get(DOCUMENTS), doc.getIdentity());
+    doc.delete();
+    Assert.assertNull(index.get(DOCUMENTS));
+  }
+
+  public void testNotUniqueIndex() {
+    db.command(new OCommandSQL("create index Item.group notunique")).execute();
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Item.group");
+
+    Assert.assertEquals(index.getKeySize(), 100);
+    for (int i = 0; i < 100; i++) {
+      final Collection<?> rids = (Collection<?>) index.get("g" + i);
+      Assert.assertEquals(rids.size(), DOCUMENTS / 100);
+      for (Object rid : rids)
+        Assert.assertEquals(((ODocument) ((OIdentifiable) rid).getRecord()).field("group"), "g" + i);
+    }
+  }
+
+  public void testCollectionIndex() {
+    db.command(new OCommandSQL("create index Item.tags notunique")).execute();
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Item.tags");
+
+    Assert.assertEquals(index.getKeySize(), 10);
+    // A RECORD WITH THE SAME TAG TWICE IS INDEXED ONCE
+    int total = 0;
+    for (int i = 0; i < 7; i++)
+      total += ((Collection<?>) index.get("t" + i)).size();
+    Assert.assertEquals(total, DOCUMENTS);
+    Assert.assertEquals(((Collection<?>) index.get("t100")).size(), (DOCUMENTS + 2) / 3);
+  }
+
+  public void testSameEntriesAsKeyByKey() {
+    db.command(new OCommandSQL("create index bulkCode on Item (code, id) notunique")).execute();
+    final List<Object> bulkEntries = entries("bulkCode");
+
+    OGlobalConfiguration.INDEX_BULK_LOAD.setValue(false);
+    try {
+      db.command(new OCommandSQL("create index keyByKeyCode on Item (code, id) notunique")).execute();
+    } finally {
+      OGlobalConfiguration.INDEX_BULK_LOAD.setValue(true);
+    }
+
+    Assert.assertEquals(bulkEntries.size(), 2 * DOCUMENTS);
+    Assert.assertEquals(bulkEntries, entries("keyByKeyCode"));
+  }
+
+  public void testDuplicatedKeys() {
+    try {
+      db.command(new OCommandSQL("create index Item.code unique")).execute();
+      Assert.fail();
+    } catch (OCommandExecutionException e) {
+      Assert.assertNull(db.getMetadata().getIndexManager().getIndex("Item.code"));
+    } catch (OIndexException e) {
+      Assert.assertNull(db.getMetadata().getIndexManager().getIndex("Item.code"));
+    }
+  }
+
+  public void testKeyCompression() {
+    db.command(new OCommandSQL("create index plainGroup on Item (group, id) notunique")).execute();
+    db.command(new OCommandSQL("create index compressedGroup on Item (group, id) notunique metadata {\"keyCompression\": true}"))
+        .execute();
+
+    OGlobalConfiguration.INDEX_BULK_LOAD.setValue(false);
+    try {
+      db.command(
+          new OCommandSQL("create index keyByKeyCompressedGroup on Item (group, id) notunique metadata {\"keyCompression\": true}"))
+          .execute();
+    } finally {
+      OGlobalConfiguration.INDEX_BULK_LOAD.setValue(true);
+    }
+
+    final List<Object> plainEntries = entries("plainGroup");
+    Assert.assertEquals(plainEntries.size(), 2 * DOCUMENTS);
+    Assert.assertEquals(entries("compressedGroup"), plainEntries);
+    Assert.assertEquals(entries("keyByKeyCompressedGroup"), plainEntries);
+
+    // COMPRESSION IS KEPT IN INDEX METADATA AND USED AGAIN WHEN THE INDEX IS LOADED
+    db.getMetadata().getIndexManager().reload();
+    Assert.assertEquals(entries("compressedGroup"), plainEntries);
+
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("compressedGroup");
+    final ODocument doc = new ODocument("Item");
+    doc.field("id", DOCUMENTS);
+    doc.field("group", "g1");
+    doc.save();
+    Assert.assertEquals(((Collection<?>) index.get(new OCompositeKey("g1", DOCUMENTS))).size(), 1);
+    doc.delete();
+    Assert.assertTrue(((Collection<?>) index.get(new OCompositeKey("g1", DOCUMENTS))).isEmpty());
+  }
+
+  private List<Object> entries(final String iIndexName) {
+    final List<Object> entries = new ArrayList<Object>();
+    final OIndexCursor cursor = db.getMetadata().getIndexManager().getIndex(iIndexName).cursor();
+    Map.Entry<Object, OIdentifiable> entry;
+    while ((entry = cursor.nextEntry()) != null) {
+      entries.add(entry.getKey());
+      entries.add(entry.getValue().getIdentity());
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,14 @@
+package com.orientechnologies.orient.core.index;
+
+import org.testng.annotations.Test;
+
+/**
+ * Runs the full text tests against the posting lists stored in the SBTree of a paginated local database.
+ */
+@Test
+public class OIndexFullTextPLocalTest extends OIndexFullTextTest {
+  @Override
+  protected String getDatabaseURL() {
+    return "plocal:target/fullTextPLocalTest";
+  }
+}
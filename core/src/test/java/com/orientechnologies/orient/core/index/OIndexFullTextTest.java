@@ -0,0 +1,175 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OIndexFullTextTest {
+  private ODatabaseDocumentTx db;
+  private boolean             usePostingLists;
+
+  @BeforeMethod
+  public void before() {
+    usePostingLists = OGlobalConfiguration.INDEX_FULLTEXT_USE_POSTING_LISTS_BY_DEFAULT.getValueAsBoolean();
+    OGlobalConfiguration.INDEX_FULLTEXT_USE_POSTING_LISTS_BY_DEFAULT.setValue(true);
+
+    db = new ODatabaseDocumentTx(getDatabaseURL());
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("Book");
+    cls.createProperty("text", OType.STRING);
+    cls.createIndex("Book.text", OClass.INDEX_TYPE.FULLTEXT, "text");
+  }
+
+  @AfterMethod
+  public void after() {
+    try {
+      db.drop();
+    } finally {
+      OGlobalConfiguration.INDEX_FULLTEXT_USE_POSTING_LISTS_BY_DEFAULT.setValue(usePostingLists);
+    }
+  }
+
+  public void testPostingListsAreOptIn() {
+    Assert.assertTrue(((OIndexFullText) getIndex().getInternal()).usePostingLists());
+
+    OGlobalConfiguration.INDEX_FULLTEXT_USE_POSTING_LISTS_BY_DEFAULT.setValue(false);
+    final OClass cls = db.getMetadata().getSchema().createClass("Magazine");
+    cls.createProperty("text", OType.STRING);
+    cls.createIndex("Magazine.text", OClass.INDEX_TYPE.FULLTEXT, "text");
+
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Magazine.text");
+    Assert.assertFalse(((OIndexFullText) index.getInternal()).usePostingLists());
+  }
+
+  public void testCount() {
+    save("Atari consoles and Atari computers");
+    save("Atari joysticks");
+    save("Commodore computers");
+
+    final OIndexMultiValues index = (OIndexMultiValues) getIndex().getInternal();
+    Assert.assertEquals(index.count("Atari"), 2);
+    Assert.assertEquals(index.count("Atari computers"), 1);
+    Assert.assertEquals(index.count("amiga"), 0);
+  }
+
+  public void testRankedResults() {
+    final ODocument once = save("The amiga was designed by a small team working in a garage near Los Gatos");
+    final ODocument twice = save("amiga hardware: the amiga chips");
+    save("Atari consoles sold millions of units");
+
+    final List<ODocument> result = query("amiga");
+    Assert.assertEquals(result.size(), 2);
+    Assert.assertEquals(result.get(0), twice);
+    Assert.assertEquals(result.get(1), once);
+  }
+
+  public void testAllWordsRequired() {
+    final ODocument both = save("Commodore bought Amiga from its founders");
+    save("Commodore sold home computers");
+    save("Amiga users loved their machines");
+
+    final List<ODocument> result = query("Commodore Amiga");
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0), both);
+
+    Assert.assertTrue(query("Commodore unknownword").isEmpty());
+  }
+
+  public void testPhrase() {
+    final ODocument phrase = save("the original amiga computer was sold by commodore");
+    save("the computer original was not an amiga");
+
+    List<ODocument> result = query("\"original amiga\"");
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0), phrase);
+
+    // STOP WORDS KEEP THEIR POSITION
+    result = query("\"sold by commodore\"");
+    Assert.assertEquals(result.size(), 1);
+
+    Assert.assertTrue(query("\"amiga original\"").isEmpty());
+  }
+
+  public void testUpdateAndDelete() {
+    final ODocument doc = save("Atari consoles");
+    Assert.assertEquals(query("Atari").size(), 1);
+
+    doc.field("text", "Commodore computers");
+    doc.save();
+    Assert.assertTrue(query("Atari").isEmpty());
+    Assert.assertEquals(query("Commodore").size(), 1);
+
+    doc.delete();
+    Assert.assertTrue(query("Commodore").isEmpty());
+    Assert.assertEquals(getIndex().getSize(), 0);
+  }
+
+  public void testLongPostingLists() {
+    final List<ODocument> docs = new ArrayList<ODocument>();
+    for (int i = 0; i < 3000; ++i)
+      docs.add(save("common word number " + i));
+
+    Assert.assertEquals(((OIndexMultiValues) getIndex().getInternal()).count("common"), 3000);
+
+    for (int i = 0; i < 3000; i += 2)
+      docs.get(i).delete();
+
+    Assert.assertEquals(((OIndexMultiValues) getIndex().getInternal()).count("common"), 1500);
+    Assert.assertEquals(query("common").size(), 1500);
+    Assert.assertEquals(getIndex().cursor().toValues().size(), 1500);
+  }
+
+  public void testTransaction() {
+    save("Atari consoles");
+
+    db.begin();
+    save("Atari computers");
+    save("Commodore computers");
+    db.commit();
+
+    Assert.assertEquals(query("Atari").size(), 2);
+    Assert.assertEquals(query("computers").size(), 2);
+
+    db.begin();
+    save("Atari joysticks");
+    db.rollback();
+
+    Assert.assertEquals(query("Atari").size(), 2);
+  }
+
+  protected String getDatabaseURL() {
+    return "memory:fullTextTest";
+  }
+
+  private OIndex<?> getIndex() {
+    return db.getMetadata().getIndexManager().getIndex("Book.text");
+  }
+
+  private ODocument save(final String iText) {
+    final ODocument doc = new ODocument("Book");
+    doc.field("text", iText);
+    return doc.save();
+  }
+
+  private List<ODocument> query(final String iText) {
+    return db.query(new OSQLSynchQuery<ODocument>("select from Book where text containstext ?"), iText);
+  }
+}
@@ -0,0 +1,88 @@
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+@Test
+public class OFullTextPostingBlockTest {
+
+  public void testRoundTrip() {
+    final OFullTextPostingBlock head = OFullTextPostingBlock.newHead();
+    head.append(new OFullTextPosting(rid(9, 1000000L), 12, new int[] { 0, 5, 11 }));
+    head.append(new OFullTextPosting(rid(9, 3), 1, new int[] { 0 }));
+    head.append(new OFullTextPosting(rid(11, 2), 300, new int[] { 150, 299 }));
+
+    final OFullTextPostingBlock loaded = OFullTextPostingBlock.fromStream(head.toStream());
+    Assert.assertEquals(loaded.getType(), OFullTextPostingBlock.TYPE_HEAD);
+    Assert.assertEquals(loaded.getFrequency(), 3);
+    Assert.assertEquals(loaded.getCount(), 3);
+
+    final List<OFullTextPosting> postings = loaded.getPostings();
+    Assert.assertEquals(postings.get(0).getRid(), rid(9, 1000000L));
+    Assert.assertEquals(postings.get(0).getLength(), 12);
+    Assert.assertTrue(Arrays.equals(postings.get(0).getPositions(), new int[] { 0, 5, 11 }));
+    Assert.assertEquals(postings.get(1).getRid(), rid(9, 3));
+    Assert.assertEquals(postings.get(2).getRid(), rid(11, 2));
+    Assert.assertTrue(Arrays.equals(postings.get(2).getPositions(), new int[] { 150, 299 }));
+
+    // APPEND AFTER LOADING CONTINUES FROM THE LAST RID
+    loaded.append(new OFullTextPosting(rid(11, 7), 4, new int[] { 3 }));
+    final List<OFullTextPosting> appended = OFullTextPostingBlock.fromStream(loaded.toStream()).getPostings();
+    Assert.assertEquals(appended.size(), 4);
+    Assert.assertEquals(appended.get(3).getRid(), rid(11, 7));
+  }
+
+  public void testRemove() {
+    final OFullTextPostingBlock head = OFullTextPostingBlock.newHead();
+    for (int i = 0; i < 10; ++i)
+      head.append(new OFullTextPosting(rid(5, i), 10, new int[] { i }));
+
+    Assert.assertNotNull(head.remove(rid(5, 4)));
+    Assert.assertNull(head.remove(rid(5, 4)));
+    Assert.assertEquals(head.getFrequency(), 9);
+
+    final List<OFullTextPosting> postings = OFullTextPostingBlock.fromStream(head.toStream()).getPostings();
+    Assert.assertEquals(postings.size(), 9);
+    Assert.assertEquals(postings.get(4).getRid(), rid(5, 5));
+    Assert.assertTrue(Arrays.equals(postings.get(4).getPositions(), new int[] { 5 }));
+  }
+
+  public void testSeal() {
+    final OFullTextPostingBlock head = OFullTextPostingBlock.newHead();
+    head.append(new OFullTextPosting(rid(5, 1), 10, new int[] { 1 }));
+    head.append(new OFullTextPosting(rid(5, 2), 10, new int[] { 2 }));
+
+    final OFullTextPostingBlock chunk = OFullTextPostingBlock.fromStream(head.seal().toStream());
+    Assert.assertEquals(chunk.getType(), OFullTextPostingBlock.TYPE_CHUNK);
+    Assert.assertEquals(chunk.getPostings().size(), 2);
+
+    Assert.assertEquals(head.getChunks(), 1);
+    Assert.assertEquals(head.getCount(), 0);
+    Assert.assertEquals(head.getFrequency(), 2);
+
+    head.append(new OFullTextPosting(rid(5, 3), 10, new int[] { 3 }));
+    final OFullTextPostingBlock loaded = OFullTextPostingBlock.fromStream(head.toStream());
+    Assert.assertEquals(loaded.getFrequency(), 3);
+    Assert.assertEquals(loaded.getPostings().get(0).getRid(), rid(5, 3));
+  }
+
+  public void testMerge() {
+    final OFullTextPosting merged = new OFullTextPosting(rid(5, 1), 3, new int[] { 0, 4 }).merge(new OFullTextPosting(
+        rid(5, 1), 2, new int[] { 1 }));
+    Assert.assertEquals(merged.getLength(), 5);
+    Assert.assertTrue(Arrays.equals(merged.getPositions(), new int[] { 0, 1, 4 }));
+    Assert.assertTrue(merged.containsPosition(4));
+    Assert.assertFalse(merged.containsPosition(2));
+  }
+
+  private static ORID rid(final int iClusterId, final long iClusterPosition) {
+    return new ORecordId(iClusterId, OClusterPositionFactory.INSTANCE.valueOf(iClusterPosition));
+  }
+}
@@ -24,10 +24,16 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 
 @Test
@@ -436,6 +442,128 @@ public class ReadWriteDiskCacheTest {
     Assert.assertEquals(buffer.getAm().size(), 0);
   }
 
+  public void testSegmentedCacheShouldFlushPagesOfAllSegments() throws Exception {
+    buffer.close();
+    buffer = new OReadWriteDiskCache(null, 1024 * (8 + systemOffset + 2 * OWOWCache.PAGE_PADDING),
+        15000 * (8 + systemOffset + 2 * OWOWCache.PAGE_PADDING), 8 + systemOffset, 10000, -1, storageLocal, writeAheadLog, true,
+        false, 4);
+
+    Assert.assertEquals(buffer.getSegmentsCount(), 4);
+    Assert.assertEquals(buffer.getMaxSize(), 1024);
+
+    long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < 600; i++) {
+      OCacheEntry cacheEntry = buffer.load(fileId, i, false);
+      cacheEntry.getCachePointer().acquireExclusiveLock();
+
+      cacheEntry.markDirty();
+      cacheEntry.getCachePointer().getDataPointer()
+          .set(systemOffset + OWOWCache.PAGE_PADDING, new byte[] { (byte) i, 1, 2, seed, 4, 5, 6, (byte) i }, 0, 8);
+
+      cacheEntry.getCachePointer().releaseExclusiveLock();
+      buffer.release(cacheEntry);
+    }
+
+    for (int i = 0; i < 600; i++) {
+      OCacheEntry cacheEntry = buffer.load(fileId, i, false);
+      Assert.assertEquals(cacheEntry.getCachePointer().getDataPointer().get(systemOffset + OWOWCache.PAGE_PADDING, 8), new byte[] {
+          (byte) i, 1, 2, seed, 4, 5, 6, (byte) i });
+      buffer.release(cacheEntry);
+    }
+
+    Assert.assertEquals(buffer.getFilledUpTo(fileId), 600);
+    buffer.closeFile(fileId);
+
+    for (int i = 0; i < 600; i++)
+      assertFile(i, new byte[] { (byte) i, 1, 2, seed, 4, 5, 6, (byte) i }, new OLogSequenceNumber(0, 0));
+  }
+
+  public void testCacheHitsRaceWithPageRemoval() throws Exception {
+    buffer.close();
+    buffer = new OReadWriteDiskCache(null, 1024 * (8 + systemOffset + 2 * OWOWCache.PAGE_PADDING),
+        15000 * (8 + systemOffset + 2 * OWOWCache.PAGE_PADDING), 8 + systemOffset, 10000, -1, storageLocal, writeAheadLog, true,
+        false, 4);
+
+    final long fileId = buffer.openFile(fileName);
+
+    final int pages = 3000;
+    for (int i = 0; i < pages; i++) {
+      OCacheEntry cacheEntry = buffer.load(fileId, i, false);
+      cacheEntry.getCachePointer().acquireExclusiveLock();
+
+      cacheEntry.markDirty();
+      cacheEntry.getCachePointer().getDataPointer()
+          .set(systemOffset + OWOWCache.PAGE_PADDING, new byte[] { (byte) i, 1, 2, seed, 4, 5, 6, (byte) (i >> 8) }, 0, 8);
+
+      cacheEntry.getCachePointer().releaseExclusiveLock();
+      buffer.release(cacheEntry);
+    }
+
+    // HOT PAGES ARE HIT WITHOUT LOCKS WHILE THE OTHER LOADS REMOVE PAGES FROM THE CACHE
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < 8; t++) {
+        final Random random = new Random(t);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int n = 0; n < 20000; n++) {
+              final int i = n % 4 == 0 ? random.nextInt(pages) : random.nextInt(64);
+              final OCacheEntry cacheEntry = buffer.load(fileId, i, true);
+              cacheEntry.getCachePointer().acquireSharedLock();
+              try {
+                Assert.assertEquals(cacheEntry.getCachePointer().getDataPointer().get(systemOffset + OWOWCache.PAGE_PADDING, 8),
+                    new byte[] { (byte) i, 1, 2, seed, 4, 5, 6, (byte) (i >> 8) });
+              } finally {
+                cacheEntry.getCachePointer().releaseSharedLock();
+                buffer.release(cacheEntry);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+
+      for (Future<Void> future : futures)
+        future.get();
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertTrue(buffer.getAm().size() + buffer.getA1in().size() <= buffer.getMaxSize());
+
+    // FAILS IF A PAGE IS STILL USED
+    buffer.closeFile(fileId);
+  }
+
+  public void testSegmentedCacheQueuesContainPagesOfAllSegments() throws Exception {
+    buffer.close();
+    buffer = new OReadWriteDiskCache(null, 1024 * (8 + systemOffset + 2 * OWOWCache.PAGE_PADDING),
+        15000 * (8 + systemOffset + 2 * OWOWCache.PAGE_PADDING), 8 + systemOffset, 10000, -1, storageLocal, writeAheadLog, true,
+        false, 4);
+
+    Assert.assertEquals(buffer.getSegmentsCount(), 4);
+
+    long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < 100; i++) {
+      OCacheEntry cacheEntry = buffer.load(fileId, i, false);
+      buffer.release(cacheEntry);
+    }
+
+    final LRUList am = buffer.getAm();
+    final LRUList a1in = buffer.getA1in();
+    final LRUList a1out = buffer.getA1out();
+
+    Assert.assertEquals(am.size(), 0);
+    Assert.assertEquals(a1in.size() + a1out.size(), 100);
+
+    for (int i = 0; i < 100; i++)
+      Assert.assertTrue(a1in.contains(fileId, i) || a1out.contains(fileId, i));
+  }
+
   public void testDeleteFileShouldDeleteFileFromHardDrive() throws Exception {
     long fileId = buffer.openFile(fileName);
 
@@ -247,6 +247,41 @@ public class WOWCacheTest {
     }
   }
 
+  public void testFlushAllContentEventuallyBySeveralFlushThreads() throws Exception {
+    wowCache.close();
+    wowCache = new OWOWCache(true, pageSize, 10000, writeAheadLog, 10, 100, storageLocal, false, 4);
+
+    Random random = new Random();
+
+    byte[][] pageData = new byte[200][];
+    long fileId = wowCache.openFile(fileName);
+
+    for (int i = 0; i < pageData.length; i++) {
+      byte[] data = new byte[8];
+      random.nextBytes(data);
+
+      pageData[i] = data;
+
+      final OCachePointer cachePointer = wowCache.load(fileId, i);
+      cachePointer.acquireExclusiveLock();
+      cachePointer.getDataPointer().set(systemOffset + OWOWCache.PAGE_PADDING, data, 0, data.length);
+      cachePointer.releaseExclusiveLock();
+
+      wowCache.store(fileId, i, cachePointer);
+      cachePointer.decrementReferrer();
+    }
+
+    Thread.sleep(5000);
+
+    Assert.assertEquals(wowCache.getDirtyPagesCount(), 0);
+    Assert.assertEquals(wowCache.getFlushedPagesCount(), pageData.length);
+
+    for (int i = 0; i < pageData.length; i++) {
+      byte[] dataContent = pageData[i];
+      assertFile(i, dataContent, new OLogSequenceNumber(0, 0));
+    }
+  }
+
   private void assertFile(long pageIndex, byte[] value, OLogSequenceNumber lsn) throws IOException {
     String path = storageLocal.getConfiguration().getDirectory() + File.separator + fileName;
 
@@ -0,0 +1,237 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+@Test
+public class SBTreeBulkLoadTest {
+  private static final int                  KEYS_COUNT = 200000;
+
+  private ODatabaseDocumentTx               databaseDocumentTx;
+  private OSBTree<Integer, OIdentifiable>   sbTree;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localSBTreeBulkLoadTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, false, ".nbt");
+    sbTree.create("sbTreeBulkLoad", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying(), false);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.clear();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    sbTree.clear();
+    sbTree.delete();
+    databaseDocumentTx.drop();
+  }
+
+  public void testBulkLoad() {
+    Assert.assertTrue(sbTree.bulkLoad(entries(0, KEYS_COUNT, 2), 0.7f));
+
+    Assert.assertEquals(sbTree.size(), KEYS_COUNT);
+    Assert.assertEquals((int) sbTree.firstKey(), 0);
+    Assert.assertEquals((int) sbTree.lastKey(), 2 * (KEYS_COUNT - 1));
+
+    for (int i = 0; i < KEYS_COUNT; i++) {
+      Assert.assertEquals(sbTree.get(2 * i), rid(2 * i), 2 * i + " key is absent");
+      Assert.assertNull(sbTree.get(2 * i + 1));
+    }
+
+    final OSBTree.OSBTreeCursor<Integer, OIdentifiable> cursor = sbTree.iterateEntriesMajor(0, true, true);
+    int expected = 0;
+    Map.Entry<Integer, OIdentifiable> entry;
+    while ((entry = cursor.next(-1)) != null) {
+      Assert.assertEquals((int) entry.getKey(), expected);
+      expected += 2;
+    }
+    Assert.assertEquals(expected, 2 * KEYS_COUNT);
+
+    final OSBTree.OSBTreeCursor<Integer, OIdentifiable> descCursor = sbTree.iterateEntriesMinor(2 * KEYS_COUNT, true, false);
+    while ((entry = descCursor.next(-1)) != null) {
+      expected -= 2;
+      Assert.assertEquals((int) entry.getKey(), expected);
+    }
+    Assert.assertEquals(expected, 0);
+  }
+
+  public void testUpdateAfterBulkLoad() {
+    Assert.assertTrue(sbTree.bulkLoad(entries(0, KEYS_COUNT, 2), 1.0f));
+
+    for (int i = 0; i < KEYS_COUNT; i++)
+      sbTree.put(2 * i + 1, rid(2 * i + 1));
+
+    for (int i = 0; i < KEYS_COUNT; i += 3)
+      Assert.assertEquals(sbTree.remove(2 * i), rid(2 * i));
+
+    Assert.assertEquals(sbTree.size(), 2 * KEYS_COUNT - (KEYS_COUNT + 2) / 3);
+    for (int i = 0; i < 2 * KEYS_COUNT; i++) {
+      if (i % 2 == 0 && (i / 2) % 3 == 0)
+        Assert.assertNull(sbTree.get(i));
+      else
+        Assert.assertEquals(sbTree.get(i), rid(i), i + " key is absent");
+    }
+  }
+
+  public void testBulkLoadInRoot() {
+    Assert.assertTrue(sbTree.bulkLoad(entries(0, 10, 1), 0.9f));
+
+    Assert.assertEquals(sbTree.size(), 10);
+    Assert.assertEquals((int) sbTree.firstKey(), 0);
+    Assert.assertEquals((int) sbTree.lastKey(), 9);
+    for (int i = 0; i < 10; i++)
+      Assert.assertEquals(sbTree.get(i), rid(i));
+  }
+
+  public void testBulkLoadNothing() {
+    Assert.assertTrue(sbTree.bulkLoad(entries(0, 0, 1), 0.9f));
+    Assert.assertEquals(sbTree.size(), 0);
+    Assert.assertNull(sbTree.firstKey());
+
+    sbTree.put(1, rid(1));
+    Assert.assertEquals(sbTree.get(1), rid(1));
+  }
+
+  public void testNotEmptyTree() {
+    sbTree.put(1, rid(1));
+    Assert.assertFalse(sbTree.bulkLoad(entries(10, 20, 1), 0.9f));
+    Assert.assertEquals(sbTree.size(), 1);
+  }
+
+  @Test(expectedExceptions = OSBTreeException.class)
+  public void testUnsortedKeys() {
+    final List<Map.Entry<Integer, OIdentifiable>> entries = new ArrayList<Map.Entry<Integer, OIdentifiable>>();
+    entries.add(new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(2, rid(2)));
+    entries.add(new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(1, rid(1)));
+    sbTree.bulkLoad(entries.iterator(), 0.9f);
+  }
+
+  public void testMultiLevelTree() {
+    // LONG KEYS BUILD A TREE WITH INTERNAL LEVELS OUT OF FEW ENTRIES
+    final OSBTree<String, OIdentifiable> stringTree = new OSBTree<String, OIdentifiable>(".sbt", 1, false, ".nbt");
+    stringTree.create("sbTreeBulkLoadString", OStringSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying(), false);
+    try {
+      for (int keysCount = 3000; keysCount < 3100; keysCount += 7)
+        for (float fillFactor : new float[] { 0.5f, 1.0f }) {
+          stringTree.clear();
+
+          final List<Map.Entry<String, OIdentifiable>> entries = new ArrayList<Map.Entry<String, OIdentifiable>>();
+          for (int i = 0; i < keysCount; i++)
+            entries.add(new AbstractMap.SimpleImmutableEntry<String, OIdentifiable>(longKey(i), rid(i)));
+          Assert.assertTrue(stringTree.bulkLoad(entries.iterator(), fillFactor));
+
+          Assert.assertEquals(stringTree.size(), keysCount);
+          for (int i = 0; i < keysCount; i++)
+            Assert.assertEquals(stringTree.get(longKey(i)), rid(i), i + " key is absent");
+          Assert.assertNull(stringTree.get(longKey(keysCount)));
+
+          final OSBTree.OSBTreeCursor<String, OIdentifiable> cursor = stringTree.iterateEntriesMajor(longKey(0), true, true);
+          int count = 0;
+          while (cursor.next(-1) != null)
+            count++;
+          Assert.assertEquals(count, keysCount);
+        }
+    } finally {
+      stringTree.clear();
+      stringTree.delete();
+    }
+  }
+
+  public void testKeySorter() {
+    final OSBTreeKeySorter<Integer> sorter = sbTree.createKeySorter(1000);
+    try {
+      final List<Integer> keys = new ArrayList<Integer>();
+      final Random random = new Random(42);
+      for (int i = 0; i < 10000; i++) {
+        final int key = random.nextInt(5000);
+        keys.add(key);
+        sorter.add(key, rid(i));
+      }
+
+      sorter.sort();
+      Assert.assertTrue(sorter.isSpilled());
+      Assert.assertEquals(sorter.size(), 10000);
+
+      Collections.sort(keys);
+      final Iterator<Integer> expected = keys.iterator();
+      Map.Entry<Integer, ORID> previous = null;
+      for (Map.Entry<Integer, ORID> entry : sorter) {
+        Assert.assertEquals(entry.getKey(), expected.next());
+        if (previous != null)
+          Assert.assertTrue(sorter.getComparator().compare(previous, entry) < 0);
+        previous = entry;
+      }
+      Assert.assertFalse(expected.hasNext());
+    } finally {
+      sorter.close();
+    }
+  }
+
+  private static Iterator<Map.Entry<Integer, OIdentifiable>> entries(final int from, final int to, final int step) {
+    return new Iterator<Map.Entry<Integer, OIdentifiable>>() {
+      private int next = from;
+
+      public boolean hasNext() {
+        return next < to;
+      }
+
+      public Map.Entry<Integer, OIdentifiable> next() {
+        final int key = next * step;
+        next++;
+        return new AbstractMap.SimpleImmutableEntry<Integer, OIdentifiable>(key, rid(key));
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  private static String longKey(final int key) {
+    final StringBuilder builder = new StringBuilder(String.format("%08d", key));
+    while (builder.length() < 1000)
+      builder.append('-');
+    return builder.toString();
+  }
+
+  private static ORID rid(final int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+}
@@ -0,0 +1,174 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCachePointer;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+
+@Test
+public class SBTreeCompressedBucketTest {
+  private static final String URL_PREFIX = "http://www.orientechnologies.com/docs/last/";
+
+  private OCachePointer       cachePointer;
+  private OCacheEntry         cacheEntry;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES + ODurablePage.PAGE_PADDING);
+    cachePointer = new OCachePointer(pointer, new OLogSequenceNumber(0, 0));
+    cachePointer.incrementReferrer();
+
+    cacheEntry = new OCacheEntry(0, 0, cachePointer, false);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    cachePointer.decrementReferrer();
+  }
+
+  public void testMoreKeysFit() throws Exception {
+    final int uncompressed = fill(newLeafBucket(false));
+    final int compressed = fill(newLeafBucket(true));
+
+    Assert.assertTrue(compressed > uncompressed, compressed + " keys in compressed bucket, " + uncompressed + " in plain one");
+  }
+
+  public void testSearch() throws Exception {
+    final OSBTreeBucket<String, OIdentifiable> bucket = newLeafBucket(true);
+    final int size = fill(bucket);
+
+    Assert.assertTrue(bucket.getSharedKeyBytes() >= URL_PREFIX.length() * 2);
+
+    final OSBTreeBucket<String, OIdentifiable> loadedBucket = new OSBTreeBucket<String, OIdentifiable>(cacheEntry,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL, true);
+    Assert.assertEquals(loadedBucket.size(), size);
+
+    for (int i = 0; i < size; i++) {
+      Assert.assertEquals(loadedBucket.find(key(i)), i);
+      Assert.assertEquals(loadedBucket.getEntry(i), leafEntry(i));
+    }
+
+    Assert.assertEquals(loadedBucket.find(URL_PREFIX), -1);
+    Assert.assertEquals(loadedBucket.find(key(size)), -(size + 1));
+  }
+
+  public void testKeyWithoutSharedBytes() throws Exception {
+    final OSBTreeBucket<String, OIdentifiable> bucket = newLeafBucket(true);
+    for (int i = 0; i < 10; i++)
+      Assert.assertTrue(bucket.addEntry(i, leafEntry(i), false));
+
+    Assert.assertTrue(bucket.compact());
+    final int sharedBytes = bucket.getSharedKeyBytes();
+    Assert.assertTrue(sharedBytes > 0);
+    Assert.assertFalse(bucket.compact());
+
+    final String otherKey = "ftp://orientechnologies.com";
+    final OSBTreeBucket.SBTreeEntry<String, OIdentifiable> otherEntry = new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(-1,
+        -1, otherKey, new OSBTreeValue<OIdentifiable>(false, -1, rid(100)));
+    Assert.assertTrue(bucket.addEntry(0, otherEntry, false));
+
+    Assert.assertTrue(bucket.getSharedKeyBytes() < sharedBytes);
+    Assert.assertEquals(bucket.size(), 11);
+    Assert.assertEquals(bucket.getEntry(0), otherEntry);
+    for (int i = 0; i < 10; i++)
+      Assert.assertEquals(bucket.getEntry(i + 1), leafEntry(i));
+  }
+
+  public void testRemoveAndUpdate() throws Exception {
+    final OSBTreeBucket<String, OIdentifiable> bucket = newLeafBucket(true);
+    final int size = fill(bucket);
+
+    for (int i = size - 1; i >= 0; i -= 2)
+      bucket.remove(i);
+
+    for (int i = 0; i < bucket.size(); i++)
+      Assert.assertEquals(bucket.updateValue(i, new OSBTreeValue<OIdentifiable>(false, -1, rid(i * 2 + 1000))), 1);
+
+    for (int i = 0; i < bucket.size(); i++) {
+      final OSBTreeBucket.SBTreeEntry<String, OIdentifiable> entry = bucket.getEntry(i);
+      Assert.assertEquals(entry.key, key(i * 2 + (size % 2 == 0 ? 0 : 1)));
+      Assert.assertEquals(entry.value.getValue(), rid(i * 2 + 1000));
+      Assert.assertEquals(bucket.find(entry.key), i);
+    }
+  }
+
+  public void testShrink() throws Exception {
+    final OSBTreeBucket<String, OIdentifiable> bucket = newLeafBucket(true);
+    final int size = fill(bucket);
+
+    final List<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>> entries = new ArrayList<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>>();
+    for (int i = size / 2; i < size; i++)
+      entries.add(bucket.getEntry(i));
+
+    bucket.shrink(size / 2);
+    Assert.assertEquals(bucket.size(), size / 2);
+    for (int i = 0; i < size / 2; i++)
+      Assert.assertEquals(bucket.getEntry(i), leafEntry(i));
+
+    final OSBTreeBucket<String, OIdentifiable> newBucket = newLeafBucket(true);
+    newBucket.addAll(entries);
+    Assert.assertEquals(newBucket.size(), entries.size());
+    for (int i = 0; i < entries.size(); i++)
+      Assert.assertEquals(newBucket.getEntry(i), entries.get(i));
+  }
+
+  public void testNonLeafNeighbors() throws Exception {
+    final OSBTreeBucket<String, OIdentifiable> bucket = new OSBTreeBucket<String, OIdentifiable>(cacheEntry, false,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL, true);
+
+    for (int i = 0; i < 10; i++)
+      Assert.assertTrue(bucket.addEntry(i, new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(i, i + 1, key(i * 2), null), true));
+    Assert.assertTrue(bucket.compact());
+
+    // KEY OF DIFFERENT SIZE DOES NOT CONTAIN THE SHARED BYTES AND FORCES THE REWRITE OF THE BUCKET
+    final String middleKey = key(8) + "x";
+    final int index = -bucket.find(middleKey) - 1;
+    Assert.assertTrue(bucket.addEntry(index, new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(100, 101, middleKey, null), true));
+
+    Assert.assertEquals(bucket.size(), 11);
+    Assert.assertEquals(bucket.getEntry(index - 1).rightChild, 100);
+    Assert.assertEquals(bucket.getEntry(index).key, middleKey);
+    Assert.assertEquals(bucket.getEntry(index + 1).leftChild, 101);
+    Assert.assertEquals(bucket.getEntry(0), new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(0, 1, key(0), null));
+  }
+
+  private OSBTreeBucket<String, OIdentifiable> newLeafBucket(boolean keyCompression) throws Exception {
+    return new OSBTreeBucket<String, OIdentifiable>(cacheEntry, true, OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE,
+        ODurablePage.TrackMode.FULL, keyCompression);
+  }
+
+  private int fill(OSBTreeBucket<String, OIdentifiable> bucket) throws Exception {
+    int size = 0;
+    while (bucket.addEntry(size, leafEntry(size), false))
+      size++;
+
+    Assert.assertEquals(bucket.size(), size);
+    return size;
+  }
+
+  private static String key(int i) {
+    return URL_PREFIX + String.format("page%06d.html", i);
+  }
+
+  private static ORecordId rid(int i) {
+    return new ORecordId(i % 32000, OClusterPositionFactory.INSTANCE.valueOf(i));
+  }
+
+  private static OSBTreeBucket.SBTreeEntry<String, OIdentifiable> leafEntry(int i) {
+    return new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(-1, -1, key(i), new OSBTreeValue<OIdentifiable>(false, -1, rid(i)));
+  }
+}
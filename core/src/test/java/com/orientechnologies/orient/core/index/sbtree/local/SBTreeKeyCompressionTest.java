@@ -0,0 +1,45 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+/**
+ * Runs the sb-tree tests against a tree which compresses the keys of its buckets.
+ */
+@Test
+public class SBTreeKeyCompressionTest extends SBTreeTest {
+  @BeforeClass
+  @Override
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localSBTreeKeyCompressionTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, false, ".nbt", true);
+    sbTree.create("sbTree", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null, (OStorageLocalAbstract) databaseDocumentTx
+        .getStorage().getUnderlying(), false);
+  }
+
+  @AfterClass
+  @Override
+  public void afterClass() throws Exception {
+    sbTree.clear();
+    sbTree.delete();
+    databaseDocumentTx.drop();
+  }
+}
@@ -26,7 +26,7 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstrac
 public class SBTreeTest {
   private static final int                  KEYS_COUNT = 500000;
 
-  private ODatabaseDocumentTx               databaseDocumentTx;
+  protected ODatabaseDocumentTx             databaseDocumentTx;
 
   protected OSBTree<Integer, OIdentifiable> sbTree;
   private String                            buildDirectory;
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class ORecordSerializerBinaryTest {
+  private final ORecordSerializerBinary serializer = new ORecordSerializerBinary();
+
+  public void testVarInt() {
+    final long[] values = { 0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+
+    final OBytesContainer container = new OBytesContainer();
+    for (long value : values)
+      OVarIntSerializer.write(container, value);
+
+    container.offset = 0;
+    for (long value : values)
+      Assert.assertEquals(OVarIntSerializer.readAsLong(container), value);
+
+    final OBytesContainer small = new OBytesContainer();
+    Assert.assertEquals(OVarIntSerializer.write(small, -64), 1);
+  }
+
+  public void testSimpleTypes() {
+    final Date now = new Date();
+
+    final ODocument document = new ODocument();
+    document.field("string", "Lucky");
+    document.field("integer", 42);
+    document.field("negative", -1234567);
+    document.field("long", Long.MAX_VALUE);
+    document.field("short", (short) 12);
+    document.field("byte", (byte) 7);
+    document.field("boolean", true);
+    document.field("float", 3.5f);
+    document.field("double", 2.25d);
+    document.field("datetime", now);
+    document.field("binary", new byte[] { 1, 2, 3 });
+    document.field("decimal", new BigDecimal("1234.5678"));
+    document.field("link", new ORecordId("#10:20"));
+    document.field("null", (Object) null);
+
+    final ODocument extracted = roundTrip(document);
+
+    Assert.assertEquals(extracted.field("string"), "Lucky");
+    Assert.assertEquals(extracted.field("integer"), 42);
+    Assert.assertEquals(extracted.field("negative"), -1234567);
+    Assert.assertEquals(extracted.field("long"), Long.MAX_VALUE);
+    Assert.assertEquals(extracted.field("short"), (short) 12);
+    Assert.assertEquals(extracted.field("byte"), (byte) 7);
+    Assert.assertEquals(extracted.field("boolean"), Boolean.TRUE);
+    Assert.assertEquals(extracted.field("float"), 3.5f);
+    Assert.assertEquals(extracted.field("double"), 2.25d);
+    Assert.assertEquals(extracted.field("datetime"), now);
+    Assert.assertEquals((byte[]) extracted.field("binary"), new byte[] { 1, 2, 3 });
+    Assert.assertEquals(extracted.field("decimal"), new BigDecimal("1234.5678"));
+    Assert.assertEquals(extracted.field("link", OType.LINK), new ORecordId("#10:20"));
+    Assert.assertTrue(extracted.containsField("null"));
+    Assert.assertNull(extracted.field("null"));
+  }
+
+  public void testEmbedded() {
+    final ODocument address = new ODocument();
+    address.field("city", "Rome");
+
+    final List<Object> list = new ArrayList<Object>();
+    list.add("a");
+    list.add(1);
+    list.add(null);
+
+    final Set<String> set = new HashSet<String>();
+    set.add("x");
+    set.add("y");
+
+    final Map<String, Object> map = new HashMap<String, Object>();
+    map.put("one", 1);
+    map.put("two", "2");
+
+    final ODocument document = new ODocument();
+    document.field("address", address, OType.EMBEDDED);
+    document.field("list", list);
+    document.field("set", set);
+    document.field("map", map);
+
+    final ODocument extracted = roundTrip(document);
+
+    final ODocument extractedAddress = extracted.field("address");
+    Assert.assertEquals(extractedAddress.field("city"), "Rome");
+    Assert.assertTrue(extractedAddress.isEmbedded());
+
+    Assert.assertEquals(extracted.field("list"), list);
+    Assert.assertEquals(extracted.fieldType("list"), OType.EMBEDDEDLIST);
+    Assert.assertEquals(extracted.field("set"), set);
+    Assert.assertEquals(extracted.fieldType("set"), OType.EMBEDDEDSET);
+    Assert.assertEquals(extracted.field("map"), map);
+  }
+
+  public void testPartialUnmarshalling() {
+    final ODocument document = new ODocument();
+    document.field("name", "Jay");
+    document.field("surname", "Miner");
+    document.field("age", 63);
+
+    final byte[] stream = serializer.toStream(document, false);
+
+    final ODocument extracted = new ODocument();
+    serializer.fromStream(stream, extracted, new String[] { "surname" });
+    Assert.assertEquals(extracted.fieldNames().length, 1);
+    Assert.assertEquals(extracted.field("surname"), "Miner");
+
+    // THE REST IS DECODED WITHOUT OVERWRITING THE FIELDS ALREADY PRESENT
+    extracted.field("surname", "Changed");
+    serializer.fromStream(stream, extracted, null);
+    Assert.assertEquals(extracted.fieldNames().length, 3);
+    Assert.assertEquals(extracted.field("name"), "Jay");
+    Assert.assertEquals(extracted.field("surname"), "Changed");
+    Assert.assertEquals(extracted.field("age"), 63);
+  }
+
+  private ODocument roundTrip(final ODocument document) {
+    final byte[] stream = serializer.toStream(document, false);
+    return (ODocument) serializer.fromStream(stream, new ODocument(), null);
+  }
+}
@@ -0,0 +1,123 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionAbstract;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OCommandExecutorSQLSelectParallelTest {
+  private static final int    RECORDS = 1000;
+
+  private ODatabaseDocumentTx db;
+  private Object              chunkSize;
+
+  @BeforeClass
+  public void beforeClass() {
+    // SMALL CHUNKS TO SPLIT THE SCAN BETWEEN ALL THE WORKERS
+    chunkSize = OGlobalConfiguration.QUERY_PARALLEL_CHUNK_SIZE.getValue();
+    OGlobalConfiguration.QUERY_PARALLEL_CHUNK_SIZE.setValue(10);
+
+    db = new ODatabaseDocumentTx("memory:OCommandExecutorSQLSelectParallelTest");
+    db.create();
+
+    db.command(new OCommandSQL("create class Item")).execute();
+
+    for (int i = 0; i < RECORDS; ++i) {
+      final ODocument doc = new ODocument("Item");
+      doc.field("value", i);
+      doc.field("even", i % 2 == 0);
+      doc.save();
+    }
+
+    OSQLEngine.getInstance().registerFunction(FailingFunction.NAME, new FailingFunction());
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OSQLEngine.getInstance().unregisterFunction(FailingFunction.NAME);
+    OGlobalConfiguration.QUERY_PARALLEL_CHUNK_SIZE.setValue(chunkSize);
+
+    db.drop();
+  }
+
+  public void testFullScan() {
+    assertSameResult("select from Item", RECORDS);
+  }
+
+  public void testWhere() {
+    assertSameResult("select from Item where even = true", RECORDS / 2);
+    assertSameResult("select from Item where value between 95 and 705 and even = false", 306);
+  }
+
+  public void testLimit() {
+    assertSameResult("select from Item limit 15", 15);
+    assertSameResult("select from Item where even = false limit 42", 42);
+  }
+
+  public void testSkipLimit() {
+    assertSameResult("select from Item skip 7 limit 15", 15);
+    assertSameResult("select from Item where even = true skip 123 limit 31", 31);
+    assertSameResult("select from Item where value > 900 skip 50 limit 100", 49);
+    assertSameResult("select from Item where even = true skip 480", 20);
+  }
+
+  public void testOrderBy() {
+    assertSameResult("select from Item where even = false order by value desc skip 10 limit 20", 20);
+  }
+
+  @Test(expectedExceptions = OCommandExecutionException.class)
+  public void testWorkerErrorIsRaised() {
+    db.query(new OSQLSynchQuery<ODocument>("select from Item where " + FailingFunction.NAME + "(value) = true parallel"));
+  }
+
+  private void assertSameResult(final String query, final int expectedSize) {
+    final List<ORID> serial = execute(query);
+    Assert.assertEquals(serial.size(), expectedSize);
+
+    // THE RESULT OF A PARALLEL SCAN MUST NOT DEPEND ON THE SPEED OF THE WORKERS
+    for (int i = 0; i < 10; ++i)
+      Assert.assertEquals(execute(query + " parallel"), serial, query);
+  }
+
+  private List<ORID> execute(final String query) {
+    final List<OIdentifiable> result = db.query(new OSQLSynchQuery<ODocument>(query));
+
+    final List<ORID> rids = new ArrayList<ORID>(result.size());
+    for (OIdentifiable record : result)
+      rids.add(record.getIdentity());
+    return rids;
+  }
+
+  private static class FailingFunction extends OSQLFunctionAbstract {
+    private static final String NAME = "parallelTestFail";
+
+    private FailingFunction() {
+      super(NAME, 1, 1);
+    }
+
+    public Object execute(Object iThis, OIdentifiable iCurrentRecord, Object iCurrentResult, Object[] iParams,
+        OCommandContext iContext) {
+      if (((Number) iParams[0]).intValue() == RECORDS / 2)
+        throw new OCommandExecutionException("Record " + iCurrentRecord.getIdentity() + " can not be evaluated");
+      return true;
+    }
+
+    public String getSyntax() {
+      return NAME + "(<value>)";
+    }
+  }
+}
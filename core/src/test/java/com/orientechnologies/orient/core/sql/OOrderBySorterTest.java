@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OOrderBySorterTest {
+  private static final int    RECORDS = 1000;
+
+  private ODatabaseDocumentTx db;
+  private List<Integer>       values  = new ArrayList<Integer>();
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:" + OOrderBySorterTest.class.getSimpleName());
+    db.create();
+
+    final Random random = new Random(42);
+    for (int i = 0; i < RECORDS; ++i) {
+      final int value = random.nextInt(RECORDS / 4);
+      values.add(value);
+      new ODocument("Sorted").field("value", value).field("id", i).save();
+    }
+    Collections.sort(values);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testTopKWithSkip() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Sorted order by value desc skip 5 limit 10"));
+
+    Assert.assertEquals(result.size(), 10);
+    for (int i = 0; i < result.size(); ++i)
+      Assert.assertEquals(result.get(i).field("value"), values.get(RECORDS - 6 - i));
+  }
+
+  public void testTopKKeepsInsertionOrderOfEqualKeys() {
+    final List<ODocument> all = db.query(new OSQLSynchQuery<ODocument>("select from Sorted order by value"));
+    final List<ODocument> top = db.query(new OSQLSynchQuery<ODocument>("select from Sorted order by value limit 50"));
+
+    Assert.assertEquals(top, all.subList(0, 50));
+  }
+
+  public void testSpilledRuns() {
+    final Object threshold = OGlobalConfiguration.QUERY_ORDERBY_SPILL_THRESHOLD.getValue();
+    OGlobalConfiguration.QUERY_ORDERBY_SPILL_THRESHOLD.setValue(64);
+    try {
+      final List<ODocument> records = db.query(new OSQLSynchQuery<ODocument>("select from Sorted order by value asc, id desc"));
+      Assert.assertEquals(records.size(), RECORDS);
+      for (int i = 0; i < RECORDS; ++i) {
+        Assert.assertEquals(records.get(i).field("value"), values.get(i));
+        Assert.assertTrue(records.get(i).getIdentity().isPersistent());
+        if (i > 0 && records.get(i).field("value").equals(records.get(i - 1).field("value")))
+          Assert.assertTrue((Integer) records.get(i).field("id") < (Integer) records.get(i - 1).field("id"));
+      }
+
+      final List<ODocument> projections = db.query(new OSQLSynchQuery<ODocument>(
+          "select value, id from Sorted order by value desc skip 10"));
+      Assert.assertEquals(projections.size(), RECORDS - 10);
+      for (int i = 0; i < projections.size(); ++i)
+        Assert.assertEquals(projections.get(i).field("value"), values.get(RECORDS - 11 - i));
+    } finally {
+      OGlobalConfiguration.QUERY_ORDERBY_SPILL_THRESHOLD.setValue(threshold);
+    }
+  }
+}
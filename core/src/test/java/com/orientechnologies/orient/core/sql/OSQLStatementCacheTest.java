@@ -0,0 +1,138 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OSQLStatementCacheTest {
+  private ODatabaseDocumentTx db;
+  private OSQLStatementCache  cache;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:OSQLStatementCacheTest");
+    db.create();
+
+    db.command(new OCommandSQL("create class Item")).execute();
+    db.command(new OCommandSQL("create property Item.key integer")).execute();
+    db.command(new OCommandSQL("create property Item.value integer")).execute();
+    db.command(new OCommandSQL("create index Item.key notunique")).execute();
+
+    for (int i = 0; i < 100; ++i) {
+      final ODocument doc = new ODocument("Item");
+      doc.field("key", i % 10);
+      doc.field("value", i);
+      doc.save();
+    }
+
+    cache = OSQLStatementCache.get(db.getStorage());
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testReuse() {
+    final String query = "select from Item where value < 30 order by value desc";
+
+    final List<Object> first = execute(query);
+    final long hits = cache.getHits();
+    final List<Object> second = execute(query);
+
+    Assert.assertEquals(cache.getHits(), hits + 1);
+    Assert.assertEquals(second, first);
+    Assert.assertEquals(second.size(), 30);
+    Assert.assertEquals(second.get(0), 29);
+  }
+
+  public void testParameters() {
+    final String query = "select from Item where value >= :min and value < :max";
+
+    final Map<String, Object> params = new HashMap<String, Object>();
+    params.put("min", 10);
+    params.put("max", 20);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query), params).size(), 10);
+
+    final long hits = cache.getHits();
+    params.put("min", 50);
+    params.put("max", 95);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query), params).size(), 45);
+
+    final String positional = "select from Item where value >= ? and value < ?";
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(positional), 0, 5).size(), 5);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(positional), 90, 99).size(), 9);
+    Assert.assertEquals(cache.getHits(), hits + 2);
+  }
+
+  public void testIndexedCondition() {
+    // THE CONDITION COVERED BY THE INDEX IS REMOVED FROM THE FILTER ON EVERY EXECUTION
+    final String query = "select from Item where key = ? and value > ?";
+    for (int i = 0; i < 3; ++i) {
+      Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query), 3, 50).size(), 5);
+      Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query), 4, 80).size(), 2);
+    }
+  }
+
+  public void testSkipAndLimit() {
+    final String query = "select from Item order by value skip 10 limit 5";
+    final List<Object> first = execute(query);
+    Assert.assertEquals(first.size(), 5);
+    Assert.assertEquals(first.get(0), 10);
+    Assert.assertEquals(execute(query), first);
+
+    final OSQLSynchQuery<ODocument> limitedQuery = new OSQLSynchQuery<ODocument>("select from Item where value > 50");
+    limitedQuery.setLimit(3);
+    final List<ODocument> limited = db.query(limitedQuery);
+    Assert.assertEquals(limited.size(), 3);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Item where value > 50")).size(), 49);
+  }
+
+  public void testNotReusable() {
+    final long hits = cache.getHits();
+    for (int i = 0; i < 3; ++i) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select count(*) from Item where value < 10"));
+      Assert.assertEquals(((Number) result.get(0).field("count")).intValue(), 10);
+    }
+    Assert.assertEquals(cache.getHits(), hits);
+  }
+
+  @Test(dependsOnMethods = { "testReuse", "testParameters", "testIndexedCondition", "testSkipAndLimit", "testNotReusable" })
+  public void testInvalidation() {
+    final String query = "select from Item where value = 42";
+    execute(query);
+    execute(query);
+    Assert.assertTrue(cache.getSize() > 0);
+
+    final long invalidations = cache.getInvalidations();
+    db.command(new OCommandSQL("create index Item.value unique")).execute();
+    Assert.assertTrue(cache.getInvalidations() > invalidations);
+    Assert.assertEquals(cache.getSize(), 0);
+
+    final long misses = cache.getMisses();
+    Assert.assertEquals(execute(query).size(), 1);
+    Assert.assertEquals(cache.getMisses(), misses + 1);
+
+    db.command(new OCommandSQL("create property Item.name string")).execute();
+    Assert.assertEquals(cache.getSize(), 0);
+    Assert.assertEquals(execute(query).size(), 1);
+  }
+
+  private List<Object> execute(final String iQuery) {
+    final List<Object> values = new ArrayList<Object>();
+    for (ODocument doc : db.<List<ODocument>> query(new OSQLSynchQuery<ODocument>(iQuery)))
+      values.add(doc.field("value"));
+    return values;
+  }
+}
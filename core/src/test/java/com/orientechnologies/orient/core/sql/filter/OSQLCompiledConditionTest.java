@@ -0,0 +1,123 @@
+package com.orientechnologies.orient.core.sql.filter;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OSQLCompiledConditionTest {
+  private static final String[] QUERIES = { "select from Person where age = 30", "select from Person where age <> 30",
+      "select from Person where age > 30 and age <= 60", "select from Person where age >= 90 or age < 3",
+      "select from Person where not (age > 10)", "select from Person where (age > 10 and (salary < 5000 or name = 'luca'))",
+      "select from Person where salary > 5000.5", "select from Person where salary = 5010", "select from Person where score > 3",
+      "select from Person where score > 3.5", "select from Person where name = 'LUCA'", "select from Person where nick = 'LUCA'",
+      "select from Person where nick > 'b'", "select from Person where birth > '2000-01-01'",
+      "select from Person where birth <= '2000-01-10' and age > 0", "select from Person where anything = 3",
+      "select from Person where age = '30'", "select from Person where age is null or age < 5",
+      "select from Person where age = 30 and name.toUpperCase() = 'LUCA'", "select from Person where active = true",
+      "select from Person where mixed = 7", "select from Person where mixed > 5", "select from Person where @rid = #-1:-1" };
+
+  private ODatabaseDocumentTx   db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:OSQLCompiledConditionTest");
+    db.create();
+
+    db.command(new OCommandSQL("create class Person")).execute();
+    db.command(new OCommandSQL("create property Person.age integer")).execute();
+    db.command(new OCommandSQL("create property Person.salary long")).execute();
+    db.command(new OCommandSQL("create property Person.name string")).execute();
+    db.command(new OCommandSQL("alter property Person.name collate ci")).execute();
+    db.command(new OCommandSQL("create property Person.birth date")).execute();
+
+    final Calendar calendar = Calendar.getInstance();
+    calendar.set(2000, Calendar.JANUARY, 1, 0, 0, 0);
+    calendar.set(Calendar.MILLISECOND, 0);
+
+    for (int i = 0; i < 100; ++i) {
+      final ODocument doc = new ODocument("Person");
+      if (i % 10 != 0)
+        doc.field("age", i);
+      doc.field("salary", 5000 + i);
+      doc.field("score", i % 7 == 0 ? (Object) (i / 10f) : (Object) (i / 10d));
+      doc.field("name", i % 3 == 0 ? "Luca" : "Jay" + i);
+      doc.field("nick", i % 3 == 0 ? "Luca" : "b" + i);
+      doc.field("birth", calendar.getTime());
+      doc.field("active", i % 2 == 0);
+      // SCHEMA-LESS FIELD WITH DIFFERENT TYPES
+      doc.field("mixed", i % 4 == 0 ? (Object) String.valueOf(i) : i % 4 == 1 ? (Object) (long) i : (Object) i);
+      doc.save();
+
+      calendar.add(Calendar.DAY_OF_MONTH, 1);
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testSameResultAsInterpreted() {
+    for (String query : QUERIES) {
+      final Set<ORID> interpreted = execute(query, false);
+      final Set<ORID> compiled = execute(query, true);
+      Assert.assertEquals(compiled, interpreted, query);
+    }
+  }
+
+  public void testResults() {
+    Assert.assertEquals(execute("select from Person where age = 30", true).size(), 0);
+    Assert.assertEquals(execute("select from Person where age = 31", true).size(), 1);
+    Assert.assertEquals(execute("select from Person where age > 30 and age <= 60", true).size(), 27);
+    Assert.assertEquals(execute("select from Person where name = 'LUCA'", true).size(), 34);
+    Assert.assertEquals(execute("select from Person where nick = 'LUCA'", true).size(), 0);
+    Assert.assertEquals(execute("select from Person where salary = 5010", true).size(), 1);
+    Assert.assertEquals(execute("select from Person where birth > '2000-01-10'", true).size(), 90);
+    Assert.assertEquals(execute("select from Person where mixed = 7", true).size(), 1);
+  }
+
+  public void testParameters() {
+    final OSQLSynchQuery<ODocument> query = new OSQLSynchQuery<ODocument>("select from Person where age > :min and salary < :max");
+
+    final Map<String, Object> params = new HashMap<String, Object>();
+    params.put("min", 50);
+    params.put("max", 5080L);
+    List<ODocument> result = db.query(query, params);
+    Assert.assertEquals(result.size(), 27);
+
+    params.put("min", 70);
+    params.put("max", 5090);
+    result = db.query(new OSQLSynchQuery<ODocument>("select from Person where age > :min and salary < :max"), params);
+    Assert.assertEquals(result.size(), 18);
+  }
+
+  private Set<ORID> execute(final String iQuery, final boolean iCompiled) {
+    final boolean old = OGlobalConfiguration.QUERY_FILTER_COMPILED.getValueAsBoolean();
+    OGlobalConfiguration.QUERY_FILTER_COMPILED.setValue(iCompiled);
+    try {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(iQuery));
+      final Set<ORID> rids = new HashSet<ORID>();
+      for (ODocument doc : result)
+        rids.add(doc.getIdentity());
+      return rids;
+    } finally {
+      OGlobalConfiguration.QUERY_FILTER_COMPILED.setValue(old);
+    }
+  }
+}
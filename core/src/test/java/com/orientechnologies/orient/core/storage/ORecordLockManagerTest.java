@@ -0,0 +1,75 @@
+package com.orientechnologies.orient.core.storage;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+@Test
+public class ORecordLockManagerTest {
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @AfterClass
+  public void afterClass() {
+    executor.shutdown();
+  }
+
+  public void testRecordsOfSamePartitionAreLockedApart() throws Exception {
+    final ORecordLockManager lockManager = new ORecordLockManager(100);
+    final ORID locked = new ORecordId(9, OClusterPositionFactory.INSTANCE.valueOf(0));
+
+    lockManager.acquireLock(Thread.currentThread(), locked, LOCK.EXCLUSIVE);
+    try {
+      Assert.assertFalse(tryLockInOtherThread(lockManager, new ORecordId(9, OClusterPositionFactory.INSTANCE.valueOf(0)),
+          LOCK.SHARED));
+
+      // MORE RECORDS THAN PARTITIONS: SOME OF THEM SHARE THE PARTITION OF THE LOCKED ONE
+      for (int i = 1; i <= lockManager.getPartitions() * 2; i++)
+        Assert.assertTrue(tryLockInOtherThread(lockManager, new ORecordId(9, OClusterPositionFactory.INSTANCE.valueOf(i)),
+            LOCK.EXCLUSIVE));
+    } finally {
+      lockManager.releaseLock(Thread.currentThread(), locked, LOCK.EXCLUSIVE);
+    }
+
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+  }
+
+  public void testLockIsKeptOnCopyOfRecordId() throws Exception {
+    final ORecordLockManager lockManager = new ORecordLockManager(100);
+    final ORecordId rid = new ORecordId(9, OClusterPositionFactory.INSTANCE.valueOf(5));
+
+    lockManager.acquireLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
+
+    // THE CALLER REUSES ITS INSTANCE FOR ANOTHER RECORD
+    rid.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(6);
+    Assert.assertTrue(tryLockInOtherThread(lockManager, rid, LOCK.EXCLUSIVE));
+
+    final ORID original = new ORecordId(9, OClusterPositionFactory.INSTANCE.valueOf(5));
+    Assert.assertFalse(tryLockInOtherThread(lockManager, original, LOCK.EXCLUSIVE));
+
+    lockManager.releaseLock(Thread.currentThread(), original, LOCK.EXCLUSIVE);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+  }
+
+  private boolean tryLockInOtherThread(final ORecordLockManager lockManager, final ORID rid, final LOCK lockType)
+      throws Exception {
+    return executor.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        if (!lockManager.tryAcquireLock(Thread.currentThread(), rid, lockType))
+          return false;
+
+        lockManager.releaseLock(Thread.currentThread(), rid, lockType);
+        return true;
+      }
+    }).get();
+  }
+}
@@ -0,0 +1,217 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.ONeedRetryException;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Commits transactions from several threads while other threads read and write the same records.
+ */
+@Test
+public class LocalPaginatedStorageConcurrentTx {
+  private static final int    RECORDS = 10;
+  private static final int    WRITERS = 4;
+  private static final int    READERS = 4;
+  private static final int    TXS     = 100;
+
+  private ODatabaseDocumentTx databaseDocumentTx;
+  private String              url;
+  private final List<ORID>    rids    = new ArrayList<ORID>();
+  private ExecutorService     executorService;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+    url = "plocal:" + new File(buildDirectory).getAbsolutePath() + "/localPaginatedStorageConcurrentTx";
+
+    databaseDocumentTx = new ODatabaseDocumentTx(url);
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+    databaseDocumentTx.getMetadata().getSchema().createClass("First");
+    databaseDocumentTx.getMetadata().getSchema().createClass("Second");
+
+    rids.clear();
+    for (int i = 0; i < RECORDS; i++) {
+      final ODocument document = new ODocument(i % 2 == 0 ? "First" : "Second");
+      document.field("value", 0);
+      document.save();
+      rids.add(document.getIdentity());
+    }
+
+    executorService = Executors.newCachedThreadPool();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    executorService.shutdownNow();
+
+    ODatabaseRecordThreadLocal.INSTANCE.set(databaseDocumentTx);
+    databaseDocumentTx.drop();
+  }
+
+  public void testNoPartialReads() throws Exception {
+    final AtomicBoolean stop = new AtomicBoolean();
+    final List<Future<Void>> readers = new ArrayList<Future<Void>>();
+    for (int i = 0; i < READERS; i++)
+      readers.add(executorService.submit(new Reader(stop)));
+
+    final List<Future<Void>> writers = new ArrayList<Future<Void>>();
+    for (int i = 0; i < WRITERS; i++)
+      writers.add(executorService.submit(new Writer(i, false)));
+
+    try {
+      awaitAll(writers);
+    } finally {
+      stop.set(true);
+    }
+    awaitAll(readers);
+
+    ODatabaseRecordThreadLocal.INSTANCE.set(databaseDocumentTx);
+    for (ORID rid : rids)
+      Assert.assertEquals(databaseDocumentTx.<ODocument> load(rid, null, true).field("value"), WRITERS * TXS);
+  }
+
+  public void testNoDeadlockWithSingleRecordOperations() throws Exception {
+    final List<Future<Void>> writers = new ArrayList<Future<Void>>();
+    for (int i = 0; i < WRITERS; i++) {
+      writers.add(executorService.submit(new Writer(i, false)));
+      writers.add(executorService.submit(new Writer(i, true)));
+    }
+
+    awaitAll(writers);
+  }
+
+  private static void awaitAll(final List<Future<Void>> futures) throws Exception {
+    for (Future<Void> future : futures)
+      try {
+        future.get(2, TimeUnit.MINUTES);
+      } catch (TimeoutException e) {
+        Assert.fail("Deadlock between concurrent transactions");
+      }
+  }
+
+  /**
+   * Increments all the records, in a random order. A transaction changes all of them at once, otherwise records are saved one by
+   * one and new records are created too.
+   */
+  private final class Writer implements Callable<Void> {
+    private final Random  random;
+    private final boolean singleRecord;
+
+    private Writer(final int seed, final boolean singleRecord) {
+      this.random = new Random(seed);
+      this.singleRecord = singleRecord;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+      db.open("admin", "admin");
+      try {
+        for (int i = 0; i < TXS; i++) {
+          if (singleRecord)
+            saveOneByOne(db);
+          else
+            incrementInTx(db);
+        }
+      } finally {
+        db.close();
+      }
+      return null;
+    }
+
+    private void incrementInTx(final ODatabaseDocumentTx db) {
+      while (true) {
+        db.begin();
+        try {
+          for (int index : shuffledIndexes()) {
+            final ODocument document = db.load(rids.get(index), null, true);
+            document.field("value", document.<Integer> field("value") + 1);
+            document.save();
+          }
+
+          db.commit();
+          return;
+        } catch (ONeedRetryException e) {
+          db.rollback();
+        }
+      }
+    }
+
+    private void saveOneByOne(final ODatabaseDocumentTx db) {
+      for (int index : shuffledIndexes()) {
+        final ODocument document = new ODocument(index % 2 == 0 ? "First" : "Second");
+        document.field("value", -1);
+        document.save();
+
+        document.delete();
+      }
+    }
+
+    private List<Integer> shuffledIndexes() {
+      final List<Integer> indexes = new ArrayList<Integer>(RECORDS);
+      for (int i = 0; i < RECORDS; i++)
+        indexes.add(i);
+      Collections.shuffle(indexes, random);
+      return indexes;
+    }
+  }
+
+  /**
+   * All the records have the same value once a transaction is committed and the value only grows, so a record read after another
+   * one can not have a smaller value. Records are read in both orders, whatever the order the transaction writes them.
+   */
+  private final class Reader implements Callable<Void> {
+    private final AtomicBoolean stop;
+
+    private Reader(final AtomicBoolean stop) {
+      this.stop = stop;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+      db.open("admin", "admin");
+      try {
+        boolean ascending = true;
+        while (!stop.get()) {
+          int previous = Integer.MIN_VALUE;
+          for (int i = 0; i < RECORDS; i++) {
+            final ORID rid = rids.get(ascending ? i : RECORDS - 1 - i);
+            final int value = db.<ODocument> load(rid, null, true).<Integer> field("value");
+            Assert.assertTrue(value >= previous, "Partial transaction read: " + rid + " has " + value + " after " + previous);
+            previous = value;
+          }
+          ascending = !ascending;
+        }
+      } finally {
+        db.close();
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.tool.ODatabaseCompare;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.tx.OTransaction;
+
+@Test
+public class LocalPaginatedStorageIncrementalBackup {
+  private ODatabaseDocumentTx baseDocumentTx;
+  private File                buildDir;
+
+  private ExecutorService     executorService = Executors.newCachedThreadPool();
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory", ".");
+    buildDirectory += "/localPaginatedStorageIncrementalBackup";
+
+    buildDir = new File(buildDirectory);
+    if (buildDir.exists())
+      buildDir.delete();
+
+    buildDir.mkdir();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    executorService.shutdown();
+    buildDir.delete();
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    baseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDir.getAbsolutePath() + "/baseLocalPaginatedStorageIncrementalBackup");
+    if (baseDocumentTx.exists()) {
+      baseDocumentTx.open("admin", "admin");
+      baseDocumentTx.drop();
+    }
+
+    baseDocumentTx.create();
+
+    createSchema(baseDocumentTx);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    final ODatabaseDocumentTx testDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDir.getAbsolutePath()
+        + "/testLocalPaginatedStorageIncrementalBackup");
+    if (testDocumentTx.exists()) {
+      testDocumentTx.open("admin", "admin");
+      testDocumentTx.drop();
+    }
+
+    if (baseDocumentTx.isClosed())
+      baseDocumentTx.open("admin", "admin");
+    baseDocumentTx.drop();
+
+    for (File file : buildDir.listFiles())
+      if (file.getName().endsWith(".ibu"))
+        file.delete();
+  }
+
+  public void testFullAndIncrementalBackups() throws Exception {
+    final List<ORID> rids = new ArrayList<ORID>();
+    addDocuments(baseDocumentTx, 5000, rids);
+
+    final File full = new File(buildDir, "full.ibu");
+    OLogSequenceNumber lsn = backup(full, null);
+
+    addDocuments(baseDocumentTx, 100, rids);
+    updateAndDeleteDocuments(baseDocumentTx, rids);
+
+    final File first = new File(buildDir, "first.ibu");
+    lsn = backup(first, lsn);
+
+    addDocuments(baseDocumentTx, 100, rids);
+
+    final File second = new File(buildDir, "second.ibu");
+    lsn = backup(second, lsn);
+
+    // NOTHING WAS CHANGED, SO NO PAGE IS COPIED
+    final File third = new File(buildDir, "third.ibu");
+    backup(third, lsn);
+    Assert.assertTrue(third.length() < full.length() / 4);
+
+    closeBase();
+
+    restore(full, first, second, third);
+    compare();
+  }
+
+  public void testBackupDuringWrites() throws Exception {
+    final List<ORID> rids = new ArrayList<ORID>();
+    addDocuments(baseDocumentTx, 1000, rids);
+
+    final File full = new File(buildDir, "full.ibu");
+    final OLogSequenceNumber lsn = backup(full, null);
+
+    final AtomicBoolean stop = new AtomicBoolean();
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for (int i = 0; i < 3; i++)
+      futures.add(executorService.submit(new DataPropagationTask(stop)));
+
+    Thread.sleep(500);
+
+    final File increment = new File(buildDir, "increment.ibu");
+    backup(increment, lsn);
+
+    stop.set(true);
+    for (Future<Void> future : futures)
+      future.get();
+
+    // THE BACKUP CONTAINS SOME OF THE CONCURRENT TRANSACTIONS, SO ONLY ITS CONSISTENCY IS CHECKED
+    closeBase();
+    restore(full, increment);
+
+    final ODatabaseDocumentTx testDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDir.getAbsolutePath()
+        + "/testLocalPaginatedStorageIncrementalBackup");
+    testDocumentTx.open("admin", "admin");
+    try {
+      long count = 0;
+      for (ODocument document : testDocumentTx.browseClass("TestOne")) {
+        Assert.assertNotNull(document.field("stringProp"));
+        count++;
+      }
+
+      Assert.assertTrue(count >= 1000);
+      Assert.assertEquals(testDocumentTx.countClass("TestOne"), count);
+    } finally {
+      testDocumentTx.close();
+    }
+  }
+
+  private OLogSequenceNumber backup(File file, OLogSequenceNumber fromLSN) throws IOException {
+    final OLocalPaginatedStorage storage = (OLocalPaginatedStorage) baseDocumentTx.getStorage();
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      return storage.incrementalBackup(out, fromLSN, null, Deflater.BEST_SPEED, 0);
+    } finally {
+      out.close();
+    }
+  }
+
+  private void restore(File... backups) throws IOException {
+    for (File backup : backups) {
+      final ODatabaseDocumentTx testDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDir.getAbsolutePath()
+          + "/testLocalPaginatedStorageIncrementalBackup");
+      final FileInputStream in = new FileInputStream(backup);
+      try {
+        testDocumentTx.restore(in, null, null, null);
+      } finally {
+        in.close();
+      }
+    }
+  }
+
+  private void closeBase() {
+    final OStorage storage = baseDocumentTx.getStorage();
+    baseDocumentTx.close();
+    storage.close();
+  }
+
+  private void compare() throws IOException {
+    final ODatabaseCompare databaseCompare = new ODatabaseCompare("plocal:" + buildDir.getAbsolutePath()
+        + "/testLocalPaginatedStorageIncrementalBackup", baseDocumentTx.getURL(), "admin", "admin", new OCommandOutputListener() {
+      @Override
+      public void onMessage(String text) {
+        System.out.println(text);
+      }
+    });
+
+    Assert.assertTrue(databaseCompare.compare());
+  }
+
+  private void createSchema(ODatabaseDocumentTx databaseDocumentTx) {
+    ODatabaseRecordThreadLocal.INSTANCE.set(databaseDocumentTx);
+
+    OSchema schema = databaseDocumentTx.getMetadata().getSchema();
+    OClass testOneClass = schema.createClass("TestOne");
+
+    testOneClass.createProperty("intProp", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    testOneClass.createProperty("stringProp", OType.STRING);
+  }
+
+  private static void addDocuments(ODatabaseDocumentTx db, int count, List<ORID> rids) {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+
+    final Random random = new Random();
+    for (int i = 0; i < count; i++) {
+      final ODocument document = new ODocument("TestOne");
+      document.field("intProp", random.nextInt(100));
+      document.field("stringProp", "value " + random.nextLong());
+      document.save();
+
+      rids.add(document.getIdentity());
+    }
+  }
+
+  private static void updateAndDeleteDocuments(ODatabaseDocumentTx db, List<ORID> rids) {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+
+    for (int i = 0; i < rids.size(); i += 50) {
+      final ODocument document = db.load(rids.get(i));
+      document.field("stringProp", "updated " + i);
+      document.save();
+    }
+
+    for (int i = 3; i < rids.size(); i += 97)
+      db.delete(rids.get(i));
+  }
+
+  public class DataPropagationTask implements Callable<Void> {
+    private final AtomicBoolean stop;
+
+    public DataPropagationTask(AtomicBoolean stop) {
+      this.stop = stop;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      final Random random = new Random();
+
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(baseDocumentTx.getURL());
+      db.open("admin", "admin");
+      try {
+        while (!stop.get()) {
+          db.begin(OTransaction.TXTYPE.OPTIMISTIC);
+
+          for (int i = 0; i < 10; i++) {
+            final ODocument document = new ODocument("TestOne");
+            document.field("intProp", random.nextInt(100));
+            document.field("stringProp", "value " + random.nextLong());
+            document.save();
+          }
+
+          if (random.nextInt(5) == 0)
+            db.rollback();
+          else
+            db.commit();
+        }
+      } finally {
+        db.close();
+      }
+
+      return null;
+    }
+  }
+}
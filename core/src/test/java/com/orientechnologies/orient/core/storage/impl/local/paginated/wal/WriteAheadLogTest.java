@@ -11,6 +11,12 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -570,6 +576,48 @@ public class WriteAheadLogTest {
     Assert.assertEquals(end.compareTo(lsn), -1);
   }
 
+  public void testFlushTillFromSeveralThreads() throws Exception {
+    final int threads = 8;
+    final int recordsPerThread = 50;
+
+    final long groupFlushes = writeAheadLog.getGroupFlushes();
+    final CyclicBarrier barrier = new CyclicBarrier(threads);
+
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      for (int i = 0; i < threads; i++)
+        futures.add(executorService.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int n = 0; n < recordsPerThread; n++) {
+              final OLogSequenceNumber lsn = writeAheadLog.log(new TestRecord(ONE_KB, false));
+
+              // ALL THREADS COMMIT AT THE SAME TIME
+              barrier.await(10, TimeUnit.SECONDS);
+              writeAheadLog.flushTill(lsn);
+
+              Assert.assertTrue(writeAheadLog.getFlushedLSN().compareTo(lsn) >= 0);
+            }
+
+            return null;
+          }
+        }));
+
+      for (Future<Void> future : futures)
+        future.get();
+    } finally {
+      executorService.shutdown();
+    }
+
+    Assert.assertEquals(writeAheadLog.getFlushedLSN(), writeAheadLog.end());
+
+    // THREADS WHICH WAIT AT THE SAME TIME SHARE FLUSHES
+    final long flushes = writeAheadLog.getGroupFlushes() - groupFlushes;
+    Assert.assertTrue(flushes > 0);
+    Assert.assertTrue(flushes <= threads * recordsPerThread / 2, flushes + " flushes for " + threads * recordsPerThread + " commits");
+  }
+
   public void testFlushedLSNOnePageWithLessThanMinRecordSpace() throws Exception {
     OWALRecord walRecord = new TestRecord(ONE_KB, false);
     writeAheadLog.log(walRecord);
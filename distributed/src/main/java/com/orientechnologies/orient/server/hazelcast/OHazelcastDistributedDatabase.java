@@ -20,11 +20,14 @@ import com.hazelcast.core.IMap;
 import com.hazelcast.core.IQueue;
 import com.hazelcast.spi.exception.DistributedObjectDestroyedException;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.OScenarioThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.metadata.security.OSecurity;
 import com.orientechnologies.orient.core.metadata.security.OSecurityNull;
 import com.orientechnologies.orient.core.metadata.security.OUser;
@@ -40,17 +43,23 @@ import com.orientechnologies.orient.server.distributed.ODistributedResponseManag
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
 import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIRECTION;
 import com.orientechnologies.orient.server.distributed.ODistributedServerManager;
+import com.orientechnologies.orient.server.distributed.ODistributedStorage;
+import com.orientechnologies.orient.server.distributed.task.OAbstractRecordReplicatedTask;
 import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
 import com.orientechnologies.orient.server.distributed.task.OCreateRecordTask;
 import com.orientechnologies.orient.server.distributed.task.ODeleteRecordTask;
 import com.orientechnologies.orient.server.distributed.task.OFixTxTask;
+import com.orientechnologies.orient.server.distributed.task.OReadRecordTask;
 import com.orientechnologies.orient.server.distributed.task.OResurrectRecordTask;
 import com.orientechnologies.orient.server.distributed.task.OSQLCommandTask;
 import com.orientechnologies.orient.server.distributed.task.OTxTask;
 import com.orientechnologies.orient.server.distributed.task.OUpdateRecordTask;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -69,6 +78,8 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
   public static final String                          NODE_QUEUE_PREFIX          = "orientdb.node.";
   public static final String                          NODE_QUEUE_PENDING_POSTFIX = ".pending";
   private static final String                         NODE_LOCK_PREFIX           = "orientdb.reqlock.";
+  private static final String                         PENDING_KEY_SEPARATOR      = "#";
+  private static final int                            WORKER_QUEUE_SIZE          = 1000;
   protected final OHazelcastPlugin                    manager;
   protected final OHazelcastDistributedMessageService msgService;
   protected final String                              databaseName;
@@ -80,6 +91,10 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
   protected Thread                                    listenerThread;
   protected AtomicLong                                waitForMessageId           = new AtomicLong(-1);
   protected volatile OUser                            lastUser;
+  protected OHazelcastDistributedWorker[]             workers;
+  protected final Object                              inFlightLock               = new Object();
+  protected int                                       inFlightRequests           = 0;
+  protected final OHazelcastRequestWatermark          appliedRequests            = new OHazelcastRequestWatermark();
 
   public OHazelcastDistributedDatabase(final OHazelcastPlugin manager, final OHazelcastDistributedMessageService msgService,
       final String iDatabaseName) {
@@ -167,6 +182,7 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
         // BROADCAST THE REQUEST TO ALL THE NODE QUEUES
 
         iRequest.setId(msgService.getMessageIdCounter().getAndIncrement());
+        iRequest.setSentOn(System.currentTimeMillis());
 
         if (ODistributedServerLog.isDebugEnabled())
           ODistributedServerLog.debug(this, getLocalNodeName(), iNodes.toString(), DIRECTION.OUT, "sending request %s", iRequest);
@@ -219,6 +235,27 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     final int queuedMsg = requestQueue.size();
     restoringMessages = msgService.checkForPendingMessages(requestQueue, queueName, iUnqueuePendingMessages);
 
+    final int applyWorkers = OGlobalConfiguration.DISTRIBUTED_APPLY_WORKERS.getValueAsInteger();
+    if (applyWorkers > 1 && workers == null) {
+      // PARALLEL APPLY: THE LISTENER THREAD DISPATCHES THE REQUESTS TO THE WORKERS
+      workers = new OHazelcastDistributedWorker[applyWorkers];
+      for (int i = 0; i < applyWorkers; ++i) {
+        workers[i] = new OHazelcastDistributedWorker(this, lastPendingMessagesMap, i, WORKER_QUEUE_SIZE);
+        workers[i].start();
+      }
+    }
+
+    Orient
+        .instance()
+        .getProfiler()
+        .registerHookValue("distributed.db." + databaseName + ".pendingRequests",
+            "Number of replication requests received by current node and not applied yet", METRIC_TYPE.SIZE,
+            new OProfilerHookValue() {
+              public Object getValue() {
+                return requestQueue.size() + getInFlightRequests();
+              }
+            }, "distributed.db.*.pendingRequests");
+
     listenerThread = new Thread(new Runnable() {
       @Override
       public void run() {
@@ -230,6 +267,14 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
 
         for (long processedMessages = 0; !Thread.interrupted(); processedMessages++) {
           if (restoringMessages && processedMessages >= queuedMsg) {
+            try {
+              // WAIT FOR THE RESTORED MESSAGES STILL IN THE WORKERS
+              waitForWorkers();
+            } catch (InterruptedException e) {
+              Thread.interrupted();
+              break;
+            }
+
             // END OF RESTORING MESSAGES, SET IT ONLINE
             ODistributedServerLog.info(this, getLocalNodeName(), null, DIRECTION.NONE,
                 "executed all pending tasks in queue (%d), set restoringMessages=false and database '%s' as online...", queuedMsg,
@@ -245,19 +290,12 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
             message = readRequest(requestQueue);
 
             if (message != null) {
-              // DECIDE TO USE THE HZ MAP ONLY IF THE COMMAND IS NOT IDEMPOTENT (ALL BUT READ-RECORD/SQL SELECT/SQL TRAVERSE
-              final boolean saveAsPending = !message.getTask().isIdempotent();
-
-              if (saveAsPending)
-                // SAVE THE MESSAGE IN TO THE UNDO MAP IN CASE OF FAILURE
-                lastPendingMessagesMap.put(databaseName, message);
-
               senderNode = message.getSenderNodeName();
-              onMessage(message);
 
-              if (saveAsPending)
-                // OK: REMOVE THE UNDO BUFFER
-                lastPendingMessagesMap.remove(databaseName);
+              if (workers != null)
+                dispatchRequest(message, lastPendingMessagesMap);
+              else
+                applyRequest(message, lastPendingMessagesMap);
             }
 
           } catch (InterruptedException e) {
@@ -301,10 +339,7 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
   public void initDatabaseInstance() {
     if (database == null) {
       // OPEN IT
-      final OServerUserConfiguration replicatorUser = manager.getServerInstance().getUser(
-          ODistributedAbstractPlugin.REPLICATOR_USER);
-      database = (ODatabaseDocumentTx) manager.getServerInstance().openDatabase("document", databaseName, replicatorUser.name,
-          replicatorUser.password);
+      database = openReplicatorDatabase();
     } else if (database.isClosed()) {
       // DATABASE CLOSED, REOPEN IT
       final OServerUserConfiguration replicatorUser = manager.getServerInstance().getUser(
@@ -317,12 +352,20 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
         final OServerUserConfiguration replicatorUser = manager.getServerInstance().getUser(
             ODistributedAbstractPlugin.REPLICATOR_USER);
         createReplicatorUser(database, replicatorUser);
-        database = (ODatabaseDocumentTx) manager.getServerInstance().openDatabase("document", databaseName, replicatorUser.name,
-            replicatorUser.password);
+        database = openReplicatorDatabase();
       }
     }
   }
 
+  /**
+   * Opens a new instance of the database with the replicator user.
+   */
+  public ODatabaseDocumentTx openReplicatorDatabase() {
+    final OServerUserConfiguration replicatorUser = manager.getServerInstance().getUser(ODistributedAbstractPlugin.REPLICATOR_USER);
+    return (ODatabaseDocumentTx) manager.getServerInstance().openDatabase("document", databaseName, replicatorUser.name,
+        replicatorUser.password);
+  }
+
   @Override
   public void setOnline() {
     status.set(true);
@@ -356,6 +399,12 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     if (listenerThread != null)
       listenerThread.interrupt();
 
+    if (workers != null)
+      for (OHazelcastDistributedWorker w : workers)
+        w.interrupt();
+
+    Orient.instance().getProfiler().unregisterHookValue("distributed.db." + databaseName + ".pendingRequests");
+
     try {
       if (database != null)
         database.close();
@@ -497,10 +546,143 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
     return req;
   }
 
+  /**
+   * Executes the request on the listener thread.
+   */
+  protected void applyRequest(final ODistributedRequest iRequest, final IMap<String, Object> iPendingRequests) {
+    appliedRequests.dispatched(iRequest.getId());
+    try {
+      executePendingRequest(iRequest, iPendingRequests);
+    } finally {
+      updateLastOperationId(iRequest, database);
+    }
+  }
+
+  /**
+   * Executes the request, saving it in the undo map until it is applied.
+   */
+  protected void executePendingRequest(final ODistributedRequest iRequest, final IMap<String, Object> iPendingRequests) {
+    // DECIDE TO USE THE HZ MAP ONLY IF THE COMMAND IS NOT IDEMPOTENT (ALL BUT READ-RECORD/SQL SELECT/SQL TRAVERSE
+    final boolean saveAsPending = !iRequest.getTask().isIdempotent();
+
+    if (saveAsPending)
+      // SAVE THE MESSAGE IN TO THE UNDO MAP IN CASE OF FAILURE
+      iPendingRequests.put(databaseName, iRequest);
+
+    onMessage(iRequest);
+
+    if (saveAsPending)
+      // OK: REMOVE THE UNDO BUFFER
+      iPendingRequests.remove(databaseName);
+  }
+
+  /**
+   * Assigns the request to the worker of its cluster. Requests that could involve more clusters, like transactions and commands, are
+   * executed on the listener thread once the workers have applied all the previous requests.
+   */
+  protected void dispatchRequest(final ODistributedRequest iRequest, final IMap<String, Object> iPendingRequests)
+      throws InterruptedException {
+    final int clusterId = getClusterId(iRequest.getTask());
+    if (clusterId < 0) {
+      waitForWorkers();
+      applyRequest(iRequest, iPendingRequests);
+      return;
+    }
+
+    if (!iRequest.getTask().isIdempotent())
+      // SAVE THE MESSAGE IN TO THE UNDO MAP IN CASE OF FAILURE, THE WORKER REMOVES IT ONCE APPLIED
+      iPendingRequests.put(getPendingRequestKey(iRequest), iRequest);
+
+    synchronized (inFlightLock) {
+      inFlightRequests++;
+    }
+
+    appliedRequests.dispatched(iRequest.getId());
+    workers[clusterId % workers.length].enqueue(iRequest);
+  }
+
+  /**
+   * Waits until the workers have applied all the dispatched requests.
+   */
+  protected void waitForWorkers() throws InterruptedException {
+    synchronized (inFlightLock) {
+      while (inFlightRequests > 0)
+        inFlightLock.wait();
+    }
+  }
+
+  /**
+   * Called by the workers once a request has been applied.
+   */
+  protected void endRequest(final ODistributedRequest iRequest, final ODatabaseDocumentTx iDatabase) {
+    updateLastOperationId(iRequest, iDatabase);
+
+    synchronized (inFlightLock) {
+      if (--inFlightRequests == 0)
+        inFlightLock.notifyAll();
+    }
+  }
+
+  /**
+   * Sets as last operation of the storage the last request applied together with all the previous ones, so the id never goes back
+   * when the workers end the requests in a different order.
+   */
+  protected void updateLastOperationId(final ODistributedRequest iRequest, final ODatabaseDocumentTx iDatabase) {
+    synchronized (appliedRequests) {
+      final long lastOperationId = appliedRequests.applied(iRequest.getId());
+
+      final ODatabaseDocumentTx db = iDatabase != null ? iDatabase : database;
+      if (lastOperationId > -1 && db != null && db.getStorage() instanceof ODistributedStorage)
+        ((ODistributedStorage) db.getStorage()).setLastOperationId(lastOperationId);
+    }
+  }
+
+  protected int getInFlightRequests() {
+    synchronized (inFlightLock) {
+      return inFlightRequests;
+    }
+  }
+
+  /**
+   * Returns the key of the request in the undo map. Requests applied by the workers are saved each one with its own key.
+   */
+  protected String getPendingRequestKey(final ODistributedRequest iRequest) {
+    return databaseName + PENDING_KEY_SEPARATOR + iRequest.getId();
+  }
+
+  /**
+   * Returns the cluster of the record the task works on, or -1 if the task can involve any cluster.
+   */
+  protected int getClusterId(final OAbstractRemoteTask iTask) {
+    final ORecordId rid;
+    if (iTask instanceof OAbstractRecordReplicatedTask)
+      rid = ((OAbstractRecordReplicatedTask) iTask).getRid();
+    else if (iTask instanceof OReadRecordTask)
+      rid = ((OReadRecordTask) iTask).getRid();
+    else
+      return -1;
+
+    return rid != null ? rid.getClusterId() : -1;
+  }
+
   /**
    * Execute the remote call on the local node and send back the result
    */
   protected void onMessage(final ODistributedRequest iRequest) {
+    if (iRequest.getTask().isRequiredOpenDatabase())
+      initDatabaseInstance();
+
+    lastUser = executeRequest(iRequest, database, lastUser);
+  }
+
+  /**
+   * Executes the request against the database instance and sends back the result.
+   * 
+   * @param iLastUser
+   *          user used by the previous request on the same database instance, reused if the request comes from the same user
+   * @return the user the request has been executed with
+   */
+  protected OUser executeRequest(final ODistributedRequest iRequest, final ODatabaseDocumentTx iDatabase, OUser iLastUser) {
     OScenarioThreadLocal.INSTANCE.set(OScenarioThreadLocal.RUN_MODE.RUNNING_DISTRIBUTED);
 
     try {
@@ -514,35 +696,41 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
       final Serializable responsePayload;
       OUser origin = null;
       try {
-        if (task.isRequiredOpenDatabase())
-          initDatabaseInstance();
-
-        ODatabaseRecordThreadLocal.INSTANCE.set(database);
+        ODatabaseRecordThreadLocal.INSTANCE.set(iDatabase);
 
         task.setNodeSource(iRequest.getSenderNodeName());
 
         // keep original user in database, check the username passed in request and set new user in DB, after document saved, reset
         // to original user
-        if (database != null) {
-          origin = database.getUser();
+        if (iDatabase != null) {
+          origin = iDatabase.getUser();
           try {
-            if (lastUser == null || !(lastUser.getName()).equals(iRequest.getUserName()))
-              lastUser = database.getMetadata().getSecurity().getUser(iRequest.getUserName());
-            database.setUser(lastUser);// set to new user
+            if (iLastUser == null || !(iLastUser.getName()).equals(iRequest.getUserName()))
+              iLastUser = iDatabase.getMetadata().getSecurity().getUser(iRequest.getUserName());
+            iDatabase.setUser(iLastUser);// set to new user
           } catch (Throwable ex) {
             OLogManager.instance().error(this, "failed to convert to OUser " + ex.getMessage());
           }
         }
 
-        responsePayload = manager.executeOnLocalNode(iRequest, database);
+        responsePayload = manager.executeOnLocalNode(iRequest, iDatabase);
 
       } finally {
-        if (database != null) {
-          database.getLevel1Cache().clear();
-          database.setUser(origin);
+        if (iDatabase != null) {
+          iDatabase.getLevel1Cache().clear();
+          iDatabase.setUser(origin);
         }
       }
 
+      if (iRequest.getSentOn() > 0)
+        // TIME SINCE THE SENDER NODE PUT THE REQUEST IN THE QUEUE
+        Orient
+            .instance()
+            .getProfiler()
+            .stopChrono("distributed.db." + databaseName + ".lag." + iRequest.getSenderNodeName(),
+                "Time between the sending of a replication request and its execution on current node", iRequest.getSentOn(),
+                "distributed.db.*.lag.*");
+
       if (ODistributedServerLog.isDebugEnabled())
         ODistributedServerLog.debug(this, manager.getLocalNodeName(), iRequest.getSenderNodeName(), DIRECTION.OUT,
             "sending back response '%s' to request %d (%s)", responsePayload, iRequest.getId(), task);
@@ -562,6 +750,8 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
         throw new ODistributedException("Cannot dispatch response to the thread queue " + iRequest.getSenderNodeName(), e);
       }
 
+      return iLastUser;
+
     } finally {
       OScenarioThreadLocal.INSTANCE.set(OScenarioThreadLocal.RUN_MODE.DEFAULT);
     }
@@ -600,9 +790,24 @@ public class OHazelcastDistributedDatabase implements ODistributedDatabase {
   protected IMap<String, Object> restoreMessagesBeforeFailure(final boolean iRestoreMessages) {
     final IMap<String, Object> lastPendingRequestMap = manager.getHazelcastInstance().getMap(getPendingRequestMapName());
     if (iRestoreMessages) {
-      // RESTORE LAST UNDO MESSAGE
-      final ODistributedRequest lastPendingRequest = (ODistributedRequest) lastPendingRequestMap.remove(databaseName);
-      if (lastPendingRequest != null) {
+      // RESTORE LAST UNDO MESSAGES: ONE IF THE REQUESTS WERE APPLIED SEQUENTIALLY, ONE PER REQUEST IN PROGRESS WITH THE WORKERS
+      final List<ODistributedRequest> lastPendingRequests = new ArrayList<ODistributedRequest>();
+      for (String key : new ArrayList<String>(lastPendingRequestMap.keySet())) {
+        if (key.equals(databaseName) || key.startsWith(databaseName + PENDING_KEY_SEPARATOR)) {
+          final ODistributedRequest lastPendingRequest = (ODistributedRequest) lastPendingRequestMap.remove(key);
+          if (lastPendingRequest != null && databaseName.equals(lastPendingRequest.getDatabaseName()))
+            lastPendingRequests.add(lastPendingRequest);
+        }
+      }
+
+      Collections.sort(lastPendingRequests, new Comparator<ODistributedRequest>() {
+        @Override
+        public int compare(final ODistributedRequest o1, final ODistributedRequest o2) {
+          return o1.getId() < o2.getId() ? -1 : o1.getId() == o2.getId() ? 0 : 1;
+        }
+      });
+
+      for (ODistributedRequest lastPendingRequest : lastPendingRequests) {
         // RESTORE LAST REQUEST
         ODistributedServerLog.warn(this, getLocalNodeName(), null, DIRECTION.NONE,
             "restore last replication message before the crash for database '%s': %s...", databaseName, lastPendingRequest);
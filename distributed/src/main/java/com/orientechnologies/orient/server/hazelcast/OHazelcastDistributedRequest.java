@@ -18,6 +18,7 @@ package com.orientechnologies.orient.server.hazelcast;
 import com.orientechnologies.orient.server.distributed.ODistributedRequest;
 import com.orientechnologies.orient.server.distributed.task.OAbstractRemoteTask;
 
+import java.io.EOFException;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -30,6 +31,7 @@ import java.io.ObjectOutput;
  * 
  */
 public class OHazelcastDistributedRequest implements ODistributedRequest, Externalizable {
+  private static final byte   SERIALIZATION_VERSION = 1;
   private long                id;
   private EXECUTION_MODE      executionMode;
   private String              senderNodeName;
@@ -37,6 +39,7 @@ public class OHazelcastDistributedRequest implements ODistributedRequest, Extern
   private long                senderThreadId;
   private OAbstractRemoteTask task;
   private String              userName = "";
+  private long                sentOn;
 
   /**
    * Constructor used by serializer.
@@ -101,6 +104,16 @@ public class OHazelcastDistributedRequest implements ODistributedRequest, Extern
     this.userName = userName;
   }
 
+  @Override
+  public long getSentOn() {
+    return sentOn;
+  }
+
+  @Override
+  public void setSentOn(final long iSentOn) {
+    sentOn = iSentOn;
+  }
+
   @Override
   public EXECUTION_MODE getExecutionMode() {
     return executionMode;
@@ -119,6 +132,10 @@ public class OHazelcastDistributedRequest implements ODistributedRequest, Extern
     out.writeUTF(databaseName);
     out.writeObject(task);
     out.writeUTF(userName);
+
+    // FIELDS ADDED LATER: NODES RUNNING A PREVIOUS RELEASE SKIP THEM
+    out.writeByte(SERIALIZATION_VERSION);
+    out.writeLong(sentOn);
   }
 
   @Override
@@ -129,6 +146,17 @@ public class OHazelcastDistributedRequest implements ODistributedRequest, Extern
     databaseName = in.readUTF();
     task = (OAbstractRemoteTask) in.readObject();
     userName = in.readUTF();
+
+    final byte version;
+    try {
+      version = in.readByte();
+    } catch (EOFException e) {
+      // SENT BY A NODE RUNNING A PREVIOUS RELEASE
+      return;
+    }
+
+    if (version >= 1)
+      sentOn = in.readLong();
   }
 
   @Override
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.hazelcast;
+
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import com.hazelcast.core.IMap;
+import com.hazelcast.spi.exception.DistributedObjectDestroyedException;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.security.OUser;
+import com.orientechnologies.orient.server.distributed.ODistributedRequest;
+import com.orientechnologies.orient.server.distributed.ODistributedServerLog;
+import com.orientechnologies.orient.server.distributed.ODistributedServerLog.DIRECTION;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Applies the replicated requests assigned by {@link OHazelcastDistributedDatabase} when the parallel apply is enabled. All the
+ * requests against the same cluster are assigned to the same worker, that executes them in the order they were received. Each worker
+ * uses its own database instance.
+ */
+public class OHazelcastDistributedWorker extends Thread {
+  protected final OHazelcastDistributedDatabase      distributed;
+  protected final IMap<String, Object>               pendingRequests;
+  protected final BlockingQueue<ODistributedRequest> requests;
+  protected ODatabaseDocumentTx                      database;
+  protected OUser                                    lastUser;
+
+  public OHazelcastDistributedWorker(final OHazelcastDistributedDatabase iDistributed, final IMap<String, Object> iPendingRequests,
+      final int iId, final int iQueueSize) {
+    super("OrientDB Node Request Worker " + iId + " " + iDistributed.databaseName);
+    setDaemon(true);
+
+    distributed = iDistributed;
+    pendingRequests = iPendingRequests;
+    requests = new ArrayBlockingQueue<ODistributedRequest>(iQueueSize);
+  }
+
+  /**
+   * Enqueues the request to be applied after the previous ones. Waits if the worker is too late.
+   */
+  public void enqueue(final ODistributedRequest iRequest) throws InterruptedException {
+    requests.put(iRequest);
+  }
+
+  @Override
+  public void run() {
+    while (!isInterrupted()) {
+      ODistributedRequest message = null;
+      try {
+        message = requests.take();
+
+        if (message.getTask().isRequiredOpenDatabase() && (database == null || database.isClosed()))
+          database = distributed.openReplicatorDatabase();
+
+        lastUser = distributed.executeRequest(message, database, lastUser);
+        removePendingRequest(message);
+
+      } catch (InterruptedException e) {
+        // EXIT CURRENT THREAD
+        break;
+      } catch (DistributedObjectDestroyedException e) {
+        break;
+      } catch (HazelcastInstanceNotActiveException e) {
+        break;
+
+      } catch (Throwable e) {
+        ODistributedServerLog.error(this, distributed.getLocalNodeName(), message.getSenderNodeName(), DIRECTION.IN,
+            "error on executing distributed request %d: %s", e, message.getId(), message.getTask());
+        removePendingRequest(message);
+      } finally {
+        if (message != null)
+          distributed.endRequest(message, database);
+      }
+    }
+
+    try {
+      if (database != null)
+        database.close();
+    } catch (Exception e) {
+    }
+
+    ODistributedServerLog.debug(this, distributed.getLocalNodeName(), null, DIRECTION.NONE, "end of worker %s", getName());
+  }
+
+  protected void removePendingRequest(final ODistributedRequest iRequest) {
+    if (iRequest.getTask().isIdempotent())
+      return;
+
+    try {
+      // APPLIED OR FAILED: REMOVE THE UNDO BUFFER
+      pendingRequests.remove(distributed.getPendingRequestKey(iRequest));
+    } catch (RuntimeException e) {
+      ODistributedServerLog.debug(this, distributed.getLocalNodeName(), iRequest.getSenderNodeName(), DIRECTION.IN,
+          "cannot remove pending request %d", e, iRequest.getId());
+    }
+  }
+}
@@ -663,9 +663,6 @@ public class OHazelcastPlugin extends ODistributedAbstractPlugin implements Memb
     final OAbstractRemoteTask task = req.getTask();
 
     try {
-      if (database != null)
-        ((ODistributedStorage) database.getStorage()).setLastOperationId(req.getId());
-
       final Serializable result = (Serializable) task.execute(serverInstance, this, database);
 
       if (result instanceof Throwable)
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.hazelcast;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the id of the last request applied together with all the requests received before it. With the parallel apply the
+ * requests can end in any order, so the id of the last request ended can not be used as last operation. The ids are not contiguous
+ * because they are assigned cluster wide, then the requests are tracked in the order they were received.
+ */
+public class OHazelcastRequestWatermark {
+  private final Deque<Long> dispatched = new ArrayDeque<Long>();
+  private final Set<Long>   applied    = new HashSet<Long>();
+  private long              watermark  = -1;
+
+  /**
+   * Registers a received request before it is applied. Requests must be registered in the order they were received.
+   */
+  public synchronized void dispatched(final long iRequestId) {
+    dispatched.addLast(iRequestId);
+  }
+
+  /**
+   * Marks the request as applied, with or without errors.
+   *
+   * @return the id of the last request applied together with all the previous ones, or -1 if the first request is still running
+   */
+  public synchronized long applied(final long iRequestId) {
+    applied.add(iRequestId);
+
+    while (!dispatched.isEmpty() && applied.remove(dispatched.peekFirst()))
+      watermark = dispatched.removeFirst();
+
+    return watermark;
+  }
+
+  public synchronized long get() {
+    return watermark;
+  }
+
+  public synchronized int getPending() {
+    return dispatched.size();
+  }
+}
@@ -0,0 +1,58 @@
+package com.orientechnologies.orient.server.hazelcast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.orientechnologies.orient.server.distributed.ODistributedRequest.EXECUTION_MODE;
+
+public class OHazelcastDistributedRequestTest {
+
+  @Test
+  public void testSerialization() throws Exception {
+    final OHazelcastDistributedRequest request = new OHazelcastDistributedRequest("node1", "db", null, EXECUTION_MODE.RESPONSE);
+    request.setId(12);
+    request.setUserName("admin");
+    request.setSentOn(1234567890L);
+
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final ObjectOutputStream out = new ObjectOutputStream(buffer);
+    out.writeObject(request);
+    out.close();
+
+    final OHazelcastDistributedRequest copy = (OHazelcastDistributedRequest) new ObjectInputStream(new ByteArrayInputStream(
+        buffer.toByteArray())).readObject();
+
+    Assert.assertEquals(12, copy.getId());
+    Assert.assertEquals("node1", copy.getSenderNodeName());
+    Assert.assertEquals("db", copy.getDatabaseName());
+    Assert.assertEquals("admin", copy.getUserName());
+    Assert.assertEquals(1234567890L, copy.getSentOn());
+  }
+
+  @Test
+  public void testReadRequestOfPreviousRelease() throws Exception {
+    // THE FORMAT BEFORE THE SENT TIME
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final ObjectOutputStream out = new ObjectOutputStream(buffer);
+    out.writeLong(12);
+    out.writeUTF("node1");
+    out.writeLong(1);
+    out.writeUTF("db");
+    out.writeObject(null);
+    out.writeUTF("admin");
+    out.close();
+
+    final OHazelcastDistributedRequest copy = new OHazelcastDistributedRequest();
+    copy.readExternal(new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+
+    Assert.assertEquals(12, copy.getId());
+    Assert.assertEquals("admin", copy.getUserName());
+    Assert.assertEquals(0, copy.getSentOn());
+  }
+}
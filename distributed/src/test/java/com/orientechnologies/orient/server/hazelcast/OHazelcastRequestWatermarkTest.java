@@ -0,0 +1,61 @@
+package com.orientechnologies.orient.server.hazelcast;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class OHazelcastRequestWatermarkTest {
+
+  @Test
+  public void testRequestsAppliedInOrder() {
+    final OHazelcastRequestWatermark watermark = new OHazelcastRequestWatermark();
+    Assert.assertEquals(-1, watermark.get());
+
+    watermark.dispatched(3);
+    watermark.dispatched(7);
+
+    Assert.assertEquals(3, watermark.applied(3));
+    Assert.assertEquals(7, watermark.applied(7));
+    Assert.assertEquals(0, watermark.getPending());
+  }
+
+  @Test
+  public void testWatermarkDoesNotGoBack() {
+    final OHazelcastRequestWatermark watermark = new OHazelcastRequestWatermark();
+
+    // IDS ARE NOT CONTIGUOUS: THE OTHER ONES WENT TO OTHER NODES
+    watermark.dispatched(10);
+    watermark.dispatched(12);
+    watermark.dispatched(15);
+    watermark.dispatched(16);
+
+    // THE FIRST REQUEST IS STILL RUNNING
+    Assert.assertEquals(-1, watermark.applied(15));
+    Assert.assertEquals(-1, watermark.applied(12));
+
+    Assert.assertEquals(15, watermark.applied(10));
+    Assert.assertEquals(1, watermark.getPending());
+
+    Assert.assertEquals(16, watermark.applied(16));
+    Assert.assertEquals(16, watermark.get());
+  }
+
+  @Test
+  public void testRequestsAppliedByTheListenerBetweenTheWorkers() {
+    final OHazelcastRequestWatermark watermark = new OHazelcastRequestWatermark();
+
+    watermark.dispatched(1);
+    watermark.dispatched(2);
+    Assert.assertEquals(-1, watermark.applied(2));
+    Assert.assertEquals(2, watermark.applied(1));
+
+    // A TRANSACTION, APPLIED ONCE THE WORKERS ARE DONE
+    watermark.dispatched(5);
+    Assert.assertEquals(5, watermark.applied(5));
+
+    watermark.dispatched(6);
+    watermark.dispatched(8);
+    Assert.assertEquals(5, watermark.applied(8));
+    Assert.assertEquals(8, watermark.applied(6));
+  }
+}
@@ -44,22 +44,7 @@ public class OAsynchChannelServiceThread extends OSoftThread {
   protected void execute() throws Exception {
     try {
       network.beginResponse(sessionId, 0);
-      final byte request = network.readByte();
-
-      Object obj = null;
-
-      switch (request) {
-      case OChannelBinaryProtocol.REQUEST_PUSH_RECORD:
-        obj = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
-        break;
-
-      case OChannelBinaryProtocol.REQUEST_PUSH_DISTRIB_CONFIG:
-        obj = network.readBytes();
-        break;
-      }
-
-      if (remoteServerEventListener != null)
-        remoteServerEventListener.onRequest(request, obj);
+      readPushRequest(network, remoteServerEventListener);
 
     } catch (IOException ioe) {
       // EXCEPTION RECEIVED (THE SOCKET HAS BEEN CLOSED?) ASSURE TO UNLOCK THE READ AND EXIT THIS THREAD
@@ -75,4 +60,27 @@ public class OAsynchChannelServiceThread extends OSoftThread {
         network.endResponse();
     }
   }
+
+  /**
+   * Reads the content of a message pushed by the server, after its header, and notifies it to the listener.
+   */
+  static void readPushRequest(final OChannelBinaryAsynchClient iNetwork, final ORemoteServerEventListener iListener)
+      throws IOException {
+    final byte request = iNetwork.readByte();
+
+    Object obj = null;
+
+    switch (request) {
+    case OChannelBinaryProtocol.REQUEST_PUSH_RECORD:
+      obj = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(iNetwork);
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_PUSH_DISTRIB_CONFIG:
+      obj = iNetwork.readBytes();
+      break;
+    }
+
+    if (iListener != null)
+      iListener.onRequest(request, obj);
+  }
 }
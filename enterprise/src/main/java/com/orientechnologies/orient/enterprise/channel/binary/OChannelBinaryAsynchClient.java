@@ -342,34 +342,7 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
     if (iResult == OChannelBinaryProtocol.RESPONSE_STATUS_OK || iResult == OChannelBinaryProtocol.PUSH_DATA) {
       return iClientTxId;
     } else if (iResult == OChannelBinaryProtocol.RESPONSE_STATUS_ERROR) {
-
-      final List<OPair<String, String>> exceptions = new ArrayList<OPair<String, String>>();
-
-      // EXCEPTION
-      while (readByte() == 1) {
-        final String excClassName = readString();
-        final String excMessage = readString();
-        exceptions.add(new OPair<String, String>(excClassName, excMessage));
-      }
-
-      byte[] serializedException = null;
-      if (srvProtocolVersion >= 19)
-        serializedException = readBytes();
-
-      Exception previous = null;
-
-      if (serializedException != null && serializedException.length > 0)
-        throwSerializedException(serializedException);
-
-      for (int i = exceptions.size() - 1; i > -1; --i) {
-        previous = createException(exceptions.get(i).getKey(), exceptions.get(i).getValue(), previous);
-      }
-
-      if (previous != null) {
-        throw new RuntimeException(previous);
-      } else
-        throw new ONetworkProtocolException("Network response error");
-
+      throw readError();
     } else {
       // PROTOCOL ERROR
       // close();
@@ -377,7 +350,44 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
     }
   }
 
-  private void throwSerializedException(final byte[] serializedException) throws IOException {
+  /**
+   * Reads the error sent by the server after a {@link OChannelBinaryProtocol#RESPONSE_STATUS_ERROR} status. Used also by batch
+   * requests where every record has its own status.
+   * 
+   * @return the exception raised by the server
+   */
+  public RuntimeException readError() throws IOException {
+    final List<OPair<String, String>> exceptions = new ArrayList<OPair<String, String>>();
+
+    // EXCEPTION
+    while (readByte() == 1) {
+      final String excClassName = readString();
+      final String excMessage = readString();
+      exceptions.add(new OPair<String, String>(excClassName, excMessage));
+    }
+
+    byte[] serializedException = null;
+    if (srvProtocolVersion >= 19)
+      serializedException = readBytes();
+
+    if (serializedException != null && serializedException.length > 0) {
+      final RuntimeException exception = readSerializedException(serializedException);
+      if (exception != null)
+        return exception;
+    }
+
+    Exception previous = null;
+    for (int i = exceptions.size() - 1; i > -1; --i) {
+      previous = createException(exceptions.get(i).getKey(), exceptions.get(i).getValue(), previous);
+    }
+
+    if (previous != null)
+      return new RuntimeException(previous);
+    else
+      return new ONetworkProtocolException("Network response error");
+  }
+
+  private RuntimeException readSerializedException(final byte[] serializedException) throws IOException {
     final OMemoryInputStream inputStream = new OMemoryInputStream(serializedException);
     final ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
 
@@ -391,14 +401,15 @@ public class OChannelBinaryAsynchClient extends OChannelBinary {
     objectInputStream.close();
 
     if (throwable instanceof OException)
-      throw (OException) throwable;
+      return (OException) throwable;
     else if (throwable instanceof Throwable)
       // WRAP IT
-      throw new OResponseProcessingException("Exception during response processing.", (Throwable) throwable);
+      return new OResponseProcessingException("Exception during response processing.", (Throwable) throwable);
     else
       OLogManager.instance().error(
           this,
           "Error during exception serialization, serialized exception is not Throwable, exception type is "
               + (throwable != null ? throwable.getClass().getName() : "null"));
+    return null;
   }
 }
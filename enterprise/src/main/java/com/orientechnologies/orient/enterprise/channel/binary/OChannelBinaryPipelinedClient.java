@@ -0,0 +1,399 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.thread.OSoftThread;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+
+/**
+ * Client channel shared by many threads at the same time. Each thread writes its request under the write lock and doesn't wait
+ * for the previous responses, so many requests can be in flight on the same socket. The server executes the requests of a socket
+ * in order, so the responses come back in the same order: a demultiplexer thread reads each response in a buffer and hands it to
+ * the thread waiting for it, that reads the content from the buffer. Messages pushed by the server are read by the demultiplexer
+ * itself.<br/>
+ * Since the responses are read by the demultiplexer, a requester that fails or gives up before reading its response doesn't block
+ * the others: its response is just discarded. The binary protocol doesn't send the length of the responses, so only the requests
+ * whose response format is known by {@link #readResponse(byte)} can be pipelined. The thread reading the response must be the one
+ * that sent the request.
+ */
+public class OChannelBinaryPipelinedClient extends OChannelBinaryAsynchClient {
+  private static final long                               CHECK_INTERVAL = 1000;
+
+  private final ConcurrentLinkedQueue<OPipelinedResponse> pending        = new ConcurrentLinkedQueue<OPipelinedResponse>();
+  private final ThreadLocal<OPipelinedResponse>           threadResponse = new ThreadLocal<OPipelinedResponse>();
+  private final ThreadLocal<InputStream>                  threadInput    = new ThreadLocal<InputStream>();
+  private final AtomicInteger                             inFlight       = new AtomicInteger();
+  private final ORemoteServerEventListener                asynchEventListener;
+  private final OSoftThread                               demultiplexer;
+  private final InputStream                               socketInput;
+  private ByteArrayOutputStream                           capture;
+  private OPipelinedResponse                              requestResponse;
+
+  private static class OPipelinedResponse {
+    private final byte           command;
+    private final int            sessionId;
+    private final CountDownLatch read = new CountDownLatch(1);
+    private volatile byte        status;
+    private volatile byte[]      content;
+    private volatile boolean     failed;
+
+    private OPipelinedResponse(final byte iCommand, final int iSessionId) {
+      command = iCommand;
+      sessionId = iSessionId;
+    }
+
+    private void fail() {
+      failed = true;
+      read.countDown();
+    }
+  }
+
+  public OChannelBinaryPipelinedClient(final String remoteHost, final int remotePort, final String iDatabaseName,
+      final OContextConfiguration iConfig, final int protocolVersion, final ORemoteServerEventListener iAsynchEventListener)
+      throws IOException {
+    // PUSHED MESSAGES ARE READ BY THE DEMULTIPLEXER: NO SERVICE THREAD
+    super(remoteHost, remotePort, iDatabaseName, iConfig, protocolVersion, null);
+    asynchEventListener = iAsynchEventListener;
+
+    // REQUESTERS READ THEIR BUFFERED RESPONSE, THE DEMULTIPLEXER READS THE SOCKET
+    socketInput = inStream;
+    in = new DataInputStream(new InputStream() {
+      @Override
+      public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+        final InputStream response = threadInput.get();
+        if (response != null)
+          return response.read(b, off, len);
+
+        final int read = socketInput.read(b, off, len);
+        if (read > 0 && capture != null)
+          capture.write(b, off, read);
+        return read;
+      }
+
+      @Override
+      public int available() throws IOException {
+        final InputStream response = threadInput.get();
+        return response != null ? response.available() : socketInput.available();
+      }
+    });
+
+    demultiplexer = new OSoftThread(Orient.instance().getThreadGroup(), "OrientDB <- Pipelined Client ("
+        + socket.getRemoteSocketAddress() + ")") {
+      @Override
+      protected void execute() {
+        readNextResponse();
+      }
+
+      @Override
+      public void shutdown() {
+        failPendingRequests();
+      }
+    };
+    demultiplexer.start();
+  }
+
+  /**
+   * Tells if the response of the request can be read by the demultiplexer, so the request can be sent on a pipelined channel.
+   */
+  public static boolean isPipelineSupported(final byte iCommand) {
+    switch (iCommand) {
+    case OChannelBinaryProtocol.REQUEST_RECORD_LOAD:
+    case OChannelBinaryProtocol.REQUEST_RECORD_METADATA:
+    case OChannelBinaryProtocol.REQUEST_RECORD_CREATE:
+    case OChannelBinaryProtocol.REQUEST_RECORD_UPDATE:
+    case OChannelBinaryProtocol.REQUEST_RECORD_DELETE:
+    case OChannelBinaryProtocol.REQUEST_RECORD_HIDE:
+    case OChannelBinaryProtocol.REQUEST_RECORD_CLEAN_OUT:
+    case OChannelBinaryProtocol.REQUEST_DB_SIZE:
+    case OChannelBinaryProtocol.REQUEST_DB_COUNTRECORDS:
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_COUNT:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Locks the channel for writing and writes the request header.
+   */
+  public void beginRequest(final byte iCommand, final int iSessionId) throws IOException {
+    if (!isPipelineSupported(iCommand))
+      throw new ONetworkProtocolException("Request " + iCommand + " cannot be sent on pipelined channel " + this);
+
+    acquireWriteLock();
+    try {
+      if (!isConnected())
+        throw new IOException("Channel is closed");
+
+      requestResponse = new OPipelinedResponse(iCommand, iSessionId);
+      writeByte(iCommand);
+      writeInt(iSessionId);
+    } catch (IOException e) {
+      releaseWriteLock();
+      throw e;
+    }
+  }
+
+  /**
+   * Sends the request and registers the response as expected by the current thread.
+   */
+  @Override
+  public void endRequest() throws IOException {
+    if (!getLockWrite().isHeldByCurrentThread())
+      // NO REQUEST STARTED BY THE CURRENT THREAD
+      return;
+
+    final OPipelinedResponse response = requestResponse;
+    requestResponse = null;
+    try {
+      // ENQUEUE BEFORE FLUSHING: THE RESPONSE COULD ARRIVE BEFORE FLUSH() RETURNS
+      pending.offer(response);
+      inFlight.incrementAndGet();
+      threadResponse.set(response);
+      // FORGET ANY RESPONSE LEFT BY A PREVIOUS REQUEST THAT FAILED
+      threadInput.remove();
+
+      flush();
+    } catch (IOException e) {
+      close();
+      throw e;
+    } finally {
+      releaseWriteLock();
+    }
+  }
+
+  /**
+   * Waits for the response of the request sent by the current thread. On timeout only this request fails: its response will be
+   * discarded once received.
+   */
+  @Override
+  public void beginResponse(final int iRequesterId, final long iTimeout) throws IOException {
+    final OPipelinedResponse response = threadResponse.get();
+    if (response == null)
+      throw new ONetworkProtocolException("No request sent by the current thread on pipelined channel " + this);
+
+    final long startClock = System.currentTimeMillis();
+    try {
+      while (!response.read.await(iTimeout > 0 ? Math.min(CHECK_INTERVAL, iTimeout) : CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+        if (!isConnected()) {
+          threadResponse.remove();
+          throw new IOException("Channel is closed");
+        }
+
+        if (iTimeout > 0 && System.currentTimeMillis() - startClock >= iTimeout) {
+          // GIVE UP THIS RESPONSE ONLY: THE CHANNEL IS STILL IN SYNC
+          threadResponse.remove();
+          throw new OTimeoutException("Timeout on reading response from the server "
+              + (socket != null ? socket.getRemoteSocketAddress() : "") + " for the request " + iRequesterId);
+        }
+      }
+    } catch (InterruptedException e) {
+      threadResponse.remove();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the response");
+    }
+
+    if (response.failed) {
+      threadResponse.remove();
+      throw new IOException("Channel is closed");
+    }
+
+    threadInput.set(new ByteArrayInputStream(response.content));
+    handleStatus(response.status, response.sessionId);
+  }
+
+  /**
+   * Discards what is left of the response read by the current thread.
+   */
+  @Override
+  public void endResponse() {
+    threadResponse.remove();
+    threadInput.remove();
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    demultiplexer.sendShutdown();
+    failPendingRequests();
+  }
+
+  /**
+   * Returns the number of requests waiting for their response.
+   */
+  public int getInFlightRequests() {
+    return inFlight.get();
+  }
+
+  private void readNextResponse() {
+    try {
+      final byte status = readByte();
+      final int sessionId = readInt();
+
+      if (status == OChannelBinaryProtocol.PUSH_DATA && sessionId == Integer.MIN_VALUE) {
+        OAsynchChannelServiceThread.readPushRequest(this, asynchEventListener);
+        return;
+      }
+
+      final OPipelinedResponse response = pending.peek();
+      if (response == null || response.sessionId != sessionId)
+        throw new ONetworkProtocolException("Received response for session " + sessionId + " while expecting "
+            + (response != null ? "session " + response.sessionId : "no response"));
+
+      capture = new ByteArrayOutputStream();
+      try {
+        if (status == OChannelBinaryProtocol.RESPONSE_STATUS_ERROR)
+          readErrorContent();
+        else
+          readResponse(response.command);
+
+        response.content = capture.toByteArray();
+      } finally {
+        capture = null;
+      }
+
+      pending.poll();
+      inFlight.decrementAndGet();
+      response.status = status;
+      response.read.countDown();
+
+    } catch (Exception e) {
+      if (isConnected())
+        OLogManager.instance().debug(this, "Error on reading responses from %s, closing the channel", e, this);
+
+      // THE CHANNEL IS UNUSABLE: ALL THE REQUESTS IN FLIGHT FAIL
+      demultiplexer.sendShutdown();
+      super.close();
+    }
+  }
+
+  /**
+   * Reads the content of the response to the request, as sent by the server.
+   */
+  private void readResponse(final byte iCommand) throws IOException {
+    switch (iCommand) {
+    case OChannelBinaryProtocol.REQUEST_RECORD_LOAD:
+      if (readByte() == 0)
+        // NOT FOUND
+        break;
+
+      readBytes();
+      readVersion();
+      readByte();
+      while (readByte() == 2)
+        // RECORDS OF THE FETCH PLAN
+        readIdentifiableContent();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_METADATA:
+      readRID();
+      readVersion();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_CREATE:
+      readClusterPosition();
+      if (srvProtocolVersion >= 11)
+        readVersion();
+      if (srvProtocolVersion >= 20)
+        readCollectionChangesContent();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_UPDATE:
+      readVersion();
+      readCollectionChangesContent();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_RECORD_DELETE:
+    case OChannelBinaryProtocol.REQUEST_RECORD_HIDE:
+    case OChannelBinaryProtocol.REQUEST_RECORD_CLEAN_OUT:
+      readByte();
+      break;
+
+    case OChannelBinaryProtocol.REQUEST_DB_SIZE:
+    case OChannelBinaryProtocol.REQUEST_DB_COUNTRECORDS:
+    case OChannelBinaryProtocol.REQUEST_DATACLUSTER_COUNT:
+      readLong();
+      break;
+
+    default:
+      throw new ONetworkProtocolException("Unknown response format for request " + iCommand);
+    }
+  }
+
+  private void readErrorContent() throws IOException {
+    while (readByte() == 1) {
+      readString();
+      readString();
+    }
+    if (srvProtocolVersion >= 19)
+      readBytes();
+  }
+
+  private void readIdentifiableContent() throws IOException {
+    final int classId = readShort();
+    if (classId == OChannelBinaryProtocol.RECORD_NULL)
+      return;
+
+    if (classId == OChannelBinaryProtocol.RECORD_RID)
+      readRID();
+    else {
+      readByte();
+      readRID();
+      readVersion();
+      readBytes();
+    }
+  }
+
+  private void readCollectionChangesContent() throws IOException {
+    final int count = readInt();
+    for (int i = 0; i < count; i++) {
+      // COLLECTION UUID
+      readLong();
+      readLong();
+      // FILE ID AND ROOT BUCKET POINTER
+      readLong();
+      readLong();
+      readInt();
+    }
+  }
+
+  private void failPendingRequests() {
+    OPipelinedResponse response;
+    while ((response = pending.poll()) != null) {
+      inFlight.decrementAndGet();
+      response.fail();
+    }
+  }
+}
@@ -35,6 +35,8 @@ import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
 
 import com.orientechnologies.orient.core.config.OContextConfiguration;
@@ -51,4 +53,20 @@ public class OChannelBinaryServer extends OChannelBinary {
 		in = new DataInputStream(inStream);
 		connected();
 	}
+
+	/**
+	 * Creates a channel over streams provided by the caller, like the ones of a non-blocking transport where the socket streams
+	 * cannot be used directly.
+	 */
+	public OChannelBinaryServer(final Socket iSocket, final InputStream iInput, final OutputStream iOutput,
+			final OContextConfiguration iConfig) throws IOException {
+		super(iSocket, iConfig);
+
+		inStream = iInput;
+		outStream = iOutput;
+
+		out = new DataOutputStream(outStream);
+		in = new DataInputStream(inStream);
+		connected();
+	}
 }
\ No newline at end of file
@@ -34,8 +34,10 @@ public class OGraphFunctionFactory implements OSQLFunctionFactory {
   private static final Map<String, Object> FUNCTIONS = new HashMap<String, Object>();
   static {
     register(OSQLFunctionGremlin.NAME, OSQLFunctionGremlin.class);
-    register(OSQLFunctionDijkstra.NAME, new OSQLFunctionDijkstra());
-    register(OSQLFunctionShortestPath.NAME, new OSQLFunctionShortestPath());
+    // PATH FINDERS KEEP THE STATE OF THE SEARCH: ONE INSTANCE PER QUERY
+    register(OSQLFunctionDijkstra.NAME, OSQLFunctionDijkstra.class);
+    register(OSQLFunctionAStar.NAME, OSQLFunctionAStar.class);
+    register(OSQLFunctionShortestPath.NAME, OSQLFunctionShortestPath.class);
 
     register(OSQLFunctionLabel.NAME, new OSQLFunctionLabel());
     register(OSQLFunctionOut.NAME, new OSQLFunctionOut());
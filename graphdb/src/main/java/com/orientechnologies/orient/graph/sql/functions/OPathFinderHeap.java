@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.sql.functions;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of vertex indexes of {@link OPathFinderVertices} ordered by a float priority. The position of every
+ * vertex in the heap is tracked, so the priority of a vertex already in the heap is decreased in O(log n) instead of adding it
+ * twice.
+ */
+final class OPathFinderHeap {
+  private int[]   heap       = new int[64];
+  private float[] priorities = new float[64];
+  private int[]   positions  = new int[64];
+  private int     size;
+
+  public OPathFinderHeap() {
+    Arrays.fill(positions, -1);
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean contains(final int iVertex) {
+    return iVertex < positions.length && positions[iVertex] > -1;
+  }
+
+  /**
+   * Adds the vertex or moves it up if it is already in the heap with a higher priority.
+   */
+  public void offer(final int iVertex, final float iPriority) {
+    if (iVertex >= positions.length) {
+      final int oldLength = positions.length;
+      positions = Arrays.copyOf(positions, Math.max(oldLength << 1, iVertex + 1));
+      Arrays.fill(positions, oldLength, positions.length, -1);
+    }
+
+    int position = positions[iVertex];
+    if (position == -1) {
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size << 1);
+        priorities = Arrays.copyOf(priorities, size << 1);
+      }
+      position = size++;
+    } else if (priorities[position] <= iPriority)
+      return;
+
+    siftUp(position, iVertex, iPriority);
+  }
+
+  /**
+   * Removes and returns the vertex with the lowest priority.
+   */
+  public int poll() {
+    final int first = heap[0];
+    positions[first] = -1;
+
+    --size;
+    if (size > 0)
+      siftDown(0, heap[size], priorities[size]);
+
+    return first;
+  }
+
+  private void siftUp(int iPosition, final int iVertex, final float iPriority) {
+    while (iPosition > 0) {
+      final int parent = (iPosition - 1) >>> 1;
+      if (priorities[parent] <= iPriority)
+        break;
+
+      set(iPosition, heap[parent], priorities[parent]);
+      iPosition = parent;
+    }
+    set(iPosition, iVertex, iPriority);
+  }
+
+  private void siftDown(int iPosition, final int iVertex, final float iPriority) {
+    final int half = size >>> 1;
+    while (iPosition < half) {
+      int child = (iPosition << 1) + 1;
+      final int right = child + 1;
+      if (right < size && priorities[right] < priorities[child])
+        child = right;
+
+      if (iPriority <= priorities[child])
+        break;
+
+      set(iPosition, heap[child], priorities[child]);
+      iPosition = child;
+    }
+    set(iPosition, iVertex, iPriority);
+  }
+
+  private void set(final int iPosition, final int iVertex, final float iPriority) {
+    heap[iPosition] = iVertex;
+    priorities[iPosition] = iPriority;
+    positions[iVertex] = iPosition;
+  }
+}
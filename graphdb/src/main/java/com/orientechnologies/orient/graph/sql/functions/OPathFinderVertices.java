@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.sql.functions;
+
+import java.util.Arrays;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORIDIntHashMap;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Working set of the path finder functions. Every reached vertex gets a sequential index, its RID, distance and links to the
+ * previous and next vertex of the path are kept in primitive arrays by that index. Indexes of the vertexes are found by a
+ * {@link ORIDIntHashMap} on cluster id and cluster position, so no wrapper or boxed value is kept per vertex.
+ */
+final class OPathFinderVertices {
+  public static final int      NONE          = -1;
+
+  private static final byte    SETTLED       = 1;
+  private static final byte    FORWARD       = 2;
+  private static final byte    BACKWARD      = 4;
+
+  private final boolean        longPositions = !OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.getValueAsBoolean();
+
+  private final ORIDIntHashMap indexes;
+  private int[]                clusterIds;
+  private long[]               clusterPositions;
+  private ORID[]               identities;
+  private float[]              distances;
+  private int[]                predecessors;
+  private int[]                successors;
+  private byte[]               flags;
+  private int                  size;
+
+  public OPathFinderVertices() {
+    this(64);
+  }
+
+  public OPathFinderVertices(final int iInitialCapacity) {
+    indexes = new ORIDIntHashMap(iInitialCapacity, NONE);
+
+    clusterIds = new int[iInitialCapacity];
+    if (longPositions)
+      clusterPositions = new long[iInitialCapacity];
+    else
+      identities = new ORID[iInitialCapacity];
+    distances = new float[iInitialCapacity];
+    predecessors = new int[iInitialCapacity];
+    successors = new int[iInitialCapacity];
+    flags = new byte[iInitialCapacity];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the index of the vertex with passed in RID or {@link #NONE} if it was not reached yet.
+   */
+  public int indexOf(final ORID iRid) {
+    return indexes.get(iRid);
+  }
+
+  /**
+   * Returns the index of the vertex with passed in RID, the vertex is added with infinite distance if it was not reached yet.
+   */
+  public int add(final ORID iRid) {
+    final int found = indexes.get(iRid);
+    if (found != NONE)
+      return found;
+
+    if (size == clusterIds.length)
+      grow();
+
+    final int index = size++;
+    clusterIds[index] = iRid.getClusterId();
+    if (longPositions)
+      clusterPositions[index] = iRid.getClusterPosition().longValue();
+    else
+      identities[index] = iRid.copy();
+    distances[index] = Float.MAX_VALUE;
+    predecessors[index] = NONE;
+    successors[index] = NONE;
+    flags[index] = 0;
+
+    indexes.put(iRid, index);
+    return index;
+  }
+
+  public ORID getIdentity(final int iIndex) {
+    if (longPositions)
+      return new ORecordId(clusterIds[iIndex], OClusterPositionFactory.INSTANCE.valueOf(clusterPositions[iIndex]));
+    return identities[iIndex];
+  }
+
+  public float getDistance(final int iIndex) {
+    return distances[iIndex];
+  }
+
+  public void setDistance(final int iIndex, final float iDistance) {
+    distances[iIndex] = iDistance;
+  }
+
+  public int getPredecessor(final int iIndex) {
+    return predecessors[iIndex];
+  }
+
+  public void setPredecessor(final int iIndex, final int iPredecessor) {
+    predecessors[iIndex] = iPredecessor;
+  }
+
+  public int getSuccessor(final int iIndex) {
+    return successors[iIndex];
+  }
+
+  public void setSuccessor(final int iIndex, final int iSuccessor) {
+    successors[iIndex] = iSuccessor;
+  }
+
+  public boolean isSettled(final int iIndex) {
+    return (flags[iIndex] & SETTLED) != 0;
+  }
+
+  public void setSettled(final int iIndex) {
+    flags[iIndex] |= SETTLED;
+  }
+
+  /**
+   * Tells if the vertex was reached by the search started from the source vertex.
+   */
+  public boolean isForward(final int iIndex) {
+    return (flags[iIndex] & FORWARD) != 0;
+  }
+
+  public void setForward(final int iIndex) {
+    flags[iIndex] |= FORWARD;
+  }
+
+  /**
+   * Tells if the vertex was reached by the search started from the destination vertex.
+   */
+  public boolean isBackward(final int iIndex) {
+    return (flags[iIndex] & BACKWARD) != 0;
+  }
+
+  public void setBackward(final int iIndex) {
+    flags[iIndex] |= BACKWARD;
+  }
+
+  private void grow() {
+    final int capacity = Math.max(clusterIds.length << 1, 16);
+    clusterIds = Arrays.copyOf(clusterIds, capacity);
+    if (longPositions)
+      clusterPositions = Arrays.copyOf(clusterPositions, capacity);
+    else
+      identities = Arrays.copyOf(identities, capacity);
+    distances = Arrays.copyOf(distances, capacity);
+    predecessors = Arrays.copyOf(predecessors, capacity);
+    successors = Arrays.copyOf(successors, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.sql.functions;
+
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+/**
+ * Estimates the remaining distance from a vertex to the destination for the A* path finder. The estimation should never be
+ * greater than the real distance, otherwise the returned path can be longer than the shortest one.
+ * 
+ * Implementations are registered by name with {@link OSQLFunctionAStar#registerHeuristic(String, Class)} and need an empty
+ * constructor.
+ */
+public interface OPathHeuristic {
+  /**
+   * Configures the heuristic with the function parameters that follow its name.
+   */
+  public void config(Object[] iParameters);
+
+  public float estimate(OrientVertex iVertex, OrientVertex iDestination);
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.sql.functions;
+
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+/**
+ * Base class for heuristics that compute the distance between coordinates stored in vertex properties. Coordinate property names
+ * are the heuristic parameters, by default "x" and "y". Vertexes without coordinates are estimated at distance 0.
+ */
+public abstract class OPathHeuristicAbstract implements OPathHeuristic {
+  protected String[]     fieldNames = new String[] { "x", "y" };
+
+  private OrientVertex   destination;
+  private final double[] destinationCoordinates = new double[16];
+  private boolean        destinationValid;
+
+  public void config(final Object[] iParameters) {
+    if (iParameters != null && iParameters.length > 0) {
+      if (iParameters.length > destinationCoordinates.length)
+        throw new IllegalArgumentException("Heuristic supports up to " + destinationCoordinates.length + " coordinates");
+
+      fieldNames = new String[iParameters.length];
+      for (int i = 0; i < iParameters.length; ++i)
+        fieldNames[i] = OStringSerializerHelper.getStringContent(iParameters[i]);
+    }
+  }
+
+  public float estimate(final OrientVertex iVertex, final OrientVertex iDestination) {
+    if (destination == null || !destination.getIdentity().equals(iDestination.getIdentity())) {
+      destination = iDestination;
+      destinationValid = getCoordinates(iDestination, destinationCoordinates);
+    }
+
+    if (!destinationValid)
+      return 0f;
+
+    double distance = 0;
+    for (int i = 0; i < fieldNames.length; ++i) {
+      final Object value = iVertex.getProperty(fieldNames[i]);
+      if (!(value instanceof Number))
+        return 0f;
+
+      distance = accumulate(distance, ((Number) value).doubleValue() - destinationCoordinates[i]);
+    }
+    return (float) complete(distance);
+  }
+
+  /**
+   * Adds the difference on one coordinate to the distance computed so far.
+   */
+  protected abstract double accumulate(double iDistance, double iDelta);
+
+  protected double complete(final double iDistance) {
+    return iDistance;
+  }
+
+  private boolean getCoordinates(final OrientVertex iVertex, final double[] iCoordinates) {
+    for (int i = 0; i < fieldNames.length; ++i) {
+      final Object value = iVertex.getProperty(fieldNames[i]);
+      if (!(value instanceof Number))
+        return false;
+      iCoordinates[i] = ((Number) value).doubleValue();
+    }
+    return true;
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.sql.functions;
+
+/**
+ * Sum of the absolute differences of vertex coordinates, for graphs where edges only move along one axis at a time.
+ */
+public class OPathHeuristicManhattan extends OPathHeuristicAbstract {
+  public static final String NAME = "manhattan";
+
+  @Override
+  protected double accumulate(final double iDistance, final double iDelta) {
+    return iDistance + Math.abs(iDelta);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.sql.functions;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+/**
+ * A* algorithm: Dijkstra guided by a heuristic that estimates the remaining distance to the destination vertex, so vertexes far
+ * from the destination are not settled at all.
+ * 
+ * The first 4 parameters are the same of {@link OSQLFunctionDijkstra}, the fifth is the name of the heuristic ("euclidean" by
+ * default, "manhattan" or the name of a class implementing {@link OPathHeuristic}). The following parameters configure the
+ * heuristic: for the built-in ones they are the names of the vertex properties with the coordinates, by default "x" and "y".
+ * 
+ * Example: select astar($current, #9:10, 'distance', 'both', 'euclidean', 'lat', 'lon') from #9:1
+ */
+public class OSQLFunctionAStar extends OSQLFunctionDijkstra {
+  public static final String                                         NAME       = "astar";
+
+  private static final Map<String, Class<? extends OPathHeuristic>> HEURISTICS = new ConcurrentHashMap<String, Class<? extends OPathHeuristic>>();
+  static {
+    registerHeuristic(OPathHeuristicEuclidean.NAME, OPathHeuristicEuclidean.class);
+    registerHeuristic(OPathHeuristicManhattan.NAME, OPathHeuristicManhattan.class);
+  }
+
+  private OPathHeuristic                                             heuristic;
+
+  public OSQLFunctionAStar() {
+    super(NAME, 3, 20);
+  }
+
+  public static void registerHeuristic(final String iName, final Class<? extends OPathHeuristic> iClass) {
+    HEURISTICS.put(iName.toLowerCase(Locale.ENGLISH), iClass);
+  }
+
+  public LinkedList<OrientVertex> execute(Object iThis, OIdentifiable iCurrentRecord, Object iCurrentResult,
+      final Object[] iParams, OCommandContext iContext) {
+    final String heuristicName = iParams.length > 4 ? OStringSerializerHelper.getStringContent(iParams[4])
+        : OPathHeuristicEuclidean.NAME;
+
+    heuristic = createHeuristic(heuristicName);
+    heuristic.config(iParams.length > 5 ? Arrays.copyOfRange(iParams, 5, iParams.length) : null);
+
+    return super.execute(iThis, iCurrentRecord, iCurrentResult, Arrays.copyOf(iParams, Math.min(iParams.length, 4)), iContext);
+  }
+
+  public String getSyntax() {
+    return "astar(<sourceVertex>, <destinationVertex>, <weightEdgeFieldName>, [<direction>], [<heuristic>], [<heuristicParams>*])";
+  }
+
+  @Override
+  protected OPathHeuristic getHeuristic() {
+    return heuristic;
+  }
+
+  @SuppressWarnings("unchecked")
+  protected OPathHeuristic createHeuristic(final String iName) {
+    Class<? extends OPathHeuristic> cls = HEURISTICS.get(iName.toLowerCase(Locale.ENGLISH));
+    try {
+      if (cls == null)
+        cls = (Class<? extends OPathHeuristic>) Class.forName(iName);
+
+      return cls.newInstance();
+    } catch (Exception e) {
+      throw new OCommandExecutionException("Error on creation of heuristic '" + iName
+          + "': it is neither a registered heuristic nor a class implementing OPathHeuristic with an empty constructor", e);
+    }
+  }
+}
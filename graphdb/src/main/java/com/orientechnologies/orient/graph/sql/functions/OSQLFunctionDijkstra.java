@@ -15,7 +15,6 @@
  */
 package com.orientechnologies.orient.graph.sql.functions;
 
-import java.util.Iterator;
 import java.util.LinkedList;
 
 import com.orientechnologies.common.collection.OMultiValue;
@@ -50,6 +49,10 @@ public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder {
     super(NAME, 3, 4);
   }
 
+  protected OSQLFunctionDijkstra(final String iName, final int iMinParams, final int iMaxParams) {
+    super(iName, iMinParams, iMaxParams);
+  }
+
   public LinkedList<OrientVertex> execute(Object iThis, OIdentifiable iCurrentRecord, Object iCurrentResult,
       final Object[] iParams,      OCommandContext iContext) {
     final OrientBaseGraph graph = OGraphCommandExecutorSQLFactory.getGraph(false);
@@ -83,19 +86,13 @@ public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder {
     return "dijkstra(<sourceVertex>, <destinationVertex>, <weightEdgeFieldName>, [<direction>])";
   }
 
-  protected float getDistance(final OrientVertex node, final OrientVertex target) {
-    final Iterator<Edge> edges = node.getEdges(target, paramDirection).iterator();
-    if (edges.hasNext()) {
-      final Edge e = edges.next();
-      if (e != null) {
-        final Object fieldValue = e.getProperty(paramWeightFieldName);
-        if (fieldValue != null)
-          if (fieldValue instanceof Float)
-            return (Float) fieldValue;
-          else if (fieldValue instanceof Number)
-            return ((Number) fieldValue).floatValue();
-      }
-    }
+  protected float getDistance(final OrientVertex node, final Edge edge) {
+    final Object fieldValue = edge.getProperty(paramWeightFieldName);
+    if (fieldValue != null)
+      if (fieldValue instanceof Float)
+        return (Float) fieldValue;
+      else if (fieldValue instanceof Number)
+        return ((Number) fieldValue).floatValue();
     return MIN;
   }
 
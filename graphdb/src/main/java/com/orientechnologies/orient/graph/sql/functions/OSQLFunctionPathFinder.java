@@ -15,39 +15,41 @@
  */
 package com.orientechnologies.orient.graph.sql.functions;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.Map;
-import java.util.Set;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMathAbstract;
 import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
 import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientEdge;
 import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 
 /**
- * Abstract class to find paths between nodes.
+ * Abstract class to find paths between nodes. Functions with variable edge weight are resolved with Dijkstra (or A* when a
+ * heuristic is provided) on an indexed binary heap, functions with constant edge weight with a bidirectional breadth-first search
+ * that expands the smaller frontier first. Reached vertexes are kept in {@link OPathFinderVertices}, keyed by cluster id and
+ * position.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
 public abstract class OSQLFunctionPathFinder extends OSQLFunctionMathAbstract {
-  protected OrientBaseGraph         db;
-  protected Set<OrientVertex>       unSettledNodes;
-  protected Map<ORID, OrientVertex> predecessors;
-  protected Map<ORID, Float>        distance;
+  protected OrientBaseGraph     db;
+  protected OrientVertex        paramSourceVertex;
+  protected OrientVertex        paramDestinationVertex;
+  protected Direction           paramDirection = Direction.OUT;
+  protected OCommandContext     context;
 
-  protected OrientVertex            paramSourceVertex;
-  protected OrientVertex            paramDestinationVertex;
-  protected Direction               paramDirection = Direction.OUT;
-  protected OCommandContext         context;
+  protected static final float  MIN            = 0f;
 
-  protected static final float      MIN            = 0f;
+  private OPathFinderVertices   vertices;
+  private int                   found          = OPathFinderVertices.NONE;
+  private int                   maxUnSettled;
 
   public OSQLFunctionPathFinder(final String iName, final int iMinParams, final int iMaxParams) {
     super(iName, iMinParams, iMaxParams);
@@ -55,43 +57,25 @@ public abstract class OSQLFunctionPathFinder extends OSQLFunctionMathAbstract {
 
   protected LinkedList<OrientVertex> execute(final OCommandContext iContext) {
     context = iContext;
-    unSettledNodes = new HashSet<OrientVertex>();
-    distance = new HashMap<ORID, Float>();
-    predecessors = new HashMap<ORID, OrientVertex>();
-    distance.put(paramSourceVertex.getIdentity(), MIN);
-    unSettledNodes.add(paramSourceVertex);
-
-    int maxDistances = 0;
-    int maxSettled = 0;
-    int maxUnSettled = 0;
-    int maxPredecessors = 0;
-
-    while (continueTraversing()) {
-      final OrientVertex node = getMinimum(unSettledNodes);
-      unSettledNodes.remove(node);
-      findMinimalDistances(node);
-
-      if (distance.size() > maxDistances)
-        maxDistances = distance.size();
-      if (unSettledNodes.size() > maxUnSettled)
-        maxUnSettled = unSettledNodes.size();
-      if (predecessors.size() > maxPredecessors)
-        maxPredecessors = predecessors.size();
-
-      if( !isVariableEdgeWeight() && distance.containsKey(paramDestinationVertex.getIdentity()))
-        // FOUND
-        break;
+    vertices = new OPathFinderVertices();
+    found = OPathFinderVertices.NONE;
+    maxUnSettled = 0;
 
-      if (!context.checkTimeout())
-        break;
-    }
+    if (paramSourceVertex == null || paramDestinationVertex == null)
+      return null;
 
-    context.setVariable("maxDistances", maxDistances);
-    context.setVariable("maxSettled", maxSettled);
-    context.setVariable("maxUnSettled", maxUnSettled);
-    context.setVariable("maxPredecessors", maxPredecessors);
+    db = paramSourceVertex.getGraph();
+
+    final int settled;
+    if (isVariableEdgeWeight())
+      settled = searchWeighted();
+    else
+      settled = searchBidirectional();
 
-    distance = null;
+    context.setVariable("maxDistances", vertices.size());
+    context.setVariable("maxSettled", settled);
+    context.setVariable("maxUnSettled", maxUnSettled);
+    context.setVariable("maxPredecessors", vertices.size());
 
     return getPath();
   }
@@ -100,23 +84,26 @@ public abstract class OSQLFunctionPathFinder extends OSQLFunctionMathAbstract {
     return false;
   }
 
+  /**
+   * Returns the heuristic used to estimate the distance to the destination vertex, NULL to run plain Dijkstra. Considered only
+   * when the edge weight is variable.
+   */
+  protected OPathHeuristic getHeuristic() {
+    return null;
+  }
+
   /*
    * This method returns the path from the source to the selected target and NULL if no path exists
    */
   public LinkedList<OrientVertex> getPath() {
-    final LinkedList<OrientVertex> path = new LinkedList<OrientVertex>();
-    OrientVertex step = paramDestinationVertex;
-    // Check if a path exists
-    if (predecessors.get(step.getIdentity()) == null)
+    if (vertices == null || found == OPathFinderVertices.NONE)
       return null;
 
-    path.add(step);
-    while (predecessors.get(step.getIdentity()) != null) {
-      step = predecessors.get(step.getIdentity());
-      path.add(step);
-    }
-    // Put it into the correct order
-    Collections.reverse(path);
+    final LinkedList<OrientVertex> path = new LinkedList<OrientVertex>();
+    for (int i = found; i != OPathFinderVertices.NONE; i = vertices.getPredecessor(i))
+      path.addFirst(getVertex(i));
+    for (int i = vertices.getSuccessor(found); i != OPathFinderVertices.NONE; i = vertices.getSuccessor(i))
+      path.addLast(getVertex(i));
     return path;
   }
 
@@ -129,64 +116,192 @@ public abstract class OSQLFunctionPathFinder extends OSQLFunctionMathAbstract {
     return getPath();
   }
 
-  protected void findMinimalDistances(final OrientVertex node) {
-    for (OrientVertex neighbor : getNeighbors(node)) {
-      final float d = sumDistances(getShortestDistance(node), getDistance(node, neighbor));
+  protected float sumDistances(final float iDistance1, final float iDistance2) {
+    return iDistance1 + iDistance2;
+  }
+
+  /**
+   * Returns the weight of the edge crossed to go from node to its neighbor.
+   */
+  protected abstract float getDistance(final OrientVertex node, final Edge edge);
 
-      if (getShortestDistance(neighbor) > d) {
-        distance.put(neighbor.getIdentity(), d);
-        predecessors.put(neighbor.getIdentity(), node);
-        unSettledNodes.add(neighbor);
+  /**
+   * Dijkstra/A*: settles the vertexes in order of distance from the source (plus the estimated distance to the destination) and
+   * stops as soon as the destination is settled.
+   * 
+   * @return the number of settled vertexes
+   */
+  private int searchWeighted() {
+    final OPathHeuristic heuristic = getHeuristic();
+    final OPathFinderHeap unSettled = new OPathFinderHeap();
+
+    final ORID destinationRid = paramDestinationVertex.getIdentity();
+    final int source = vertices.add(paramSourceVertex.getIdentity());
+    vertices.setDistance(source, MIN);
+    unSettled.offer(source, heuristic != null ? heuristic.estimate(paramSourceVertex, paramDestinationVertex) : MIN);
+
+    int settled = 0;
+    while (!unSettled.isEmpty()) {
+      final int current = unSettled.poll();
+      vertices.setSettled(current);
+      settled++;
+
+      final OrientVertex node = getVertex(current);
+      if (node == null)
+        continue;
+
+      if (node.getIdentity().equals(destinationRid)) {
+        // SOURCE == DESTINATION IS NOT A PATH
+        if (current != source)
+          found = current;
+        break;
       }
-    }
 
-  }
+      context.incrementVariable("getNeighbors");
+
+      final float nodeDistance = vertices.getDistance(current);
+      for (Edge e : node.getEdges(paramDirection)) {
+        final OIdentifiable neighborId = getNeighbor(node.getIdentity(), (OrientEdge) e, paramDirection);
+        if (neighborId == null)
+          continue;
+
+        final int neighbor = vertices.add(neighborId.getIdentity());
+        if (vertices.isSettled(neighbor))
+          continue;
+
+        final float d = sumDistances(nodeDistance, getDistance(node, e));
+        if (d < vertices.getDistance(neighbor)) {
+          vertices.setDistance(neighbor, d);
+          vertices.setPredecessor(neighbor, current);
+
+          float priority = d;
+          if (heuristic != null) {
+            final OrientVertex v = db.getVertex(neighborId);
+            if (v != null)
+              priority += heuristic.estimate(v, paramDestinationVertex);
+          }
+          unSettled.offer(neighbor, priority);
+        }
+      }
 
-  protected Set<OrientVertex> getNeighbors(final Vertex node) {
-    context.incrementVariable("getNeighbors");
+      if (unSettled.size() > maxUnSettled)
+        maxUnSettled = unSettled.size();
 
-    final Set<OrientVertex> neighbors = new HashSet<OrientVertex>();
-    if (node != null) {
-      for (Vertex v : node.getVertices(paramDirection)) {
-        final OrientVertex ov = (OrientVertex) v;
-        if (ov != null && isNotSettled(ov))
-          neighbors.add(ov);
-      }
+      if (!context.checkTimeout())
+        break;
     }
-    return neighbors;
+    return settled;
   }
 
-  protected OrientVertex getMinimum(final Set<OrientVertex> vertexes) {
-    OrientVertex minimum = null;
-    Float minimumDistance = null;
-    for (OrientVertex vertex : vertexes) {
-      if (minimum == null || getShortestDistance(vertex) < minimumDistance) {
-        minimum = vertex;
-        minimumDistance = getShortestDistance(minimum);
+  /**
+   * Bidirectional breadth-first search: expands one whole level at a time of the smaller frontier, from the source following the
+   * requested direction and from the destination following the opposite one. The first vertex reached by both the searches is in
+   * the middle of a shortest path.
+   * 
+   * @return the number of expanded vertexes
+   */
+  private int searchBidirectional() {
+    final int source = vertices.add(paramSourceVertex.getIdentity());
+    final int destination = vertices.add(paramDestinationVertex.getIdentity());
+    if (source == destination)
+      // SOURCE == DESTINATION IS NOT A PATH
+      return 0;
+
+    vertices.setForward(source);
+    vertices.setBackward(destination);
+
+    final Direction backwardDirection = paramDirection == Direction.BOTH ? Direction.BOTH : paramDirection.opposite();
+
+    int[] forward = new int[] { source };
+    int[] backward = new int[] { destination };
+
+    int expanded = 0;
+    while (forward.length > 0 && backward.length > 0 && found == OPathFinderVertices.NONE) {
+      if (forward.length + backward.length > maxUnSettled)
+        maxUnSettled = forward.length + backward.length;
+
+      if (forward.length <= backward.length) {
+        expanded += forward.length;
+        forward = expand(forward, paramDirection, true);
+      } else {
+        expanded += backward.length;
+        backward = expand(backward, backwardDirection, false);
       }
+
+      if (!context.checkTimeout())
+        break;
     }
-    return minimum;
+    return expanded;
   }
 
-  protected boolean isNotSettled(final OrientVertex vertex) {
-    return unSettledNodes.contains(vertex) || !distance.containsKey(vertex.getIdentity());
-  }
+  /**
+   * Expands a frontier by one level and returns the next one, empty if the searches met.
+   */
+  private int[] expand(final int[] iFrontier, final Direction iDirection, final boolean iForward) {
+    int[] next = new int[16];
+    int nextSize = 0;
+
+    for (final int current : iFrontier) {
+      final OrientVertex node = getVertex(current);
+      if (node == null)
+        continue;
+
+      context.incrementVariable("getNeighbors");
+
+      for (Vertex v : node.getVertices(iDirection)) {
+        if (v == null)
+          continue;
+
+        final int neighbor = vertices.add(((OrientVertex) v).getIdentity());
+        if (iForward) {
+          if (vertices.isForward(neighbor))
+            continue;
+          vertices.setForward(neighbor);
+          vertices.setPredecessor(neighbor, current);
+          if (vertices.isBackward(neighbor)) {
+            found = neighbor;
+            return new int[0];
+          }
+        } else {
+          if (vertices.isBackward(neighbor))
+            continue;
+          vertices.setBackward(neighbor);
+          vertices.setSuccessor(neighbor, current);
+          if (vertices.isForward(neighbor)) {
+            found = neighbor;
+            return new int[0];
+          }
+        }
+
+        if (nextSize == next.length)
+          next = Arrays.copyOf(next, next.length << 1);
+        next[nextSize++] = neighbor;
+      }
+    }
 
-  protected boolean continueTraversing() {
-    return unSettledNodes.size() > 0;
+    return Arrays.copyOf(next, nextSize);
   }
 
-  protected float getShortestDistance(final OrientVertex destination) {
-    if (destination == null)
-      return Float.MAX_VALUE;
-
-    final Float d = distance.get(destination.getIdentity());
-    return d == null ? Float.MAX_VALUE : d;
+  private OrientVertex getVertex(final int iIndex) {
+    final ORID rid = vertices.getIdentity(iIndex);
+    if (rid.equals(paramSourceVertex.getIdentity()))
+      return paramSourceVertex;
+    if (rid.equals(paramDestinationVertex.getIdentity()))
+      return paramDestinationVertex;
+    return db.getVertex(rid);
   }
 
-  protected float sumDistances(final float iDistance1, final float iDistance2) {
-    return iDistance1 + iDistance2;
+  private static OIdentifiable getNeighbor(final ORID iVertex, final OrientEdge iEdge, final Direction iDirection) {
+    switch (iDirection) {
+    case OUT:
+      return iEdge.getInVertex();
+    case IN:
+      return iEdge.getOutVertex();
+    default:
+      final OIdentifiable out = iEdge.getOutVertex();
+      if (out != null && !out.getIdentity().equals(iVertex))
+        return out;
+      return iEdge.getInVertex();
+    }
   }
-
-  protected abstract float getDistance(final OrientVertex node, final OrientVertex target);
 }
@@ -15,6 +15,8 @@
  */
 package com.orientechnologies.orient.graph.sql.functions;
 
+import java.util.LinkedList;
+
 import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -22,11 +24,13 @@ import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 import com.orientechnologies.orient.graph.sql.OGraphCommandExecutorSQLFactory;
 import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.impls.orient.OrientBaseGraph;
 import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 
 /**
- * Shortest path algorithm to find the shortest path from one node to another node in a directed graph.
+ * Shortest path algorithm to find the shortest path from one node to another node in a directed graph. Every edge counts 1, so the
+ * path is found by a bidirectional breadth-first search.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
@@ -40,7 +44,7 @@ public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder {
     super(NAME, 2, 3);
   }
 
-  public Object execute(Object iThis, final OIdentifiable iCurrentRecord, Object iCurrentResult, final Object[] iParams,
+  public LinkedList<OrientVertex> execute(Object iThis, final OIdentifiable iCurrentRecord, Object iCurrentResult, final Object[] iParams,
       final OCommandContext iContext) {
     final OrientBaseGraph graph = OGraphCommandExecutorSQLFactory.getGraph(false);
 
@@ -69,7 +73,7 @@ public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder {
   }
 
   @Override
-  protected float getDistance(final OrientVertex node, final OrientVertex target) {
+  protected float getDistance(final OrientVertex node, final Edge edge) {
     return DISTANCE;
   }
 
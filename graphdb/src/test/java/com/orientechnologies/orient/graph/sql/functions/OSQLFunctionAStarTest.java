@@ -0,0 +1,87 @@
+package com.orientechnologies.orient.graph.sql.functions;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+public class OSQLFunctionAStarTest {
+  private static final int SIZE = 10;
+
+  private OrientGraph      graph;
+  private Vertex[][]       grid = new Vertex[SIZE][SIZE];
+
+  @Before
+  public void setUp() throws Exception {
+    graph = new OrientGraph("memory:OSQLFunctionAStarTest");
+
+    for (int x = 0; x < SIZE; ++x)
+      for (int y = 0; y < SIZE; ++y) {
+        grid[x][y] = graph.addVertex(null);
+        grid[x][y].setProperty("x", x);
+        grid[x][y].setProperty("y", y);
+      }
+
+    // GRID WITH ALL THE EDGES OF WEIGHT 1
+    for (int x = 0; x < SIZE; ++x)
+      for (int y = 0; y < SIZE; ++y) {
+        if (x + 1 < SIZE)
+          link(grid[x][y], grid[x + 1][y]);
+        if (y + 1 < SIZE)
+          link(grid[x][y], grid[x][y + 1]);
+      }
+    graph.commit();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    graph.shutdown();
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+    final OCommandContext dijkstraContext = new OBasicCommandContext();
+    final List<OrientVertex> dijkstra = new OSQLFunctionDijkstra().execute(null, null, null, new Object[] { grid[0][0],
+        grid[SIZE - 1][0], "'weight'", "BOTH" }, dijkstraContext);
+
+    final OCommandContext astarContext = new OBasicCommandContext();
+    final List<OrientVertex> astar = new OSQLFunctionAStar().execute(null, null, null, new Object[] { grid[0][0],
+        grid[SIZE - 1][0], "'weight'", "BOTH", "'manhattan'", "'x'", "'y'" }, astarContext);
+
+    assertEquals(SIZE, dijkstra.size());
+    assertEquals(SIZE, astar.size());
+    for (int x = 0; x < SIZE; ++x)
+      assertEquals(grid[x][0], astar.get(x));
+
+    // THE HEURISTIC KEEPS THE SEARCH ON THE STRAIGHT LINE
+    assertEquals(SIZE, ((Number) astarContext.getVariable("maxSettled")).intValue());
+    assertEquals(true,
+        ((Number) astarContext.getVariable("maxSettled")).intValue() < ((Number) dijkstraContext.getVariable("maxSettled"))
+            .intValue());
+  }
+
+  @Test
+  public void testDefaultHeuristic() throws Exception {
+    final List<OrientVertex> result = new OSQLFunctionAStar().execute(null, null, null, new Object[] { grid[0][0],
+        grid[SIZE - 1][SIZE - 1], "'weight'", "OUT" }, new OBasicCommandContext());
+
+    assertEquals(2 * SIZE - 1, result.size());
+    assertEquals(grid[0][0], result.get(0));
+    assertEquals(grid[SIZE - 1][SIZE - 1], result.get(result.size() - 1));
+  }
+
+  private void link(final Vertex iFrom, final Vertex iTo) {
+    final Edge e = graph.addEdge(null, iFrom, iTo, "weight");
+    e.setProperty("weight", 1);
+  }
+}
@@ -0,0 +1,73 @@
+package com.orientechnologies.orient.graph.sql.functions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
+
+public class OSQLFunctionShortestPathTest {
+
+  private OrientGraph graph;
+  private Vertex[]    v = new Vertex[6];
+
+  @Before
+  public void setUp() throws Exception {
+    graph = new OrientGraph("memory:OSQLFunctionShortestPathTest");
+
+    for (int i = 0; i < v.length; ++i)
+      v[i] = graph.addVertex(null);
+
+    // 0 -> 1 -> 2 -> 3 -> 4 AND 0 -> 5 -> 4
+    graph.addEdge(null, v[0], v[1], "link");
+    graph.addEdge(null, v[1], v[2], "link");
+    graph.addEdge(null, v[2], v[3], "link");
+    graph.addEdge(null, v[3], v[4], "link");
+    graph.addEdge(null, v[0], v[5], "link");
+    graph.addEdge(null, v[5], v[4], "link");
+    graph.commit();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    graph.shutdown();
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+    final List<OrientVertex> result = new OSQLFunctionShortestPath().execute(null, null, null, new Object[] { v[0], v[4] },
+        new OBasicCommandContext());
+
+    assertEquals(3, result.size());
+    assertEquals(v[0], result.get(0));
+    assertEquals(v[5], result.get(1));
+    assertEquals(v[4], result.get(2));
+  }
+
+  @Test
+  public void testDirection() throws Exception {
+    assertNull(new OSQLFunctionShortestPath().execute(null, null, null, new Object[] { v[4], v[1] }, new OBasicCommandContext()));
+
+    final List<OrientVertex> result = new OSQLFunctionShortestPath().execute(null, null, null, new Object[] { v[4], v[1], "IN" },
+        new OBasicCommandContext());
+    assertEquals(4, result.size());
+    assertEquals(v[4], result.get(0));
+    assertEquals(v[3], result.get(1));
+    assertEquals(v[2], result.get(2));
+    assertEquals(v[1], result.get(3));
+
+    final List<OrientVertex> both = new OSQLFunctionShortestPath().execute(null, null, null, new Object[] { v[2], v[5], "BOTH" },
+        new OBasicCommandContext());
+    assertEquals(4, both.size());
+    assertEquals(v[2], both.get(0));
+    assertEquals(v[5], both.get(3));
+  }
+}
@@ -21,21 +21,31 @@ import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinary;
 import com.orientechnologies.orient.server.config.OServerUserConfiguration;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocolData;
+import com.orientechnologies.orient.server.network.protocol.binary.OServerCommandCursor;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class OClientConnection {
-  public final int                         id;
-  public volatile ONetworkProtocol         protocol;
-  public final long                        since;
-  public volatile ODatabaseDocumentTx      database;
-  public volatile ODatabaseRaw             rawDatabase;
-  public volatile OServerUserConfiguration serverUser;
+  public final int                                          id;
+  public volatile ONetworkProtocol                          protocol;
+  public final long                                         since;
+  public volatile ODatabaseDocumentTx                       database;
+  public volatile ODatabaseRaw                              rawDatabase;
+  public volatile OServerUserConfiguration                  serverUser;
 
-  public ONetworkProtocolData              data = new ONetworkProtocolData();
+  public ONetworkProtocolData                               data         = new ONetworkProtocolData();
+
+  private final AtomicInteger                               cursorSerial = new AtomicInteger();
+  private final ConcurrentMap<Integer, OServerCommandCursor> cursors      = new ConcurrentHashMap<Integer, OServerCommandCursor>();
+  private final ReentrantLock                               requestLock  = new ReentrantLock();
 
   public OClientConnection(final int id, final ONetworkProtocol protocol) throws IOException {
     this.id = id;
@@ -44,6 +54,8 @@ public class OClientConnection {
   }
 
   public void close() {
+    closeCursors();
+
     if (database != null) {
       if (!database.isClosed())
         database.close();
@@ -88,6 +100,77 @@ public class OClientConnection {
     return true;
   }
 
+  /**
+   * Locks the connection while a request is served, so an expired cursor cannot end its command on the database meanwhile.
+   */
+  public void acquire() {
+    requestLock.lock();
+  }
+
+  public boolean tryAcquire() {
+    return requestLock.tryLock();
+  }
+
+  public void release() {
+    requestLock.unlock();
+  }
+
+  public int nextCursorId() {
+    return cursorSerial.incrementAndGet();
+  }
+
+  public void addCursor(final OServerCommandCursor iCursor) {
+    cursors.put(iCursor.getId(), iCursor);
+  }
+
+  public OServerCommandCursor getCursor(final int iCursorId) {
+    return cursors.get(iCursorId);
+  }
+
+  public OServerCommandCursor removeCursor(final int iCursorId) {
+    return cursors.remove(iCursorId);
+  }
+
+  public int getCursorCount() {
+    return cursors.size();
+  }
+
+  /**
+   * Closes the cursors not fetched by the client in the last <code>iTimeout</code> ms. Called by the thread serving the connection
+   * only, since closing a cursor ends a command that uses the connection's database.
+   */
+  public void closeExpiredCursors(final long iTimeout) {
+    final long now = System.currentTimeMillis();
+    for (Iterator<OServerCommandCursor> it = cursors.values().iterator(); it.hasNext();) {
+      final OServerCommandCursor cursor = it.next();
+      if (cursor.isExpired(now, iTimeout)) {
+        it.remove();
+        cursor.close();
+      }
+    }
+  }
+
+  /**
+   * Expires the cursors not fetched by the client in the last <code>iTimeout</code> ms, so also the cursors of an idle connection
+   * are released. The commands of the expired cursors end by themselves in their own threads, the cursors are removed once ended.
+   */
+  public void expireCursors(final long iTimeout) {
+    final long now = System.currentTimeMillis();
+    for (Iterator<OServerCommandCursor> it = cursors.values().iterator(); it.hasNext();) {
+      final OServerCommandCursor cursor = it.next();
+      if (cursor.isExpired(now, iTimeout) && cursor.expire())
+        it.remove();
+    }
+  }
+
+  public void closeCursors() {
+    for (Iterator<OServerCommandCursor> it = cursors.values().iterator(); it.hasNext();) {
+      final OServerCommandCursor cursor = it.next();
+      it.remove();
+      cursor.close();
+    }
+  }
+
   public OChannelBinary getChannel() {
     return (OChannelBinary) protocol.getChannel();
   }
@@ -40,16 +40,33 @@ import java.util.Set;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class OClientConnectionManager {
   private static final OClientConnectionManager       instance         = new OClientConnectionManager();
   protected ConcurrentMap<Integer, OClientConnection> connections      = new ConcurrentHashMap<Integer, OClientConnection>();
   protected AtomicInteger                             connectionSerial = new AtomicInteger(0);
+  private final ExecutorService                       cursorExecutor;
 
   public OClientConnectionManager() {
     final int delay = OGlobalConfiguration.SERVER_CHANNEL_CLEAN_DELAY.getValueAsInteger();
 
+    // NO QUEUE: A CURSOR IS REFUSED RATHER THAN WAITING FOR THE THREAD OF ANOTHER ONE, THAT COULD BE NEVER BROWSED AGAIN
+    final AtomicInteger cursorThreadSerial = new AtomicInteger();
+    cursorExecutor = new ThreadPoolExecutor(0, OGlobalConfiguration.NETWORK_BINARY_CURSOR_THREADS.getValueAsInteger(), 60,
+        TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+          public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "OrientDB command cursor " + cursorThreadSerial.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+
     Orient.instance().getTimer().schedule(new TimerTask() {
 
       @Override
@@ -73,7 +90,8 @@ public class OClientConnectionManager {
               OLogManager.instance().error(this, "Error during close of connection for close channel", e);
             }
             iterator.remove();
-          }
+          } else
+            entry.getValue().expireCursors(OGlobalConfiguration.NETWORK_BINARY_CURSOR_TIMEOUT.getValueAsInteger());
         }
       }
     }, delay, delay);
@@ -93,6 +111,14 @@ public class OClientConnectionManager {
     return instance;
   }
 
+  /**
+   * Returns the pool running the commands of the server side cursors, bounded by
+   * {@link OGlobalConfiguration#NETWORK_BINARY_CURSOR_THREADS}.
+   */
+  public ExecutorService getCursorExecutor() {
+    return cursorExecutor;
+  }
+
   /**
    * Create a connection.
    * 
@@ -236,7 +236,7 @@ public class OServer {
     // STARTUP LISTENERS
     for (OServerNetworkListenerConfiguration l : configuration.network.listeners)
       networkListeners.add(new OServerNetworkListener(this, networkSocketFactories.get(l.socket), l.ipAddress, l.portRange,
-          l.protocol, networkProtocols.get(l.protocol), l.parameters, l.commands));
+          l.protocol, networkProtocols.get(l.protocol), l.parameters, l.commands, l.transport));
 
     registerPlugins();
 
@@ -18,7 +18,7 @@ package com.orientechnologies.orient.server.config;
 import javax.xml.bind.annotation.*;
 
 @XmlRootElement(name = "listener")
-@XmlType(propOrder = { "commands", "parameters", "protocol", "socket", "portRange", "ipAddress" })
+@XmlType(propOrder = { "commands", "parameters", "protocol", "socket", "transport", "portRange", "ipAddress" })
 public class OServerNetworkListenerConfiguration {
 
   @XmlAttribute(name = "ip-address", required = true)
@@ -33,6 +33,13 @@ public class OServerNetworkListenerConfiguration {
   @XmlAttribute
   public String                          socket  = "default";  
 
+  /**
+   * How connections are served: "blocking" (default) uses one thread per connection, "nio" uses a few selector threads and a
+   * bounded pool of workers. Only binary protocols support "nio".
+   */
+  @XmlAttribute
+  public String                          transport = "blocking";
+
   @XmlElementWrapper
   @XmlElementRef(type = OServerParameterConfiguration.class)
   public OServerParameterConfiguration[] parameters;
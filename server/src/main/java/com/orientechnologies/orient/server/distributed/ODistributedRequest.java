@@ -48,4 +48,8 @@ public interface ODistributedRequest {
   String getUserName();
 
   void setUserName(String userName);
+
+  long getSentOn();
+
+  void setSentOn(long iSentOn);
 }
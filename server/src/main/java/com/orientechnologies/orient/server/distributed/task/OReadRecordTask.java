@@ -64,6 +64,10 @@ public class OReadRecordTask extends OAbstractRemoteTask {
     rid = new ORecordId(in.readUTF());
   }
 
+  public ORecordId getRid() {
+    return rid;
+  }
+
   public QUORUM_TYPE getQuorumType() {
     return QUORUM_TYPE.READ;
   }
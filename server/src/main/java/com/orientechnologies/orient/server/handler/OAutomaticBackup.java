@@ -10,15 +10,20 @@ import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
 import com.orientechnologies.orient.server.plugin.OServerPluginAbstract;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -39,8 +44,13 @@ public class OAutomaticBackup extends OServerPluginAbstract {
   private String      targetFileName;
   private Set<String> includeDatabases = new HashSet<String>();
   private Set<String> excludeDatabases = new HashSet<String>();
+  private boolean     incremental      = false;
+  private int         fullBackupEvery  = 0;
   private OServer     serverInstance;
 
+  private final Map<String, OLogSequenceNumber> lastBackupLSN      = new HashMap<String, OLogSequenceNumber>();
+  private final Map<String, Integer>            incrementalBackups = new HashMap<String, Integer>();
+
   @Override
   public void config(final OServer iServer, final OServerParameterConfiguration[] iParams) {
     serverInstance = iServer;
@@ -72,6 +82,10 @@ public class OAutomaticBackup extends OServerPluginAbstract {
         bufferSize = Integer.parseInt(param.value);
       else if (param.name.equalsIgnoreCase("compressionLevel"))
         compressionLevel = Integer.parseInt(param.value);
+      else if (param.name.equalsIgnoreCase("incremental"))
+        incremental = Boolean.parseBoolean(param.value);
+      else if (param.name.equalsIgnoreCase("fullBackupEvery"))
+        fullBackupEvery = Integer.parseInt(param.value);
     }
 
     if (delay <= 0)
@@ -87,8 +101,9 @@ public class OAutomaticBackup extends OServerPluginAbstract {
       // CREATE BACKUP FOLDER(S) IF ANY
       filePath.mkdirs();
 
-    OLogManager.instance().info(this, "Automatic backup plugin installed and active: delay=%dms, firstTime=%s, targetDirectory=%s",
-        delay, firstTime, targetDirectory);
+    OLogManager.instance().info(this,
+        "Automatic backup plugin installed and active: delay=%dms, firstTime=%s, targetDirectory=%s, incremental=%s", delay,
+        firstTime, targetDirectory, incremental);
 
     final TimerTask timerTask = new TimerTask() {
       @Override
@@ -136,12 +151,18 @@ public class OAutomaticBackup extends OServerPluginAbstract {
 
               final long begin = System.currentTimeMillis();
 
-              db.backup(new FileOutputStream(exportFilePath), null, null, new OCommandOutputListener() {
+              final OCommandOutputListener listener = new OCommandOutputListener() {
                 @Override
                 public void onMessage(String iText) {
                   OLogManager.instance().info(this, iText);
                 }
-              }, compressionLevel, bufferSize);
+              };
+
+              final OStorage storage = db.getStorage().getUnderlying();
+              if (incremental && storage instanceof OLocalPaginatedStorage)
+                incrementalBackup(dbName.getKey(), (OLocalPaginatedStorage) storage, exportFilePath, listener);
+              else
+                db.backup(new FileOutputStream(exportFilePath), null, null, listener, compressionLevel, bufferSize);
 
               OLogManager.instance().info(
                   this,
@@ -175,4 +196,37 @@ public class OAutomaticBackup extends OServerPluginAbstract {
   public String getName() {
     return "automaticBackup";
   }
+
+  /**
+   * Writes only the pages changed since the previous backup of the database. The first backup after the server start, and every
+   * <code>fullBackupEvery</code> backups if set, copies the whole database. Backups are restored starting from the last full one
+   * followed by its increments in the order they were made.
+   */
+  private void incrementalBackup(final String iDatabaseName, final OLocalPaginatedStorage iStorage, final String iFilePath,
+      final OCommandOutputListener iListener) throws IOException {
+    OLogSequenceNumber fromLSN;
+    synchronized (lastBackupLSN) {
+      fromLSN = lastBackupLSN.get(iDatabaseName);
+
+      final Integer backups = incrementalBackups.get(iDatabaseName);
+      if (fromLSN != null && fullBackupEvery > 0 && backups != null && backups >= fullBackupEvery)
+        fromLSN = null;
+    }
+
+    final OLogSequenceNumber lsn = iStorage.incrementalBackup(new FileOutputStream(iFilePath), fromLSN, iListener,
+        compressionLevel, bufferSize);
+
+    synchronized (lastBackupLSN) {
+      lastBackupLSN.put(iDatabaseName, lsn);
+      if (fromLSN == null)
+        incrementalBackups.put(iDatabaseName, 0);
+      else {
+        final Integer backups = incrementalBackups.get(iDatabaseName);
+        incrementalBackups.put(iDatabaseName, backups == null ? 1 : backups + 1);
+      }
+    }
+
+    OLogManager.instance().info(this, "[OAutomaticBackup] - %s backup of database '%s' written to %s",
+        fromLSN == null ? "Full" : "Incremental", iDatabaseName, iFilePath);
+  }
 }
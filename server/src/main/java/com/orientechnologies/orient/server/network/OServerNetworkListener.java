@@ -26,7 +26,9 @@ import com.orientechnologies.orient.server.OClientConnectionManager;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.config.OServerCommandConfiguration;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
+import com.orientechnologies.orient.server.network.nio.ONioServerTransport;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommand;
 
 import java.io.IOException;
@@ -38,10 +40,14 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 public class OServerNetworkListener extends Thread {
+  public static final String                TRANSPORT_BLOCKING = "blocking";
+  public static final String                TRANSPORT_NIO      = "nio";
+
   private OServerSocketFactory              socketFactory;
   private ServerSocket                      serverSocket;
   private InetSocketAddress                 inboundAddr;
@@ -54,10 +60,17 @@ public class OServerNetworkListener extends Thread {
   private OServer                           server;
   private ONetworkProtocol                  protocol;
   private int                               protocolVersion   = -1;
+  private ONioServerTransport               nioTransport;
 
   public OServerNetworkListener(final OServer iServer, final OServerSocketFactory iSocketFactory, final String iHostName,
       final String iHostPortRange, final String iProtocolName, final Class<? extends ONetworkProtocol> iProtocol,
       final OServerParameterConfiguration[] iParameters, final OServerCommandConfiguration[] iCommands) {
+    this(iServer, iSocketFactory, iHostName, iHostPortRange, iProtocolName, iProtocol, iParameters, iCommands, TRANSPORT_BLOCKING);
+  }
+
+  public OServerNetworkListener(final OServer iServer, final OServerSocketFactory iSocketFactory, final String iHostName,
+      final String iHostPortRange, final String iProtocolName, final Class<? extends ONetworkProtocol> iProtocol,
+      final OServerParameterConfiguration[] iParameters, final OServerCommandConfiguration[] iCommands, final String iTransport) {
     super(Orient.instance().getThreadGroup(), "OrientDB " + iProtocol.getSimpleName() + " listen at " + iHostName + ":"
         + iHostPortRange);
     server = iServer;
@@ -73,11 +86,24 @@ public class OServerNetworkListener extends Thread {
           protocolType);
     }
 
-    listen(iHostName, iHostPortRange, iProtocolName);
+    final boolean nio = useNio(iTransport, iProtocol);
+
+    listen(iHostName, iHostPortRange, iProtocolName, nio);
     protocolType = iProtocol;
 
     readParameters(iServer.getContextConfiguration(), iParameters);
 
+    if (nio)
+      try {
+        nioTransport = new ONioServerTransport(this, server, protocolType, serverSocket.getChannel(), configuration);
+      } catch (IOException e) {
+        try {
+          serverSocket.close();
+        } catch (IOException e1) {
+        }
+        throw new ONetworkProtocolException("Unable to start the NIO transport of the listener on " + inboundAddr, e);
+      }
+
     if (iCommands != null) {
       for (int i = 0; i < iCommands.length; ++i) {
         if (iCommands[i].stateful)
@@ -167,6 +193,9 @@ public class OServerNetworkListener extends Thread {
   public void shutdown() {
     this.active = false;
 
+    if (nioTransport != null)
+      nioTransport.shutdown();
+
     if (protocol != null) {
       protocol.sendShutdown();
       protocol = null;
@@ -187,6 +216,16 @@ public class OServerNetworkListener extends Thread {
   public void run() {
     try {
       while (active) {
+        if (nioTransport != null) {
+          try {
+            nioTransport.acceptConnection();
+          } catch (Throwable e) {
+            if (active)
+              OLogManager.instance().error(this, "Error on client connection", e);
+          }
+          continue;
+        }
+
         try {
           // listen for and accept a client connection to serverSocket
           final Socket socket = serverSocket.accept();
@@ -284,20 +323,33 @@ public class OServerNetworkListener extends Thread {
    * 
    * @param iHostPortRange
    * @param iHostName
+   * @param iNio
+   *          true to open the socket through a channel for the NIO transport
    */
-  private void listen(final String iHostName, final String iHostPortRange, final String iProtocolName) {
+  private void listen(final String iHostName, final String iHostPortRange, final String iProtocolName, final boolean iNio) {
     final int[] ports = getPorts(iHostPortRange);
 
     for (int port : ports) {
       inboundAddr = new InetSocketAddress(iHostName, port);
       try {
-        serverSocket = socketFactory.createServerSocket(port, 0, InetAddress.getByName(iHostName));
+        if (iNio) {
+          final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+          try {
+            serverChannel.socket().bind(inboundAddr, 0);
+          } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+          }
+          serverSocket = serverChannel.socket();
+        } else
+          serverSocket = socketFactory.createServerSocket(port, 0, InetAddress.getByName(iHostName));
 
         if (serverSocket.isBound()) {
           OLogManager.instance().info(
               this,
               "Listening " + iProtocolName + " connections on " + inboundAddr.getAddress().getHostAddress() + ":"
-                  + inboundAddr.getPort() + " (protocol v." + protocolVersion + ", socket=" + socketFactory.getName() + ")");
+                  + inboundAddr.getPort() + " (protocol v." + protocolVersion + ", socket=" + socketFactory.getName()
+                  + (iNio ? ", transport=" + TRANSPORT_NIO : "") + ")");
           return;
         }
       } catch (BindException be) {
@@ -317,6 +369,34 @@ public class OServerNetworkListener extends Thread {
     System.exit(1);
   }
 
+  /**
+   * Tells if the listener can serve its connections with the NIO transport. NIO is supported by binary protocols over plain
+   * sockets only: in any other case the listener falls back to one thread per connection.
+   */
+  private boolean useNio(final String iTransport, final Class<? extends ONetworkProtocol> iProtocol) {
+    if (iTransport == null || iTransport.equalsIgnoreCase(TRANSPORT_BLOCKING))
+      return false;
+
+    if (!iTransport.equalsIgnoreCase(TRANSPORT_NIO)) {
+      OLogManager.instance().warn(this, "Unknown transport '%s', using '%s'", iTransport, TRANSPORT_BLOCKING);
+      return false;
+    }
+
+    if (!OBinaryNetworkProtocolAbstract.class.isAssignableFrom(iProtocol)) {
+      OLogManager.instance().warn(this, "Transport '%s' is not supported by protocol %s, using '%s'", TRANSPORT_NIO,
+          iProtocol.getSimpleName(), TRANSPORT_BLOCKING);
+      return false;
+    }
+
+    if (socketFactory != OServerSocketFactory.getDefault()) {
+      OLogManager.instance().warn(this, "Transport '%s' is not supported by socket factory '%s', using '%s'", TRANSPORT_NIO,
+          socketFactory.getName(), TRANSPORT_BLOCKING);
+      return false;
+    }
+
+    return true;
+  }
+
   /**
    * Initializes connection parameters by the reading XML configuration. If not specified, get the parameters defined as global
    * configuration.
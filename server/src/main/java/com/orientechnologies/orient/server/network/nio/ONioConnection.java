@@ -0,0 +1,456 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryServer;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.network.OServerNetworkListener;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+/**
+ * Client connection served by the NIO transport. The selector thread buffers the incoming bytes and, when a request starts
+ * arriving, submits the connection to the worker pool. The worker executes the requests while bytes are available and then
+ * gives the thread back, so idle connections cost no thread. A worker that finds a request only partially received waits for
+ * the rest up to the socket timeout, letting another worker take its place in the meantime.
+ */
+public class ONioConnection implements Runnable {
+  private final ONioServerTransport            transport;
+  private final ONioSelectorThread             selectorThread;
+  private final SocketChannel                  channel;
+  private final int                            timeout;
+  private final int                            highWaterMark;
+  private final Runnable                       updateInterestTask;
+  private SelectionKey                         key;
+  private volatile OBinaryNetworkProtocolAbstract protocol;
+
+  // INCOMING BYTES, GUARDED BY THIS
+  private byte[]                               inbound;
+  private int                                  inboundStart;
+  private int                                  inboundEnd;
+  private boolean                              eof;
+  private boolean                              scheduled;
+  private boolean                              readPaused;
+  private volatile boolean                     closed;
+
+  // WAIT FOR THE SOCKET TO BE WRITABLE, GUARDED BY writeLock
+  private final Object                         writeLock = new Object();
+  private boolean                              writeWaiting;
+
+  public ONioConnection(final ONioServerTransport iTransport, final ONioSelectorThread iSelectorThread,
+      final SocketChannel iChannel, final OContextConfiguration iConfig) {
+    transport = iTransport;
+    selectorThread = iSelectorThread;
+    channel = iChannel;
+    timeout = iConfig.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT);
+
+    final int bufferSize = iConfig.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_BUFFER_SIZE);
+    inbound = new byte[bufferSize];
+    // STOP READING FROM THE SOCKET WHEN THE WORKER IS TOO FAR BEHIND
+    highWaterMark = bufferSize * 4;
+
+    updateInterestTask = new Runnable() {
+      @Override
+      public void run() {
+        updateInterest();
+      }
+    };
+  }
+
+  /**
+   * Binds the protocol to the connection. Requests already received are submitted to the worker pool.
+   */
+  public void open(final OBinaryNetworkProtocolAbstract iProtocol, final OServerNetworkListener iListener, final OServer iServer,
+      final OContextConfiguration iConfig) throws IOException {
+    final OChannelBinaryServer binaryChannel = new OChannelBinaryServer(channel.socket(), new NioInputStream(),
+        new NioOutputStream(inbound.length), iConfig);
+
+    iProtocol.config(iListener, iServer, binaryChannel);
+
+    synchronized (this) {
+      protocol = iProtocol;
+    }
+    schedule();
+  }
+
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  public OBinaryNetworkProtocolAbstract getProtocol() {
+    return protocol;
+  }
+
+  /**
+   * Executes the received requests. Called by the worker pool.
+   */
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        synchronized (this) {
+          if (closed)
+            return;
+
+          if (inboundStart == inboundEnd) {
+            if (!eof) {
+              // NOTHING ELSE TO DO: GIVE THE THREAD BACK
+              scheduled = false;
+              return;
+            }
+            // CLOSED BY THE CLIENT
+            break;
+          }
+        }
+
+        protocol.serveRequest();
+
+        if (protocol.isShutdownFlag())
+          break;
+      }
+    } catch (Throwable t) {
+      OLogManager.instance().error(this, "Error on executing request from %s", t, channel.socket().getRemoteSocketAddress());
+    }
+
+    close();
+  }
+
+  public void close() {
+    synchronized (this) {
+      if (closed)
+        return;
+      closed = true;
+      notifyAll();
+    }
+
+    synchronized (writeLock) {
+      writeLock.notifyAll();
+    }
+
+    final OBinaryNetworkProtocolAbstract p = protocol;
+    if (p != null)
+      try {
+        p.shutdown();
+      } catch (Exception e) {
+        OLogManager.instance().debug(this, "Error on closing protocol of NIO connection", e);
+      }
+
+    try {
+      channel.close();
+    } catch (IOException e) {
+    }
+  }
+
+  protected void setKey(final SelectionKey iKey) {
+    key = iKey;
+  }
+
+  /**
+   * Reads the available bytes. Called by the selector thread.
+   */
+  protected void onReadable(final ByteBuffer iBuffer) {
+    iBuffer.clear();
+
+    int read;
+    try {
+      read = channel.read(iBuffer);
+    } catch (IOException e) {
+      // CONNECTION RESET: LET THE WORKER CLOSE IT
+      read = -1;
+    }
+
+    synchronized (this) {
+      if (read < 0)
+        eof = true;
+      else if (read > 0) {
+        iBuffer.flip();
+        append(iBuffer);
+      }
+
+      if (inboundEnd - inboundStart >= highWaterMark)
+        readPaused = true;
+
+      if (eof || readPaused)
+        updateInterest();
+
+      notifyAll();
+    }
+    schedule();
+  }
+
+  /**
+   * Submits the connection to the workers if it has something to execute and it isn't already. If the queue of the workers is
+   * full the connection is submitted again later by the selector thread: in the meantime its reading stops once it buffers too
+   * many bytes.
+   */
+  protected void schedule() {
+    synchronized (this) {
+      if (!scheduleIfNeeded())
+        return;
+    }
+
+    try {
+      transport.execute(this);
+    } catch (RejectedExecutionException e) {
+      if (transport.isShutdown()) {
+        close();
+        return;
+      }
+
+      synchronized (this) {
+        scheduled = false;
+      }
+      selectorThread.retryLater(this);
+    }
+  }
+
+  /**
+   * Wakes up the worker waiting to write. Called by the selector thread.
+   */
+  protected void onWritable() {
+    synchronized (writeLock) {
+      writeWaiting = false;
+      writeLock.notifyAll();
+    }
+    updateInterest();
+  }
+
+  /**
+   * Closes the connection if the server asked so while it was idle. Called by the selector thread.
+   */
+  protected void checkShutdown() {
+    final OBinaryNetworkProtocolAbstract p = protocol;
+    if (p == null || !p.isShutdownFlag())
+      return;
+
+    synchronized (this) {
+      if (scheduled)
+        // THE WORKER WILL CLOSE IT
+        return;
+      scheduled = true;
+    }
+    close();
+  }
+
+  protected synchronized int available() {
+    return inboundEnd - inboundStart;
+  }
+
+  private boolean scheduleIfNeeded() {
+    if (scheduled || closed || protocol == null || (inboundStart == inboundEnd && !eof))
+      return false;
+
+    scheduled = true;
+    return true;
+  }
+
+  private void updateInterest() {
+    if (key == null || !key.isValid())
+      return;
+
+    int ops = 0;
+    synchronized (this) {
+      if (!eof && !readPaused)
+        ops |= SelectionKey.OP_READ;
+    }
+    synchronized (writeLock) {
+      if (writeWaiting)
+        ops |= SelectionKey.OP_WRITE;
+    }
+    key.interestOps(ops);
+  }
+
+  private void append(final ByteBuffer iBuffer) {
+    final int len = iBuffer.remaining();
+    if (inboundEnd + len > inbound.length) {
+      final int used = inboundEnd - inboundStart;
+      if (used + len <= inbound.length)
+        // COMPACT
+        System.arraycopy(inbound, inboundStart, inbound, 0, used);
+      else {
+        final byte[] newBuffer = new byte[Math.max(inbound.length * 2, used + len)];
+        System.arraycopy(inbound, inboundStart, newBuffer, 0, used);
+        inbound = newBuffer;
+      }
+      inboundStart = 0;
+      inboundEnd = used;
+    }
+
+    iBuffer.get(inbound, inboundEnd, len);
+    inboundEnd += len;
+  }
+
+  private class NioInputStream extends InputStream {
+    @Override
+    public int read() throws IOException {
+      final byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (len == 0)
+        return 0;
+
+      boolean stalled = false;
+      try {
+        synchronized (ONioConnection.this) {
+          final long start = System.currentTimeMillis();
+          while (inboundStart == inboundEnd) {
+            if (closed)
+              throw new IOException("Connection closed");
+            if (eof)
+              return -1;
+
+            final long toWait = timeout - (System.currentTimeMillis() - start);
+            if (toWait <= 0)
+              throw new SocketTimeoutException("Timeout on reading request from " + channel.socket().getRemoteSocketAddress());
+
+            if (!stalled)
+              // REQUEST RECEIVED PARTIALLY: LET ANOTHER WORKER SERVE THE OTHER CONNECTIONS WHILE WAITING
+              stalled = transport.beginStall();
+
+            try {
+              ONioConnection.this.wait(toWait);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new IOException("Interrupted while reading request");
+            }
+          }
+
+          return consume(b, off, len);
+        }
+      } finally {
+        if (stalled)
+          transport.endStall();
+      }
+    }
+
+    @Override
+    public int available() {
+      return ONioConnection.this.available();
+    }
+
+    /**
+     * Copies the buffered bytes. Called holding the lock of the connection.
+     */
+    private int consume(final byte[] b, final int off, final int len) {
+      final int read = Math.min(len, inboundEnd - inboundStart);
+      System.arraycopy(inbound, inboundStart, b, off, read);
+      inboundStart += read;
+      if (inboundStart == inboundEnd)
+        inboundStart = inboundEnd = 0;
+
+      if (readPaused && inboundEnd - inboundStart < highWaterMark / 2) {
+        // RESUME READING FROM THE SOCKET
+        readPaused = false;
+        selectorThread.execute(updateInterestTask);
+      }
+      return read;
+    }
+  }
+
+  private class NioOutputStream extends OutputStream {
+    private final byte[] buffer;
+    private int          count;
+
+    private NioOutputStream(final int iSize) {
+      buffer = new byte[iSize];
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (count == buffer.length)
+        flush();
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      if (len >= buffer.length) {
+        // TOO BIG TO BE BUFFERED: WRITE IT DIRECTLY
+        flush();
+        writeFully(ByteBuffer.wrap(b, off, len));
+        return;
+      }
+
+      if (len > buffer.length - count)
+        flush();
+
+      System.arraycopy(b, off, buffer, count, len);
+      count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (count == 0)
+        return;
+
+      writeFully(ByteBuffer.wrap(buffer, 0, count));
+      count = 0;
+    }
+
+    private void writeFully(final ByteBuffer iBuffer) throws IOException {
+      while (iBuffer.hasRemaining()) {
+        if (closed)
+          throw new IOException("Connection closed");
+
+        if (channel.write(iBuffer) == 0)
+          // SOCKET BUFFER FULL
+          waitWritable();
+      }
+    }
+
+    private void waitWritable() throws IOException {
+      // THE CLIENT IS NOT READING: LET ANOTHER WORKER SERVE THE OTHER CONNECTIONS WHILE WAITING
+      final boolean stalled = transport.beginStall();
+      try {
+        synchronized (writeLock) {
+          writeWaiting = true;
+          selectorThread.execute(updateInterestTask);
+
+          final long start = System.currentTimeMillis();
+          while (writeWaiting && !closed) {
+            final long toWait = timeout - (System.currentTimeMillis() - start);
+            if (toWait <= 0)
+              throw new SocketTimeoutException("Timeout on writing response to " + channel.socket().getRemoteSocketAddress());
+
+            try {
+              writeLock.wait(toWait);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new IOException("Interrupted while writing response");
+            }
+          }
+        }
+      } finally {
+        if (stalled)
+          transport.endStall();
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+
+/**
+ * Selector thread of the NIO transport. Reads the bytes available on its connections, handing them to the worker pool, and
+ * completes the writes that did not fit in the socket buffer. Selection keys are only touched by this thread: other threads
+ * submit their changes as tasks.
+ */
+public class ONioSelectorThread extends Thread {
+  private static final long                    CHECK_INTERVAL = 1000;
+  private static final long                    RETRY_INTERVAL = 10;
+
+  private final Selector                       selector;
+  private final ByteBuffer                     readBuffer;
+  private final ConcurrentLinkedQueue<Runnable> tasks          = new ConcurrentLinkedQueue<Runnable>();
+  private final List<ONioConnection>           rejected       = new ArrayList<ONioConnection>();
+  private volatile boolean                     active         = true;
+
+  public ONioSelectorThread(final String iName, final int iBufferSize) throws IOException {
+    super(Orient.instance().getThreadGroup(), iName);
+    setDaemon(true);
+
+    selector = Selector.open();
+    readBuffer = ByteBuffer.allocateDirect(iBufferSize);
+  }
+
+  /**
+   * Executes the task in the selector thread.
+   */
+  public void execute(final Runnable iTask) {
+    tasks.offer(iTask);
+    selector.wakeup();
+  }
+
+  public void register(final ONioConnection iConnection) {
+    execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          iConnection.setKey(iConnection.getChannel().register(selector, SelectionKey.OP_READ, iConnection));
+        } catch (ClosedChannelException e) {
+          iConnection.close();
+        }
+      }
+    });
+  }
+
+  /**
+   * Submits the connection to the workers again after a while. Used when the queue of the workers is full.
+   */
+  public void retryLater(final ONioConnection iConnection) {
+    execute(new Runnable() {
+      @Override
+      public void run() {
+        rejected.add(iConnection);
+      }
+    });
+  }
+
+  public void shutdown() {
+    active = false;
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    long lastCheck = System.currentTimeMillis();
+
+    try {
+      while (active) {
+        try {
+          selector.select(rejected.isEmpty() ? CHECK_INTERVAL : RETRY_INTERVAL);
+
+          Runnable task;
+          while ((task = tasks.poll()) != null)
+            task.run();
+
+          if (!rejected.isEmpty()) {
+            final List<ONioConnection> toRetry = new ArrayList<ONioConnection>(rejected);
+            rejected.clear();
+            for (ONioConnection c : toRetry)
+              c.schedule();
+          }
+
+          final Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+          while (it.hasNext()) {
+            final SelectionKey key = it.next();
+            it.remove();
+
+            final ONioConnection connection = (ONioConnection) key.attachment();
+            try {
+              if (key.isValid() && key.isWritable())
+                connection.onWritable();
+              if (key.isValid() && key.isReadable())
+                connection.onReadable(readBuffer);
+            } catch (CancelledKeyException e) {
+              // CLOSED IN THE MEANTIME
+            }
+          }
+
+          final long now = System.currentTimeMillis();
+          if (now - lastCheck >= CHECK_INTERVAL) {
+            // CLOSE IDLE CONNECTIONS KILLED BY THE SERVER
+            lastCheck = now;
+            for (SelectionKey key : selector.keys())
+              ((ONioConnection) key.attachment()).checkShutdown();
+          }
+
+        } catch (Throwable t) {
+          if (active)
+            OLogManager.instance().error(this, "Error on serving NIO connections", t);
+        }
+      }
+    } finally {
+      final List<ONioConnection> connections = new ArrayList<ONioConnection>();
+      for (SelectionKey key : selector.keys())
+        connections.add((ONioConnection) key.attachment());
+
+      for (ONioConnection c : connections)
+        c.close();
+
+      try {
+        selector.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.network.OServerNetworkListener;
+import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+/**
+ * Non-blocking transport for binary protocols. Connections are spread across a few selector threads (see
+ * {@link OGlobalConfiguration#NETWORK_NIO_IO_THREADS}) and their requests are executed by a bounded pool of workers (see
+ * {@link OGlobalConfiguration#NETWORK_NIO_WORKER_THREADS}), so the number of threads doesn't grow with the number of clients.
+ * <p>
+ * The binary protocol has no frame lengths, so a request can't be known complete before it's parsed. A worker that has to wait for
+ * the rest of a request gives its place to a new thread (see {@link #beginStall()}): slow clients can't hold the workers needed by
+ * the other connections.
+ */
+public class ONioServerTransport {
+  private final OServerNetworkListener            listener;
+  private final OServer                           server;
+  private final Class<? extends ONetworkProtocol> protocolType;
+  private final OContextConfiguration             configuration;
+  private final ServerSocketChannel               serverChannel;
+  private final ONioSelectorThread[]              selectorThreads;
+  private final ThreadPoolExecutor                workers;
+  private final int                               socketBufferSize;
+  private final int                               workerThreads;
+  private int                                     stalledWorkers;
+  private int                                     nextSelector;
+
+  public ONioServerTransport(final OServerNetworkListener iListener, final OServer iServer,
+      final Class<? extends ONetworkProtocol> iProtocol, final ServerSocketChannel iServerChannel,
+      final OContextConfiguration iConfiguration) throws IOException {
+    listener = iListener;
+    server = iServer;
+    protocolType = iProtocol;
+    serverChannel = iServerChannel;
+    configuration = iConfiguration;
+    socketBufferSize = configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_BUFFER_SIZE);
+
+    final String prefix = "OrientDB " + iProtocol.getSimpleName() + " NIO ("
+        + iServerChannel.socket().getLocalSocketAddress() + ") ";
+
+    workerThreads = Math.max(1, configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_NIO_WORKER_THREADS));
+    final int workerQueue = Math.max(1, configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_NIO_WORKER_QUEUE));
+    workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(workerQueue),
+        new ThreadFactory() {
+          private final AtomicInteger counter = new AtomicInteger();
+
+          @Override
+          public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(Orient.instance().getThreadGroup(), r, prefix + "worker "
+                + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    workers.allowCoreThreadTimeOut(true);
+
+    selectorThreads = new ONioSelectorThread[Math.max(1, configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_NIO_IO_THREADS))];
+    for (int i = 0; i < selectorThreads.length; ++i) {
+      selectorThreads[i] = new ONioSelectorThread(prefix + "selector " + (i + 1), socketBufferSize);
+      selectorThreads[i].start();
+    }
+  }
+
+  /**
+   * Waits for the next client and binds it to a selector thread.
+   */
+  public void acceptConnection() throws Exception {
+    final SocketChannel socketChannel = serverChannel.accept();
+    final Socket socket = socketChannel.socket();
+
+    final int conns = OClientConnectionManager.instance().getTotal();
+    if (conns >= OGlobalConfiguration.NETWORK_MAX_CONCURRENT_SESSIONS.getValueAsInteger()) {
+      // MAXIMUM OF CONNECTIONS EXCEEDED
+      OLogManager.instance().warn(this,
+          "Reached maximum number of concurrent connections (%d), reject incoming connection from %s", conns,
+          socket.getRemoteSocketAddress());
+      socketChannel.close();
+
+      // PAUSE CURRENT THREAD TO SLOW DOWN ANY POSSIBLE ATTACK
+      Thread.sleep(100);
+      return;
+    }
+
+    socket.setPerformancePreferences(0, 2, 1);
+    socket.setSendBufferSize(socketBufferSize);
+    socket.setReceiveBufferSize(socketBufferSize);
+    socketChannel.configureBlocking(false);
+
+    final ONioSelectorThread selectorThread = selectorThreads[nextSelector];
+    nextSelector = (nextSelector + 1) % selectorThreads.length;
+
+    final ONioConnection connection = new ONioConnection(this, selectorThread, socketChannel, configuration);
+    selectorThread.register(connection);
+
+    try {
+      // CREATE A NEW PROTOCOL INSTANCE
+      final OBinaryNetworkProtocolAbstract protocol = (OBinaryNetworkProtocolAbstract) protocolType.newInstance();
+      connection.open(protocol, listener, server, configuration);
+    } catch (Exception e) {
+      connection.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Submits the task to the workers.
+   * 
+   * @throws java.util.concurrent.RejectedExecutionException
+   *           if the queue of the workers is full or the transport has been shut down
+   */
+  public void execute(final Runnable iTask) {
+    workers.execute(iTask);
+  }
+
+  public boolean isShutdown() {
+    return workers.isShutdown();
+  }
+
+  /**
+   * Called by a worker before waiting for the rest of a request, or for the socket to be writable: a new worker is allowed to
+   * serve the other connections in the meantime, up to twice the configured workers.
+   * 
+   * @return true if the pool has been enlarged, in this case {@link #endStall()} must be called once the wait is over
+   */
+  protected synchronized boolean beginStall() {
+    if (stalledWorkers >= workerThreads || workers.isShutdown())
+      return false;
+
+    ++stalledWorkers;
+    workers.setMaximumPoolSize(workerThreads + stalledWorkers);
+    workers.setCorePoolSize(workerThreads + stalledWorkers);
+    return true;
+  }
+
+  protected synchronized void endStall() {
+    --stalledWorkers;
+    workers.setCorePoolSize(workerThreads + stalledWorkers);
+    workers.setMaximumPoolSize(workerThreads + stalledWorkers);
+  }
+
+  protected synchronized int getStalledWorkers() {
+    return stalledWorkers;
+  }
+
+  protected int getPoolSize() {
+    return workers.getPoolSize();
+  }
+
+  public void shutdown() {
+    for (ONioSelectorThread t : selectorThreads)
+      t.shutdown();
+    workers.shutdown();
+  }
+}
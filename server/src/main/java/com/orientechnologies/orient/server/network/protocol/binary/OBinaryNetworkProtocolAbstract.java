@@ -67,6 +67,7 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
   protected OChannelBinaryServer channel;
   protected int                  requestType;
   protected int                  clientTxId;
+  private volatile Thread        requestThread;
 
   public OBinaryNetworkProtocolAbstract(final String iThreadName) {
     super(Orient.instance().getThreadGroup(), iThreadName);
@@ -81,6 +82,40 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
     channel = new OChannelBinaryServer(iSocket, iConfig);
   }
 
+  /**
+   * Configures the protocol over a channel served by a non-blocking transport. The protocol thread is not started: the transport
+   * calls {@link #serveRequest()} from its worker threads every time a request is available.
+   */
+  public void config(final OServerNetworkListener iListener, final OServer iServer, final OChannelBinaryServer iChannel)
+      throws IOException {
+    server = iServer;
+    channel = iChannel;
+  }
+
+  /**
+   * Reads and executes the next request in the current thread instead of the protocol thread.
+   */
+  public void serveRequest() throws Exception {
+    requestThread = Thread.currentThread();
+    try {
+      execute();
+    } finally {
+      requestThread = null;
+      // RESET ANY INTERRUPTION: THE THREAD IS GOING BACK TO THE POOL
+      Thread.interrupted();
+    }
+  }
+
+  @Override
+  public void interrupt() {
+    final Thread t = requestThread;
+    if (t != null)
+      // INTERRUPT THE THREAD SERVING THE CURRENT REQUEST
+      t.interrupt();
+    else
+      super.interrupt();
+  }
+
   @Override
   public int getVersion() {
     return OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION;
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -52,6 +53,7 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OBonsaiCollectionPointer;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OSBTreeCollectionManager;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OSBTreeRidBag;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
@@ -100,6 +102,7 @@ import com.orientechnologies.orient.server.tx.OTransactionOptimisticProxy;
 public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
   protected OClientConnection connection;
   protected OUser             account;
+  private OClientConnection   lockedConnection;
 
   public ONetworkProtocolBinary() {
     super("OrientDB <- BinaryClient/?");
@@ -126,6 +129,25 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     setName("OrientDB <- BinaryClient (" + iSocket.getRemoteSocketAddress() + ")");
   }
 
+  @Override
+  public void config(final OServerNetworkListener iListener, final OServer iServer, final OChannelBinaryServer iChannel)
+      throws IOException {
+    // CREATE THE CLIENT CONNECTION
+    connection = OClientConnectionManager.instance().connect(this);
+
+    super.config(iListener, iServer, iChannel);
+
+    // SEND PROTOCOL VERSION
+    channel.writeShort((short) getVersion());
+
+    channel.flush();
+
+    // NO THREAD TO START: REQUESTS ARE SERVED BY THE TRANSPORT'S WORKERS
+    startup();
+
+    setName("OrientDB <- BinaryClient (" + iChannel.socket.getRemoteSocketAddress() + ")");
+  }
+
   @Override
   public void startup() {
     super.startup();
@@ -145,6 +167,18 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     OClientConnectionManager.instance().disconnect(connection);
   }
 
+  @Override
+  protected void execute() throws Exception {
+    try {
+      super.execute();
+    } finally {
+      if (lockedConnection != null) {
+        lockedConnection.release();
+        lockedConnection = null;
+      }
+    }
+  }
+
   @Override
   protected void onBeforeRequest() throws IOException {
     waitNodeIsOnline();
@@ -164,6 +198,10 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
 
     if (connection != null) {
+      // WAITS FOR AN EXPIRED CURSOR THAT IS ENDING ITS COMMAND ON THE DATABASE
+      connection.acquire();
+      lockedConnection = connection;
+
       ODatabaseRecordThreadLocal.INSTANCE.set(connection.database);
       if (connection.database != null) {
         connection.data.lastDatabase = connection.database.getName();
@@ -177,6 +215,9 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       setDataCommandInfo("Listening");
       connection.data.commandDetail = "-";
       connection.data.lastCommandReceived = System.currentTimeMillis();
+
+      // THE CURSORS OF IDLE CONNECTIONS ARE EXPIRED BY THE TIMER OF THE CONNECTION MANAGER
+      connection.closeExpiredCursors(OGlobalConfiguration.NETWORK_BINARY_CURSOR_TIMEOUT.getValueAsInteger());
     } else {
       ODatabaseRecordThreadLocal.INSTANCE.remove();
       if (requestType != OChannelBinaryProtocol.REQUEST_DB_CLOSE && requestType != OChannelBinaryProtocol.REQUEST_SHUTDOWN) {
@@ -309,6 +350,18 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
         updateRecord();
         break;
 
+      case OChannelBinaryProtocol.REQUEST_RECORD_LOAD_BATCH:
+        readRecords();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_RECORD_CREATE_BATCH:
+        createRecords();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_RECORD_UPDATE_BATCH:
+        updateRecords();
+        break;
+
       case OChannelBinaryProtocol.REQUEST_RECORD_DELETE:
         deleteRecord();
         break;
@@ -340,6 +393,14 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
         command();
         break;
 
+      case OChannelBinaryProtocol.REQUEST_COMMAND_CURSOR_FETCH:
+        fetchCursor();
+        break;
+
+      case OChannelBinaryProtocol.REQUEST_COMMAND_CURSOR_CLOSE:
+        closeCursor();
+        break;
+
       case OChannelBinaryProtocol.REQUEST_TX_COMMIT:
         commit();
         break;
@@ -1147,13 +1208,21 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
   protected void command() throws IOException {
     setDataCommandInfo("Execute remote command");
 
-    final boolean asynch = channel.readByte() == 'a';
+    final byte mode = channel.readByte();
+    final boolean asynch = mode == 'a';
+    final int pageSize = mode == 'c' ? channel.readInt() : 0;
 
     final OCommandRequestText command = (OCommandRequestText) OStreamSerializerAnyStreamable.INSTANCE.fromStream(channel
         .readBytes());
 
     connection.data.commandDetail = command.getText();
 
+    if (mode == 'c') {
+      // SERVER SIDE CURSOR
+      openCursor(command, pageSize);
+      return;
+    }
+
     // ENABLES THE CACHE TO IMPROVE PERFORMANCE OF COMPLEX COMMANDS LIKE TRAVERSE
     // connection.database.getLevel1Cache().setEnable(true);
     beginResponse();
@@ -1250,6 +1319,103 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  protected void openCursor(final OCommandRequestText iCommand, final int iPageSize) throws IOException {
+    final long serverTimeout = OGlobalConfiguration.COMMAND_TIMEOUT.getValueAsLong();
+
+    if (serverTimeout > 0 && iCommand.getTimeoutTime() > serverTimeout)
+      // FORCE THE SERVER'S TIMEOUT
+      iCommand.setTimeout(serverTimeout, iCommand.getTimeoutStrategy());
+
+    if (!isConnectionAlive())
+      return;
+
+    final int maxCursors = OGlobalConfiguration.NETWORK_BINARY_CURSOR_MAX.getValueAsInteger();
+    if (connection.getCursorCount() >= maxCursors)
+      throw new OCommandExecutionException("Cannot open more than " + maxCursors
+          + " cursors on the same connection, close the cursors not browsed until the end");
+
+    final OServerCommandCursor cursor = new OServerCommandCursor(connection.nextCursorId(), connection, iCommand);
+
+    beginResponse();
+    try {
+      final List<OIdentifiable> page = cursor.fetch(iPageSize);
+      if (!cursor.isFinished())
+        connection.addCursor(cursor);
+
+      sendOk(clientTxId);
+      sendCursorPage(cursor, page);
+    } finally {
+      endResponse();
+    }
+  }
+
+  protected void fetchCursor() throws IOException {
+    setDataCommandInfo("Fetch command cursor");
+
+    final int cursorId = channel.readInt();
+    final int pageSize = channel.readInt();
+
+    final OServerCommandCursor cursor = connection.getCursor(cursorId);
+    if (cursor == null)
+      throw new OCommandExecutionException("Cursor " + cursorId + " not found, it has been closed or it is expired");
+
+    beginResponse();
+    try {
+      final List<OIdentifiable> page;
+      try {
+        page = cursor.fetch(pageSize);
+      } finally {
+        if (cursor.isFinished())
+          connection.removeCursor(cursorId);
+      }
+
+      sendOk(clientTxId);
+      sendCursorPage(cursor, page);
+    } finally {
+      endResponse();
+    }
+  }
+
+  protected void closeCursor() throws IOException {
+    setDataCommandInfo("Close command cursor");
+
+    final OServerCommandCursor cursor = connection.removeCursor(channel.readInt());
+    if (cursor != null)
+      cursor.close();
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Sends the records of the page followed by the records loaded by the fetch plan and by the cursor id to fetch the next page, or
+   * -1 if the page is the last one.
+   */
+  private void sendCursorPage(final OServerCommandCursor iCursor, final List<OIdentifiable> iPage) throws IOException {
+    for (OIdentifiable o : iPage) {
+      channel.writeByte((byte) 1); // ONE MORE RECORD
+      try {
+        writeIdentifiable(o);
+      } catch (Exception e) {
+        OLogManager.instance().warn(this, "Cannot serialize record: " + o);
+        // WRITE NULL RECORD TO AVOID BREAKING PROTOCOL
+        writeIdentifiable(null);
+      }
+    }
+
+    for (ORecord<?> rec : iCursor.getFetchedRecords()) {
+      channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT ISN'T PART OF THE RESULT SET
+      writeIdentifiable(rec);
+    }
+
+    channel.writeByte((byte) 0); // NO MORE RECORDS IN THE PAGE
+    channel.writeInt(iCursor.isFinished() ? -1 : iCursor.getId());
+  }
+
   protected void deleteRecord() throws IOException {
     setDataCommandInfo("Delete record");
 
@@ -1486,6 +1652,186 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  /**
+   * Loads many records in one request. Every record has its own status: RESPONSE_STATUS_OK followed by the record (or 0 if it
+   * doesn't exist), or RESPONSE_STATUS_ERROR followed by the error. Then the records of the fetch plan are sent for the client
+   * cache as for a single load.
+   */
+  protected void readRecords() throws IOException {
+    setDataCommandInfo("Load records");
+
+    if (!isConnectionAlive())
+      return;
+
+    final String fetchPlanString = channel.readString();
+    final boolean ignoreCache = channel.readByte() == 1;
+    final int count = channel.readInt();
+    final List<ORecordId> rids = new ArrayList<ORecordId>(count);
+    for (int i = 0; i < count; ++i)
+      rids.add(channel.readRID());
+
+    OFetchHelper.checkFetchPlanValid(fetchPlanString);
+    final Map<String, Integer> fetchPlan = fetchPlanString.length() > 0 ? OFetchHelper.buildFetchPlan(fetchPlanString) : null;
+
+    final Object[] results = new Object[count];
+    final Set<ORecord<?>> recordsToSend = new HashSet<ORecord<?>>();
+    final OFetchListener listener = new ORemoteFetchListener() {
+      @Override
+      protected void sendRecord(ORecord<?> iLinked) {
+        recordsToSend.add(iLinked);
+      }
+    };
+
+    for (int i = 0; i < count; ++i)
+      try {
+        final ORecordInternal<?> record = connection.database.load(rids.get(i), fetchPlanString, ignoreCache, false,
+            OStorage.LOCKING_STRATEGY.DEFAULT);
+        results[i] = record;
+
+        if (fetchPlan != null && record instanceof ODocument)
+          OFetchHelper.fetch(record, record, fetchPlan, listener, new ORemoteFetchContext(), "");
+      } catch (Exception e) {
+        results[i] = e;
+      }
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      for (Object result : results) {
+        if (result instanceof Throwable) {
+          channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_ERROR);
+          sendRecordError((Throwable) result);
+          continue;
+        }
+
+        channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
+        if (result == null)
+          channel.writeByte((byte) 0);
+        else {
+          final ORecordInternal<?> record = (ORecordInternal<?>) result;
+          recordsToSend.remove(record);
+
+          channel.writeByte((byte) 1); // HAS RECORD
+          channel.writeBytes(record.toStream());
+          channel.writeVersion(record.getRecordVersion());
+          channel.writeByte(record.getRecordType());
+        }
+      }
+
+      // SEND RECORDS TO LOAD IN CLIENT CACHE
+      for (ORecord<?> d : recordsToSend) {
+        if (d.getIdentity().isValid()) {
+          channel.writeByte((byte) 2); // CLIENT CACHE
+          writeIdentifiable(d);
+        }
+      }
+      channel.writeByte((byte) 0); // NO MORE RECORDS
+
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Creates many records in one request. Every record has its own status: RESPONSE_STATUS_OK followed by the new position and
+   * version, or RESPONSE_STATUS_ERROR followed by the error.
+   */
+  protected void createRecords() throws IOException {
+    setDataCommandInfo("Create records");
+
+    if (!isConnectionAlive())
+      return;
+
+    final int count = channel.readInt();
+    final Object[] results = new Object[count];
+    for (int i = 0; i < count; ++i) {
+      final int dataSegmentId = channel.readInt();
+      final ORecordId rid = new ORecordId(channel.readShort(), ORID.CLUSTER_POS_INVALID);
+      final byte[] buffer = channel.readBytes();
+      final byte recordType = channel.readByte();
+
+      try {
+        results[i] = createRecord(connection.database, rid, buffer, recordType, dataSegmentId);
+      } catch (Exception e) {
+        results[i] = e;
+      }
+    }
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      for (Object result : results)
+        if (result instanceof Throwable) {
+          channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_ERROR);
+          sendRecordError((Throwable) result);
+        } else {
+          final ORecord<?> record = (ORecord<?>) result;
+          channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
+          channel.writeClusterPosition(record.getIdentity().getClusterPosition());
+          channel.writeVersion(record.getRecordVersion());
+        }
+
+      sendCollectionChanges();
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Updates many records in one request. Every record has its own status: RESPONSE_STATUS_OK followed by the new version, or
+   * RESPONSE_STATUS_ERROR followed by the error, for example a concurrent modification.
+   */
+  protected void updateRecords() throws IOException {
+    setDataCommandInfo("Update records");
+
+    if (!isConnectionAlive())
+      return;
+
+    final int count = channel.readInt();
+    final Object[] results = new Object[count];
+    for (int i = 0; i < count; ++i) {
+      final ORecordId rid = channel.readRID();
+      final byte[] buffer = channel.readBytes();
+      final ORecordVersion version = channel.readVersion();
+      final byte recordType = channel.readByte();
+
+      try {
+        // COPY THE VERSION: THE SAME RECORD COULD BE UPDATED AGAIN BY THE BATCH
+        results[i] = updateRecord(connection.database, rid, buffer, version, recordType).copy();
+      } catch (Exception e) {
+        results[i] = e;
+      }
+    }
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      for (Object result : results)
+        if (result instanceof Throwable) {
+          channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_ERROR);
+          sendRecordError((Throwable) result);
+        } else {
+          channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
+          channel.writeVersion((ORecordVersion) result);
+        }
+
+      sendCollectionChanges();
+    } finally {
+      endResponse();
+    }
+  }
+
+  /**
+   * Sends the error of a single record of a batch request in the same format of {@link #sendError(int, Throwable)}.
+   */
+  private void sendRecordError(final Throwable t) throws IOException {
+    sendErrorDetails(t);
+    serializeExceptionObject(t);
+  }
+
   protected void beginResponse() {
     channel.acquireWriteLock();
   }
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.fetch.remote.ORemoteFetchListener;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.type.ODocumentWrapper;
+import com.orientechnologies.orient.server.OClientConnection;
+import com.orientechnologies.orient.server.OClientConnectionManager;
+
+/**
+ * Server side cursor of a command executed by the binary protocol. The command runs in a thread of the cursor pool of
+ * {@link OClientConnectionManager} and is suspended as soon as a page of records is collected, so the server keeps only one page
+ * in memory and the client receives the first records while the command is still browsing the database. The command is resumed
+ * by the next fetch of the client.
+ * <p>
+ * The command thread and the connection thread never use the database at the same time: the command runs only while the
+ * connection thread waits for the page in {@link #fetch(int)}, and {@link #close()} returns only once the command ended. A cursor
+ * flagged by {@link #expire()} ends its command by itself, holding the lock of the connection so no request uses the database
+ * meanwhile.
+ */
+public class OServerCommandCursor extends OAbstractCommandResultListener implements Runnable {
+  private final int                 id;
+  private final OClientConnection   connection;
+  private final ODatabaseDocumentTx database;
+  private final OCommandRequestText command;
+
+  private List<OIdentifiable>       page;
+  private Set<ORecord<?>>           fetchedRecords;
+  private int                       pageSize;
+  private int                       browsed;
+  private boolean                   started;
+  private boolean                   suspended;
+  private boolean                   finished;
+  private boolean                   closed;
+  private boolean                   expired;
+  private boolean                   connectionLocked;
+  private Throwable                 error;
+  private volatile long             lastFetch = System.currentTimeMillis();
+
+  public OServerCommandCursor(final int iId, final OClientConnection iConnection, final OCommandRequestText iCommand) {
+    id = iId;
+    connection = iConnection;
+    database = iConnection.database;
+    command = iCommand;
+    command.setResultListener(this);
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Resumes the command until the next page is collected or the command ends.
+   *
+   * @return the records of the page, the records loaded by the fetch plan are returned by {@link #getFetchedRecords()}
+   */
+  public synchronized List<OIdentifiable> fetch(final int iPageSize) {
+    if (closed)
+      throw new OCommandExecutionException("Cursor " + id + " has been closed");
+
+    try {
+      page = new ArrayList<OIdentifiable>();
+      fetchedRecords = new HashSet<ORecord<?>>();
+      pageSize = iPageSize > 0 ? iPageSize : 1;
+      suspended = false;
+      expired = false;
+
+      if (!started) {
+        try {
+          OClientConnectionManager.instance().getCursorExecutor().execute(this);
+        } catch (RejectedExecutionException e) {
+          closed = true;
+          throw new OCommandExecutionException("Cannot open cursor " + id + ": all the "
+              + OGlobalConfiguration.NETWORK_BINARY_CURSOR_THREADS.getValueAsInteger()
+              + " threads of the server side cursors are busy, close the cursors not browsed until the end");
+        }
+        started = true;
+      } else
+        notifyAll();
+
+      while (!suspended && !finished)
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          closed = true;
+          notifyAll();
+          throw new OCommandExecutionException("Interrupted while waiting for the records of cursor " + id);
+        }
+
+      if (error != null) {
+        closed = true;
+        if (error instanceof RuntimeException)
+          throw (RuntimeException) error;
+        throw new OCommandExecutionException("Error on executing command: " + command, error);
+      }
+
+      return page;
+    } finally {
+      lastFetch = System.currentTimeMillis();
+    }
+  }
+
+  public synchronized Set<ORecord<?>> getFetchedRecords() {
+    return fetchedRecords;
+  }
+
+  /**
+   * Returns true if the command ended, so the last fetched page is the last one.
+   */
+  public synchronized boolean isFinished() {
+    return finished;
+  }
+
+  public boolean isExpired(final long iNow, final long iTimeout) {
+    return iNow - lastFetch > iTimeout;
+  }
+
+  /**
+   * Flags the cursor as expired, so the suspended command ends by itself as soon as it can lock the connection. Called by the
+   * timer of {@link OClientConnectionManager}, that cannot use the database of the connection.
+   *
+   * @return true if the command already ended, so the cursor can be removed
+   */
+  public synchronized boolean expire() {
+    if (!finished) {
+      expired = true;
+      notifyAll();
+    }
+    return finished;
+  }
+
+  /**
+   * Stops the command and waits for it to release the database. There is no timeout: the database is not thread safe, so the
+   * caller cannot use it again while the command could still be running.
+   */
+  public synchronized void close() {
+    closed = true;
+    notifyAll();
+
+    while (started && !finished)
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+  }
+
+  @Override
+  public void run() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(database);
+    try {
+      // ASSIGNED THE PARSED FETCHPLAN
+      setFetchPlan(database.command(command).getFetchPlan());
+
+      final Object result = database.command(command).execute();
+
+      if (browsed == 0 && result != null)
+        // THE RESULT HAS NOT BEEN PASSED TO THE LISTENER
+        if (result instanceof OIdentifiable)
+          result(result);
+        else if (result instanceof ODocumentWrapper)
+          result(((ODocumentWrapper) result).getDocument());
+        else if (OMultiValue.isMultiValue(result)) {
+          for (Object o : OMultiValue.getMultiValueIterable(result))
+            if (!result(o))
+              break;
+        } else
+          throw new OCommandExecutionException("Command '" + command.getText() + "' returned '" + result
+              + "' that cannot be browsed by a cursor");
+
+    } catch (Throwable t) {
+      synchronized (this) {
+        if (!closed)
+          error = t;
+        else
+          OLogManager.instance().debug(this, "Error on closing cursor %d", t, id);
+      }
+    } finally {
+      ODatabaseRecordThreadLocal.INSTANCE.remove();
+
+      final boolean unlock;
+      synchronized (this) {
+        finished = true;
+        notifyAll();
+        unlock = connectionLocked;
+      }
+
+      if (unlock)
+        // THE CONNECTION CAN SERVE REQUESTS AGAIN
+        connection.release();
+    }
+  }
+
+  @Override
+  public synchronized boolean result(final Object iRecord) {
+    if (closed)
+      return false;
+
+    browsed++;
+    if (!(iRecord instanceof OIdentifiable))
+      throw new OCommandExecutionException("Command '" + command.getText() + "' returned '" + iRecord
+          + "' that cannot be browsed by a cursor");
+
+    fetchRecord(iRecord, new ORemoteFetchListener() {
+      @Override
+      protected void sendRecord(final ORecord<?> iLinked) {
+        fetchedRecords.add(iLinked);
+      }
+    });
+
+    page.add(((OIdentifiable) iRecord).getRecord());
+
+    if (page.size() >= pageSize) {
+      // SUSPEND THE COMMAND UNTIL THE NEXT FETCH
+      suspended = true;
+      notifyAll();
+
+      while (suspended && !closed) {
+        if (expired && connection.tryAcquire()) {
+          // THE CLIENT DID NOT FETCH THE CURSOR IN TIME: END THE COMMAND WHILE NO REQUEST CAN USE THE DATABASE
+          connectionLocked = true;
+          closed = true;
+          break;
+        }
+
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+
+    return !closed;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return browsed == 0;
+  }
+}
@@ -18,34 +18,81 @@ package com.orientechnologies.orient.server.network.protocol.http;
 import java.io.IOException;
 import java.io.OutputStream;
 
+/**
+ * Writes the content of the response using the chunked transfer encoding. If the response is compressed the content is compressed
+ * before being split in chunks.
+ */
 public class OChunkedResponse extends OutputStream {
 
-  private OHttpResponse response;
-  private byte[]        buffer     = new byte[8192];
-  private int           bufferSize = 0;
+  private OHttpResponse      response;
+  private byte[]             buffer     = new byte[8192];
+  private int                bufferSize = 0;
+  private final OutputStream compressor;
+  private boolean            closed;
 
-  public OChunkedResponse(final OHttpResponse iHttpResponse) {
+  public OChunkedResponse(final OHttpResponse iHttpResponse) throws IOException {
     response = iHttpResponse;
+    compressor = response.isCompressed() ? response.compressStream(new OutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        writeChunked(b);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+        for (int i = off; i < off + len; ++i)
+          writeChunked(b[i]);
+      }
+    }) : null;
   }
 
   @Override
   public void write(int b) throws IOException {
-    buffer[bufferSize++] = (byte) b;
-    if (bufferSize >= buffer.length)
-      writeContent();
+    if (compressor != null)
+      compressor.write(b);
+    else
+      writeChunked(b);
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    if (compressor != null)
+      compressor.write(b, off, len);
+    else
+      for (int i = off; i < off + len; ++i)
+        writeChunked(b[i]);
   }
 
   @Override
   public void flush() throws IOException {
+    if (compressor != null)
+      compressor.flush();
     writeContent();
     response.flush();
   }
 
   @Override
   public void close() throws IOException {
+    if (compressor != null)
+      // WRITE THE REMAINING COMPRESSED DATA, THE RESPONSE STREAM IS NOT CLOSED
+      compressor.close();
     writeContent();
     response.writeLine("0");
     response.writeLine(null);
+    closed = true;
+  }
+
+  /**
+   * Returns true if the last chunk has been sent, so the response is complete.
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  protected void writeChunked(final int b) throws IOException {
+    buffer[bufferSize++] = (byte) b;
+    if (bufferSize >= buffer.length)
+      writeContent();
   }
 
   protected void writeContent() throws IOException {
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2013 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.serialization.serializer.OJSONWriter;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerJSON;
+
+/**
+ * Listener of a query or command that writes the records in the HTTP response as soon as they are found, with the same JSON
+ * format of {@link OHttpResponse#writeRecords(Object, String, String, String)}. The response is sent with the chunked transfer
+ * encoding, so neither the result nor its JSON are kept in memory. The response starts with the first record: if the command
+ * returns no records, or fails before, {@link #isStarted()} returns false and a regular response can be sent. The fetch plan is read
+ * from the command at the first record, so the one parsed from the statement is used.
+ */
+public class OHttpRecordStream implements OCommandResultListener {
+  private final OHttpResponse   response;
+  private final OCommandRequest command;
+  private final String          format;
+  private String                recordFormat;
+  private OChunkedResponse      chunkedOutput;
+  private Writer                output;
+  private OJSONWriter           json;
+  private IOException           error;
+
+  public OHttpRecordStream(final OHttpResponse iResponse, final String iFormat, final OCommandRequest iCommand) {
+    response = iResponse;
+    command = iCommand;
+    format = iFormat == null ? OHttpResponse.JSON_FORMAT : OHttpResponse.JSON_FORMAT + "," + iFormat;
+  }
+
+  public boolean result(final Object iRecord) {
+    if (error != null)
+      // THE CLIENT IS NOT RECEIVING ANYMORE: STOP THE COMMAND
+      return false;
+
+    if (iRecord == null)
+      return true;
+
+    try {
+      if (iRecord instanceof OIdentifiable) {
+        final ORecord<?> record = ((OIdentifiable) iRecord).getRecord();
+        if (record != null) {
+          beginRecord();
+          ORecordSerializerJSON.INSTANCE.write((ORecordInternal<?>) record, output, recordFormat);
+        }
+      } else {
+        beginRecord();
+        output.write(OJSONWriter.writeValue(iRecord, recordFormat));
+      }
+    } catch (IOException e) {
+      error = e;
+      return false;
+    }
+
+    return true;
+  }
+
+  public void end() {
+  }
+
+  public boolean isStarted() {
+    return chunkedOutput != null;
+  }
+
+  /**
+   * Completes the JSON and the response.
+   *
+   * @throws IOException
+   *           if the response could not be sent
+   */
+  public void close() throws IOException {
+    if (error != null)
+      throw error;
+
+    if (chunkedOutput == null)
+      return;
+
+    json.endCollection(-1, true);
+    json.endObject();
+
+    if (response.callbackFunction != null)
+      output.write(")");
+
+    output.flush();
+    chunkedOutput.close();
+    response.flush();
+  }
+
+  private void beginRecord() throws IOException {
+    if (chunkedOutput == null) {
+      final String fetchPlan = command.getFetchPlan();
+      recordFormat = fetchPlan != null ? format + ",fetchPlan:" + fetchPlan : format;
+
+      chunkedOutput = response.startChunked(OHttpUtils.STATUS_OK_CODE, OHttpUtils.STATUS_OK_DESCRIPTION,
+          response.callbackFunction != null ? OHttpUtils.CONTENT_JAVASCRIPT : OHttpUtils.CONTENT_JSON, null);
+      output = new OutputStreamWriter(chunkedOutput, "UTF-8");
+
+      if (response.callbackFunction != null)
+        output.write(response.callbackFunction + "(");
+
+      json = new OJSONWriter(output, format);
+      json.beginObject();
+      json.beginCollection(-1, true, "result");
+    } else
+      output.write(", ");
+  }
+}
@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPOutputStream;
 
 import com.orientechnologies.common.collection.OMultiValue;
@@ -60,6 +61,7 @@ public class OHttpResponse {
   public String              callbackFunction;
   public String              contentEncoding;
   public boolean             sendStarted   = false;
+  private OChunkedResponse   chunkedResponse;
 
   public OHttpResponse(final OutputStream iOutStream, final String iHttpVersion, final String[] iAdditionalHeaders,
       final String iResponseCharSet, final String iServerInfo, final String iSessionId, final String iCallbackFunction) {
@@ -109,7 +111,7 @@ public class OHttpResponse {
 
     byte[] binaryContent = null;
     if (!empty) {
-      if (contentEncoding != null && contentEncoding.equals(OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED))
+      if (isCompressed())
         binaryContent = compress(content);
       else
         binaryContent = OBinaryProtocol.string2bytes(content);
@@ -350,6 +352,21 @@ public class OHttpResponse {
 
   public void sendStream(final int iCode, final String iReason, final String iContentType, InputStream iContent, long iSize,
       final String iFileName) throws IOException {
+    if (isCompressed()) {
+      // THE SIZE OF THE COMPRESSED CONTENT IS UNKNOWN: COMPRESS IT WHILE SENDING IT IN CHUNKS
+      final OChunkedResponse chunkedOutput = startChunked(iCode, iReason, iContentType, iFileName);
+      if (iContent != null) {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = iContent.read(buffer)) > -1)
+          chunkedOutput.write(buffer, 0, read);
+      }
+      chunkedOutput.close();
+
+      out.flush();
+      return;
+    }
+
     writeStatus(iCode, iReason);
     writeHeaders(iContentType);
     writeLine("Content-Transfer-Encoding: binary");
@@ -386,6 +403,21 @@ public class OHttpResponse {
 
   public void sendStream(final int iCode, final String iReason, final String iContentType, final String iFileName,
       final OCallable<Void, OChunkedResponse> iWriter) throws IOException {
+    final OChunkedResponse chunkedOutput = startChunked(iCode, iReason, iContentType, iFileName);
+    iWriter.call(chunkedOutput);
+    chunkedOutput.close();
+
+    out.flush();
+  }
+
+  /**
+   * Sends the headers of a response with unknown size. The content must be written in the returned stream, that sends it in chunks
+   * and must be closed at the end.
+   */
+  public OChunkedResponse startChunked(final int iCode, final String iReason, final String iContentType, final String iFileName)
+      throws IOException {
+    sendStarted = true;
+
     writeStatus(iCode, iReason);
     writeHeaders(iContentType);
     writeLine("Content-Transfer-Encoding: binary");
@@ -394,25 +426,49 @@ public class OHttpResponse {
     if (iFileName != null)
       writeLine("Content-Disposition: attachment; filename=\"" + iFileName + "\"");
 
+    if (sessionId != null)
+      writeLine("Set-Cookie: " + OHttpUtils.OSESSIONID + "=" + sessionId + "; Path=/; HttpOnly");
+
     writeLine(null);
 
-    final OChunkedResponse chunkedOutput = new OChunkedResponse(this);
-    iWriter.call(chunkedOutput);
-    chunkedOutput.close();
+    chunkedResponse = new OChunkedResponse(this);
+    return chunkedResponse;
+  }
 
-    out.flush();
+  /**
+   * Returns true if a chunked response has been started and its last chunk has not been sent yet.
+   */
+  public boolean isStreaming() {
+    return chunkedResponse != null && !chunkedResponse.isClosed();
+  }
+
+  /**
+   * Returns true if the content is compressed with an encoding accepted by the client.
+   */
+  public boolean isCompressed() {
+    return OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED.equals(contentEncoding)
+        || OHttpUtils.CONTENT_ACCEPT_DEFLATE_ENCODED.equals(contentEncoding);
+  }
+
+  /**
+   * Wraps the stream to compress the written content with the encoding of the response.
+   */
+  public DeflaterOutputStream compressStream(final OutputStream iOutput) throws IOException {
+    if (OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED.equals(contentEncoding))
+      return new GZIPOutputStream(iOutput, 16384); // 16KB
+    return new DeflaterOutputStream(iOutput);
   }
 
   // Compress content string
   public byte[] compress(String jsonStr) {
     if (jsonStr == null || jsonStr.length() == 0)
       return null;
-    GZIPOutputStream gout = null;
+    DeflaterOutputStream gout = null;
     ByteArrayOutputStream baos = null;
     try {
       byte[] incoming = jsonStr.getBytes("UTF-8");
       baos = new ByteArrayOutputStream();
-      gout = new GZIPOutputStream(baos, 16384); // 16KB
+      gout = compressStream(baos);
       gout.write(incoming);
       gout.finish();
       return baos.toByteArray();
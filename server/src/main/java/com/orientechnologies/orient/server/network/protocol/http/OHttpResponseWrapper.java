@@ -112,7 +112,8 @@ public class OHttpResponseWrapper {
   }
 
   /**
-   * Sets the response's headers using the keep-alive.
+   * Sets the response's headers using the keep-alive. The content written after the headers is sent as is, so it is not declared
+   * as compressed.
    * 
    * @param iContentType
    *          Response's content type
@@ -120,12 +121,12 @@ public class OHttpResponseWrapper {
    */
 
   public OHttpResponseWrapper writeHeaders(final String iContentType) throws IOException {
-    response.writeHeaders(iContentType);
-    return this;
+    return writeHeaders(iContentType, true);
   }
 
   /**
-   * Sets the response's headers specifying when using the keep-alive or not.
+   * Sets the response's headers specifying when using the keep-alive or not. The content written after the headers is sent as is,
+   * so it is not declared as compressed.
    * 
    * @param iContentType
    *          Response's content type
@@ -134,6 +135,8 @@ public class OHttpResponseWrapper {
    * @return The object itself for fluent chained calls
    */
   public OHttpResponseWrapper writeHeaders(final String iContentType, final boolean iKeepAlive) throws IOException {
+    // RAW CONTENT: NO CONTENT ENCODING
+    response.setContentEncoding(null);
     response.writeHeaders(iContentType, iKeepAlive);
     return this;
   }
@@ -71,6 +71,7 @@ public class OHttpUtils {
   public static final String CONTENT_JAVASCRIPT                  = "text/javascript";
   public static final String CONTENT_GZIP                        = "application/x-gzip";
   public static final String CONTENT_ACCEPT_GZIP_ENCODED         = "gzip";
+  public static final String CONTENT_ACCEPT_DEFLATE_ENCODED      = "deflate";
 
   public static final String CALLBACK_PARAMETER_NAME             = "callback";
 
@@ -119,6 +120,31 @@ public class OHttpUtils {
     return Collections.emptyMap();
   }
 
+  /**
+   * Chooses the encoding of the response between the ones listed in the Accept-Encoding header of the request. gzip is preferred to
+   * deflate, encodings refused with "q=0" are ignored.
+   *
+   * @return the encoding to use or null to send the content as is
+   */
+  public static String getResponseEncoding(final String iAcceptEncoding) {
+    if (iAcceptEncoding == null)
+      return null;
+
+    String encoding = null;
+    for (String item : iAcceptEncoding.split(",")) {
+      final String[] parts = item.split(";");
+      if (parts.length > 1 && parts[1].trim().matches("q\\s*=\\s*0(\\.0*)?"))
+        continue;
+
+      final String coding = parts[0].trim().toLowerCase();
+      if (coding.equals(CONTENT_ACCEPT_GZIP_ENCODED))
+        return CONTENT_ACCEPT_GZIP_ENCODED;
+      else if (coding.equals(CONTENT_ACCEPT_DEFLATE_ENCODED))
+        encoding = CONTENT_ACCEPT_DEFLATE_ENCODED;
+    }
+    return encoding;
+  }
+
   public static String nextChainUrl(final String iCurrentUrl) {
     if (!iCurrentUrl.contains("/"))
       return iCurrentUrl;
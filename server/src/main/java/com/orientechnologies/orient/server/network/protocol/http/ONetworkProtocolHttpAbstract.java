@@ -90,6 +90,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
   private String                       responseCharSet;
   private String[]                     additionalResponseHeaders;
   private String                       listeningAddress  = "?";
+  private boolean                      compression;
 
   public ONetworkProtocolHttpAbstract() {
     super(Orient.instance().getThreadGroup(), "IO-HTTP");
@@ -111,6 +112,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
     requestMaxContentLength = iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_HTTP_MAX_CONTENT_LENGTH);
     socketTimeout = iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT);
     responseCharSet = iConfiguration.getValueAsString(OGlobalConfiguration.NETWORK_HTTP_CONTENT_CHARSET);
+    compression = iConfiguration.getValueAsBoolean(OGlobalConfiguration.NETWORK_HTTP_COMPRESSION);
 
     channel = new OChannelTextServer(iSocket, iConfiguration);
     channel.connected();
@@ -137,9 +139,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
     response = new OHttpResponse(channel.outStream, request.httpVersion, additionalResponseHeaders, responseCharSet,
         connection.data.serverInfo, request.sessionId, callbackF);
-    if (request.contentEncoding != null && request.contentEncoding.equals(OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED)) {
-      response.setContentEncoding(OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED);
-    }
+    if (compression)
+      response.setContentEncoding(OHttpUtils.getResponseEncoding(request.contentEncoding));
 
     waitNodeIsOnline();
 
@@ -331,6 +332,20 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
       OLogManager.instance().error(this, "Internal server error:\n%s", errorMessage);
     }
 
+    if (response != null && response.sendStarted) {
+      // THE STATUS IS ALREADY SENT: A NEW RESPONSE WOULD BE READ AS PART OF THE CONTENT
+      if (response.isStreaming()) {
+        // END THE STREAM WITHOUT THE LAST CHUNK, SO THE CLIENT SEES THE RESPONSE AS TRUNCATED
+        try {
+          channel.flush();
+        } catch (IOException e1) {
+          // IGNORE IT, THE CONNECTION IS CLOSED ANYWAY
+        }
+        sendShutdown();
+      }
+      return;
+    }
+
     try {
       sendTextContent(errorCode, errorReason, responseHeaders, OHttpUtils.CONTENT_TEXT_PLAIN, errorMessage);
     } catch (IOException e1) {
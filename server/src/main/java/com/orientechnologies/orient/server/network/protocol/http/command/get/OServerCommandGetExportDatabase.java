@@ -47,6 +47,8 @@ public class OServerCommandGetExportDatabase extends OServerCommandAuthenticated
     iRequest.data.commandInfo = "Database export";
     final ODatabaseRecord database = getProfiledDatabaseInstance(iRequest);
     try {
+      // THE CONTENT IS WRITTEN DIRECTLY IN THE SOCKET: DON'T COMPRESS IT
+      iResponse.setContentEncoding(null);
       iResponse.writeStatus(OHttpUtils.STATUS_OK_CODE, OHttpUtils.STATUS_OK_DESCRIPTION);
       iResponse.writeHeaders(OHttpUtils.CONTENT_GZIP);
       iResponse.writeLine("Content-Disposition: attachment; filename=" + database.getName() + ".gz");
@@ -89,6 +89,8 @@ public class OServerCommandGetFileDownload extends OServerCommandAuthenticatedDb
 
   protected void sendORecordBinaryFileContent(final OHttpRequest iRequest, final OHttpResponse iResponse, final int iCode,
       final String iReason, final String iContentType, final ORecordBytes record, final String iFileName) throws IOException {
+    // THE CONTENT IS WRITTEN DIRECTLY IN THE SOCKET: DON'T COMPRESS IT
+    iResponse.setContentEncoding(null);
     iResponse.writeStatus(iCode, iReason);
     iResponse.writeHeaders(iContentType);
     iResponse.writeLine("Content-Disposition: attachment; filename=" + iFileName);
@@ -103,6 +105,8 @@ public class OServerCommandGetFileDownload extends OServerCommandAuthenticatedDb
 
   protected void sendBinaryFieldFileContent(final OHttpRequest iRequest, final OHttpResponse iResponse, final int iCode,
       final String iReason, final String iContentType, final byte[] record, final String iFileName) throws IOException {
+    // THE CONTENT IS WRITTEN DIRECTLY IN THE SOCKET: DON'T COMPRESS IT
+    iResponse.setContentEncoding(null);
     iResponse.writeStatus(iCode, iReason);
     iResponse.writeHeaders(iContentType);
     iResponse.writeLine("Content-Disposition: attachment; filename=" + iFileName);
@@ -17,11 +17,13 @@ package com.orientechnologies.orient.server.network.protocol.http.command.get;
 
 import java.util.List;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.query.OQueryAbstract;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpRecordStream;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpResponse;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedDbAbstract;
@@ -48,16 +50,25 @@ public class OServerCommandGetQuery extends OServerCommandAuthenticatedDbAbstrac
 
     ODatabaseDocumentTx db = null;
 
-    final List<OIdentifiable> response;
-
     try {
       db = getProfiledDatabaseInstance(iRequest);
 
       final OQueryAbstract command = new OSQLSynchQuery<ORecordSchemaAware<?>>(text, limit).setFetchPlan(fetchPlan);
-      response = (List<OIdentifiable>) db.query(command);
+
+      OHttpRecordStream stream = null;
+      if (OGlobalConfiguration.NETWORK_HTTP_STREAMING.getValueAsBoolean()) {
+        // SEND THE RECORDS AS SOON AS THEY ARE FOUND
+        stream = new OHttpRecordStream(iResponse, null, command);
+        command.setResultListener(stream);
+      }
+
+      final List<OIdentifiable> response = (List<OIdentifiable>) db.query(command);
       fetchPlan = command.getFetchPlan();
 
-      iResponse.writeRecords(response, fetchPlan);
+      if (stream != null && stream.isStarted())
+        stream.close();
+      else
+        iResponse.writeRecords(response, fetchPlan);
 
     } finally {
       if (db != null)
@@ -18,8 +18,10 @@ package com.orientechnologies.orient.server.network.protocol.http.command.post;
 import com.orientechnologies.orient.core.command.OCommandExecutor;
 import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpRecordStream;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpResponse;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedDbAbstract;
@@ -70,14 +72,27 @@ public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbst
       if (!executor.isIdempotent() && iRequest.httpMethod.equals("GET"))
         throw new OCommandExecutionException("Cannot execute non idempotent command using HTTP GET");
 
-      response = db.command(cmd).execute();
-
-      fetchPlan = executor.getFetchPlan();
-
       String format = null;
       if (iRequest.parameters.get("format") != null)
         format = iRequest.parameters.get("format");
 
+      OHttpRecordStream stream = null;
+      if (OGlobalConfiguration.NETWORK_HTTP_STREAMING.getValueAsBoolean() && (accept == null || !accept.contains("text/csv"))) {
+        // SEND THE RECORDS AS SOON AS THEY ARE FOUND. COMMANDS THAT DON'T BROWSE RECORDS RETURN THE RESULT AS USUAL
+        cmd.setFetchPlan(executor.getFetchPlan());
+        stream = new OHttpRecordStream(iResponse, format, cmd);
+        cmd.setResultListener(stream);
+      }
+
+      response = db.command(cmd).execute();
+
+      if (stream != null && stream.isStarted()) {
+        stream.close();
+        return false;
+      }
+
+      fetchPlan = executor.getFetchPlan();
+
       if (fetchPlan != null)
         if (format != null)
           format += ",fetchPlan:" + fetchPlan;
@@ -0,0 +1,233 @@
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.enterprise.channel.OChannel;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.network.OServerNetworkListener;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+@Test
+public class ONioServerTransportTest {
+  private ServerSocketChannel serverChannel;
+  private ONioServerTransport transport;
+  private Thread              acceptor;
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    if (transport != null)
+      transport.shutdown();
+    if (serverChannel != null)
+      serverChannel.close();
+    if (acceptor != null)
+      acceptor.join(5000);
+  }
+
+  public void testPartialRequestDoesNotHoldTheWorker() throws Exception {
+    start(1, 16);
+
+    final Socket slow = connect();
+    final Socket fast = connect();
+    try {
+      // ONLY THE REQUEST TYPE AND HALF OF THE TX ID: THE ONLY WORKER WAITS FOR THE REST
+      final DataOutputStream slowOut = new DataOutputStream(slow.getOutputStream());
+      slowOut.writeByte(1);
+      slowOut.writeShort(0);
+      slowOut.flush();
+
+      waitForStalledWorkers(1);
+
+      // THE OTHER CONNECTION IS SERVED IN THE MEANTIME
+      Assert.assertEquals(request(fast, 2, 0), 2);
+
+      slowOut.writeShort(1);
+      slowOut.writeInt(0);
+      slowOut.flush();
+
+      final DataInputStream slowIn = new DataInputStream(slow.getInputStream());
+      Assert.assertEquals(slowIn.readInt(), 1);
+      Assert.assertEquals(slowIn.readInt(), 0);
+
+      waitForStalledWorkers(0);
+    } finally {
+      slow.close();
+      fast.close();
+    }
+  }
+
+  public void testStalledWorkersAreBounded() throws Exception {
+    start(1, 16);
+
+    final List<Socket> sockets = new ArrayList<Socket>();
+    try {
+      for (int i = 0; i < 3; ++i) {
+        final Socket s = connect();
+        sockets.add(s);
+        s.getOutputStream().write(1);
+        s.getOutputStream().flush();
+      }
+
+      waitForStalledWorkers(1);
+      Thread.sleep(200);
+
+      // NO MORE THAN TWICE THE CONFIGURED WORKERS
+      Assert.assertEquals(transport.getStalledWorkers(), 1);
+      Assert.assertTrue(transport.getPoolSize() <= 2);
+    } finally {
+      for (Socket s : sockets)
+        s.close();
+    }
+  }
+
+  public void testFullWorkerQueueDelaysTheConnections() throws Exception {
+    start(1, 1);
+
+    final int clients = 8;
+    final ExecutorService executor = Executors.newFixedThreadPool(clients);
+    try {
+      final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < clients; ++i) {
+        final int id = i;
+        results.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            final Socket socket = connect();
+            try {
+              return request(socket, id, 50);
+            } finally {
+              socket.close();
+            }
+          }
+        }));
+      }
+
+      for (int i = 0; i < clients; ++i)
+        Assert.assertEquals(results.get(i).get().intValue(), i);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void start(final int iWorkers, final int iQueue) throws IOException {
+    final OContextConfiguration configuration = new OContextConfiguration();
+    configuration.setValue(OGlobalConfiguration.NETWORK_NIO_IO_THREADS, 1);
+    configuration.setValue(OGlobalConfiguration.NETWORK_NIO_WORKER_THREADS, iWorkers);
+    configuration.setValue(OGlobalConfiguration.NETWORK_NIO_WORKER_QUEUE, iQueue);
+    configuration.setValue(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT, 30000);
+
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+
+    transport = new ONioServerTransport(null, null, EchoProtocol.class, serverChannel, configuration);
+
+    acceptor = new Thread() {
+      @Override
+      public void run() {
+        while (serverChannel.isOpen())
+          try {
+            transport.acceptConnection();
+          } catch (Exception e) {
+            // CLOSED
+          }
+      }
+    };
+    acceptor.start();
+  }
+
+  private Socket connect() throws IOException {
+    final Socket socket = new Socket("127.0.0.1", serverChannel.socket().getLocalPort());
+    socket.setSoTimeout(10000);
+    return socket;
+  }
+
+  private int request(final Socket iSocket, final int iTxId, final int iDelay) throws IOException {
+    final DataOutputStream out = new DataOutputStream(iSocket.getOutputStream());
+    out.writeByte(1);
+    out.writeInt(iTxId);
+    out.writeInt(iDelay);
+    out.flush();
+
+    final DataInputStream in = new DataInputStream(iSocket.getInputStream());
+    try {
+      final int txId = in.readInt();
+      Assert.assertEquals(in.readInt(), iDelay);
+      return txId;
+    } catch (SocketTimeoutException e) {
+      Assert.fail("No response for request " + iTxId);
+      return -1;
+    }
+  }
+
+  private void waitForStalledWorkers(final int iExpected) throws InterruptedException {
+    final long start = System.currentTimeMillis();
+    while (transport.getStalledWorkers() != iExpected && System.currentTimeMillis() - start < 5000)
+      Thread.sleep(10);
+    Assert.assertEquals(transport.getStalledWorkers(), iExpected);
+  }
+
+  /**
+   * Waits the requested milliseconds and answers with the tx id and the delay.
+   */
+  public static class EchoProtocol extends OBinaryNetworkProtocolAbstract {
+    public EchoProtocol() {
+      super("Echo protocol");
+    }
+
+    @Override
+    public void config(final OServerNetworkListener iListener, final OServer iServer, final Socket iSocket,
+        final OContextConfiguration iConfiguration) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected boolean executeRequest() throws IOException {
+      final int delay = channel.readInt();
+      if (delay > 0)
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+
+      channel.writeInt(clientTxId);
+      channel.writeInt(delay);
+      channel.flush();
+      return true;
+    }
+
+    @Override
+    protected void sendError(final int iClientTxId, final Throwable t) throws IOException {
+      channel.writeInt(iClientTxId);
+      channel.writeInt(-1);
+      channel.flush();
+    }
+
+    @Override
+    public String getType() {
+      return "echo";
+    }
+
+    @Override
+    public OChannel getChannel() {
+      return channel;
+    }
+  }
+}
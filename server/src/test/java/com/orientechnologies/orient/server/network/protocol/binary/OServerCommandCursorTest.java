@@ -0,0 +1,95 @@
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.server.OClientConnection;
+
+@Test
+public class OServerCommandCursorTest {
+  private static final int    RECORDS = 100;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:OServerCommandCursorTest");
+    db.create();
+
+    for (int i = 0; i < RECORDS; ++i)
+      new ODocument("Item").field("value", i).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    db.drop();
+  }
+
+  public void testFetchAllPages() throws Exception {
+    final OServerCommandCursor cursor = openCursor(connection());
+
+    int browsed = 0;
+    while (!cursor.isFinished())
+      browsed += cursor.fetch(30).size();
+
+    Assert.assertEquals(browsed, RECORDS);
+  }
+
+  public void testExpiredCursorEndsItsCommand() throws Exception {
+    final OClientConnection connection = connection();
+    final OServerCommandCursor cursor = openCursor(connection);
+    connection.addCursor(cursor);
+
+    final List<OIdentifiable> page = cursor.fetch(10);
+    Assert.assertEquals(page.size(), 10);
+    Assert.assertFalse(cursor.isFinished());
+
+    connection.expireCursors(Long.MAX_VALUE);
+    Assert.assertEquals(connection.getCursorCount(), 1);
+
+    // A REQUEST IS USING THE DATABASE: THE COMMAND WAITS FOR IT
+    connection.acquire();
+    try {
+      Thread.sleep(10);
+      connection.expireCursors(0);
+      Thread.sleep(100);
+      Assert.assertFalse(cursor.isFinished());
+    } finally {
+      connection.release();
+    }
+
+    // THE NEXT RUN OF THE TIMER WAKES THE COMMAND UP AGAIN
+    final long timeout = System.currentTimeMillis() + 10000;
+    while (connection.getCursorCount() > 0 && System.currentTimeMillis() < timeout) {
+      connection.expireCursors(0);
+      Thread.sleep(10);
+    }
+
+    Assert.assertTrue(cursor.isFinished());
+    Assert.assertEquals(connection.getCursorCount(), 0);
+
+    // THE CONNECTION IS FREE FOR THE NEXT REQUEST
+    Assert.assertTrue(connection.tryAcquire());
+    connection.release();
+  }
+
+  private OClientConnection connection() throws Exception {
+    final OClientConnection connection = new OClientConnection(1, null);
+    connection.database = db;
+    return connection;
+  }
+
+  private OServerCommandCursor openCursor(final OClientConnection connection) {
+    return new OServerCommandCursor(connection.nextCursorId(), connection, new OSQLSynchQuery<ODocument>("select from Item"));
+  }
+}
@@ -0,0 +1,139 @@
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class OHttpResponseTest {
+  private static final byte[]   EOH = "\r\n\r\n".getBytes();
+
+  private ByteArrayOutputStream out;
+  private OHttpResponse         response;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    out = new ByteArrayOutputStream();
+    response = new OHttpResponse(out, "HTTP/1.1", null, "utf-8", "OrientDB test", null, null);
+  }
+
+  public void testCompressedContent() throws IOException {
+    response.setContentEncoding(OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED);
+    final String content = new String(content(10000));
+    response.send(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_JSON, content, null);
+
+    final byte[] body = body();
+    Assert.assertTrue(headers().contains("Content-Encoding: gzip"));
+    Assert.assertTrue(headers().contains(OHttpUtils.HEADER_CONTENT_LENGTH + body.length));
+    Assert.assertTrue(body.length < content.length());
+    Assert.assertEquals(new String(gunzip(body)), content);
+  }
+
+  public void testChunkedStream() throws IOException {
+    final byte[] content = content(20000);
+
+    final OChunkedResponse chunkedOutput = response.startChunked(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_JSON, null);
+    Assert.assertTrue(response.isStreaming());
+    chunkedOutput.write(content, 0, content.length);
+    chunkedOutput.close();
+    Assert.assertFalse(response.isStreaming());
+
+    Assert.assertTrue(headers().contains("Transfer-Encoding: chunked"));
+    Assert.assertFalse(headers().contains(OHttpUtils.HEADER_CONTENT_LENGTH));
+    Assert.assertEquals(dechunk(body()), content);
+  }
+
+  public void testCompressedStreamOfKnownSizeIsNotBuffered() throws IOException {
+    response.setContentEncoding(OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED);
+    final byte[] content = content(20000);
+
+    response.sendStream(OHttpUtils.STATUS_OK_CODE, "OK", OHttpUtils.CONTENT_TEXT_PLAIN, new ByteArrayInputStream(content),
+        content.length);
+
+    // THE COMPRESSED SIZE IS UNKNOWN BEFORE THE END: SENT IN CHUNKS
+    Assert.assertTrue(headers().contains("Content-Encoding: gzip"));
+    Assert.assertTrue(headers().contains("Transfer-Encoding: chunked"));
+    Assert.assertFalse(headers().contains(OHttpUtils.HEADER_CONTENT_LENGTH));
+    Assert.assertEquals(gunzip(dechunk(body())), content);
+  }
+
+  public void testRawContentIsNotDeclaredCompressed() throws IOException {
+    response.setContentEncoding(OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED);
+
+    new OHttpResponseWrapper(response).writeStatus(OHttpUtils.STATUS_OK_CODE, "OK").writeHeaders(OHttpUtils.CONTENT_TEXT_PLAIN)
+        .writeLine(null).writeContent("raw").flush();
+
+    Assert.assertFalse(headers().contains("Content-Encoding"));
+    Assert.assertEquals(new String(body()), "raw");
+  }
+
+  private static byte[] content(final int iSize) {
+    final byte[] content = new byte[iSize];
+    for (int i = 0; i < iSize; ++i)
+      content[i] = (byte) ('a' + i % 26);
+    return content;
+  }
+
+  private String headers() {
+    final byte[] bytes = out.toByteArray();
+    return new String(bytes, 0, endOfHeaders(bytes));
+  }
+
+  private byte[] body() {
+    final byte[] bytes = out.toByteArray();
+    return Arrays.copyOfRange(bytes, endOfHeaders(bytes) + EOH.length, bytes.length);
+  }
+
+  private static int endOfHeaders(final byte[] iBytes) {
+    for (int i = 0; i <= iBytes.length - EOH.length; ++i)
+      if (Arrays.equals(Arrays.copyOfRange(iBytes, i, i + EOH.length), EOH))
+        return i;
+    throw new IllegalStateException("No end of headers");
+  }
+
+  /**
+   * Joins the chunks, checking the last one is sent.
+   */
+  private static byte[] dechunk(final byte[] iBody) throws IOException {
+    final InputStream in = new ByteArrayInputStream(iBody);
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    int size;
+    while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+      final byte[] chunk = new byte[size];
+      Assert.assertEquals(in.read(chunk), size);
+      content.write(chunk);
+      Assert.assertEquals(readLine(in), "");
+    }
+    Assert.assertEquals(readLine(in), "");
+    Assert.assertEquals(in.read(), -1);
+    return content.toByteArray();
+  }
+
+  private static String readLine(final InputStream iInput) throws IOException {
+    final StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = iInput.read()) != '\n') {
+      Assert.assertTrue(c > -1, "Truncated chunked content");
+      if (c != '\r')
+        line.append((char) c);
+    }
+    return line.toString();
+  }
+
+  private static byte[] gunzip(final byte[] iContent) throws IOException {
+    final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(iContent));
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) > -1)
+      content.write(buffer, 0, read);
+    return content.toByteArray();
+  }
+}
@@ -0,0 +1,27 @@
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OHttpUtilsTest {
+  public void testResponseEncoding() {
+    Assert.assertNull(OHttpUtils.getResponseEncoding(null));
+    Assert.assertNull(OHttpUtils.getResponseEncoding(""));
+    Assert.assertNull(OHttpUtils.getResponseEncoding("identity"));
+
+    Assert.assertEquals(OHttpUtils.getResponseEncoding("gzip"), OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED);
+    Assert.assertEquals(OHttpUtils.getResponseEncoding("deflate"), OHttpUtils.CONTENT_ACCEPT_DEFLATE_ENCODED);
+    Assert.assertEquals(OHttpUtils.getResponseEncoding("GZIP"), OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED);
+
+    // GZIP IS PREFERRED WHATEVER THE ORDER
+    Assert.assertEquals(OHttpUtils.getResponseEncoding("deflate, gzip"), OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED);
+    Assert.assertEquals(OHttpUtils.getResponseEncoding("gzip;q=1.0, deflate;q=0.5"), OHttpUtils.CONTENT_ACCEPT_GZIP_ENCODED);
+  }
+
+  public void testRefusedEncodingsAreIgnored() {
+    Assert.assertEquals(OHttpUtils.getResponseEncoding("gzip;q=0, deflate"), OHttpUtils.CONTENT_ACCEPT_DEFLATE_ENCODED);
+    Assert.assertEquals(OHttpUtils.getResponseEncoding("gzip; q=0.0, deflate"), OHttpUtils.CONTENT_ACCEPT_DEFLATE_ENCODED);
+    Assert.assertNull(OHttpUtils.getResponseEncoding("gzip;q=0, deflate;q=0"));
+  }
+}
@@ -0,0 +1,88 @@
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.enterprise.channel.text.OChannelTextServer;
+import com.orientechnologies.orient.server.OClientConnection;
+
+@Test
+public class ONetworkProtocolHttpDbTest {
+  private ServerSocket           serverSocket;
+  private Socket                 client;
+  private ONetworkProtocolHttpDb protocol;
+
+  @BeforeMethod
+  public void beforeMethod() throws Exception {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    client = new Socket("127.0.0.1", serverSocket.getLocalPort());
+    client.setSoTimeout(10000);
+
+    final OContextConfiguration configuration = new OContextConfiguration();
+    protocol = new ONetworkProtocolHttpDb();
+    protocol.channel = new OChannelTextServer(serverSocket.accept(), configuration);
+    protocol.connection = new OClientConnection(1, protocol);
+    protocol.request = new OHttpRequest(protocol, protocol.channel.inStream, protocol.connection.data, configuration);
+    protocol.request.httpVersion = "HTTP/1.1";
+    protocol.response = new OHttpResponse(protocol.channel.outStream, "HTTP/1.1", null, "utf-8", "OrientDB test", null, null);
+  }
+
+  @AfterMethod
+  public void afterMethod() throws Exception {
+    client.close();
+    protocol.channel.close();
+    serverSocket.close();
+  }
+
+  public void testErrorBeforeTheResponse() throws Exception {
+    protocol.handleError(new OCommandExecutionException("Error before the response"));
+
+    final String response = readLine(client.getInputStream());
+    Assert.assertEquals(response, "HTTP/1.1 500 " + OHttpUtils.STATUS_INTERNALERROR_DESCRIPTION);
+    Assert.assertFalse(protocol.isShutdownFlag());
+  }
+
+  public void testErrorInTheMiddleOfTheStream() throws Exception {
+    final OChunkedResponse chunkedOutput = protocol.response.startChunked(OHttpUtils.STATUS_OK_CODE, "OK",
+        OHttpUtils.CONTENT_JSON, null);
+    chunkedOutput.write("{\"result\":[".getBytes());
+    chunkedOutput.flush();
+
+    protocol.handleError(new OCommandExecutionException("Error in the middle of the stream"));
+
+    // THE STREAM ENDS WITHOUT THE LAST CHUNK AND NO OTHER RESPONSE IS SENT
+    final String received = readAll(client.getInputStream());
+    Assert.assertTrue(received.startsWith("HTTP/1.1 200 OK"));
+    Assert.assertEquals(received.indexOf("HTTP/1.1", 1), -1);
+    Assert.assertTrue(received.endsWith("{\"result\":[\r\n"), received);
+    Assert.assertTrue(protocol.isShutdownFlag());
+  }
+
+  private static String readLine(final InputStream iInput) throws Exception {
+    final StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = iInput.read()) != '\n' && c > -1)
+      if (c != '\r')
+        line.append((char) c);
+    return line.toString();
+  }
+
+  private static String readAll(final InputStream iInput) throws Exception {
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ((read = iInput.read(buffer)) > -1)
+      content.write(buffer, 0, read);
+    return content.toString();
+  }
+}
@@ -29,11 +29,16 @@ import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecordAbstract;
+import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.OBase64Utils;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OBatchOperationResult;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.ORecordCallback;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageProxy;
 import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 import org.testng.Assert;
@@ -41,6 +46,7 @@ import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -354,6 +360,121 @@ public class CRUDDocumentPhysicalTest {
     }
   }
 
+  public void testLoadMultipleDocuments() {
+    database = ODatabaseDocumentPool.global().acquire(url, "admin", "admin");
+    try {
+      final List<ORID> rids = new ArrayList<ORID>();
+      for (int i = 0; i < 10; ++i)
+        rids.add(new ODocument().field("batch", i).save().getIdentity());
+
+      final ODocument linked = new ODocument().field("batch", "linked").save();
+      rids.add(new ODocument().field("batch", 10).field("link", linked).save().getIdentity());
+
+      // NOT EXISTENT AND DUPLICATED RIDS
+      rids.add(new ORecordId(rids.get(0).getClusterId(), OClusterPositionFactory.INSTANCE.valueOf(1000000)));
+      rids.add(rids.get(2));
+
+      // NOT A DOCUMENT
+      rids.add(new ORecordBytes("batch".getBytes()).save().getIdentity());
+
+      database.getLevel1Cache().clear();
+
+      final List<ORecordInternal<?>> records = database.load(rids, "*:-1");
+      Assert.assertEquals(records.size(), rids.size());
+      for (int i = 0; i <= 10; ++i) {
+        Assert.assertEquals(records.get(i).getIdentity(), rids.get(i));
+        Assert.assertEquals(((ODocument) records.get(i)).field("batch"), i);
+      }
+      Assert.assertEquals(((ODocument) ((ODocument) records.get(10)).field("link")).field("batch"), "linked");
+      Assert.assertNull(records.get(11));
+      Assert.assertSame(records.get(12), records.get(2));
+      Assert.assertEquals(new String(((ORecordBytes) records.get(13)).toStream()), "batch");
+    } finally {
+      database.close();
+    }
+  }
+
+  public void testCreateRecordsInBatch() {
+    database = ODatabaseDocumentPool.global().acquire(url, "admin", "admin");
+    try {
+      if (!(database.getStorage() instanceof OStorageProxy))
+        return;
+
+      final List<ODocument> docs = new ArrayList<ODocument>();
+      for (int i = 0; i < 5; ++i) {
+        final ODocument doc = new ODocument().field("batchCreate", i);
+        ((ORecordId) doc.getIdentity()).clusterId = database.getDefaultClusterId();
+        docs.add(doc);
+      }
+      // NOT EXISTENT CLUSTER: ONLY THIS RECORD FAILS
+      ((ORecordId) docs.get(2).getIdentity()).clusterId = Short.MAX_VALUE;
+
+      final List<OBatchOperationResult<OPhysicalPosition>> results = ((OStorageProxy) database.getStorage()).createRecords(docs);
+      Assert.assertEquals(results.size(), docs.size());
+      Assert.assertTrue(results.get(2).isError());
+
+      database.getLevel1Cache().clear();
+      for (int i = 0; i < docs.size(); ++i) {
+        if (i == 2)
+          continue;
+
+        Assert.assertFalse(results.get(i).isError());
+        Assert.assertTrue(docs.get(i).getIdentity().isPersistent());
+        Assert.assertEquals(results.get(i).getResult().clusterPosition, docs.get(i).getIdentity().getClusterPosition());
+
+        final ODocument loaded = database.load(docs.get(i).getIdentity());
+        Assert.assertEquals(loaded.field("batchCreate"), i);
+        Assert.assertEquals(loaded.getVersion(), docs.get(i).getVersion());
+      }
+    } finally {
+      database.close();
+    }
+  }
+
+  public void testUpdateRecordsInBatch() {
+    database = ODatabaseDocumentPool.global().acquire(url, "admin", "admin");
+    try {
+      if (!(database.getStorage() instanceof OStorageProxy))
+        return;
+
+      final List<ODocument> docs = new ArrayList<ODocument>();
+      for (int i = 0; i < 3; ++i)
+        docs.add(new ODocument().field("batchUpdate", i).save());
+
+      // THE SECOND RECORD IS CHANGED BY SOMEBODY ELSE: ITS VERSION IN THE BATCH IS STALE
+      final ODocument stale = docs.get(1).copy();
+      docs.get(1).field("batchUpdate", "other").save();
+      docs.set(1, stale);
+
+      for (ODocument doc : docs)
+        doc.field("batchUpdate", "updated");
+
+      final int[] versions = new int[docs.size()];
+      for (int i = 0; i < docs.size(); ++i)
+        versions[i] = docs.get(i).getVersion();
+
+      final List<OBatchOperationResult<ORecordVersion>> results = ((OStorageProxy) database.getStorage()).updateRecords(docs);
+      Assert.assertEquals(results.size(), docs.size());
+      Assert.assertFalse(results.get(0).isError());
+      Assert.assertTrue(results.get(1).isError());
+      Assert.assertFalse(results.get(2).isError());
+
+      database.getLevel1Cache().clear();
+      for (int i = 0; i < docs.size(); ++i) {
+        final ODocument loaded = database.load(docs.get(i).getIdentity());
+        if (i == 1)
+          Assert.assertEquals(loaded.field("batchUpdate"), "other");
+        else {
+          Assert.assertEquals(loaded.field("batchUpdate"), "updated");
+          Assert.assertEquals(results.get(i).getResult().getCounter(), versions[i] + 1);
+          Assert.assertEquals(docs.get(i).getVersion(), versions[i] + 1);
+        }
+      }
+    } finally {
+      database.close();
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void testDbCacheUpdated() {
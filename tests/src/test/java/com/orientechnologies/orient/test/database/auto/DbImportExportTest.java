@@ -19,12 +19,14 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 
+import org.testng.Assert;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.tool.ODatabaseCompare;
 import com.orientechnologies.orient.core.db.tool.ODatabaseExport;
 import com.orientechnologies.orient.core.db.tool.ODatabaseImport;
 import com.orientechnologies.orient.core.hook.ORecordHook;
@@ -34,6 +36,7 @@ public class DbImportExportTest implements OCommandOutputListener {
   public static final String EXPORT_FILE_PATH = "target/db.export.gz";
   public static final String NEW_DB_PATH      = "target/test-import";
   public static final String NEW_DB_URL       = "target/test-import";
+  public static final String NEW_DB_PARALLEL  = "target/test-import-parallel";
 
   private String             url;
   private String             testPath;
@@ -59,7 +62,30 @@ public class DbImportExportTest implements OCommandOutputListener {
 
   @Test(dependsOnMethods = "testDbExport")
   public void testDbImport() throws IOException {
-    final File importDir = new File(testPath + "/" + NEW_DB_PATH);
+    importDatabase(NEW_DB_PATH, 1);
+  }
+
+  @Test(dependsOnMethods = "testDbExport")
+  public void testDbImportParallel() throws IOException {
+    final String importURL = importDatabase(NEW_DB_PARALLEL, 4);
+    try {
+      final ODatabaseCompare databaseCompare = new ODatabaseCompare(url, importURL, "admin", "admin", this);
+      databaseCompare.setCompareEntriesForAutomaticIndexes(true);
+      Assert.assertTrue(databaseCompare.compare());
+    } finally {
+      final ODatabaseDocumentTx database = new ODatabaseDocumentTx(importURL);
+      if (database.exists()) {
+        database.open("admin", "admin");
+        database.drop();
+      }
+    }
+  }
+
+  /**
+   * @return the URL of the imported database
+   */
+  private String importDatabase(final String iPath, final int iWorkers) throws IOException {
+    final File importDir = new File(testPath + "/" + iPath);
     if (importDir.exists())
       for (File f : importDir.listFiles())
         f.delete();
@@ -68,9 +94,9 @@ public class DbImportExportTest implements OCommandOutputListener {
 
     ODatabaseDocumentTx database;
     if (url.startsWith("plocal:") || url.startsWith("remote:"))
-      database = new ODatabaseDocumentTx("plocal:" + testPath + "/" + NEW_DB_URL);
+      database = new ODatabaseDocumentTx("plocal:" + testPath + "/" + iPath);
     else
-      database = new ODatabaseDocumentTx("local:" + testPath + "/" + NEW_DB_URL);
+      database = new ODatabaseDocumentTx("local:" + testPath + "/" + iPath);
 
     database.create();
 
@@ -86,10 +112,12 @@ public class DbImportExportTest implements OCommandOutputListener {
 
     dbImport.setPreserveRids(true);
     dbImport.setDeleteRIDMapping(false);
+    dbImport.setWorkers(iWorkers);
     dbImport.importDatabase();
     dbImport.close();
 
     database.close();
+    return database.getURL();
   }
 
   @Override
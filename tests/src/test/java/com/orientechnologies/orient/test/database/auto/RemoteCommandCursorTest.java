@@ -0,0 +1,145 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.auto;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.orient.client.remote.ORemoteCommandCursor;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test(groups = "query")
+public class RemoteCommandCursorTest {
+  private static final int    RECORDS = 250;
+
+  private ODatabaseDocumentTx database;
+
+  @Parameters(value = "url")
+  public RemoteCommandCursorTest(String iURL) {
+    database = new ODatabaseDocumentTx(iURL);
+  }
+
+  @BeforeClass
+  public void beforeClass() {
+    database.open("admin", "admin");
+
+    if (!database.getMetadata().getSchema().existsClass("CursorItem"))
+      database.getMetadata().getSchema().createClass("CursorItem");
+
+    database.command(new OCommandSQL("delete from CursorItem")).execute();
+    for (int i = 0; i < RECORDS; i++)
+      new ODocument("CursorItem").field("index", i).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    database.close();
+  }
+
+  public void testBrowseAllPages() {
+    if (!isRemote())
+      return;
+
+    final ORemoteCommandCursor cursor = storage().commandCursor(
+        new OSQLSynchQuery<ODocument>("select from CursorItem where index >= 10"), 17);
+
+    final Set<Integer> indexes = new HashSet<Integer>();
+    for (OIdentifiable record : cursor)
+      Assert.assertTrue(indexes.add(((ODocument) record.getRecord()).<Integer> field("index")));
+
+    Assert.assertEquals(indexes.size(), RECORDS - 10);
+    Assert.assertEquals(cursor.getCursorId(), -1);
+  }
+
+  public void testCloseBeforeTheEnd() {
+    if (!isRemote())
+      return;
+
+    final ORemoteCommandCursor cursor = storage().commandCursor(
+        new OSQLSynchQuery<ODocument>("select from CursorItem order by index desc"), 10);
+
+    for (int i = RECORDS - 1; i > RECORDS - 25; i--)
+      Assert.assertEquals(((ODocument) cursor.next().getRecord()).field("index"), i);
+
+    Assert.assertTrue(cursor.getCursorId() >= 0);
+    cursor.close();
+    Assert.assertEquals(cursor.getCursorId(), -1);
+
+    // THE SESSION IS STILL USABLE
+    Assert.assertEquals(database.countClass("CursorItem"), RECORDS);
+  }
+
+  public void testSinglePageResult() {
+    if (!isRemote())
+      return;
+
+    final ORemoteCommandCursor cursor = storage().commandCursor(
+        new OSQLSynchQuery<ODocument>("select count(*) from CursorItem"), 100);
+
+    Assert.assertEquals(((Number) ((ODocument) cursor.next().getRecord()).field("count")).intValue(), RECORDS);
+    Assert.assertFalse(cursor.hasNext());
+    Assert.assertEquals(cursor.getCursorId(), -1);
+  }
+
+  public void testOpenCursorsAreCapped() {
+    if (!isRemote())
+      return;
+
+    final int max = OGlobalConfiguration.NETWORK_BINARY_CURSOR_MAX.getValueAsInteger();
+    final List<ORemoteCommandCursor> cursors = new ArrayList<ORemoteCommandCursor>();
+    try {
+      for (int i = 0; i < max; i++)
+        cursors.add(storage().commandCursor(new OSQLSynchQuery<ODocument>("select from CursorItem"), 10));
+
+      try {
+        cursors.add(storage().commandCursor(new OSQLSynchQuery<ODocument>("select from CursorItem"), 10));
+        Assert.fail();
+      } catch (OException e) {
+        // TOO MANY CURSORS
+      }
+    } finally {
+      for (ORemoteCommandCursor cursor : cursors)
+        cursor.close();
+    }
+
+    // THE CLOSED CURSORS ARE RELEASED
+    final ORemoteCommandCursor cursor = storage().commandCursor(new OSQLSynchQuery<ODocument>("select from CursorItem"), 10);
+    Assert.assertTrue(cursor.hasNext());
+    cursor.close();
+  }
+
+  private boolean isRemote() {
+    return database.getStorage() instanceof ORemoteCommandCursor.OCursorStorage;
+  }
+
+  private ORemoteCommandCursor.OCursorStorage storage() {
+    return (ORemoteCommandCursor.OCursorStorage) database.getStorage();
+  }
+}
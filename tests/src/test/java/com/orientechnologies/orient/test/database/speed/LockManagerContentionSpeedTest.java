@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.lock.OLockManager;
+import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.ORecordLockManager;
+
+/**
+ * Compares a single {@link OLockManager} with {@link ORecordLockManager} under contention: every thread locks random
+ * records as the storage does while reading (shared) and updating (exclusive) them. Set "threads" (processors by default),
+ * "locks" per thread (1M by default) and "writePercent" (10 by default) system properties to change the load.
+ */
+@Test(enabled = false)
+public class LockManagerContentionSpeedTest extends SpeedTestMonoThread {
+  private final int    threads;
+  private final int    locksPerThread;
+  private final int    writePercent;
+  private final ORID[] rids;
+
+  public LockManagerContentionSpeedTest() {
+    super(1);
+    threads = Integer.parseInt(System.getProperty("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+    locksPerThread = Integer.parseInt(System.getProperty("locks", "1000000"));
+    writePercent = Integer.parseInt(System.getProperty("writePercent", "10"));
+    rids = new ORID[100000];
+  }
+
+  public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+    LockManagerContentionSpeedTest test = new LockManagerContentionSpeedTest();
+    test.data.go(test);
+  }
+
+  @Override
+  public void init() {
+    for (int i = 0; i < rids.length; ++i)
+      rids[i] = new ORecordId(9 + i % 8, OClusterPositionFactory.INSTANCE.valueOf(i / 8));
+  }
+
+  @Override
+  public void cycle() throws Exception {
+    final OLockManager<ORID, Runnable> lockManager = new OLockManager<ORID, Runnable>(true, 30000) {
+      @Override
+      protected ORID getImmutableResourceId(ORID iResourceId) {
+        return iResourceId.copy();
+      }
+    };
+    final ORecordLockManager recordLockManager = new ORecordLockManager(30000);
+
+    // WARM UP
+    run(new LockAction() {
+      public void lock(ORID rid, LOCK lockType) {
+        lockManager.acquireLock(null, rid, lockType);
+        lockManager.releaseLock(null, rid, lockType);
+      }
+    });
+    run(new LockAction() {
+      public void lock(ORID rid, LOCK lockType) {
+        recordLockManager.acquireLock(null, rid, lockType);
+        recordLockManager.releaseLock(null, rid, lockType);
+      }
+    });
+
+    final long lockManagerTime = run(new LockAction() {
+      public void lock(ORID rid, LOCK lockType) {
+        lockManager.acquireLock(null, rid, lockType);
+        lockManager.releaseLock(null, rid, lockType);
+      }
+    });
+    final long recordLockManagerTime = run(new LockAction() {
+      public void lock(ORID rid, LOCK lockType) {
+        recordLockManager.acquireLock(null, rid, lockType);
+        recordLockManager.releaseLock(null, rid, lockType);
+      }
+    });
+
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+    Assert.assertEquals(recordLockManager.getCountCurrentLocks(), 0);
+
+    final long locks = (long) threads * locksPerThread;
+    System.out.println(String.format("%d threads, %,d locks each, %d%% exclusive", threads, locksPerThread, writePercent));
+    System.out.println(String.format("OLockManager:       %,d ms, %,d locks/sec", lockManagerTime / 1000000, locks * 1000000000
+        / lockManagerTime));
+    System.out.println(String.format("ORecordLockManager: %,d ms, %,d locks/sec (%d partitions)", recordLockManagerTime / 1000000,
+        locks * 1000000000 / recordLockManagerTime, recordLockManager.getPartitions()));
+  }
+
+  /**
+   * Runs the lock action in all the threads at once and returns the elapsed nanoseconds.
+   */
+  private long run(final LockAction iAction) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; ++t) {
+      final int seed = t;
+      workers[t] = new Thread() {
+        @Override
+        public void run() {
+          final Random random = new Random(seed);
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+
+          for (int i = 0; i < locksPerThread; ++i)
+            iAction.lock(rids[random.nextInt(rids.length)], random.nextInt(100) < writePercent ? LOCK.EXCLUSIVE : LOCK.SHARED);
+        }
+      };
+      workers[t].start();
+    }
+
+    final long begin = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers)
+      worker.join();
+    return System.nanoTime() - begin;
+  }
+
+  private interface LockAction {
+    void lock(ORID rid, LOCK lockType);
+  }
+}
@@ -17,22 +17,43 @@ package com.orientechnologies.orient.test.database.speed;
 
 import org.testng.annotations.Test;
 
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.test.database.base.OrientMonoThreadTest;
 
 @Test(enabled = false)
 public class ODocumentSerializationSpeedTest extends OrientMonoThreadTest {
-  private ODocument record;
+  private ODocument     record;
+  private final boolean partial;
 
   public ODocumentSerializationSpeedTest() throws InstantiationException, IllegalAccessException {
+    this(ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME), false);
+  }
+
+  /**
+   * @param iPartial
+   *          reads back only one field instead of the whole document
+   */
+  public ODocumentSerializationSpeedTest(final ORecordSerializer iSerializer, final boolean iPartial) {
     super(1000000);
 
+    ODatabaseDocumentTx.setDefaultSerializer(iSerializer);
     record = new ODocument();
+    partial = iPartial;
   }
 
   public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
-    ODocumentSerializationSpeedTest test = new ODocumentSerializationSpeedTest();
-    test.data.go(test);
+    for (String format : new String[] { ORecordSerializerSchemaAware2CSV.NAME, ORecordSerializerBinary.NAME })
+      for (boolean partial : new boolean[] { false, true }) {
+        System.out.println("\nSerializer " + format + (partial ? ", reading one field" : ", reading all the fields"));
+        ODocumentSerializationSpeedTest test = new ODocumentSerializationSpeedTest(ORecordSerializerFactory.instance().getFormat(
+            format), partial);
+        test.data.go(test);
+      }
   }
 
   @Override
@@ -52,7 +73,10 @@ public class ODocumentSerializationSpeedTest extends OrientMonoThreadTest {
 
     record.reset();
     record.fromStream(buffer);
-    record.toString();
+    if (partial)
+      record.field("name7");
+    else
+      record.toString();
   }
 
   @Override
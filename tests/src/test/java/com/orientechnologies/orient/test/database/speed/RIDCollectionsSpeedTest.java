@@ -0,0 +1,184 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORIDHashSet;
+import com.orientechnologies.orient.core.id.ORIDIntHashMap;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Compares the RID sets and maps of the traverse history and of the fetch plans with the boxed HashSet and HashMap they replaced:
+ * time to fill and look up the RIDs and heap retained by the filled collection. Set "rids" and "rounds" system properties to
+ * change the number of RIDs (1M by default) and of measured rounds (5 by default).
+ */
+@Test(enabled = false)
+public class RIDCollectionsSpeedTest extends SpeedTestMonoThread {
+  private final int    rids;
+  private final int    rounds;
+  private final ORID[] identities;
+  private long         checksum;
+
+  public RIDCollectionsSpeedTest() {
+    super(1);
+    rids = Integer.parseInt(System.getProperty("rids", "1000000"));
+    rounds = Integer.parseInt(System.getProperty("rounds", "5"));
+    identities = new ORID[rids];
+  }
+
+  public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+    RIDCollectionsSpeedTest test = new RIDCollectionsSpeedTest();
+    test.data.go(test);
+  }
+
+  @Override
+  public void init() {
+    // RECORDS OF FEW CLUSTERS, AS LOADED BY A TRAVERSAL
+    for (int i = 0; i < rids; ++i)
+      identities[i] = new ORecordId(9 + i % 8, OClusterPositionFactory.INSTANCE.valueOf(i / 8));
+  }
+
+  @Override
+  public void cycle() {
+    // WARM UP
+    fillBoxedSet();
+    fillSet();
+    fillBoxedMap();
+    fillMap();
+
+    long boxedSetTime = 0, setTime = 0, boxedMapTime = 0, mapTime = 0;
+    for (int round = 0; round < rounds; ++round) {
+      long start = System.nanoTime();
+      fillBoxedSet();
+      boxedSetTime += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      fillSet();
+      setTime += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      fillBoxedMap();
+      boxedMapTime += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      fillMap();
+      mapTime += System.nanoTime() - start;
+    }
+
+    System.out.println(String.format("%,d RIDs added and looked up %d times", rids, rounds));
+    System.out.println(String.format("HashSet<ORID>:            %,d ms, %,d bytes per RID", boxedSetTime / 1000000,
+        retainedPerRid(new Filler() {
+          public Object fill() {
+            return fillBoxedSet();
+          }
+        })));
+    System.out.println(String.format("ORIDHashSet:              %,d ms, %,d bytes per RID", setTime / 1000000,
+        retainedPerRid(new Filler() {
+          public Object fill() {
+            return fillSet();
+          }
+        })));
+    System.out.println(String.format("HashMap<ORID, Integer>:   %,d ms, %,d bytes per RID", boxedMapTime / 1000000,
+        retainedPerRid(new Filler() {
+          public Object fill() {
+            return fillBoxedMap();
+          }
+        })));
+    System.out.println(String.format("ORIDIntHashMap:           %,d ms, %,d bytes per RID", mapTime / 1000000,
+        retainedPerRid(new Filler() {
+          public Object fill() {
+            return fillMap();
+          }
+        })));
+  }
+
+  @Override
+  public void deinit() {
+    Assert.assertTrue(checksum > 0);
+  }
+
+  private Set<ORID> fillBoxedSet() {
+    final Set<ORID> set = new HashSet<ORID>();
+    for (ORID rid : identities)
+      set.add(rid.copy());
+    for (ORID rid : identities)
+      if (set.contains(rid))
+        checksum++;
+    return set;
+  }
+
+  private Set<ORID> fillSet() {
+    final Set<ORID> set = new ORIDHashSet();
+    for (ORID rid : identities)
+      set.add(rid);
+    for (ORID rid : identities)
+      if (set.contains(rid))
+        checksum++;
+    return set;
+  }
+
+  private Map<ORID, Integer> fillBoxedMap() {
+    final Map<ORID, Integer> map = new HashMap<ORID, Integer>();
+    for (int i = 0; i < identities.length; ++i)
+      map.put(identities[i].copy(), i);
+    for (ORID rid : identities)
+      checksum += map.get(rid);
+    return map;
+  }
+
+  private ORIDIntHashMap fillMap() {
+    final ORIDIntHashMap map = new ORIDIntHashMap(-1);
+    for (int i = 0; i < identities.length; ++i)
+      map.put(identities[i], i);
+    for (ORID rid : identities)
+      checksum += map.get(rid);
+    return map;
+  }
+
+  /**
+   * Returns the heap retained by the filled collection divided by the number of RIDs. The boxed collections are filled with copies
+   * of the RIDs, as the traverse and the fetch plans keep the identities of the loaded records.
+   */
+  private long retainedPerRid(final Filler iFiller) {
+    final long before = usedMemory();
+    final Object collection = iFiller.fill();
+    final long after = usedMemory();
+
+    Assert.assertNotNull(collection);
+    return (after - before) / rids;
+  }
+
+  private static long usedMemory() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; ++i)
+      System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private interface Filler {
+    Object fill();
+  }
+}
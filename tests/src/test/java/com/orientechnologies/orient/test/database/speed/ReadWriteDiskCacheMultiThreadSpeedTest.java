@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMultiThreads;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OReadWriteDiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Measures throughput of read cache hits when the same pages are loaded and released by many threads. Run it with different
+ * amount of threads and concurrency levels to see how cache hit throughput scales with amount of cores.
+ */
+@Test(enabled = false)
+public class ReadWriteDiskCacheMultiThreadSpeedTest extends OrientMultiThreadTest {
+  private static final int       PAGE_SIZE  = 64 * 1024;
+  private static final int       PAGE_COUNT = 4 * 1024;
+
+  private final int              concurrencyLevel;
+
+  private OLocalPaginatedStorage storageLocal;
+  private OReadWriteDiskCache    diskCache;
+  private long                   fileId;
+
+  @Test(enabled = false)
+  public static class LoadPagesThread extends OrientThreadTest {
+    private final Random random = new Random();
+    private OReadWriteDiskCache diskCache;
+    private long                fileId;
+
+    public LoadPagesThread(final SpeedTestMultiThreads parent, final int threadId) {
+      super(parent, threadId);
+    }
+
+    @Override
+    public void init() {
+      final ReadWriteDiskCacheMultiThreadSpeedTest test = (ReadWriteDiskCacheMultiThreadSpeedTest) owner;
+      diskCache = test.diskCache;
+      fileId = test.fileId;
+    }
+
+    public void cycle() throws IOException {
+      final OCacheEntry cacheEntry = diskCache.load(fileId, random.nextInt(PAGE_COUNT), false);
+      cacheEntry.acquireSharedLock();
+      cacheEntry.releaseSharedLock();
+      diskCache.release(cacheEntry);
+    }
+  }
+
+  public ReadWriteDiskCacheMultiThreadSpeedTest(final int threads, final int concurrencyLevel) {
+    super(10000000, threads, LoadPagesThread.class);
+    this.concurrencyLevel = concurrencyLevel;
+  }
+
+  public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+    final int cores = Runtime.getRuntime().availableProcessors();
+
+    for (int threads = 1; threads <= cores; threads <<= 1) {
+      System.out.println("\nThreads " + threads + ", single lock");
+      ReadWriteDiskCacheMultiThreadSpeedTest test = new ReadWriteDiskCacheMultiThreadSpeedTest(threads, 1);
+      test.data.go(test);
+
+      System.out.println("\nThreads " + threads + ", concurrency level " + cores);
+      test = new ReadWriteDiskCacheMultiThreadSpeedTest(threads, cores);
+      test.data.go(test);
+    }
+  }
+
+  @Override
+  public void init() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/ReadWriteDiskCacheMultiThreadSpeedTest");
+    storageLocal.create(null);
+    storageLocal.close(true, false);
+
+    diskCache = new OReadWriteDiskCache(null, 2L * PAGE_COUNT * PAGE_SIZE, 2L * PAGE_COUNT * PAGE_SIZE, PAGE_SIZE, 10000, -1,
+        storageLocal, null, false, true, concurrencyLevel);
+
+    fileId = diskCache.openFile("readWriteDiskCacheSpeedTest.tst");
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final OCacheEntry cacheEntry = diskCache.load(fileId, i, false);
+      cacheEntry.markDirty();
+      diskCache.release(cacheEntry);
+    }
+  }
+
+  @Override
+  public void deinit() throws IOException {
+    if (diskCache != null)
+      diskCache.delete();
+
+    if (storageLocal != null)
+      storageLocal.delete();
+  }
+}
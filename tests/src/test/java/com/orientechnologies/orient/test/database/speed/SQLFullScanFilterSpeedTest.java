@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+
+/**
+ * Scans a whole class filtering it with a WHERE condition, first interpreting the condition tree for every record and then through
+ * the compiled condition. Set "url" and "records" system properties to change the database and its size (10M documents by
+ * default).
+ */
+@Test(enabled = false)
+public class SQLFullScanFilterSpeedTest extends SpeedTestMonoThread {
+  private static final String QUERY = "select from Account where age > 50 and salary < 3100 and (name = 'Luca' or surname = 'Garulli')";
+
+  private ODatabaseDocumentTx database;
+  private final int           records;
+  private long                interpretedResult;
+  private long                compiledResult;
+
+  public SQLFullScanFilterSpeedTest() {
+    super(1);
+    records = Integer.parseInt(System.getProperty("records", "10000000"));
+  }
+
+  public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+    SQLFullScanFilterSpeedTest test = new SQLFullScanFilterSpeedTest();
+    test.data.go(test);
+  }
+
+  @Override
+  public void init() {
+    database = new ODatabaseDocumentTx(System.getProperty("url", "memory:fullScanFilterSpeedTest"));
+    if (database.exists())
+      database.open("admin", "admin").drop();
+
+    database = new ODatabaseDocumentTx(System.getProperty("url", "memory:fullScanFilterSpeedTest"));
+    database.create();
+
+    final OClass account = database.getMetadata().getSchema().createClass("Account");
+    account.createProperty("age", OType.INTEGER);
+    account.createProperty("salary", OType.LONG);
+    account.createProperty("name", OType.STRING);
+
+    database.declareIntent(new OIntentMassiveInsert());
+
+    final ODocument record = new ODocument();
+    for (int i = 0; i < records; ++i) {
+      record.reset();
+      record.setClassName("Account");
+      record.field("id", i);
+      record.field("age", i % 100);
+      record.field("salary", 3000 + i % 200);
+      record.field("name", i % 3 == 0 ? "Luca" : "Jay");
+      record.field("surname", i % 5 == 0 ? "Garulli" : "Miner");
+      record.save();
+    }
+
+    database.declareIntent(null);
+
+    System.out.println("Created " + records + " Account documents");
+  }
+
+  @Override
+  public void cycle() {
+    // WARM UP
+    scan();
+
+    OGlobalConfiguration.QUERY_FILTER_COMPILED.setValue(false);
+    long start = System.currentTimeMillis();
+    interpretedResult = scan();
+    System.out.println("Interpreted condition: " + interpretedResult + " records found in "
+        + (System.currentTimeMillis() - start) + "ms");
+
+    OGlobalConfiguration.QUERY_FILTER_COMPILED.setValue(true);
+    start = System.currentTimeMillis();
+    compiledResult = scan();
+    System.out.println("Compiled condition: " + compiledResult + " records found in " + (System.currentTimeMillis() - start)
+        + "ms");
+  }
+
+  @Override
+  public void deinit() {
+    Assert.assertEquals(compiledResult, interpretedResult);
+
+    if (database != null)
+      database.close();
+  }
+
+  private long scan() {
+    final long[] found = new long[1];
+    database.query(new OSQLAsynchQuery<ODocument>(QUERY, new OCommandResultListener() {
+      public boolean result(final Object iRecord) {
+        found[0]++;
+        return true;
+      }
+
+      public void end() {
+      }
+    }));
+    return found[0];
+  }
+}
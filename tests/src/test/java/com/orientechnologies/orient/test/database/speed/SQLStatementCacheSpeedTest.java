@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Executes many times a short indexed query with different parameters, first parsing it at every execution and then through the
+ * statement cache. Set "url" and "executions" system properties to change the database and the number of executions (1M by
+ * default).
+ */
+@Test(enabled = false)
+public class SQLStatementCacheSpeedTest extends SpeedTestMonoThread {
+  private static final String QUERY = "select from Account where id = ? and age > 10 order by salary";
+
+  private ODatabaseDocumentTx database;
+  private final int           executions;
+  private long                parsedResult;
+  private long                cachedResult;
+
+  public SQLStatementCacheSpeedTest() {
+    super(1);
+    executions = Integer.parseInt(System.getProperty("executions", "1000000"));
+  }
+
+  public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+    SQLStatementCacheSpeedTest test = new SQLStatementCacheSpeedTest();
+    test.data.go(test);
+  }
+
+  @Override
+  public void init() {
+    database = new ODatabaseDocumentTx(System.getProperty("url", "memory:statementCacheSpeedTest"));
+    if (database.exists())
+      database.open("admin", "admin").drop();
+
+    database = new ODatabaseDocumentTx(System.getProperty("url", "memory:statementCacheSpeedTest"));
+    database.create();
+
+    final OClass account = database.getMetadata().getSchema().createClass("Account");
+    account.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    account.createProperty("age", OType.INTEGER);
+    account.createProperty("salary", OType.LONG);
+
+    for (int i = 0; i < 10000; ++i) {
+      final ODocument record = new ODocument("Account");
+      record.field("id", i % 1000);
+      record.field("age", i % 100);
+      record.field("salary", 3000 + i % 200);
+      record.save();
+    }
+  }
+
+  @Override
+  public void cycle() {
+    // WARM UP
+    execute(executions / 10);
+
+    final int cacheSize = OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger();
+    OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(0);
+    long start = System.currentTimeMillis();
+    parsedResult = execute(executions);
+    System.out.println("Parsed at every execution: " + parsedResult + " records found in " + (System.currentTimeMillis() - start)
+        + "ms");
+
+    OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(cacheSize);
+    start = System.currentTimeMillis();
+    cachedResult = execute(executions);
+    System.out.println("Statement cache: " + cachedResult + " records found in " + (System.currentTimeMillis() - start) + "ms");
+
+    final OSQLStatementCache cache = OSQLStatementCache.get(database.getStorage());
+    System.out.println("Statement cache hits: " + cache.getHits() + ", misses: " + cache.getMisses());
+  }
+
+  @Override
+  public void deinit() {
+    Assert.assertEquals(cachedResult, parsedResult);
+
+    if (database != null)
+      database.close();
+  }
+
+  private long execute(final int iExecutions) {
+    long found = 0;
+    for (int i = 0; i < iExecutions; ++i) {
+      final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>(QUERY), i % 1000);
+      found += result.size();
+    }
+    return found;
+  }
+}
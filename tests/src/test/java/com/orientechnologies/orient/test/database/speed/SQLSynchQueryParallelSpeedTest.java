@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Compares the full scan of the Profile class executed on the current thread with the same scan executed with the PARALLEL
+ * keyword.
+ */
+@Test(enabled = false)
+public class SQLSynchQueryParallelSpeedTest extends SpeedTestMonoThread {
+  private static final String QUERY = "select from Profile where nick = 100010";
+
+  private ODatabaseDocumentTx database;
+  private final boolean       parallel;
+
+  public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+    System.out.println("Serial scan");
+    SQLSynchQueryParallelSpeedTest test = new SQLSynchQueryParallelSpeedTest(false);
+    test.data.go(test);
+
+    System.out.println("Parallel scan");
+    test = new SQLSynchQueryParallelSpeedTest(true);
+    test.data.go(test);
+  }
+
+  public SQLSynchQueryParallelSpeedTest(final boolean parallel) {
+    super(10);
+    this.parallel = parallel;
+  }
+
+  @Override
+  public void init() {
+    database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+    System.out.println("Scanning " + database.countClass("Profile") + " records");
+  }
+
+  @Override
+  public void cycle() throws UnsupportedEncodingException {
+    final List<ODocument> result = database.command(
+        new OSQLSynchQuery<ODocument>(parallel ? QUERY + " parallel" : QUERY)).execute();
+
+    if (data.getCyclesDone() == 0)
+      System.out.println("Found " + result.size() + " records");
+  }
+
+  @Override
+  public void deinit() {
+    if (database != null)
+      database.close();
+  }
+}